@@ -0,0 +1,454 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.analysis.family.qc;
+
+import org.opencb.biodata.models.clinical.qc.RelatednessReport;
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.analysis.individual.qc.IndividualQcUtils;
+import org.opencb.opencga.analysis.variant.manager.VariantStorageManager;
+import org.opencb.opencga.core.exceptions.ToolException;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantField;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
+import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
+import org.opencb.opencga.storage.core.variant.stats.PackedGenotypeMatrix;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Relatedness engine running in the JVM.
+ *
+ * Genotypes of the selected markers are read from the variant storage into a {@link PackedGenotypeMatrix}, pruning the markers
+ * in linkage disequilibrium. Then, for each pair of samples, the IBS0/IBS1/IBS2 counts are computed with bitwise kernels
+ * over blocks of samples, from where the IBD estimates (Z0, Z1, Z2 and PI_HAT, as PLINK --genome) and the KING-robust kinship
+ * coefficient are obtained.
+ */
+public class RelatednessComputation {
+
+    public static final String METHOD = "IBD/IBS/KING";
+
+    // LD pruning equivalent to PLINK --indep 50 5 2 (VIF=2 is r2=0.5)
+    public static final int LD_WINDOW_SIZE = 50;
+    public static final double LD_R2_THRESHOLD = 0.5;
+
+    // Relationships inferred from the kinship coefficient, using the KING thresholds
+    public static final String DUPLICATE = "DU";
+    public static final String PARENT_OFFSPRING = "PO";
+    public static final String FULL_SIBLINGS = "FS";
+    public static final String SECOND_DEGREE = "2D";
+    public static final String THIRD_DEGREE = "3D";
+    public static final String UNRELATED = "UN";
+
+    private static final int SAMPLE_BLOCK_SIZE = 32;
+    private static final int WORD_BLOCK_SIZE = 256;
+
+    private static final int N = 0;
+    private static final int IBS0 = 1;
+    private static final int IBS2 = 2;
+    private static final int HET_HET = 3;
+    private static final int HET_1 = 4;
+    private static final int HET_2 = 5;
+    private static final int NUM_COUNTERS = 6;
+
+    private static Logger logger = LoggerFactory.getLogger(RelatednessComputation.class);
+
+    public static RelatednessReport compute(String study, List<String> samples, String maf, VariantStorageManager storageManager,
+                                            String token) throws ToolException {
+        Query query = IndividualQcUtils.buildMarkersQuery(study, samples, maf)
+                .append(VariantQueryParam.INCLUDE_SAMPLE.key(), samples)
+                .append(VariantQueryParam.INCLUDE_SAMPLE_DATA.key(), "GT");
+        QueryOptions options = new QueryOptions(QueryOptions.INCLUDE, Collections.singletonList(VariantField.STUDIES_SAMPLES));
+
+        MarkerSelector markerSelector = new MarkerSelector(samples.size());
+        int numVariants = 0;
+        try (VariantDBIterator iterator = storageManager.iterator(query, options, token)) {
+            int[] samplesPosition = null;
+            byte[] genotypes = new byte[samples.size()];
+            while (iterator.hasNext()) {
+                Variant variant = iterator.next();
+                StudyEntry studyEntry = variant.getStudies().get(0);
+                if (samplesPosition == null) {
+                    samplesPosition = getSamplesPosition(samples, studyEntry.getOrderedSamplesName());
+                }
+                Integer gtIdx = studyEntry.getSampleDataKeyPosition("GT");
+                for (int i = 0; i < samplesPosition.length; i++) {
+                    if (gtIdx == null || gtIdx < 0 || samplesPosition[i] < 0) {
+                        genotypes[i] = PackedGenotypeMatrix.MISSING;
+                    } else {
+                        genotypes[i] = PackedGenotypeMatrix.encode(studyEntry.getSamples().get(samplesPosition[i]).getData().get(gtIdx));
+                    }
+                }
+                markerSelector.add(variant.getChromosome(), genotypes);
+                numVariants++;
+            }
+        } catch (Exception e) {
+            throw new ToolException(e);
+        }
+        logger.info("Selected {} markers out of {} variants after LD pruning", markerSelector.getMarkers().getNumRows(), numVariants);
+
+        if (markerSelector.getMarkers().getNumRows() == 0) {
+            throw new ToolException("No variants found to compute the relatedness between samples " + samples);
+        }
+
+        List<RelatednessReport.RelatednessScore> scores = computeScores(samples, markerSelector.getMarkers(),
+                markerSelector.getAltAlleleFreqs(), Runtime.getRuntime().availableProcessors());
+
+        return new RelatednessReport()
+                .setMethod(METHOD)
+                .setMaf(maf)
+                .setScores(scores);
+    }
+
+    /**
+     * Compute the relatedness scores for every pair of samples.
+     *
+     * @param samples       Sample names, in the same order as the columns of the matrix
+     * @param markers       Marker-major genotype matrix
+     * @param altAlleleFreq Alternate allele frequency of each marker
+     * @param numThreads    Number of threads
+     * @return List of scores, sorted by sample
+     * @throws ToolException if the computation fails
+     */
+    public static List<RelatednessReport.RelatednessScore> computeScores(List<String> samples, PackedGenotypeMatrix markers,
+                                                                          double[] altAlleleFreq, int numThreads)
+            throws ToolException {
+        double[] expected = expectedIbsGivenIbd(altAlleleFreq, markers.getNumRows());
+        PackedGenotypeMatrix genotypes = markers.transpose();
+
+        List<int[]> blockPairs = new ArrayList<>();
+        for (int start1 = 0; start1 < samples.size(); start1 += SAMPLE_BLOCK_SIZE) {
+            for (int start2 = start1; start2 < samples.size(); start2 += SAMPLE_BLOCK_SIZE) {
+                blockPairs.add(new int[]{start1, start2});
+            }
+        }
+
+        List<RelatednessReport.RelatednessScore> scores = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(numThreads, blockPairs.size())));
+        try {
+            List<Future<List<RelatednessReport.RelatednessScore>>> futures = new ArrayList<>(blockPairs.size());
+            for (int[] blockPair : blockPairs) {
+                futures.add(executor.submit(() -> computeBlock(samples, genotypes, blockPair[0], blockPair[1], expected)));
+            }
+            for (Future<List<RelatednessReport.RelatednessScore>> future : futures) {
+                scores.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ToolException(e);
+        } catch (ExecutionException e) {
+            throw new ToolException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Map<String, Integer> sampleIdx = new HashMap<>();
+        for (int i = 0; i < samples.size(); i++) {
+            sampleIdx.put(samples.get(i), i);
+        }
+        scores.sort(Comparator.<RelatednessReport.RelatednessScore>comparingInt(s -> sampleIdx.get(s.getSampleId1()))
+                .thenComparingInt(s -> sampleIdx.get(s.getSampleId2())));
+        return scores;
+    }
+
+    private static int[] getSamplesPosition(List<String> samples, List<String> orderedSamplesName) {
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < orderedSamplesName.size(); i++) {
+            positions.put(orderedSamplesName.get(i), i);
+        }
+        int[] samplesPosition = new int[samples.size()];
+        for (int i = 0; i < samples.size(); i++) {
+            samplesPosition[i] = positions.getOrDefault(samples.get(i), -1);
+        }
+        return samplesPosition;
+    }
+
+    /**
+     * Mean probability of each IBS state given each IBD state, in the order:
+     * IBS0|IBD0, IBS1|IBD0, IBS2|IBD0, IBS1|IBD1, IBS2|IBD1. (IBS2|IBD2 is always 1)
+     */
+    private static double[] expectedIbsGivenIbd(double[] altAlleleFreq, int numMarkers) {
+        double[] expected = new double[5];
+        for (int i = 0; i < numMarkers; i++) {
+            double p = altAlleleFreq[i];
+            double q = 1 - p;
+            double p2 = p * p;
+            double q2 = q * q;
+            expected[0] += 2 * p2 * q2;
+            expected[1] += 4 * p2 * p * q + 4 * p * q2 * q;
+            expected[2] += p2 * p2 + q2 * q2 + 4 * p2 * q2;
+            expected[3] += 2 * p * q;
+            expected[4] += p2 + q2;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] /= numMarkers;
+        }
+        return expected;
+    }
+
+    private static List<RelatednessReport.RelatednessScore> computeBlock(List<String> samples, PackedGenotypeMatrix genotypes,
+                                                                         int start1, int start2, double[] expected) {
+        int end1 = Math.min(start1 + SAMPLE_BLOCK_SIZE, samples.size());
+        int end2 = Math.min(start2 + SAMPLE_BLOCK_SIZE, samples.size());
+        int size2 = end2 - start2;
+        int numWords = genotypes.getNumWords();
+        int[] counters = new int[(end1 - start1) * size2 * NUM_COUNTERS];
+
+        // Iterate over blocks of markers, so the genotypes of both sample blocks stay in cache
+        for (int wordStart = 0; wordStart < numWords; wordStart += WORD_BLOCK_SIZE) {
+            int wordEnd = Math.min(wordStart + WORD_BLOCK_SIZE, numWords);
+            for (int i = start1; i < end1; i++) {
+                long[] low1 = genotypes.getLow(i);
+                long[] high1 = genotypes.getHigh(i);
+                for (int j = Math.max(start2, i + 1); j < end2; j++) {
+                    long[] low2 = genotypes.getLow(j);
+                    long[] high2 = genotypes.getHigh(j);
+                    int offset = ((i - start1) * size2 + (j - start2)) * NUM_COUNTERS;
+                    for (int w = wordStart; w < wordEnd; w++) {
+                        long l1 = low1[w];
+                        long h1 = high1[w];
+                        long l2 = low2[w];
+                        long h2 = high2[w];
+                        long observed = ~(l1 & h1) & ~(l2 & h2);
+                        long het1 = l1 & ~h1 & observed;
+                        long het2 = l2 & ~h2 & observed;
+                        long homRef1 = ~(l1 | h1);
+                        long homRef2 = ~(l2 | h2);
+                        long homAlt1 = h1 & ~l1;
+                        long homAlt2 = h2 & ~l2;
+                        counters[offset + N] += Long.bitCount(observed);
+                        counters[offset + IBS0] += Long.bitCount((homRef1 & homAlt2) | (homAlt1 & homRef2));
+                        counters[offset + IBS2] += Long.bitCount(observed & ~(l1 ^ l2) & ~(h1 ^ h2));
+                        counters[offset + HET_HET] += Long.bitCount(het1 & het2);
+                        counters[offset + HET_1] += Long.bitCount(het1);
+                        counters[offset + HET_2] += Long.bitCount(het2);
+                    }
+                }
+            }
+        }
+
+        List<RelatednessReport.RelatednessScore> scores = new ArrayList<>();
+        for (int i = start1; i < end1; i++) {
+            for (int j = Math.max(start2, i + 1); j < end2; j++) {
+                int offset = ((i - start1) * size2 + (j - start2)) * NUM_COUNTERS;
+                scores.add(buildScore(samples.get(i), samples.get(j), counters, offset, expected));
+            }
+        }
+        return scores;
+    }
+
+    private static RelatednessReport.RelatednessScore buildScore(String sample1, String sample2, int[] counters, int offset,
+                                                                 double[] expected) {
+        int n = counters[offset + N];
+        int ibs0 = counters[offset + IBS0];
+        int ibs2 = counters[offset + IBS2];
+        int ibs1 = n - ibs0 - ibs2;
+
+        // Method of moments, as PLINK --genome
+        double z0 = 0;
+        double z1 = 0;
+        double z2 = 0;
+        if (n > 0 && expected[0] > 0 && expected[3] > 0) {
+            z0 = ibs0 / (expected[0] * n);
+            z1 = (ibs1 - z0 * expected[1] * n) / (expected[3] * n);
+            z2 = (ibs2 - z0 * expected[2] * n - z1 * expected[4] * n) / n;
+
+            if (z0 > 1) {
+                z0 = 1;
+                z1 = 0;
+                z2 = 0;
+            }
+            if (z1 > 1) {
+                z0 = 0;
+                z1 = 1;
+                z2 = 0;
+            }
+            if (z2 > 1) {
+                z0 = 0;
+                z1 = 0;
+                z2 = 1;
+            }
+            if (z0 < 0) {
+                double sum = z1 + z2;
+                z0 = 0;
+                z1 /= sum;
+                z2 /= sum;
+            }
+            if (z1 < 0) {
+                double sum = z0 + z2;
+                z0 /= sum;
+                z1 = 0;
+                z2 /= sum;
+            }
+            if (z2 < 0) {
+                double sum = z0 + z1;
+                z0 /= sum;
+                z1 /= sum;
+                z2 = 0;
+            }
+        }
+        double piHat = z1 / 2 + z2;
+        if (piHat * piHat < z2) {
+            // Impossible IBD configuration. Use the expected values for the estimated PI_HAT
+            z0 = (1 - piHat) * (1 - piHat);
+            z1 = 2 * piHat * (1 - piHat);
+            z2 = piHat * piHat;
+        }
+
+        // KING-robust kinship coefficient
+        int hets = counters[offset + HET_1] + counters[offset + HET_2];
+        double kinship = hets == 0 ? 0 : (counters[offset + HET_HET] - 2.0 * ibs0) / hets;
+
+        RelatednessReport.RelatednessScore score = new RelatednessReport.RelatednessScore();
+        score.setSampleId1(sample1);
+        score.setSampleId2(sample2);
+        score.setInferredRelationship(inferRelationship(kinship, z0));
+
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("ez", "NA");
+        values.put("z0", format(z0));
+        values.put("z1", format(z1));
+        values.put("z2", format(z2));
+        values.put("PiHat", format(piHat));
+        values.put("kinship", format(kinship));
+        values.put("ibs0", String.valueOf(ibs0));
+        values.put("ibs2", String.valueOf(ibs2));
+        values.put("numMarkers", String.valueOf(n));
+        score.setValues(values);
+        return score;
+    }
+
+    private static String inferRelationship(double kinship, double z0) {
+        if (kinship > 0.354) {
+            return DUPLICATE;
+        } else if (kinship > 0.177) {
+            // Parents and offspring always share one allele IBD
+            return z0 < 0.1 ? PARENT_OFFSPRING : FULL_SIBLINGS;
+        } else if (kinship > 0.0884) {
+            return SECOND_DEGREE;
+        } else if (kinship > 0.0442) {
+            return THIRD_DEGREE;
+        } else {
+            return UNRELATED;
+        }
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.4f", value);
+    }
+
+    /**
+     * Streaming marker selection. Discards monomorphic markers and markers in LD (r2 over the threshold) with any of the
+     * previous markers of the window in the same chromosome.
+     */
+    static class MarkerSelector {
+
+        private final PackedGenotypeMatrix markers;
+        private double[] altAlleleFreqs = new double[1024];
+        private String chromosome;
+        private int chromosomeStart;
+
+        MarkerSelector(int numSamples) {
+            markers = new PackedGenotypeMatrix(numSamples);
+        }
+
+        boolean add(String chromosome, byte[] genotypes) {
+            int altAlleles = 0;
+            int alleles = 0;
+            for (byte genotype : genotypes) {
+                if (genotype != PackedGenotypeMatrix.MISSING) {
+                    altAlleles += genotype;
+                    alleles += 2;
+                }
+            }
+            if (altAlleles == 0 || altAlleles == alleles) {
+                return false;
+            }
+
+            if (!chromosome.equals(this.chromosome)) {
+                this.chromosome = chromosome;
+                this.chromosomeStart = markers.getNumRows();
+            }
+            int row = markers.addRow(genotypes);
+            for (int previous = Math.max(chromosomeStart, row - LD_WINDOW_SIZE); previous < row; previous++) {
+                if (r2(row, previous) > LD_R2_THRESHOLD) {
+                    markers.removeLastRow();
+                    return false;
+                }
+            }
+            if (row == altAlleleFreqs.length) {
+                altAlleleFreqs = Arrays.copyOf(altAlleleFreqs, altAlleleFreqs.length * 2);
+            }
+            altAlleleFreqs[row] = ((double) altAlleles) / alleles;
+            return true;
+        }
+
+        PackedGenotypeMatrix getMarkers() {
+            return markers;
+        }
+
+        double[] getAltAlleleFreqs() {
+            return altAlleleFreqs;
+        }
+
+        private double r2(int row1, int row2) {
+            long[] low1 = markers.getLow(row1);
+            long[] high1 = markers.getHigh(row1);
+            long[] low2 = markers.getLow(row2);
+            long[] high2 = markers.getHigh(row2);
+            long n = 0;
+            long sum1 = 0;
+            long sum2 = 0;
+            long sumSq1 = 0;
+            long sumSq2 = 0;
+            long sumProd = 0;
+            for (int w = 0; w < markers.getNumWords(); w++) {
+                long observed = ~(low1[w] & high1[w]) & ~(low2[w] & high2[w]);
+                long het1 = low1[w] & ~high1[w] & observed;
+                long homAlt1 = high1[w] & ~low1[w] & observed;
+                long het2 = low2[w] & ~high2[w] & observed;
+                long homAlt2 = high2[w] & ~low2[w] & observed;
+                int het1Count = Long.bitCount(het1);
+                int homAlt1Count = Long.bitCount(homAlt1);
+                int het2Count = Long.bitCount(het2);
+                int homAlt2Count = Long.bitCount(homAlt2);
+                n += Long.bitCount(observed);
+                sum1 += het1Count + 2 * homAlt1Count;
+                sum2 += het2Count + 2 * homAlt2Count;
+                sumSq1 += het1Count + 4 * homAlt1Count;
+                sumSq2 += het2Count + 4 * homAlt2Count;
+                sumProd += Long.bitCount(het1 & het2)
+                        + 2 * (Long.bitCount(het1 & homAlt2) + Long.bitCount(homAlt1 & het2))
+                        + 4 * Long.bitCount(homAlt1 & homAlt2);
+            }
+            double var1 = (double) n * sumSq1 - (double) sum1 * sum1;
+            double var2 = (double) n * sumSq2 - (double) sum2 * sum2;
+            if (var1 <= 0 || var2 <= 0) {
+                return 0;
+            }
+            double cov = (double) n * sumProd - (double) sum1 * sum2;
+            return cov * cov / (var1 * var2);
+        }
+    }
+}
@@ -21,10 +21,6 @@ import org.apache.commons.lang3.StringUtils;
 import org.opencb.biodata.models.variant.avro.VariantType;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
-import org.opencb.commons.exec.Command;
-import org.opencb.commons.utils.DockerUtils;
-import org.opencb.opencga.analysis.variant.manager.VariantStorageManager;
-import org.opencb.opencga.analysis.wrappers.PlinkWrapperAnalysis;
 import org.opencb.opencga.catalog.db.api.IndividualDBAdaptor;
 import org.opencb.opencga.catalog.db.api.ProjectDBAdaptor;
 import org.opencb.opencga.catalog.exceptions.CatalogException;
@@ -36,24 +32,14 @@ import org.opencb.opencga.core.models.individual.Individual;
 import org.opencb.opencga.core.models.project.Project;
 import org.opencb.opencga.core.models.sample.Sample;
 import org.opencb.opencga.core.response.OpenCGAResult;
-import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
 
-import java.io.File;
-import java.io.IOException;
-import java.nio.file.Path;
 import java.util.*;
 import java.util.stream.Collectors;
 
-import static org.opencb.opencga.storage.core.variant.io.VariantWriterFactory.VariantOutputFormat.TPED;
-
 public class IndividualQcUtils {
 
-    public static void selectMarkers(String basename, String study, List<String> samples, String maf, Path outDir,
-                                     VariantStorageManager storageManager, String token) throws ToolException {
-        AbstractMap.SimpleEntry<String, String> outputBinding = new AbstractMap.SimpleEntry<>(outDir.toAbsolutePath().toString(),
-                "/data/output");
-
+    public static Query buildMarkersQuery(String study, List<String> samples, String maf) {
         // MAF parameter:
         //    - For annotated population studies, e.g.: 1kG_phase3:CEU>0.3
         //    - For cohort, e.g.: cohort:ALL>0.3
@@ -67,6 +53,7 @@ public class IndividualQcUtils {
         query.put(VariantQueryParam.GENOTYPE.key(), gt);
         //.append(VariantQueryParam.FILTER.key(), "PASS")
 
+        // Only autosomal chromosomes
         query.put(VariantQueryParam.REGION.key(), Arrays.asList("1,2,3,4,5,6,7,8,9,10,11,12,13,14,15,16,17,18,19,20,21,22".split(",")));
         if (maf.startsWith("cohort:")) {
             query.put(VariantQueryParam.STATS_MAF.key(), maf.substring(7));
@@ -74,21 +61,7 @@ public class IndividualQcUtils {
             query.put(VariantQueryParam.ANNOT_POPULATION_MINOR_ALLELE_FREQUENCY.key(), maf);
         }
 
-        System.out.println(">>>> query = " + query.toJson());
-
-        // Export variants in format .tped and .tfam to run PLINK (only autosomal chromosomes)
-        File tpedFile = outDir.resolve(basename + ".tped").toFile();
-        File tfamFile = outDir.resolve(basename + ".tfam").toFile();
-
-
-        exportData(tpedFile, tfamFile, query, storageManager, token);
-        if (tpedFile.exists() && tpedFile.length() > 0) {
-            pruneVariants(basename, outputBinding);
-        }
-
-        if (!tpedFile.exists() || tpedFile.length() == 0) {
-            throw new ToolException("No variants found when exporting data to TPED/TFAM format");
-        }
+        return query;
     }
 
     public static List<String> getSamples(String study, String familyId, CatalogManager catalogManager, String token)
@@ -336,42 +309,4 @@ public class IndividualQcUtils {
         // And then search samples for the family members
         return getRelativeSamplesByFamilyId(studyId, family.getId(), catalogManager, token);
     }
-
-    //-------------------------------------------------------------------------
-    // P R I V A T E     M E T H O D S
-    //-------------------------------------------------------------------------
-
-    private static void exportData(File tpedFile, File tfamFile, Query query, VariantStorageManager storageManager,
-                                   String token) throws ToolException {
-        try {
-            storageManager.exportData(tpedFile.getAbsolutePath(), TPED, null, query, QueryOptions.empty(), token);
-        } catch (CatalogException | IOException | StorageEngineException e) {
-            throw new ToolException(e);
-        }
-
-        if (!tpedFile.exists() || !tfamFile.exists()) {
-            throw new ToolException("Something wrong exporting data to TPED/TFAM format");
-        }
-    }
-
-    private static void pruneVariants(String basename, AbstractMap.SimpleEntry<String, String> outputBinding) throws ToolException {
-        // Variant pruning using PLINK in docker
-        String plinkParams = "plink --tfile /data/output/" + basename + " --indep 50 5 2 --out /data/output/" + basename;
-        try {
-            DockerUtils.run(PlinkWrapperAnalysis.PLINK_DOCKER_IMAGE, null, outputBinding, plinkParams, null);
-        } catch (IOException e) {
-            throw new ToolException(e);
-        }
-    }
-
-    private static int getNumLines(File file) throws ToolException {
-        Command cmd = new Command(file.getAbsolutePath() + " -wl");
-        cmd.run();
-        String output = cmd.getOutput();
-        if (StringUtils.isEmpty(output)) {
-            throw new ToolException("Error reading number of lines: " + file.getAbsolutePath());
-        }
-
-        return (Integer.parseInt(output.split("\t")[0]) - 1);
-    }
 }
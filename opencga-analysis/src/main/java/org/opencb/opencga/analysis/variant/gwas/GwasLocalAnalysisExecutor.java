@@ -17,11 +17,8 @@
 package org.opencb.opencga.analysis.variant.gwas;
 
 import org.apache.commons.lang3.StringUtils;
+import org.opencb.biodata.models.variant.StudyEntry;
 import org.opencb.biodata.models.variant.Variant;
-import org.opencb.biodata.models.variant.avro.ConsequenceType;
-import org.opencb.biodata.models.variant.avro.VariantAnnotation;
-import org.opencb.biodata.models.variant.stats.VariantStats;
-import org.opencb.biodata.tools.variant.stats.VariantStatsCalculator;
 import org.opencb.commons.ProgressLogger;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
@@ -34,11 +31,18 @@ import org.opencb.opencga.analysis.variant.manager.VariantStorageToolExecutor;
 import org.opencb.opencga.catalog.exceptions.CatalogException;
 import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
 import org.opencb.opencga.storage.core.io.plain.StringDataWriter;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantField;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
 import org.opencb.opencga.storage.core.variant.io.db.VariantDBReader;
-import org.opencb.oskar.analysis.stats.FisherExactTest;
-import org.opencb.oskar.analysis.stats.FisherTestResult;
-
+import org.opencb.opencga.storage.core.variant.stats.GwasTestCalculator;
+import org.opencb.opencga.storage.core.variant.stats.PackedGenotypeMatrix;
+import org.opencb.oskar.analysis.variant.gwas.GwasConfiguration;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
 
@@ -48,6 +52,17 @@ import java.util.concurrent.ExecutionException;
         framework = ToolExecutor.Framework.LOCAL)
 public final class GwasLocalAnalysisExecutor extends GwasAnalysisExecutor implements VariantStorageToolExecutor {
 
+    /**
+     * Add an additive logistic regression over the genotype dosages to the output.
+     */
+    public static final String LOGISTIC_REGRESSION = "logisticRegression";
+    /**
+     * TSV file with the covariates of the logistic regression. One line per sample: sample id followed by the covariate values.
+     */
+    public static final String COVARIATES_FILE = "covariatesFile";
+
+    private static final int BATCH_SIZE = 1000;
+
     @Override
     public void run() throws ToolException {
         List<String> sampleList1 = getSampleList1();
@@ -56,25 +71,52 @@ public final class GwasLocalAnalysisExecutor extends GwasAnalysisExecutor implem
         allSamples.addAll(sampleList1);
         allSamples.addAll(sampleList2);
 
+        boolean chiSquare = getConfiguration().getMethod() == GwasConfiguration.Method.CHI_SQUARE_TEST;
+        GwasTestCalculator calculator;
+        if (getExecutorParams().getBoolean(LOGISTIC_REGRESSION)) {
+            calculator = new GwasTestCalculator(chiSquare, sampleList1.size(), readCovariates(allSamples));
+        } else {
+            calculator = new GwasTestCalculator(chiSquare);
+        }
+
         try {
+            // Only genotypes are needed. Avoid decoding any other sample data, files or stats.
             Query query = new Query(VariantQueryParam.STUDY.key(), getStudy())
-                    .append(VariantQueryParam.INCLUDE_SAMPLE.key(), allSamples);
-            VariantDBReader reader = new VariantDBReader(getVariantStorageManager().iterator(query, new QueryOptions(), getToken()));
+                    .append(VariantQueryParam.INCLUDE_SAMPLE.key(), allSamples)
+                    .append(VariantQueryParam.INCLUDE_SAMPLE_DATA.key(), "GT");
+            QueryOptions options = new QueryOptions(QueryOptions.INCLUDE, Arrays.asList(
+                    VariantField.STUDIES_SAMPLES,
+                    VariantField.ANNOTATION_ID,
+                    VariantField.ANNOTATION_CONSEQUENCE_TYPES));
+            VariantDBReader reader = new VariantDBReader(getVariantStorageManager().iterator(query, options, getToken()));
 
             ProgressLogger progressLogger = new ProgressLogger("Processed variants:");
 
-            Task<Variant, String> task = Task.forEach(this::computeFisherTest)
-                    .then((Task<String, String>) batch -> {
+            int numCases = sampleList1.size();
+            Task<Variant, String> task = batch -> {
+                List<String> lines = computeBatch(batch, allSamples, numCases, calculator);
                 progressLogger.increment(batch.size());
-                return batch;
-            });
-
-            // TODO: Write header
-            StringDataWriter writer = new StringDataWriter(getOutputFile(), true);
+                return lines;
+            };
+
+            Map<String, Object> metadata = new LinkedHashMap<>();
+            metadata.put("GWAS", chiSquare ? "Chi_square_test" : "Fisher_test");
+            metadata.put("date", new Date().toString());
+            metadata.put("study", getStudy());
+            metadata.put("case", String.join(",", sampleList1));
+            metadata.put("control", String.join(",", sampleList2));
+            List<String> header = calculator.getHeader(metadata);
+            StringDataWriter writer = new StringDataWriter(getOutputFile(), true) {
+                @Override
+                public boolean pre() {
+                    write(header);
+                    return true;
+                }
+            };
 
             ParallelTaskRunner.Config config = ParallelTaskRunner.Config.builder()
-                    .setNumTasks(4)
-                    .setBatchSize(100)
+                    .setNumTasks(Runtime.getRuntime().availableProcessors())
+                    .setBatchSize(BATCH_SIZE)
                     .setSorted(true)
                     .build();
             ParallelTaskRunner<Variant, String> ptr = new ParallelTaskRunner<>(reader, task, writer, config);
@@ -85,74 +127,125 @@ public final class GwasLocalAnalysisExecutor extends GwasAnalysisExecutor implem
         }
     }
 
-    private String computeFisherTest(Variant variant) {
-        VariantStats caseStats = VariantStatsCalculator.calculate(variant, variant.getStudies().get(0), getSampleList1());
-        VariantStats controlStats = VariantStatsCalculator.calculate(variant, variant.getStudies().get(0), getSampleList2());
-
-        int a = caseStats.getRefAlleleCount(); // case #REF
-        int b = controlStats.getRefAlleleCount(); // control #REF
-        int c = caseStats.getAltAlleleCount(); // case #ALT
-        int d = controlStats.getAltAlleleCount(); // control #ALT
-
-        if (a + b + c + d == 0) {
-            return null;
+    /**
+     * Pack the genotypes of a batch of variants into a case and a control matrix, and test each variant from the bit counts.
+     *
+     * @param batch      Batch of variants
+     * @param samples    Cases followed by controls
+     * @param numCases   Number of cases
+     * @param calculator GWAS test calculator
+     * @return Output lines
+     */
+    static List<String> computeBatch(List<Variant> batch, List<String> samples, int numCases, GwasTestCalculator calculator) {
+        int numControls = samples.size() - numCases;
+        PackedGenotypeMatrix cases = new PackedGenotypeMatrix(numCases, batch.size());
+        PackedGenotypeMatrix controls = new PackedGenotypeMatrix(numControls, batch.size());
+        byte[] caseGenotypes = new byte[numCases];
+        byte[] controlGenotypes = new byte[numControls];
+        List<String> orderedSamples = null;
+        int[] samplesPosition = null;
+        for (Variant variant : batch) {
+            StudyEntry studyEntry = variant.getStudies().get(0);
+            List<String> variantSamples = studyEntry.getOrderedSamplesName();
+            if (samplesPosition == null || !variantSamples.equals(orderedSamples)) {
+                orderedSamples = variantSamples;
+                samplesPosition = getSamplesPosition(samples, variantSamples);
+            }
+            Integer gtIdx = studyEntry.getSampleDataKeyPosition("GT");
+            for (int i = 0; i < samples.size(); i++) {
+                byte gt;
+                if (gtIdx == null || gtIdx < 0 || samplesPosition[i] < 0) {
+                    gt = PackedGenotypeMatrix.MISSING;
+                } else {
+                    gt = PackedGenotypeMatrix.encode(studyEntry.getSamples().get(samplesPosition[i]).getData().get(gtIdx));
+                }
+                if (i < numCases) {
+                    caseGenotypes[i] = gt;
+                } else {
+                    controlGenotypes[i - numCases] = gt;
+                }
+            }
+            cases.addRow(caseGenotypes);
+            controls.addRow(controlGenotypes);
         }
-        FisherTestResult fisherTestResult = new FisherExactTest().fisherTest(a, b, c, d);
-
-
-        VariantAnnotation variantAnnotation = variant.getAnnotation();
-        String id = null;
-        Set<String> genes = Collections.emptySet();
-        if (variantAnnotation != null) {
-            id = variantAnnotation.getId();
-            genes = new HashSet<>();
-            if (variantAnnotation.getConsequenceTypes() != null) {
-                for (ConsequenceType consequenceType : variantAnnotation.getConsequenceTypes()) {
-                    if (StringUtils.isNotEmpty(consequenceType.getGeneName())) {
-                        genes.add(consequenceType.getGeneName());
-                    }
+
+        List<String> lines = new ArrayList<>(batch.size());
+        int[] caseCounts = new int[4];
+        int[] controlCounts = new int[4];
+        double[] dosages = calculator.isLogisticRegression() ? new double[samples.size()] : null;
+        for (int row = 0; row < batch.size(); row++) {
+            cases.countGenotypes(row, caseCounts);
+            controls.countGenotypes(row, controlCounts);
+            if (dosages != null) {
+                for (int i = 0; i < numCases; i++) {
+                    dosages[i] = toDosage(cases.get(row, i));
+                }
+                for (int i = 0; i < numControls; i++) {
+                    dosages[numCases + i] = toDosage(controls.get(row, i));
                 }
             }
+            Variant variant = batch.get(row);
+            String line = calculator.test(variant, variant.getAnnotation(), caseCounts, controlCounts, dosages);
+            if (line != null) {
+                lines.add(line);
+            }
         }
-        if (StringUtils.isEmpty(id)) {
-            id = variant.getId();
+        return lines;
+    }
+
+    private static double toDosage(byte gt) {
+        return gt == PackedGenotypeMatrix.MISSING ? Double.NaN : gt;
+    }
+
+    private static int[] getSamplesPosition(List<String> samples, List<String> orderedSamplesName) {
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < orderedSamplesName.size(); i++) {
+            positions.put(orderedSamplesName.get(i), i);
         }
-        if (genes.isEmpty()) {
-            genes = Collections.singleton(".");
+        int[] samplesPosition = new int[samples.size()];
+        for (int i = 0; i < samples.size(); i++) {
+            samplesPosition[i] = positions.getOrDefault(samples.get(i), -1);
         }
-
-        return tsv(
-                id,
-                variant.toString(),
-                variant.getChromosome(), variant.getStart(),
-                variant.getReference().isEmpty() ? "-" : variant.getReference(),
-                variant.getAlternate().isEmpty() ? "-" : variant.getAlternate(),
-                String.join(",", genes),
-                a, b, c, d,
-                caseStats.getAlleleCount(),
-                controlStats.getAlleleCount(),
-                caseStats.getAltAlleleFreq(),
-                controlStats.getAltAlleleFreq(),
-                fisherTestResult.getpValue(),
-                fisherTestResult.getOddRatio()
-        );
+        return samplesPosition;
     }
 
-    private static String tsv(Object... objects) {
-        StringJoiner joiner = new StringJoiner("\t");
-        for (Object object : objects) {
-            final String toString;
-            if (object instanceof Double) {
-                if (((Double) object).isNaN() || ((Double) object).isInfinite()) {
-                    toString = "NA";
-                } else {
-                    toString = object.toString();
+    private double[][] readCovariates(List<String> samples) throws ToolException {
+        String covariatesFile = getExecutorParams().getString(COVARIATES_FILE);
+        if (StringUtils.isEmpty(covariatesFile)) {
+            return null;
+        }
+        Path path = Paths.get(covariatesFile);
+        Map<String, double[]> covariatesMap = new HashMap<>();
+        int numCovariates = -1;
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] split = line.split("\t");
+                if (numCovariates < 0) {
+                    numCovariates = split.length - 1;
+                } else if (numCovariates != split.length - 1) {
+                    throw new ToolException("Expected " + numCovariates + " covariates for sample '" + split[0] + "' in file "
+                            + path + ". Found " + (split.length - 1));
                 }
-            } else {
-                toString = object.toString();
+                double[] values = new double[numCovariates];
+                for (int i = 0; i < numCovariates; i++) {
+                    values[i] = Double.parseDouble(split[i + 1]);
+                }
+                covariatesMap.put(split[0], values);
+            }
+        } catch (IOException | NumberFormatException e) {
+            throw new ToolException("Error reading covariates file " + path, e);
+        }
+        double[][] covariates = new double[samples.size()][];
+        for (int i = 0; i < samples.size(); i++) {
+            covariates[i] = covariatesMap.get(samples.get(i));
+            if (covariates[i] == null) {
+                throw new ToolException("Missing covariates for sample '" + samples.get(i) + "' in file " + path);
             }
-            joiner.add(toString);
         }
-        return joiner.toString();
+        return covariates;
     }
 }
@@ -754,6 +754,28 @@ public class VariantStorageManager extends StorageManager implements AutoCloseab
         });
     }
 
+    /**
+     * Get the chromosomes with variants in the study, as counted by the stats of the indexed files.
+     *
+     * @param study Study
+     * @param token User token
+     * @return Chromosomes with variants, or null if unknown.
+     * @throws CatalogException if the study does not exist or the user has no permissions
+     * @throws StorageEngineException if there is an error reading the metadata
+     */
+    public Set<String> getIndexedChromosomes(String study, String token)
+            throws CatalogException, StorageEngineException {
+        String studyFqn = getStudyFqn(study, token);
+        Query query = new Query(STUDY.key(), studyFqn)
+                .append(INCLUDE_SAMPLE.key(), VariantQueryUtils.NONE)
+                .append(INCLUDE_FILE.key(), VariantQueryUtils.NONE);
+
+        return secure(query, new QueryOptions(), token, engine -> {
+            VariantStorageMetadataManager metadataManager = engine.getMetadataManager();
+            return metadataManager.getIndexedChromosomes(metadataManager.getStudyId(studyFqn));
+        });
+    }
+
     public SampleMetadata getSampleMetadata(String study, String sample, String token)
             throws CatalogException, StorageEngineException {
         Query query = new Query(STUDY.key(), study)
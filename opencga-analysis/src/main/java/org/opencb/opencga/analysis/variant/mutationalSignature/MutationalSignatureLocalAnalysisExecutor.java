@@ -16,10 +16,6 @@
 
 package org.opencb.opencga.analysis.variant.mutationalSignature;
 
-import htsjdk.samtools.reference.BlockCompressedIndexedFastaSequenceFile;
-import htsjdk.samtools.reference.FastaSequenceIndex;
-import htsjdk.samtools.reference.ReferenceSequence;
-import htsjdk.samtools.util.GZIIndex;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.io.FileUtils;
 import org.opencb.biodata.models.clinical.qc.MutationalSignature;
@@ -42,6 +38,7 @@ import org.opencb.opencga.core.response.OpenCGAResult;
 import org.opencb.opencga.core.tools.annotations.ToolExecutor;
 import org.opencb.opencga.core.tools.variant.MutationalSignatureAnalysisExecutor;
 import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
+import org.opencb.opencga.storage.core.io.fasta.ReferenceSequenceProvider;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
 import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
 import org.slf4j.Logger;
@@ -50,8 +47,11 @@ import org.slf4j.LoggerFactory;
 import java.io.*;
 import java.nio.charset.Charset;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.opencb.opencga.analysis.variant.mutationalSignature.MutationalSignatureAnalysis.SIGNATURES_FILENAME;
 
@@ -63,6 +63,10 @@ public class MutationalSignatureLocalAnalysisExecutor extends MutationalSignatur
 
     public final static String CONTEXT_FILENAME = "context.txt";
 
+    public static final String NUM_THREADS = "numThreads";
+    private static final int DEFAULT_NUM_THREADS = 4;
+    private static final int CONTEXT_INDEX_BUFFER_SIZE = 1024 * 1024;
+
     private Logger logger = LoggerFactory.getLogger(this.getClass());
 
     private VariantStorageManager storageManager;
@@ -86,49 +90,38 @@ public class MutationalSignatureLocalAnalysisExecutor extends MutationalSignatur
     public void run() throws ToolException, IOException {
         // Context index filename
         File indexFile = getOutDir().resolve(getContextIndexFilename(getSampleName())).toFile();
-        PrintWriter pw = new PrintWriter(indexFile);
 
-        try {
+        try (PrintWriter pw = new PrintWriter(new BufferedWriter(new FileWriter(indexFile)))) {
             // Compute signature profile: contextual frequencies of each type of base substitution
 
-            Query query = new Query()
-                    .append(VariantQueryParam.STUDY.key(), getStudy())
-                    .append(VariantQueryParam.SAMPLE.key(), getSampleName())
-                    .append(VariantQueryParam.TYPE.key(), VariantType.SNV);
-
-            QueryOptions queryOptions = new QueryOptions(QueryOptions.INCLUDE, "id");
-
-            // Get variant iterator
-            VariantDBIterator iterator = getVariantIterator(query, queryOptions);
-
             // Read mutation context from reference genome (.gz, .gz.fai and .gz.gzi files)
-            String base = getRefGenomePath().toAbsolutePath().toString();
-            BlockCompressedIndexedFastaSequenceFile indexed = new BlockCompressedIndexedFastaSequenceFile(getRefGenomePath(),
-                    new FastaSequenceIndex(new File(base + ".fai")), GZIIndex.loadIndex(Paths.get(base + ".gzi")));
+            List<String> chromosomes = getChromosomes();
 
+            // Count the substitutions of each chromosome in parallel
             Map<String, Map<String, Double>> countMap = initFreqMap();
-
-            while (iterator.hasNext()) {
-                Variant variant = iterator.next();
-
-                // Accessing to the context sequence and write it into the context index file
-                ReferenceSequence refSeq = indexed.getSubsequenceAt(variant.getChromosome(), variant.getStart() - 1,
-                        variant.getEnd() + 1);
-                String sequence = new String(refSeq.getBases());
-
-                // Write context index
-                pw.println(variant.toString() + "\t" + sequence);
-
-                // Update count map
-                updateCountMap(variant, sequence, countMap);
+            int numThreads = getExecutorParams().getInt(NUM_THREADS, DEFAULT_NUM_THREADS);
+            ExecutorService executorService = Executors.newFixedThreadPool(Math.max(1, Math.min(chromosomes.size(), numThreads)));
+            try {
+                List<Future<Map<String, Map<String, Double>>>> futures = new ArrayList<>(chromosomes.size());
+                for (String chromosome : chromosomes) {
+                    futures.add(executorService.submit(() -> countChromosome(chromosome, pw)));
+                }
+                for (Future<Map<String, Map<String, Double>>> future : futures) {
+                    mergeCountMap(future.get(), countMap);
+                }
+            } finally {
+                executorService.shutdownNow();
             }
 
             // Write context counts
             writeCountMap(countMap, getOutDir().resolve(CONTEXT_FILENAME).toFile());
+        } catch (ExecutionException e) {
+            throw new ToolExecutorException(e.getCause());
+        } catch (Exception e) {
+            throw new ToolExecutorException(e);
+        }
 
-            // Close context index file
-            pw.close();
-
+        try {
             // Execute R script in docker
             executeRScript();
         } catch (Exception e) {
@@ -143,6 +136,99 @@ public class MutationalSignatureLocalAnalysisExecutor extends MutationalSignatur
         }
     }
 
+    /**
+     * Get the chromosomes to count. Only the chromosomes with variants in the study, if known, that are present in the reference genome.
+     * Variants from chromosomes not present in the reference genome are skipped.
+     *
+     * @return Chromosomes to count
+     * @throws Exception on errors reading the reference genome or the variant storage
+     */
+    private List<String> getChromosomes() throws Exception {
+        List<String> referenceChromosomes;
+        try (ReferenceSequenceProvider referenceSequenceProvider = new ReferenceSequenceProvider(getRefGenomePath())) {
+            referenceChromosomes = referenceSequenceProvider.getChromosomes();
+        }
+        Set<String> indexedChromosomes = getVariantStorageManager().getIndexedChromosomes(getStudy(), getToken());
+        if (indexedChromosomes == null) {
+            logger.info("Chromosomes with variants in study '{}' not available. Counting the chromosomes from the reference genome",
+                    getStudy());
+            return referenceChromosomes;
+        }
+
+        Set<String> referenceChromosomesSet = new HashSet<>(referenceChromosomes);
+        List<String> chromosomes = new ArrayList<>(indexedChromosomes.size());
+        List<String> missingChromosomes = new ArrayList<>();
+        for (String chromosome : indexedChromosomes) {
+            if (referenceChromosomesSet.contains(chromosome)) {
+                chromosomes.add(chromosome);
+            } else {
+                missingChromosomes.add(chromosome);
+            }
+        }
+        if (!missingChromosomes.isEmpty()) {
+            Query query = getQuery().append(VariantQueryParam.REGION.key(), String.join(",", missingChromosomes));
+            long numVariants = getVariantStorageManager().count(query, getToken()).first();
+            if (numVariants > 0) {
+                logger.warn("Skipping {} variants of sample '{}' from chromosomes not found in the reference genome: {}",
+                        numVariants, getSampleName(), missingChromosomes);
+            }
+        }
+        return chromosomes;
+    }
+
+    private Query getQuery() {
+        return new Query()
+                .append(VariantQueryParam.STUDY.key(), getStudy())
+                .append(VariantQueryParam.SAMPLE.key(), getSampleName())
+                .append(VariantQueryParam.TYPE.key(), VariantType.SNV);
+    }
+
+    private Map<String, Map<String, Double>> countChromosome(String chromosome, PrintWriter pw) throws Exception {
+        Query query = getQuery().append(VariantQueryParam.REGION.key(), chromosome);
+
+        QueryOptions queryOptions = new QueryOptions(QueryOptions.INCLUDE, "id")
+                .append(QueryOptions.SORT, true);
+
+        Map<String, Map<String, Double>> countMap = initFreqMap();
+        StringBuilder lines = new StringBuilder();
+        // Variants are sorted, so the reference is read sequentially
+        try (ReferenceSequenceProvider referenceSequenceProvider = new ReferenceSequenceProvider(getRefGenomePath());
+             VariantDBIterator iterator = getVariantIterator(query, queryOptions)) {
+            while (iterator.hasNext()) {
+                Variant variant = iterator.next();
+
+                // Accessing to the context sequence and write it into the context index file
+                String sequence = referenceSequenceProvider.getSequence(variant.getChromosome(), variant.getStart() - 1,
+                        variant.getEnd() + 1);
+                lines.append(variant.toString()).append('\t').append(sequence).append('\n');
+                if (lines.length() > CONTEXT_INDEX_BUFFER_SIZE) {
+                    writeLines(pw, lines);
+                }
+
+                // Update count map
+                updateCountMap(variant, sequence, countMap);
+            }
+        }
+        writeLines(pw, lines);
+        return countMap;
+    }
+
+    private static void writeLines(PrintWriter pw, StringBuilder lines) {
+        synchronized (pw) {
+            pw.write(lines.toString());
+        }
+        lines.setLength(0);
+    }
+
+    private static void mergeCountMap(Map<String, Map<String, Double>> source, Map<String, Map<String, Double>> target) {
+        for (Map.Entry<String, Map<String, Double>> entry : source.entrySet()) {
+            Map<String, Double> targetCounts = target.get(entry.getKey());
+            for (Map.Entry<String, Double> count : entry.getValue().entrySet()) {
+                targetCounts.merge(count.getKey(), count.getValue(), Double::sum);
+            }
+        }
+    }
+
     public MutationalSignature query(Query query, QueryOptions queryOptions)
             throws CatalogException, ToolException, StorageEngineException, IOException {
 
@@ -18,7 +18,7 @@ package org.opencb.opencga.analysis.variant.relatedness;
 
 import org.opencb.biodata.models.clinical.qc.RelatednessReport;
 import org.opencb.opencga.analysis.StorageToolExecutor;
-import org.opencb.opencga.analysis.family.qc.IBDComputation;
+import org.opencb.opencga.analysis.family.qc.RelatednessComputation;
 import org.opencb.opencga.analysis.variant.manager.VariantStorageManager;
 import org.opencb.opencga.catalog.managers.CatalogManager;
 import org.opencb.opencga.core.common.JacksonUtils;
@@ -38,8 +38,8 @@ public class IBDRelatednessLocalAnalysisExecutor extends IBDRelatednessAnalysisE
         VariantStorageManager variantStorageManager = getVariantStorageManager();
         CatalogManager catalogManager = variantStorageManager.getCatalogManager();
 
-        // Run IBD/IBS computation using PLINK in docker
-        RelatednessReport report = IBDComputation.compute(getStudyId(), getSampleIds(), getMinorAlleleFreq(), getOutDir(),
+        // Run IBD/IBS/KING computation
+        RelatednessReport report = RelatednessComputation.compute(getStudyId(), getSampleIds(), getMinorAlleleFreq(),
                 variantStorageManager, getToken());
 
         // Sanity check
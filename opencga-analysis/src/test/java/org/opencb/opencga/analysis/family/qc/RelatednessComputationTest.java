@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.analysis.family.qc;
+
+import org.junit.Test;
+import org.opencb.biodata.models.clinical.qc.RelatednessReport;
+import org.opencb.opencga.storage.core.variant.stats.PackedGenotypeMatrix;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class RelatednessComputationTest {
+
+    @Test
+    public void testComputeScores() throws Exception {
+        Random random = new Random(0);
+        int numMarkers = 20000;
+        // Founders, children of founders 0 and 1, and a duplicate of the first child
+        List<String> samples = Arrays.asList("F0", "F1", "F2", "F3", "C1", "C2", "C1_dup");
+        PackedGenotypeMatrix markers = new PackedGenotypeMatrix(samples.size());
+        double[] freqs = new double[numMarkers];
+        for (int i = 0; i < numMarkers; i++) {
+            double p = 0.1 + random.nextDouble() * 0.8;
+            freqs[i] = p;
+            int[][] haplotypes = new int[6][];
+            for (int founder = 0; founder < 4; founder++) {
+                haplotypes[founder] = new int[]{random.nextDouble() < p ? 1 : 0, random.nextDouble() < p ? 1 : 0};
+            }
+            for (int child = 4; child < 6; child++) {
+                haplotypes[child] = new int[]{haplotypes[0][random.nextInt(2)], haplotypes[1][random.nextInt(2)]};
+            }
+            byte[] genotypes = new byte[samples.size()];
+            for (int sample = 0; sample < 6; sample++) {
+                genotypes[sample] = (byte) (haplotypes[sample][0] + haplotypes[sample][1]);
+            }
+            genotypes[6] = genotypes[4];
+            // Some missing genotypes
+            genotypes[random.nextInt(samples.size())] = PackedGenotypeMatrix.MISSING;
+            markers.addRow(genotypes);
+        }
+
+        List<RelatednessReport.RelatednessScore> scores = RelatednessComputation.computeScores(samples, markers, freqs, 4);
+        assertEquals(samples.size() * (samples.size() - 1) / 2, scores.size());
+
+        Map<String, RelatednessReport.RelatednessScore> scoresMap = new HashMap<>();
+        for (RelatednessReport.RelatednessScore score : scores) {
+            scoresMap.put(score.getSampleId1() + "-" + score.getSampleId2(), score);
+        }
+        assertEquals("F0-F1", scores.get(0).getSampleId1() + "-" + scores.get(0).getSampleId2());
+
+        checkScore(scoresMap.get("F0-F1"), RelatednessComputation.UNRELATED, 0, 0);
+        checkScore(scoresMap.get("F2-C2"), RelatednessComputation.UNRELATED, 0, 0);
+        checkScore(scoresMap.get("F0-C1"), RelatednessComputation.PARENT_OFFSPRING, 0.25, 0.5);
+        checkScore(scoresMap.get("F1-C2"), RelatednessComputation.PARENT_OFFSPRING, 0.25, 0.5);
+        checkScore(scoresMap.get("C1-C2"), RelatednessComputation.FULL_SIBLINGS, 0.25, 0.5);
+        checkScore(scoresMap.get("C1-C1_dup"), RelatednessComputation.DUPLICATE, 0.5, 1);
+    }
+
+    @Test
+    public void testMarkerSelector() {
+        RelatednessComputation.MarkerSelector selector = new RelatednessComputation.MarkerSelector(4);
+        assertTrue(selector.add("1", new byte[]{0, 1, 2, 1}));
+        // Monomorphic
+        assertFalse(selector.add("1", new byte[]{0, 0, 0, PackedGenotypeMatrix.MISSING}));
+        // In LD with the first marker
+        assertFalse(selector.add("1", new byte[]{0, 1, 2, 1}));
+        assertTrue(selector.add("1", new byte[]{1, 0, 1, 0}));
+        // Same genotypes, other chromosome
+        assertTrue(selector.add("2", new byte[]{0, 1, 2, 1}));
+
+        assertEquals(3, selector.getMarkers().getNumRows());
+        assertEquals(0.5, selector.getAltAlleleFreqs()[0], 0.0001);
+        assertEquals(0.25, selector.getAltAlleleFreqs()[1], 0.0001);
+    }
+
+    private static void checkScore(RelatednessReport.RelatednessScore score, String relationship, double kinship, double piHat) {
+        assertEquals(relationship, score.getInferredRelationship());
+        assertEquals(kinship, Double.parseDouble((String) score.getValues().get("kinship")), 0.05);
+        assertEquals(piHat, Double.parseDouble((String) score.getValues().get("PiHat")), 0.05);
+    }
+}
@@ -12,6 +12,7 @@ class JavaClientGenerator(RestClientGenerator):
         super().__init__(server_url, output_dir)
 
         self.java_types = set()
+        self.use_iterator = False
         self.type_imports = {
             'ObjectMap': 'org.opencb.commons.datastore.core.ObjectMap;'
         }
@@ -53,6 +54,8 @@ class JavaClientGenerator(RestClientGenerator):
         imports.add('org.opencb.opencga.client.config.ClientConfiguration;')
         imports.add('org.opencb.opencga.client.rest.AbstractParentClient;')
         imports.add('org.opencb.opencga.core.response.RestResponse;')
+        if self.use_iterator:
+            imports.add('org.opencb.opencga.client.rest.RestResultIterator;')
 
         for java_type in self.java_types:
             if java_type in self.type_imports and java_type not in self.ignore_types:
@@ -76,6 +79,7 @@ class JavaClientGenerator(RestClientGenerator):
 
     def get_class_definition(self, category):
         self.java_types = set()
+        self.use_iterator = False
 
         text = []
         text.append('')
@@ -97,6 +101,15 @@ class JavaClientGenerator(RestClientGenerator):
         return '}\n'
 
     def get_method_definition(self, category, endpoint):
+        text = self.get_method_text(category, endpoint, False)
+        # Paginated endpoints get an additional method to iterate lazily over all the results
+        optional_parameters = self.get_optional_parameters(endpoint)
+        if 'skip' in optional_parameters and 'limit' in optional_parameters:
+            self.use_iterator = True
+            text = text + '\n' + self.get_method_text(category, endpoint, True)
+        return text
+
+    def get_method_text(self, category, endpoint, iterator):
         parameters = self.get_method_parameters(endpoint)
         typed_parameters = []
         print("Processing " + self.get_endpoint_path(endpoint))
@@ -117,13 +130,21 @@ class JavaClientGenerator(RestClientGenerator):
                     append_comment_text(text, '{}* {} {}: {}'.format(' ' * 5, ' ' * 5, parameter,
                                                                         self.get_parameter_description(parameter)), 5, 12)
 
-        append_comment_text(text, '{}* @return a RestResponse object.'.format(' ' * 5), 5)
-        append_comment_text(text, '{}* @throws ClientException ClientException if there is any server error.'.format(' ' * 5), 5)
-        append_comment_text(text, '{}*/'.format(' ' * 5), 5)
+        if iterator:
+            append_comment_text(text, '{}* @return a RestResultIterator over the results. Must be closed after use.'.format(' ' * 5), 5)
+            append_comment_text(text, '{}*/'.format(' ' * 5), 5)
 
-        append_text(text, '{}public RestResponse<{}> {}({}) throws ClientException {{'.format(
-            ' ' * 4, response_type, self.get_method_name(endpoint, category),
-            ', '.join(typed_parameters)), 4)
+            append_text(text, '{}public RestResultIterator<{}> {}Iterator({}) {{'.format(
+                ' ' * 4, response_type, self.get_method_name(endpoint, category),
+                ', '.join(typed_parameters)), 4)
+        else:
+            append_comment_text(text, '{}* @return a RestResponse object.'.format(' ' * 5), 5)
+            append_comment_text(text, '{}* @throws ClientException ClientException if there is any server error.'.format(' ' * 5), 5)
+            append_comment_text(text, '{}*/'.format(' ' * 5), 5)
+
+            append_text(text, '{}public RestResponse<{}> {}({}) throws ClientException {{'.format(
+                ' ' * 4, response_type, self.get_method_name(endpoint, category),
+                ', '.join(typed_parameters)), 4)
 
         if 'params' in parameters:
             append_text(text, '{}params = params != null ? params : new ObjectMap();'.format(' ' * 8), 8)
@@ -137,7 +158,8 @@ class JavaClientGenerator(RestClientGenerator):
         if 'data' in parameters:
             append_text(text, '{}params.put("body", data);'.format(' ' * 8), 8)
 
-        append_text(text, '{}return execute("{}", {}, {}, {}, {}, params, {}, {}.class);'.format((' ' * 8),
+        append_text(text, '{}return {}("{}", {}, {}, {}, {}, params, {}, {}.class);'.format((' ' * 8),
+            'iterator' if iterator else 'execute',
             self.get_endpoint_category(),
             self.get_endpoint_id1() if self.get_endpoint_id1() else 'null',
             '"' + self.get_endpoint_subcategory() + '"' if self.get_endpoint_subcategory() else 'null',
@@ -20,6 +20,9 @@ import com.beust.jcommander.ParameterException;
 import org.opencb.opencga.app.cli.CommandExecutor;
 import org.opencb.opencga.app.cli.internal.executors.*;
 import org.opencb.opencga.core.common.GitRepositoryState;
+import org.opencb.opencga.master.monitor.executors.LocalWorkerProtocol;
+
+import java.io.IOException;
 
 /**
  * Created by imedina on 03/02/15.
@@ -29,6 +32,17 @@ public class InternalMain {
     public static final String VERSION = GitRepositoryState.get().getBuildVersion();
 
     public static void main(String[] args) {
+        if (args.length == 2 && args[0].equals(LocalWorkerProtocol.WORKER_ARG)) {
+            // Long-lived worker. See LocalWorkerExecutor
+            int exitCode;
+            try {
+                exitCode = new InternalWorker(Integer.parseInt(args[1])).run();
+            } catch (IOException | NumberFormatException e) {
+                e.printStackTrace();
+                exitCode = 1;
+            }
+            System.exit(exitCode);
+        }
         System.exit(privateMain(args));
     }
 
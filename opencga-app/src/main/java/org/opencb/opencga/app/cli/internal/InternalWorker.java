@@ -0,0 +1,184 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.app.cli.internal;
+
+import org.opencb.opencga.app.cli.internal.executors.InternalCommandExecutor;
+import org.opencb.opencga.master.monitor.executors.LocalWorkerExecutor;
+import org.opencb.opencga.master.monitor.executors.LocalWorkerProtocol;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Long-lived worker that executes internal command lines sent by the {@link LocalWorkerExecutor}, one at a time, within the same JVM.
+ * The messages are exchanged through a loopback socket opened by the executor. See {@link LocalWorkerProtocol}.
+ *
+ * The standard output and error of the process are redirected to the job log files while a job is running. This must be
+ * initialized before anything else (e.g. the loggers) captures the original streams.
+ *
+ * All the jobs executed by the worker share the same CatalogManager and StorageEngineFactory, instead of initializing them
+ * on every job.
+ */
+public class InternalWorker {
+
+    private final BufferedReader input;
+    private final Writer output;
+    private final PrintStream defaultOut;
+    private final PrintStream defaultErr;
+    private final SwitchableOutputStream out;
+    private final SwitchableOutputStream err;
+
+    private volatile Thread jobThread;
+    private volatile String jobId;
+
+    public InternalWorker(int port) throws IOException {
+        // The socket is closed when the JVM exits
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        output = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+        defaultOut = System.out;
+        defaultErr = System.err;
+        out = new SwitchableOutputStream(defaultOut);
+        err = new SwitchableOutputStream(defaultErr);
+        System.setOut(new PrintStream(out, true));
+        System.setErr(new PrintStream(err, true));
+        InternalCommandExecutor.enableSharedCatalogManagers();
+    }
+
+    public int run() {
+        try {
+            String token = System.getenv(LocalWorkerProtocol.TOKEN_ENV);
+            send(LocalWorkerProtocol.READY, token == null ? "" : token);
+            String line;
+            while ((line = input.readLine()) != null) {
+                List<String> message = LocalWorkerProtocol.decode(line);
+                switch (message.get(0)) {
+                    case LocalWorkerProtocol.RUN:
+                        if (jobThread != null) {
+                            defaultErr.println("Job " + jobId + " still running. Unable to run job " + message.get(1));
+                            return 1;
+                        }
+                        runJob(message.get(1), message.get(2), message.get(3), message.subList(4, message.size()));
+                        break;
+                    case LocalWorkerProtocol.CANCEL:
+                        Thread thread = jobThread;
+                        if (thread != null && message.get(1).equals(jobId)) {
+                            thread.interrupt();
+                        }
+                        break;
+                    case LocalWorkerProtocol.EXIT:
+                        return 0;
+                    default:
+                        defaultErr.println("Unknown message " + message);
+                        return 1;
+                }
+            }
+            // The executor closed the stream. Finish the current job, if any
+            Thread thread = jobThread;
+            if (thread != null) {
+                thread.join();
+            }
+            return 0;
+        } catch (IOException e) {
+            e.printStackTrace(defaultErr);
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+    }
+
+    private void runJob(String jobId, String stdout, String stderr, List<String> args) {
+        this.jobId = jobId;
+        jobThread = new Thread(() -> {
+            int exitCode;
+            try (OutputStream jobOut = new BufferedOutputStream(new FileOutputStream(stdout));
+                 OutputStream jobErr = new BufferedOutputStream(new FileOutputStream(stderr))) {
+                out.setTarget(jobOut);
+                err.setTarget(jobErr);
+                try {
+                    exitCode = InternalMain.privateMain(args.toArray(new String[0]));
+                } catch (Throwable e) {
+                    e.printStackTrace();
+                    exitCode = 1;
+                } finally {
+                    System.out.flush();
+                    System.err.flush();
+                    out.setTarget(defaultOut);
+                    err.setTarget(defaultErr);
+                }
+            } catch (IOException e) {
+                e.printStackTrace(defaultErr);
+                exitCode = 1;
+            }
+
+            // Measure the heap retained after the job, to let the executor decide if the worker needs to be recycled
+            System.gc();
+            Runtime runtime = Runtime.getRuntime();
+            long usedHeap = runtime.totalMemory() - runtime.freeMemory();
+
+            jobThread = null;
+            try {
+                send(LocalWorkerProtocol.DONE, jobId, String.valueOf(exitCode), String.valueOf(usedHeap),
+                        String.valueOf(runtime.maxMemory()));
+            } catch (IOException e) {
+                e.printStackTrace(defaultErr);
+            }
+        }, "job-" + jobId);
+        jobThread.start();
+    }
+
+    private synchronized void send(String type, String... fields) throws IOException {
+        output.write(LocalWorkerProtocol.encode(type, Arrays.asList(fields)));
+        output.write('\n');
+        output.flush();
+    }
+
+    /**
+     * OutputStream that writes into a target that can be replaced at any moment.
+     */
+    private static final class SwitchableOutputStream extends OutputStream {
+        private volatile OutputStream target;
+
+        SwitchableOutputStream(OutputStream target) {
+            this.target = target;
+        }
+
+        void setTarget(OutputStream target) {
+            this.target = target;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            target.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            target.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target.flush();
+        }
+    }
+}
@@ -56,7 +56,8 @@ public class FamilyCommandExecutor extends InternalCommandExecutor {
         annotationLoader.setPath(options.filePath);
         annotationLoader.setStudy(options.studyId);
 
-        annotationLoader.setUp(opencgaHome.toString(), new ObjectMap(), outDir, options.commonOptions.token);
+        annotationLoader.setUp(opencgaHome.toString(), catalogManager, storageEngineFactory, new ObjectMap(), outDir, null,
+                options.commonOptions.token);
         annotationLoader.start();
     }
 
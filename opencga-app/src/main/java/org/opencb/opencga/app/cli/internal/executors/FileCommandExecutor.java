@@ -64,7 +64,8 @@ public class FileCommandExecutor extends InternalCommandExecutor {
                 .setFiles(Arrays.asList(org.apache.commons.lang3.StringUtils.split(options.files, ",")))
                 .setSkipTrash(options.skipTrash);
 
-        delete.setUp(opencgaHome.toString(), new ObjectMap(), outDir, options.commonOptions.token);
+        delete.setUp(opencgaHome.toString(), catalogManager, storageEngineFactory, new ObjectMap(), outDir, null,
+                options.commonOptions.token);
         delete.start();
     }
 
@@ -79,7 +80,8 @@ public class FileCommandExecutor extends InternalCommandExecutor {
                 .setStudy(options.studyId)
                 .setFiles(Arrays.asList(org.apache.commons.lang3.StringUtils.split(options.files, ",")));
 
-        unlink.setUp(opencgaHome.toString(), new ObjectMap(), outDir, options.commonOptions.token);
+        unlink.setUp(opencgaHome.toString(), catalogManager, storageEngineFactory, new ObjectMap(), outDir, null,
+                options.commonOptions.token);
         unlink.start();
     }
 
@@ -109,7 +111,8 @@ public class FileCommandExecutor extends InternalCommandExecutor {
                 .setPath(options.path)
                 .setUrl(options.url);
 
-        download.setUp(opencgaHome.toString(), new ObjectMap(), outDir, options.commonOptions.token);
+        download.setUp(opencgaHome.toString(), catalogManager, storageEngineFactory, new ObjectMap(), outDir, null,
+                options.commonOptions.token);
         download.start();
     }
 
@@ -131,7 +134,8 @@ public class FileCommandExecutor extends InternalCommandExecutor {
         annotationLoader.setPath(options.filePath);
         annotationLoader.setStudy(options.studyId);
 
-        annotationLoader.setUp(opencgaHome.toString(), new ObjectMap(), outDir, options.commonOptions.token);
+        annotationLoader.setUp(opencgaHome.toString(), catalogManager, storageEngineFactory, new ObjectMap(), outDir, null,
+                options.commonOptions.token);
         annotationLoader.start();
     }
 }
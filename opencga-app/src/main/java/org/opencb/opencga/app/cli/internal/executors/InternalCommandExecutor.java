@@ -16,6 +16,7 @@
 
 package org.opencb.opencga.app.cli.internal.executors;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.opencga.analysis.tools.ToolRunner;
@@ -23,9 +24,12 @@ import org.opencb.opencga.app.cli.CommandExecutor;
 import org.opencb.opencga.app.cli.GeneralCliOptions;
 import org.opencb.opencga.catalog.exceptions.CatalogException;
 import org.opencb.opencga.catalog.managers.CatalogManager;
+import org.opencb.opencga.core.common.JacksonUtils;
+import org.opencb.opencga.core.config.Configuration;
 import org.opencb.opencga.core.models.study.Study;
 import org.opencb.opencga.storage.core.StorageEngineFactory;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.stream.Collectors;
 
@@ -36,6 +40,13 @@ import java.util.stream.Collectors;
  */
 public abstract class InternalCommandExecutor extends CommandExecutor {
 
+    /**
+     * CatalogManagers shared by all the commands executed within the same JVM, indexed by configuration.
+     * Only enabled by the {@link org.opencb.opencga.app.cli.internal.InternalWorker}, that executes multiple commands without
+     * restarting the JVM. Otherwise, each command creates its own CatalogManager.
+     */
+    private static Map<String, CatalogManager> sharedCatalogManagers;
+
     protected CatalogManager catalogManager;
     protected StorageEngineFactory storageEngineFactory;
     protected ToolRunner toolRunner;
@@ -47,14 +58,41 @@ public abstract class InternalCommandExecutor extends CommandExecutor {
     protected void configure() throws IllegalAccessException, ClassNotFoundException, InstantiationException, CatalogException {
 
         //  Creating CatalogManager
-        catalogManager = new CatalogManager(configuration);
+        catalogManager = getCatalogManager(configuration);
 
-        // Creating StorageManagerFactory
+        // Creating StorageManagerFactory. This is a singleton, so the storage engines are reused within the same JVM
         storageEngineFactory = StorageEngineFactory.get(storageConfiguration);
 
         toolRunner = new ToolRunner(appHome, catalogManager, storageEngineFactory);
     }
 
+    /**
+     * Reuse the CatalogManager between commands with the same configuration executed within this JVM.
+     */
+    public static synchronized void enableSharedCatalogManagers() {
+        if (sharedCatalogManagers == null) {
+            sharedCatalogManagers = new HashMap<>();
+        }
+    }
+
+    private static synchronized CatalogManager getCatalogManager(Configuration configuration) throws CatalogException {
+        if (sharedCatalogManagers == null) {
+            return new CatalogManager(configuration);
+        }
+        String key;
+        try {
+            key = JacksonUtils.getDefaultObjectMapper().writeValueAsString(configuration);
+        } catch (JsonProcessingException e) {
+            throw new CatalogException("Unable to serialize the configuration", e);
+        }
+        CatalogManager catalogManager = sharedCatalogManagers.get(key);
+        if (catalogManager == null) {
+            catalogManager = new CatalogManager(configuration);
+            sharedCatalogManagers.put(key, catalogManager);
+        }
+        return catalogManager;
+    }
+
     protected Map<Long, String> getStudyIds(String sessionId) throws CatalogException {
         return catalogManager.getStudyManager().search(new Query(), new QueryOptions("include", "projects.studies.id,projects.studies" +
                 ".alias"), sessionId)
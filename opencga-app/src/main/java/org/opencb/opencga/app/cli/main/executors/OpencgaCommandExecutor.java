@@ -28,6 +28,7 @@ import org.opencb.opencga.app.cli.main.io.*;
 import org.opencb.opencga.catalog.exceptions.CatalogException;
 import org.opencb.opencga.client.exceptions.ClientException;
 import org.opencb.opencga.client.rest.OpenCGAClient;
+import org.opencb.opencga.client.rest.RestResultIterator;
 import org.opencb.opencga.core.api.ParamConstants;
 import org.opencb.opencga.core.common.JacksonUtils;
 import org.opencb.opencga.core.models.user.AuthenticationResponse;
@@ -221,6 +222,12 @@ public abstract class OpencgaCommandExecutor extends CommandExecutor {
         }
     }
 
+    public void createOutput(RestResultIterator<?> iterator) throws ClientException {
+        if (iterator != null) {
+            writer.print(iterator);
+        }
+    }
+
     public ObjectMap getCommonParams(String study) {
         return getCommonParams(null, study, new HashMap<>());
     }
@@ -553,15 +553,13 @@ public class VariantCommandExecutor extends OpencgaCommandExecutor {
             params.put(VariantQueryParam.SAMPLE_METADATA.key(), true);
             if (queryCommandOptions.commonOptions.outputFormat.equalsIgnoreCase("vcf")
                     || queryCommandOptions.commonOptions.outputFormat.equalsIgnoreCase("text")) {
-                RestResponse<Variant> queryResponse = openCGAClient.getVariantClient().query(params);
-
                 VcfOutputWriter vcfOutputWriter = initVcfOutputWriter(query, options, annotations);
 
-                vcfOutputWriter.print(queryResponse);
-                return null;
+                vcfOutputWriter.print(openCGAClient.getVariantClient().queryIterator(params));
             } else {
-                return openCGAClient.getVariantClient().query(params);
+                createOutput(openCGAClient.getVariantClient().queryIterator(params));
             }
+            return null;
 
         } else {
             ManagedChannel channel = getManagedChannel();
@@ -29,6 +29,7 @@ import org.opencb.opencga.catalog.db.api.CohortDBAdaptor;
 import org.opencb.opencga.catalog.exceptions.CatalogException;
 import org.opencb.opencga.catalog.utils.Constants;
 import org.opencb.opencga.client.exceptions.ClientException;
+import org.opencb.opencga.client.rest.RestResultIterator;
 import org.opencb.opencga.core.models.cohort.Cohort;
 import org.opencb.opencga.core.models.cohort.CohortAclUpdateParams;
 import org.opencb.opencga.core.models.cohort.CohortCreateParams;
@@ -71,7 +72,7 @@ public class CohortCommandExecutor extends OpencgaCommandExecutor {
                 queryResponse = delete();
                 break;
             case "search":
-                queryResponse = search();
+                createOutput(search());
                 break;
             case "stats":
                 queryResponse = stats();
@@ -118,7 +119,7 @@ public class CohortCommandExecutor extends OpencgaCommandExecutor {
         return openCGAClient.getCohortClient().acl(commandOptions.id, params);
     }
 
-    private RestResponse<Cohort> search() throws ClientException {
+    private RestResultIterator<Cohort> search() throws ClientException {
         CohortCommandOptions.SearchCommandOptions commandOptions = cohortsCommandOptions.searchCommandOptions;
 
         logger.debug("Searching cohorts");
@@ -136,7 +137,7 @@ public class CohortCommandExecutor extends OpencgaCommandExecutor {
         params.put(QueryOptions.LIMIT, commandOptions.numericOptions.limit);
         params.put(QueryOptions.SKIP, commandOptions.numericOptions.skip);
 
-        return openCGAClient.getCohortClient().search(params);
+        return openCGAClient.getCohortClient().searchIterator(params);
     }
 
 
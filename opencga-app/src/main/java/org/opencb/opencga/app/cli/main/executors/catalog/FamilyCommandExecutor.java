@@ -28,6 +28,7 @@ import org.opencb.opencga.catalog.db.api.FamilyDBAdaptor;
 import org.opencb.opencga.catalog.exceptions.CatalogException;
 import org.opencb.opencga.catalog.utils.Constants;
 import org.opencb.opencga.client.exceptions.ClientException;
+import org.opencb.opencga.client.rest.RestResultIterator;
 import org.opencb.opencga.core.models.family.Family;
 import org.opencb.opencga.core.models.family.FamilyAclUpdateParams;
 import org.opencb.opencga.core.models.family.FamilyCreateParams;
@@ -65,7 +66,7 @@ public class FamilyCommandExecutor extends OpencgaCommandExecutor {
                 queryResponse = info();
                 break;
             case "search":
-                queryResponse = search();
+                createOutput(search());
                 break;
             case "stats":
                 queryResponse = stats();
@@ -126,7 +127,7 @@ public class FamilyCommandExecutor extends OpencgaCommandExecutor {
         return openCGAClient.getFamilyClient().info(familyCommandOptions.infoCommandOptions.family, params);
     }
 
-    private RestResponse<Family> search() throws ClientException {
+    private RestResultIterator<Family> search() throws ClientException {
         FamilyCommandOptions.SearchCommandOptions commandOptions = familyCommandOptions.searchCommandOptions;
 
         logger.debug("Searching family");
@@ -145,7 +146,7 @@ public class FamilyCommandExecutor extends OpencgaCommandExecutor {
         params.put(QueryOptions.LIMIT, commandOptions.numericOptions.limit);
         params.put(QueryOptions.SKIP, commandOptions.numericOptions.skip);
 
-        return openCGAClient.getFamilyClient().search(params);
+        return openCGAClient.getFamilyClient().searchIterator(params);
     }
 
     private RestResponse<FacetField> stats() throws ClientException {
@@ -32,6 +32,7 @@ import org.opencb.opencga.catalog.db.api.FileDBAdaptor;
 import org.opencb.opencga.catalog.exceptions.CatalogException;
 import org.opencb.opencga.catalog.utils.Constants;
 import org.opencb.opencga.client.exceptions.ClientException;
+import org.opencb.opencga.client.rest.RestResultIterator;
 import org.opencb.opencga.core.api.ParamConstants;
 import org.opencb.opencga.core.common.UriUtils;
 import org.opencb.opencga.core.models.file.*;
@@ -81,7 +82,7 @@ public class FileCommandExecutor extends OpencgaCommandExecutor {
                 queryResponse = grep();
                 break;
             case "search":
-                queryResponse = search();
+                createOutput(search());
                 break;
             case "list":
                 queryResponse = list();
@@ -205,7 +206,7 @@ public class FileCommandExecutor extends OpencgaCommandExecutor {
         return openCGAClient.getFileClient().grep(commandOptions.file, params);
     }
 
-    private RestResponse<File> search() throws ClientException {
+    private RestResultIterator<File> search() throws ClientException {
         logger.debug("Searching files");
 
         FileCommandOptions.SearchCommandOptions commandOptions = filesCommandOptions.searchCommandOptions;
@@ -240,7 +241,7 @@ public class FileCommandExecutor extends OpencgaCommandExecutor {
         params.put(QueryOptions.LIMIT, commandOptions.numericOptions.limit);
         params.put(QueryOptions.SKIP, commandOptions.numericOptions.skip);
 
-        return openCGAClient.getFileClient().search(params);
+        return openCGAClient.getFileClient().searchIterator(params);
     }
 
     private RestResponse<File> list() throws ClientException {
@@ -31,6 +31,7 @@ import org.opencb.opencga.catalog.db.api.SampleDBAdaptor;
 import org.opencb.opencga.catalog.exceptions.CatalogException;
 import org.opencb.opencga.catalog.utils.Constants;
 import org.opencb.opencga.client.exceptions.ClientException;
+import org.opencb.opencga.client.rest.RestResultIterator;
 import org.opencb.opencga.core.api.ParamConstants;
 import org.opencb.opencga.core.models.individual.*;
 import org.opencb.opencga.core.models.sample.Sample;
@@ -69,7 +70,7 @@ public class IndividualCommandExecutor extends OpencgaCommandExecutor {
                 queryResponse = info();
                 break;
             case "search":
-                queryResponse = search();
+                createOutput(search());
                 break;
             case "update":
                 queryResponse = update();
@@ -142,7 +143,7 @@ public class IndividualCommandExecutor extends OpencgaCommandExecutor {
         return openCGAClient.getIndividualClient().info(commandOptions.individual, params);
     }
 
-    private RestResponse<Individual> search() throws ClientException {
+    private RestResultIterator<Individual> search() throws ClientException {
         logger.debug("Searching individuals");
 
         IndividualCommandOptions.SearchCommandOptions commandOptions = individualsCommandOptions.searchCommandOptions;
@@ -171,7 +172,7 @@ public class IndividualCommandExecutor extends OpencgaCommandExecutor {
         params.put(QueryOptions.SKIP, commandOptions.numericOptions.skip);
         params.put(QueryOptions.LIMIT, commandOptions.numericOptions.limit);
 
-        return openCGAClient.getIndividualClient().search(params);
+        return openCGAClient.getIndividualClient().searchIterator(params);
     }
 
 
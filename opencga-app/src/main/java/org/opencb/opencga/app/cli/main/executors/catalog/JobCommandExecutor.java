@@ -27,6 +27,7 @@ import org.opencb.opencga.app.cli.main.options.commons.AclCommandOptions;
 import org.opencb.opencga.catalog.db.api.JobDBAdaptor;
 import org.opencb.opencga.catalog.exceptions.CatalogException;
 import org.opencb.opencga.client.exceptions.ClientException;
+import org.opencb.opencga.client.rest.RestResultIterator;
 import org.opencb.opencga.core.api.ParamConstants;
 import org.opencb.opencga.core.models.job.Job;
 import org.opencb.opencga.core.models.job.JobAclUpdateParams;
@@ -63,7 +64,7 @@ public class JobCommandExecutor extends OpencgaCommandExecutor {
                 queryResponse = info();
                 break;
             case "search":
-                queryResponse = search();
+                createOutput(search());
                 break;
             case "top":
                 top();
@@ -129,7 +130,7 @@ public class JobCommandExecutor extends OpencgaCommandExecutor {
         return openCGAClient.getJobClient().info(commandOptions.job, params);
     }
 
-    private RestResponse<Job> search() throws ClientException {
+    private RestResultIterator<Job> search() throws ClientException {
         logger.debug("Searching job");
 
         JobCommandOptions.SearchCommandOptions commandOptions = jobsCommandOptions.searchCommandOptions;
@@ -162,7 +163,7 @@ public class JobCommandExecutor extends OpencgaCommandExecutor {
         params.put(QueryOptions.LIMIT, commandOptions.numericOptions.limit);
         params.put(QueryOptions.SKIP, commandOptions.numericOptions.skip);
 
-        return openCGAClient.getJobClient().search(params);
+        return openCGAClient.getJobClient().searchIterator(params);
     }
 
     private void top() throws Exception {
@@ -29,6 +29,7 @@ import org.opencb.opencga.catalog.db.api.SampleDBAdaptor;
 import org.opencb.opencga.catalog.exceptions.CatalogException;
 import org.opencb.opencga.catalog.utils.Constants;
 import org.opencb.opencga.client.exceptions.ClientException;
+import org.opencb.opencga.client.rest.RestResultIterator;
 import org.opencb.opencga.core.api.ParamConstants;
 import org.opencb.opencga.core.models.sample.Sample;
 import org.opencb.opencga.core.models.sample.SampleAclUpdateParams;
@@ -69,7 +70,7 @@ public class SampleCommandExecutor extends OpencgaCommandExecutor {
                 queryResponse = info();
                 break;
             case "search":
-                queryResponse = search();
+                createOutput(search());
                 break;
             case "update":
                 queryResponse = update();
@@ -141,7 +142,7 @@ public class SampleCommandExecutor extends OpencgaCommandExecutor {
         return openCGAClient.getSampleClient().info(c.sample, params);
     }
 
-    private RestResponse<Sample> search() throws ClientException  {
+    private RestResultIterator<Sample> search() throws ClientException {
         logger.debug("Searching samples");
 
         SampleCommandOptions.SearchCommandOptions c = samplesCommandOptions.searchCommandOptions;
@@ -170,7 +171,7 @@ public class SampleCommandExecutor extends OpencgaCommandExecutor {
         params.put(QueryOptions.LIMIT, c.numericOptions.limit);
         params.put(QueryOptions.SKIP, c.numericOptions.skip);
 
-        return openCGAClient.getSampleClient().search(params);
+        return openCGAClient.getSampleClient().searchIterator(params);
     }
 
     private RestResponse<Sample> update() throws ClientException {
@@ -18,6 +18,8 @@ package org.opencb.opencga.app.cli.main.io;
 
 import org.opencb.commons.datastore.core.Event;
 import org.opencb.commons.utils.ListUtils;
+import org.opencb.opencga.client.exceptions.ClientException;
+import org.opencb.opencga.client.rest.RestResultIterator;
 import org.opencb.opencga.core.response.RestResponse;
 
 import java.io.PrintStream;
@@ -49,6 +51,29 @@ public abstract class AbstractOutputWriter {
 
     abstract public void print(RestResponse dataResponse);
 
+    /**
+     * Print the results batch by batch, as they are fetched from the server. The header and the metadata are only printed
+     * with the first batch.
+     *
+     * @param iterator Iterator over the results. Closed at the end.
+     * @throws ClientException if there is any server error.
+     */
+    public void print(RestResultIterator<?> iterator) throws ClientException {
+        boolean header = writerConfiguration.isHeader();
+        boolean metadata = writerConfiguration.isMetadata();
+        try {
+            while (iterator.hasNextBatch()) {
+                print(iterator.nextBatch());
+                writerConfiguration.setHeader(false);
+                writerConfiguration.setMetadata(false);
+            }
+        } finally {
+            writerConfiguration.setHeader(header);
+            writerConfiguration.setMetadata(metadata);
+            iterator.close();
+        }
+    }
+
     /**
      * Print errors or warnings and return true if any error was found.
      *
@@ -17,24 +17,40 @@
 package org.opencb.opencga.app.cli.main.io;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.apache.avro.generic.GenericRecord;
 import org.opencb.biodata.models.variant.Genotype;
 import org.opencb.biodata.models.variant.stats.VariantStats;
+import org.opencb.commons.datastore.core.Event;
+import org.opencb.opencga.client.exceptions.ClientException;
+import org.opencb.opencga.client.rest.RestResultIterator;
 import org.opencb.opencga.core.response.RestResponse;
 import org.opencb.opencga.core.models.common.GenericRecordAvroJsonMixin;
 import org.opencb.opencga.storage.core.variant.io.json.mixin.GenotypeJsonMixin;
 import org.opencb.opencga.storage.core.variant.io.json.mixin.VariantStatsJsonMixin;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Created by pfurio on 28/07/16.
  */
 public class JsonOutputWriter extends AbstractOutputWriter {
 
+    private static final String RESPONSES = "responses";
+    private static final String RESULTS = "results";
+    private static final String NUM_RESULTS = "numResults";
+    private static final String EVENTS = "events";
+
     private ObjectMapper objectMapper;
 
     public JsonOutputWriter() {
@@ -81,4 +97,120 @@ public class JsonOutputWriter extends AbstractOutputWriter {
             System.err.println(e.getMessage() + ANSI_RESET);
         }
     }
+
+    /**
+     * Print the results batch by batch, as they are fetched from the server.
+     * The output has the same shape as a single response with all the results: the results of every batch are written into the
+     * result of the first batch, and the number of results and the events of all the batches are added at the end.
+     *
+     * @param iterator Iterator over the results. Closed at the end.
+     * @throws ClientException if there is any server error.
+     */
+    @Override
+    public void print(RestResultIterator<?> iterator) throws ClientException {
+        try {
+            if (!iterator.hasNextBatch()) {
+                return;
+            }
+            RestResponse<?> firstBatch = iterator.nextBatch();
+            if (checkErrors(firstBatch)) {
+                return;
+            }
+            if (firstBatch.getResponses().size() != 1) {
+                // Not a paginated query. Nothing to merge
+                print(firstBatch);
+                while (iterator.hasNextBatch()) {
+                    print(iterator.nextBatch());
+                }
+                return;
+            }
+
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(ps);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (writerConfiguration.isPretty()) {
+                generator.useDefaultPrettyPrinter();
+            }
+
+            ObjectNode response = objectMapper.valueToTree(firstBatch);
+            ObjectNode result = (ObjectNode) response.get(RESPONSES).get(0);
+            List<Event> events = firstBatch.getEvents() == null ? null : new ArrayList<>(firstBatch.getEvents());
+            List<Event> resultEvents = firstBatch.first().getEvents() == null ? null : new ArrayList<>(firstBatch.first().getEvents());
+
+            if (writerConfiguration.isMetadata()) {
+                generator.writeStartObject();
+                writeFields(generator, response, RESPONSES, EVENTS);
+                generator.writeArrayFieldStart(RESPONSES);
+            } else {
+                generator.writeStartArray();
+            }
+            generator.writeStartObject();
+            writeFields(generator, result, RESULTS, NUM_RESULTS, EVENTS);
+            generator.writeArrayFieldStart(RESULTS);
+            int numResults = 0;
+            if (result.has(RESULTS)) {
+                for (JsonNode node : result.get(RESULTS)) {
+                    generator.writeTree(node);
+                    numResults++;
+                }
+            }
+            generator.flush();
+
+            while (iterator.hasNextBatch()) {
+                RestResponse<?> batch = iterator.nextBatch();
+                if (checkErrors(batch)) {
+                    break;
+                }
+                for (Object object : batch.first().getResults()) {
+                    objectMapper.writeValue(generator, object);
+                    numResults++;
+                }
+                generator.flush();
+                if (events != null && batch.getEvents() != null) {
+                    events.addAll(batch.getEvents());
+                }
+                if (resultEvents != null && batch.first().getEvents() != null) {
+                    resultEvents.addAll(batch.first().getEvents());
+                }
+            }
+
+            generator.writeEndArray();
+            generator.writeNumberField(NUM_RESULTS, numResults);
+            writeEvents(generator, resultEvents);
+            generator.writeEndObject();
+            if (writerConfiguration.isMetadata()) {
+                generator.writeEndArray();
+                writeEvents(generator, events);
+                generator.writeEndObject();
+            } else {
+                generator.writeEndArray();
+            }
+            generator.close();
+            ps.println();
+        } catch (IOException e) {
+            System.err.println(ANSI_RED + "ERROR: Could not parse the queryResponse to print as "
+                    + (writerConfiguration.isPretty() ? "a beautiful" : "") + " JSON");
+            System.err.println(e.getMessage() + ANSI_RESET);
+        } finally {
+            iterator.close();
+        }
+    }
+
+    private static void writeFields(JsonGenerator generator, ObjectNode node, String... skipFields) throws IOException {
+        List<String> skip = Arrays.asList(skipFields);
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (!skip.contains(field.getKey())) {
+                generator.writeFieldName(field.getKey());
+                generator.writeTree(field.getValue());
+            }
+        }
+    }
+
+    private void writeEvents(JsonGenerator generator, List<Event> events) throws IOException {
+        if (events != null) {
+            generator.writeFieldName(EVENTS);
+            objectMapper.writeValue(generator, events);
+        }
+    }
 }
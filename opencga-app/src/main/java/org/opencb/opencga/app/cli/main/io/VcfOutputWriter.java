@@ -8,6 +8,8 @@ import org.opencb.biodata.models.variant.metadata.VariantFileHeader;
 import org.opencb.biodata.models.variant.metadata.VariantMetadata;
 import org.opencb.biodata.models.variant.metadata.VariantStudyMetadata;
 import org.opencb.biodata.models.variant.protobuf.VariantProto;
+import org.opencb.opencga.client.exceptions.ClientException;
+import org.opencb.opencga.client.rest.RestResultIterator;
 import org.opencb.opencga.core.response.RestResponse;
 import org.opencb.opencga.core.response.VariantQueryResult;
 import org.opencb.opencga.storage.core.variant.io.VcfDataWriter;
@@ -50,7 +52,35 @@ public class VcfOutputWriter extends AbstractOutputWriter {
         print(null, variantIterator);
     }
 
+    /**
+     * Print the variants as they are fetched from the server.
+     *
+     * @param iterator Iterator over the variants. Closed at the end.
+     * @throws ClientException if there is any server error.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void print(RestResultIterator<?> iterator) throws ClientException {
+        try {
+            if (!iterator.hasNextBatch()) {
+                return;
+            }
+            RestResponse<Variant> queryResponse = (RestResponse<Variant>) iterator.nextBatch();
+            if (checkErrors(queryResponse)) {
+                return;
+            }
+            print(new VariantQueryResult<>(queryResponse.first()), (Iterator<Variant>) iterator, null);
+        } finally {
+            iterator.close();
+        }
+    }
+
     private void print(VariantQueryResult<Variant> variantQueryResult, Iterator<VariantProto.Variant> variantIterator) {
+        print(variantQueryResult, null, variantIterator);
+    }
+
+    private void print(VariantQueryResult<Variant> variantQueryResult, Iterator<Variant> moreVariants,
+                       Iterator<VariantProto.Variant> variantIterator) {
         if (variantQueryResult != null) {
             if (metadata.getStudies().isEmpty()) {
                 // If excluding studies, we need to create a dummy study.
@@ -72,19 +102,12 @@ public class VcfOutputWriter extends AbstractOutputWriter {
             writer.open();
             writer.pre();
             for (Variant variant : variantQueryResult.getResults()) {
-                // FIXME: The server may be returning the StudyEntry with a different name
-                String shortStudy = study.substring(study.lastIndexOf(':') + 1, study.length());
-                if (variant.getStudy(study) == null && variant.getStudy(shortStudy) != null) {
-                    variant.addStudyEntry(variant.getStudy(shortStudy).setStudyId(study));
-                }
-
-                // FIXME: This should not be needed! VariantAvroToVariantContextConverter must be fixed
-                if (variant.getStudy(study) == null) {
-                    StudyEntry studyEntry = new StudyEntry(study);
-                    studyEntry.getFiles().add(new FileEntry("", null, Collections.emptyMap()));
-                    variant.addStudyEntry(studyEntry);
+                write(writer, study, variant);
+            }
+            if (moreVariants != null) {
+                while (moreVariants.hasNext()) {
+                    write(writer, study, moreVariants.next());
                 }
-                writer.write(variant);
             }
             writer.post();
             writer.close();
@@ -103,4 +126,20 @@ public class VcfOutputWriter extends AbstractOutputWriter {
 
     }
 
+    private void write(VcfDataWriter<Variant> writer, String study, Variant variant) {
+        // FIXME: The server may be returning the StudyEntry with a different name
+        String shortStudy = study.substring(study.lastIndexOf(':') + 1, study.length());
+        if (variant.getStudy(study) == null && variant.getStudy(shortStudy) != null) {
+            variant.addStudyEntry(variant.getStudy(shortStudy).setStudyId(study));
+        }
+
+        // FIXME: This should not be needed! VariantAvroToVariantContextConverter must be fixed
+        if (variant.getStudy(study) == null) {
+            StudyEntry studyEntry = new StudyEntry(study);
+            studyEntry.getFiles().add(new FileEntry("", null, Collections.emptyMap()));
+            variant.addStudyEntry(studyEntry);
+        }
+        writer.write(variant);
+    }
+
 }
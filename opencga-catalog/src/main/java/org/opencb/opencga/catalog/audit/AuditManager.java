@@ -24,7 +24,6 @@ import org.opencb.opencga.catalog.auth.authorization.AuthorizationManager;
 import org.opencb.opencga.catalog.db.DBAdaptorFactory;
 import org.opencb.opencga.catalog.db.api.AuditDBAdaptor;
 import org.opencb.opencga.catalog.exceptions.CatalogAuthorizationException;
-import org.opencb.opencga.catalog.exceptions.CatalogDBException;
 import org.opencb.opencga.catalog.exceptions.CatalogException;
 import org.opencb.opencga.catalog.managers.CatalogManager;
 import org.opencb.opencga.catalog.utils.UuidUtils;
@@ -37,6 +36,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Created on 18/08/15.
@@ -50,6 +50,8 @@ public class AuditManager {
     private final CatalogManager catalogManager;
     private final AuthorizationManager authorizationManager;
     private final AuditDBAdaptor auditDBAdaptor;
+    // Background writer. Null if the audit is strict
+    private final AuditWriter auditWriter;
 
     private final Map<String, List<AuditRecord>> auditRecordMap;
     private static final int MAX_BATCH_SIZE = 100;
@@ -59,16 +61,56 @@ public class AuditManager {
         this.catalogManager = catalogManager;
         this.authorizationManager = authorizationManager;
         this.auditDBAdaptor = catalogDBAdaptorFactory.getCatalogAuditDbAdaptor();
-        this.auditRecordMap = new HashMap<>();
+        this.auditRecordMap = new ConcurrentHashMap<>();
+        if (configuration.getAudit() == null || configuration.getAudit().isStrict()) {
+            this.auditWriter = null;
+        } else if (StringUtils.isEmpty(configuration.getAudit().getSpillDir())) {
+            // Without a spill dir, the background writer would drop the records when the database is not available
+            logger.warn("Missing audit spillDir. Writing audit records synchronously.");
+            this.auditWriter = null;
+        } else {
+            this.auditWriter = new AuditWriter(auditDBAdaptor, configuration.getAudit());
+        }
     }
 
     public void audit(AuditRecord auditRecord) throws CatalogException {
-        auditDBAdaptor.insertAuditRecord(auditRecord);
+        if (auditWriter == null) {
+            auditDBAdaptor.insertAuditRecord(auditRecord);
+        } else {
+            auditWriter.add(auditRecord);
+        }
     }
 
     public void audit(List<AuditRecord> auditRecordList) throws CatalogException {
-        for (AuditRecord auditRecord : auditRecordList) {
-            auditDBAdaptor.insertAuditRecord(auditRecord);
+        if (auditRecordList.isEmpty()) {
+            return;
+        }
+        if (auditWriter == null) {
+            auditDBAdaptor.insertAuditRecords(auditRecordList);
+        } else {
+            auditWriter.addAll(auditRecordList);
+        }
+    }
+
+    /**
+     * Get the metrics of the audit writer. See {@link AuditWriter#getStats()}.
+     *
+     * @return Audit metrics
+     */
+    public ObjectMap getStats() {
+        if (auditWriter == null) {
+            return new ObjectMap("strict", true);
+        } else {
+            return auditWriter.getStats().append("strict", false);
+        }
+    }
+
+    /**
+     * Write all the pending audit records, and stop the background writer.
+     */
+    public void close() {
+        if (auditWriter != null) {
+            auditWriter.close();
         }
     }
 
@@ -81,10 +123,8 @@ public class AuditManager {
             throw new CatalogException("Cannot audit. Operation id '" + operationId + "' not found.");
         }
         try {
-            if (!this.auditRecordMap.get(operationId).isEmpty()) {
-                auditDBAdaptor.insertAuditRecords(this.auditRecordMap.get(operationId));
-            }
-        } catch (CatalogDBException e) {
+            audit(this.auditRecordMap.get(operationId));
+        } catch (CatalogException e) {
             logger.error("Could not audit operation '{}' -> Error: {}", operationId, e.getMessage(), e);
         } finally {
             this.auditRecordMap.remove(operationId);
@@ -190,22 +230,23 @@ public class AuditManager {
         AuditRecord auditRecord = new AuditRecord(auditId, operationId, userId, apiVersion, action, resource, resourceId, resourceUuid,
                 studyId, studyUuid, params, status, date, attributes);
 
-        if (this.auditRecordMap.containsKey(operationId)) {
-            this.auditRecordMap.get(operationId).add(auditRecord);
+        List<AuditRecord> auditRecords = this.auditRecordMap.get(operationId);
+        if (auditRecords != null) {
+            auditRecords.add(auditRecord);
 
-            if (this.auditRecordMap.size() == MAX_BATCH_SIZE) {
+            if (auditRecords.size() == MAX_BATCH_SIZE) {
                 try {
-                    auditDBAdaptor.insertAuditRecords(this.auditRecordMap.get(operationId));
-                } catch (CatalogDBException e) {
+                    audit(auditRecords);
+                } catch (CatalogException e) {
                     logger.error("Could not audit operation '{}' -> Error: {}", operationId, e.getMessage(), e);
                 } finally {
-                    this.auditRecordMap.get(operationId).clear();
+                    auditRecords.clear();
                 }
             }
         } else {
             try {
-                auditDBAdaptor.insertAuditRecord(auditRecord);
-            } catch (CatalogDBException e) {
+                audit(auditRecord);
+            } catch (CatalogException e) {
                 logger.error("Could not audit '{}' -> Error: {}", auditRecord, e.getMessage(), e);
             }
         }
@@ -0,0 +1,455 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.catalog.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.lang3.StringUtils;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.opencga.catalog.db.api.AuditDBAdaptor;
+import org.opencb.opencga.catalog.exceptions.CatalogDBException;
+import org.opencb.opencga.core.common.JacksonUtils;
+import org.opencb.opencga.core.config.Audit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes audit records to the database in batches, from a background thread.
+ *
+ * Records are buffered in a bounded queue, and written in batches of up to {@link Audit#getBatchSize()} records,
+ * or every {@link Audit#getFlushInterval()} milliseconds. If the queue is full, or the database fails, records are
+ * spilled to disk (if {@link Audit#getSpillDir()} is defined) and written later, once the database is available again.
+ * Otherwise, those records are dropped.
+ *
+ * Records are always written in the same order they were added, so the audit of an operation is never shuffled.
+ * While there are spilled records, new records go directly to the spill files. Spill files pending at shutdown
+ * are written after the next start. The spill directory must not be shared between different processes.
+ */
+public class AuditWriter implements Closeable {
+
+    private static final String SPILL_FILE_PREFIX = "audit-spill-";
+    private static final String SPILL_FILE_EXTENSION = ".jsonl";
+    private static final long MAX_RETRY_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+    private static final long CLOSE_TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+
+    private final AuditDBAdaptor auditDBAdaptor;
+    private final BlockingQueue<AuditRecord> queue;
+    private final int batchSize;
+    private final long flushInterval;
+    private final Path spillDir;
+    private final int maxRecordsPerSpillFile;
+    private final ObjectMapper objectMapper;
+    private final Thread thread;
+    private volatile boolean closed;
+    private long closeTimeout = CLOSE_TIMEOUT;
+
+    // Spill status. Guarded by "this"
+    private final Deque<Path> spillFiles = new LinkedList<>();
+    private long firstSpillSeq;
+    private long lastSpillSeq;
+    private BufferedWriter spillWriter;
+    private int spillWriterRecords;
+    private boolean spilling;
+
+    // Retry policy. Only used by the writer thread
+    private int consecutiveFailures;
+    private long nextRetry;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong batchTime = new AtomicLong();
+    private final AtomicLong maxBatchTime = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    private final Logger logger = LoggerFactory.getLogger(AuditWriter.class);
+
+    public AuditWriter(AuditDBAdaptor auditDBAdaptor, Audit configuration) {
+        this.auditDBAdaptor = auditDBAdaptor;
+        this.queue = new ArrayBlockingQueue<>(configuration.getQueueSize() > 0 ? configuration.getQueueSize() : Audit.DEFAULT_QUEUE_SIZE);
+        this.batchSize = configuration.getBatchSize() > 0 ? configuration.getBatchSize() : Audit.DEFAULT_BATCH_SIZE;
+        this.flushInterval = configuration.getFlushInterval() > 0 ? configuration.getFlushInterval() : Audit.DEFAULT_FLUSH_INTERVAL;
+        this.maxRecordsPerSpillFile = batchSize * 10;
+        this.objectMapper = JacksonUtils.getDefaultObjectMapper();
+
+        if (StringUtils.isNotEmpty(configuration.getSpillDir())) {
+            this.spillDir = Paths.get(configuration.getSpillDir()).toAbsolutePath();
+            initSpillDir();
+        } else {
+            this.spillDir = null;
+        }
+
+        thread = new Thread(this::run, "audit-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Add a record to be written. Does not block.
+     *
+     * @param auditRecord Audit record
+     */
+    public void add(AuditRecord auditRecord) {
+        synchronized (this) {
+            if (!closed) {
+                if (!spilling && queue.offer(auditRecord)) {
+                    return;
+                }
+                // Queue is full, or there are already records waiting in disk.
+                if (spillDir == null) {
+                    drop(1, "Audit queue is full");
+                } else {
+                    spilling = true;
+                    appendToSpill(auditRecord);
+                }
+                return;
+            }
+        }
+        // Late records, after the shutdown. Write synchronously.
+        if (!write(Collections.singletonList(auditRecord))) {
+            drop(1, "Audit writer closed");
+        }
+    }
+
+    public void addAll(List<AuditRecord> auditRecords) {
+        for (AuditRecord auditRecord : auditRecords) {
+            add(auditRecord);
+        }
+    }
+
+    /**
+     * Get the writer metrics.
+     *  - queueSize, spilling, spillFiles
+     *  - written, batches, avgBatchTime, maxBatchTime (ms)
+     *  - spilled, dropped, errors
+     *
+     * @return Writer metrics
+     */
+    public ObjectMap getStats() {
+        long numBatches = batches.get();
+        ObjectMap stats = new ObjectMap()
+                .append("queueSize", queue.size())
+                .append("written", written.get())
+                .append("batches", numBatches)
+                .append("avgBatchTime", numBatches == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(batchTime.get() / numBatches))
+                .append("maxBatchTime", TimeUnit.NANOSECONDS.toMillis(maxBatchTime.get()))
+                .append("spilled", spilled.get())
+                .append("dropped", dropped.get())
+                .append("errors", errors.get());
+        synchronized (this) {
+            stats.append("spilling", spilling)
+                    .append("spillFiles", spillFiles.size());
+        }
+        return stats;
+    }
+
+    /**
+     * Stop the writer thread, writing all the queued records. Records that can not be written are left in the spill files.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            thread.join(flushInterval + closeTimeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (thread.isAlive()) {
+                logger.warn("Timeout waiting for the audit writer. {} records pending", queue.size());
+            }
+            List<AuditRecord> pending = new ArrayList<>(queue.size());
+            queue.drainTo(pending);
+            if (!pending.isEmpty()) {
+                if (spillDir == null) {
+                    drop(pending.size(), "Audit writer closed");
+                } else {
+                    // Queued records are older than any spilled record. Write them in front of the spill files.
+                    spilled.addAndGet(pending.size());
+                    Path file = spillDir.resolve(spillFileName(--firstSpillSeq));
+                    if (writeSpillFile(file, pending)) {
+                        spillFiles.addFirst(file);
+                    }
+                }
+            }
+            closeSpillWriter();
+        }
+        logger.info("Audit writer closed. {}", getStats().toJson());
+    }
+
+    /**
+     * Maximum time to wait for the writer thread on {@link #close()}, on top of the flush interval.
+     *
+     * @param closeTimeout Timeout in milliseconds
+     */
+    void setCloseTimeout(long closeTimeout) {
+        this.closeTimeout = closeTimeout;
+    }
+
+    private void run() {
+        List<AuditRecord> batch = new ArrayList<>(batchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                pollBatch(batch);
+                if (!batch.isEmpty()) {
+                    if (!write(batch)) {
+                        writeFailed(batch);
+                    }
+                    batch.clear();
+                } else if (!closed && isSpilling() && System.currentTimeMillis() >= nextRetry) {
+                    replaySpill();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                errors.incrementAndGet();
+                logger.error("Unexpected error in audit writer", e);
+                batch.clear();
+            }
+        }
+    }
+
+    private void pollBatch(List<AuditRecord> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushInterval);
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0 || closed) {
+                return;
+            }
+            AuditRecord auditRecord = queue.poll(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(100)), TimeUnit.NANOSECONDS);
+            if (auditRecord != null) {
+                batch.add(auditRecord);
+            } else if (!batch.isEmpty() || isSpilling()) {
+                // Queue is idle. Do not wait any longer.
+                return;
+            }
+        }
+    }
+
+    private boolean write(List<AuditRecord> batch) {
+        long start = System.nanoTime();
+        try {
+            auditDBAdaptor.insertAuditRecords(batch);
+        } catch (CatalogDBException | RuntimeException e) {
+            errors.incrementAndGet();
+            consecutiveFailures++;
+            nextRetry = System.currentTimeMillis() + Math.min(MAX_RETRY_INTERVAL, flushInterval << Math.min(consecutiveFailures, 16));
+            logger.warn("Could not write {} audit records -> Error: {}", batch.size(), e.getMessage());
+            return false;
+        }
+        long time = System.nanoTime() - start;
+        consecutiveFailures = 0;
+        written.addAndGet(batch.size());
+        batches.incrementAndGet();
+        batchTime.addAndGet(time);
+        maxBatchTime.accumulateAndGet(time, Math::max);
+        return true;
+    }
+
+    /**
+     * Spill a batch that could not be written. The batch, and any record still in the queue, are older than any spilled
+     * record, so they go in front of the spill files.
+     */
+    private synchronized void writeFailed(List<AuditRecord> batch) {
+        List<AuditRecord> records = new ArrayList<>(batch.size() + queue.size());
+        records.addAll(batch);
+        queue.drainTo(records);
+        if (spillDir == null) {
+            drop(records.size(), "Audit database not available");
+            return;
+        }
+        spilling = true;
+        spilled.addAndGet(records.size());
+        Path file = spillDir.resolve(spillFileName(--firstSpillSeq));
+        if (writeSpillFile(file, records)) {
+            spillFiles.addFirst(file);
+        }
+    }
+
+    private void replaySpill() {
+        Path file;
+        synchronized (this) {
+            if (spillWriter != null && spillFiles.size() == 1) {
+                // Only the file being appended is left. Rotate it.
+                closeSpillWriter();
+            }
+            if (spillFiles.isEmpty()) {
+                spilling = false;
+                return;
+            }
+            file = spillFiles.getFirst();
+        }
+        List<AuditRecord> records = readSpillFile(file);
+        int i = 0;
+        while (i < records.size()) {
+            List<AuditRecord> batch = records.subList(i, Math.min(records.size(), i + batchSize));
+            if (!write(batch)) {
+                break;
+            }
+            i += batch.size();
+        }
+        synchronized (this) {
+            try {
+                if (i == records.size()) {
+                    Files.deleteIfExists(file);
+                    spillFiles.remove(file);
+                    if (spillFiles.isEmpty() && spillWriter == null) {
+                        spilling = false;
+                        logger.info("All spilled audit records written");
+                    }
+                } else if (i > 0) {
+                    // Keep only the records not written yet
+                    Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+                    writeSpillFile(tmp, records.subList(i, records.size()));
+                    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+            } catch (IOException e) {
+                errors.incrementAndGet();
+                logger.error("Error updating audit spill file " + file, e);
+            }
+        }
+    }
+
+    private synchronized boolean isSpilling() {
+        return spilling;
+    }
+
+    private void appendToSpill(AuditRecord auditRecord) {
+        try {
+            if (spillWriter == null || spillWriterRecords >= maxRecordsPerSpillFile) {
+                closeSpillWriter();
+                Path file = nextTailSpillFile();
+                spillWriter = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+                spillWriterRecords = 0;
+                spillFiles.addLast(file);
+            }
+            spillWriter.write(objectMapper.writeValueAsString(auditRecord));
+            spillWriter.newLine();
+            // Flush every record. Spilled records must survive a crash
+            spillWriter.flush();
+            spillWriterRecords++;
+            spilled.incrementAndGet();
+        } catch (IOException e) {
+            errors.incrementAndGet();
+            drop(1, "Error writing audit spill file: " + e.getMessage());
+        }
+    }
+
+    private void closeSpillWriter() {
+        if (spillWriter != null) {
+            try {
+                spillWriter.close();
+            } catch (IOException e) {
+                logger.warn("Error closing audit spill file", e);
+            }
+            spillWriter = null;
+        }
+    }
+
+    private boolean writeSpillFile(Path file, List<AuditRecord> records) {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (AuditRecord auditRecord : records) {
+                writer.write(objectMapper.writeValueAsString(auditRecord));
+                writer.newLine();
+            }
+            return true;
+        } catch (IOException e) {
+            errors.incrementAndGet();
+            drop(records.size(), "Error writing audit spill file " + file + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private List<AuditRecord> readSpillFile(Path file) {
+        List<AuditRecord> records = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (StringUtils.isNotBlank(line)) {
+                    records.add(objectMapper.readValue(line, AuditRecord.class));
+                }
+            }
+        } catch (IOException e) {
+            // Keep the records read so far. A truncated last line is expected after a crash.
+            errors.incrementAndGet();
+            logger.error("Error reading audit spill file " + file, e);
+        }
+        return records;
+    }
+
+    private Path nextTailSpillFile() {
+        return spillDir.resolve(spillFileName(++lastSpillSeq));
+    }
+
+    private static String spillFileName(long seq) {
+        // Fixed length, so the lexicographic order matches the sequence order
+        return SPILL_FILE_PREFIX + String.format("%020d", seq) + SPILL_FILE_EXTENSION;
+    }
+
+    private void initSpillDir() {
+        firstSpillSeq = Long.MAX_VALUE / 2;
+        lastSpillSeq = firstSpillSeq - 1;
+        try {
+            Files.createDirectories(spillDir);
+            List<Path> files = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(spillDir, SPILL_FILE_PREFIX + "*" + SPILL_FILE_EXTENSION)) {
+                stream.forEach(files::add);
+            }
+            Collections.sort(files);
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long seq = Long.parseLong(name.substring(SPILL_FILE_PREFIX.length(), name.length() - SPILL_FILE_EXTENSION.length()));
+                if (spillFiles.isEmpty()) {
+                    firstSpillSeq = seq;
+                }
+                lastSpillSeq = seq;
+                spillFiles.add(file);
+            }
+        } catch (IOException | NumberFormatException e) {
+            throw new IllegalStateException("Unable to initialize audit spill directory " + spillDir, e);
+        }
+        if (!spillFiles.isEmpty()) {
+            logger.info("Found {} audit spill files pending to be written", spillFiles.size());
+            spilling = true;
+        }
+    }
+
+    private void drop(int numRecords, String reason) {
+        long total = dropped.addAndGet(numRecords);
+        // Do not flood the log
+        if (total == numRecords || total / 1000 != (total - numRecords) / 1000) {
+            logger.error("{}. Dropped {} audit records. Total dropped: {}", reason, numRecords, total);
+        }
+    }
+}
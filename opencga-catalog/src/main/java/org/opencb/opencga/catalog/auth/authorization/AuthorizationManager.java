@@ -124,6 +124,18 @@ public interface AuthorizationManager {
 
     Boolean isOwnerOrAdmin(long studyId, String userId) throws CatalogException;
 
+    /**
+     * Invalidate the cached owners, admins and groups of a study. Must be called after modifying the groups of the study.
+     *
+     * @param studyId Study uid.
+     */
+    void invalidatePermissionsCache(long studyId);
+
+    /**
+     * Invalidate the cached owners, admins and groups of all the studies.
+     */
+    void invalidatePermissionsCache();
+
     void checkFilePermission(long studyId, long fileId, String userId, FileAclEntry.FilePermissions permission) throws CatalogException;
 
     void checkSamplePermission(long studyId, long sampleId, String userId, SampleAclEntry.SamplePermissions permission)
@@ -146,6 +158,34 @@ public interface AuthorizationManager {
     void checkClinicalAnalysisPermission(long studyId, long analysisId, String userId,
                                          ClinicalAnalysisAclEntry.ClinicalAnalysisPermissions permission) throws CatalogException;
 
+    //------------------------- Batched permission checks -----------------------------
+    // Check the permission over a list of entries with a single query.
+    // Throw a CatalogAuthorizationException listing the entries without the permission, if any.
+
+    void checkFilePermissions(long studyId, List<Long> fileUids, String userId, FileAclEntry.FilePermissions permission)
+            throws CatalogException;
+
+    void checkSamplePermissions(long studyId, List<Long> sampleUids, String userId, SampleAclEntry.SamplePermissions permission)
+            throws CatalogException;
+
+    void checkIndividualPermissions(long studyId, List<Long> individualUids, String userId,
+                                    IndividualAclEntry.IndividualPermissions permission) throws CatalogException;
+
+    void checkJobPermissions(long studyId, List<Long> jobUids, String userId, JobAclEntry.JobPermissions permission)
+            throws CatalogException;
+
+    void checkCohortPermissions(long studyId, List<Long> cohortUids, String userId, CohortAclEntry.CohortPermissions permission)
+            throws CatalogException;
+
+    void checkPanelPermissions(long studyId, List<Long> panelUids, String userId, PanelAclEntry.PanelPermissions permission)
+            throws CatalogException;
+
+    void checkFamilyPermissions(long studyId, List<Long> familyUids, String userId, FamilyAclEntry.FamilyPermissions permission)
+            throws CatalogException;
+
+    void checkClinicalAnalysisPermissions(long studyId, List<Long> clinicalAnalysisUids, String userId,
+                                          ClinicalAnalysisAclEntry.ClinicalAnalysisPermissions permission) throws CatalogException;
+
     //------------------------- Study ACL -----------------------------
 
     /**
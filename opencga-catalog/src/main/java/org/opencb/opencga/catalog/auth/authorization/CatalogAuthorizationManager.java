@@ -16,6 +16,7 @@
 
 package org.opencb.opencga.catalog.auth.authorization;
 
+import com.google.common.collect.Lists;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.utils.CollectionUtils;
 import org.opencb.opencga.catalog.db.DBAdaptorFactory;
@@ -27,6 +28,7 @@ import org.opencb.opencga.catalog.exceptions.CatalogException;
 import org.opencb.opencga.catalog.utils.ParamUtils;
 import org.opencb.opencga.core.api.ParamConstants;
 import org.opencb.opencga.core.config.Configuration;
+import org.opencb.opencga.core.config.Optimizations;
 import org.opencb.opencga.core.models.clinical.ClinicalAnalysisAclEntry;
 import org.opencb.opencga.core.models.cohort.CohortAclEntry;
 import org.opencb.opencga.core.models.common.Enums;
@@ -57,6 +59,8 @@ public class CatalogAuthorizationManager implements AuthorizationManager {
     public static final String MEMBERS_GROUP = ParamConstants.MEMBERS_GROUP;
     public static final String ADMINS_GROUP = ParamConstants.ADMINS_GROUP;
     private static final String OPENCGA = ParamConstants.OPENCGA_USER_ID;
+    // Max number of entries checked with a single query
+    private static final int MAX_BATCH_SIZE = 1000;
 
     private final Logger logger;
 
@@ -75,6 +79,7 @@ public class CatalogAuthorizationManager implements AuthorizationManager {
     private final boolean openRegister;
 
     private final AuthorizationDBAdaptor aclDBAdaptor;
+    private final StudyMemberCache studyMemberCache;
 
     public CatalogAuthorizationManager(DBAdaptorFactory dbFactory, Configuration configuration)
             throws CatalogDBException {
@@ -94,6 +99,11 @@ public class CatalogAuthorizationManager implements AuthorizationManager {
         panelDBAdaptor = dbFactory.getCatalogPanelDBAdaptor();
         familyDBAdaptor = dbFactory.getCatalogFamilyDBAdaptor();
         clinicalAnalysisDBAdaptor = dbFactory.getClinicalAnalysisDBAdaptor();
+
+        Optimizations optimizations = configuration.getOptimizations();
+        studyMemberCache = new StudyMemberCache(optimizations == null
+                ? Optimizations.DEFAULT_PERMISSIONS_CACHE_TTL
+                : optimizations.getPermissionsCacheTtl());
     }
 
     @Override
@@ -140,19 +150,22 @@ public class CatalogAuthorizationManager implements AuthorizationManager {
             throws CatalogException {
         if (OPENCGA.equals(userId)) {
             return;
-        } else {
-            if (studyDBAdaptor.hasStudyPermission(studyId, userId, permission)) {
-                return;
-            }
+        }
+        StudyMemberCache.StudyMember member = getStudyMember(studyId, userId);
+        Boolean hasPermission = member.getStudyPermission(permission);
+        if (hasPermission == null) {
+            hasPermission = studyDBAdaptor.hasStudyPermission(studyId, userId, permission);
+            member.putStudyPermission(permission, hasPermission);
+        }
+        if (hasPermission) {
+            return;
         }
         throw CatalogAuthorizationException.deny(userId, message, "Study", studyId, null);
     }
 
     @Override
     public void checkCanEditStudy(long studyId, String userId) throws CatalogException {
-        String ownerId = studyDBAdaptor.getOwnerId(studyId);
-
-        if (!ownerId.equals(userId) && !isAdministrativeUser(studyId, userId)) {
+        if (!getStudyMember(studyId, userId).isOwnerOrAdmin()) {
             throw new CatalogAuthorizationException("Only owners or administrative users are allowed to modify a study");
         }
     }
@@ -163,23 +176,19 @@ public class CatalogAuthorizationManager implements AuthorizationManager {
             return;
         }
 
-        String ownerId = studyDBAdaptor.getOwnerId(studyId);
-
-        if (ownerId.equals(userId)) {
+        StudyMemberCache.StudyMember member = getStudyMember(studyId, userId);
+        if (member.isOwner()) {
             return;
         }
 
-        OpenCGAResult<Group> groupBelonging = getGroupBelonging(studyId, userId);
-        if (groupBelonging.getNumResults() == 0) {
+        if (member.getGroups().isEmpty()) {
             throw new CatalogAuthorizationException("Only the members of the study are allowed to see it");
         }
     }
 
     @Override
     public void checkCanUpdatePermissionRules(long studyId, String userId) throws CatalogException {
-        String ownerId = studyDBAdaptor.getOwnerId(studyId);
-
-        if (!ownerId.equals(userId) && !isAdministrativeUser(studyId, userId)) {
+        if (!getStudyMember(studyId, userId).isOwnerOrAdmin()) {
             throw new CatalogAuthorizationException("Only owners or administrative users are allowed to modify a update permission rules");
         }
     }
@@ -190,8 +199,7 @@ public class CatalogAuthorizationManager implements AuthorizationManager {
             throw new CatalogAuthorizationException(group + " is a protected group that cannot be created or deleted.");
         }
 
-        String ownerId = studyDBAdaptor.getOwnerId(studyId);
-        if (!userId.equals(OPENCGA) && !userId.equals(ownerId) && !isAdministrativeUser(studyId, userId)) {
+        if (!userId.equals(OPENCGA) && !getStudyMember(studyId, userId).isOwnerOrAdmin()) {
             throw new CatalogAuthorizationException("Only administrative users are allowed to create/remove groups.");
         }
     }
@@ -204,9 +212,9 @@ public class CatalogAuthorizationManager implements AuthorizationManager {
     @Override
     public void checkUpdateGroupPermissions(long studyId, String userId, String group, ParamUtils.BasicUpdateAction action)
             throws CatalogException {
-        String ownerId = studyDBAdaptor.getOwnerId(studyId);
+        StudyMemberCache.StudyMember member = getStudyMember(studyId, userId);
 
-        if (userId.equals(ownerId)) {
+        if (member.isOwner()) {
             // Granted permission but check it is a valid action
             if (group.equals(MEMBERS_GROUP)
                     && (action != ParamUtils.BasicUpdateAction.ADD && action != ParamUtils.BasicUpdateAction.REMOVE)) {
@@ -219,7 +227,7 @@ public class CatalogAuthorizationManager implements AuthorizationManager {
             throw new CatalogAuthorizationException("Only the owner of the study can assign/remove users to the administrative group.");
         }
 
-        if (!userId.equals(OPENCGA) && !isAdministrativeUser(studyId, userId)) {
+        if (!userId.equals(OPENCGA) && !member.isAdmin()) {
             throw new CatalogAuthorizationException("Only administrative users are allowed to assign/remove users to groups.");
         }
 
@@ -240,18 +248,14 @@ public class CatalogAuthorizationManager implements AuthorizationManager {
 
     @Override
     public void checkCanAssignOrSeePermissions(long studyId, String userId) throws CatalogException {
-        String ownerId = studyDBAdaptor.getOwnerId(studyId);
-
-        if (!OPENCGA.equals(userId) && !ownerId.equals(userId) && !isAdministrativeUser(studyId, userId)) {
+        if (!OPENCGA.equals(userId) && !getStudyMember(studyId, userId).isOwnerOrAdmin()) {
             throw new CatalogAuthorizationException("Only owners or administrative users are allowed to assign or see all permissions");
         }
     }
 
     @Override
     public void checkCanCreateUpdateDeleteVariableSets(long studyId, String userId) throws CatalogException {
-        String ownerId = studyDBAdaptor.getOwnerId(studyId);
-
-        if (!ownerId.equals(userId) && !isAdministrativeUser(studyId, userId)) {
+        if (!getStudyMember(studyId, userId).isOwnerOrAdmin()) {
             throw new CatalogAuthorizationException("Only owners or administrative users are allowed to create/update/delete variable "
                     + "sets");
         }
@@ -271,24 +275,28 @@ public class CatalogAuthorizationManager implements AuthorizationManager {
 
     @Override
     public Boolean isOwnerOrAdmin(long studyId, String userId) throws CatalogException {
-        String ownerId = studyDBAdaptor.getOwnerId(studyId);
-
-        if (!ownerId.equals(userId) && !isAdministrativeUser(studyId, userId)) {
-            return false;
-        }
+        return getStudyMember(studyId, userId).isOwnerOrAdmin();
+    }
 
-        return true;
+    @Override
+    public void invalidatePermissionsCache(long studyId) {
+        studyMemberCache.invalidate(studyId);
     }
 
+    @Override
+    public void invalidatePermissionsCache() {
+        studyMemberCache.invalidateAll();
+    }
 
-    private boolean isAdministrativeUser(long studyId, String user) throws CatalogException {
-        OpenCGAResult<Group> groupBelonging = getGroupBelonging(studyId, user);
-        for (Group group : groupBelonging.getResults()) {
-            if (group.getId().equals(ADMINS_GROUP)) {
-                return true;
-            }
-        }
-        return false;
+    private StudyMemberCache.StudyMember getStudyMember(long studyId, String userId) throws CatalogException {
+        return studyMemberCache.get(studyId, userId, () -> {
+            String ownerId = studyDBAdaptor.getOwnerId(studyId);
+            List<String> groups = getGroupBelonging(studyId, userId).getResults()
+                    .stream()
+                    .map(Group::getId)
+                    .collect(Collectors.toList());
+            return new StudyMemberCache.StudyMember(userId, ownerId, groups);
+        });
     }
 
     @Override
@@ -299,21 +307,58 @@ public class CatalogAuthorizationManager implements AuthorizationManager {
                 .append(FileDBAdaptor.QueryParams.STUDY_UID.key(), studyId)
                 .append(ParamConstants.ACL_PARAM, userId + ":" + permission.name());
 
-        if (checkUserPermission(userId, query, fileDBAdaptor)) {
+        if (checkUserPermission(studyId, userId, query, fileDBAdaptor)) {
             return;
         }
         throw CatalogAuthorizationException.deny(userId, permission.toString(), "File", fileId, null);
     }
 
-    private boolean checkUserPermission(String userId, Query query, CoreDBAdaptor dbAdaptor) throws CatalogException {
+    private boolean checkUserPermission(long studyId, String userId, Query query, CoreDBAdaptor dbAdaptor) throws CatalogException {
         if (OPENCGA.equals(userId)) {
             return true;
+        } else if (getStudyMember(studyId, userId).isOwnerOrAdmin()) {
+            // Owners and admins have all the permissions. Only check the entry belongs to the study
+            query.remove(ParamConstants.ACL_PARAM);
+            return dbAdaptor.count(query).getNumMatches() == 1;
         } else {
-            if (dbAdaptor.count(query, userId).getNumMatches() == 1) {
-                return true;
+            return dbAdaptor.count(query, userId).getNumMatches() == 1;
+        }
+    }
+
+    /**
+     * Check the user has the permission over all the entries, running one query for every {@link #MAX_BATCH_SIZE} entries.
+     *
+     * @param studyId     Study uid.
+     * @param uids        Entry uids.
+     * @param userId      User.
+     * @param permission  Permission to check.
+     * @param resource    Resource name, for the error message.
+     * @param uidKey      Key of the uid query param of the entry.
+     * @param dbAdaptor   Entry DBAdaptor.
+     * @throws CatalogException CatalogAuthorizationException listing all the entries without the permission.
+     */
+    private void checkUserPermissions(long studyId, List<Long> uids, String userId, String permission, String resource, String uidKey,
+                                      CoreDBAdaptor dbAdaptor) throws CatalogException {
+        if (OPENCGA.equals(userId) || uids.isEmpty()) {
+            return;
+        }
+        boolean ownerOrAdmin = getStudyMember(studyId, userId).isOwnerOrAdmin();
+        List<Long> distinctUids = new ArrayList<>(new LinkedHashSet<>(uids));
+        Set<Long> authorised = new HashSet<>(distinctUids.size());
+        for (List<Long> batch : Lists.partition(distinctUids, MAX_BATCH_SIZE)) {
+            Query query = new Query(uidKey, batch);
+            if (!ownerOrAdmin) {
+                query.append(ParamConstants.ACL_PARAM, userId + ":" + permission);
             }
+            authorised.addAll(dbAdaptor.distinct(studyId, uidKey, query, ownerOrAdmin ? null : userId, Long.class).getResults());
+        }
+        if (authorised.size() != distinctUids.size()) {
+            String denied = distinctUids.stream()
+                    .filter(uid -> !authorised.contains(uid))
+                    .map(String::valueOf)
+                    .collect(Collectors.joining(","));
+            throw CatalogAuthorizationException.deny(userId, permission, resource, denied, null);
         }
-        return false;
     }
 
     @Override
@@ -324,7 +369,7 @@ public class CatalogAuthorizationManager implements AuthorizationManager {
                 .append(SampleDBAdaptor.QueryParams.STUDY_UID.key(), studyId)
                 .append(ParamConstants.ACL_PARAM, userId + ":" + permission.name());
 
-        if (checkUserPermission(userId, query, sampleDBAdaptor)) {
+        if (checkUserPermission(studyId, userId, query, sampleDBAdaptor)) {
             return;
         }
         throw CatalogAuthorizationException.deny(userId, permission.toString(), "Sample", sampleId, null);
@@ -338,7 +383,7 @@ public class CatalogAuthorizationManager implements AuthorizationManager {
                 .append(IndividualDBAdaptor.QueryParams.STUDY_UID.key(), studyId)
                 .append(ParamConstants.ACL_PARAM, userId + ":" + permission.name());
 
-        if (checkUserPermission(userId, query, individualDBAdaptor)) {
+        if (checkUserPermission(studyId, userId, query, individualDBAdaptor)) {
             return;
         }
         throw CatalogAuthorizationException.deny(userId, permission.toString(), "Individual", individualId, null);
@@ -351,7 +396,7 @@ public class CatalogAuthorizationManager implements AuthorizationManager {
                 .append(JobDBAdaptor.QueryParams.STUDY_UID.key(), studyId)
                 .append(ParamConstants.ACL_PARAM, userId + ":" + permission.name());
 
-        if (checkUserPermission(userId, query, jobDBAdaptor)) {
+        if (checkUserPermission(studyId, userId, query, jobDBAdaptor)) {
             return;
         }
         throw CatalogAuthorizationException.deny(userId, permission.toString(), "Job", jobId, null);
@@ -365,7 +410,7 @@ public class CatalogAuthorizationManager implements AuthorizationManager {
                 .append(CohortDBAdaptor.QueryParams.STUDY_UID.key(), studyId)
                 .append(ParamConstants.ACL_PARAM, userId + ":" + permission.name());
 
-        if (checkUserPermission(userId, query, cohortDBAdaptor)) {
+        if (checkUserPermission(studyId, userId, query, cohortDBAdaptor)) {
             return;
         }
         throw CatalogAuthorizationException.deny(userId, permission.toString(), "Cohort", cohortId, null);
@@ -380,7 +425,7 @@ public class CatalogAuthorizationManager implements AuthorizationManager {
                 .append(PanelDBAdaptor.QueryParams.STUDY_UID.key(), studyId)
                 .append(ParamConstants.ACL_PARAM, userId + ":" + permission.name());
 
-        if (checkUserPermission(userId, query, panelDBAdaptor)) {
+        if (checkUserPermission(studyId, userId, query, panelDBAdaptor)) {
             return;
         }
         throw CatalogAuthorizationException.deny(userId, permission.toString(), "Panel", panelId, null);
@@ -394,7 +439,7 @@ public class CatalogAuthorizationManager implements AuthorizationManager {
                 .append(FamilyDBAdaptor.QueryParams.STUDY_UID.key(), studyId)
                 .append(ParamConstants.ACL_PARAM, userId + ":" + permission.name());
 
-        if (checkUserPermission(userId, query, familyDBAdaptor)) {
+        if (checkUserPermission(studyId, userId, query, familyDBAdaptor)) {
             return;
         }
         throw CatalogAuthorizationException.deny(userId, permission.toString(), "Family", familyId, null);
@@ -409,12 +454,68 @@ public class CatalogAuthorizationManager implements AuthorizationManager {
                 .append(ClinicalAnalysisDBAdaptor.QueryParams.STUDY_UID.key(), studyId)
                 .append(ParamConstants.ACL_PARAM, userId + ":" + permission.name());
 
-        if (checkUserPermission(userId, query, clinicalAnalysisDBAdaptor)) {
+        if (checkUserPermission(studyId, userId, query, clinicalAnalysisDBAdaptor)) {
             return;
         }
         throw CatalogAuthorizationException.deny(userId, permission.toString(), "ClinicalAnalysis", analysisId, null);
     }
 
+    @Override
+    public void checkFilePermissions(long studyId, List<Long> fileUids, String userId, FileAclEntry.FilePermissions permission)
+            throws CatalogException {
+        checkUserPermissions(studyId, fileUids, userId, permission.name(), "File", FileDBAdaptor.QueryParams.UID.key(),
+                fileDBAdaptor);
+    }
+
+    @Override
+    public void checkSamplePermissions(long studyId, List<Long> sampleUids, String userId, SampleAclEntry.SamplePermissions permission)
+            throws CatalogException {
+        checkUserPermissions(studyId, sampleUids, userId, permission.name(), "Sample", SampleDBAdaptor.QueryParams.UID.key(),
+                sampleDBAdaptor);
+    }
+
+    @Override
+    public void checkIndividualPermissions(long studyId, List<Long> individualUids, String userId,
+                                           IndividualAclEntry.IndividualPermissions permission) throws CatalogException {
+        checkUserPermissions(studyId, individualUids, userId, permission.name(), "Individual", IndividualDBAdaptor.QueryParams.UID.key(),
+                individualDBAdaptor);
+    }
+
+    @Override
+    public void checkJobPermissions(long studyId, List<Long> jobUids, String userId, JobAclEntry.JobPermissions permission)
+            throws CatalogException {
+        checkUserPermissions(studyId, jobUids, userId, permission.name(), "Job", JobDBAdaptor.QueryParams.UID.key(),
+                jobDBAdaptor);
+    }
+
+    @Override
+    public void checkCohortPermissions(long studyId, List<Long> cohortUids, String userId, CohortAclEntry.CohortPermissions permission)
+            throws CatalogException {
+        checkUserPermissions(studyId, cohortUids, userId, permission.name(), "Cohort", CohortDBAdaptor.QueryParams.UID.key(),
+                cohortDBAdaptor);
+    }
+
+    @Override
+    public void checkPanelPermissions(long studyId, List<Long> panelUids, String userId, PanelAclEntry.PanelPermissions permission)
+            throws CatalogException {
+        checkUserPermissions(studyId, panelUids, userId, permission.name(), "Panel", PanelDBAdaptor.QueryParams.UID.key(),
+                panelDBAdaptor);
+    }
+
+    @Override
+    public void checkFamilyPermissions(long studyId, List<Long> familyUids, String userId, FamilyAclEntry.FamilyPermissions permission)
+            throws CatalogException {
+        checkUserPermissions(studyId, familyUids, userId, permission.name(), "Family", FamilyDBAdaptor.QueryParams.UID.key(),
+                familyDBAdaptor);
+    }
+
+    @Override
+    public void checkClinicalAnalysisPermissions(long studyId, List<Long> clinicalAnalysisUids, String userId,
+                                                 ClinicalAnalysisAclEntry.ClinicalAnalysisPermissions permission) throws CatalogException {
+        checkUserPermissions(studyId, clinicalAnalysisUids, userId, permission.name(), "ClinicalAnalysis",
+                ClinicalAnalysisDBAdaptor.QueryParams.UID.key(), clinicalAnalysisDBAdaptor);
+    }
+
     @Override
     public OpenCGAResult<Map<String, List<String>>> getAllStudyAcls(String userId, long studyId) throws CatalogException {
         checkCanAssignOrSeePermissions(studyId, userId);
@@ -471,6 +572,7 @@ public class CatalogAuthorizationManager implements AuthorizationManager {
     @Override
     public void resetPermissionsFromAllEntities(long studyId, List<String> members) throws CatalogException {
         aclDBAdaptor.resetMembersFromAllEntries(studyId, members);
+        studyMemberCache.invalidate(studyId);
     }
 
     @Override
@@ -670,11 +772,8 @@ public class CatalogAuthorizationManager implements AuthorizationManager {
     private void checkAskingOwnPermissions(String userId, String member, long studyId) throws CatalogException {
         if (member.startsWith("@")) { //group
             // If the userId does not belong to the group...
-            OpenCGAResult<Group> groupsBelonging = getGroupBelonging(studyId, userId);
-            for (Group group : groupsBelonging.getResults()) {
-                if (group.getId().equals(member)) {
-                    return;
-                }
+            if (getStudyMember(studyId, userId).getGroups().contains(member)) {
+                return;
             }
             throw new CatalogAuthorizationException("The user " + userId + " does not have permissions to see the ACLs of "
                     + member);
@@ -691,6 +790,7 @@ public class CatalogAuthorizationManager implements AuthorizationManager {
     public OpenCGAResult<Map<String, List<String>>> setStudyAcls(List<Long> studyIds, List<String> members, List<String> permissions)
             throws CatalogException {
         aclDBAdaptor.setToMembers(studyIds, members, getImplicitPermissions(permissions, Enums.Resource.STUDY));
+        studyIds.forEach(studyMemberCache::invalidate);
         return aclDBAdaptor.get(studyIds, members, Enums.Resource.STUDY);
     }
 
@@ -698,6 +798,7 @@ public class CatalogAuthorizationManager implements AuthorizationManager {
     public OpenCGAResult<Map<String, List<String>>> addStudyAcls(List<Long> studyIds, List<String> members, List<String> permissions)
             throws CatalogException {
         aclDBAdaptor.addToMembers(studyIds, members, getImplicitPermissions(permissions, Enums.Resource.STUDY));
+        studyIds.forEach(studyMemberCache::invalidate);
         return aclDBAdaptor.get(studyIds, members, Enums.Resource.STUDY);
     }
 
@@ -736,6 +837,11 @@ public class CatalogAuthorizationManager implements AuthorizationManager {
         long startTime = System.currentTimeMillis();
         setDependentPermissions(aclParams);
         aclDBAdaptor.removeFromMembers(members, aclParams);
+        for (CatalogAclParams aclParam : aclParams) {
+            if (aclParam.getResource() == Enums.Resource.STUDY) {
+                aclParam.getIds().forEach(studyMemberCache::invalidate);
+            }
+        }
         return getAclResult(aclParams.get(0).getIds(), members, aclParams.get(0).getResource(), startTime);
     }
 
@@ -1118,6 +1224,7 @@ public class CatalogAuthorizationManager implements AuthorizationManager {
 
         // 2. We can apply the permission rules
         aclDBAdaptor.applyPermissionRules(studyId, permissionRule, entry);
+        studyMemberCache.invalidate(studyId);
     }
 
     @Override
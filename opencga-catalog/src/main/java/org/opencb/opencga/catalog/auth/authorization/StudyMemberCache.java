@@ -0,0 +1,173 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.catalog.auth.authorization;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.opencb.opencga.catalog.exceptions.CatalogException;
+import org.opencb.opencga.core.models.study.StudyAclEntry;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches, for every pair of study and user, the owner of the study and the groups the user belongs to.
+ * These are required by most of the permission checks, and rarely change.
+ *
+ * Entries are invalidated by the {@link AuthorizationManager} every time the groups or the study ACLs are modified from this process,
+ * and expire after a short time, to eventually see the changes made by other processes.
+ *
+ * Every entry is stamped with the generation of its study at the time the load started. Invalidating a study increases its generation,
+ * so a load that was running concurrently with the invalidation is discarded instead of bringing back the old data.
+ */
+class StudyMemberCache {
+
+    private static final int MAX_SIZE = 10000;
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final Cache<String, Entry> cache;
+    private final Map<Long, AtomicLong> studyGenerations = new ConcurrentHashMap<>();
+    private final AtomicLong globalGeneration = new AtomicLong();
+
+    @FunctionalInterface
+    interface Loader {
+        StudyMember load() throws CatalogException;
+    }
+
+    StudyMemberCache(long ttlSeconds) {
+        if (ttlSeconds > 0) {
+            cache = CacheBuilder.newBuilder()
+                    .maximumSize(MAX_SIZE)
+                    .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                    .build();
+        } else {
+            cache = null;
+        }
+    }
+
+    StudyMember get(long studyUid, String userId, Loader loader) throws CatalogException {
+        if (cache == null) {
+            return loader.load();
+        }
+        String key = key(studyUid, userId);
+        AtomicLong studyGeneration = studyGenerations.computeIfAbsent(studyUid, k -> new AtomicLong());
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            // Read the generations before loading. Any invalidation from now on will make this entry stale.
+            long studyGen = studyGeneration.get();
+            long globalGen = globalGeneration.get();
+            Entry entry;
+            try {
+                entry = cache.get(key, () -> new Entry(studyGen, globalGen, loader.load()));
+            } catch (ExecutionException | UncheckedExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof CatalogException) {
+                    throw (CatalogException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else {
+                    throw new IllegalStateException(cause);
+                }
+            }
+            if (entry.studyGeneration == studyGeneration.get() && entry.globalGeneration == globalGeneration.get()) {
+                return entry.member;
+            }
+            // Invalidated while loading. Discard, only if nobody replaced it yet, and try again.
+            cache.asMap().remove(key, entry);
+        }
+        // Too many concurrent invalidations. Do not cache.
+        return loader.load();
+    }
+
+    void invalidate(long studyUid) {
+        if (cache != null) {
+            studyGenerations.computeIfAbsent(studyUid, k -> new AtomicLong()).incrementAndGet();
+            String prefix = studyUid + ":";
+            cache.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+        }
+    }
+
+    void invalidateAll() {
+        if (cache != null) {
+            globalGeneration.incrementAndGet();
+            cache.invalidateAll();
+        }
+    }
+
+    private static String key(long studyUid, String userId) {
+        return studyUid + ":" + userId;
+    }
+
+    private static final class Entry {
+        private final long studyGeneration;
+        private final long globalGeneration;
+        private final StudyMember member;
+
+        private Entry(long studyGeneration, long globalGeneration, StudyMember member) {
+            this.studyGeneration = studyGeneration;
+            this.globalGeneration = globalGeneration;
+            this.member = member;
+        }
+    }
+
+    static final class StudyMember {
+        private final String ownerId;
+        private final boolean owner;
+        private final Set<String> groups;
+        private final Map<StudyAclEntry.StudyPermissions, Boolean> studyPermissions = new ConcurrentHashMap<>();
+
+        StudyMember(String userId, String ownerId, Collection<String> groups) {
+            this.ownerId = ownerId;
+            this.owner = ownerId.equals(userId);
+            this.groups = Collections.unmodifiableSet(new HashSet<>(groups));
+        }
+
+        String getOwnerId() {
+            return ownerId;
+        }
+
+        boolean isOwner() {
+            return owner;
+        }
+
+        boolean isAdmin() {
+            return groups.contains(CatalogAuthorizationManager.ADMINS_GROUP);
+        }
+
+        boolean isOwnerOrAdmin() {
+            return owner || isAdmin();
+        }
+
+        /**
+         * @return Groups the user belongs to. Empty if the user is not a member of the study.
+         */
+        Set<String> getGroups() {
+            return groups;
+        }
+
+        Boolean getStudyPermission(StudyAclEntry.StudyPermissions permission) {
+            return studyPermissions.get(permission);
+        }
+
+        void putStudyPermission(StudyAclEntry.StudyPermissions permission, boolean value) {
+            studyPermissions.put(permission, value);
+        }
+    }
+}
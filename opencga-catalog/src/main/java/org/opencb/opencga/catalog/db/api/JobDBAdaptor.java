@@ -28,8 +28,10 @@ import org.opencb.opencga.core.api.ParamConstants;
 import org.opencb.opencga.core.models.job.Job;
 import org.opencb.opencga.core.response.OpenCGAResult;
 
+import java.io.Closeable;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import static org.opencb.commons.datastore.core.QueryParam.Type.*;
 
@@ -100,6 +102,17 @@ public interface JobDBAdaptor extends CoreDBAdaptor<Job> {
      */
     OpenCGAResult unmarkPermissionRule(long studyId, String permissionRuleId) throws CatalogException;
 
+    /**
+     * Listen to the jobs inserted or updated in the database, including the changes made by other processes.
+     * The listener will receive partial Job objects containing only the uid, id, studyUid, priority, creationDate, tool, dependsOn and
+     * the internal status, from a separate thread.
+     *
+     * @param listener Listener to be notified on every change.
+     * @return Closeable to stop listening.
+     * @throws CatalogDBException if the database does not support listening to changes.
+     */
+    Closeable watch(Consumer<Job> listener) throws CatalogDBException;
+
     enum QueryParams implements QueryParam {
         ID("id", TEXT, ""),
         UID("uid", LONG, ""),
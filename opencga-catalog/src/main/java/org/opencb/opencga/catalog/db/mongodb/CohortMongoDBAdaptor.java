@@ -589,7 +589,7 @@ public class CohortMongoDBAdaptor extends AnnotationMongoDBAdaptor<Cohort> imple
             throws CatalogDBException, CatalogParameterException, CatalogAuthorizationException {
         MongoDBIterator<Document> mongoCursor = getMongoCursor(clientSession, query, options);
         return new CohortCatalogMongoDBIterator(mongoCursor, clientSession, cohortConverter, null,
-                dbAdaptorFactory.getCatalogSampleDBAdaptor(), options);
+                dbAdaptorFactory.getCatalogSampleDBAdaptor(), options, dbAdaptorFactory.getIteratorBatchConfig());
     }
 
     @Override
@@ -599,7 +599,8 @@ public class CohortMongoDBAdaptor extends AnnotationMongoDBAdaptor<Cohort> imple
         queryOptions.put(NATIVE_QUERY, true);
 
         MongoDBIterator<Document> mongoCursor = getMongoCursor(null, query, queryOptions);
-        return new CohortCatalogMongoDBIterator(mongoCursor, null, null, null, dbAdaptorFactory.getCatalogSampleDBAdaptor(), options);
+        return new CohortCatalogMongoDBIterator(mongoCursor, null, null, null, dbAdaptorFactory.getCatalogSampleDBAdaptor(), options,
+                dbAdaptorFactory.getIteratorBatchConfig());
     }
 
     @Override
@@ -617,7 +618,7 @@ public class CohortMongoDBAdaptor extends AnnotationMongoDBAdaptor<Cohort> imple
                 StudyAclEntry.StudyPermissions.VIEW_COHORT_ANNOTATIONS.name(), CohortAclEntry.CohortPermissions.VIEW_ANNOTATIONS.name());
 
         return new CohortCatalogMongoDBIterator<>(mongoCursor, clientSession, cohortConverter, iteratorFilter,
-                dbAdaptorFactory.getCatalogSampleDBAdaptor(), studyUid, user, options);
+                dbAdaptorFactory.getCatalogSampleDBAdaptor(), studyUid, user, options, dbAdaptorFactory.getIteratorBatchConfig());
     }
 
     @Override
@@ -633,7 +634,7 @@ public class CohortMongoDBAdaptor extends AnnotationMongoDBAdaptor<Cohort> imple
                 StudyAclEntry.StudyPermissions.VIEW_COHORT_ANNOTATIONS.name(), CohortAclEntry.CohortPermissions.VIEW_ANNOTATIONS.name());
 
         return new CohortCatalogMongoDBIterator(mongoCursor, null, null, iteratorFilter, dbAdaptorFactory.getCatalogSampleDBAdaptor(),
-                studyUid, user, options);
+                studyUid, user, options, dbAdaptorFactory.getIteratorBatchConfig());
     }
 
     private MongoDBIterator<Document> getMongoCursor(ClientSession clientSession, Query query, QueryOptions options)
@@ -776,7 +776,7 @@ public class FamilyMongoDBAdaptor extends AnnotationMongoDBAdaptor<Family> imple
             throws CatalogDBException, CatalogParameterException, CatalogAuthorizationException {
         MongoDBIterator<Document> mongoCursor = getMongoCursor(clientSession, query, options);
         return new FamilyCatalogMongoDBIterator<>(mongoCursor, clientSession, familyConverter, null,
-                dbAdaptorFactory.getCatalogIndividualDBAdaptor(), options);
+                dbAdaptorFactory.getCatalogIndividualDBAdaptor(), options, dbAdaptorFactory.getIteratorBatchConfig());
     }
 
     @Override
@@ -792,7 +792,7 @@ public class FamilyMongoDBAdaptor extends AnnotationMongoDBAdaptor<Family> imple
 
         MongoDBIterator<Document> mongoCursor = getMongoCursor(clientSession, query, queryOptions);
         return new FamilyCatalogMongoDBIterator(mongoCursor, clientSession, null, null, dbAdaptorFactory.getCatalogIndividualDBAdaptor(),
-                options);
+                options, dbAdaptorFactory.getIteratorBatchConfig());
     }
 
     @Override
@@ -810,7 +810,7 @@ public class FamilyMongoDBAdaptor extends AnnotationMongoDBAdaptor<Family> imple
                 StudyAclEntry.StudyPermissions.VIEW_FAMILY_ANNOTATIONS.name(), FamilyAclEntry.FamilyPermissions.VIEW_ANNOTATIONS.name());
 
         return new FamilyCatalogMongoDBIterator<>(mongoCursor, null, familyConverter, iteratorFilter,
-                dbAdaptorFactory.getCatalogIndividualDBAdaptor(), studyUid, user, options);
+                dbAdaptorFactory.getCatalogIndividualDBAdaptor(), studyUid, user, options, dbAdaptorFactory.getIteratorBatchConfig());
     }
 
     @Override
@@ -831,7 +831,7 @@ public class FamilyMongoDBAdaptor extends AnnotationMongoDBAdaptor<Family> imple
                 StudyAclEntry.StudyPermissions.VIEW_FAMILY_ANNOTATIONS.name(), FamilyAclEntry.FamilyPermissions.VIEW_ANNOTATIONS.name());
 
         return new FamilyCatalogMongoDBIterator(mongoCursor, clientSession, null, iteratorFilter,
-                dbAdaptorFactory.getCatalogIndividualDBAdaptor(), studyUid, user, options);
+                dbAdaptorFactory.getCatalogIndividualDBAdaptor(), studyUid, user, options, dbAdaptorFactory.getIteratorBatchConfig());
     }
 
     private MongoDBIterator<Document> getMongoCursor(ClientSession clientSession, Query query, QueryOptions options)
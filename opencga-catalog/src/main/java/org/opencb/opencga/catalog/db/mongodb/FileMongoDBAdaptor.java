@@ -1049,7 +1049,7 @@ public class FileMongoDBAdaptor extends AnnotationMongoDBAdaptor<File> implement
             throws CatalogDBException, CatalogParameterException, CatalogAuthorizationException {
         MongoDBIterator<Document> mongoCursor = getMongoCursor(clientSession, query, options);
         return new FileCatalogMongoDBIterator<>(mongoCursor, null, fileConverter, null, this,
-                dbAdaptorFactory.getCatalogSampleDBAdaptor(), options);
+                dbAdaptorFactory.getCatalogSampleDBAdaptor(), options, dbAdaptorFactory.getIteratorBatchConfig());
     }
 
     @Override
@@ -1065,7 +1065,7 @@ public class FileMongoDBAdaptor extends AnnotationMongoDBAdaptor<File> implement
 
         MongoDBIterator<Document> mongoCursor = getMongoCursor(clientSession, query, queryOptions);
         return new FileCatalogMongoDBIterator<>(mongoCursor, clientSession, null, null, this,
-                dbAdaptorFactory.getCatalogSampleDBAdaptor(), queryOptions);
+                dbAdaptorFactory.getCatalogSampleDBAdaptor(), queryOptions, dbAdaptorFactory.getIteratorBatchConfig());
     }
 
     @Override
@@ -1080,7 +1080,7 @@ public class FileMongoDBAdaptor extends AnnotationMongoDBAdaptor<File> implement
                 FileAclEntry.FilePermissions.VIEW_ANNOTATIONS.name());
 
         return new FileCatalogMongoDBIterator<File>(mongoCursor, null, fileConverter, iteratorFilter, this,
-                dbAdaptorFactory.getCatalogSampleDBAdaptor(), studyUid, user, options);
+                dbAdaptorFactory.getCatalogSampleDBAdaptor(), studyUid, user, options, dbAdaptorFactory.getIteratorBatchConfig());
     }
 
     @Override
@@ -1103,7 +1103,7 @@ public class FileMongoDBAdaptor extends AnnotationMongoDBAdaptor<File> implement
                 FileAclEntry.FilePermissions.VIEW_ANNOTATIONS.name());
 
         return new FileCatalogMongoDBIterator<>(mongoCursor, null, null, iteratorFilter, this,
-                dbAdaptorFactory.getCatalogSampleDBAdaptor(), studyUid, user, options);
+                dbAdaptorFactory.getCatalogSampleDBAdaptor(), studyUid, user, options, dbAdaptorFactory.getIteratorBatchConfig());
     }
 
     private MongoDBIterator<Document> getMongoCursor(ClientSession clientSession, Query query, QueryOptions options)
@@ -17,10 +17,18 @@
 package org.opencb.opencga.catalog.db.mongodb;
 
 import com.mongodb.MongoClient;
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
 import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Aggregates;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
 import org.apache.commons.lang3.NotImplementedException;
 import org.apache.commons.lang3.StringUtils;
+import org.bson.BsonDocument;
 import org.bson.Document;
 import org.bson.conversions.Bson;
 import org.opencb.commons.datastore.core.*;
@@ -52,6 +60,7 @@ import org.opencb.opencga.core.models.study.Study;
 import org.opencb.opencga.core.response.OpenCGAResult;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.util.*;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
@@ -70,6 +79,7 @@ public class JobMongoDBAdaptor extends MongoDBAdaptor implements JobDBAdaptor {
 
     private static final String PRIVATE_PRIORITY = "_priority";
     private static final String PRIVATE_STUDY_UIDS = "_studyUids";
+    private static final long WATCH_RETRY_MILLIS = 5000;
 
     public JobMongoDBAdaptor(MongoDBCollection jobCollection, MongoDBCollection deletedJobCollection, Configuration configuration,
                              MongoDBAdaptorFactory dbAdaptorFactory) {
@@ -190,6 +200,108 @@ public class JobMongoDBAdaptor extends MongoDBAdaptor implements JobDBAdaptor {
         return unmarkPermissionRule(jobCollection, studyId, permissionRuleId);
     }
 
+    @Override
+    public Closeable watch(Consumer<Job> listener) throws CatalogDBException {
+        List<Bson> pipeline = Arrays.asList(
+                Aggregates.match(Filters.in("operationType", Arrays.asList("insert", "update", "replace"))),
+                Aggregates.project(Projections.include(
+                        "fullDocument." + QueryParams.UID.key(),
+                        "fullDocument." + QueryParams.ID.key(),
+                        "fullDocument." + QueryParams.STUDY_UID.key(),
+                        "fullDocument." + QueryParams.PRIORITY.key(),
+                        "fullDocument." + QueryParams.CREATION_DATE.key(),
+                        "fullDocument." + QueryParams.TOOL.key(),
+                        "fullDocument." + QueryParams.DEPENDS_ON.key(),
+                        "fullDocument." + QueryParams.INTERNAL_STATUS.key())));
+
+        // Open the first cursor synchronously, so the caller knows if change streams are supported (i.e. replica sets)
+        MongoCursor<ChangeStreamDocument<Document>> firstCursor;
+        try {
+            firstCursor = openChangeStream(pipeline, null);
+        } catch (MongoException e) {
+            throw new CatalogDBException("Unable to watch the job collection: " + e.getMessage(), e);
+        }
+
+        JobWatcher watcher = new JobWatcher(pipeline, firstCursor, listener);
+        Thread thread = new Thread(watcher, "job-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        return watcher;
+    }
+
+    private MongoCursor<ChangeStreamDocument<Document>> openChangeStream(List<Bson> pipeline, BsonDocument resumeToken) {
+        ChangeStreamIterable<Document> changeStream = dbAdaptorFactory.getMongoDataStore().getDb()
+                .getCollection(MongoDBAdaptorFactory.JOB_COLLECTION)
+                .watch(pipeline)
+                .fullDocument(FullDocument.UPDATE_LOOKUP);
+        if (resumeToken != null) {
+            changeStream = changeStream.resumeAfter(resumeToken);
+        }
+        return changeStream.iterator();
+    }
+
+    private class JobWatcher implements Runnable, Closeable {
+        private final List<Bson> pipeline;
+        private final Consumer<Job> listener;
+        private volatile MongoCursor<ChangeStreamDocument<Document>> cursor;
+        private volatile boolean closed = false;
+        private BsonDocument resumeToken;
+
+        JobWatcher(List<Bson> pipeline, MongoCursor<ChangeStreamDocument<Document>> cursor, Consumer<Job> listener) {
+            this.pipeline = pipeline;
+            this.cursor = cursor;
+            this.listener = listener;
+        }
+
+        @Override
+        public void run() {
+            while (!closed) {
+                try {
+                    if (cursor == null) {
+                        cursor = openChangeStream(pipeline, resumeToken);
+                    }
+                    while (cursor.hasNext()) {
+                        ChangeStreamDocument<Document> change = cursor.next();
+                        resumeToken = change.getResumeToken();
+                        if (change.getFullDocument() != null) {
+                            listener.accept(jobConverter.convertToDataModelType(change.getFullDocument()));
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    if (closed) {
+                        break;
+                    }
+                    logger.warn("Error watching the job collection. Retry in {}ms: {}", WATCH_RETRY_MILLIS, e.getMessage());
+                    closeCursor();
+                    try {
+                        Thread.sleep(WATCH_RETRY_MILLIS);
+                    } catch (InterruptedException interruption) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            closeCursor();
+        }
+
+        private void closeCursor() {
+            MongoCursor<ChangeStreamDocument<Document>> cursor = this.cursor;
+            this.cursor = null;
+            if (cursor != null) {
+                try {
+                    cursor.close();
+                } catch (RuntimeException e) {
+                    logger.debug("Error closing change stream", e);
+                }
+            }
+        }
+    }
+
     @Override
     public OpenCGAResult<Long> count(Query query) throws CatalogDBException, CatalogParameterException, CatalogAuthorizationException {
         return count(null, query);
@@ -573,7 +685,8 @@ public class JobMongoDBAdaptor extends MongoDBAdaptor implements JobDBAdaptor {
     public DBIterator<Job> iterator(Query query, QueryOptions options)
             throws CatalogDBException, CatalogParameterException, CatalogAuthorizationException {
         MongoDBIterator<Document> mongoCursor = getMongoCursor(query, options);
-        return new JobCatalogMongoDBIterator(mongoCursor, null, jobConverter, this, dbAdaptorFactory.getCatalogFileDBAdaptor(), options);
+        return new JobCatalogMongoDBIterator(mongoCursor, null, jobConverter, this, dbAdaptorFactory.getCatalogFileDBAdaptor(), options,
+                dbAdaptorFactory.getIteratorBatchConfig());
     }
 
     @Override
@@ -583,7 +696,8 @@ public class JobMongoDBAdaptor extends MongoDBAdaptor implements JobDBAdaptor {
         queryOptions.put(NATIVE_QUERY, true);
 
         MongoDBIterator<Document> mongoCursor = getMongoCursor(query, queryOptions);
-        return new JobCatalogMongoDBIterator(mongoCursor, null, null, this, dbAdaptorFactory.getCatalogFileDBAdaptor(), options);
+        return new JobCatalogMongoDBIterator(mongoCursor, null, null, this, dbAdaptorFactory.getCatalogFileDBAdaptor(), options,
+                dbAdaptorFactory.getIteratorBatchConfig());
     }
 
     @Override
@@ -592,7 +706,7 @@ public class JobMongoDBAdaptor extends MongoDBAdaptor implements JobDBAdaptor {
         query.put(PRIVATE_STUDY_UID, studyUid);
         MongoDBIterator<Document> mongoCursor = getMongoCursor(query, options, user);
         return new JobCatalogMongoDBIterator(mongoCursor, null, jobConverter, this, dbAdaptorFactory.getCatalogFileDBAdaptor(), options,
-                studyUid, user);
+                studyUid, user, dbAdaptorFactory.getIteratorBatchConfig());
     }
 
     @Override
@@ -604,7 +718,7 @@ public class JobMongoDBAdaptor extends MongoDBAdaptor implements JobDBAdaptor {
         query.put(PRIVATE_STUDY_UID, studyUid);
         MongoDBIterator<Document> mongoCursor = getMongoCursor(query, queryOptions, user);
         return new JobCatalogMongoDBIterator(mongoCursor, null, null, this, dbAdaptorFactory.getCatalogFileDBAdaptor(), options, studyUid,
-                user);
+                user, dbAdaptorFactory.getIteratorBatchConfig());
     }
 
     private MongoDBIterator<Document> getMongoCursor(Query query, QueryOptions options)
@@ -27,6 +27,7 @@ import org.opencb.commons.datastore.mongodb.MongoDBConfiguration;
 import org.opencb.commons.datastore.mongodb.MongoDataStore;
 import org.opencb.commons.datastore.mongodb.MongoDataStoreManager;
 import org.opencb.opencga.catalog.db.DBAdaptorFactory;
+import org.opencb.opencga.catalog.db.mongodb.iterators.BatchPrefetcher;
 import org.opencb.opencga.catalog.exceptions.CatalogDBException;
 import org.opencb.opencga.catalog.exceptions.CatalogException;
 import org.opencb.opencga.core.config.Configuration;
@@ -100,6 +101,7 @@ public class MongoDBAdaptorFactory implements DBAdaptorFactory {
     private final MongoDataStoreManager mongoManager;
     private final MongoDBConfiguration configuration;
     private final String database;
+    private final BatchPrefetcher.Config iteratorBatchConfig;
     private MongoDataStore mongoDataStore;
 
     private MongoDBCollection metaCollection;
@@ -139,6 +141,8 @@ public class MongoDBAdaptorFactory implements DBAdaptorFactory {
             }
         }
 
+        this.iteratorBatchConfig = BatchPrefetcher.Config.fromOptions(catalogConfiguration.getCatalog().getDatabase().getOptions());
+
         this.mongoManager = new MongoDataStoreManager(dataStoreServerAddresses);
         this.configuration = mongoDBConfiguration;
         this.database = getCatalogDatabase(catalogConfiguration.getDatabasePrefix());
@@ -288,6 +292,16 @@ public class MongoDBAdaptorFactory implements DBAdaptorFactory {
         return mongoDataStore;
     }
 
+    /**
+     * Batch size and number of batches read in advance by the catalog iterators.
+     * Read from the catalog database options, see {@link BatchPrefetcher.Config}.
+     *
+     * @return Iterator batch configuration
+     */
+    public BatchPrefetcher.Config getIteratorBatchConfig() {
+        return iteratorBatchConfig;
+    }
+
     private void connect(Configuration catalogConfiguration) throws CatalogDBException {
         mongoDataStore = mongoManager.get(database, configuration);
         if (mongoDataStore == null) {
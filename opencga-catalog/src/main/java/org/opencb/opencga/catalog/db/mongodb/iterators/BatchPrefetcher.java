@@ -0,0 +1,201 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.catalog.db.mongodb.iterators;
+
+import com.mongodb.client.ClientSession;
+import org.apache.commons.lang3.StringUtils;
+import org.bson.Document;
+
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Fetches the batches of the catalog iterators in background, so the next batch (including any related document) is read
+ * while the current one is being consumed.
+ *
+ * Batches are fetched one after the other, never concurrently, so the cursor is always accessed by one thread at a time.
+ * An empty batch means that there are no more results.
+ */
+public final class BatchPrefetcher {
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new DaemonThreadFactory());
+
+    private final Supplier<Queue<Document>> fetcher;
+    private final int prefetchBatches;
+    private final Deque<CompletableFuture<Queue<Document>>> pendingBatches = new LinkedList<>();
+    private CompletableFuture<Queue<Document>> lastBatch;
+    private volatile boolean closed = false;
+    private boolean exhausted = false;
+
+    BatchPrefetcher(Supplier<Queue<Document>> fetcher, ClientSession clientSession, Config config) {
+        // ClientSessions are not thread safe, and the caller may be using the same session while iterating (e.g. in a transaction)
+        this(fetcher, clientSession == null ? config.getPrefetchBatches() : 0);
+    }
+
+    BatchPrefetcher(Supplier<Queue<Document>> fetcher, int prefetchBatches) {
+        this.fetcher = fetcher;
+        this.prefetchBatches = prefetchBatches;
+    }
+
+    /**
+     * Get the next batch, and request the following ones in background.
+     *
+     * @return Next batch. Empty if there are no more results.
+     */
+    Queue<Document> next() {
+        if (prefetchBatches <= 0) {
+            return closed ? new LinkedList<>() : fetcher.get();
+        }
+        if (pendingBatches.isEmpty()) {
+            schedule(1);
+        }
+        if (pendingBatches.isEmpty()) {
+            return new LinkedList<>();
+        }
+        Queue<Document> batch = join(pendingBatches.removeFirst());
+        if (batch.isEmpty()) {
+            exhausted = true;
+        } else {
+            schedule(prefetchBatches);
+        }
+        return batch;
+    }
+
+    /**
+     * Stop fetching batches. Waits for the batch being fetched, if any, so the cursor can be safely closed afterwards.
+     */
+    void close() {
+        closed = true;
+        pendingBatches.clear();
+        if (lastBatch != null) {
+            try {
+                lastBatch.join();
+            } catch (RuntimeException e) {
+                // Ignore errors from discarded batches
+            }
+        }
+    }
+
+    private void schedule(int maxPendingBatches) {
+        while (!closed && !exhausted && pendingBatches.size() < maxPendingBatches) {
+            CompletableFuture<Queue<Document>> batch;
+            if (lastBatch == null) {
+                batch = CompletableFuture.supplyAsync(this::fetch, EXECUTOR);
+            } else {
+                // Wait for the previous batch. Do not fetch more if the previous one was empty
+                batch = lastBatch.thenApplyAsync(previous -> previous.isEmpty() ? previous : fetch(), EXECUTOR);
+            }
+            pendingBatches.add(batch);
+            lastBatch = batch;
+        }
+    }
+
+    private Queue<Document> fetch() {
+        if (closed) {
+            return new LinkedList<>();
+        }
+        return fetcher.get();
+    }
+
+    private static Queue<Document> join(CompletableFuture<Queue<Document>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            } else {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Batch configuration of the catalog iterators, read from the catalog database options.
+     */
+    public static final class Config {
+
+        /**
+         * Catalog database option with the number of documents read by each batch.
+         */
+        public static final String BATCH_SIZE = "iteratorBatchSize";
+        /**
+         * Catalog database option with the number of batches to fetch in advance. 0 to disable.
+         */
+        public static final String PREFETCH_BATCHES = "iteratorPrefetchBatches";
+        public static final int DEFAULT_BATCH_SIZE = 100;
+        public static final int DEFAULT_PREFETCH_BATCHES = 1;
+        public static final Config DEFAULT = new Config(DEFAULT_BATCH_SIZE, DEFAULT_PREFETCH_BATCHES);
+
+        private final int batchSize;
+        private final int prefetchBatches;
+
+        public Config(int batchSize, int prefetchBatches) {
+            if (batchSize <= 0) {
+                throw new IllegalArgumentException("Invalid " + BATCH_SIZE + " " + batchSize + ". Must be greater than 0");
+            }
+            this.batchSize = batchSize;
+            this.prefetchBatches = Math.max(0, prefetchBatches);
+        }
+
+        public static Config fromOptions(Map<String, String> options) {
+            if (options == null) {
+                return DEFAULT;
+            }
+            return new Config(getInt(options, BATCH_SIZE, DEFAULT_BATCH_SIZE), getInt(options, PREFETCH_BATCHES, DEFAULT_PREFETCH_BATCHES));
+        }
+
+        private static int getInt(Map<String, String> options, String key, int defaultValue) {
+            String value = options.get(key);
+            return StringUtils.isEmpty(value) ? defaultValue : Integer.parseInt(value.trim());
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public int getPrefetchBatches() {
+            return prefetchBatches;
+        }
+
+        @Override
+        public String toString() {
+            return "Config{batchSize=" + batchSize + ", prefetchBatches=" + prefetchBatches + '}';
+        }
+    }
+
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNum = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "catalog-iterator-prefetch-" + threadNum.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -30,29 +30,48 @@ import java.util.function.Function;
 public abstract class BatchedCatalogMongoDBIterator<T> extends CatalogMongoDBIterator<T> {
 
     private Queue<Document> buffer = new LinkedList<>();
+    private final BatchPrefetcher batchPrefetcher;
 
     protected final QueryOptions options;
 
     public BatchedCatalogMongoDBIterator(MongoDBIterator<Document> mongoCursor, GenericDocumentComplexConverter<T> converter) {
-        this(mongoCursor, null, converter, null, null);
+        this(mongoCursor, null, converter, null, null, BatchPrefetcher.Config.DEFAULT);
     }
 
     public BatchedCatalogMongoDBIterator(MongoDBIterator<Document> mongoCursor, ClientSession clientSession,
                                          GenericDocumentComplexConverter<T> converter, Function<Document, Document> filter,
-                                         QueryOptions options) {
+                                         QueryOptions options, BatchPrefetcher.Config batchConfig) {
         super(mongoCursor, clientSession, converter, filter);
         this.options = options == null ? QueryOptions.empty() : options;
+        int batchSize = batchConfig.getBatchSize();
+        this.batchPrefetcher = new BatchPrefetcher(() -> {
+            Queue<Document> batch = new LinkedList<>();
+            fetchNextBatch(batch, batchSize);
+            return batch;
+        }, clientSession, batchConfig);
     }
 
 
     @Override
     public boolean hasNext() {
         if (buffer.isEmpty()) {
-            fetchNextBatch(buffer, 100);
+            buffer = batchPrefetcher.next();
         }
         return !buffer.isEmpty();
     }
 
+    @Override
+    public void close() {
+        batchPrefetcher.close();
+        super.close();
+    }
+
+    /**
+     * Fill the buffer with the next batch of documents. May be executed in a background thread, see {@link BatchPrefetcher}.
+     *
+     * @param buffer     Buffer to fill
+     * @param bufferSize Maximum number of documents to read
+     */
     protected abstract void fetchNextBatch(Queue<Document> buffer, int bufferSize);
 
     @Override
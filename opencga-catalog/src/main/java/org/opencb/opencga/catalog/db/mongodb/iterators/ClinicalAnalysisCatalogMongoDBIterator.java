@@ -53,10 +53,11 @@ public class ClinicalAnalysisCatalogMongoDBIterator<E> extends CatalogMongoDBIte
     private QueryOptions options;
 
     private Queue<Document> clinicalAnalysisListBuffer;
+    private final BatchPrefetcher batchPrefetcher;
 
     private Logger logger;
 
-    private static final int BUFFER_SIZE = 100;
+    private final int batchSize;
 
     private static final String UID = ClinicalAnalysisDBAdaptor.QueryParams.UID.key();
     private static final String VERSION = FamilyDBAdaptor.QueryParams.VERSION.key();
@@ -64,12 +65,14 @@ public class ClinicalAnalysisCatalogMongoDBIterator<E> extends CatalogMongoDBIte
     private static final String UID_VERSION_SEP = "___";
 
     public ClinicalAnalysisCatalogMongoDBIterator(MongoDBIterator<Document> mongoCursor, GenericDocumentComplexConverter<E> converter,
-                                                  DBAdaptorFactory dbAdaptorFactory, QueryOptions options) {
-        this(mongoCursor, converter, dbAdaptorFactory, 0, null, options);
+                                                  DBAdaptorFactory dbAdaptorFactory, QueryOptions options,
+                                                  BatchPrefetcher.Config batchConfig) {
+        this(mongoCursor, converter, dbAdaptorFactory, 0, null, options, batchConfig);
     }
 
     public ClinicalAnalysisCatalogMongoDBIterator(MongoDBIterator<Document> mongoCursor, GenericDocumentComplexConverter<E> converter,
-                                                  DBAdaptorFactory dbAdaptorFactory, long studyUid, String user, QueryOptions options) {
+                                                  DBAdaptorFactory dbAdaptorFactory, long studyUid, String user, QueryOptions options,
+                                                  BatchPrefetcher.Config batchConfig) {
         super(mongoCursor, converter);
 
         this.user = user;
@@ -86,6 +89,8 @@ public class ClinicalAnalysisCatalogMongoDBIterator<E> extends CatalogMongoDBIte
 
         this.clinicalAnalysisListBuffer = new LinkedList<>();
         this.logger = LoggerFactory.getLogger(ClinicalAnalysisCatalogMongoDBIterator.class);
+        this.batchSize = batchConfig.getBatchSize();
+        this.batchPrefetcher = new BatchPrefetcher(this::fetchNextBatch, clientSession, batchConfig);
     }
 
     @Override
@@ -109,26 +114,33 @@ public class ClinicalAnalysisCatalogMongoDBIterator<E> extends CatalogMongoDBIte
     @Override
     public boolean hasNext() {
         if (clinicalAnalysisListBuffer.isEmpty()) {
-            fetchNextBatch();
+            clinicalAnalysisListBuffer = batchPrefetcher.next();
         }
         return !clinicalAnalysisListBuffer.isEmpty();
     }
 
-    private void fetchNextBatch() {
+    @Override
+    public void close() {
+        batchPrefetcher.close();
+        super.close();
+    }
+
+    private Queue<Document> fetchNextBatch() {
+        Queue<Document> batch = new LinkedList<>();
         Set<String> interpretationSet = new HashSet<>();
         Set<String> familySet = new HashSet<>();
         Set<String> individualSet = new HashSet<>();
 
-        // Get next BUFFER_SIZE documents
+        // Get next batchSize documents
         int counter = 0;
-        while (mongoCursor.hasNext() && counter < BUFFER_SIZE) {
+        while (mongoCursor.hasNext() && counter < batchSize) {
             Document clinicalDocument = mongoCursor.next();
 
             if (user != null && studyUid <= 0) {
                 studyUid = clinicalDocument.get(PRIVATE_STUDY_UID, Number.class).longValue();
             }
 
-            clinicalAnalysisListBuffer.add(clinicalDocument);
+            batch.add(clinicalDocument);
             counter++;
 
             if (!options.getBoolean(NATIVE_QUERY)) {
@@ -156,12 +168,13 @@ public class ClinicalAnalysisCatalogMongoDBIterator<E> extends CatalogMongoDBIte
 
         if (!interpretationMap.isEmpty() || !familyMap.isEmpty() || !individualMap.isEmpty()) {
             // Fill data in clinical analyses
-            clinicalAnalysisListBuffer.forEach(clinicalAnalysis -> {
+            batch.forEach(clinicalAnalysis -> {
                 fillInterpretationData(clinicalAnalysis, interpretationMap);
                 clinicalAnalysis.put(FAMILY.key(), fillFamilyData((Document) clinicalAnalysis.get(FAMILY.key()), familyMap));
                 clinicalAnalysis.put(PROBAND.key(), fillIndividualData((Document) clinicalAnalysis.get(PROBAND.key()), individualMap));
             });
         }
+        return batch;
     }
 
     private Document fillFamilyData(Document familyDocument, Map<String, Document> familyMap) {
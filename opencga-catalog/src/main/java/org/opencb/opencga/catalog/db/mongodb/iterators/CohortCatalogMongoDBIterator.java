@@ -48,20 +48,23 @@ public class CohortCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIter
     private QueryOptions sampleQueryOptions;
 
     private Queue<Document> cohortListBuffer;
+    private final BatchPrefetcher batchPrefetcher;
 
     private Logger logger;
 
-    private static final int BUFFER_SIZE = 100;
+    private final int batchSize;
 
     public CohortCatalogMongoDBIterator(MongoDBIterator<Document> mongoCursor, ClientSession clientSession,
                                         AnnotableConverter<? extends Annotable> converter, Function<Document, Document> filter,
-                                        SampleMongoDBAdaptor sampleMongoDBAdaptor, QueryOptions options) {
-        this(mongoCursor, clientSession, converter, filter, sampleMongoDBAdaptor, 0, null, options);
+                                        SampleMongoDBAdaptor sampleMongoDBAdaptor, QueryOptions options,
+                                        BatchPrefetcher.Config batchConfig) {
+        this(mongoCursor, clientSession, converter, filter, sampleMongoDBAdaptor, 0, null, options, batchConfig);
     }
 
     public CohortCatalogMongoDBIterator(MongoDBIterator<Document> mongoCursor, ClientSession clientSession,
                                         AnnotableConverter<? extends Annotable> converter, Function<Document, Document> filter,
-                                        SampleMongoDBAdaptor sampleMongoDBAdaptor, long studyUid, String user, QueryOptions options) {
+                                        SampleMongoDBAdaptor sampleMongoDBAdaptor, long studyUid, String user, QueryOptions options,
+                                        BatchPrefetcher.Config batchConfig) {
         super(mongoCursor, clientSession, converter, filter, options);
 
         this.user = user;
@@ -72,6 +75,8 @@ public class CohortCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIter
 
         this.cohortListBuffer = new LinkedList<>();
         this.logger = LoggerFactory.getLogger(CohortCatalogMongoDBIterator.class);
+        this.batchSize = batchConfig.getBatchSize();
+        this.batchPrefetcher = new BatchPrefetcher(this::fetchNextBatch, clientSession, batchConfig);
     }
 
     @Override
@@ -94,26 +99,33 @@ public class CohortCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIter
     @Override
     public boolean hasNext() {
         if (cohortListBuffer.isEmpty()) {
-            fetchNextBatch();
+            cohortListBuffer = batchPrefetcher.next();
         }
         return !cohortListBuffer.isEmpty();
     }
 
-    private void fetchNextBatch() {
+    @Override
+    public void close() {
+        batchPrefetcher.close();
+        super.close();
+    }
+
+    private Queue<Document> fetchNextBatch() {
+        Queue<Document> batch = new LinkedList<>();
         Set<Long> sampleSet = new HashSet<>();
 
-        // Get next BUFFER_SIZE documents
+        // Get next batchSize documents
         int counter = 0;
         // If a cohort has more than 100 samples, we will set this to true so only sample ids are fetched
         boolean fetchSampleIdsOnly = false;
-        while (mongoCursor.hasNext() && counter < BUFFER_SIZE) {
+        while (mongoCursor.hasNext() && counter < batchSize) {
             Document cohortDocument = mongoCursor.next();
 
             if (user != null && studyUid <= 0) {
                 studyUid = cohortDocument.getLong(PRIVATE_STUDY_UID);
             }
 
-            cohortListBuffer.add(cohortDocument);
+            batch.add(cohortDocument);
             counter++;
 
             // Extract all the samples
@@ -147,7 +159,7 @@ public class CohortCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIter
                 }
             } catch (CatalogDBException | CatalogAuthorizationException | CatalogParameterException e) {
                 logger.warn("Could not obtain the samples associated to the cohorts: {}", e.getMessage(), e);
-                return;
+                return batch;
             }
 
             // Map each sample uid - version to the sample entry
@@ -157,7 +169,7 @@ public class CohortCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIter
             );
 
             // Add the samples obtained to the corresponding cohorts
-            cohortListBuffer.forEach(cohortDocument -> {
+            batch.forEach(cohortDocument -> {
                 List<Document> tmpSampleList = new ArrayList<>();
                 List<Document> samples = (List<Document>) cohortDocument.get(CohortDBAdaptor.QueryParams.SAMPLES.key());
 
@@ -173,6 +185,7 @@ public class CohortCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIter
                 cohortDocument.put(CohortDBAdaptor.QueryParams.SAMPLES.key(), tmpSampleList);
             });
         }
+        return batch;
     }
 
     private QueryOptions createSampleQueryOptions() {
@@ -49,21 +49,24 @@ public class FamilyCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIter
     private QueryOptions individualQueryOptions;
 
     private Queue<Document> familyListBuffer;
+    private final BatchPrefetcher batchPrefetcher;
 
     private Logger logger;
 
-    private static final int BUFFER_SIZE = 100;
+    private final int batchSize;
 
     public FamilyCatalogMongoDBIterator(MongoDBIterator<Document> mongoCursor, ClientSession clientSession,
                                         AnnotableConverter<? extends Annotable> converter, Function<Document, Document> filter,
-                                        IndividualMongoDBAdaptor individualDBAdaptor, QueryOptions options) {
-        this(mongoCursor, clientSession, converter, filter, individualDBAdaptor, 0, null, options);
+                                        IndividualMongoDBAdaptor individualDBAdaptor, QueryOptions options,
+                                        BatchPrefetcher.Config batchConfig) {
+        this(mongoCursor, clientSession, converter, filter, individualDBAdaptor, 0, null, options, batchConfig);
     }
 
 
     public FamilyCatalogMongoDBIterator(MongoDBIterator<Document> mongoCursor, ClientSession clientSession,
                                         AnnotableConverter<? extends Annotable> converter, Function<Document, Document> filter,
-                                        IndividualMongoDBAdaptor individualDBAdaptor, long studyUid, String user, QueryOptions options) {
+                                        IndividualMongoDBAdaptor individualDBAdaptor, long studyUid, String user, QueryOptions options,
+                                        BatchPrefetcher.Config batchConfig) {
         super(mongoCursor, clientSession, converter, filter, options);
 
         this.user = user;
@@ -74,6 +77,8 @@ public class FamilyCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIter
 
         this.familyListBuffer = new LinkedList<>();
         this.logger = LoggerFactory.getLogger(FamilyCatalogMongoDBIterator.class);
+        this.batchSize = batchConfig.getBatchSize();
+        this.batchPrefetcher = new BatchPrefetcher(this::fetchNextBatch, clientSession, batchConfig);
     }
 
     @Override
@@ -97,24 +102,31 @@ public class FamilyCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIter
     @Override
     public boolean hasNext() {
         if (familyListBuffer.isEmpty()) {
-            fetchNextBatch();
+            familyListBuffer = batchPrefetcher.next();
         }
         return !familyListBuffer.isEmpty();
     }
 
-    private void fetchNextBatch() {
+    @Override
+    public void close() {
+        batchPrefetcher.close();
+        super.close();
+    }
+
+    private Queue<Document> fetchNextBatch() {
+        Queue<Document> batch = new LinkedList<>();
         Set<String> memberVersions = new HashSet<>();
 
-        // Get next BUFFER_SIZE documents
+        // Get next batchSize documents
         int counter = 0;
-        while (mongoCursor.hasNext() && counter < BUFFER_SIZE) {
+        while (mongoCursor.hasNext() && counter < batchSize) {
             Document familyDocument = mongoCursor.next();
 
             if (user != null && studyUid <= 0) {
                 studyUid = familyDocument.getLong(PRIVATE_STUDY_UID);
             }
 
-            familyListBuffer.add(familyDocument);
+            batch.add(familyDocument);
             counter++;
 
             // Extract all the members
@@ -156,7 +168,7 @@ public class FamilyCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIter
                 }
             } catch (CatalogDBException | CatalogAuthorizationException | CatalogParameterException e) {
                 logger.warn("Could not obtain the members associated to the families: {}", e.getMessage(), e);
-                return;
+                return batch;
             }
 
             // Map each member uid - version to the member entry
@@ -171,7 +183,7 @@ public class FamilyCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIter
             );
 
             // Add the members obtained to the corresponding families
-            familyListBuffer.forEach(family -> {
+            batch.forEach(family -> {
                 List<Document> tmpMemberList = new ArrayList<>();
                 List<Document> members = (List<Document>) family.get(FamilyMongoDBAdaptor.QueryParams.MEMBERS.key());
 
@@ -193,6 +205,7 @@ public class FamilyCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIter
                 family.put(FamilyMongoDBAdaptor.QueryParams.MEMBERS.key(), tmpMemberList);
             });
         }
+        return batch;
     }
 
     private void fillParentInformation(Document member, String key, Map<String, Document> memberUidMap) {
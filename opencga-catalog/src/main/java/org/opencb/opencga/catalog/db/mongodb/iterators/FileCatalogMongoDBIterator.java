@@ -46,22 +46,25 @@ public class FileCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIterat
     private FileMongoDBAdaptor fileDBAdaptor;
 
     private Queue<Document> fileListBuffer;
+    private final BatchPrefetcher batchPrefetcher;
 
     private Logger logger;
 
-    private static final int BUFFER_SIZE = 100;
+    private final int batchSize;
 
     public FileCatalogMongoDBIterator(MongoDBIterator<Document> mongoCursor, ClientSession clientSession,
                                       AnnotableConverter<? extends Annotable> converter, Function<Document, Document> filter,
                                       FileMongoDBAdaptor fileMongoDBAdaptor, SampleMongoDBAdaptor sampleMongoDBAdaptor,
-                                      QueryOptions options) {
-        this(mongoCursor, clientSession, converter, filter, fileMongoDBAdaptor, sampleMongoDBAdaptor, 0, null, options);
+                                      QueryOptions options,
+                                      BatchPrefetcher.Config batchConfig) {
+        this(mongoCursor, clientSession, converter, filter, fileMongoDBAdaptor, sampleMongoDBAdaptor, 0, null, options, batchConfig);
     }
 
     public FileCatalogMongoDBIterator(MongoDBIterator<Document> mongoCursor, ClientSession clientSession,
                                       AnnotableConverter<? extends Annotable> converter, Function<Document, Document> filter,
                                       FileMongoDBAdaptor fileMongoDBAdaptor, SampleMongoDBAdaptor sampleMongoDBAdaptor, long studyUid,
-                                      String user, QueryOptions options) {
+                                      String user, QueryOptions options,
+                                      BatchPrefetcher.Config batchConfig) {
         super(mongoCursor, clientSession, converter, filter, options);
 
         this.user = user;
@@ -71,6 +74,8 @@ public class FileCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIterat
 
         this.fileListBuffer = new LinkedList<>();
         this.logger = LoggerFactory.getLogger(FileCatalogMongoDBIterator.class);
+        this.batchSize = batchConfig.getBatchSize();
+        this.batchPrefetcher = new BatchPrefetcher(this::fetchNextBatch, clientSession, batchConfig);
     }
 
     @Override
@@ -93,25 +98,32 @@ public class FileCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIterat
     @Override
     public boolean hasNext() {
         if (fileListBuffer.isEmpty()) {
-            fetchNextBatch();
+            fileListBuffer = batchPrefetcher.next();
         }
         return !fileListBuffer.isEmpty();
     }
 
-    private void fetchNextBatch() {
+    @Override
+    public void close() {
+        batchPrefetcher.close();
+        super.close();
+    }
+
+    private Queue<Document> fetchNextBatch() {
+        Queue<Document> batch = new LinkedList<>();
         Map<String, String> relatedFileMap = new HashMap<>();
         Set<Long> relatedFileSet = new HashSet<>();
 
-        // Get next BUFFER_SIZE documents
+        // Get next batchSize documents
         int counter = 0;
-        while (mongoCursor.hasNext() && counter < BUFFER_SIZE) {
+        while (mongoCursor.hasNext() && counter < batchSize) {
             Document fileDocument = mongoCursor.next();
 
             if (user != null && studyUid <= 0) {
                 studyUid = fileDocument.getLong(PRIVATE_STUDY_UID);
             }
 
-            fileListBuffer.add(fileDocument);
+            batch.add(fileDocument);
             counter++;
 
             String fileUid = String.valueOf(fileDocument.getLong(FileDBAdaptor.QueryParams.UID.key()));
@@ -145,7 +157,7 @@ public class FileCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIterat
                 }
             } catch (CatalogDBException | CatalogAuthorizationException | CatalogParameterException e) {
                 logger.warn("Could not obtain the list of related files: {}", e.getMessage(), e);
-                return;
+                return batch;
             }
 
             // Map each file uid to the file entry
@@ -155,7 +167,7 @@ public class FileCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIterat
             );
 
             // Add the files obtained to the corresponding related files
-            fileListBuffer.forEach(fileDocument -> {
+            batch.forEach(fileDocument -> {
                 String fileId = String.valueOf(fileDocument.getLong(FileDBAdaptor.QueryParams.UID.key()));
 
                 List<Document> tmpFileList = new ArrayList<>();
@@ -179,6 +191,7 @@ public class FileCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIterat
                 fileDocument.put(FileDBAdaptor.QueryParams.RELATED_FILES.key(), tmpFileList);
             });
         }
+        return batch;
     }
 
 }
@@ -51,20 +51,23 @@ public class IndividualCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDB
     private IndividualDBAdaptor individualDBAdaptor;
 
     private Queue<Document> individualListBuffer;
+    private final BatchPrefetcher batchPrefetcher;
 
     private Logger logger;
 
-    private static final int BUFFER_SIZE = 100;
+    private final int batchSize;
 
     public IndividualCatalogMongoDBIterator(MongoDBIterator<Document> mongoCursor, AnnotableConverter<? extends Annotable> converter,
                                             Function<Document, Document> filter, MongoDBAdaptorFactory dbAdaptorFactory,
-                                            QueryOptions options) {
-        this(mongoCursor, converter, filter, dbAdaptorFactory, 0, null, options);
+                                            QueryOptions options,
+                                            BatchPrefetcher.Config batchConfig) {
+        this(mongoCursor, converter, filter, dbAdaptorFactory, 0, null, options, batchConfig);
     }
 
     public IndividualCatalogMongoDBIterator(MongoDBIterator<Document> mongoCursor, AnnotableConverter<? extends Annotable> converter,
                                             Function<Document, Document> filter, MongoDBAdaptorFactory dbAdaptorFactory,
-                                            long studyUid, String user, QueryOptions options) {
+                                            long studyUid, String user, QueryOptions options,
+                                            BatchPrefetcher.Config batchConfig) {
         super(mongoCursor, converter, filter, options);
 
         this.user = user;
@@ -77,6 +80,8 @@ public class IndividualCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDB
 
         this.individualListBuffer = new LinkedList<>();
         this.logger = LoggerFactory.getLogger(IndividualCatalogMongoDBIterator.class);
+        this.batchSize = batchConfig.getBatchSize();
+        this.batchPrefetcher = new BatchPrefetcher(this::fetchNextBatch, clientSession, batchConfig);
     }
 
     @Override
@@ -99,25 +104,32 @@ public class IndividualCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDB
     @Override
     public boolean hasNext() {
         if (individualListBuffer.isEmpty()) {
-            fetchNextBatch();
+            individualListBuffer = batchPrefetcher.next();
         }
         return !individualListBuffer.isEmpty();
     }
 
-    private void fetchNextBatch() {
+    @Override
+    public void close() {
+        batchPrefetcher.close();
+        super.close();
+    }
+
+    private Queue<Document> fetchNextBatch() {
+        Queue<Document> batch = new LinkedList<>();
         Set<String> sampleVersions = new HashSet<>();
         Map<Long, List<Document>> individualMap = new HashMap<>();
 
-        // Get next BUFFER_SIZE documents
+        // Get next batchSize documents
         int counter = 0;
-        while (mongoCursor.hasNext() && counter < BUFFER_SIZE) {
+        while (mongoCursor.hasNext() && counter < batchSize) {
             Document individualDocument = (Document) mongoCursor.next();
 
             if (user != null && studyUid <= 0) {
                 studyUid = individualDocument.getLong(PRIVATE_STUDY_UID);
             }
 
-            individualListBuffer.add(individualDocument);
+            batch.add(individualDocument);
             counter++;
 
             // Extract all the samples
@@ -203,7 +215,7 @@ public class IndividualCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDB
                 }
             } catch (CatalogDBException | CatalogAuthorizationException | CatalogParameterException e) {
                 logger.warn("Could not obtain the samples associated to the individuals: {}", e.getMessage(), e);
-                return;
+                return batch;
             }
 
             // Map each sample uid - version to the sample entry
@@ -214,7 +226,7 @@ public class IndividualCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDB
             );
 
             // Add the samples obtained to the corresponding individuals
-            individualListBuffer.forEach(individual -> {
+            batch.forEach(individual -> {
                 List<Document> tmpSampleList = new ArrayList<>();
                 List<Document> samples = (List<Document>) individual.get(IndividualMongoDBAdaptor.QueryParams.SAMPLES.key());
 
@@ -232,6 +244,7 @@ public class IndividualCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDB
                 individual.put(IndividualMongoDBAdaptor.QueryParams.SAMPLES.key(), tmpSampleList);
             });
         }
+        return batch;
     }
 
     private void addParentToMap(Map<Long, List<Document>> individualMap, Document parent) {
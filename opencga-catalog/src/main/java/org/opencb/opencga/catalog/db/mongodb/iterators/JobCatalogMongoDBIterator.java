@@ -56,14 +56,15 @@ public class JobCatalogMongoDBIterator extends BatchedCatalogMongoDBIterator<Job
     private Logger logger = LoggerFactory.getLogger(JobCatalogMongoDBIterator.class);
 
     public JobCatalogMongoDBIterator(MongoDBIterator<Document> mongoCursor, ClientSession clientSession, JobConverter converter,
-                                     JobMongoDBAdaptor jobDBAdaptor, FileMongoDBAdaptor fileDBAdaptor, QueryOptions options) {
-        this(mongoCursor, clientSession, converter, jobDBAdaptor, fileDBAdaptor, options, 0, null);
+                                     JobMongoDBAdaptor jobDBAdaptor, FileMongoDBAdaptor fileDBAdaptor, QueryOptions options,
+                                     BatchPrefetcher.Config batchConfig) {
+        this(mongoCursor, clientSession, converter, jobDBAdaptor, fileDBAdaptor, options, 0, null, batchConfig);
     }
 
     public JobCatalogMongoDBIterator(MongoDBIterator<Document> mongoCursor, ClientSession clientSession, JobConverter converter,
                                      JobMongoDBAdaptor jobDBAdaptor, FileMongoDBAdaptor fileDBAdaptor, QueryOptions options, long studyUid,
-                                     String user) {
-        super(mongoCursor, clientSession, converter, null, options);
+                                     String user, BatchPrefetcher.Config batchConfig) {
+        super(mongoCursor, clientSession, converter, null, options, batchConfig);
         this.fileDBAdaptor = fileDBAdaptor;
         this.jobDBAdaptor = jobDBAdaptor;
         this.user = user;
@@ -47,20 +47,23 @@ public class SampleCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIter
     private QueryOptions individualQueryOptions;
 
     private Queue<Document> sampleListBuffer;
+    private final BatchPrefetcher batchPrefetcher;
 
     private Logger logger;
 
-    private static final int BUFFER_SIZE = 100;
+    private final int batchSize;
 
     public SampleCatalogMongoDBIterator(MongoDBIterator<Document> mongoCursor, ClientSession clientSession,
                                         AnnotableConverter<? extends Annotable> converter, Function<Document, Document> filter,
-                                        IndividualMongoDBAdaptor individualDBAdaptor, QueryOptions options) {
-        this(mongoCursor, clientSession, converter, filter, individualDBAdaptor, 0, null, options);
+                                        IndividualMongoDBAdaptor individualDBAdaptor, QueryOptions options,
+                                        BatchPrefetcher.Config batchConfig) {
+        this(mongoCursor, clientSession, converter, filter, individualDBAdaptor, 0, null, options, batchConfig);
     }
 
     public SampleCatalogMongoDBIterator(MongoDBIterator<Document> mongoCursor, ClientSession clientSession,
                                         AnnotableConverter<? extends Annotable> converter, Function<Document, Document> filter,
-                                        IndividualMongoDBAdaptor individualDBAdaptor, long studyUid, String user, QueryOptions options) {
+                                        IndividualMongoDBAdaptor individualDBAdaptor, long studyUid, String user, QueryOptions options,
+                                        BatchPrefetcher.Config batchConfig) {
         super(mongoCursor, clientSession, converter, filter, options);
 
         this.user = user;
@@ -71,6 +74,8 @@ public class SampleCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIter
 
         this.sampleListBuffer = new LinkedList<>();
         this.logger = LoggerFactory.getLogger(SampleCatalogMongoDBIterator.class);
+        this.batchSize = batchConfig.getBatchSize();
+        this.batchPrefetcher = new BatchPrefetcher(this::fetchNextBatch, clientSession, batchConfig);
     }
 
     @Override
@@ -94,24 +99,31 @@ public class SampleCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIter
     @Override
     public boolean hasNext() {
         if (sampleListBuffer.isEmpty()) {
-            fetchNextBatch();
+            sampleListBuffer = batchPrefetcher.next();
         }
         return !sampleListBuffer.isEmpty();
     }
 
-    private void fetchNextBatch() {
-        Map<Long, Document> sampleUidMap = new HashMap<>(BUFFER_SIZE);
+    @Override
+    public void close() {
+        batchPrefetcher.close();
+        super.close();
+    }
+
+    private Queue<Document> fetchNextBatch() {
+        Queue<Document> batch = new LinkedList<>();
+        Map<Long, Document> sampleUidMap = new HashMap<>(batchSize);
 
-        // Get next BUFFER_SIZE documents
+        // Get next batchSize documents
         int counter = 0;
-        while (mongoCursor.hasNext() && counter < BUFFER_SIZE) {
+        while (mongoCursor.hasNext() && counter < batchSize) {
             Document sampleDocument = mongoCursor.next();
 
             if (user != null && studyUid <= 0) {
                 studyUid = sampleDocument.getLong(PRIVATE_STUDY_UID);
             }
 
-            sampleListBuffer.add(sampleDocument);
+            batch.add(sampleDocument);
             counter++;
 
             // Extract the sample uids
@@ -134,7 +146,7 @@ public class SampleCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIter
                 }
             } catch (CatalogDBException | CatalogAuthorizationException | CatalogParameterException e) {
                 logger.warn("Could not obtain the individuals containing the samples: {}", e.getMessage(), e);
-                return;
+                return batch;
             }
 
             // Add the individuals to the sample attributes
@@ -160,6 +172,7 @@ public class SampleCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIter
                 }
             });
         }
+        return batch;
     }
 
     private QueryOptions createIndividualQueryOptions() {
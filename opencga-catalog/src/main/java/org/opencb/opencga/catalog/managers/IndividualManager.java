@@ -946,25 +946,34 @@ public class IndividualManager extends AnnotationSetManager<Individual> {
 
         auditManager.initAuditBatch(operationUuid);
         while (iterator.hasNext()) {
-            Individual individual = iterator.next();
+            List<Individual> individualList = new ArrayList<>(BATCH_OPERATION_SIZE);
+            while (iterator.hasNext() && individualList.size() < BATCH_OPERATION_SIZE) {
+                individualList.add(iterator.next());
+            }
+            // Check the permissions of the whole batch with a single query. Only check one by one if any of them fails
+            boolean checkIndividualPermissions = checkPermissions && !hasIndividualPermissions(study.getUid(), individualList, userId,
+                    IndividualAclEntry.IndividualPermissions.DELETE);
 
-            try {
-                OpenCGAResult deleteResult = delete(study, individual, params, userId, checkPermissions);
+            for (Individual individual : individualList) {
+                try {
+                    OpenCGAResult deleteResult = delete(study, individual, params, userId, checkIndividualPermissions);
 
-                // Add the results to the current write result
-                result.append(deleteResult);
+                    // Add the results to the current write result
+                    result.append(deleteResult);
 
-                auditManager.auditDelete(operationUuid, userId, Enums.Resource.INDIVIDUAL, individual.getId(), individual.getUuid(),
-                        study.getId(), study.getUuid(), auditParams, new AuditRecord.Status(AuditRecord.Status.Result.SUCCESS));
-            } catch (CatalogException e) {
-                String errorMsg = "Cannot delete individual " + individual.getId() + ": " + e.getMessage();
+                    auditManager.auditDelete(operationUuid, userId, Enums.Resource.INDIVIDUAL, individual.getId(), individual.getUuid(),
+                            study.getId(), study.getUuid(), auditParams, new AuditRecord.Status(AuditRecord.Status.Result.SUCCESS));
+                } catch (CatalogException e) {
+                    String errorMsg = "Cannot delete individual " + individual.getId() + ": " + e.getMessage();
 
-                Event event = new Event(Event.Type.ERROR, individual.getId(), e.getMessage());
-                result.getEvents().add(event);
+                    Event event = new Event(Event.Type.ERROR, individual.getId(), e.getMessage());
+                    result.getEvents().add(event);
 
-                logger.error(errorMsg);
-                auditManager.auditDelete(operationUuid, userId, Enums.Resource.INDIVIDUAL, individual.getId(), individual.getUuid(),
-                        study.getId(), study.getUuid(), auditParams, new AuditRecord.Status(AuditRecord.Status.Result.ERROR, e.getError()));
+                    logger.error(errorMsg);
+                    auditManager.auditDelete(operationUuid, userId, Enums.Resource.INDIVIDUAL, individual.getId(), individual.getUuid(),
+                            study.getId(), study.getUuid(), auditParams,
+                            new AuditRecord.Status(AuditRecord.Status.Result.ERROR, e.getError()));
+                }
             }
         }
         auditManager.finishAuditBatch(operationUuid);
@@ -972,6 +981,17 @@ public class IndividualManager extends AnnotationSetManager<Individual> {
         return endResult(result, ignoreException);
     }
 
+    private boolean hasIndividualPermissions(long studyUid, List<Individual> individualList, String userId,
+                                             IndividualAclEntry.IndividualPermissions permission) {
+        try {
+            authorizationManager.checkIndividualPermissions(studyUid,
+                    individualList.stream().map(Individual::getUid).collect(Collectors.toList()), userId, permission);
+            return true;
+        } catch (CatalogException e) {
+            return false;
+        }
+    }
+
     private OpenCGAResult delete(Study study, Individual individual, ObjectMap params, String userId, boolean checkPermissions)
             throws CatalogException {
         if (checkPermissions) {
@@ -53,11 +53,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
+import java.io.Closeable;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Instant;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -496,6 +498,22 @@ public class JobManager extends ResourceManager<Job> {
         return jobDBAdaptor.iterator(query, options);
     }
 
+    /**
+     * Listen to the jobs created or updated in any study, including the changes made by other processes.
+     * Only the uid, id, studyUid, priority, creationDate, tool, dependsOn and internal status of the jobs are provided.
+     *
+     * @param listener Listener to be notified on every change, from a separate thread.
+     * @param token    Token of the administrator.
+     * @return Closeable to stop listening.
+     * @throws CatalogException if the user is not the administrator, or the database does not support listening to changes.
+     */
+    public Closeable watch(Consumer<Job> listener, String token) throws CatalogException {
+        String userId = userManager.getUserId(token);
+        authorizationManager.checkIsAdmin(userId);
+
+        return jobDBAdaptor.watch(listener);
+    }
+
     public OpenCGAResult<Job> get(long jobId, QueryOptions options, String sessionId) throws CatalogException {
         return get(null, String.valueOf(jobId), options, sessionId);
     }
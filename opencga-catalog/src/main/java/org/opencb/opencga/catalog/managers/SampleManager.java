@@ -551,30 +551,39 @@ public class SampleManager extends AnnotationSetManager<Sample> {
 
         auditManager.initAuditBatch(operationUuid);
         while (iterator.hasNext()) {
-            Sample sample = iterator.next();
+            List<Sample> sampleList = new ArrayList<>(BATCH_OPERATION_SIZE);
+            while (iterator.hasNext() && sampleList.size() < BATCH_OPERATION_SIZE) {
+                sampleList.add(iterator.next());
+            }
+            // Check the permissions of the whole batch with a single query. Only check one by one if any of them fails
+            boolean checkSamplePermissions = checkPermissions
+                    && !hasSamplePermissions(study.getUid(), sampleList, userId, SampleAclEntry.SamplePermissions.DELETE);
+
+            for (Sample sample : sampleList) {
+                try {
+                    if (checkSamplePermissions) {
+                        authorizationManager.checkSamplePermission(study.getUid(), sample.getUid(), userId,
+                                SampleAclEntry.SamplePermissions.DELETE);
+                    }
 
-            try {
-                if (checkPermissions) {
-                    authorizationManager.checkSamplePermission(study.getUid(), sample.getUid(), userId,
-                            SampleAclEntry.SamplePermissions.DELETE);
-                }
+                    // Check if the sample can be deleted
+                    checkSampleCanBeDeleted(study.getUid(), sample, params.getBoolean(Constants.FORCE, false));
 
-                // Check if the sample can be deleted
-                checkSampleCanBeDeleted(study.getUid(), sample, params.getBoolean(Constants.FORCE, false));
+                    result.append(sampleDBAdaptor.delete(sample));
 
-                result.append(sampleDBAdaptor.delete(sample));
+                    auditManager.auditDelete(operationUuid, userId, Enums.Resource.SAMPLE, sample.getId(), sample.getUuid(),
+                            study.getId(), study.getUuid(), auditParams, new AuditRecord.Status(AuditRecord.Status.Result.SUCCESS));
+                } catch (CatalogException e) {
+                    String errorMsg = "Cannot delete sample " + sample.getId() + ": " + e.getMessage();
 
-                auditManager.auditDelete(operationUuid, userId, Enums.Resource.SAMPLE, sample.getId(), sample.getUuid(),
-                        study.getId(), study.getUuid(), auditParams, new AuditRecord.Status(AuditRecord.Status.Result.SUCCESS));
-            } catch (CatalogException e) {
-                String errorMsg = "Cannot delete sample " + sample.getId() + ": " + e.getMessage();
+                    Event event = new Event(Event.Type.ERROR, sample.getId(), e.getMessage());
+                    result.getEvents().add(event);
 
-                Event event = new Event(Event.Type.ERROR, sample.getId(), e.getMessage());
-                result.getEvents().add(event);
-
-                logger.error(errorMsg);
-                auditManager.auditDelete(operationUuid, userId, Enums.Resource.SAMPLE, sample.getId(), sample.getUuid(),
-                        study.getId(), study.getUuid(), auditParams, new AuditRecord.Status(AuditRecord.Status.Result.ERROR, e.getError()));
+                    logger.error(errorMsg);
+                    auditManager.auditDelete(operationUuid, userId, Enums.Resource.SAMPLE, sample.getId(), sample.getUuid(),
+                            study.getId(), study.getUuid(), auditParams,
+                            new AuditRecord.Status(AuditRecord.Status.Result.ERROR, e.getError()));
+                }
             }
         }
         auditManager.finishAuditBatch(operationUuid);
@@ -912,6 +921,17 @@ public class SampleManager extends AnnotationSetManager<Sample> {
         return endResult(result, ignoreException);
     }
 
+    private boolean hasSamplePermissions(long studyUid, List<Sample> sampleList, String userId,
+                                         SampleAclEntry.SamplePermissions permission) {
+        try {
+            authorizationManager.checkSamplePermissions(studyUid, sampleList.stream().map(Sample::getUid).collect(Collectors.toList()),
+                    userId, permission);
+            return true;
+        } catch (CatalogException e) {
+            return false;
+        }
+    }
+
     private OpenCGAResult update(Study study, Sample sample, SampleUpdateParams updateParams, QueryOptions options, String userId)
             throws CatalogException {
         options = ParamUtils.defaultObject(options, QueryOptions::new);
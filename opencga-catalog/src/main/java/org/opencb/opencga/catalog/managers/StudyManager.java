@@ -864,6 +864,7 @@ public class StudyManager extends AbstractManager {
 
             // Create the group
             OpenCGAResult result = studyDBAdaptor.createGroup(study.getUid(), group);
+            authorizationManager.invalidatePermissionsCache(study.getUid());
 
             OpenCGAResult<Group> queryResult = studyDBAdaptor.getGroup(study.getUid(), group.getId(), null);
             queryResult.setTime(queryResult.getTime() + result.getTime());
@@ -975,6 +976,7 @@ public class StudyManager extends AbstractManager {
                 default:
                     throw new CatalogException("Unknown action " + action + " found.");
             }
+            authorizationManager.invalidatePermissionsCache(study.getUid());
 
             auditManager.audit(userId, Enums.Action.UPDATE_USERS_FROM_STUDY_GROUP, Enums.Resource.STUDY, study.getId(),
                     study.getUuid(), study.getId(), study.getUuid(), auditParams,
@@ -1053,6 +1055,7 @@ public class StudyManager extends AbstractManager {
             updateAcl(Collections.singletonList(studyId), groupId, aclParams, ParamUtils.AclAction.RESET, token);
 
             studyDBAdaptor.deleteGroup(study.getUid(), groupId);
+            authorizationManager.invalidatePermissionsCache(study.getUid());
 
             auditManager.audit(userId, Enums.Action.REMOVE_STUDY_GROUP, Enums.Resource.STUDY, study.getId(), study.getUuid(),
                     study.getId(), study.getUuid(), auditParams, new AuditRecord.Status(AuditRecord.Status.Result.SUCCESS));
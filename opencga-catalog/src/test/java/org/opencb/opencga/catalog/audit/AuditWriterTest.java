@@ -0,0 +1,202 @@
+package org.opencb.opencga.catalog.audit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.catalog.db.api.AuditDBAdaptor;
+import org.opencb.opencga.catalog.exceptions.CatalogDBException;
+import org.opencb.opencga.core.common.TimeUtils;
+import org.opencb.opencga.core.config.Audit;
+import org.opencb.opencga.core.models.common.Enums;
+import org.opencb.opencga.core.response.OpenCGAResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AuditWriterTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private List<String> inserted;
+    private volatile boolean available;
+    private volatile CountDownLatch blocked;
+    private final CountDownLatch writing = new CountDownLatch(1);
+    private AuditDBAdaptor auditDBAdaptor;
+    private Audit configuration;
+
+    @Before
+    public void setUp() throws Exception {
+        inserted = Collections.synchronizedList(new ArrayList<>());
+        available = true;
+        auditDBAdaptor = new TestAuditDBAdaptor();
+        configuration = new Audit()
+                .setQueueSize(50)
+                .setBatchSize(10)
+                .setFlushInterval(50)
+                .setSpillDir(temporaryFolder.getRoot().getAbsolutePath());
+    }
+
+    @After
+    public void tearDown() {
+        available = true;
+    }
+
+    @Test
+    public void testWrite() throws Exception {
+        AuditWriter writer = new AuditWriter(auditDBAdaptor, configuration);
+        for (int i = 0; i < 500; i++) {
+            writer.add(record(i));
+        }
+        writer.close();
+
+        checkOrdered(500);
+        assertEquals(500L, writer.getStats().getLong("written"));
+        assertEquals(0L, writer.getStats().getLong("dropped"));
+    }
+
+    @Test
+    public void testSpill() throws Exception {
+        AuditWriter writer = new AuditWriter(auditDBAdaptor, configuration);
+        available = false;
+        for (int i = 0; i < 300; i++) {
+            writer.add(record(i));
+        }
+        Thread.sleep(200);
+        available = true;
+        for (int i = 300; i < 500; i++) {
+            writer.add(record(i));
+        }
+        waitFor(500);
+        writer.close();
+
+        checkOrdered(500);
+        assertTrue(writer.getStats().getLong("spilled") > 0);
+        assertEquals(0, temporaryFolder.getRoot().list().length);
+    }
+
+    @Test
+    public void testSpillAfterRestart() throws Exception {
+        available = false;
+        AuditWriter writer = new AuditWriter(auditDBAdaptor, configuration);
+        for (int i = 0; i < 100; i++) {
+            writer.add(record(i));
+        }
+        writer.close();
+        assertEquals(0, inserted.size());
+        assertNotEquals(0, temporaryFolder.getRoot().list().length);
+
+        available = true;
+        writer = new AuditWriter(auditDBAdaptor, configuration);
+        writer.add(record(100));
+        waitFor(101);
+        writer.close();
+
+        checkOrdered(101);
+    }
+
+    @Test
+    public void testCloseWithFullQueue() throws Exception {
+        blocked = new CountDownLatch(1);
+        AuditWriter writer = new AuditWriter(auditDBAdaptor, configuration);
+        writer.setCloseTimeout(100);
+        writer.add(record(0));
+        // The writer thread is blocked writing the first record
+        assertTrue(writing.await(10, TimeUnit.SECONDS));
+        // Fill the queue. Newer records go to the spill files
+        for (int i = 1; i < 200; i++) {
+            writer.add(record(i));
+        }
+        writer.close();
+        blocked.countDown();
+        waitFor(1);
+
+        // Records left in the queue are written before the spilled ones
+        writer = new AuditWriter(auditDBAdaptor, configuration);
+        waitFor(200);
+        writer.close();
+
+        checkOrdered(200);
+        assertEquals(0, temporaryFolder.getRoot().list().length);
+    }
+
+    @Test
+    public void testDropWithoutSpill() throws Exception {
+        configuration.setSpillDir(null);
+        available = false;
+        AuditWriter writer = new AuditWriter(auditDBAdaptor, configuration);
+        for (int i = 0; i < 100; i++) {
+            writer.add(record(i));
+        }
+        writer.close();
+        assertEquals(100L, writer.getStats().getLong("dropped"));
+    }
+
+    private void waitFor(int numRecords) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        while (inserted.size() < numRecords && System.currentTimeMillis() - start < 20000) {
+            Thread.sleep(50);
+        }
+    }
+
+    private void checkOrdered(int numRecords) {
+        assertEquals(numRecords, inserted.size());
+        for (int i = 0; i < numRecords; i++) {
+            assertEquals("id" + i, inserted.get(i));
+        }
+    }
+
+    private static AuditRecord record(int i) {
+        return new AuditRecord("id" + i, "operation", "user", "api", Enums.Action.CREATE, Enums.Resource.SAMPLE, "sample" + i, "",
+                "study", "", new ObjectMap(), new AuditRecord.Status(AuditRecord.Status.Result.SUCCESS), TimeUtils.getDate(),
+                new ObjectMap());
+    }
+
+    private class TestAuditDBAdaptor implements AuditDBAdaptor {
+
+        @Override
+        public OpenCGAResult<AuditRecord> insertAuditRecord(AuditRecord auditRecord) throws CatalogDBException {
+            return insertAuditRecords(Collections.singletonList(auditRecord));
+        }
+
+        @Override
+        public OpenCGAResult<AuditRecord> insertAuditRecords(List<AuditRecord> auditRecords) throws CatalogDBException {
+            if (!available) {
+                throw new CatalogDBException("Database not available");
+            }
+            if (blocked != null) {
+                writing.countDown();
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CatalogDBException("Interrupted", e);
+                }
+            }
+            for (AuditRecord auditRecord : auditRecords) {
+                inserted.add(auditRecord.getId());
+            }
+            return new OpenCGAResult<>();
+        }
+
+        @Override
+        public OpenCGAResult<AuditRecord> get(Query query, QueryOptions queryOptions) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public OpenCGAResult groupBy(Query query, List<String> fields, QueryOptions options) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -22,9 +22,12 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.opencb.commons.datastore.core.DataResult;
+import org.opencb.commons.datastore.core.Event;
+import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.commons.test.GenericTest;
+import org.opencb.opencga.catalog.db.api.IndividualDBAdaptor;
 import org.opencb.opencga.catalog.db.api.SampleDBAdaptor;
 import org.opencb.opencga.catalog.exceptions.CatalogAuthorizationException;
 import org.opencb.opencga.catalog.exceptions.CatalogDBException;
@@ -39,6 +42,8 @@ import org.opencb.opencga.core.models.file.File;
 import org.opencb.opencga.core.models.file.FileAclEntry;
 import org.opencb.opencga.core.models.file.FileAclParams;
 import org.opencb.opencga.core.models.individual.Individual;
+import org.opencb.opencga.core.models.individual.IndividualAclEntry;
+import org.opencb.opencga.core.models.individual.IndividualAclParams;
 import org.opencb.opencga.core.models.job.Job;
 import org.opencb.opencga.core.models.project.Project;
 import org.opencb.opencga.core.models.sample.Sample;
@@ -1005,6 +1010,111 @@ public class CatalogAuthorizationManagerTest extends GenericTest {
                 .getUid())));
     }
 
+    /*--------------------------*/
+    // Batched permission checks
+    /*--------------------------*/
+
+    @Test
+    public void checkSamplePermissionsBatch() throws CatalogException {
+        AuthorizationManager authorizationManager = catalogManager.getAuthorizationManager();
+        List<Long> allSamples = Arrays.asList(smp1.getUid(), smp2.getUid(), smp3.getUid(), smp4.getUid(), smp5.getUid(), smp6.getUid());
+
+        // Owner and admins can do anything
+        authorizationManager.checkSamplePermissions(studyUid, allSamples, ownerUser, SampleAclEntry.SamplePermissions.DELETE);
+        authorizationManager.checkSamplePermissions(studyUid, allSamples, studyAdminUser1, SampleAclEntry.SamplePermissions.DELETE);
+
+        // Analysts can view the samples without specific permissions
+        authorizationManager.checkSamplePermissions(studyUid, Arrays.asList(smp1.getUid(), smp3.getUid(), smp4.getUid()), memberUser,
+                SampleAclEntry.SamplePermissions.VIEW);
+
+        // Repeated uids are only checked once
+        authorizationManager.checkSamplePermissions(studyUid, Arrays.asList(smp1.getUid(), smp1.getUid()), externalUser,
+                SampleAclEntry.SamplePermissions.DELETE);
+
+        try {
+            authorizationManager.checkSamplePermissions(studyUid, Arrays.asList(smp1.getUid(), smp3.getUid()), externalUser,
+                    SampleAclEntry.SamplePermissions.VIEW);
+            fail("Expected CatalogAuthorizationException");
+        } catch (CatalogAuthorizationException e) {
+            // Only the denied sample is reported
+            assertTrue(e.getMessage(), e.getMessage().contains(String.valueOf(smp3.getUid())));
+            assertFalse(e.getMessage(), e.getMessage().contains(String.valueOf(smp1.getUid())));
+        }
+    }
+
+    @Test
+    public void checkSamplePermissionsBatchNonMember() throws CatalogException {
+        catalogManager.getUserManager().create("nonMember", "nonMember", "email@ccc.ccc", password, "ASDF", null,
+                Account.AccountType.FULL, null);
+
+        thrown.expect(CatalogAuthorizationException.class);
+        catalogManager.getAuthorizationManager().checkSamplePermissions(studyUid, Arrays.asList(smp1.getUid(), smp4.getUid()),
+                "nonMember", SampleAclEntry.SamplePermissions.VIEW);
+    }
+
+    @Test
+    public void checkPermissionsCacheInvalidatedAfterGroupUpdate() throws CatalogException {
+        AuthorizationManager authorizationManager = catalogManager.getAuthorizationManager();
+        assertTrue(authorizationManager.isOwnerOrAdmin(studyUid, studyAdminUser1));
+        authorizationManager.checkSamplePermissions(studyUid, Collections.singletonList(smp2.getUid()), studyAdminUser1,
+                SampleAclEntry.SamplePermissions.DELETE);
+
+        updateGroup(studyFqn, groupAdmin, null, studyAdminUser1, null, ownerSessionId);
+
+        assertFalse(authorizationManager.isOwnerOrAdmin(studyUid, studyAdminUser1));
+        thrown.expect(CatalogAuthorizationException.class);
+        authorizationManager.checkSamplePermissions(studyUid, Collections.singletonList(smp2.getUid()), studyAdminUser1,
+                SampleAclEntry.SamplePermissions.DELETE);
+    }
+
+    @Test
+    public void checkPermissionsCacheInvalidatedAfterAclUpdate() throws CatalogException {
+        AuthorizationManager authorizationManager = catalogManager.getAuthorizationManager();
+        authorizationManager.checkStudyPermission(studyUid, memberUser, StudyAclEntry.StudyPermissions.VIEW_SAMPLES);
+
+        catalogManager.getStudyManager().updateAcl(Arrays.asList(studyFqn), memberUser, new StudyAclParams(null, null), RESET,
+                ownerSessionId);
+
+        thrown.expect(CatalogAuthorizationException.class);
+        authorizationManager.checkStudyPermission(studyUid, memberUser, StudyAclEntry.StudyPermissions.VIEW_SAMPLES);
+    }
+
+    @Test
+    public void deleteSamplesPartiallyDenied() throws CatalogException {
+        Sample smp7 = catalogManager.getSampleManager().create(studyFqn, new Sample().setId("smp7"), QueryOptions.empty(),
+                ownerSessionId).first();
+        catalogManager.getSampleManager().updateAcl(studyFqn, Collections.singletonList(smp4.getId()), externalUser,
+                allSamplePermissions, ParamUtils.AclAction.SET, ownerSessionId);
+        catalogManager.getSampleManager().updateAcl(studyFqn, Collections.singletonList(smp7.getId()), externalUser,
+                new SampleAclParams(null, null, null, null, SampleAclEntry.SamplePermissions.VIEW.name()), ParamUtils.AclAction.SET,
+                ownerSessionId);
+
+        Query query = new Query(SampleDBAdaptor.QueryParams.ID.key(), smp4.getId() + "," + smp7.getId());
+        OpenCGAResult result = catalogManager.getSampleManager().delete(studyFqn, query, new ObjectMap(), true, externalSessionId);
+
+        assertEquals(1, result.getNumDeleted());
+        assertEquals(1, result.getEvents().size());
+        assertEquals(Event.Type.ERROR, result.getEvents().get(0).getType());
+        assertEquals(smp7.getId(), result.getEvents().get(0).getId());
+    }
+
+    @Test
+    public void deleteIndividualsPartiallyDenied() throws CatalogException {
+        IndividualManager individualManager = catalogManager.getIndividualManager();
+        individualManager.updateAcl(studyFqn, Collections.singletonList(ind1), externalUser, new IndividualAclParams(null,
+                IndividualAclEntry.IndividualPermissions.DELETE.name()), ParamUtils.AclAction.SET, false, ownerSessionId);
+        individualManager.updateAcl(studyFqn, Collections.singletonList(ind2), externalUser, new IndividualAclParams(null,
+                IndividualAclEntry.IndividualPermissions.VIEW.name()), ParamUtils.AclAction.SET, false, ownerSessionId);
+
+        Query query = new Query(IndividualDBAdaptor.QueryParams.ID.key(), ind1 + "," + ind2);
+        OpenCGAResult result = individualManager.delete(studyFqn, query, new ObjectMap(), true, externalSessionId);
+
+        assertEquals(1, result.getNumDeleted());
+        assertEquals(1, result.getEvents().size());
+        assertEquals(Event.Type.ERROR, result.getEvents().get(0).getType());
+        assertEquals(ind2, result.getEvents().get(0).getId());
+    }
+
     /////////// Aux methods
     private Map<String, Group> getGroupMap() throws CatalogException {
         return catalogManager.getStudyManager().get(studyFqn, null, ownerSessionId).first().getGroups().stream()
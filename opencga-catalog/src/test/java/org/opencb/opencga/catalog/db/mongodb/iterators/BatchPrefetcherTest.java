@@ -0,0 +1,136 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.catalog.db.mongodb.iterators;
+
+import org.bson.Document;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+public class BatchPrefetcherTest {
+
+    @Test
+    public void testConfig() {
+        BatchPrefetcher.Config config = BatchPrefetcher.Config.fromOptions(null);
+        assertEquals(BatchPrefetcher.Config.DEFAULT_BATCH_SIZE, config.getBatchSize());
+        assertEquals(BatchPrefetcher.Config.DEFAULT_PREFETCH_BATCHES, config.getPrefetchBatches());
+
+        Map<String, String> options = new HashMap<>();
+        options.put("connectionsPerHost", "20");
+        options.put(BatchPrefetcher.Config.BATCH_SIZE, "500");
+        options.put(BatchPrefetcher.Config.PREFETCH_BATCHES, "3");
+        config = BatchPrefetcher.Config.fromOptions(options);
+        assertEquals(500, config.getBatchSize());
+        assertEquals(3, config.getPrefetchBatches());
+
+        options.put(BatchPrefetcher.Config.BATCH_SIZE, "");
+        options.put(BatchPrefetcher.Config.PREFETCH_BATCHES, "-1");
+        config = BatchPrefetcher.Config.fromOptions(options);
+        assertEquals(BatchPrefetcher.Config.DEFAULT_BATCH_SIZE, config.getBatchSize());
+        assertEquals(0, config.getPrefetchBatches());
+
+        options.put(BatchPrefetcher.Config.BATCH_SIZE, "0");
+        try {
+            BatchPrefetcher.Config.fromOptions(options);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains(BatchPrefetcher.Config.BATCH_SIZE));
+        }
+    }
+
+    @Test
+    public void testReadAll() {
+        for (int prefetchBatches = 0; prefetchBatches < 4; prefetchBatches++) {
+            BatchPrefetcher prefetcher = new BatchPrefetcher(fetcher(10, new AtomicInteger()), prefetchBatches);
+            List<Integer> values = new ArrayList<>();
+            Queue<Document> batch;
+            while (!(batch = prefetcher.next()).isEmpty()) {
+                batch.forEach(document -> values.add(document.getInteger("id")));
+            }
+            assertEquals(10, values.size());
+            for (int i = 0; i < values.size(); i++) {
+                assertEquals(i, values.get(i).intValue());
+            }
+            // Once finished, always returns empty
+            assertTrue(prefetcher.next().isEmpty());
+            prefetcher.close();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testFetchInBackground() throws Exception {
+        CountDownLatch secondBatchFetched = new CountDownLatch(1);
+        AtomicInteger fetchedBatches = new AtomicInteger();
+        Supplier<Queue<Document>> fetcher = fetcher(100, fetchedBatches);
+        BatchPrefetcher prefetcher = new BatchPrefetcher(() -> {
+            Queue<Document> batch = fetcher.get();
+            if (fetchedBatches.get() == 2) {
+                secondBatchFetched.countDown();
+            }
+            return batch;
+        }, 1);
+
+        assertEquals(0, prefetcher.next().peek().getInteger("id").intValue());
+        // The second batch is fetched without asking for it
+        assertTrue(secondBatchFetched.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(2, fetchedBatches.get());
+
+        prefetcher.close();
+        assertTrue(prefetcher.next().isEmpty());
+        assertEquals(2, fetchedBatches.get());
+    }
+
+    @Test
+    public void testError() {
+        AtomicInteger fetchedBatches = new AtomicInteger();
+        Supplier<Queue<Document>> fetcher = fetcher(100, fetchedBatches);
+        BatchPrefetcher prefetcher = new BatchPrefetcher(() -> {
+            if (fetchedBatches.get() == 1) {
+                throw new IllegalStateException("Cursor closed");
+            }
+            return fetcher.get();
+        }, 2);
+
+        assertFalse(prefetcher.next().isEmpty());
+        try {
+            prefetcher.next();
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("Cursor closed", e.getMessage());
+        }
+        prefetcher.close();
+    }
+
+    private static Supplier<Queue<Document>> fetcher(int numDocuments, AtomicInteger fetchedBatches) {
+        int batchSize = 3;
+        return () -> {
+            Queue<Document> batch = new LinkedList<>();
+            int start = fetchedBatches.getAndIncrement() * batchSize;
+            for (int i = start; i < Math.min(start + batchSize, numDocuments); i++) {
+                batch.add(new Document("id", i));
+            }
+            return batch;
+        };
+    }
+}
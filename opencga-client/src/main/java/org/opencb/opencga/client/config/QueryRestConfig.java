@@ -20,6 +20,7 @@ public class QueryRestConfig {
 
     private int batchSize;
     private int limit;
+    private int prefetch;
 
     public QueryRestConfig() {
     }
@@ -34,6 +35,7 @@ public class QueryRestConfig {
         final StringBuilder sb = new StringBuilder("QueryRestConfig{");
         sb.append("batchSize=").append(batchSize);
         sb.append(", limit=").append(limit);
+        sb.append(", prefetch=").append(prefetch);
         sb.append('}');
         return sb.toString();
     }
@@ -55,4 +57,13 @@ public class QueryRestConfig {
         this.limit = limit;
         return this;
     }
+
+    public int getPrefetch() {
+        return prefetch;
+    }
+
+    public QueryRestConfig setPrefetch(int prefetch) {
+        this.prefetch = prefetch;
+        return this;
+    }
 }
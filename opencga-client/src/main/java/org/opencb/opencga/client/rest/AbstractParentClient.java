@@ -56,6 +56,10 @@ import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.cert.X509Certificate;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Created by imedina on 04/05/16.
@@ -73,6 +77,7 @@ public abstract class AbstractParentClient {
     private int timeout = 10000;
     private int batchSize = 2000;
     private int defaultLimit = 2000;
+    private int prefetch = 2;
     private static final int DEFAULT_SKIP = 0;
     protected static final String GET = "GET";
     protected static final String POST = "POST";
@@ -80,6 +85,17 @@ public abstract class AbstractParentClient {
 
     protected Logger logger;
 
+    private static final ExecutorService PREFETCH_EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger threadNum = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "rest-client-prefetch-" + threadNum.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
     protected AbstractParentClient(String token, ClientConfiguration configuration) {
         Objects.requireNonNull(configuration);
         Objects.requireNonNull(configuration.getRest());
@@ -100,6 +116,9 @@ public abstract class AbstractParentClient {
         if (configuration.getRest().getQuery().getLimit() > 0) {
             defaultLimit = configuration.getRest().getQuery().getLimit();
         }
+        if (configuration.getRest().getQuery().getPrefetch() > 0) {
+            prefetch = configuration.getRest().getQuery().getPrefetch();
+        }
 
     }
 
@@ -224,35 +243,9 @@ public abstract class AbstractParentClient {
             // Update the batch limit
             int batchLimit = Math.min(batchSize, limit - finalNumResults);
 
-            // Build URL
-            WebTarget path = client
-                    .target(configuration.getRest().getHost())
-                    .path("webservices")
-                    .path("rest")
-                    .path("v2")
-                    .path(category1);
-
-            // Select batch. Either by ID or with limit/skip
-            if (CollectionUtils.isNotEmpty(id1)) {
-                // Select batch of IDs
-                path = path.path(String.join(",", id1.subList(skip, skip + batchLimit)));
-                // FIXME: This should not be needed!
-                params.put(QueryOptions.LIMIT, batchLimit);
-            } else {
-                // Select batch with skip/limit
-                params.put(QueryOptions.SKIP, skip);
-                params.put(QueryOptions.LIMIT, batchLimit);
-            }
-            if (StringUtils.isNotEmpty(category2)) {
-                path = path.path(category2);
-            }
-            if (StringUtils.isNotEmpty(id2)) {
-                path = path.path(id2);
-            }
-            path = path.path(action);
-
             // Call REST
-            RestResponse<T> batchRestResponse = callRest(path, params, clazz, method, action);
+            RestResponse<T> batchRestResponse = executeBatch(category1, id1, category2, id2, action, params, method, clazz,
+                    skip, batchLimit);
             batchNumResults = batchRestResponse.allResultsSize();
 
             if (finalRestResponse == null) {
@@ -273,6 +266,111 @@ public abstract class AbstractParentClient {
         return finalRestResponse;
     }
 
+    /**
+     * Lazily iterate over the results of a query. Batches are fetched in background threads, concurrently with the consumption
+     * of the results. See {@link RestResultIterator}.
+     *
+     * @param category1 Main category
+     * @param id1       Comma separated list of ids, if any
+     * @param category2 Subcategory, if any
+     * @param id2       Subcategory id, if any
+     * @param action    Action
+     * @param paramsMap Params to be passed to the WS. Same SKIP and LIMIT semantics as in the execute methods.
+     * @param method    Method by which the query will be done (GET or POST).
+     * @param clazz     Expected return class.
+     * @param <T>       Result type
+     * @return An iterator over the results. Must be closed to cancel pending requests.
+     */
+    protected <T> RestResultIterator<T> iterator(String category1, String id1, String category2, String id2, String action,
+                                                 Map<String, Object> paramsMap, String method, Class<T> clazz) {
+        List<String> ids;
+        if (StringUtils.isNotEmpty(id1)) {
+            ids = Arrays.asList(id1.split(","));
+        } else {
+            ids = Collections.emptyList();
+        }
+        ObjectMap params;
+        if (paramsMap == null) {
+            params = new ObjectMap();
+        } else {
+            params = new ObjectMap(paramsMap);
+        }
+        params.put(QueryOptions.TIMEOUT, timeout);
+
+        client.property(ClientProperties.CONNECT_TIMEOUT, 1000);
+        client.property(ClientProperties.READ_TIMEOUT, timeout);
+
+        int skip;
+        int limit;
+        int batchSize;
+        if (ids.isEmpty()) {
+            skip = params.getInt(QueryOptions.SKIP, DEFAULT_SKIP);
+            limit = params.getInt(QueryOptions.LIMIT, defaultLimit);
+            batchSize = this.batchSize;
+
+            if (limit == 0) {
+                limit = defaultLimit;
+            }
+        } else {
+            // Ignore input SKIP and LIMIT from Params
+            skip = 0;
+            limit = ids.size();
+            // Hardcoded OpenCGA IDs limit
+            // See org.opencb.opencga.server.rest.OpenCGAWSServer.MAX_ID_SIZE
+            batchSize = 100;
+
+            params.remove(QueryOptions.SKIP);
+            params.remove(QueryOptions.LIMIT);
+        }
+
+        int firstSkip = skip;
+        RestResultIterator.BatchFetcher<T> fetcher = (batchSkip, batchLimit) -> {
+            // Each batch runs in its own thread, with its own copy of the params
+            ObjectMap batchParams = new ObjectMap(params);
+            if (batchSkip != firstSkip) {
+                // Count only once
+                batchParams.remove(QueryOptions.COUNT);
+            }
+            return executeBatch(category1, ids, category2, id2, action, batchParams, method, clazz, batchSkip, batchLimit);
+        };
+        // Batches of IDs may return less results than requested. Only queries can finish with a short batch.
+        return new RestResultIterator<>(fetcher, PREFETCH_EXECUTOR, skip, limit, batchSize, prefetch, ids.isEmpty());
+    }
+
+    private <T> RestResponse<T> executeBatch(String category1, List<String> id1, String category2, String id2, String action,
+                                             ObjectMap params, String method, Class<T> clazz, int skip, int batchLimit)
+            throws ClientException {
+        // Build URL
+        WebTarget path = client
+                .target(configuration.getRest().getHost())
+                .path("webservices")
+                .path("rest")
+                .path("v2")
+                .path(category1);
+
+        // Select batch. Either by ID or with limit/skip
+        if (CollectionUtils.isNotEmpty(id1)) {
+            // Select batch of IDs
+            path = path.path(String.join(",", id1.subList(skip, skip + batchLimit)));
+            // FIXME: This should not be needed!
+            params.put(QueryOptions.LIMIT, batchLimit);
+        } else {
+            // Select batch with skip/limit
+            params.put(QueryOptions.SKIP, skip);
+            params.put(QueryOptions.LIMIT, batchLimit);
+        }
+        if (StringUtils.isNotEmpty(category2)) {
+            path = path.path(category2);
+        }
+        if (StringUtils.isNotEmpty(id2)) {
+            path = path.path(id2);
+        }
+        path = path.path(action);
+
+        // Call REST
+        return callRest(path, params, clazz, method, action);
+    }
+
     private <T> RestResponse<T> callRest(WebTarget path, ObjectMap params, Class<T> clazz, String method, String action)
             throws ClientException {
         RestResponse<T> batchRestResponse;
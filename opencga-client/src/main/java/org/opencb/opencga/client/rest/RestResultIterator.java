@@ -0,0 +1,225 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.client.rest;
+
+import org.opencb.opencga.client.exceptions.ClientException;
+import org.opencb.opencga.core.response.RestResponse;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterator over the results of a REST query, fetched in batches with skip/limit.
+ *
+ * Only the first batch is requested when the iterator is created. Once the first batch is complete, up to "prefetch" batches
+ * are requested in background, concurrently with the consumption of the results, so the memory usage is bounded by the
+ * number of batches in flight. Closing the iterator cancels any pending request.
+ *
+ * The results can be consumed either one by one, with {@link #next()} or {@link #stream()}, or batch by batch, with
+ * {@link #nextBatch()}. Both methods should not be mixed, as {@link #nextBatch()} discards any unread result of the current batch.
+ */
+public class RestResultIterator<T> implements Iterator<T>, AutoCloseable {
+
+    @FunctionalInterface
+    public interface BatchFetcher<T> {
+        RestResponse<T> fetch(int skip, int limit) throws ClientException;
+    }
+
+    private final BatchFetcher<T> fetcher;
+    private final ExecutorService executor;
+    private final int batchSize;
+    private final int prefetch;
+    private final boolean finishOnShortBatch;
+    private final int limit;
+
+    private final Deque<Batch<T>> pendingBatches = new LinkedList<>();
+    private int nextSkip;
+    private int scheduled;
+    private boolean firstBatch = true;
+    private boolean finished = false;
+    private boolean closed = false;
+
+    private RestResponse<T> batch;
+    private Iterator<T> results = Collections.emptyIterator();
+
+    /**
+     * Creates a new iterator and requests the first batch.
+     *
+     * @param fetcher            Function to fetch one batch
+     * @param executor           Executor where the batches are fetched
+     * @param skip               Number of results to skip
+     * @param limit              Maximum number of results to fetch
+     * @param batchSize          Number of results per batch
+     * @param prefetch           Maximum number of batches requested in advance
+     * @param finishOnShortBatch Consider that there are no more results when a batch returns less results than requested
+     */
+    public RestResultIterator(BatchFetcher<T> fetcher, ExecutorService executor, int skip, int limit, int batchSize, int prefetch,
+                              boolean finishOnShortBatch) {
+        this.fetcher = fetcher;
+        this.executor = executor;
+        this.nextSkip = skip;
+        this.limit = limit;
+        this.batchSize = batchSize;
+        this.prefetch = Math.max(1, prefetch);
+        this.finishOnShortBatch = finishOnShortBatch;
+        schedule();
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!results.hasNext()) {
+            try {
+                if (!hasNextBatch()) {
+                    return false;
+                }
+                results = nextBatch().allResults().iterator();
+            } catch (ClientException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return results.next();
+    }
+
+    /**
+     * Check if there are more batches. Blocks until the next batch is fetched.
+     * The first batch is always returned, even if empty, as it contains the query metadata (e.g. numMatches, events).
+     * Empty batches after the first one are skipped.
+     *
+     * @return if there are more batches
+     * @throws ClientException if there was any error fetching the next batch
+     */
+    public synchronized boolean hasNextBatch() throws ClientException {
+        if (batch == null) {
+            batch = fetchNextBatch();
+        }
+        return batch != null;
+    }
+
+    /**
+     * Get the next batch of results.
+     *
+     * @return the RestResponse of the next batch
+     * @throws ClientException if there was any error fetching the batch
+     */
+    public synchronized RestResponse<T> nextBatch() throws ClientException {
+        if (!hasNextBatch()) {
+            throw new NoSuchElementException();
+        }
+        RestResponse<T> next = batch;
+        batch = null;
+        results = Collections.emptyIterator();
+        return next;
+    }
+
+    /**
+     * Sequential stream over the results. Closing the stream closes the iterator.
+     *
+     * @return a Stream with the results
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED), false)
+                .onClose(this::close);
+    }
+
+    /**
+     * Stop the iteration. Pending requests are cancelled.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        batch = null;
+        results = Collections.emptyIterator();
+        cancelPendingBatches();
+    }
+
+    private RestResponse<T> fetchNextBatch() throws ClientException {
+        while (!closed && !pendingBatches.isEmpty()) {
+            Batch<T> pendingBatch = pendingBatches.removeFirst();
+            RestResponse<T> restResponse;
+            try {
+                restResponse = pendingBatch.future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new ClientException("Interrupted while waiting for the next batch", e);
+            } catch (ExecutionException e) {
+                close();
+                if (e.getCause() instanceof ClientException) {
+                    throw (ClientException) e.getCause();
+                } else {
+                    throw new ClientException(e.getCause().getMessage(), e.getCause());
+                }
+            }
+
+            int numResults = restResponse.allResultsSize();
+            if (finishOnShortBatch && numResults < pendingBatch.limit) {
+                // No more results. Discard any batch requested in advance
+                finished = true;
+                cancelPendingBatches();
+            }
+            boolean first = firstBatch;
+            firstBatch = false;
+            schedule();
+            if (first || numResults > 0) {
+                return restResponse;
+            }
+        }
+        return null;
+    }
+
+    private void schedule() {
+        // Do not request more batches in advance until the first one is complete, as most of the queries fit in one batch
+        int maxPendingBatches = firstBatch ? 1 : prefetch;
+        while (!closed && !finished && pendingBatches.size() < maxPendingBatches && scheduled < limit) {
+            int batchSkip = nextSkip;
+            int batchLimit = Math.min(batchSize, limit - scheduled);
+            Future<RestResponse<T>> future = executor.submit(() -> fetcher.fetch(batchSkip, batchLimit));
+            pendingBatches.add(new Batch<>(future, batchLimit));
+            nextSkip += batchLimit;
+            scheduled += batchLimit;
+        }
+    }
+
+    private void cancelPendingBatches() {
+        for (Batch<T> pendingBatch : pendingBatches) {
+            pendingBatch.future.cancel(true);
+        }
+        pendingBatches.clear();
+    }
+
+    private static final class Batch<T> {
+        private final Future<RestResponse<T>> future;
+        private final int limit;
+
+        private Batch(Future<RestResponse<T>> future, int limit) {
+            this.future = future;
+            this.limit = limit;
+        }
+    }
+}
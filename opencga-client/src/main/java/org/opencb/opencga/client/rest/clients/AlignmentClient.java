@@ -24,6 +24,7 @@ import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.opencga.client.config.ClientConfiguration;
 import org.opencb.opencga.client.exceptions.ClientException;
 import org.opencb.opencga.client.rest.AbstractParentClient;
+import org.opencb.opencga.client.rest.RestResultIterator;
 import org.opencb.opencga.core.models.alignment.AlignmentIndexParams;
 import org.opencb.opencga.core.models.alignment.AlignmentStatsParams;
 import org.opencb.opencga.core.models.alignment.BwaWrapperParams;
@@ -263,6 +264,37 @@ public class AlignmentClient extends AbstractParentClient {
         return execute("analysis", null, "alignment", null, "query", params, GET, ReadAlignment.class);
     }
 
+    /**
+     * Search over indexed alignments.
+     * @param file File ID.
+     * @param params Map containing any of the following optional parameters.
+     *       limit: Number of results to be returned.
+     *       skip: Number of results to skip.
+     *       count: Get the total number of results matching the query. Deactivated by default.
+     *       study: Study [[user@]project:]study where study and project can be either the ID or UUID.
+     *       region: Comma separated list of regions 'chr:start-end, e.g.: 2,3:63500-65000.
+     *       gene: Comma separated list of genes, e.g.: BCRA2,TP53.
+     *       offset: Offset to extend the region, gene or exon at up and downstream.
+     *       onlyExons: Only exons are taking into account when genes are specified.
+     *       minMappingQuality: Minimum mapping quality.
+     *       maxNumMismatches: Maximum number of mismatches.
+     *       maxNumHits: Maximum number of hits.
+     *       properlyPaired: Return only properly paired alignments.
+     *       maxInsertSize: Maximum insert size.
+     *       skipUnmapped: Skip unmapped alignments.
+     *       skipDuplicated: Skip duplicated alignments.
+     *       regionContained: Return alignments contained within boundaries of region.
+     *       forceMDField: Force SAM MD optional field to be set with the alignments.
+     *       binQualities: Compress the nucleotide qualities by using 8 quality levels.
+     *       splitResults: Split results into regions (or gene/exon regions).
+     * @return a RestResultIterator over the results. Must be closed after use.
+     */
+    public RestResultIterator<ReadAlignment> queryIterator(String file, ObjectMap params) {
+        params = params != null ? params : new ObjectMap();
+        params.putIfNotNull("file", file);
+        return iterator("analysis", null, "alignment", null, "query", params, GET, ReadAlignment.class);
+    }
+
     /**
      * Samtools is a program for interacting with high-throughput sequencing data in SAM, BAM and CRAM formats.
      * @param data Samtoolstools parameters.
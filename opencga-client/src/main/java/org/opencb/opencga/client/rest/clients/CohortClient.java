@@ -21,6 +21,7 @@ import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.opencga.client.config.ClientConfiguration;
 import org.opencb.opencga.client.exceptions.ClientException;
 import org.opencb.opencga.client.rest.AbstractParentClient;
+import org.opencb.opencga.client.rest.RestResultIterator;
 import org.opencb.opencga.core.models.cohort.Cohort;
 import org.opencb.opencga.core.models.cohort.CohortAclUpdateParams;
 import org.opencb.opencga.core.models.cohort.CohortCreateParams;
@@ -223,6 +224,37 @@ public class CohortClient extends AbstractParentClient {
         return execute("cohorts", null, null, null, "search", params, GET, Cohort.class);
     }
 
+    /**
+     * Search cohorts.
+     * @param params Map containing any of the following optional parameters.
+     *       include: Fields included in the response, whole JSON path must be provided.
+     *       exclude: Fields excluded in the response, whole JSON path must be provided.
+     *       limit: Number of results to be returned.
+     *       skip: Number of results to skip.
+     *       count: Get the total number of results matching the query. Deactivated by default.
+     *       flattenAnnotations: Flatten the annotations?.
+     *       study: Study [[user@]project:]study where study and project can be either the ID or UUID.
+     *       name: DEPRECATED: Name of the cohort.
+     *       type: Cohort type.
+     *       creationDate: Creation date. Format: yyyyMMddHHmmss. Examples: >2018, 2017-2018, <201805.
+     *       modificationDate: Modification date. Format: yyyyMMddHHmmss. Examples: >2018, 2017-2018, <201805.
+     *       deleted: Boolean to retrieve deleted cohorts.
+     *       internalStatus: Filter by internal status.
+     *       status: Filter by status.
+     *       annotation: Annotation filters. Example: age>30;gender=FEMALE. For more information, please visit
+     *            http://docs.opencb.org/display/opencga/AnnotationSets+1.4.0.
+     *       acl: Filter entries for which a user has the provided permissions. Format: acl={user}:{permissions}. Example:
+     *            acl=john:WRITE,WRITE_ANNOTATIONS will return all entries for which user john has both WRITE and WRITE_ANNOTATIONS
+     *            permissions. Only study owners or administrators can query by this field. .
+     *       samples: Sample list.
+     *       release: Release value.
+     * @return a RestResultIterator over the results. Must be closed after use.
+     */
+    public RestResultIterator<Cohort> searchIterator(ObjectMap params) {
+        params = params != null ? params : new ObjectMap();
+        return iterator("cohorts", null, null, null, "search", params, GET, Cohort.class);
+    }
+
     /**
      * Return the acl of the cohort. If member is provided, it will only return the acl for the member.
      * @param cohorts Comma separated list of cohort names or IDs up to a maximum of 100.
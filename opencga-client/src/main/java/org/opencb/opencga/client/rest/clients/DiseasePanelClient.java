@@ -20,6 +20,7 @@ import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.opencga.client.config.ClientConfiguration;
 import org.opencb.opencga.client.exceptions.ClientException;
 import org.opencb.opencga.client.rest.AbstractParentClient;
+import org.opencb.opencga.client.rest.RestResultIterator;
 import org.opencb.opencga.core.models.panel.Panel;
 import org.opencb.opencga.core.models.panel.PanelAclUpdateParams;
 import org.opencb.opencga.core.models.panel.PanelCreateParams;
@@ -151,6 +152,40 @@ public class DiseasePanelClient extends AbstractParentClient {
         return execute("panels", null, null, null, "search", params, GET, Panel.class);
     }
 
+    /**
+     * Panel search.
+     * @param params Map containing any of the following optional parameters.
+     *       include: Fields included in the response, whole JSON path must be provided.
+     *       exclude: Fields excluded in the response, whole JSON path must be provided.
+     *       limit: Number of results to be returned.
+     *       skip: Number of results to skip.
+     *       count: Get the total number of results matching the query. Deactivated by default.
+     *       study: Study [[user@]project:]study where study and project can be either the ID or UUID.
+     *       name: Panel name.
+     *       phenotypes: Panel phenotypes.
+     *       variants: Panel variants.
+     *       genes: Panel genes.
+     *       regions: Panel regions.
+     *       categories: Panel categories.
+     *       tags: Panel tags.
+     *       description: Panel description.
+     *       author: Panel author.
+     *       deleted: Boolean to retrieve deleted panels.
+     *       status: Filter by status.
+     *       creationDate: Creation date. Format: yyyyMMddHHmmss. Examples: >2018, 2017-2018, <201805.
+     *       modificationDate: Modification date. Format: yyyyMMddHHmmss. Examples: >2018, 2017-2018, <201805.
+     *       acl: Filter entries for which a user has the provided permissions. Format: acl={user}:{permissions}. Example:
+     *            acl=john:WRITE,WRITE_ANNOTATIONS will return all entries for which user john has both WRITE and WRITE_ANNOTATIONS
+     *            permissions. Only study owners or administrators can query by this field. .
+     *       release: Release value (Current release from the moment the samples were first created).
+     *       snapshot: Snapshot value (Latest version of samples in the specified release).
+     * @return a RestResultIterator over the results. Must be closed after use.
+     */
+    public RestResultIterator<Panel> searchIterator(ObjectMap params) {
+        params = params != null ? params : new ObjectMap();
+        return iterator("panels", null, null, null, "search", params, GET, Panel.class);
+    }
+
     /**
      * Returns the acl of the panels. If member is provided, it will only return the acl for the member.
      * @param panels Comma separated list of panel IDs up to a maximum of 100.
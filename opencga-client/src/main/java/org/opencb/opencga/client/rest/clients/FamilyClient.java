@@ -21,6 +21,7 @@ import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.opencga.client.config.ClientConfiguration;
 import org.opencb.opencga.client.exceptions.ClientException;
 import org.opencb.opencga.client.rest.AbstractParentClient;
+import org.opencb.opencga.client.rest.RestResultIterator;
 import org.opencb.opencga.core.models.common.TsvAnnotationParams;
 import org.opencb.opencga.core.models.family.Family;
 import org.opencb.opencga.core.models.family.FamilyAclUpdateParams;
@@ -206,6 +207,43 @@ public class FamilyClient extends AbstractParentClient {
         return execute("families", null, null, null, "search", params, GET, Family.class);
     }
 
+    /**
+     * Search families.
+     * @param params Map containing any of the following optional parameters.
+     *       include: Fields included in the response, whole JSON path must be provided.
+     *       exclude: Fields excluded in the response, whole JSON path must be provided.
+     *       limit: Number of results to be returned.
+     *       skip: Number of results to skip.
+     *       count: Get the total number of results matching the query. Deactivated by default.
+     *       flattenAnnotations: Flatten the annotations?.
+     *       study: Study [[user@]project:]study where study and project can be either the id or alias.
+     *       name: Family name.
+     *       parentalConsanguinity: Parental consanguinity.
+     *       members: Comma separated list of individual ids or names.
+     *       samples: Comma separated list sample IDs or UUIDs up to a maximum of 100.
+     *       phenotypes: Comma separated list of phenotype ids or names.
+     *       disorders: Comma separated list of disorder ids or names.
+     *       creationDate: Creation date. Format: yyyyMMddHHmmss. Examples: >2018, 2017-2018, <201805.
+     *       modificationDate: Modification date. Format: yyyyMMddHHmmss. Examples: >2018, 2017-2018, <201805.
+     *       deleted: Boolean to retrieve deleted families.
+     *       annotationsetName: DEPRECATED: Use annotation queryParam this way: annotationSet[=|==|!|!=]{annotationSetName}.
+     *       variableSet: DEPRECATED: Use annotation queryParam this way: variableSet[=|==|!|!=]{variableSetId}.
+     *       internalStatus: Filter by internal status.
+     *       status: Filter by status.
+     *       annotation: Annotation filters. Example: age>30;gender=FEMALE. For more information, please visit
+     *            http://docs.opencb.org/display/opencga/AnnotationSets+1.4.0.
+     *       acl: Filter entries for which a user has the provided permissions. Format: acl={user}:{permissions}. Example:
+     *            acl=john:WRITE,WRITE_ANNOTATIONS will return all entries for which user john has both WRITE and WRITE_ANNOTATIONS
+     *            permissions. Only study owners or administrators can query by this field. .
+     *       release: Release value (Current release from the moment the families were first created).
+     *       snapshot: Snapshot value (Latest version of families in the specified release).
+     * @return a RestResultIterator over the results. Must be closed after use.
+     */
+    public RestResultIterator<Family> searchIterator(ObjectMap params) {
+        params = params != null ? params : new ObjectMap();
+        return iterator("families", null, null, null, "search", params, GET, Family.class);
+    }
+
     /**
      * Returns the acl of the families. If member is provided, it will only return the acl for the member.
      * @param families Comma separated list of family IDs or names up to a maximum of 100.
@@ -22,6 +22,7 @@ import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.opencga.client.config.ClientConfiguration;
 import org.opencb.opencga.client.exceptions.ClientException;
 import org.opencb.opencga.client.rest.AbstractParentClient;
+import org.opencb.opencga.client.rest.RestResultIterator;
 import org.opencb.opencga.core.models.common.TsvAnnotationParams;
 import org.opencb.opencga.core.models.file.File;
 import org.opencb.opencga.core.models.file.FileAclUpdateParams;
@@ -308,6 +309,46 @@ public class FileClient extends AbstractParentClient {
         return execute("files", null, null, null, "search", params, GET, File.class);
     }
 
+    /**
+     * File search method.
+     * @param params Map containing any of the following optional parameters.
+     *       include: Fields included in the response, whole JSON path must be provided.
+     *       exclude: Fields excluded in the response, whole JSON path must be provided.
+     *       limit: Number of results to be returned.
+     *       skip: Number of results to skip.
+     *       count: Get the total number of results matching the query. Deactivated by default.
+     *       flattenAnnotations: Boolean indicating to flatten the annotations.
+     *       study: Study [[user@]project:]study where study and project can be either the ID or UUID.
+     *       name: Comma separated list of file names.
+     *       path: Comma separated list of paths.
+     *       type: File type, either FILE or DIRECTORY.
+     *       bioformat: Comma separated Bioformat values. For existing Bioformats see files/bioformats.
+     *       format: Comma separated Format values. For existing Formats see files/formats.
+     *       status: Filter by status.
+     *       internalStatus: Filter by internal status.
+     *       directory: Directory under which we want to look for files or folders.
+     *       creationDate: Creation date. Format: yyyyMMddHHmmss. Examples: >2018, 2017-2018, <201805.
+     *       modificationDate: Modification date. Format: yyyyMMddHHmmss. Examples: >2018, 2017-2018, <201805.
+     *       description: Description.
+     *       tags: Tags.
+     *       size: File size.
+     *       sampleIds: Comma separated list sample IDs or UUIDs up to a maximum of 100.
+     *       jobId: Job ID that created the file(s) or folder(s).
+     *       annotation: Annotation filters. Example: age>30;gender=FEMALE. For more information, please visit
+     *            http://docs.opencb.org/display/opencga/AnnotationSets+1.4.0.
+     *       acl: Filter entries for which a user has the provided permissions. Format: acl={user}:{permissions}. Example:
+     *            acl=john:WRITE,WRITE_ANNOTATIONS will return all entries for which user john has both WRITE and WRITE_ANNOTATIONS
+     *            permissions. Only study owners or administrators can query by this field. .
+     *       deleted: Boolean to retrieve deleted entries.
+     *       attributes: Text attributes (Format: sex=male,age>20 ...).
+     *       release: Release when it was created.
+     * @return a RestResultIterator over the results. Must be closed after use.
+     */
+    public RestResultIterator<File> searchIterator(ObjectMap params) {
+        params = params != null ? params : new ObjectMap();
+        return iterator("files", null, null, null, "search", params, GET, File.class);
+    }
+
     /**
      * Resource to upload a file by chunks.
      * @param params Map containing any of the following optional parameters.
@@ -535,6 +576,24 @@ public class FileClient extends AbstractParentClient {
         return execute("files", folder, null, null, "list", params, GET, File.class);
     }
 
+    /**
+     * List all the files inside the folder.
+     * @param folder Folder ID, name or path.
+     * @param params Map containing any of the following optional parameters.
+     *       include: Fields included in the response, whole JSON path must be provided.
+     *       exclude: Fields excluded in the response, whole JSON path must be provided.
+     *       limit: Number of results to be returned.
+     *       skip: Number of results to skip.
+     *       count: Get the total number of results matching the query. Deactivated by default.
+     *       folder: Folder ID, name or path.
+     *       study: Study [[user@]project:]study where study and project can be either the ID or UUID.
+     * @return a RestResultIterator over the results. Must be closed after use.
+     */
+    public RestResultIterator<File> listIterator(String folder, ObjectMap params) {
+        params = params != null ? params : new ObjectMap();
+        return iterator("files", folder, null, null, "list", params, GET, File.class);
+    }
+
     /**
      * Obtain a tree view of the files and folders within a folder.
      * @param folder Folder id or name. Paths must be separated by : instead of /.
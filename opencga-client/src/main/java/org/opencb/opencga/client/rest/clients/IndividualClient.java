@@ -21,6 +21,7 @@ import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.opencga.client.config.ClientConfiguration;
 import org.opencb.opencga.client.exceptions.ClientException;
 import org.opencb.opencga.client.rest.AbstractParentClient;
+import org.opencb.opencga.client.rest.RestResultIterator;
 import org.opencb.opencga.core.models.common.TsvAnnotationParams;
 import org.opencb.opencga.core.models.individual.Individual;
 import org.opencb.opencga.core.models.individual.IndividualAclUpdateParams;
@@ -230,6 +231,51 @@ public class IndividualClient extends AbstractParentClient {
         return execute("individuals", null, null, null, "search", params, GET, Individual.class);
     }
 
+    /**
+     * Search for individuals.
+     * @param params Map containing any of the following optional parameters.
+     *       include: Fields included in the response, whole JSON path must be provided.
+     *       exclude: Fields excluded in the response, whole JSON path must be provided.
+     *       limit: Number of results to be returned.
+     *       skip: Number of results to skip.
+     *       count: Get the total number of results matching the query. Deactivated by default.
+     *       flattenAnnotations: Flatten the annotations?.
+     *       study: Study [[user@]project:]study where study and project can be either the id or alias.
+     *       name: name.
+     *       father: father.
+     *       mother: mother.
+     *       samples: Comma separated list sample IDs or UUIDs up to a maximum of 100.
+     *       sex: sex.
+     *       ethnicity: ethnicity.
+     *       disorders: Comma separated list of disorder ids or names.
+     *       population.name: Population name.
+     *       population.subpopulation: Subpopulation name.
+     *       population.description: Population description.
+     *       phenotypes: Comma separated list of phenotype ids or names.
+     *       karyotypicSex: Karyotypic sex.
+     *       lifeStatus: Life status.
+     *       affectationStatus: Affectation status.
+     *       internalStatus: Filter by internal status.
+     *       status: Filter by status.
+     *       deleted: Boolean to retrieve deleted individuals.
+     *       creationDate: Creation date. Format: yyyyMMddHHmmss. Examples: >2018, 2017-2018, <201805.
+     *       modificationDate: Modification date. Format: yyyyMMddHHmmss. Examples: >2018, 2017-2018, <201805.
+     *       annotationsetName: DEPRECATED: Use annotation queryParam this way: annotationSet[=|==|!|!=]{annotationSetName}.
+     *       variableSet: DEPRECATED: Use annotation queryParam this way: variableSet[=|==|!|!=]{variableSetId}.
+     *       annotation: Annotation filters. Example: age>30;gender=FEMALE. For more information, please visit
+     *            http://docs.opencb.org/display/opencga/AnnotationSets+1.4.0.
+     *       acl: Filter entries for which a user has the provided permissions. Format: acl={user}:{permissions}. Example:
+     *            acl=john:WRITE,WRITE_ANNOTATIONS will return all entries for which user john has both WRITE and WRITE_ANNOTATIONS
+     *            permissions. Only study owners or administrators can query by this field. .
+     *       release: Release value (Current release from the moment the individuals were first created).
+     *       snapshot: Snapshot value (Latest version of individuals in the specified release).
+     * @return a RestResultIterator over the results. Must be closed after use.
+     */
+    public RestResultIterator<Individual> searchIterator(ObjectMap params) {
+        params = params != null ? params : new ObjectMap();
+        return iterator("individuals", null, null, null, "search", params, GET, Individual.class);
+    }
+
     /**
      * Return the acl of the individual. If member is provided, it will only return the acl for the member.
      * @param individuals Comma separated list of individual names or IDs up to a maximum of 100.
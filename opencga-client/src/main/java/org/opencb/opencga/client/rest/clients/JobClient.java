@@ -21,6 +21,7 @@ import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.opencga.client.config.ClientConfiguration;
 import org.opencb.opencga.client.exceptions.ClientException;
 import org.opencb.opencga.client.rest.AbstractParentClient;
+import org.opencb.opencga.client.rest.RestResultIterator;
 import org.opencb.opencga.core.models.file.FileContent;
 import org.opencb.opencga.core.models.job.Job;
 import org.opencb.opencga.core.models.job.JobAclUpdateParams;
@@ -179,6 +180,41 @@ public class JobClient extends AbstractParentClient {
         return execute("jobs", null, null, null, "search", params, GET, Job.class);
     }
 
+    /**
+     * Job search method.
+     * @param params Map containing any of the following optional parameters.
+     *       include: Fields included in the response, whole JSON path must be provided.
+     *       exclude: Fields excluded in the response, whole JSON path must be provided.
+     *       limit: Number of results to be returned.
+     *       skip: Number of results to skip.
+     *       count: Get the total number of results matching the query. Deactivated by default.
+     *       study: Study [[user@]project:]study where study and project can be either the ID or UUID.
+     *       otherStudies: Flag indicating the entries being queried can belong to any related study, not just the primary one.
+     *       id: Job ID. It must be a unique string within the study. An ID will be autogenerated automatically if not provided.
+     *       toolId: Tool ID executed by the job.
+     *       userId: User that created the job.
+     *       priority: Priority of the job.
+     *       internalStatus: Filter by internal status.
+     *       creationDate: Creation date. Format: yyyyMMddHHmmss. Examples: >2018, 2017-2018, <201805.
+     *       modificationDate: Modification date. Format: yyyyMMddHHmmss. Examples: >2018, 2017-2018, <201805.
+     *       visited: Visited status of job.
+     *       tags: Job tags.
+     *       input: Comma separated list of file IDs used as input.
+     *       output: Comma separated list of file IDs used as output.
+     *       execution.start: Execution start date. Format: yyyyMMddHHmmss. Examples: >2018, 2017-2018, <201805.
+     *       execution.end: Execution end date. Format: yyyyMMddHHmmss. Examples: >2018, 2017-2018, <201805.
+     *       acl: Filter entries for which a user has the provided permissions. Format: acl={user}:{permissions}. Example:
+     *            acl=john:WRITE,WRITE_ANNOTATIONS will return all entries for which user john has both WRITE and WRITE_ANNOTATIONS
+     *            permissions. Only study owners or administrators can query by this field. .
+     *       release: Release when it was created.
+     *       deleted: Boolean to retrieve deleted entries.
+     * @return a RestResultIterator over the results. Must be closed after use.
+     */
+    public RestResultIterator<Job> searchIterator(ObjectMap params) {
+        params = params != null ? params : new ObjectMap();
+        return iterator("jobs", null, null, null, "search", params, GET, Job.class);
+    }
+
     /**
      * Provide a summary of the running jobs.
      * @param params Map containing any of the following optional parameters.
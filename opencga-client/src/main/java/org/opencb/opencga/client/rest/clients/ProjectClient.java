@@ -21,6 +21,7 @@ import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.opencga.client.config.ClientConfiguration;
 import org.opencb.opencga.client.exceptions.ClientException;
 import org.opencb.opencga.client.rest.AbstractParentClient;
+import org.opencb.opencga.client.rest.RestResultIterator;
 import org.opencb.opencga.core.models.project.Project;
 import org.opencb.opencga.core.models.project.ProjectCreateParams;
 import org.opencb.opencga.core.models.project.ProjectUpdateParams;
@@ -88,6 +89,31 @@ public class ProjectClient extends AbstractParentClient {
         return execute("projects", null, null, null, "search", params, GET, Project.class);
     }
 
+    /**
+     * Search projects.
+     * @param params Map containing any of the following optional parameters.
+     *       include: Fields included in the response, whole JSON path must be provided.
+     *       exclude: Fields excluded in the response, whole JSON path must be provided.
+     *       limit: Number of results to be returned.
+     *       skip: Number of results to skip.
+     *       owner: Owner of the project.
+     *       id: Project [user@]project where project can be either the ID or the alias.
+     *       name: Project name.
+     *       fqn: Project fqn.
+     *       organization: Project organization.
+     *       description: Project description.
+     *       study: Study id.
+     *       creationDate: Creation date. Format: yyyyMMddHHmmss. Examples: >2018, 2017-2018, <201805.
+     *       modificationDate: Modification date. Format: yyyyMMddHHmmss. Examples: >2018, 2017-2018, <201805.
+     *       internalStatus: Filter by internal status.
+     *       attributes: Attributes.
+     * @return a RestResultIterator over the results. Must be closed after use.
+     */
+    public RestResultIterator<Project> searchIterator(ObjectMap params) {
+        params = params != null ? params : new ObjectMap();
+        return iterator("projects", null, null, null, "search", params, GET, Project.class);
+    }
+
     /**
      * Fetch catalog project stats.
      * @param projects Comma separated list of projects [user@]project up to a maximum of 100.
@@ -154,6 +180,21 @@ public class ProjectClient extends AbstractParentClient {
         return execute("projects", project, null, null, "studies", params, GET, Study.class);
     }
 
+    /**
+     * Fetch all the studies contained in the project.
+     * @param project Project [user@]project where project can be either the ID or the alias.
+     * @param params Map containing any of the following optional parameters.
+     *       include: Fields included in the response, whole JSON path must be provided.
+     *       exclude: Fields excluded in the response, whole JSON path must be provided.
+     *       limit: Number of results to be returned.
+     *       skip: Number of results to skip.
+     * @return a RestResultIterator over the results. Must be closed after use.
+     */
+    public RestResultIterator<Study> studiesIterator(String project, ObjectMap params) {
+        params = params != null ? params : new ObjectMap();
+        return iterator("projects", project, null, null, "studies", params, GET, Study.class);
+    }
+
     /**
      * Update some project attributes.
      * @param project Project [user@]project where project can be either the ID or the alias.
@@ -21,6 +21,7 @@ import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.opencga.client.config.ClientConfiguration;
 import org.opencb.opencga.client.exceptions.ClientException;
 import org.opencb.opencga.client.rest.AbstractParentClient;
+import org.opencb.opencga.client.rest.RestResultIterator;
 import org.opencb.opencga.core.models.common.TsvAnnotationParams;
 import org.opencb.opencga.core.models.job.Job;
 import org.opencb.opencga.core.models.sample.Sample;
@@ -233,6 +234,55 @@ public class SampleClient extends AbstractParentClient {
         return execute("samples", null, null, null, "search", params, GET, Sample.class);
     }
 
+    /**
+     * Sample search method.
+     * @param params Map containing any of the following optional parameters.
+     *       include: Fields included in the response, whole JSON path must be provided.
+     *       exclude: Fields excluded in the response, whole JSON path must be provided.
+     *       limit: Number of results to be returned.
+     *       skip: Number of results to skip.
+     *       count: Get the total number of results matching the query. Deactivated by default.
+     *       includeIndividual: Include Individual object as an attribute.
+     *       flattenAnnotations: Flatten the annotations?.
+     *       study: Study [[user@]project:]study where study and project can be either the ID or UUID.
+     *       id: Comma separated list sample IDs or UUIDs up to a maximum of 100.
+     *       somatic: Somatic sample.
+     *       individualId: Individual ID.
+     *       fileIds: Comma separated list of file IDs.
+     *       creationDate: Creation date. Format: yyyyMMddHHmmss. Examples: >2018, 2017-2018, <201805.
+     *       modificationDate: Modification date. Format: yyyyMMddHHmmss. Examples: >2018, 2017-2018, <201805.
+     *       internalStatus: Filter by internal status.
+     *       status: Filter by status.
+     *       phenotypes: Comma separated list of phenotype ids or names.
+     *       annotation: Annotation filters. Example: age>30;gender=FEMALE. For more information, please visit
+     *            http://docs.opencb.org/display/opencga/AnnotationSets+1.4.0.
+     *       acl: Filter entries for which a user has the provided permissions. Format: acl={user}:{permissions}. Example:
+     *            acl=john:WRITE,WRITE_ANNOTATIONS will return all entries for which user john has both WRITE and WRITE_ANNOTATIONS
+     *            permissions. Only study owners or administrators can query by this field. .
+     *       attributes: Text attributes (Format: sex=male,age>20 ...).
+     *       release: Release when it was created.
+     *       snapshot: Snapshot value (Latest version of the entry in the specified release).
+     *       deleted: Boolean to retrieve deleted entries.
+     *       stats.id: Sample variant stats id. If filtering by other stats fields and not provided, it will be automatically set to ALL.
+     *       stats.variantCount: Sample variant stats variantCount.
+     *       stats.chromosomeCount: Sample variant stats chromosomeCount.
+     *       stats.typeCount: Sample variant stats typeCount.
+     *       stats.genotypeCount: Sample variant stats genotypeCount.
+     *       stats.tiTvRatio: Sample variant stats tiTvRatio.
+     *       stats.qualityAvg: Sample variant stats qualityAvg.
+     *       stats.qualityStdDev: Sample variant stats qualityStdDev.
+     *       stats.heterozygosityRate: Sample variant stats heterozygosityRate.
+     *       stats.depthCount: Sample variant stats depthCount.
+     *       stats.biotypeCount: Sample variant stats biotypeCount.
+     *       stats.clinicalSignificanceCount: Sample variant stats clinicalSignificanceCount.
+     *       stats.consequenceTypeCount: Sample variant stats consequenceTypeCount.
+     * @return a RestResultIterator over the results. Must be closed after use.
+     */
+    public RestResultIterator<Sample> searchIterator(ObjectMap params) {
+        params = params != null ? params : new ObjectMap();
+        return iterator("samples", null, null, null, "search", params, GET, Sample.class);
+    }
+
     /**
      * Returns the acl of the samples. If member is provided, it will only return the acl for the member.
      * @param samples Comma separated list sample IDs or UUIDs up to a maximum of 100.
@@ -21,6 +21,7 @@ import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.opencga.client.config.ClientConfiguration;
 import org.opencb.opencga.client.exceptions.ClientException;
 import org.opencb.opencga.client.rest.AbstractParentClient;
+import org.opencb.opencga.client.rest.RestResultIterator;
 import org.opencb.opencga.core.models.study.Group;
 import org.opencb.opencga.core.models.study.GroupCreateParams;
 import org.opencb.opencga.core.models.study.GroupUpdateParams;
@@ -115,6 +116,33 @@ public class StudyClient extends AbstractParentClient {
         return execute("studies", null, null, null, "search", params, GET, Study.class);
     }
 
+    /**
+     * Search studies.
+     * @param project Project [user@]project where project can be either the ID or the alias.
+     * @param params Map containing any of the following optional parameters.
+     *       include: Fields included in the response, whole JSON path must be provided.
+     *       exclude: Fields excluded in the response, whole JSON path must be provided.
+     *       limit: Number of results to be returned.
+     *       skip: Number of results to skip.
+     *       count: Get the total number of results matching the query. Deactivated by default.
+     *       name: Study name.
+     *       id: Study ID.
+     *       alias: Study alias.
+     *       fqn: Study full qualified name.
+     *       creationDate: Creation date. Format: yyyyMMddHHmmss. Examples: >2018, 2017-2018, <201805.
+     *       modificationDate: Modification date. Format: yyyyMMddHHmmss. Examples: >2018, 2017-2018, <201805.
+     *       internalStatus: Filter by internal status.
+     *       status: Filter by status.
+     *       attributes: Attributes.
+     *       release: Release value.
+     * @return a RestResultIterator over the results. Must be closed after use.
+     */
+    public RestResultIterator<Study> searchIterator(String project, ObjectMap params) {
+        params = params != null ? params : new ObjectMap();
+        params.putIfNotNull("project", project);
+        return iterator("studies", null, null, null, "search", params, GET, Study.class);
+    }
+
     /**
      * Return the acl of the study. If member is provided, it will only return the acl for the member.
      * @param studies Comma separated list of Studies [[user@]project:]study where study and project can be either the ID or UUID up to a
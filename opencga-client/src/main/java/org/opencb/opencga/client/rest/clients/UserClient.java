@@ -20,6 +20,7 @@ import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.opencga.client.config.ClientConfiguration;
 import org.opencb.opencga.client.exceptions.ClientException;
 import org.opencb.opencga.client.rest.AbstractParentClient;
+import org.opencb.opencga.client.rest.RestResultIterator;
 import org.opencb.opencga.core.models.project.Project;
 import org.opencb.opencga.core.models.user.AuthenticationResponse;
 import org.opencb.opencga.core.models.user.ConfigUpdateParams;
@@ -193,6 +194,21 @@ public class UserClient extends AbstractParentClient {
         return execute("users", user, null, null, "projects", params, GET, Project.class);
     }
 
+    /**
+     * Retrieve the projects of the user.
+     * @param user User ID.
+     * @param params Map containing any of the following optional parameters.
+     *       include: Fields included in the response, whole JSON path must be provided.
+     *       exclude: Fields excluded in the response, whole JSON path must be provided.
+     *       limit: Number of results to be returned.
+     *       skip: Number of results to skip.
+     * @return a RestResultIterator over the results. Must be closed after use.
+     */
+    public RestResultIterator<Project> projectsIterator(String user, ObjectMap params) {
+        params = params != null ? params : new ObjectMap();
+        return iterator("users", user, null, null, "projects", params, GET, Project.class);
+    }
+
     /**
      * Update some user attributes.
      * @param user User ID.
@@ -28,6 +28,7 @@ import org.opencb.commons.datastore.core.QueryResponse;
 import org.opencb.opencga.client.config.ClientConfiguration;
 import org.opencb.opencga.client.exceptions.ClientException;
 import org.opencb.opencga.client.rest.AbstractParentClient;
+import org.opencb.opencga.client.rest.RestResultIterator;
 import org.opencb.opencga.core.models.analysis.knockout.KnockoutByGene;
 import org.opencb.opencga.core.models.analysis.knockout.KnockoutByIndividual;
 import org.opencb.opencga.core.models.job.Job;
@@ -161,6 +162,24 @@ public class VariantClient extends AbstractParentClient {
         return execute("analysis", null, "variant/annotation", null, "query", params, GET, VariantAnnotation.class);
     }
 
+    /**
+     * Query variant annotations from any saved versions.
+     * @param params Map containing any of the following optional parameters.
+     *       id: List of IDs, these can be rs IDs (dbSNP) or variants in the format chrom:start:ref:alt, e.g. rs116600158,19:7177679:C:T.
+     *       region: List of regions, these can be just a single chromosome name or regions in the format chr:start-end, e.g.:
+     *            2,3:100000-200000.
+     *       include: Fields included in the response, whole JSON path must be provided.
+     *       exclude: Fields excluded in the response, whole JSON path must be provided.
+     *       limit: Number of results to be returned.
+     *       skip: Number of results to skip.
+     *       annotationId: Annotation identifier.
+     * @return a RestResultIterator over the results. Must be closed after use.
+     */
+    public RestResultIterator<VariantAnnotation> queryAnnotationIterator(ObjectMap params) {
+        params = params != null ? params : new ObjectMap();
+        return iterator("analysis", null, "variant/annotation", null, "query", params, GET, VariantAnnotation.class);
+    }
+
     /**
      * Generate a Circos plot for a given sample.
      * @param data Circos analysis params to customize the plot. These parameters include the title,  the plot density (i.e., the number of
@@ -403,6 +422,20 @@ public class VariantClient extends AbstractParentClient {
         return execute("analysis", null, "variant/knockout/gene", null, "query", params, GET, KnockoutByGene.class);
     }
 
+    /**
+     * Fetch values from KnockoutAnalysis result, by genes.
+     * @param params Map containing any of the following optional parameters.
+     *       limit: Number of results to be returned.
+     *       skip: Number of results to skip.
+     *       study: study.
+     *       job: Job ID or UUID.
+     * @return a RestResultIterator over the results. Must be closed after use.
+     */
+    public RestResultIterator<KnockoutByGene> queryKnockoutGeneIterator(ObjectMap params) {
+        params = params != null ? params : new ObjectMap();
+        return iterator("analysis", null, "variant/knockout/gene", null, "query", params, GET, KnockoutByGene.class);
+    }
+
     /**
      * Fetch values from KnockoutAnalysis result, by individuals.
      * @param params Map containing any of the following optional parameters.
@@ -418,6 +451,20 @@ public class VariantClient extends AbstractParentClient {
         return execute("analysis", null, "variant/knockout/individual", null, "query", params, GET, KnockoutByIndividual.class);
     }
 
+    /**
+     * Fetch values from KnockoutAnalysis result, by individuals.
+     * @param params Map containing any of the following optional parameters.
+     *       limit: Number of results to be returned.
+     *       skip: Number of results to skip.
+     *       study: study.
+     *       job: Job ID or UUID.
+     * @return a RestResultIterator over the results. Must be closed after use.
+     */
+    public RestResultIterator<KnockoutByIndividual> queryKnockoutIndividualIterator(ObjectMap params) {
+        params = params != null ? params : new ObjectMap();
+        return iterator("analysis", null, "variant/knockout/individual", null, "query", params, GET, KnockoutByIndividual.class);
+    }
+
     /**
      * Obtains the list of knocked out genes for each sample.
      * @param data Gene knockout analysis params.
@@ -654,6 +701,115 @@ public class VariantClient extends AbstractParentClient {
         return execute("analysis", null, "variant", null, "query", params, GET, Variant.class);
     }
 
+    /**
+     * Filter and fetch variants from indexed VCF files in the variant storage.
+     * @param params Map containing any of the following optional parameters.
+     *       include: Fields included in the response, whole JSON path must be provided.
+     *       exclude: Fields excluded in the response, whole JSON path must be provided.
+     *       limit: Number of results to be returned.
+     *       skip: Number of results to skip.
+     *       count: Get the total number of results matching the query. Deactivated by default.
+     *       sort: Sort the results.
+     *       summary: Fast fetch of main variant parameters.
+     *       approximateCount: Get an approximate count, instead of an exact total count. Reduces execution time.
+     *       approximateCountSamplingSize: Sampling size to get the approximate count. Larger values increase accuracy but also increase
+     *            execution time.
+     *       savedFilter: Use a saved filter at User level.
+     *       id: List of IDs, these can be rs IDs (dbSNP) or variants in the format chrom:start:ref:alt, e.g. rs116600158,19:7177679:C:T.
+     *       region: List of regions, these can be just a single chromosome name or regions in the format chr:start-end, e.g.:
+     *            2,3:100000-200000.
+     *       type: List of types, accepted values are SNV, MNV, INDEL, SV, CNV, INSERTION, DELETION, e.g. SNV,INDEL.
+     *       reference: Reference allele.
+     *       alternate: Main alternate allele.
+     *       project: Project [user@]project where project can be either the ID or the alias.
+     *       study: Filter variants from the given studies, these can be either the numeric ID or the alias with the format
+     *            user@project:study.
+     *       file: Filter variants from the files specified. This will set includeFile parameter when not provided.
+     *       filter: Specify the FILTER for any of the files. If 'file' filter is provided, will match the file and the filter. e.g.:
+     *            PASS,LowGQX.
+     *       qual: Specify the QUAL for any of the files. If 'file' filter is provided, will match the file and the qual. e.g.: >123.4.
+     *       fileData: Filter by file data (i.e. FILTER, QUAL and INFO columns from VCF file). [{file}:]{key}{op}{value}[,;]* . If no file
+     *            is specified, will use all files from "file" filter. e.g. AN>200 or file_1.vcf:AN>200;file_2.vcf:AN<10 . Many fields can
+     *            be combined. e.g. file_1.vcf:AN>200;DB=true;file_2.vcf:AN<10,FILTER=PASS,LowDP.
+     *       sample: Filter variants by sample genotype. This will automatically set 'includeSample' parameter when not provided. This
+     *            filter accepts multiple 3 forms: 1) List of samples: Samples that contain the main variant. Accepts AND (;) and OR (,)
+     *            operators.  e.g. HG0097,HG0098 . 2) List of samples with genotypes: {sample}:{gt1},{gt2}. Accepts AND (;) and OR (,)
+     *            operators.  e.g. HG0097:0/0;HG0098:0/1,1/1 . Unphased genotypes (e.g. 0/1, 1/1) will also include phased genotypes (e.g.
+     *            0|1, 1|0, 1|1), but not vice versa. When filtering by multi-allelic genotypes, any secondary allele will match,
+     *            regardless of its position e.g. 1/2 will match with genotypes 1/2, 1/3, 1/4, .... Genotype aliases accepted: HOM_REF,
+     *            HOM_ALT, HET, HET_REF, HET_ALT and MISS  e.g. HG0097:HOM_REF;HG0098:HET_REF,HOM_ALT . 3) Sample with segregation mode:
+     *            {sample}:{segregation}. Only one sample accepted.Accepted segregation modes: [ autosomalDominant, autosomalRecessive,
+     *            XLinkedDominant, XLinkedRecessive, YLinked, mitochondrial, deNovo, mendelianError, compoundHeterozygous ]. Value is case
+     *            insensitive. e.g. HG0097:DeNovo Sample must have parents defined and indexed. .
+     *       genotype: Samples with a specific genotype: {samp_1}:{gt_1}(,{gt_n})*(;{samp_n}:{gt_1}(,{gt_n})*)* e.g.
+     *            HG0097:0/0;HG0098:0/1,1/1. Unphased genotypes (e.g. 0/1, 1/1) will also include phased genotypes (e.g. 0|1, 1|0, 1|1),
+     *            but not vice versa. When filtering by multi-allelic genotypes, any secondary allele will match, regardless of its
+     *            position e.g. 1/2 will match with genotypes 1/2, 1/3, 1/4, .... Genotype aliases accepted: HOM_REF, HOM_ALT, HET,
+     *            HET_REF, HET_ALT and MISS  e.g. HG0097:HOM_REF;HG0098:HET_REF,HOM_ALT. This will automatically set 'includeSample'
+     *            parameter when not provided.
+     *       sampleData: Filter by any SampleData field from samples. [{sample}:]{key}{op}{value}[,;]* . If no sample is specified, will
+     *            use all samples from "sample" or "genotype" filter. e.g. DP>200 or HG0097:DP>200,HG0098:DP<10 . Many FORMAT fields can be
+     *            combined. e.g. HG0097:DP>200;GT=1/1,0/1,HG0098:DP<10.
+     *       sampleAnnotation: Selects some samples using metadata information from Catalog. e.g.
+     *            age>20;phenotype=hpo:123,hpo:456;name=smith.
+     *       sampleMetadata: Return the samples metadata group by study. Sample names will appear in the same order as their corresponding
+     *            genotypes.
+     *       unknownGenotype: Returned genotype for unknown genotypes. Common values: [0/0, 0|0, ./.].
+     *       sampleLimit: Limit the number of samples to be included in the result.
+     *       sampleSkip: Skip some samples from the result. Useful for sample pagination.
+     *       cohort: Select variants with calculated stats for the selected cohorts.
+     *       cohortStatsRef: Reference Allele Frequency: [{study:}]{cohort}[<|>|<=|>=]{number}. e.g. ALL<=0.4.
+     *       cohortStatsAlt: Alternate Allele Frequency: [{study:}]{cohort}[<|>|<=|>=]{number}. e.g. ALL<=0.4.
+     *       cohortStatsMaf: Minor Allele Frequency: [{study:}]{cohort}[<|>|<=|>=]{number}. e.g. ALL<=0.4.
+     *       cohortStatsMgf: Minor Genotype Frequency: [{study:}]{cohort}[<|>|<=|>=]{number}. e.g. ALL<=0.4.
+     *       cohortStatsPass: Filter PASS frequency: [{study:}]{cohort}[<|>|<=|>=]{number}. e.g. ALL>0.8.
+     *       missingAlleles: Number of missing alleles: [{study:}]{cohort}[<|>|<=|>=]{number}.
+     *       missingGenotypes: Number of missing genotypes: [{study:}]{cohort}[<|>|<=|>=]{number}.
+     *       score: Filter by variant score: [{study:}]{score}[<|>|<=|>=]{number}.
+     *       family: Filter variants where any of the samples from the given family contains the variant (HET or HOM_ALT).
+     *       familyDisorder: Specify the disorder to use for the family segregation.
+     *       familySegregation: Filter by segregation mode from a given family. Accepted values: [ autosomalDominant, autosomalRecessive,
+     *            XLinkedDominant, XLinkedRecessive, YLinked, mitochondrial, deNovo, mendelianError, compoundHeterozygous ].
+     *       familyMembers: Sub set of the members of a given family.
+     *       familyProband: Specify the proband child to use for the family segregation.
+     *       includeStudy: List of studies to include in the result. Accepts 'all' and 'none'.
+     *       includeFile: List of files to be returned. Accepts 'all' and 'none'.
+     *       includeSample: List of samples to be included in the result. Accepts 'all' and 'none'.
+     *       includeSampleData: List of Sample Data keys (i.e. FORMAT column from VCF file) from Sample Data to include in the output. e.g:
+     *            DP,AD. Accepts 'all' and 'none'.
+     *       includeGenotype: Include genotypes, apart of other formats defined with includeFormat.
+     *       includeSampleId: Include sampleId on each result.
+     *       annotationExists: Return only annotated variants.
+     *       gene: List of genes, most gene IDs are accepted (HGNC, Ensembl gene, ...). This is an alias to 'xref' parameter.
+     *       ct: List of SO consequence types, e.g. missense_variant,stop_lost or SO:0001583,SO:0001578.
+     *       xref: List of any external reference, these can be genes, proteins or variants. Accepted IDs include HGNC, Ensembl genes,
+     *            dbSNP, ClinVar, HPO, Cosmic, ...
+     *       biotype: List of biotypes, e.g. protein_coding.
+     *       proteinSubstitution: Protein substitution scores include SIFT and PolyPhen. You can query using the score
+     *            {protein_score}[<|>|<=|>=]{number} or the description {protein_score}[~=|=]{description} e.g. polyphen>0.1,sift=tolerant.
+     *       conservation: Filter by conservation score: {conservation_score}[<|>|<=|>=]{number} e.g. phastCons>0.5,phylop<0.1,gerp>0.1.
+     *       populationFrequencyAlt: Alternate Population Frequency: {study}:{population}[<|>|<=|>=]{number}. e.g. 1kG_phase3:ALL<0.01.
+     *       populationFrequencyRef: Reference Population Frequency: {study}:{population}[<|>|<=|>=]{number}. e.g. 1kG_phase3:ALL<0.01.
+     *       populationFrequencyMaf: Population minor allele frequency: {study}:{population}[<|>|<=|>=]{number}. e.g. 1kG_phase3:ALL<0.01.
+     *       transcriptFlag: List of transcript annotation flags. e.g. CCDS, basic, cds_end_NF, mRNA_end_NF, cds_start_NF, mRNA_start_NF,
+     *            seleno.
+     *       geneTraitId: List of gene trait association id. e.g. "umls:C0007222" , "OMIM:269600".
+     *       go: List of GO (Gene Ontology) terms. e.g. "GO:0002020".
+     *       expression: List of tissues of interest. e.g. "lung".
+     *       proteinKeyword: List of Uniprot protein variant annotation keywords.
+     *       drug: List of drug names.
+     *       functionalScore: Functional score: {functional_score}[<|>|<=|>=]{number} e.g. cadd_scaled>5.2 , cadd_raw<=0.3.
+     *       clinicalSignificance: Clinical significance: benign, likely_benign, likely_pathogenic, pathogenic.
+     *       customAnnotation: Custom annotation: {key}[<|>|<=|>=]{number} or {key}[~=|=]{text}.
+     *       panel: Filter by genes from the given disease panel.
+     *       trait: List of traits, based on ClinVar, HPO, COSMIC, i.e.: IDs, histologies, descriptions,...
+     * @return a RestResultIterator over the results. Must be closed after use.
+     */
+    public RestResultIterator<Variant> queryIterator(ObjectMap params) {
+        params = params != null ? params : new ObjectMap();
+        return iterator("analysis", null, "variant", null, "query", params, GET, Variant.class);
+    }
+
     /**
      * Compute a score to quantify relatedness between samples.
      * @param data Relatedness analysis params.
@@ -795,6 +951,21 @@ public class VariantClient extends AbstractParentClient {
         return execute("analysis", null, "variant/sample", null, "query", params, GET, Variant.class);
     }
 
+    /**
+     * Get sample data of a given variant.
+     * @param params Map containing any of the following optional parameters.
+     *       limit: Number of results to be returned.
+     *       skip: Number of results to skip.
+     *       variant: Variant.
+     *       study: Study where all the samples belong to.
+     *       genotype: Genotypes that the sample must have to be selected.
+     * @return a RestResultIterator over the results. Must be closed after use.
+     */
+    public RestResultIterator<Variant> querySampleIterator(ObjectMap params) {
+        params = params != null ? params : new ObjectMap();
+        return iterator("analysis", null, "variant/sample", null, "query", params, GET, Variant.class);
+    }
+
     /**
      * Get samples given a set of variants.
      * @param data Sample variant filter params.
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.client.rest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.opencga.client.exceptions.ClientException;
+import org.opencb.opencga.core.response.OpenCGAResult;
+import org.opencb.opencga.core.response.RestResponse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class RestResultIteratorTest {
+
+    private ExecutorService executor;
+    private List<Integer> requestedSkips;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+        requestedSkips = new CopyOnWriteArrayList<>();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testIterate() {
+        RestResultIterator<Integer> iterator = new RestResultIterator<>(fetcher(95), executor, 0, 1000, 10, 3, true);
+        List<Integer> results = iterator.stream().collect(Collectors.toList());
+
+        assertEquals(IntStream.range(0, 95).boxed().collect(Collectors.toList()), results);
+        // Up to 3 batches are requested after the last one
+        assertTrue(requestedSkips.size() >= 10);
+        assertTrue(requestedSkips.size() <= 13);
+    }
+
+    @Test
+    public void testSkipAndLimit() {
+        RestResultIterator<Integer> iterator = new RestResultIterator<>(fetcher(95), executor, 5, 23, 10, 3, true);
+        List<Integer> results = iterator.stream().collect(Collectors.toList());
+
+        assertEquals(IntStream.range(5, 28).boxed().collect(Collectors.toList()), results);
+        assertEquals(3, requestedSkips.size());
+    }
+
+    @Test
+    public void testEmpty() throws ClientException {
+        RestResultIterator<Integer> iterator = new RestResultIterator<>(fetcher(0), executor, 0, 1000, 10, 3, true);
+
+        // The first batch is always returned
+        assertTrue(iterator.hasNextBatch());
+        assertEquals(0, iterator.nextBatch().allResultsSize());
+        assertFalse(iterator.hasNextBatch());
+        assertFalse(iterator.hasNext());
+        assertEquals(Collections.singletonList(0), requestedSkips);
+    }
+
+    @Test
+    public void testBatchesOfIds() {
+        // Batches of IDs may return less results than requested
+        RestResultIterator<Integer> iterator = new RestResultIterator<>((skip, limit) -> {
+            requestedSkips.add(skip);
+            return response(Collections.singletonList(skip));
+        }, executor, 0, 250, 100, 3, false);
+
+        assertEquals(Arrays.asList(0, 100, 200), iterator.stream().collect(Collectors.toList()));
+    }
+
+    @Test(timeout = 10000)
+    public void testClose() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        RestResultIterator<Integer> iterator = new RestResultIterator<>((skip, limit) -> {
+            if (skip > 0) {
+                blocked.countDown();
+                try {
+                    // Wait until cancelled
+                    Thread.sleep(60000);
+                } catch (InterruptedException e) {
+                    throw new ClientException("Interrupted", e);
+                }
+            }
+            return fetcher(1000).fetch(skip, limit);
+        }, executor, 0, 1000, 10, 3, true);
+
+        assertEquals(Integer.valueOf(0), iterator.next());
+        blocked.await();
+        iterator.close();
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testError() {
+        RestResultIterator<Integer> iterator = new RestResultIterator<>((skip, limit) -> {
+            if (skip > 0) {
+                throw new ClientException("Server error");
+            }
+            return fetcher(1000).fetch(skip, limit);
+        }, executor, 0, 1000, 10, 3, true);
+
+        for (int i = 0; i < 10; i++) {
+            iterator.next();
+        }
+        try {
+            iterator.hasNext();
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof ClientException);
+        }
+    }
+
+    private RestResultIterator.BatchFetcher<Integer> fetcher(int numResults) {
+        return (skip, limit) -> {
+            requestedSkips.add(skip);
+            List<Integer> results = new ArrayList<>();
+            for (int i = skip; i < Math.min(skip + limit, numResults); i++) {
+                results.add(i);
+            }
+            return response(results);
+        };
+    }
+
+    private static RestResponse<Integer> response(List<Integer> results) {
+        return new RestResponse<>(new ObjectMap(), Collections.singletonList(
+                new OpenCGAResult<>(0, new ArrayList<>(), results.size(), results, results.size())));
+    }
+}
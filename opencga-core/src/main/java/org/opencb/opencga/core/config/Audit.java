@@ -21,10 +21,24 @@ package org.opencb.opencga.core.config;
  */
 public class Audit {
 
+    public static final int DEFAULT_QUEUE_SIZE = 10000;
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final long DEFAULT_FLUSH_INTERVAL = 1000;
+
     private String manager;
     private long maxDocuments;
     private long maxSize;
 
+    // Write the audit records synchronously, in the request thread
+    private boolean strict = true;
+    // Max number of audit records waiting to be written
+    private int queueSize = DEFAULT_QUEUE_SIZE;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    // Max time (ms) a record waits in the queue before its batch is written
+    private long flushInterval = DEFAULT_FLUSH_INTERVAL;
+    // Directory to spill the records that can not be written to the database. Required to write the records asynchronously.
+    private String spillDir;
+
     public Audit() {
     }
 
@@ -40,6 +54,11 @@ public class Audit {
         sb.append("manager='").append(manager).append('\'');
         sb.append(", maxDocuments=").append(maxDocuments);
         sb.append(", maxSize=").append(maxSize);
+        sb.append(", strict=").append(strict);
+        sb.append(", queueSize=").append(queueSize);
+        sb.append(", batchSize=").append(batchSize);
+        sb.append(", flushInterval=").append(flushInterval);
+        sb.append(", spillDir='").append(spillDir).append('\'');
         sb.append('}');
         return sb.toString();
     }
@@ -70,4 +89,49 @@ public class Audit {
         this.maxSize = maxSize;
         return this;
     }
+
+    public boolean isStrict() {
+        return strict;
+    }
+
+    public Audit setStrict(boolean strict) {
+        this.strict = strict;
+        return this;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public Audit setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+        return this;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public Audit setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    public long getFlushInterval() {
+        return flushInterval;
+    }
+
+    public Audit setFlushInterval(long flushInterval) {
+        this.flushInterval = flushInterval;
+        return this;
+    }
+
+    public String getSpillDir() {
+        return spillDir;
+    }
+
+    public Audit setSpillDir(String spillDir) {
+        this.spillDir = spillDir;
+        return this;
+    }
 }
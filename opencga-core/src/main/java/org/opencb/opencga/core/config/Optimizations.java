@@ -2,12 +2,20 @@ package org.opencb.opencga.core.config;
 
 public class Optimizations {
 
+    public static final long DEFAULT_PERMISSIONS_CACHE_TTL = 10;
+
     /**
      * Boolean indicating whether permission checks can be simplified. They could be simplified if owners do not remove permissions at
      * any entity level other than Study. By default, false.
      */
     private boolean simplifyPermissions;
 
+    /**
+     * Time (seconds) the owners, admins and groups of a study are cached by the authorization manager. Changes made by other
+     * processes will be visible after this time. 0 to disable the cache. By default, 10 seconds.
+     */
+    private long permissionsCacheTtl = DEFAULT_PERMISSIONS_CACHE_TTL;
+
     public Optimizations() {
     }
 
@@ -24,4 +32,13 @@ public class Optimizations {
         return this;
     }
 
+    public long getPermissionsCacheTtl() {
+        return permissionsCacheTtl;
+    }
+
+    public Optimizations setPermissionsCacheTtl(long permissionsCacheTtl) {
+        this.permissionsCacheTtl = permissionsCacheTtl;
+        return this;
+    }
+
 }
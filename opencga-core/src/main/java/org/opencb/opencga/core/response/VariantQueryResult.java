@@ -33,7 +33,8 @@ import java.util.Map;
         "approximateCount",
         "approximateCountSamplingSize",
         "fetchTime",
-        "convertTime"})
+        "convertTime",
+        "explain"})
 public class VariantQueryResult<T> extends OpenCGAResult<T> {
 
     private static final String SAMPLES = "samples";
@@ -44,6 +45,7 @@ public class VariantQueryResult<T> extends OpenCGAResult<T> {
     private static final String SOURCE = "source";
     private static final String APPROXIMATE_COUNT = "approximateCount";
     private static final String APPROXIMATE_COUNT_SAMPLING_SIZE = "approximateCountSamplingSize";
+    private static final String EXPLAIN = "explain";
 
     public VariantQueryResult() {
     }
@@ -164,6 +166,20 @@ public class VariantQueryResult<T> extends OpenCGAResult<T> {
         return this;
     }
 
+    public List<Map<String, Object>> getExplain() {
+        Object o = getAttributes().get(EXPLAIN);
+        if (!(o instanceof List)) {
+            return null;
+        } else {
+            return ((List<Map<String, Object>>) o);
+        }
+    }
+
+    public VariantQueryResult<T> setExplain(List<? extends Map<String, Object>> explain) {
+        getAttributes().put(EXPLAIN, explain);
+        return this;
+    }
+
     public String getSource() {
         return getAttributes().getString(SOURCE);
     }
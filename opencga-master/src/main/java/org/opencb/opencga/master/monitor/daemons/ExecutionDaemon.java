@@ -100,6 +100,7 @@ import javax.ws.rs.client.Entity;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.io.BufferedInputStream;
+import java.io.Closeable;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -112,8 +113,10 @@ import java.nio.file.Paths;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -134,7 +137,6 @@ public class ExecutionDaemon extends MonitorParentDaemon {
     private String internalCli;
     private JobManager jobManager;
     private FileManager fileManager;
-    private final Map<String, Long> jobsCountByType = new HashMap<>();
     private final Map<String, Long> retainedLogsTime = new HashMap<>();
 
     private Path defaultJobDir;
@@ -147,10 +149,15 @@ public class ExecutionDaemon extends MonitorParentDaemon {
     // (15 + 50 from pending), and it will check up to 50 finished jobs from the running ones.
     // On second iteration, it will queue the remaining 50 pending jobs, and so on...
     private static final int NUM_JOBS_HANDLED = 50;
-    private final Query pendingJobsQuery;
-    private final Query queuedJobsQuery;
-    private final Query runningJobsQuery;
+    // When watching the job changes, the index of jobs is reloaded from catalog only every N iterations, in case any change was missed.
+    private static final int RELOAD_JOBS_ITERATIONS = 60;
+    private final Query activeJobsQuery;
     private final QueryOptions queryOptions;
+    private final QueryOptions loadJobsOptions;
+
+    // Pending, queued and running jobs. Updated from the job changes, or reloaded on every iteration if changes can't be watched.
+    private final JobStateIndex jobIndex = new JobStateIndex();
+    private final BlockingQueue<Job> jobChanges = new LinkedBlockingQueue<>();
 
     private final ExecutorService executor = Executors.newSingleThreadExecutor();
 
@@ -239,21 +246,39 @@ public class ExecutionDaemon extends MonitorParentDaemon {
 
         this.defaultJobDir = Paths.get(catalogManager.getConfiguration().getJobDir());
 
-        pendingJobsQuery = new Query(JobDBAdaptor.QueryParams.INTERNAL_STATUS_NAME.key(), Enums.ExecutionStatus.PENDING);
-        queuedJobsQuery = new Query(JobDBAdaptor.QueryParams.INTERNAL_STATUS_NAME.key(), Enums.ExecutionStatus.QUEUED);
-        runningJobsQuery = new Query(JobDBAdaptor.QueryParams.INTERNAL_STATUS_NAME.key(), Enums.ExecutionStatus.RUNNING);
+        activeJobsQuery = new Query(JobDBAdaptor.QueryParams.INTERNAL_STATUS_NAME.key(), Enums.ExecutionStatus.PENDING + ","
+                + Enums.ExecutionStatus.QUEUED + "," + Enums.ExecutionStatus.RUNNING);
         // Sort jobs by priority and creation date
         queryOptions = new QueryOptions()
                 .append(QueryOptions.SORT, Arrays.asList(JobDBAdaptor.QueryParams.PRIORITY.key(),
                         JobDBAdaptor.QueryParams.CREATION_DATE.key()))
                 .append(QueryOptions.ORDER, QueryOptions.ASCENDING);
+        // Only the fields used by the index. Without the files and the study of the dependencies, no nested queries are made.
+        loadJobsOptions = new QueryOptions(QueryOptions.INCLUDE, Arrays.asList(
+                JobDBAdaptor.QueryParams.ID.key(),
+                JobDBAdaptor.QueryParams.UID.key(),
+                JobDBAdaptor.QueryParams.STUDY_UID.key(),
+                JobDBAdaptor.QueryParams.PRIORITY.key(),
+                JobDBAdaptor.QueryParams.CREATION_DATE.key(),
+                JobDBAdaptor.QueryParams.TOOL_ID.key(),
+                JobDBAdaptor.QueryParams.DEPENDS_ON.key() + "." + JobDBAdaptor.QueryParams.UID.key(),
+                JobDBAdaptor.QueryParams.INTERNAL_STATUS.key()));
     }
 
     @Override
     public void run() {
+        Closeable watcher = watchJobs();
+        int iterations = 0;
+        long lastCheck = 0;
         while (!exit) {
+            List<Job> changes = new ArrayList<>();
             try {
-                Thread.sleep(interval);
+                long wait = Math.max(0, interval - (System.currentTimeMillis() - lastCheck));
+                Job change = jobChanges.poll(wait, TimeUnit.MILLISECONDS);
+                if (change != null) {
+                    changes.add(change);
+                    jobChanges.drainTo(changes);
+                }
             } catch (InterruptedException e) {
                 if (!exit) {
                     e.printStackTrace();
@@ -261,12 +286,31 @@ public class ExecutionDaemon extends MonitorParentDaemon {
             }
 
             try {
-                checkJobs();
+                if (!changes.isEmpty() && updateJobIndex(changes)) {
+                    // New pending jobs, or jobs that finished and may unblock others. Do not wait for the next iteration.
+                    processPendingJobs();
+                }
+                if (System.currentTimeMillis() - lastCheck >= interval) {
+                    lastCheck = System.currentTimeMillis();
+                    if (watcher == null || iterations % RELOAD_JOBS_ITERATIONS == 0) {
+                        loadJobs();
+                    }
+                    iterations++;
+                    processJobs();
+                }
             } catch (Exception e) {
                 logger.error("Catch exception " + e.getMessage(), e);
             }
         }
 
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                logger.warn("Error closing job watcher", e);
+            }
+        }
+
         try {
             logger.info("Attempt to shutdown webhook executor");
             executor.shutdown();
@@ -282,48 +326,118 @@ public class ExecutionDaemon extends MonitorParentDaemon {
         }
     }
 
-    protected void checkJobs() {
-        long pendingJobs = -1;
-        long queuedJobs = -1;
-        long runningJobs = -1;
+    private Closeable watchJobs() {
         try {
-            pendingJobs = jobManager.count(pendingJobsQuery, token).getNumMatches();
-            queuedJobs = jobManager.count(queuedJobsQuery, token).getNumMatches();
-            runningJobs = jobManager.count(runningJobsQuery, token).getNumMatches();
+            Closeable watcher = jobManager.watch(jobChanges::add, token);
+            logger.info("Watching job changes");
+            return watcher;
         } catch (CatalogException e) {
+            logger.warn("Unable to watch job changes. Polling jobs every {}ms. {}", interval, e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean updateJobIndex(List<Job> changes) {
+        boolean changed = false;
+        for (Job change : changes) {
+            changed |= jobIndex.updateStatus(change);
+        }
+        return changed;
+    }
+
+    /**
+     * Reload all pending, queued and running jobs from catalog. Only the fields required by the index are fetched.
+     */
+    protected void loadJobs() {
+        try (DBIterator<Job> iterator = jobManager.iterator(activeJobsQuery, loadJobsOptions, token)) {
+            jobIndex.reset(iterator);
+        } catch (Exception e) {
             logger.error("{}", e.getMessage(), e);
         }
-        logger.info("----- EXECUTION DAEMON  ----- pending={}, queued={}, running={}", pendingJobs, queuedJobs, runningJobs);
+    }
+
+    protected void checkJobs() {
+        loadJobs();
+        processJobs();
+    }
+
+    private void processJobs() {
+        logger.info("----- EXECUTION DAEMON  ----- pending={}, queued={}, running={}", jobIndex.count(Enums.ExecutionStatus.PENDING),
+                jobIndex.count(Enums.ExecutionStatus.QUEUED), jobIndex.count(Enums.ExecutionStatus.RUNNING));
 
             /*
             PENDING JOBS
              */
-        checkPendingJobs();
+        processPendingJobs();
 
             /*
             QUEUED JOBS
              */
-        checkQueuedJobs();
+        processQueuedJobs();
 
             /*
             RUNNING JOBS
              */
-        checkRunningJobs();
+        processRunningJobs();
     }
 
     protected void checkRunningJobs() {
+        loadJobs();
+        processRunningJobs();
+    }
+
+    private void processRunningJobs() {
         int handledRunningJobs = 0;
-        try (DBIterator<Job> iterator = jobManager.iterator(runningJobsQuery, queryOptions, token)) {
-            while (handledRunningJobs < NUM_JOBS_HANDLED && iterator.hasNext()) {
-                try {
-                    Job job = iterator.next();
+        for (Job job : jobIndex.getJobs(Enums.ExecutionStatus.RUNNING)) {
+            if (handledRunningJobs >= NUM_JOBS_HANDLED) {
+                break;
+            }
+            try {
+                job = getCompleteJob(job);
+                if (job != null) {
                     handledRunningJobs += checkRunningJob(job);
-                } catch (Exception e) {
-                    logger.error("{}", e.getMessage(), e);
                 }
+            } catch (Exception e) {
+                logger.error("{}", e.getMessage(), e);
             }
-        } catch (Exception e) {
-            logger.error("{}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Jobs received from the job changes or loaded into the index only contain a few fields. Fetch the complete job from catalog if needed.
+     *
+     * @param job Job from the index
+     * @return Complete job, or null if the job is not in the same status anymore.
+     * @throws CatalogException on catalog errors.
+     */
+    private Job getCompleteJob(Job job) throws CatalogException {
+        if (job.getOutDir() != null && job.getStudy() != null) {
+            return job;
+        } else {
+            return reloadJob(job);
+        }
+    }
+
+    /**
+     * Fetch the job from catalog, and update the index.
+     *
+     * @param job Job from the index
+     * @return Current job, or null if the job is not in the same status anymore.
+     * @throws CatalogException on catalog errors.
+     */
+    private Job reloadJob(Job job) throws CatalogException {
+        Query query = new Query(JobDBAdaptor.QueryParams.UID.key(), job.getUid());
+        try (DBIterator<Job> iterator = jobManager.iterator(query, queryOptions, token)) {
+            if (!iterator.hasNext()) {
+                jobIndex.updateStatus(new Job().setUid(job.getUid()).setInternal(new JobInternal(
+                        new Enums.ExecutionStatus(Enums.ExecutionStatus.UNKNOWN))));
+                return null;
+            }
+            Job currentJob = iterator.next();
+            String status = currentJob.getInternal().getStatus().getName();
+            boolean sameStatus = status.equals(job.getInternal().getStatus().getName());
+            jobIndex.update(currentJob);
+            return sameStatus ? currentJob : null;
         }
     }
 
@@ -369,18 +483,24 @@ public class ExecutionDaemon extends MonitorParentDaemon {
     }
 
     protected void checkQueuedJobs() {
+        loadJobs();
+        processQueuedJobs();
+    }
+
+    private void processQueuedJobs() {
         int handledQueuedJobs = 0;
-        try (DBIterator<Job> iterator = jobManager.iterator(queuedJobsQuery, queryOptions, token)) {
-            while (handledQueuedJobs < NUM_JOBS_HANDLED && iterator.hasNext()) {
-                try {
-                    Job job = iterator.next();
+        for (Job job : jobIndex.getJobs(Enums.ExecutionStatus.QUEUED)) {
+            if (handledQueuedJobs >= NUM_JOBS_HANDLED) {
+                break;
+            }
+            try {
+                job = getCompleteJob(job);
+                if (job != null) {
                     handledQueuedJobs += checkQueuedJob(job);
-                } catch (Exception e) {
-                    logger.error("{}", e.getMessage(), e);
                 }
+            } catch (Exception e) {
+                logger.error("{}", e.getMessage(), e);
             }
-        } catch (Exception e) {
-            logger.error("{}", e.getMessage(), e);
         }
     }
 
@@ -421,21 +541,32 @@ public class ExecutionDaemon extends MonitorParentDaemon {
     }
 
     protected void checkPendingJobs() {
-        // Clear job counts each cycle
-        jobsCountByType.clear();
+        loadJobs();
+        processPendingJobs();
+    }
 
+    private void processPendingJobs() {
         int handledPendingJobs = 0;
-        try (DBIterator<Job> iterator = jobManager.iterator(pendingJobsQuery, queryOptions, token)) {
-            while (handledPendingJobs < NUM_JOBS_HANDLED && iterator.hasNext()) {
-                try {
-                    Job job = iterator.next();
+        for (Job job : jobIndex.getJobs(Enums.ExecutionStatus.PENDING)) {
+            if (handledPendingJobs >= NUM_JOBS_HANDLED) {
+                break;
+            }
+            // Skip, without querying catalog, the jobs that can not be queued yet
+            if (jobIndex.hasActiveDependencies(job) || (job.getTool() != null && !canToolBeQueued(job.getTool().getId()))) {
+                continue;
+            }
+            if (!batchExecutor.canBeQueued()) {
+                break;
+            }
+            try {
+                // Always fetch the pending jobs, as the status of their dependencies is required
+                job = reloadJob(job);
+                if (job != null) {
                     handledPendingJobs += checkPendingJob(job);
-                } catch (Exception e) {
-                    logger.error("{}", e.getMessage(), e);
                 }
+            } catch (Exception e) {
+                logger.error("{}", e.getMessage(), e);
             }
-        } catch (Exception e) {
-            logger.error("{}", e.getMessage(), e);
         }
     }
 
@@ -567,6 +698,7 @@ public class ExecutionDaemon extends MonitorParentDaemon {
         }
 
         job.getInternal().setStatus(updateParams.getInternal().getStatus());
+        jobIndex.update(job);
         notifyStatusChange(job);
 
         return 1;
@@ -809,28 +941,22 @@ public class ExecutionDaemon extends MonitorParentDaemon {
             return false;
         }
 
-        Integer maxJobs = catalogManager.getConfiguration().getAnalysis().getExecution().getMaxConcurrentJobs().get(job.getTool().getId());
+        return canToolBeQueued(job.getTool().getId());
+    }
+
+    private boolean canToolBeQueued(String toolId) {
+        Integer maxJobs = catalogManager.getConfiguration().getAnalysis().getExecution().getMaxConcurrentJobs().get(toolId);
         if (maxJobs == null) {
             // No limit for this tool
             return true;
         } else {
-            return canBeQueued(job.getTool().getId(), maxJobs);
+            return canBeQueued(toolId, maxJobs);
         }
     }
 
     private boolean canBeQueued(String toolId, int maxJobs) {
-        Query query = new Query()
-                .append(JobDBAdaptor.QueryParams.INTERNAL_STATUS_NAME.key(), Enums.ExecutionStatus.QUEUED + ","
-                        + Enums.ExecutionStatus.RUNNING)
-                .append(JobDBAdaptor.QueryParams.TOOL_ID.key(), toolId);
-        long currentJobs = jobsCountByType.computeIfAbsent(toolId, k -> {
-            try {
-                return catalogManager.getJobManager().count(query, token).getNumMatches();
-            } catch (CatalogException e) {
-                logger.error("Error counting the current number of running and queued \"" + toolId + "\" jobs", e);
-                return 0L;
-            }
-        });
+        // Queued and running jobs are counted incrementally by the index
+        long currentJobs = jobIndex.countActive(toolId);
         if (currentJobs >= maxJobs) {
             long now = System.currentTimeMillis();
             Long lastTimeLog = retainedLogsTime.getOrDefault(toolId, 0L);
@@ -842,7 +968,6 @@ public class ExecutionDaemon extends MonitorParentDaemon {
             }
             return false;
         } else {
-            jobsCountByType.remove(toolId);
             retainedLogsTime.put(toolId, 0L);
             return true;
         }
@@ -870,6 +995,7 @@ public class ExecutionDaemon extends MonitorParentDaemon {
         }
 
         job.getInternal().setStatus(status);
+        jobIndex.update(job);
         notifyStatusChange(job);
 
         return 1;
@@ -1089,6 +1215,7 @@ public class ExecutionDaemon extends MonitorParentDaemon {
         }
 
         job.getInternal().setStatus(updateParams.getInternal().getStatus());
+        jobIndex.update(job);
         notifyStatusChange(job);
 
         return 1;
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.master.monitor.daemons;
+
+import org.opencb.opencga.core.models.common.Enums;
+import org.opencb.opencga.core.models.job.Job;
+
+import java.util.*;
+
+/**
+ * In-memory index of the jobs handled by the {@link ExecutionDaemon}. Only contains pending, queued and running jobs,
+ * and maintains the number of queued and running jobs of each tool, so they don't need to be counted in catalog.
+ *
+ * Not thread safe. Must only be used from the daemon thread.
+ */
+class JobStateIndex {
+
+    private static final Comparator<Job> JOB_COMPARATOR = Comparator
+            .comparingInt((Job job) -> job.getPriority() == null ? Enums.Priority.UNKNOWN.getValue() : job.getPriority().getValue())
+            .thenComparing(job -> job.getCreationDate() == null ? "" : job.getCreationDate())
+            .thenComparingLong(Job::getUid);
+
+    private final Map<Long, Job> jobs = new HashMap<>();
+    private final Map<String, Integer> activeJobsByTool = new HashMap<>();
+    private final Map<String, Integer> jobsByStatus = new HashMap<>();
+
+    /**
+     * Replace the content of the index.
+     *
+     * @param iterator Iterator over all the pending, queued and running jobs.
+     */
+    void reset(Iterator<Job> iterator) {
+        jobs.clear();
+        activeJobsByTool.clear();
+        jobsByStatus.clear();
+        while (iterator.hasNext()) {
+            add(iterator.next());
+        }
+    }
+
+    /**
+     * Add or replace a job. Jobs in any status other than pending, queued or running are removed from the index.
+     *
+     * @param job Complete job object.
+     * @return if the status of the job changed.
+     */
+    boolean update(Job job) {
+        Job previous = jobs.get(job.getUid());
+        boolean changed = previous == null ? isTracked(job) : !getStatus(previous).equals(getStatus(job));
+        if (previous != null) {
+            remove(previous);
+        }
+        add(job);
+        return changed;
+    }
+
+    /**
+     * Update the status of a job from a partial job object.
+     * If the job was already in the index, only the status is modified, keeping the rest of the previously known fields.
+     *
+     * @param partialJob Partial job object, containing at least the uid, tool and internal status.
+     * @return if the status of the job changed.
+     */
+    boolean updateStatus(Job partialJob) {
+        Job previous = jobs.get(partialJob.getUid());
+        if (previous == null) {
+            if (isTracked(partialJob)) {
+                add(partialJob);
+                return true;
+            } else {
+                return false;
+            }
+        }
+        if (getStatus(previous).equals(getStatus(partialJob))) {
+            return false;
+        }
+        remove(previous);
+        previous.getInternal().setStatus(partialJob.getInternal().getStatus());
+        add(previous);
+        return true;
+    }
+
+    boolean contains(long uid) {
+        return jobs.containsKey(uid);
+    }
+
+    /**
+     * @param job Job
+     * @return if any of the jobs this job depends on is still pending, queued or running.
+     */
+    boolean hasActiveDependencies(Job job) {
+        if (job.getDependsOn() != null) {
+            for (Job dependency : job.getDependsOn()) {
+                if (jobs.containsKey(dependency.getUid())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param status Job status
+     * @return Jobs in the given status, sorted by priority and creation date.
+     */
+    List<Job> getJobs(String status) {
+        List<Job> list = new ArrayList<>();
+        for (Job job : jobs.values()) {
+            if (getStatus(job).equals(status)) {
+                list.add(job);
+            }
+        }
+        list.sort(JOB_COMPARATOR);
+        return list;
+    }
+
+    int count(String status) {
+        return jobsByStatus.getOrDefault(status, 0);
+    }
+
+    /**
+     * @param toolId Tool id
+     * @return Number of queued and running jobs of the tool.
+     */
+    int countActive(String toolId) {
+        return activeJobsByTool.getOrDefault(toolId, 0);
+    }
+
+    private void add(Job job) {
+        if (!isTracked(job)) {
+            return;
+        }
+        String status = getStatus(job);
+        jobs.put(job.getUid(), job);
+        jobsByStatus.merge(status, 1, Integer::sum);
+        if (isActive(status)) {
+            activeJobsByTool.merge(getToolId(job), 1, Integer::sum);
+        }
+    }
+
+    private void remove(Job job) {
+        String status = getStatus(job);
+        jobs.remove(job.getUid());
+        jobsByStatus.computeIfPresent(status, (k, v) -> v > 1 ? v - 1 : null);
+        if (isActive(status)) {
+            activeJobsByTool.computeIfPresent(getToolId(job), (k, v) -> v > 1 ? v - 1 : null);
+        }
+    }
+
+    private static boolean isTracked(Job job) {
+        String status = getStatus(job);
+        return status.equals(Enums.ExecutionStatus.PENDING) || isActive(status);
+    }
+
+    private static boolean isActive(String status) {
+        return status.equals(Enums.ExecutionStatus.QUEUED) || status.equals(Enums.ExecutionStatus.RUNNING);
+    }
+
+    private static String getStatus(Job job) {
+        if (job.getInternal() == null || job.getInternal().getStatus() == null || job.getInternal().getStatus().getName() == null) {
+            return Enums.ExecutionStatus.UNKNOWN;
+        }
+        return job.getInternal().getStatus().getName();
+    }
+
+    private static String getToolId(Job job) {
+        return job.getTool() == null || job.getTool().getId() == null ? "" : job.getTool().getId();
+    }
+}
@@ -40,6 +40,9 @@ public class ExecutorFactory {
             case "local":
                 this.executor = new LocalExecutor(execution);
                 break;
+            case "local-worker":
+                this.executor = new LocalWorkerExecutor(execution);
+                break;
             case "sge":
                 this.executor = new SGEExecutor(execution);
                 break;
@@ -53,7 +56,7 @@ public class ExecutorFactory {
                 break;
             default:
                 throw new UnsupportedOperationException("nonsoupported execution mode { " + mode
-                        + " }, accepted modes are : local, sge, azure");
+                        + " }, accepted modes are : local, local-worker, sge, azure, k8s");
         }
     }
 
@@ -41,10 +41,10 @@ public class LocalExecutor implements BatchExecutor {
     public static final String MAX_CONCURRENT_JOBS = "local.maxConcurrentJobs";
 
     private static int threadInitNumber;
-    private static Logger logger;
-    private final ExecutorService threadPool;
-    private final Map<String, String> jobStatus;
-    private final int maxConcurrentJobs;
+    protected static Logger logger;
+    protected final ExecutorService threadPool;
+    protected final Map<String, String> jobStatus;
+    protected final int maxConcurrentJobs;
 
     public LocalExecutor(Execution execution) {
         logger = LoggerFactory.getLogger(LocalExecutor.class);
@@ -61,60 +61,72 @@ public class LocalExecutor implements BatchExecutor {
     @Override
     public void execute(String jobId, String queue, String commandLine, Path stdout, Path stderr) throws Exception {
         jobStatus.put(jobId, Enums.ExecutionStatus.QUEUED);
-        Runnable runnable = () -> {
+        threadPool.submit(() -> runCommand(jobId, commandLine, stdout, stderr));
+    }
+
+    /**
+     * Run the command line in a new process, and wait for it to finish.
+     *
+     * @param jobId         Job id
+     * @param commandLine   Command line to execute
+     * @param stdout        File where the standard output will be redirected
+     * @param stderr        File where the standard error will be redirected
+     */
+    protected void runCommand(String jobId, String commandLine, Path stdout, Path stderr) {
+        try {
+            Thread.currentThread().setName("LocalExecutor-" + nextThreadNum());
+            if (!jobStatus.replace(jobId, Enums.ExecutionStatus.QUEUED, Enums.ExecutionStatus.RUNNING)) {
+                logger.info("Job {} is not queued anymore. Skip execution", jobId);
+                return;
+            }
+            logger.info("Ready to run - {}", commandLine);
+            Command com = new Command(commandLine);
+
+            DataOutputStream dataOutputStream = new DataOutputStream(new FileOutputStream(stdout.toFile()));
+            com.setOutputOutputStream(dataOutputStream);
+
+            dataOutputStream = new DataOutputStream(new FileOutputStream(stderr.toFile()));
+            com.setErrorOutputStream(dataOutputStream);
+
+            Thread hook = new Thread(() -> {
+                logger.info("Running ShutdownHook. Job {id: " + jobId + "} has being aborted.");
+                com.setStatus(RunnableProcess.Status.KILLED);
+                com.setExitValue(-2);
+                closeOutputStreams(com);
+                jobStatus.put(jobId, Enums.ExecutionStatus.ERROR);
+            });
+
+            logger.info("==========================================");
+            logger.info("Executing job {}", jobId);
+            logger.debug("Executing commandLine {}", commandLine);
+            logger.info("==========================================");
+            System.err.println();
+
             try {
-                Thread.currentThread().setName("LocalExecutor-" + nextThreadNum());
-                logger.info("Ready to run - {}", commandLine);
-                jobStatus.put(jobId, Enums.ExecutionStatus.RUNNING);
-                Command com = new Command(commandLine);
-
-                DataOutputStream dataOutputStream = new DataOutputStream(new FileOutputStream(stdout.toFile()));
-                com.setOutputOutputStream(dataOutputStream);
-
-                dataOutputStream = new DataOutputStream(new FileOutputStream(stderr.toFile()));
-                com.setErrorOutputStream(dataOutputStream);
-
-                Thread hook = new Thread(() -> {
-                    logger.info("Running ShutdownHook. Job {id: " + jobId + "} has being aborted.");
-                    com.setStatus(RunnableProcess.Status.KILLED);
-                    com.setExitValue(-2);
-                    closeOutputStreams(com);
-                    jobStatus.put(jobId, Enums.ExecutionStatus.ERROR);
-                });
-
-                logger.info("==========================================");
-                logger.info("Executing job {}", jobId);
-                logger.debug("Executing commandLine {}", commandLine);
-                logger.info("==========================================");
-                System.err.println();
-
-                try {
-                    Runtime.getRuntime().addShutdownHook(hook);
-                    com.run();
-                } finally {
-                    Runtime.getRuntime().removeShutdownHook(hook);
-                    closeOutputStreams(com);
-                }
-
-                System.err.println();
-                logger.info("==========================================");
-                logger.info("Finished job {}", jobId);
-                logger.info("==========================================");
-
-                if (com.getStatus().equals(RunnableProcess.Status.DONE)) {
-                    jobStatus.put(jobId, Enums.ExecutionStatus.DONE);
-                } else {
-                    jobStatus.put(jobId, Enums.ExecutionStatus.ERROR);
-                }
-            } catch (Throwable throwable) {
-                logger.error("Error running job " + jobId, throwable);
+                Runtime.getRuntime().addShutdownHook(hook);
+                com.run();
+            } finally {
+                Runtime.getRuntime().removeShutdownHook(hook);
+                closeOutputStreams(com);
+            }
+
+            System.err.println();
+            logger.info("==========================================");
+            logger.info("Finished job {}", jobId);
+            logger.info("==========================================");
+
+            if (com.getStatus().equals(RunnableProcess.Status.DONE)) {
+                jobStatus.put(jobId, Enums.ExecutionStatus.DONE);
+            } else {
                 jobStatus.put(jobId, Enums.ExecutionStatus.ERROR);
             }
-        };
-        threadPool.submit(runnable);
+        } catch (Throwable throwable) {
+            logger.error("Error running job " + jobId, throwable);
+            jobStatus.put(jobId, Enums.ExecutionStatus.ERROR);
+        }
     }
 
-    private static synchronized int nextThreadNum() {
+    protected static synchronized int nextThreadNum() {
         return threadInitNumber++;
     }
 
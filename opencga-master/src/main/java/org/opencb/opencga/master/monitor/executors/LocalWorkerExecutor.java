@@ -0,0 +1,426 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.master.monitor.executors;
+
+import org.apache.commons.lang3.StringUtils;
+import org.opencb.opencga.core.config.Execution;
+import org.opencb.opencga.core.models.common.Enums;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Local executor that runs the internal command lines inside a pool of long-lived worker JVMs, instead of starting a new JVM
+ * for every job. Jobs avoid paying the JVM startup, class loading and storage engine initialization on every execution.
+ *
+ * Each worker runs one job at a time, with the stdout and stderr redirected to the job log files. Workers are recycled after
+ * a number of jobs, when the heap usage after a job is too high, or after a job is cancelled. Command lines that are not
+ * from the internal CLI are executed in a new process, as in the {@link LocalExecutor}.
+ */
+public class LocalWorkerExecutor extends LocalExecutor {
+
+    public static final String WORKER_MAX_JOBS = "local.worker.maxJobs";
+    public static final String WORKER_MAX_HEAP_USAGE = "local.worker.maxHeapUsage";
+    public static final String WORKER_MEMORY = "local.worker.memory";
+    public static final String WORKER_CPUS = "local.worker.cpus";
+    public static final String WORKER_JAVA_OPTS = "local.worker.javaOpts";
+    public static final String WORKER_STOP_TIMEOUT = "local.worker.stopTimeout";
+    public static final String WORKER_START_TIMEOUT = "local.worker.startTimeout";
+
+    private static final String INTERNAL_CLI = "opencga-internal.sh";
+    private static final int WORKER_EXIT_TIMEOUT_SECONDS = 10;
+
+    private final int workerMaxJobs;
+    private final double workerMaxHeapUsage;
+    private final String workerMemory;
+    private final int workerCpus;
+    private final String workerJavaOpts;
+    private final long stopTimeoutMillis;
+    private final long startTimeoutMillis;
+
+    private final BlockingQueue<Worker> idleWorkers = new LinkedBlockingQueue<>();
+    private final Map<String, Worker> runningJobs = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService killScheduler;
+
+    public LocalWorkerExecutor(Execution execution) {
+        super(execution);
+        workerMaxJobs = execution.getOptions().getInt(WORKER_MAX_JOBS, 50);
+        workerMaxHeapUsage = execution.getOptions().getDouble(WORKER_MAX_HEAP_USAGE, 0.75);
+        workerMemory = execution.getOptions().getString(WORKER_MEMORY);
+        workerCpus = execution.getOptions().getInt(WORKER_CPUS, 0);
+        workerJavaOpts = execution.getOptions().getString(WORKER_JAVA_OPTS);
+        stopTimeoutMillis = TimeUnit.SECONDS.toMillis(execution.getOptions().getLong(WORKER_STOP_TIMEOUT, 60));
+        startTimeoutMillis = TimeUnit.SECONDS.toMillis(execution.getOptions().getLong(WORKER_START_TIMEOUT, 300));
+
+        killScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "LocalWorkerExecutor-kill");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            for (Worker worker : runningJobs.values()) {
+                worker.destroy();
+            }
+            for (Worker worker : idleWorkers) {
+                worker.destroy();
+            }
+        }));
+    }
+
+    @Override
+    public void execute(String jobId, String queue, String commandLine, Path stdout, Path stderr) throws Exception {
+        List<String> args = parseCommandLine(commandLine);
+        if (args.isEmpty() || !args.get(0).endsWith(INTERNAL_CLI)) {
+            logger.info("Job '{}' is not an internal command. Execute in a new process", jobId);
+            super.execute(jobId, queue, commandLine, stdout, stderr);
+            return;
+        }
+        jobStatus.put(jobId, Enums.ExecutionStatus.QUEUED);
+        threadPool.submit(() -> runInWorker(jobId, args.get(0), args.subList(1, args.size()), stdout, stderr));
+    }
+
+    private void runInWorker(String jobId, String internalCli, List<String> args, Path stdout, Path stderr) {
+        Thread.currentThread().setName("LocalWorkerExecutor-" + nextThreadNum());
+        Worker worker = null;
+        try {
+            worker = getWorker(internalCli);
+            runningJobs.put(jobId, worker);
+            if (!jobStatus.replace(jobId, Enums.ExecutionStatus.QUEUED, Enums.ExecutionStatus.RUNNING)) {
+                // Killed before starting
+                return;
+            }
+
+            logger.info("==========================================");
+            logger.info("Executing job {} in worker {}", jobId, worker);
+            logger.info("==========================================");
+            long start = System.currentTimeMillis();
+            int exitCode = worker.run(jobId, args, stdout, stderr);
+            logger.info("==========================================");
+            logger.info("Finished job {} in {}s with exit code {}", jobId, (System.currentTimeMillis() - start) / 1000.0, exitCode);
+            logger.info("==========================================");
+
+            String status = exitCode == 0 ? Enums.ExecutionStatus.DONE : Enums.ExecutionStatus.ERROR;
+            if (!jobStatus.replace(jobId, Enums.ExecutionStatus.RUNNING, status)) {
+                // Job was stopped. The worker may be in an unexpected state.
+                worker.close();
+                worker = null;
+            } else if (worker.getNumJobs() >= workerMaxJobs || worker.getHeapUsage() > workerMaxHeapUsage) {
+                logger.info("Recycle worker {} after {} jobs. Heap usage {}%", worker, worker.getNumJobs(),
+                        Math.round(worker.getHeapUsage() * 100));
+                worker.close();
+                // Keep the pool warm
+                worker = new Worker(internalCli);
+            }
+        } catch (Throwable throwable) {
+            logger.error("Error running job " + jobId + " in worker " + worker, throwable);
+            jobStatus.replace(jobId, Enums.ExecutionStatus.QUEUED, Enums.ExecutionStatus.ERROR);
+            jobStatus.replace(jobId, Enums.ExecutionStatus.RUNNING, Enums.ExecutionStatus.ERROR);
+            if (worker != null) {
+                worker.destroy();
+                worker = null;
+            }
+        } finally {
+            runningJobs.remove(jobId);
+            if (worker != null) {
+                idleWorkers.add(worker);
+            }
+        }
+    }
+
+    private Worker getWorker(String internalCli) throws IOException {
+        Worker worker;
+        while ((worker = idleWorkers.poll()) != null) {
+            if (worker.isAlive()) {
+                return worker;
+            }
+        }
+        return new Worker(internalCli);
+    }
+
+    /**
+     * Stop gracefully the job, interrupting the thread running it. If the job does not finish in the configured time, the worker
+     * is killed.
+     *
+     * @param jobId Job id
+     * @return if the job was stopped
+     */
+    @Override
+    public boolean stop(String jobId) {
+        if (jobStatus.replace(jobId, Enums.ExecutionStatus.QUEUED, Enums.ExecutionStatus.ABORTED)) {
+            return true;
+        }
+        Worker worker = runningJobs.get(jobId);
+        if (worker == null || !jobStatus.replace(jobId, Enums.ExecutionStatus.RUNNING, Enums.ExecutionStatus.ABORTED)) {
+            return false;
+        }
+        logger.info("Stopping job {} in worker {}", jobId, worker);
+        try {
+            worker.cancel(jobId);
+        } catch (IOException e) {
+            logger.warn("Unable to cancel job " + jobId + ". Kill worker " + worker, e);
+            worker.destroy();
+            return true;
+        }
+        killScheduler.schedule(() -> {
+            if (runningJobs.get(jobId) == worker) {
+                logger.warn("Job {} did not stop after {}ms. Kill worker {}", jobId, stopTimeoutMillis, worker);
+                worker.destroy();
+            }
+        }, stopTimeoutMillis, TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    @Override
+    public boolean kill(String jobId) {
+        if (jobStatus.replace(jobId, Enums.ExecutionStatus.QUEUED, Enums.ExecutionStatus.ABORTED)) {
+            return true;
+        }
+        Worker worker = runningJobs.get(jobId);
+        if (worker == null || !jobStatus.replace(jobId, Enums.ExecutionStatus.RUNNING, Enums.ExecutionStatus.ABORTED)) {
+            return false;
+        }
+        logger.info("Killing job {} and worker {}", jobId, worker);
+        worker.destroy();
+        return true;
+    }
+
+    @Override
+    public boolean canBeQueued() {
+        long activeJobs = jobStatus.values()
+                .stream()
+                .filter(s -> s.equals(Enums.ExecutionStatus.RUNNING) || s.equals(Enums.ExecutionStatus.QUEUED))
+                .count();
+        // Stopped jobs may still be using a worker
+        long stoppingJobs = runningJobs.keySet()
+                .stream()
+                .filter(jobId -> Enums.ExecutionStatus.ABORTED.equals(jobStatus.get(jobId)))
+                .count();
+        return activeJobs + stoppingJobs < maxConcurrentJobs;
+    }
+
+    int getNumIdleWorkers() {
+        return idleWorkers.size();
+    }
+
+    /**
+     * Split the command line into arguments, as a shell would do. Supports single quotes, double quotes and backslash escapes.
+     *
+     * @param commandLine Command line
+     * @return List of arguments
+     */
+    public static List<String> parseCommandLine(String commandLine) {
+        List<String> args = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean inArg = false;
+        char quote = 0;
+        for (int i = 0; i < commandLine.length(); i++) {
+            char c = commandLine.charAt(i);
+            if (quote == '\'') {
+                if (c == '\'') {
+                    quote = 0;
+                } else {
+                    current.append(c);
+                }
+            } else if (quote == '"') {
+                if (c == '"') {
+                    quote = 0;
+                } else if (c == '\\' && i + 1 < commandLine.length() && "\"\\$`".indexOf(commandLine.charAt(i + 1)) >= 0) {
+                    current.append(commandLine.charAt(++i));
+                } else {
+                    current.append(c);
+                }
+            } else if (Character.isWhitespace(c)) {
+                if (inArg) {
+                    args.add(current.toString());
+                    current.setLength(0);
+                    inArg = false;
+                }
+            } else {
+                inArg = true;
+                if (c == '\'' || c == '"') {
+                    quote = c;
+                } else if (c == '\\' && i + 1 < commandLine.length()) {
+                    current.append(commandLine.charAt(++i));
+                } else {
+                    current.append(c);
+                }
+            }
+        }
+        if (quote != 0) {
+            throw new IllegalArgumentException("Unbalanced quotes in command line");
+        }
+        if (inArg) {
+            args.add(current.toString());
+        }
+        return args;
+    }
+
+    private class Worker implements Closeable {
+        private final Process process;
+        private final Socket socket;
+        private final BufferedReader reader;
+        private final Writer writer;
+        private int numJobs;
+        private double heapUsage;
+
+        Worker(String internalCli) throws IOException {
+            try (ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+                String token = UUID.randomUUID().toString();
+                ProcessBuilder processBuilder = new ProcessBuilder(internalCli, LocalWorkerProtocol.WORKER_ARG,
+                        String.valueOf(serverSocket.getLocalPort()));
+                processBuilder.environment().put(LocalWorkerProtocol.TOKEN_ENV, token);
+                if (StringUtils.isNotEmpty(workerMemory)) {
+                    processBuilder.environment().put("JAVA_HEAP", workerMemory);
+                }
+                String javaOpts = processBuilder.environment().getOrDefault("JAVA_OPTS", "");
+                if (workerCpus > 0) {
+                    javaOpts += " -XX:ActiveProcessorCount=" + workerCpus;
+                }
+                if (StringUtils.isNotEmpty(workerJavaOpts)) {
+                    javaOpts += " " + workerJavaOpts;
+                }
+                processBuilder.environment().put("JAVA_OPTS", javaOpts);
+                // Worker logs in between jobs
+                processBuilder.redirectOutput(ProcessBuilder.Redirect.INHERIT);
+                processBuilder.redirectError(ProcessBuilder.Redirect.INHERIT);
+
+                process = processBuilder.start();
+                process.getOutputStream().close();
+                try {
+                    socket = accept(serverSocket);
+                    reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                    writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+
+                    socket.setSoTimeout((int) startTimeoutMillis);
+                    List<String> message = read();
+                    socket.setSoTimeout(0);
+                    if (message.size() != 2 || !message.get(0).equals(LocalWorkerProtocol.READY) || !message.get(1).equals(token)) {
+                        throw new IOException("Unexpected message from worker: " + message.get(0));
+                    }
+                } catch (IOException e) {
+                    destroy();
+                    throw e;
+                }
+            }
+            logger.info("Started worker {}", this);
+        }
+
+        private Socket accept(ServerSocket serverSocket) throws IOException {
+            // Check periodically if the process is still alive, to fail fast if the worker could not start
+            serverSocket.setSoTimeout(1000);
+            long deadline = System.currentTimeMillis() + startTimeoutMillis;
+            while (true) {
+                try {
+                    return serverSocket.accept();
+                } catch (SocketTimeoutException e) {
+                    if (!process.isAlive()) {
+                        throw new IOException("Worker finished with exit code " + process.exitValue() + " before connecting");
+                    } else if (System.currentTimeMillis() > deadline) {
+                        throw new IOException("Worker did not connect after " + startTimeoutMillis + "ms");
+                    }
+                }
+            }
+        }
+
+        int run(String jobId, List<String> args, Path stdout, Path stderr) throws IOException {
+            List<String> fields = new ArrayList<>(args.size() + 3);
+            fields.add(jobId);
+            fields.add(stdout.toAbsolutePath().toString());
+            fields.add(stderr.toAbsolutePath().toString());
+            fields.addAll(args);
+            send(LocalWorkerProtocol.RUN, fields);
+            numJobs++;
+
+            List<String> message = read();
+            if (!message.get(0).equals(LocalWorkerProtocol.DONE) || !message.get(1).equals(jobId)) {
+                throw new IOException("Unexpected message from worker: " + message);
+            }
+            int exitCode = Integer.parseInt(message.get(2));
+            heapUsage = Double.parseDouble(message.get(3)) / Double.parseDouble(message.get(4));
+            return exitCode;
+        }
+
+        void cancel(String jobId) throws IOException {
+            send(LocalWorkerProtocol.CANCEL, Collections.singletonList(jobId));
+        }
+
+        int getNumJobs() {
+            return numJobs;
+        }
+
+        double getHeapUsage() {
+            return heapUsage;
+        }
+
+        boolean isAlive() {
+            return process.isAlive();
+        }
+
+        void destroy() {
+            process.destroyForcibly();
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    logger.debug("Error closing socket of worker " + this, e);
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                send(LocalWorkerProtocol.EXIT, Collections.emptyList());
+                if (!process.waitFor(WORKER_EXIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    logger.warn("Worker {} did not finish after {}s", this, WORKER_EXIT_TIMEOUT_SECONDS);
+                }
+            } catch (IOException e) {
+                logger.debug("Error closing worker " + this, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                destroy();
+            }
+        }
+
+        private synchronized void send(String type, List<String> fields) throws IOException {
+            writer.write(LocalWorkerProtocol.encode(type, fields));
+            writer.write('\n');
+            writer.flush();
+        }
+
+        private List<String> read() throws IOException {
+            String line = reader.readLine();
+            if (line == null) {
+                throw new IOException("Worker " + this + " died");
+            }
+            return LocalWorkerProtocol.decode(line);
+        }
+
+        @Override
+        public String toString() {
+            return "worker-" + Integer.toHexString(System.identityHashCode(this));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.master.monitor.executors;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Line based protocol between the {@link LocalWorkerExecutor} and the worker JVMs.
+ * Each message is a single line, with the message type followed by a list of base64 encoded fields, separated by tabs.
+ *
+ * Messages are exchanged through a dedicated loopback socket, so anything written to the stdout of the worker by third party
+ * libraries can not corrupt the protocol. The executor listens on a random port, and starts the worker with the arguments
+ * {@link #WORKER_ARG} and the port. The worker connects to the port and sends the READY message with the token received in
+ * the environment variable {@link #TOKEN_ENV}, to ensure the connection is coming from the expected process.
+ *
+ *  - READY token                                    worker -> executor : Worker initialized
+ *  - RUN jobId stdout stderr arg1 arg2 ...          executor -> worker : Run the internal command line
+ *  - DONE jobId exitCode usedHeap maxHeap           worker -> executor : Job finished
+ *  - CANCEL jobId                                   executor -> worker : Interrupt the job
+ *  - EXIT                                           executor -> worker : Finish the worker
+ */
+public final class LocalWorkerProtocol {
+
+    /**
+     * Argument for the internal command line to start a worker, instead of executing a single command.
+     */
+    public static final String WORKER_ARG = "--internal-worker";
+
+    /**
+     * Environment variable with the token the worker has to send in the READY message.
+     */
+    public static final String TOKEN_ENV = "OPENCGA_WORKER_TOKEN";
+
+    public static final String READY = "READY";
+    public static final String RUN = "RUN";
+    public static final String DONE = "DONE";
+    public static final String CANCEL = "CANCEL";
+    public static final String EXIT = "EXIT";
+
+    private static final char SEPARATOR = '\t';
+
+    private LocalWorkerProtocol() {
+    }
+
+    public static String encode(String type, List<String> fields) {
+        StringBuilder sb = new StringBuilder(type);
+        for (String field : fields) {
+            sb.append(SEPARATOR).append(Base64.getEncoder().encodeToString(field.getBytes(StandardCharsets.UTF_8)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Decode a message.
+     *
+     * @param line Line read from the stream
+     * @return List with the message type followed by the fields
+     */
+    public static List<String> decode(String line) {
+        List<String> message = new ArrayList<>();
+        int start = 0;
+        int end;
+        do {
+            end = line.indexOf(SEPARATOR, start);
+            String value = end < 0 ? line.substring(start) : line.substring(start, end);
+            if (message.isEmpty()) {
+                message.add(value);
+            } else {
+                message.add(new String(Base64.getDecoder().decode(value), StandardCharsets.UTF_8));
+            }
+            start = end + 1;
+        } while (end >= 0);
+        return message;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.master.monitor.daemons;
+
+import org.junit.Test;
+import org.opencb.opencga.core.models.common.Enums;
+import org.opencb.opencga.core.models.job.Job;
+import org.opencb.opencga.core.models.job.JobInternal;
+import org.opencb.opencga.core.models.job.ToolInfo;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class JobStateIndexTest {
+
+    @Test
+    public void testCounters() {
+        JobStateIndex index = new JobStateIndex();
+        index.reset(Arrays.asList(
+                job(1, "tool1", Enums.ExecutionStatus.PENDING),
+                job(2, "tool1", Enums.ExecutionStatus.QUEUED),
+                job(3, "tool1", Enums.ExecutionStatus.RUNNING),
+                job(4, "tool2", Enums.ExecutionStatus.RUNNING)).iterator());
+
+        assertEquals(1, index.count(Enums.ExecutionStatus.PENDING));
+        assertEquals(1, index.count(Enums.ExecutionStatus.QUEUED));
+        assertEquals(2, index.count(Enums.ExecutionStatus.RUNNING));
+        assertEquals(2, index.countActive("tool1"));
+        assertEquals(1, index.countActive("tool2"));
+
+        // Pending -> Queued
+        assertTrue(index.updateStatus(job(1, "tool1", Enums.ExecutionStatus.QUEUED)));
+        assertEquals(3, index.countActive("tool1"));
+        assertEquals(0, index.count(Enums.ExecutionStatus.PENDING));
+
+        // Same status. Nothing changes
+        assertFalse(index.updateStatus(job(1, "tool1", Enums.ExecutionStatus.QUEUED)));
+        assertEquals(3, index.countActive("tool1"));
+
+        // Finished jobs are removed
+        assertTrue(index.update(job(3, "tool1", Enums.ExecutionStatus.DONE)));
+        assertFalse(index.contains(3));
+        assertEquals(2, index.countActive("tool1"));
+        assertEquals(1, index.count(Enums.ExecutionStatus.RUNNING));
+
+        // Unknown finished jobs are ignored
+        assertFalse(index.updateStatus(job(5, "tool2", Enums.ExecutionStatus.ERROR)));
+        assertFalse(index.contains(5));
+
+        // New pending job
+        assertTrue(index.updateStatus(job(6, "tool2", Enums.ExecutionStatus.PENDING)));
+        assertEquals(1, index.count(Enums.ExecutionStatus.PENDING));
+        assertEquals(1, index.countActive("tool2"));
+    }
+
+    @Test
+    public void testUpdateStatusKeepsJob() {
+        JobStateIndex index = new JobStateIndex();
+        Job job = job(1, "tool1", Enums.ExecutionStatus.QUEUED).setId("myJob");
+        index.update(job);
+
+        index.updateStatus(job(1, "tool1", Enums.ExecutionStatus.RUNNING));
+        Job indexedJob = index.getJobs(Enums.ExecutionStatus.RUNNING).get(0);
+        assertSame(job, indexedJob);
+        assertEquals("myJob", indexedJob.getId());
+        assertEquals(Enums.ExecutionStatus.RUNNING, indexedJob.getInternal().getStatus().getName());
+    }
+
+    @Test
+    public void testSortAndDependencies() {
+        JobStateIndex index = new JobStateIndex();
+        index.update(job(1, "tool", Enums.ExecutionStatus.PENDING).setPriority(Enums.Priority.LOW).setCreationDate("20201017000000"));
+        index.update(job(2, "tool", Enums.ExecutionStatus.PENDING).setPriority(Enums.Priority.HIGH).setCreationDate("20201017000002"));
+        index.update(job(3, "tool", Enums.ExecutionStatus.PENDING).setPriority(Enums.Priority.HIGH).setCreationDate("20201017000001"));
+        Job dependent = job(4, "tool", Enums.ExecutionStatus.PENDING).setPriority(Enums.Priority.URGENT)
+                .setDependsOn(Collections.singletonList(new Job().setUid(1)));
+        index.update(dependent);
+
+        assertEquals(Arrays.asList(4L, 3L, 2L, 1L), index.getJobs(Enums.ExecutionStatus.PENDING).stream()
+                .map(Job::getUid).collect(Collectors.toList()));
+
+        assertTrue(index.hasActiveDependencies(dependent));
+        index.updateStatus(job(1, "tool", Enums.ExecutionStatus.DONE));
+        assertFalse(index.hasActiveDependencies(dependent));
+    }
+
+    private static Job job(long uid, String toolId, String status) {
+        return new Job()
+                .setUid(uid)
+                .setTool(new ToolInfo().setId(toolId))
+                .setInternal(new JobInternal(new Enums.ExecutionStatus(status)));
+    }
+}
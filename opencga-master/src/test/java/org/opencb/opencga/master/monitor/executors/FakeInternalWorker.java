@@ -0,0 +1,122 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.master.monitor.executors;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Worker speaking the {@link LocalWorkerProtocol} without the internal command line, for the {@link LocalWorkerExecutorTest}.
+ *
+ * The first line written to the job stdout is the name of the worker JVM. Accepted commands:
+ *  - echo               : Do nothing
+ *  - fail               : Finish with exit code 2
+ *  - sleep millis       : Sleep. Finish with exit code 1 if interrupted
+ *  - hang               : Sleep for one minute, ignoring interruptions
+ *  - heap fraction      : Report this fraction of the heap as used after the job
+ */
+public class FakeInternalWorker {
+
+    private final Writer writer;
+
+    private FakeInternalWorker(Writer writer) {
+        this.writer = writer;
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Noise in the stdout does not affect the protocol
+        System.out.println("Starting fake worker");
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(args[1]))) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            FakeInternalWorker worker = new FakeInternalWorker(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            worker.send(LocalWorkerProtocol.READY, System.getenv(LocalWorkerProtocol.TOKEN_ENV));
+
+            Thread jobThread = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                List<String> message = LocalWorkerProtocol.decode(line);
+                switch (message.get(0)) {
+                    case LocalWorkerProtocol.RUN:
+                        jobThread = new Thread(() -> worker.runJob(message.get(1), message.get(2), message.subList(4, message.size())));
+                        jobThread.start();
+                        break;
+                    case LocalWorkerProtocol.CANCEL:
+                        if (jobThread != null) {
+                            jobThread.interrupt();
+                        }
+                        break;
+                    case LocalWorkerProtocol.EXIT:
+                        return;
+                    default:
+                        throw new IllegalStateException("Unknown message " + message);
+                }
+            }
+        }
+    }
+
+    private void runJob(String jobId, String stdout, List<String> command) {
+        int exitCode = 0;
+        double heapUsage = 0;
+        try (PrintStream out = new PrintStream(new FileOutputStream(stdout))) {
+            out.println(ManagementFactory.getRuntimeMXBean().getName());
+            switch (command.get(0)) {
+                case "echo":
+                    break;
+                case "fail":
+                    exitCode = 2;
+                    break;
+                case "sleep":
+                    try {
+                        Thread.sleep(Long.parseLong(command.get(1)));
+                    } catch (InterruptedException e) {
+                        exitCode = 1;
+                    }
+                    break;
+                case "hang":
+                    long end = System.currentTimeMillis() + 60000;
+                    while (System.currentTimeMillis() < end) {
+                        try {
+                            Thread.sleep(end - System.currentTimeMillis());
+                        } catch (InterruptedException ignore) {
+                            // Ignore
+                        }
+                    }
+                    break;
+                case "heap":
+                    heapUsage = Double.parseDouble(command.get(1));
+                    break;
+                default:
+                    exitCode = 3;
+                    break;
+            }
+            send(LocalWorkerProtocol.DONE, jobId, String.valueOf(exitCode), String.valueOf(Math.round(heapUsage * 1000)), "1000");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private synchronized void send(String type, String... fields) throws IOException {
+        writer.write(LocalWorkerProtocol.encode(type, Arrays.asList(fields)));
+        writer.write('\n');
+        writer.flush();
+    }
+}
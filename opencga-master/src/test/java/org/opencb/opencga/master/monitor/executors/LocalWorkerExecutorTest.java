@@ -0,0 +1,273 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.master.monitor.executors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.opencga.core.config.Execution;
+import org.opencb.opencga.core.models.common.Enums;
+import org.opencb.opencga.master.monitor.daemons.ExecutionDaemon;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class LocalWorkerExecutorTest {
+
+    private Path rootDir;
+    private String internalCli;
+    private int numJobs;
+
+    @Before
+    public void setUp() throws Exception {
+        rootDir = Paths.get("target/test-data", "junit-opencga-" + System.currentTimeMillis()).toAbsolutePath();
+        Files.createDirectories(rootDir.resolve("bin"));
+
+        // Fake internal command line, starting a FakeInternalWorker
+        Path script = rootDir.resolve("bin").resolve("opencga-internal.sh");
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        Files.write(script, Arrays.asList(
+                "#!/bin/sh",
+                "exec '" + java + "' -cp '" + System.getProperty("java.class.path") + "' "
+                        + FakeInternalWorker.class.getName() + " \"$@\""),
+                StandardCharsets.UTF_8);
+        assertTrue(script.toFile().setExecutable(true));
+        internalCli = script.toString();
+        numJobs = 0;
+    }
+
+    @Test
+    public void testParseCommandLine() {
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("key", "value");
+        params.put("outdir", "/tmp/folder");
+        params.put("paramWithSpaces", "This could be a description");
+        params.put("paramWithSingleQuotes", "This could 'be' a description");
+        params.put("paramWithDoubleQuotes", "This could \"be\" a description");
+        params.put("multiLine", "first line\nsecond line");
+        Map<String, String> dynamic = new LinkedHashMap<>();
+        dynamic.put("dynamic", "It's true");
+        params.put("dynamicParam", dynamic);
+
+        String cli = ExecutionDaemon.buildCli("/opt/opencga/bin/opencga-internal.sh", "variant index-run", params) + " --token abc";
+
+        assertEquals(Arrays.asList("/opt/opencga/bin/opencga-internal.sh", "variant", "index-run",
+                "--key", "value",
+                "--outdir", "/tmp/folder",
+                "--param-with-spaces", "This could be a description",
+                "--param-with-single-quotes", "This could 'be' a description",
+                "--param-with-double-quotes", "This could \"be\" a description",
+                "--multi-line", "first line\nsecond line",
+                "--dynamic-param", "dynamic=It's true",
+                "--token", "abc"), LocalWorkerExecutor.parseCommandLine(cli));
+    }
+
+    @Test
+    public void testProtocol() {
+        List<String> fields = Arrays.asList("job1", "", "with\ttabs", "with\nnew lines");
+        List<String> message = LocalWorkerProtocol.decode(LocalWorkerProtocol.encode(LocalWorkerProtocol.RUN, fields));
+        assertEquals(LocalWorkerProtocol.RUN, message.get(0));
+        assertEquals(fields, message.subList(1, message.size()));
+
+        assertEquals(Collections.singletonList(LocalWorkerProtocol.EXIT),
+                LocalWorkerProtocol.decode(LocalWorkerProtocol.encode(LocalWorkerProtocol.EXIT, Collections.emptyList())));
+    }
+
+    @Test(timeout = 10000)
+    public void testNonInternalCommand() throws Exception {
+        LocalWorkerExecutor executor = new LocalWorkerExecutor(new Execution()
+                .setOptions(new ObjectMap(LocalExecutor.MAX_CONCURRENT_JOBS, 1)));
+
+        executor.execute("jobId-1", "default", "sleep 2", rootDir.resolve("out_1.txt"), rootDir.resolve("err_1.txt"));
+        assertFalse(executor.canBeQueued());
+        executor.execute("jobId-2", "default", "echo Hello World", rootDir.resolve("out_2.txt"), rootDir.resolve("err_2.txt"));
+
+        // Jobs not started yet can be killed
+        while (!executor.getStatus("jobId-1").equals(Enums.ExecutionStatus.RUNNING)) {
+            Thread.sleep(100);
+        }
+        assertTrue(executor.kill("jobId-2"));
+        assertEquals(Enums.ExecutionStatus.ABORTED, executor.getStatus("jobId-2"));
+
+        while (!executor.getStatus("jobId-1").equals(Enums.ExecutionStatus.DONE)) {
+            Thread.sleep(100);
+        }
+        assertTrue(executor.canBeQueued());
+        assertFalse(Files.exists(rootDir.resolve("out_2.txt")));
+    }
+
+    @Test(timeout = 60000)
+    public void testRunInWorker() throws Exception {
+        LocalWorkerExecutor executor = newExecutor(new ObjectMap());
+
+        String job1 = run(executor, "echo");
+        assertEquals(Enums.ExecutionStatus.DONE, waitJob(executor, job1));
+        String job2 = run(executor, "fail");
+        assertEquals(Enums.ExecutionStatus.ERROR, waitJob(executor, job2));
+        String job3 = run(executor, "echo");
+        assertEquals(Enums.ExecutionStatus.DONE, waitJob(executor, job3));
+
+        // Failed jobs do not discard the worker
+        assertEquals(getWorker(job1), getWorker(job2));
+        assertEquals(getWorker(job1), getWorker(job3));
+    }
+
+    @Test(timeout = 60000)
+    public void testRecycleWorkerMaxJobs() throws Exception {
+        LocalWorkerExecutor executor = newExecutor(new ObjectMap(LocalWorkerExecutor.WORKER_MAX_JOBS, 2));
+
+        List<String> jobs = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            String jobId = run(executor, "echo");
+            assertEquals(Enums.ExecutionStatus.DONE, waitJob(executor, jobId));
+            jobs.add(jobId);
+        }
+
+        assertEquals(getWorker(jobs.get(0)), getWorker(jobs.get(1)));
+        assertNotEquals(getWorker(jobs.get(1)), getWorker(jobs.get(2)));
+        assertEquals(getWorker(jobs.get(2)), getWorker(jobs.get(3)));
+        assertNotEquals(getWorker(jobs.get(3)), getWorker(jobs.get(4)));
+    }
+
+    @Test(timeout = 60000)
+    public void testRecycleWorkerHeapUsage() throws Exception {
+        LocalWorkerExecutor executor = newExecutor(new ObjectMap(LocalWorkerExecutor.WORKER_MAX_HEAP_USAGE, 0.5));
+
+        String job1 = run(executor, "heap", "0.1");
+        assertEquals(Enums.ExecutionStatus.DONE, waitJob(executor, job1));
+        String job2 = run(executor, "heap", "0.9");
+        assertEquals(Enums.ExecutionStatus.DONE, waitJob(executor, job2));
+        String job3 = run(executor, "echo");
+        assertEquals(Enums.ExecutionStatus.DONE, waitJob(executor, job3));
+
+        assertEquals(getWorker(job1), getWorker(job2));
+        assertNotEquals(getWorker(job2), getWorker(job3));
+    }
+
+    @Test(timeout = 60000)
+    public void testStop() throws Exception {
+        LocalWorkerExecutor executor = newExecutor(new ObjectMap());
+
+        String job1 = run(executor, "sleep", "60000");
+        waitRunning(executor, job1);
+        assertTrue(executor.stop(job1));
+        assertEquals(Enums.ExecutionStatus.ABORTED, executor.getStatus(job1));
+        assertFalse(executor.stop(job1));
+
+        // The job is interrupted. The worker is closed, as it might be in an unexpected state
+        waitIdle(executor);
+        assertEquals(0, executor.getNumIdleWorkers());
+
+        String job2 = run(executor, "echo");
+        assertEquals(Enums.ExecutionStatus.DONE, waitJob(executor, job2));
+        assertNotEquals(getWorker(job1), getWorker(job2));
+        assertEquals(Enums.ExecutionStatus.ABORTED, executor.getStatus(job1));
+    }
+
+    @Test(timeout = 60000)
+    public void testStopTimeout() throws Exception {
+        LocalWorkerExecutor executor = newExecutor(new ObjectMap(LocalWorkerExecutor.WORKER_STOP_TIMEOUT, 1));
+
+        String job1 = run(executor, "hang");
+        waitRunning(executor, job1);
+        assertTrue(executor.stop(job1));
+
+        // The job ignores the interruption. The worker is killed after the stop timeout
+        assertFalse(executor.canBeQueued());
+        waitIdle(executor);
+        assertEquals(0, executor.getNumIdleWorkers());
+        assertEquals(Enums.ExecutionStatus.ABORTED, executor.getStatus(job1));
+
+        String job2 = run(executor, "echo");
+        assertEquals(Enums.ExecutionStatus.DONE, waitJob(executor, job2));
+        assertNotEquals(getWorker(job1), getWorker(job2));
+    }
+
+    @Test(timeout = 60000)
+    public void testKill() throws Exception {
+        LocalWorkerExecutor executor = newExecutor(new ObjectMap());
+
+        String job1 = run(executor, "hang");
+        waitRunning(executor, job1);
+        assertTrue(executor.kill(job1));
+        assertEquals(Enums.ExecutionStatus.ABORTED, executor.getStatus(job1));
+        assertFalse(executor.kill(job1));
+
+        waitIdle(executor);
+        assertEquals(0, executor.getNumIdleWorkers());
+        assertEquals(Enums.ExecutionStatus.ABORTED, executor.getStatus(job1));
+
+        String job2 = run(executor, "echo");
+        assertEquals(Enums.ExecutionStatus.DONE, waitJob(executor, job2));
+        assertNotEquals(getWorker(job1), getWorker(job2));
+    }
+
+    private LocalWorkerExecutor newExecutor(ObjectMap options) {
+        return new LocalWorkerExecutor(new Execution().setOptions(options.append(LocalExecutor.MAX_CONCURRENT_JOBS, 1)));
+    }
+
+    private String run(LocalWorkerExecutor executor, String... command) throws Exception {
+        String jobId = "job-" + (++numJobs);
+        executor.execute(jobId, "default", internalCli + " " + String.join(" ", command),
+                rootDir.resolve(jobId + ".out"), rootDir.resolve(jobId + ".err"));
+        return jobId;
+    }
+
+    /**
+     * Wait until the job is running in the worker.
+     */
+    private void waitRunning(LocalWorkerExecutor executor, String jobId) throws Exception {
+        Path stdout = rootDir.resolve(jobId + ".out");
+        while (!executor.getStatus(jobId).equals(Enums.ExecutionStatus.RUNNING) || !Files.exists(stdout) || Files.size(stdout) == 0) {
+            Thread.sleep(50);
+        }
+    }
+
+    /**
+     * Wait until the job is finished, and the worker is back in the pool.
+     */
+    private static String waitJob(LocalWorkerExecutor executor, String jobId) throws InterruptedException {
+        String status;
+        while ((status = executor.getStatus(jobId)).equals(Enums.ExecutionStatus.RUNNING)
+                || status.equals(Enums.ExecutionStatus.QUEUED)) {
+            Thread.sleep(50);
+        }
+        while (executor.getNumIdleWorkers() == 0) {
+            Thread.sleep(50);
+        }
+        return status;
+    }
+
+    /**
+     * Wait until there are no jobs running, nor stopping.
+     */
+    private static void waitIdle(LocalWorkerExecutor executor) throws InterruptedException {
+        while (!executor.canBeQueued()) {
+            Thread.sleep(50);
+        }
+    }
+
+    private String getWorker(String jobId) throws IOException {
+        return Files.readAllLines(rootDir.resolve(jobId + ".out"), StandardCharsets.UTF_8).get(0);
+    }
+}
@@ -17,24 +17,33 @@
 package org.opencb.opencga.server.grpc;
 
 import io.grpc.stub.StreamObserver;
+import org.apache.commons.lang3.StringUtils;
 import org.opencb.biodata.models.common.protobuf.service.ServiceTypesModel;
-import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.models.variant.protobuf.VariantProto;
 import org.opencb.biodata.tools.variant.converters.proto.VariantAvroToVariantProtoConverter;
 import org.opencb.commons.datastore.core.DataResult;
+import org.opencb.commons.datastore.core.FacetField;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.opencga.core.config.Configuration;
 import org.opencb.opencga.storage.core.config.StorageConfiguration;
+import org.opencb.opencga.storage.core.utils.grpc.FlowControlledStreamer;
 import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
+
 /**
  * Created by imedina on 29/12/15.
  */
 public class VariantGrpcService extends VariantServiceGrpc.VariantServiceImplBase {
 
+    /**
+     * Field to aggregate in the distinct and groupBy methods. Accepts the same syntax as {@link QueryOptions#FACET}.
+     */
+    public static final String FIELD = "field";
+
     private GenericGrpcService genericGrpcService;
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
@@ -59,7 +68,21 @@ public class VariantGrpcService extends VariantServiceGrpc.VariantServiceImplBas
 
     @Override
     public void distinct(GenericServiceModel.Request request, StreamObserver<ServiceTypesModel.StringArrayResponse> responseObserver) {
-        super.distinct(request, responseObserver);
+        try {
+            Query query = genericGrpcService.createQuery(request);
+            QueryOptions queryOptions = genericGrpcService.createQueryOptions(request);
+            logger.info("Distinct variants query : {} , queryOptions : {}", query.toJson(), queryOptions.toJson());
+
+            ServiceTypesModel.StringArrayResponse.Builder builder = ServiceTypesModel.StringArrayResponse.newBuilder();
+            for (FacetField.Bucket bucket : facet(request, query, queryOptions).getBuckets()) {
+                builder.addValues(bucket.getValue());
+            }
+            responseObserver.onNext(builder.build());
+            responseObserver.onCompleted();
+        } catch (Exception e) {
+            logger.error("Error on distinct", e);
+            responseObserver.onError(e);
+        }
     }
 
     @Override
@@ -69,13 +92,9 @@ public class VariantGrpcService extends VariantServiceGrpc.VariantServiceImplBas
             Query query = genericGrpcService.createQuery(request);
             QueryOptions queryOptions = genericGrpcService.createQueryOptions(request);
             logger.info("Get variants query : {} , queryOptions : {}" , query.toJson(), queryOptions.toJson());
-            try (VariantDBIterator iterator = genericGrpcService.variantStorageManager.iterator(query, queryOptions, request.getSessionId())) {
-                while (iterator.hasNext()) {
-                    Variant variant = iterator.next();
-                    responseObserver.onNext(converter.convert(variant));
-                }
-            }
-            responseObserver.onCompleted();
+            VariantDBIterator iterator = genericGrpcService.variantStorageManager.iterator(query, queryOptions, request.getSessionId());
+            // Send variants only when the client is ready to receive them. The iterator is closed at the end of the stream.
+            FlowControlledStreamer.stream(iterator, converter::convert, responseObserver);
         } catch (Exception e) {
             logger.error("Error on get variants", e);
             responseObserver.onError(e);
@@ -84,7 +103,46 @@ public class VariantGrpcService extends VariantServiceGrpc.VariantServiceImplBas
 
     @Override
     public void groupBy(GenericServiceModel.Request request, StreamObserver<ServiceTypesModel.GroupResponse> responseObserver) {
-        super.groupBy(request, responseObserver);
+        try {
+            Query query = genericGrpcService.createQuery(request);
+            QueryOptions queryOptions = genericGrpcService.createQueryOptions(request);
+            logger.info("GroupBy variants query : {} , queryOptions : {}", query.toJson(), queryOptions.toJson());
+
+            ServiceTypesModel.GroupResponse.Builder builder = ServiceTypesModel.GroupResponse.newBuilder();
+            for (FacetField.Bucket bucket : facet(request, query, queryOptions).getBuckets()) {
+                builder.putValues(bucket.getValue(), String.valueOf(bucket.getCount()));
+            }
+            responseObserver.onNext(builder.build());
+            responseObserver.onCompleted();
+        } catch (Exception e) {
+            logger.error("Error on groupBy", e);
+            responseObserver.onError(e);
+        }
+    }
+
+    /**
+     * Aggregate the variants by the field given in the option {@link #FIELD}, using the aggregation executors of the engine.
+     *
+     * @param request      Request
+     * @param query        Query
+     * @param queryOptions QueryOptions. Must contain the option {@link #FIELD}
+     * @return             FacetField of the given field
+     * @throws Exception   if the facet query fails
+     */
+    private FacetField facet(GenericServiceModel.Request request, Query query, QueryOptions queryOptions) throws Exception {
+        String field = queryOptions.getString(FIELD);
+        if (StringUtils.isEmpty(field)) {
+            throw new IllegalArgumentException("Missing option '" + FIELD + "'");
+        }
+        QueryOptions facetOptions = new QueryOptions(queryOptions);
+        facetOptions.remove(FIELD);
+        facetOptions.put(QueryOptions.FACET, field);
+        DataResult<FacetField> result = genericGrpcService.variantStorageManager.facet(query, facetOptions, request.getSessionId());
+        if (result.getResults().isEmpty()) {
+            return new FacetField(field, 0, Collections.emptyList());
+        } else {
+            return result.first();
+        }
     }
 
 }
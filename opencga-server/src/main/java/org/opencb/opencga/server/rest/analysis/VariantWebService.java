@@ -263,6 +263,8 @@ public class VariantWebService extends AnalysisWebService {
             @ApiImplicitParam(name = "approximateCount", value = "Get an approximate count, instead of an exact total count. Reduces execution time", dataType = "boolean", paramType = "query"),
             @ApiImplicitParam(name = "approximateCountSamplingSize", value = "Sampling size to get the approximate count. "
                     + "Larger values increase accuracy but also increase execution time", dataType = "integer", paramType = "query"),
+            @ApiImplicitParam(name = "explain", value = "Return the candidate query plans, with their estimated cost, and the actual "
+                    + "execution time of the selected one, in the result attributes", dataType = "boolean", paramType = "query"),
 
             @ApiImplicitParam(name = "savedFilter", value = SAVED_FILTER_DESCR, dataType = "string", paramType = "query"),
 
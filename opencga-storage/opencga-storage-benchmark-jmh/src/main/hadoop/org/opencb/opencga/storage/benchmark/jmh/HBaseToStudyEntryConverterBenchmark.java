@@ -0,0 +1,152 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.benchmark.jmh;
+
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
+import org.opencb.opencga.storage.core.variant.VariantStorageEngine;
+import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
+import org.opencb.opencga.storage.core.variant.dummy.DummyVariantStorageMetadataDBAdaptorFactory;
+import org.opencb.opencga.storage.hadoop.variant.converters.HBaseVariantConverterConfiguration;
+import org.opencb.opencga.storage.hadoop.variant.converters.VariantRow;
+import org.opencb.opencga.storage.hadoop.variant.converters.study.HBaseToStudyEntryConverter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for the {@link HBaseToStudyEntryConverter}, converting the sample columns read from the variants table
+ * into a {@link StudyEntry}.
+ *
+ * Only the non reference genotypes are given as input, as they are stored in HBase. Missing samples are filled
+ * by the converter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HBaseToStudyEntryConverterBenchmark {
+
+    private static final int NUM_VARIANTS = 1000;
+
+    @Param({"10", "100", "1000"})
+    public int numSamples;
+
+    private HBaseToStudyEntryConverter converter;
+    private int studyId;
+    private List<Variant> variants;
+    private List<List<VariantRow.SampleColumn>> sampleColumns;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        DummyVariantStorageMetadataDBAdaptorFactory.clear();
+        VariantStorageMetadataManager metadataManager =
+                new VariantStorageMetadataManager(new DummyVariantStorageMetadataDBAdaptorFactory());
+        StudyMetadata studyMetadata = metadataManager.createStudy("study");
+        studyId = studyMetadata.getId();
+        List<String> samples = SyntheticVariantGenerator.sampleNames(numSamples);
+        int fileId = metadataManager.registerFile(studyId, "file.vcf", samples);
+        metadataManager.addIndexedFiles(studyId, Collections.singletonList(fileId));
+        metadataManager.updateStudyMetadata(studyId, s -> {
+            s.getAttributes().put(VariantStorageOptions.MERGE_MODE.key(), VariantStorageEngine.MergeMode.BASIC);
+            return s;
+        });
+
+        List<Integer> sampleIds = new ArrayList<>(numSamples);
+        for (String sample : samples) {
+            sampleIds.add(metadataManager.getSampleIdOrFail(studyId, sample));
+        }
+
+        converter = new HBaseToStudyEntryConverter(metadataManager, null)
+                .configure(HBaseVariantConverterConfiguration.builder().build());
+
+        variants = new SyntheticVariantGenerator()
+                .variants("1", 1, 1000000, NUM_VARIANTS, String.valueOf(studyId), String.valueOf(fileId), samples);
+        sampleColumns = new ArrayList<>(variants.size());
+        for (Variant variant : variants) {
+            StudyEntry studyEntry = variant.getStudies().get(0);
+            List<VariantRow.SampleColumn> columns = new ArrayList<>();
+            for (int i = 0; i < numSamples; i++) {
+                String gt = studyEntry.getSampleData(i).get(0);
+                if (!gt.equals("0/0")) {
+                    columns.add(new SimpleSampleColumn(studyId, sampleIds.get(i), Arrays.asList(gt, "PASS")));
+                }
+            }
+            sampleColumns.add(columns);
+        }
+        // Remove the StudyEntry from the input variants
+        for (Variant variant : variants) {
+            variant.setStudies(Collections.emptyList());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_VARIANTS)
+    public void convert(Blackhole blackhole) {
+        for (int i = 0; i < variants.size(); i++) {
+            blackhole.consume(converter.convert(sampleColumns.get(i), Collections.emptyList(), variants.get(i), studyId));
+        }
+    }
+
+    private static class SimpleSampleColumn implements VariantRow.SampleColumn {
+        private final int studyId;
+        private final int sampleId;
+        private final List<String> sampleData;
+
+        SimpleSampleColumn(int studyId, int sampleId, List<String> sampleData) {
+            this.studyId = studyId;
+            this.sampleId = sampleId;
+            this.sampleData = sampleData;
+        }
+
+        @Override
+        public int getStudyId() {
+            return studyId;
+        }
+
+        @Override
+        public int getSampleId() {
+            return sampleId;
+        }
+
+        @Override
+        public Integer getFileId() {
+            return null;
+        }
+
+        @Override
+        public List<String> getSampleData() {
+            return sampleData;
+        }
+
+        @Override
+        public List<String> getMutableSampleData() {
+            return new ArrayList<>(sampleData);
+        }
+
+        @Override
+        public String getSampleData(int idx) {
+            return sampleData.get(idx);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.benchmark.jmh;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.opencga.storage.core.variant.query.VariantQueryUtils;
+import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
+import org.opencb.opencga.storage.hadoop.variant.index.annotation.AnnotationIndexConverter;
+import org.opencb.opencga.storage.hadoop.variant.index.annotation.AnnotationIndexPutBuilder;
+import org.opencb.opencga.storage.hadoop.variant.index.query.SampleAnnotationIndexQuery;
+import org.opencb.opencga.storage.hadoop.variant.index.query.SampleAnnotationIndexQuery.PopulationFrequencyQuery;
+import org.opencb.opencga.storage.hadoop.variant.index.query.SampleIndexQuery;
+import org.opencb.opencga.storage.hadoop.variant.index.query.SingleSampleIndexQuery;
+import org.opencb.opencga.storage.hadoop.variant.index.sample.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the SampleIndex read path.
+ *  - Encoding and decoding the variants of one batch with the {@link SampleIndexVariantBiConverter}
+ *  - Converting one HBase row into a {@link SampleIndexEntry}
+ *  - Filtering the {@link SampleIndexEntry} with {@link AbstractSampleIndexEntryFilter}
+ *
+ * Each operation processes a whole batch of {@link SampleIndexSchema#BATCH_SIZE} bases.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SampleIndexBenchmark {
+
+    private static final String CHROMOSOME = "1";
+    private static final int SAMPLE_ID = 1;
+    private static final String SAMPLE = "S0";
+
+    @Param({"1000", "10000"})
+    public int numVariants;
+
+    private final SampleIndexVariantBiConverter converter = new SampleIndexVariantBiConverter();
+    private List<Variant> variants;
+    private byte[] variantsBytes;
+    private Result result;
+    private HBaseToSampleIndexConverter resultConverter;
+    private SampleIndexEntry entry;
+
+    @State(Scope.Benchmark)
+    public static class FilterState {
+        @Param({"none", "popFreq", "ctBt"})
+        public String filter;
+
+        private SampleIndexEntryFilter entryFilter;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            entryFilter = new SampleIndexEntryFilter(buildQuery(filter));
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SampleIndexConfiguration configuration = SampleIndexConfiguration.defaultConfiguration();
+        SyntheticVariantGenerator generator = new SyntheticVariantGenerator();
+        List<Variant> variantsWithSample = generator.variants(CHROMOSOME, 0, SampleIndexSchema.BATCH_SIZE, numVariants, "1", "1",
+                Collections.singletonList(SAMPLE));
+
+        // Build the HBase row, as written by the SampleIndexDBLoader and the SampleIndexAnnotationLoader
+        VariantFileIndexConverter fileIndexConverter = new VariantFileIndexConverter();
+        AnnotationIndexConverter annotationIndexConverter = new AnnotationIndexConverter(configuration);
+        SampleIndexEntryPutBuilder putBuilder = new SampleIndexEntryPutBuilder(SAMPLE_ID, CHROMOSOME, 0);
+        Map<String, AnnotationIndexPutBuilder> annotationBuilders = new HashMap<>();
+        variants = new ArrayList<>(variantsWithSample.size());
+        for (Variant variant : variantsWithSample) {
+            String gt = variant.getStudies().get(0).getSampleData(0).get(0);
+            if (!SampleIndexSchema.validGenotype(gt) || gt.equals("0/0")) {
+                continue;
+            }
+            short fileIndex = fileIndexConverter.createFileIndexValue(0, 0, variant);
+            putBuilder.add(gt, new SampleVariantIndexEntry(variant, fileIndex));
+            annotationBuilders.computeIfAbsent(gt, k -> new AnnotationIndexPutBuilder())
+                    .add(annotationIndexConverter.convert(generator.annotation(variant)));
+            variants.add(variant);
+        }
+        Put put = putBuilder.build();
+        for (Map.Entry<String, AnnotationIndexPutBuilder> entry : annotationBuilders.entrySet()) {
+            entry.getValue().buildAndReset(put, entry.getKey(), GenomeHelper.COLUMN_FAMILY_BYTES);
+        }
+        List<Cell> cells = new ArrayList<>();
+        for (List<Cell> familyCells : put.getFamilyCellMap().values()) {
+            cells.addAll(familyCells);
+        }
+        result = Result.create(cells);
+
+        variantsBytes = converter.toBytes(variants);
+        resultConverter = new HBaseToSampleIndexConverter(configuration);
+        entry = resultConverter.convert(result);
+    }
+
+    private static SingleSampleIndexQuery buildQuery(String filter) {
+        SampleAnnotationIndexQuery annotationIndexQuery;
+        switch (filter) {
+            case "none":
+                annotationIndexQuery = new SampleAnnotationIndexQuery();
+                break;
+            case "popFreq":
+                // Rare variants in the first population
+                annotationIndexQuery = new SampleAnnotationIndexQuery(new byte[]{0, 0}, (short) 0, (byte) 0, (byte) 0,
+                        VariantQueryUtils.QueryOperation.AND,
+                        Collections.singletonList(new PopulationFrequencyQuery(0, "1kG_phase3", "ALL", 0, 0.01, (byte) 0, (byte) 2)),
+                        false);
+                break;
+            case "ctBt":
+                // Missense or stop gained in protein coding transcripts
+                annotationIndexQuery = new SampleAnnotationIndexQuery(
+                        new byte[]{AnnotationIndexConverter.INTERGENIC_MASK, 0},
+                        (short) (AnnotationIndexConverter.CT_MISSENSE_VARIANT_MASK | AnnotationIndexConverter.CT_STOP_GAINED_MASK),
+                        AnnotationIndexConverter.BT_PROTEIN_CODING_MASK, (byte) 0,
+                        VariantQueryUtils.QueryOperation.AND, Collections.emptyList(), true);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown filter " + filter);
+        }
+        return new SampleIndexQuery(Collections.emptyList(), null, "1",
+                Collections.singletonMap(SAMPLE, Arrays.asList("0/1", "1/1", "0|1", "1|0")),
+                Collections.emptySet(), null, Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap(),
+                annotationIndexQuery, Collections.emptySet(), false, VariantQueryUtils.QueryOperation.AND)
+                .forSample(SAMPLE);
+    }
+
+    @Benchmark
+    public byte[] encodeVariants() {
+        return converter.toBytes(variants);
+    }
+
+    @Benchmark
+    public List<Variant> decodeVariants() {
+        return converter.toVariants(CHROMOSOME, 0, variantsBytes, 0, variantsBytes.length);
+    }
+
+    @Benchmark
+    public SampleIndexEntry convertResult() {
+        return resultConverter.convert(result);
+    }
+
+    @Benchmark
+    public Collection<Variant> filter(FilterState state) {
+        return state.entryFilter.filter(entry);
+    }
+
+    @Benchmark
+    public int filterAndCount(FilterState state) {
+        return state.entryFilter.filterAndCount(entry);
+    }
+}
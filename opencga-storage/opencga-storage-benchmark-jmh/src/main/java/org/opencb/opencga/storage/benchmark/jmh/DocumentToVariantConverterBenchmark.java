@@ -0,0 +1,109 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.benchmark.jmh;
+
+import org.bson.Document;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
+import org.opencb.opencga.storage.core.variant.dummy.DummyVariantStorageMetadataDBAdaptorFactory;
+import org.opencb.opencga.storage.core.variant.query.projection.VariantQueryProjection;
+import org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageOptions;
+import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToSamplesConverter;
+import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToStudyVariantEntryConverter;
+import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToVariantConverter;
+import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToVariantStatsConverter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for the {@link DocumentToVariantConverter}, converting variants from and to MongoDB documents.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DocumentToVariantConverterBenchmark {
+
+    private static final int NUM_VARIANTS = 1000;
+
+    @Param({"10", "100"})
+    public int numSamples;
+
+    private DocumentToVariantConverter converter;
+    private List<Variant> variants;
+    private List<Document> documents;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        DummyVariantStorageMetadataDBAdaptorFactory.clear();
+        VariantStorageMetadataManager metadataManager =
+                new VariantStorageMetadataManager(new DummyVariantStorageMetadataDBAdaptorFactory());
+        int studyId = metadataManager.createStudy("study").getId();
+        metadataManager.updateStudyMetadata(studyId, studyMetadata -> {
+            studyMetadata.getAttributes().put(MongoDBVariantStorageOptions.DEFAULT_GENOTYPE.key(), "0/0");
+            return studyMetadata;
+        });
+        List<String> samples = SyntheticVariantGenerator.sampleNames(numSamples);
+        int fileId = metadataManager.registerFile(studyId, "file.vcf", samples);
+        metadataManager.addIndexedFiles(studyId, Collections.singletonList(fileId));
+
+        List<Integer> sampleIds = new ArrayList<>(numSamples);
+        for (String sample : samples) {
+            sampleIds.add(metadataManager.getSampleIdOrFail(studyId, sample));
+        }
+        StudyMetadata studyMetadata = metadataManager.getStudyMetadata(studyId);
+        VariantQueryProjection projection = new VariantQueryProjection(studyMetadata, sampleIds, Collections.singletonList(fileId));
+
+        converter = new DocumentToVariantConverter(
+                new DocumentToStudyVariantEntryConverter(true,
+                        new DocumentToSamplesConverter(metadataManager, projection)),
+                new DocumentToVariantStatsConverter());
+
+        // The mongodb converters expect numerical study and file ids
+        SyntheticVariantGenerator generator = new SyntheticVariantGenerator();
+        variants = generator.annotate(generator.variants("1", 1, 1000000, NUM_VARIANTS,
+                String.valueOf(studyId), String.valueOf(fileId), samples));
+        documents = new ArrayList<>(variants.size());
+        for (Variant variant : variants) {
+            documents.add(converter.convertToStorageType(variant));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_VARIANTS)
+    public void toDocument(Blackhole blackhole) {
+        for (Variant variant : variants) {
+            blackhole.consume(converter.convertToStorageType(variant));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_VARIANTS)
+    public void fromDocument(Blackhole blackhole) {
+        for (Document document : documents) {
+            blackhole.consume(converter.convertToDataModelType(document));
+        }
+    }
+}
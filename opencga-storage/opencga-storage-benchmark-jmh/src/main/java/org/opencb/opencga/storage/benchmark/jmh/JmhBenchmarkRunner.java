@@ -0,0 +1,62 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.benchmark.jmh;
+
+import org.opencb.opencga.core.common.GitRepositoryState;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point to run the storage JMH benchmarks.
+ *
+ * Accepts the same arguments as the JMH command line. By default, results are written in JSON format into a file
+ * named after the OpenCGA version and commit, so results from different releases can be compared.
+ */
+public final class JmhBenchmarkRunner {
+
+    private JmhBenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        if (commandLineOptions.shouldHelp()) {
+            commandLineOptions.showHelp();
+            return;
+        }
+        if (commandLineOptions.shouldList()) {
+            new Runner(commandLineOptions).list();
+            return;
+        }
+
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(commandLineOptions);
+        if (commandLineOptions.getIncludes().isEmpty()) {
+            builder.include(JmhBenchmarkRunner.class.getPackage().getName() + ".*Benchmark");
+        }
+        ResultFormatType format = commandLineOptions.getResultFormat().orElse(ResultFormatType.JSON);
+        builder.resultFormat(format);
+        if (!commandLineOptions.getResult().hasValue()) {
+            GitRepositoryState gitRepositoryState = GitRepositoryState.get();
+            builder.result("opencga-storage-jmh-" + gitRepositoryState.getBuildVersion()
+                    + "-" + gitRepositoryState.getCommitIdAbbrev() + "." + format.toString().toLowerCase());
+        }
+
+        new Runner(builder.build()).run();
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.benchmark.jmh;
+
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.VariantBuilder;
+import org.opencb.biodata.models.variant.annotation.ConsequenceTypeMappings;
+import org.opencb.biodata.models.variant.avro.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates random, but reproducible, variants and annotations to feed the benchmarks.
+ * Two generators created with the same seed produce the same data, so results from different releases are comparable.
+ */
+public class SyntheticVariantGenerator {
+
+    public static final long DEFAULT_SEED = 42;
+
+    private static final String[] BASES = {"A", "C", "G", "T"};
+    private static final String[] GENOTYPES = {"0/0", "0/1", "1/1", "./.", "0|1", "1|0"};
+    // Cumulative probabilities for each genotype
+    private static final double[] GENOTYPE_PROBABILITIES = {0.60, 0.82, 0.92, 0.96, 0.98, 1.0};
+    private static final String[] FILTERS = {"PASS", "PASS", "PASS", "LowQual", "LowGQ"};
+    private static final String[] BIOTYPES = {"protein_coding", "protein_coding", "nonsense_mediated_decay", "lncRNA",
+            "retained_intron", "processed_pseudogene", "miRNA"};
+    private static final String[] CONSEQUENCE_TYPES = {"missense_variant", "synonymous_variant", "intron_variant",
+            "upstream_gene_variant", "downstream_gene_variant", "3_prime_UTR_variant", "5_prime_UTR_variant", "stop_gained",
+            "frameshift_variant", "splice_region_variant", "non_coding_transcript_exon_variant"};
+    private static final String[] POPULATIONS = {"ALL", "AFR", "AMR", "EAS", "EUR", "SAS"};
+    private static final String[] POPULATION_STUDIES = {"1kG_phase3", "GNOMAD_GENOMES"};
+
+    private final Random random;
+
+    public SyntheticVariantGenerator() {
+        this(DEFAULT_SEED);
+    }
+
+    public SyntheticVariantGenerator(long seed) {
+        random = new Random(seed);
+    }
+
+    public static List<String> sampleNames(int numSamples) {
+        List<String> samples = new ArrayList<>(numSamples);
+        for (int i = 0; i < numSamples; i++) {
+            samples.add("S" + i);
+        }
+        return samples;
+    }
+
+    /**
+     * Generate a sorted list of variants, without studies nor annotation.
+     * Around 85% of the variants are SNVs, and the rest are small insertions and deletions.
+     *
+     * @param chromosome  Chromosome
+     * @param start       First position (inclusive)
+     * @param end         Last position (exclusive)
+     * @param numVariants Number of variants
+     * @return Sorted list of variants
+     */
+    public List<Variant> variants(String chromosome, int start, int end, int numVariants) {
+        List<Variant> variants = new ArrayList<>(numVariants);
+        int position = start;
+        int meanGap = Math.max(1, (end - start) / (numVariants + 1));
+        for (int i = 0; i < numVariants; i++) {
+            position += 1 + random.nextInt(meanGap * 2);
+            if (position >= end) {
+                break;
+            }
+            double type = random.nextDouble();
+            if (type < 0.85) {
+                String ref = base();
+                variants.add(new Variant(chromosome, position, position, ref, otherBase(ref)));
+            } else if (type < 0.93) {
+                variants.add(new Variant(chromosome, position, position - 1, "", bases(1 + random.nextInt(5))));
+            } else {
+                String ref = bases(1 + random.nextInt(5));
+                variants.add(new Variant(chromosome, position, position + ref.length() - 1, ref, ""));
+            }
+        }
+        return variants;
+    }
+
+    /**
+     * Generate a sorted list of variants with one study, one file and the GT and DP of each sample.
+     *
+     * @param chromosome  Chromosome
+     * @param start       First position (inclusive)
+     * @param end         Last position (exclusive)
+     * @param numVariants Number of variants
+     * @param studyId     Study id
+     * @param fileId      File id
+     * @param samples     Sample names
+     * @return Sorted list of variants
+     */
+    public List<Variant> variants(String chromosome, int start, int end, int numVariants,
+                                  String studyId, String fileId, List<String> samples) {
+        List<Variant> variants = variants(chromosome, start, end, numVariants);
+        List<Variant> variantsWithStudy = new ArrayList<>(variants.size());
+        for (Variant variant : variants) {
+            VariantBuilder builder = Variant.newBuilder(variant.toString())
+                    .setStudyId(studyId)
+                    .setFileId(fileId)
+                    .setQuality(String.valueOf(10 + random.nextInt(990)))
+                    .setFilter(FILTERS[random.nextInt(FILTERS.length)])
+                    .addFileData("DP", String.valueOf(samples.size() * (5 + random.nextInt(30))))
+                    .addFileData("AF", String.valueOf(random.nextInt(1000) / 1000.0))
+                    .setSampleDataKeys("GT", "DP");
+            for (String sample : samples) {
+                builder.addSample(sample, genotype(), String.valueOf(random.nextInt(60)));
+            }
+            variantsWithStudy.add(builder.build());
+        }
+        return variantsWithStudy;
+    }
+
+    /**
+     * Add a synthetic annotation to each variant.
+     *
+     * @param variants Variants to annotate
+     * @return Same list of variants
+     */
+    public List<Variant> annotate(List<Variant> variants) {
+        for (Variant variant : variants) {
+            variant.setAnnotation(annotation(variant));
+        }
+        return variants;
+    }
+
+    public VariantAnnotation annotation(Variant variant) {
+        VariantAnnotation annotation = new VariantAnnotation();
+        annotation.setChromosome(variant.getChromosome());
+        annotation.setStart(variant.getStart());
+        annotation.setEnd(variant.getEnd());
+        annotation.setReference(variant.getReference());
+        annotation.setAlternate(variant.getAlternate());
+        if (random.nextDouble() < 0.4) {
+            annotation.setId("rs" + random.nextInt(100000000));
+        }
+
+        // Intergenic variants have no transcripts
+        List<ConsequenceType> consequenceTypes = new ArrayList<>();
+        if (random.nextDouble() < 0.1) {
+            consequenceTypes.add(consequenceType(null, null, "intergenic_variant"));
+        } else {
+            int numGenes = 1 + random.nextInt(2);
+            for (int gene = 0; gene < numGenes; gene++) {
+                String geneId = "ENSG" + String.format("%011d", random.nextInt(100000));
+                int numTranscripts = 1 + random.nextInt(4);
+                for (int transcript = 0; transcript < numTranscripts; transcript++) {
+                    consequenceTypes.add(consequenceType(geneId, BIOTYPES[random.nextInt(BIOTYPES.length)],
+                            CONSEQUENCE_TYPES[random.nextInt(CONSEQUENCE_TYPES.length)]));
+                }
+            }
+        }
+        annotation.setConsequenceTypes(consequenceTypes);
+        annotation.setDisplayConsequenceType(consequenceTypes.get(0).getSequenceOntologyTerms().get(0).getName());
+
+        List<PopulationFrequency> populationFrequencies = new ArrayList<>();
+        for (String study : POPULATION_STUDIES) {
+            if (random.nextDouble() < 0.7) {
+                for (String population : POPULATIONS) {
+                    float altFreq = (float) Math.pow(random.nextDouble(), 4);
+                    populationFrequencies.add(new PopulationFrequency(study, population,
+                            variant.getReference(), variant.getAlternate(),
+                            1 - altFreq, altFreq, (1 - altFreq) * (1 - altFreq), 2 * altFreq * (1 - altFreq), altFreq * altFreq));
+                }
+            }
+        }
+        annotation.setPopulationFrequencies(populationFrequencies);
+
+        annotation.setConservation(Arrays.asList(
+                score("phastCons", random.nextDouble()),
+                score("phylop", random.nextDouble() * 10 - 5),
+                score("gerp", random.nextDouble() * 12 - 6)));
+        annotation.setFunctionalScore(Arrays.asList(
+                score("cadd_raw", random.nextDouble() * 10 - 2),
+                score("cadd_scaled", random.nextDouble() * 40)));
+        annotation.setHgvs(Collections.singletonList(variant.getChromosome() + ":g." + variant.getStart()
+                + variant.getReference() + ">" + variant.getAlternate()));
+        return annotation;
+    }
+
+    private ConsequenceType consequenceType(String geneId, String biotype, String soName) {
+        ConsequenceType ct = new ConsequenceType();
+        if (geneId != null) {
+            ct.setGeneName("GENE" + geneId.substring(geneId.length() - 5));
+            ct.setEnsemblGeneId(geneId);
+            ct.setEnsemblTranscriptId("ENST" + String.format("%011d", random.nextInt(1000000)));
+            ct.setBiotype(biotype);
+            ct.setStrand(random.nextBoolean() ? "+" : "-");
+            ct.setTranscriptAnnotationFlags(random.nextBoolean() ? Arrays.asList("basic", "CCDS") : Collections.emptyList());
+            if ("missense_variant".equals(soName) || "stop_gained".equals(soName) || "synonymous_variant".equals(soName)) {
+                int cdsPosition = 1 + random.nextInt(3000);
+                ct.setCdnaPosition(cdsPosition + 100);
+                ct.setCdsPosition(cdsPosition);
+                ct.setCodon("Gca/Aca");
+                ProteinVariantAnnotation protein = new ProteinVariantAnnotation();
+                protein.setUniprotAccession("P" + String.format("%05d", random.nextInt(100000)));
+                protein.setPosition(cdsPosition / 3 + 1);
+                protein.setReference("ALA");
+                protein.setAlternate("THR");
+                protein.setSubstitutionScores(Arrays.asList(
+                        score("sift", random.nextDouble(), random.nextBoolean() ? "tolerated" : "deleterious"),
+                        score("polyphen", random.nextDouble(), random.nextBoolean() ? "benign" : "probably damaging")));
+                ct.setProteinVariantAnnotation(protein);
+            }
+        }
+        ct.setExonOverlap(Collections.emptyList());
+        ct.setSequenceOntologyTerms(Collections.singletonList(
+                new SequenceOntologyTerm(String.format("SO:%07d", ConsequenceTypeMappings.termToAccession.get(soName)), soName)));
+        return ct;
+    }
+
+    private static Score score(String source, double value) {
+        return score(source, value, null);
+    }
+
+    private static Score score(String source, double value, String description) {
+        Score score = new Score();
+        score.setSource(source);
+        score.setScore(value);
+        score.setDescription(description);
+        return score;
+    }
+
+    private String genotype() {
+        double p = random.nextDouble();
+        for (int i = 0; i < GENOTYPE_PROBABILITIES.length; i++) {
+            if (p < GENOTYPE_PROBABILITIES[i]) {
+                return GENOTYPES[i];
+            }
+        }
+        return GENOTYPES[0];
+    }
+
+    private String base() {
+        return BASES[random.nextInt(BASES.length)];
+    }
+
+    private String otherBase(String base) {
+        String other = base();
+        while (other.equals(base)) {
+            other = base();
+        }
+        return other;
+    }
+
+    private String bases(int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(base());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.benchmark.jmh;
+
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
+import org.opencb.opencga.storage.core.variant.dummy.DummyVariantStorageMetadataDBAdaptorFactory;
+import org.opencb.opencga.storage.core.variant.query.ParsedVariantQuery;
+import org.opencb.opencga.storage.core.variant.query.VariantQueryParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam.*;
+
+/**
+ * Benchmark for the {@link VariantQueryParser}, executed for every variant query.
+ *
+ * Queries requiring CellBase (genes, GO terms, expression...) are not included, so this benchmark can run offline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VariantQueryParserBenchmark {
+
+    private static final String STUDY_NAME = "study";
+    private static final int NUM_SAMPLES = 100;
+
+    @Param({"region", "genotype", "ctBt", "popFreq", "fileFilter"})
+    public String query;
+
+    private VariantQueryParser parser;
+    private Query inputQuery;
+    private QueryOptions options;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        DummyVariantStorageMetadataDBAdaptorFactory.clear();
+        VariantStorageMetadataManager metadataManager =
+                new VariantStorageMetadataManager(new DummyVariantStorageMetadataDBAdaptorFactory());
+        int studyId = metadataManager.createStudy(STUDY_NAME).getId();
+        List<String> samples = SyntheticVariantGenerator.sampleNames(NUM_SAMPLES);
+        int fileId = metadataManager.registerFile(studyId, "file.vcf", samples);
+        metadataManager.addIndexedFiles(studyId, Collections.singletonList(fileId));
+        metadataManager.updateStudyMetadata(studyId, studyMetadata -> {
+            studyMetadata.getAttributes().put(VariantStorageOptions.LOADED_GENOTYPES.key(),
+                    Arrays.asList("0/0", "0/1", "1/1", "./.", "0|1", "1|0"));
+            return studyMetadata;
+        });
+
+        parser = new VariantQueryParser(null, metadataManager);
+        inputQuery = buildQuery(query);
+        options = new QueryOptions(QueryOptions.LIMIT, 10);
+    }
+
+    private static Query buildQuery(String query) {
+        switch (query) {
+            case "region":
+                return new Query(REGION.key(), "1:1000-200000,2:5000-10000,X");
+            case "genotype":
+                return new Query(STUDY.key(), STUDY_NAME)
+                        .append(GENOTYPE.key(), "S0:0/1,1/1;S1:0/1;S2:0/0");
+            case "ctBt":
+                return new Query(ANNOT_CONSEQUENCE_TYPE.key(), "missense_variant,stop_gained,lof")
+                        .append(ANNOT_BIOTYPE.key(), "protein_coding");
+            case "popFreq":
+                return new Query(ANNOT_POPULATION_ALTERNATE_FREQUENCY.key(), "1kG_phase3:ALL<0.01;GNOMAD_GENOMES:ALL<0.01");
+            case "fileFilter":
+                return new Query(STUDY.key(), STUDY_NAME)
+                        .append(FILE.key(), "file.vcf")
+                        .append(FILTER.key(), "PASS")
+                        .append(INCLUDE_SAMPLE.key(), "S0,S1,S2");
+            default:
+                throw new IllegalArgumentException("Unknown query " + query);
+        }
+    }
+
+    @Benchmark
+    public ParsedVariantQuery parseQuery() {
+        // The parser modifies the input query
+        return parser.parseQuery(new Query(inputQuery), options);
+    }
+}
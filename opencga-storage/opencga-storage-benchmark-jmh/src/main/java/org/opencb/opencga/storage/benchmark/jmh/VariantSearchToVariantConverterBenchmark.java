@@ -0,0 +1,75 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.benchmark.jmh;
+
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.opencga.storage.core.variant.search.VariantSearchModel;
+import org.opencb.opencga.storage.core.variant.search.VariantSearchToVariantConverter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for the {@link VariantSearchToVariantConverter}, used to load variants into Solr, and to read them back.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VariantSearchToVariantConverterBenchmark {
+
+    private static final int NUM_VARIANTS = 1000;
+
+    @Param({"10", "100"})
+    public int numSamples;
+
+    private final VariantSearchToVariantConverter converter = new VariantSearchToVariantConverter();
+    private List<Variant> variants;
+    private List<VariantSearchModel> searchModels;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SyntheticVariantGenerator generator = new SyntheticVariantGenerator();
+        variants = generator.annotate(generator.variants("1", 1, 1000000, NUM_VARIANTS, "1", "1",
+                SyntheticVariantGenerator.sampleNames(numSamples)));
+        searchModels = new ArrayList<>(variants.size());
+        for (Variant variant : variants) {
+            searchModels.add(converter.convertToStorageType(variant));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_VARIANTS)
+    public void toSearchModel(Blackhole blackhole) {
+        for (Variant variant : variants) {
+            blackhole.consume(converter.convertToStorageType(variant));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_VARIANTS)
+    public void fromSearchModel(Blackhole blackhole) {
+        for (VariantSearchModel searchModel : searchModels) {
+            blackhole.consume(converter.convertToDataModelType(searchModel));
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.benchmark.jmh;
+
+import htsjdk.variant.vcf.VCFHeader;
+import htsjdk.variant.vcf.VCFHeaderVersion;
+import org.apache.commons.lang3.tuple.Pair;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.VariantFileMetadata;
+import org.opencb.biodata.tools.variant.VariantNormalizer;
+import org.opencb.biodata.tools.variant.stats.VariantSetStatsCalculator;
+import org.opencb.opencga.storage.core.io.managers.IOConnectorProvider;
+import org.opencb.opencga.storage.core.io.managers.LocalIOConnector;
+import org.opencb.opencga.storage.core.variant.VariantStorageBaseTest;
+import org.opencb.opencga.storage.core.variant.io.VariantReaderUtils;
+import org.opencb.opencga.storage.core.variant.transform.VariantBytesTransformTask;
+import org.opencb.opencga.storage.core.variant.transform.VariantTransformTask;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Benchmark for the VCF transform step, comparing the htsjdk based {@link VariantTransformTask}
+ * with the {@link VariantBytesTransformTask}.
+ *
+ * Both tasks include the normalization and the stats calculation, as executed by the
+ * {@link org.opencb.opencga.storage.core.variant.VariantStoragePipeline}.
+ *
+ * The input are the first lines of the VCF files used by the storage tests, read from the opencga-storage-core test-jar:
+ *  - A small VCF with 4 samples
+ *  - The 1000 genomes chr22 VCF, with 2504 samples
+ *  - A platinum gVCF, with 1 sample and reference blocks (END attribute), which the bytes parser delegates to htsjdk
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VariantTransformTaskBenchmark {
+
+    private static final int NUM_LINES = 500;
+    private static final String STUDY_ID = "1";
+
+    @Param({"htsjdk", "bytes"})
+    public String parser;
+
+    @Param({VariantStorageBaseTest.SMALL_VCF_TEST_FILE_NAME,
+            VariantStorageBaseTest.VCF_TEST_FILE_NAME,
+            "platinum/1K.end.platinum-genomes-vcf-NA12877_S1.genome.vcf.gz"})
+    public String input;
+
+    private Path vcf;
+    private VariantTransformTask htsjdkTask;
+    private VariantBytesTransformTask bytesTask;
+    private List<String> lines;
+    private List<ByteBuffer> chunk;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        vcf = Files.createTempFile("benchmark", input.endsWith(".gz") ? ".vcf.gz" : ".vcf");
+        try (InputStream is = VariantStorageBaseTest.class.getClassLoader().getResourceAsStream(input)) {
+            if (is == null) {
+                throw new FileNotFoundException("Resource " + input + " not found");
+            }
+            Files.copy(is, vcf, StandardCopyOption.REPLACE_EXISTING);
+        }
+        lines = readLines(vcf, NUM_LINES);
+
+        VariantReaderUtils readerUtils = new VariantReaderUtils(new IOConnectorProvider(LocalIOConnector.class));
+        URI inputUri = vcf.toUri();
+        VariantFileMetadata metadata = readerUtils.readVariantFileMetadata(inputUri);
+        Pair<VCFHeader, VCFHeaderVersion> header = readerUtils.readHtsHeader(inputUri, false);
+
+        VariantNormalizer normalizer = new VariantNormalizer(new VariantNormalizer.VariantNormalizerConfig()
+                .setReuseVariants(true)
+                .setNormalizeAlleles(true)
+                .setDecomposeMNVs(false));
+        normalizer.configure(metadata.getHeader());
+        VariantSetStatsCalculator statsCalculator = new VariantSetStatsCalculator(STUDY_ID, metadata);
+
+        if (parser.equals("htsjdk")) {
+            htsjdkTask = new VariantTransformTask(header.getKey(), header.getValue(), STUDY_ID, metadata, statsCalculator, normalizer);
+            htsjdkTask.pre();
+        } else if (parser.equals("bytes")) {
+            bytesTask = new VariantBytesTransformTask(header.getKey(), header.getValue(), STUDY_ID, metadata, statsCalculator,
+                    normalizer);
+            bytesTask.pre();
+            StringBuilder chunkSb = new StringBuilder();
+            for (String line : lines) {
+                chunkSb.append(line).append('\n');
+            }
+            chunk = Collections.singletonList(ByteBuffer.wrap(chunkSb.toString().getBytes(StandardCharsets.UTF_8)));
+        } else {
+            throw new IllegalArgumentException("Unknown parser " + parser);
+        }
+    }
+
+    private static List<String> readLines(Path vcf, int numLines) throws IOException {
+        InputStream is = Files.newInputStream(vcf);
+        if (vcf.toString().endsWith(".gz")) {
+            is = new GZIPInputStream(is);
+        }
+        List<String> lines = new ArrayList<>(numLines);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+            String line;
+            while (lines.size() < numLines && (line = reader.readLine()) != null) {
+                if (!line.startsWith("#")) {
+                    lines.add(line);
+                }
+            }
+        }
+        if (lines.size() < numLines) {
+            throw new IllegalStateException("Expected at least " + numLines + " variants in " + vcf.getFileName()
+                    + ", found " + lines.size());
+        }
+        return lines;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(vcf);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_LINES)
+    public List<Variant> transform() {
+        if (htsjdkTask != null) {
+            return htsjdkTask.apply(lines);
+        } else {
+            return bytesTask.apply(chunk);
+        }
+    }
+}
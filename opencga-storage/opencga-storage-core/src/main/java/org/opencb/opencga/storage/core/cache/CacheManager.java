@@ -16,182 +16,349 @@
 
 package org.opencb.opencga.storage.core.cache;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.VariantAvro;
+import org.opencb.commons.datastore.core.DataResult;
+import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
-import org.opencb.commons.datastore.core.QueryResult;
+import org.opencb.opencga.core.common.JacksonUtils;
+import org.opencb.opencga.core.response.OpenCGAResult;
+import org.opencb.opencga.core.response.VariantQueryResult;
 import org.opencb.opencga.storage.core.config.CacheConfiguration;
 import org.opencb.opencga.storage.core.config.StorageConfiguration;
-import org.redisson.Config;
-import org.redisson.Redisson;
-import org.redisson.RedissonClient;
-import org.redisson.client.RedisConnectionException;
-import org.redisson.codec.JsonJacksonCodec;
-import org.redisson.codec.KryoCodec;
-import org.redisson.core.RKeys;
-import org.redisson.core.RMap;
+import org.opencb.opencga.storage.core.variant.query.ParsedVariantQuery;
+import org.opencb.opencga.storage.core.variant.query.VariantQueryUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.*;
-import java.util.regex.Pattern;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
+ * Two tier cache for query results.
+ *  - Tier one: In-process cache, bounded by the total number of cached results, with LRU eviction.
+ *  - Tier two: Optional out-of-process {@link CacheStore}, shared between instances.
+ *
+ * Keys are built from the normalized {@link ParsedVariantQuery} and the version of the data, so any modification
+ * in the data (e.g. new indexed files) makes the old entries unreachable. Old entries are eventually evicted.
+ *
+ * Cached {@link DataResult}s are copied when stored and when returned, so callers can freely modify them.
+ * If the cache store fails, it is not used again until a retry delay, that grows exponentially with consecutive errors.
+ *
  * Created by wasim on 26/10/16.
  */
 public class CacheManager {
 
-    private StorageConfiguration storageConfiguration;
-
-    private Config redissonConfig;
-    private Set<String> allowedTypesSet;
-    private RedissonClient redissonClient;
-    private boolean redisState;
-
-
+    public static final String CACHE = "cache";
     private static final String PREFIX_DATABASE_KEY = "ocga:";
+    // Options that do not modify the result
+    private static final Set<String> IGNORED_OPTIONS = new HashSet<>(Arrays.asList(CACHE, VariantQueryUtils.EXPLAIN,
+            QueryOptions.TIMEOUT, "sId"));
+    private static final long STORE_RETRY_MIN_DELAY_MS = TimeUnit.SECONDS.toMillis(1);
+    private static final long STORE_RETRY_MAX_DELAY_MS = TimeUnit.MINUTES.toMillis(5);
+
+    private final CacheConfiguration configuration;
+    private final Set<String> allowedTypesSet;
+    private final Cache<String, Object> localCache;
+    private CacheStore store;
+    private long storeRetryMinDelay = STORE_RETRY_MIN_DELAY_MS;
+    private long storeRetryMaxDelay = STORE_RETRY_MAX_DELAY_MS;
+    // Delay applied after the last store error. 0 if the last store operation succeeded.
+    private volatile long storeRetryDelay;
+    private volatile long storeRetryTime;
+
+    private final AtomicLong localHits = new AtomicLong();
+    private final AtomicLong storeHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong puts = new AtomicLong();
+    private final AtomicLong storeErrors = new AtomicLong();
+
+    private final Logger logger = LoggerFactory.getLogger(CacheManager.class);
 
     public CacheManager() {
+        this(new CacheConfiguration().setActive(false), null);
     }
 
     public CacheManager(StorageConfiguration configuration) {
+        this(configuration == null || configuration.getCache() == null
+                ? new CacheConfiguration().setActive(false)
+                : configuration.getCache(), null);
+    }
 
-        CacheConfiguration cache;
-
-        if (configuration != null && configuration.getCache() != null) {
-
-            this.storageConfiguration = configuration;
-
-            cache = configuration.getCache();
-            redissonConfig = new Config();
-
-            String host = (StringUtils.isNotEmpty(cache.getHost()))
-                    ? cache.getHost()
-                    : CacheConfiguration.DEFAULT_HOST;
-            redissonConfig.useSingleServer().setAddress(host);
-
-            String codec = (StringUtils.isNotEmpty(cache.getSerialization()))
-                    ? cache.getSerialization()
-                    : CacheConfiguration.DEFAULT_SERIALIZATION;
-
-            this.allowedTypesSet = new HashSet<>(Arrays.asList(cache.getAllowedTypes().split(",")));
-
-
-            if (StringUtils.isNotEmpty(cache.getPassword())) {
-                redissonConfig.useSingleServer().setPassword(cache.getPassword());
+    public CacheManager(CacheConfiguration configuration, CacheStore store) {
+        this.configuration = configuration;
+        this.allowedTypesSet = new HashSet<>(Arrays.asList(StringUtils.defaultString(configuration.getAllowedTypes()).split(",")));
+
+        long maxResults = configuration.getMaxResults() > 0 ? configuration.getMaxResults() : CacheConfiguration.DEFAULT_MAX_RESULTS;
+        localCache = CacheBuilder.newBuilder()
+                .maximumWeight(maxResults)
+                .weigher((String key, Object value) -> weight(value))
+                .recordStats()
+                .build();
+
+        if (store == null && configuration.isActive()) {
+            String storeType = StringUtils.defaultIfEmpty(configuration.getStore(), CacheConfiguration.DEFAULT_STORE);
+            switch (storeType.toLowerCase()) {
+                case "redis":
+                    store = new RedisCacheStore(configuration);
+                    break;
+                case "local":
+                    store = new LocalCacheStore();
+                    break;
+                case "none":
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown cache store '" + storeType + "'");
             }
+        }
+        this.store = store;
+    }
 
-            if ("KRYO".equalsIgnoreCase(codec)) {
-                redissonConfig.setCodec(new KryoCodec());
-            } else {
-                redissonConfig.setCodec(new JsonJacksonCodec());
+    /**
+     * Get a value from the cache. Values found in the cache store are promoted to the local cache.
+     *
+     * @param key Key
+     * @param <T> Value type
+     * @return    Copy of the cached value, or null if missing
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key) {
+        if (!isActive()) {
+            return null;
+        }
+        Object value = localCache.getIfPresent(key);
+        if (value != null) {
+            localHits.incrementAndGet();
+            return (T) copy(value);
+        }
+        if (isStoreAvailable()) {
+            try {
+                value = store.get(key);
+                storeSuccess();
+            } catch (IOException | RuntimeException e) {
+                storeError(e);
+            }
+            if (value != null) {
+                storeHits.incrementAndGet();
+                // The store may share the instance (e.g. LocalCacheStore). Keep a private copy.
+                value = copy(value);
+                localCache.put(key, value);
+                return (T) copy(value);
             }
-
-            redisState = true;
-
-//            redissonClient = Redisson.create(redissonConfig);
-            redissonClient = null;
         }
+        misses.incrementAndGet();
+        return null;
     }
 
-
-    public <T> QueryResult<T> get(String key) {
-
-        QueryResult<T> queryResult = new QueryResult<>();
-        if (isActive()) {
-            long start = System.currentTimeMillis();
-            RMap<Integer, Map<String, Object>> map = getRedissonClient().getMap(key);
-
+    /**
+     * Put a value into the cache, only if it was slow enough to compute, and not too big.
+     *
+     * @param key        Key
+     * @param value      Value
+     * @param time       Time (ms) used to compute the value
+     * @param numResults Number of results in the value
+     */
+    public void set(String key, Object value, long time, long numResults) {
+        if (!isActive() || value == null) {
+            return;
+        }
+        if (time < configuration.getSlowThreshold()
+                || configuration.getMaxResultSize() > 0 && numResults > configuration.getMaxResultSize()) {
+            return;
+        }
+        puts.incrementAndGet();
+        // The caller still owns the given value
+        value = copy(value);
+        localCache.put(key, value);
+        if (isStoreAvailable()) {
             try {
-                // We only retrieve the first field of the HASH, which is the only one that exist.
-                Map<Integer, Map<String, Object>> result = map.getAll(new HashSet<>(Collections.singletonList(0)));
-
-                if (result != null && !result.isEmpty()) {
-                    Object resultMap = result.get(0).get("result");
-                    queryResult = (QueryResult<T>) resultMap;
-                    queryResult.setDbTime((int) (System.currentTimeMillis() - start));
-                }
-            } catch (RedisConnectionException e) {
-                redisState = false;
-                queryResult.setWarningMsg("Unable to connect to Redis Cache, Please query WITHOUT Cache (Falling back to Database)");
-                return queryResult;
+                store.put(key, value, TimeUnit.SECONDS.toMillis(configuration.getTtl()));
+                storeSuccess();
+            } catch (IOException | RuntimeException e) {
+                storeError(e);
             }
         }
-        return queryResult;
     }
 
-    public void set(String key, Query query, QueryResult queryResult) {
+    /**
+     * Build a key for the given query.
+     *
+     * @param type        Type of result. See {@link #isTypeAllowed}
+     * @param query       Parsed query. Uses the normalized query
+     * @param dataVersion Version of the data being queried
+     * @return            Key
+     */
+    public String createKey(String type, ParsedVariantQuery query, long dataVersion) {
+        return createKey(type, query.getQuery(), query.getInputOptions(), dataVersion);
+    }
 
-        if (isActive()) {
-            if (queryResult.getDbTime() >= storageConfiguration.getCache().getSlowThreshold()
-                    && queryResult.getResult().size() >= storageConfiguration.getCache().getMaxResultSize()) {
-                RMap<Integer, Map<String, Object>> map = getRedissonClient().getMap(key);
-                Map<String, Object> record = new HashMap<>();
-                record.put("query", query);
-                record.put("result", queryResult);
-                try {
-                    map.fastPut(0, record);
-                } catch (RedisConnectionException e) {
-                    redisState = false;
-                    queryResult.setWarningMsg("Unable to connect to Redis Cache, Please query WITHOUT Cache (Falling back to Database)");
+    public String createKey(String type, Query query, QueryOptions queryOptions, long dataVersion) {
+        SortedMap<String, List<String>> map = new TreeMap<>();
+        for (Map.Entry<String, Object> entry : query.entrySet()) {
+            Object value = entry.getValue();
+            if (value != null && !(value instanceof String && ((String) value).isEmpty())
+                    && !(value instanceof Collection && ((Collection) value).isEmpty())) {
+                map.put(entry.getKey(), query.getAsStringList(entry.getKey()));
+            }
+        }
+        if (queryOptions != null) {
+            for (String key : queryOptions.keySet()) {
+                if (!IGNORED_OPTIONS.contains(key) && queryOptions.get(key) != null) {
+                    map.put("opt." + key, queryOptions.getAsStringList(key));
                 }
             }
         }
+
+        return PREFIX_DATABASE_KEY + type + ':' + dataVersion + ':' + DigestUtils.sha1Hex(map.toString());
     }
 
-    public String createKey(String studyId, String allowedType, Query query, QueryOptions queryOptions) {
+    /**
+     * Get the cache metrics.
+     *  - hits, localHits, storeHits, misses, hitRate
+     *  - puts, evictions, size, weight
+     *  - storeErrors, storeAlive
+     *
+     * @return Cache metrics
+     */
+    public ObjectMap getStats() {
+        long hits = localHits.get() + storeHits.get();
+        long requests = hits + misses.get();
+        return new ObjectMap()
+                .append("active", isActive())
+                .append("hits", hits)
+                .append("localHits", localHits.get())
+                .append("storeHits", storeHits.get())
+                .append("misses", misses.get())
+                .append("hitRate", requests == 0 ? 0 : ((double) hits) / requests)
+                .append("puts", puts.get())
+                .append("evictions", localCache.stats().evictionCount())
+                .append("size", localCache.size())
+                .append("storeAlive", store != null && storeRetryDelay == 0)
+                .append("storeErrors", storeErrors.get());
+    }
 
-        queryOptions.remove("cache");
-        queryOptions.remove("sId");
+    public boolean isActive() {
+        return configuration.isActive();
+    }
 
-        StringBuilder key = new StringBuilder(PREFIX_DATABASE_KEY);
-        key.append(studyId).append(":").append(allowedType);
-        SortedMap<String, SortedSet<Object>> map = new TreeMap<>();
+    public boolean isTypeAllowed(String type) {
+        return allowedTypesSet.contains(type);
+    }
 
-        for (String item : query.keySet()) {
-            map.put(item.toLowerCase(), new TreeSet<>(query.getAsStringList(item)));
+    public void clear() {
+        localCache.invalidateAll();
+        if (isStoreAvailable()) {
+            try {
+                store.clear(PREFIX_DATABASE_KEY);
+                storeSuccess();
+            } catch (IOException | RuntimeException e) {
+                storeError(e);
+            }
         }
+    }
 
-        for (String item : queryOptions.keySet()) {
-            map.put(item.toLowerCase(), new TreeSet<>(queryOptions.getAsStringList(item)));
+    public void close() {
+        localCache.invalidateAll();
+        if (store != null) {
+            try {
+                store.close();
+            } catch (IOException e) {
+                logger.warn("Error closing cache store", e);
+            }
+            store = null;
         }
+    }
 
-        String sha1 = DigestUtils.sha1Hex(map.toString());
-        key.append(":").append(sha1);
-
-        queryOptions.add("cache", "true");
-        return key.toString();
+    /**
+     * Set the delay before using again the cache store after an error. Doubles with every consecutive error, up to the max.
+     *
+     * @param minDelay Delay (ms) after the first error
+     * @param maxDelay Max delay (ms)
+     */
+    void setStoreRetryDelay(long minDelay, long maxDelay) {
+        this.storeRetryMinDelay = minDelay;
+        this.storeRetryMaxDelay = maxDelay;
     }
 
-    public boolean isActive() {
-        return storageConfiguration.getCache().isActive() && redisState;
+    private boolean isStoreAvailable() {
+        return store != null && System.currentTimeMillis() >= storeRetryTime;
     }
 
-    public boolean isTypeAllowed(String type) {
-        return allowedTypesSet.contains(type);
+    private void storeSuccess() {
+        if (storeRetryDelay != 0) {
+            storeRetryDelay = 0;
+            logger.info("Cache store available again");
+        }
     }
 
-    public void clear() {
-        RKeys redisKeys = getRedissonClient().getKeys();
-        redisKeys.deleteByPattern(PREFIX_DATABASE_KEY + "*");
+    private synchronized void storeError(Exception e) {
+        storeErrors.incrementAndGet();
+        // Fall back to local cache only, and retry later
+        storeRetryDelay = storeRetryDelay == 0 ? storeRetryMinDelay : Math.min(storeRetryDelay * 2, storeRetryMaxDelay);
+        storeRetryTime = System.currentTimeMillis() + storeRetryDelay;
+        logger.warn("Unable to connect to the cache store. Using only local cache for the next " + storeRetryDelay + "ms. "
+                + e.getMessage());
     }
 
-    public void clear(Pattern pattern) {
-        RKeys redisKeys = getRedissonClient().getKeys();
-        redisKeys.deleteByPattern(pattern.toString());
+    /**
+     * Copy a cached value, so the cached instance is never shared with the callers.
+     * DataResults are copied with their results, events and attributes. Variants are deep copied.
+     * Any other result is copied through its JSON representation.
+     *
+     * @param value Value to copy
+     * @return      Copy of the value, or the same value if it is not a DataResult
+     */
+    @SuppressWarnings("unchecked")
+    static Object copy(Object value) {
+        if (!(value instanceof DataResult)) {
+            return value;
+        }
+        DataResult<Object> result = (DataResult<Object>) value;
+        List<Object> results = null;
+        if (result.getResults() != null) {
+            results = new ArrayList<>(result.getResults().size());
+            for (Object o : result.getResults()) {
+                results.add(copyResult(o));
+            }
+        }
+        DataResult<Object> copy = new DataResult<>(result.getTime(),
+                result.getEvents() == null ? null : new ArrayList<>(result.getEvents()),
+                result.getNumResults(), results, result.getNumMatches(),
+                result.getNumInserted(), result.getNumUpdated(), result.getNumDeleted(),
+                result.getAttributes() == null ? null : JacksonUtils.getDefaultObjectMapper().convertValue(result.getAttributes(),
+                        ObjectMap.class));
+        if (value instanceof VariantQueryResult) {
+            return new VariantQueryResult<>(copy);
+        } else if (value instanceof OpenCGAResult) {
+            return new OpenCGAResult<>(copy);
+        } else {
+            return copy;
+        }
     }
 
-    public void close() {
-        if (redissonClient != null) {
-            redissonClient.shutdown();
-            redissonClient = null;
+    private static Object copyResult(Object o) {
+        if (o == null || o instanceof String || o instanceof Number || o instanceof Boolean) {
+            return o;
+        } else if (o instanceof Variant) {
+            return new Variant(VariantAvro.newBuilder(((Variant) o).getImpl()).build());
+        } else {
+            return JacksonUtils.getDefaultObjectMapper().convertValue(o, o.getClass());
         }
     }
 
-    private synchronized RedissonClient getRedissonClient() {
-        if (redissonClient == null) {
-            redissonClient = Redisson.create(redissonConfig);
+    private static int weight(Object value) {
+        if (value instanceof DataResult) {
+            return 1 + ((DataResult<?>) value).getNumResults();
+        } else {
+            return 1;
         }
-        return redissonClient;
     }
 
 }
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Second tier of the {@link CacheManager}. Out-of-process store shared between multiple instances.
+ */
+public interface CacheStore extends Closeable {
+
+    /**
+     * Get a value from the store.
+     *
+     * @param key Key
+     * @return    Stored value, or null if missing
+     * @throws IOException if the store is not reachable
+     */
+    Object get(String key) throws IOException;
+
+    /**
+     * Put a value in the store.
+     *
+     * @param key       Key
+     * @param value     Value
+     * @param ttlMillis Time to live in milliseconds
+     * @throws IOException if the store is not reachable
+     */
+    void put(String key, Object value, long ttlMillis) throws IOException;
+
+    /**
+     * Remove all the entries with the given prefix.
+     *
+     * @param prefix Key prefix
+     * @throws IOException if the store is not reachable
+     */
+    void clear(String prefix) throws IOException;
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Embedded {@link CacheStore}, to be used when no external store is available, and for testing.
+ */
+public class LocalCacheStore implements CacheStore {
+
+    private final Map<String, Entry> map = new ConcurrentHashMap<>();
+
+    @Override
+    public Object get(String key) {
+        Entry entry = map.get(key);
+        if (entry == null) {
+            return null;
+        } else if (entry.expiration < System.currentTimeMillis()) {
+            map.remove(key, entry);
+            return null;
+        } else {
+            return entry.value;
+        }
+    }
+
+    @Override
+    public void put(String key, Object value, long ttlMillis) {
+        map.put(key, new Entry(value, ttlMillis > 0 ? System.currentTimeMillis() + ttlMillis : Long.MAX_VALUE));
+    }
+
+    @Override
+    public void clear(String prefix) {
+        map.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public void close() {
+        map.clear();
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final long expiration;
+
+        private Entry(Object value, long expiration) {
+            this.value = value;
+            this.expiration = expiration;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.cache;
+
+import org.apache.commons.lang3.StringUtils;
+import org.opencb.opencga.storage.core.config.CacheConfiguration;
+import org.redisson.Config;
+import org.redisson.Redisson;
+import org.redisson.RedissonClient;
+import org.redisson.client.RedisException;
+import org.redisson.codec.JsonJacksonCodec;
+import org.redisson.codec.KryoCodec;
+import org.redisson.core.RBucket;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CacheStore} backed by a Redis server.
+ */
+public class RedisCacheStore implements CacheStore {
+
+    private final Config redissonConfig;
+    private RedissonClient redissonClient;
+
+    public RedisCacheStore(CacheConfiguration cache) {
+        redissonConfig = new Config();
+
+        String host = StringUtils.isNotEmpty(cache.getHost())
+                ? cache.getHost()
+                : CacheConfiguration.DEFAULT_HOST;
+        redissonConfig.useSingleServer().setAddress(host);
+        if (StringUtils.isNotEmpty(cache.getPassword())) {
+            redissonConfig.useSingleServer().setPassword(cache.getPassword());
+        }
+
+        String codec = StringUtils.isNotEmpty(cache.getSerialization())
+                ? cache.getSerialization()
+                : CacheConfiguration.DEFAULT_SERIALIZATION;
+        if ("KRYO".equalsIgnoreCase(codec)) {
+            redissonConfig.setCodec(new KryoCodec());
+        } else {
+            redissonConfig.setCodec(new JsonJacksonCodec());
+        }
+    }
+
+    @Override
+    public Object get(String key) throws IOException {
+        try {
+            RBucket<Object> bucket = getRedissonClient().getBucket(key);
+            return bucket.get();
+        } catch (RedisException e) {
+            throw new IOException("Error reading from Redis", e);
+        }
+    }
+
+    @Override
+    public void put(String key, Object value, long ttlMillis) throws IOException {
+        try {
+            RBucket<Object> bucket = getRedissonClient().getBucket(key);
+            if (ttlMillis > 0) {
+                bucket.set(value, ttlMillis, TimeUnit.MILLISECONDS);
+            } else {
+                bucket.set(value);
+            }
+        } catch (RedisException e) {
+            throw new IOException("Error writing into Redis", e);
+        }
+    }
+
+    @Override
+    public void clear(String prefix) throws IOException {
+        try {
+            getRedissonClient().getKeys().deleteByPattern(prefix + "*");
+        } catch (RedisException e) {
+            throw new IOException("Error clearing Redis keys", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (redissonClient != null) {
+            redissonClient.shutdown();
+            redissonClient = null;
+        }
+    }
+
+    private synchronized RedissonClient getRedissonClient() {
+        if (redissonClient == null) {
+            redissonClient = Redisson.create(redissonConfig);
+        }
+        return redissonClient;
+    }
+}
@@ -35,17 +35,33 @@ public class CacheConfiguration {
     private int maxResultSize;
     private String password;
 
+    /**
+     * Out-of-process cache store. Accepted values are: redis, local, none.
+     */
+    private String store;
+    /**
+     * Max number of results to keep in the in-process cache.
+     */
+    private long maxResults;
+    /**
+     * Time to live of the entries in the cache store, in seconds.
+     */
+    private int ttl;
+
     /**
      * Accepted values are: aln(alignment), var(variant).
      */
     private String allowedTypes;
 
-    public static final boolean DEFAULT_ACTVE = true;
+    public static final boolean DEFAULT_ACTVE = false;
     public static final String DEFAULT_SERIALIZATION = "json";
     public static final String DEFAULT_ALLOWED_TYPE = "aln,var";
     public static final String DEFAULT_HOST = "localhost:6379";
     public static final String DEFAULT_PASSWORD = "";
     public static final int DEFAULT_MAX_FILE_SIZE = 500;
+    public static final String DEFAULT_STORE = "none";
+    public static final long DEFAULT_MAX_RESULTS = 200000;
+    public static final int DEFAULT_TTL = 3600;
 
     public CacheConfiguration() {
         this(DEFAULT_HOST, DEFAULT_ACTVE, DEFAULT_SERIALIZATION, 50, DEFAULT_MAX_FILE_SIZE, DEFAULT_PASSWORD,
@@ -61,6 +77,9 @@ public class CacheConfiguration {
         this.maxResultSize = maxFileSize;
         this.password = password;
         this.allowedTypes = allowedTypes;
+        this.store = DEFAULT_STORE;
+        this.maxResults = DEFAULT_MAX_RESULTS;
+        this.ttl = DEFAULT_TTL;
     }
 
     @Override
@@ -72,6 +91,9 @@ public class CacheConfiguration {
                 + ", slowThreshold=" + slowThreshold
                 + ", maxResultSize=" + maxResultSize
                 + ", allowedTypes='" + allowedTypes + '\''
+                + ", store='" + store + '\''
+                + ", maxResults=" + maxResults
+                + ", ttl=" + ttl
                 + '}');
         return sb.toString();
     }
@@ -138,4 +160,31 @@ public class CacheConfiguration {
         this.allowedTypes = allowedTypes;
         return this;
     }
+
+    public String getStore() {
+        return store;
+    }
+
+    public CacheConfiguration setStore(String store) {
+        this.store = store;
+        return this;
+    }
+
+    public long getMaxResults() {
+        return maxResults;
+    }
+
+    public CacheConfiguration setMaxResults(long maxResults) {
+        this.maxResults = maxResults;
+        return this;
+    }
+
+    public int getTtl() {
+        return ttl;
+    }
+
+    public CacheConfiguration setTtl(int ttl) {
+        this.ttl = ttl;
+        return this;
+    }
 }
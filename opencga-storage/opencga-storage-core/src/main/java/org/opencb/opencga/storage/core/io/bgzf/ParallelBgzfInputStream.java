@@ -0,0 +1,325 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.io.bgzf;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * InputStream that decompresses a BGZF file using multiple threads.
+ *
+ * BGZF files are a concatenation of independent gzip blocks of at most 64KB. The raw blocks are read sequentially from the
+ * underlying stream, and inflated concurrently in a thread pool. The decompressed blocks are returned in the same order they
+ * were read, so the output is exactly the same as the one produced by a {@link java.util.zip.GZIPInputStream}.
+ */
+public class ParallelBgzfInputStream extends InputStream {
+
+    public static final int BLOCK_HEADER_LENGTH = 18;
+    public static final int MAX_BLOCK_SIZE = 64 * 1024;
+
+    private static final int GZIP_ID1 = 31;
+    private static final int GZIP_ID2 = 139;
+    private static final int GZIP_CM_DEFLATE = 8;
+    private static final int GZIP_FLG_EXTRA = 4;
+    private static final int BGZF_SI1 = 66;
+    private static final int BGZF_SI2 = 67;
+    private static final int BGZF_SLEN = 2;
+    private static final byte[] EMPTY = new byte[0];
+
+    private final InputStream in;
+    private final ExecutorService executor;
+    private final int maxBlocksInFlight;
+    private final Deque<Future<byte[]>> pending;
+    private final ThreadLocal<Inflater> inflater = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    private byte[] current = EMPTY;
+    private int currentOffset = 0;
+    private boolean eof = false;
+    private boolean closed = false;
+
+    private final AtomicLong compressedBytes = new AtomicLong();
+    private final AtomicLong uncompressedBytes = new AtomicLong();
+    private final AtomicLong decompressNanos = new AtomicLong();
+    private long waitNanos = 0;
+    private long blocks = 0;
+
+    /**
+     * @param in         Raw BGZF input stream
+     * @param numThreads Number of threads used to decompress blocks
+     */
+    public ParallelBgzfInputStream(InputStream in, int numThreads) {
+        this(in, numThreads, numThreads * 4);
+    }
+
+    /**
+     * @param in                Raw BGZF input stream
+     * @param numThreads        Number of threads used to decompress blocks
+     * @param maxBlocksInFlight Max number of blocks being decompressed or waiting to be consumed.
+     *                          Limits the memory usage to maxBlocksInFlight * 64KB
+     */
+    public ParallelBgzfInputStream(InputStream in, int numThreads, int maxBlocksInFlight) {
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("Expected at least one thread. Got " + numThreads);
+        }
+        this.in = in;
+        this.maxBlocksInFlight = Math.max(maxBlocksInFlight, numThreads);
+        this.pending = new ArrayDeque<>(this.maxBlocksInFlight);
+        this.executor = Executors.newFixedThreadPool(numThreads, r -> {
+            Thread thread = new Thread(r, "bgzf-inflater");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Check if the given stream is a BGZF file.
+     * The stream must support mark/reset. The position of the stream is not modified.
+     *
+     * @param is InputStream to check
+     * @return if the stream starts with a BGZF block header
+     * @throws IOException on error reading the stream
+     */
+    public static boolean isBgzf(InputStream is) throws IOException {
+        if (!is.markSupported()) {
+            throw new IllegalArgumentException("Mark not supported");
+        }
+        byte[] header = new byte[BLOCK_HEADER_LENGTH];
+        is.mark(BLOCK_HEADER_LENGTH);
+        try {
+            int read = readFully(is, header, 0, BLOCK_HEADER_LENGTH);
+            return read == BLOCK_HEADER_LENGTH && isBgzfHeader(header);
+        } finally {
+            is.reset();
+        }
+    }
+
+    private static boolean isBgzfHeader(byte[] header) {
+        return (header[0] & 0xFF) == GZIP_ID1
+                && (header[1] & 0xFF) == GZIP_ID2
+                && (header[2] & 0xFF) == GZIP_CM_DEFLATE
+                && (header[3] & GZIP_FLG_EXTRA) != 0
+                && unpackShort(header, 10) >= 6
+                && (header[12] & 0xFF) == BGZF_SI1
+                && (header[13] & 0xFF) == BGZF_SI2
+                && unpackShort(header, 14) == BGZF_SLEN;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        return current[currentOffset++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        int n = Math.min(len, current.length - currentOffset);
+        System.arraycopy(current, currentOffset, b, off, n);
+        currentOffset += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current.length - currentOffset;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Future<byte[]> future : pending) {
+            future.cancel(true);
+        }
+        pending.clear();
+        executor.shutdownNow();
+        in.close();
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes.get();
+    }
+
+    public long getUncompressedBytes() {
+        return uncompressedBytes.get();
+    }
+
+    public long getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * @return Accumulated time spent by all threads inflating blocks, in nanoseconds.
+     */
+    public long getDecompressNanos() {
+        return decompressNanos.get();
+    }
+
+    /**
+     * @return Time the consumer thread has been blocked waiting for a block to be decompressed, in nanoseconds.
+     */
+    public long getWaitNanos() {
+        return waitNanos;
+    }
+
+    private boolean ensureAvailable() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (currentOffset >= current.length) {
+            fillPending();
+            if (pending.isEmpty()) {
+                return false;
+            }
+            Future<byte[]> future = pending.poll();
+            long start = System.nanoTime();
+            try {
+                current = future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            } finally {
+                waitNanos += System.nanoTime() - start;
+            }
+            currentOffset = 0;
+        }
+        return true;
+    }
+
+    private void fillPending() throws IOException {
+        while (!eof && pending.size() < maxBlocksInFlight) {
+            byte[] block = readRawBlock();
+            if (block == null) {
+                eof = true;
+            } else {
+                blocks++;
+                pending.add(executor.submit(() -> inflate(block)));
+            }
+        }
+    }
+
+    /**
+     * Read the next compressed block from the input stream.
+     *
+     * @return Full compressed block, including header and footer. Null if EOF.
+     * @throws IOException on error reading the stream
+     */
+    private byte[] readRawBlock() throws IOException {
+        byte[] header = new byte[BLOCK_HEADER_LENGTH];
+        int read = readFully(in, header, 0, BLOCK_HEADER_LENGTH);
+        if (read == 0) {
+            return null;
+        } else if (read != BLOCK_HEADER_LENGTH) {
+            throw new EOFException("Premature end of BGZF file. Truncated block header");
+        }
+        if (!isBgzfHeader(header)) {
+            throw new IOException("Invalid BGZF block header at block " + blocks);
+        }
+        int blockSize = unpackShort(header, 16) + 1;
+        if (blockSize < BLOCK_HEADER_LENGTH + 8) {
+            throw new IOException("Invalid BGZF block size " + blockSize + " at block " + blocks);
+        }
+        byte[] block = new byte[blockSize];
+        System.arraycopy(header, 0, block, 0, BLOCK_HEADER_LENGTH);
+        if (readFully(in, block, BLOCK_HEADER_LENGTH, blockSize - BLOCK_HEADER_LENGTH) != blockSize - BLOCK_HEADER_LENGTH) {
+            throw new EOFException("Premature end of BGZF file. Truncated block " + blocks);
+        }
+        compressedBytes.addAndGet(blockSize);
+        return block;
+    }
+
+    private byte[] inflate(byte[] block) throws IOException {
+        long start = System.nanoTime();
+        int extraLength = unpackShort(block, 10);
+        int dataOffset = 12 + extraLength;
+        int dataLength = block.length - dataOffset - 8;
+        int uncompressedSize = unpackInt(block, block.length - 4);
+        int expectedCrc = unpackInt(block, block.length - 8);
+        if (uncompressedSize < 0 || uncompressedSize > MAX_BLOCK_SIZE) {
+            throw new IOException("Invalid BGZF uncompressed block size " + uncompressedSize);
+        }
+        if (uncompressedSize == 0) {
+            // Empty block. Usually, the EOF marker
+            return EMPTY;
+        }
+        byte[] output = new byte[uncompressedSize];
+        Inflater inflater = this.inflater.get();
+        inflater.reset();
+        inflater.setInput(block, dataOffset, dataLength);
+        try {
+            int inflated = inflater.inflate(output, 0, uncompressedSize);
+            if (inflated != uncompressedSize) {
+                throw new IOException("Did not inflate expected amount of bytes. Expected " + uncompressedSize + ", got " + inflated);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Error inflating BGZF block", e);
+        }
+        CRC32 crc32 = new CRC32();
+        crc32.update(output, 0, uncompressedSize);
+        if ((int) crc32.getValue() != expectedCrc) {
+            throw new IOException("CRC mismatch in BGZF block");
+        }
+        uncompressedBytes.addAndGet(uncompressedSize);
+        decompressNanos.addAndGet(System.nanoTime() - start);
+        return output;
+    }
+
+    private static int readFully(InputStream is, byte[] buffer, int offset, int length) throws IOException {
+        int total = 0;
+        while (total < length) {
+            int read = is.read(buffer, offset + total, length - total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private static int unpackShort(byte[] buffer, int offset) {
+        return (buffer[offset] & 0xFF) | ((buffer[offset + 1] & 0xFF) << 8);
+    }
+
+    private static int unpackInt(byte[] buffer, int offset) {
+        return (buffer[offset] & 0xFF)
+                | ((buffer[offset + 1] & 0xFF) << 8)
+                | ((buffer[offset + 2] & 0xFF) << 16)
+                | ((buffer[offset + 3] & 0xFF) << 24);
+    }
+}
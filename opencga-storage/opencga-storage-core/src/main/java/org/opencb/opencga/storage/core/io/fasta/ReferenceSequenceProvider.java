@@ -0,0 +1,212 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.io.fasta;
+
+import htsjdk.samtools.reference.FastaSequenceIndex;
+import htsjdk.samtools.reference.FastaSequenceIndexEntry;
+import htsjdk.samtools.reference.ReferenceSequenceFile;
+import htsjdk.samtools.reference.ReferenceSequenceFileFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Provides the sequence of a region of an indexed reference genome (plain or bgzip FASTA, with the .fai and .gzi indexes).
+ *
+ * Optimized to read the flanking context of a sorted stream of variants. The sequence is read in windows of consecutive bases
+ * per chromosome, which slide forward as the requested regions move forward, so each compressed block is read and decompressed
+ * only once. Regions that are not sorted, i.e. before the current window or from a chromosome already passed, are read in
+ * fixed size blocks kept in a LRU cache.
+ *
+ * This class is not thread safe. Use one instance per thread.
+ */
+public class ReferenceSequenceProvider implements Closeable {
+
+    public static final int DEFAULT_WINDOW_SIZE = 1024 * 1024;
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+    public static final int DEFAULT_CACHE_BLOCKS = 64;
+
+    private final ReferenceSequenceFile referenceSequenceFile;
+    private final Map<String, Long> lengths;
+    private final int windowSize;
+    private final int blockSize;
+    private final Map<String, byte[]> blocks;
+    private final Set<String> visitedChromosomes = new HashSet<>();
+
+    private String windowChromosome;
+    private long windowStart;
+    private byte[] window = new byte[0];
+
+    private long windowLoads = 0;
+    private long blockLoads = 0;
+    private long requests = 0;
+
+    public ReferenceSequenceProvider(Path fasta) throws IOException {
+        this(openIndexed(fasta), readLengths(fasta), DEFAULT_WINDOW_SIZE, DEFAULT_BLOCK_SIZE, DEFAULT_CACHE_BLOCKS);
+    }
+
+    /**
+     * @param referenceSequenceFile Indexed reference sequence file
+     * @param lengths               Length of each chromosome, in the same order as in the reference file
+     * @param windowSize            Number of bases read at once while reading sorted regions
+     * @param blockSize             Number of bases per cached block while reading unsorted regions
+     * @param cacheBlocks           Maximum number of cached blocks
+     */
+    public ReferenceSequenceProvider(ReferenceSequenceFile referenceSequenceFile, Map<String, Long> lengths, int windowSize,
+                                     int blockSize, int cacheBlocks) {
+        this.referenceSequenceFile = referenceSequenceFile;
+        this.lengths = lengths;
+        this.windowSize = windowSize;
+        this.blockSize = blockSize;
+        this.blocks = new LinkedHashMap<String, byte[]>(cacheBlocks, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                return size() > cacheBlocks;
+            }
+        };
+    }
+
+    /**
+     * @return Chromosomes of the reference genome, in the same order as in the file
+     */
+    public List<String> getChromosomes() {
+        return new ArrayList<>(lengths.keySet());
+    }
+
+    public long getLength(String chromosome) {
+        Long length = lengths.get(chromosome);
+        if (length == null) {
+            throw new IllegalArgumentException("Unknown chromosome '" + chromosome + "' in the reference genome");
+        }
+        return length;
+    }
+
+    /**
+     * Get the sequence of a region. The region is trimmed to the bounds of the chromosome.
+     *
+     * @param chromosome Chromosome
+     * @param start      Start position, 1-based, inclusive
+     * @param end        End position, 1-based, inclusive
+     * @return the sequence, as found in the reference file
+     */
+    public String getSequence(String chromosome, long start, long end) {
+        requests++;
+        start = Math.max(1, start);
+        end = Math.min(getLength(chromosome), end);
+        if (end < start) {
+            return "";
+        }
+        if (chromosome.equals(windowChromosome) && start >= windowStart && end < windowStart + window.length) {
+            return toString(window, (int) (start - windowStart), (int) (end - start + 1));
+        }
+        if (chromosome.equals(windowChromosome) ? start >= windowStart : !visitedChromosomes.contains(chromosome)) {
+            // Sorted access. Move the window forward
+            loadWindow(chromosome, start, Math.max(end, start + windowSize - 1));
+            return toString(window, 0, (int) (end - start + 1));
+        }
+        return getSequenceFromBlocks(chromosome, start, end);
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public long getWindowLoads() {
+        return windowLoads;
+    }
+
+    public long getBlockLoads() {
+        return blockLoads;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = new byte[0];
+        blocks.clear();
+        referenceSequenceFile.close();
+    }
+
+    private void loadWindow(String chromosome, long start, long end) {
+        end = Math.min(getLength(chromosome), end);
+        window = referenceSequenceFile.getSubsequenceAt(chromosome, start, end).getBases();
+        windowChromosome = chromosome;
+        windowStart = start;
+        visitedChromosomes.add(chromosome);
+        windowLoads++;
+    }
+
+    private String getSequenceFromBlocks(String chromosome, long start, long end) {
+        long firstBlock = (start - 1) / blockSize;
+        long lastBlock = (end - 1) / blockSize;
+        if (firstBlock == lastBlock) {
+            byte[] block = getBlock(chromosome, firstBlock);
+            return toString(block, (int) (start - 1 - firstBlock * blockSize), (int) (end - start + 1));
+        }
+        StringBuilder sb = new StringBuilder((int) (end - start + 1));
+        for (long blockIdx = firstBlock; blockIdx <= lastBlock; blockIdx++) {
+            byte[] block = getBlock(chromosome, blockIdx);
+            long blockStart = blockIdx * blockSize + 1;
+            int from = (int) (Math.max(start, blockStart) - blockStart);
+            int to = (int) (Math.min(end, blockStart + block.length - 1) - blockStart);
+            sb.append(toString(block, from, to - from + 1));
+        }
+        return sb.toString();
+    }
+
+    private byte[] getBlock(String chromosome, long blockIdx) {
+        String key = chromosome + ':' + blockIdx;
+        byte[] block = blocks.get(key);
+        if (block == null) {
+            long start = blockIdx * blockSize + 1;
+            long end = Math.min(getLength(chromosome), start + blockSize - 1);
+            block = referenceSequenceFile.getSubsequenceAt(chromosome, start, end).getBases();
+            blocks.put(key, block);
+            blockLoads++;
+        }
+        return block;
+    }
+
+    private static String toString(byte[] bases, int offset, int length) {
+        return new String(bases, offset, length, StandardCharsets.US_ASCII);
+    }
+
+    private static ReferenceSequenceFile openIndexed(Path fasta) throws IOException {
+        ReferenceSequenceFile referenceSequenceFile = ReferenceSequenceFileFactory.getReferenceSequenceFile(fasta);
+        if (!referenceSequenceFile.isIndexed()) {
+            referenceSequenceFile.close();
+            throw new IOException("Missing index for reference genome file " + fasta);
+        }
+        return referenceSequenceFile;
+    }
+
+    private static Map<String, Long> readLengths(Path fasta) throws IOException {
+        Path faiPath = Paths.get(fasta.toAbsolutePath() + ".fai");
+        if (!Files.exists(faiPath)) {
+            throw new IOException("Missing index " + faiPath + " for reference genome file " + fasta);
+        }
+        Map<String, Long> lengths = new LinkedHashMap<>();
+        for (FastaSequenceIndexEntry entry : new FastaSequenceIndex(faiPath)) {
+            lengths.put(entry.getContig(), entry.getSize());
+        }
+        return lengths;
+    }
+}
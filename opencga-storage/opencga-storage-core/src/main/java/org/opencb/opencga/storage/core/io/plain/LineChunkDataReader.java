@@ -0,0 +1,144 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.io.plain;
+
+import org.opencb.commons.io.DataReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads a text file as chunks of complete lines, without decoding the lines into Strings.
+ *
+ * Each call to {@link #read(int)} returns a single {@link ByteBuffer} with up to batchSize lines, each one terminated by '\n'.
+ * Input opening, decompression and progress listeners are delegated to a {@link StringDataReader}.
+ */
+public class LineChunkDataReader implements DataReader<ByteBuffer> {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final StringDataReader source;
+    private InputStream is;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int bufferPosition = 0;
+    private int bufferLimit = 0;
+    private boolean eof = false;
+    private int lastChunkSize = 16 * 1024;
+
+    public LineChunkDataReader(StringDataReader source) {
+        this.source = source;
+    }
+
+    @Override
+    public boolean open() {
+        try {
+            is = source.openInputStream();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean close() {
+        try {
+            if (source.isCloseReader()) {
+                is.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        source.logDecompressionStats();
+        return true;
+    }
+
+    @Override
+    public List<ByteBuffer> read(int batchSize) {
+        byte[] chunk = new byte[lastChunkSize];
+        int chunkLength = 0;
+        int lines = 0;
+        try {
+            while (lines < batchSize) {
+                if (bufferPosition == bufferLimit && !fill()) {
+                    break;
+                }
+                int newLine = indexOf(buffer, bufferPosition, bufferLimit, (byte) '\n');
+                int end;
+                if (newLine < 0) {
+                    end = bufferLimit;
+                } else {
+                    end = newLine + 1;
+                    lines++;
+                }
+                int length = end - bufferPosition;
+                if (chunkLength + length + 1 > chunk.length) {
+                    chunk = Arrays.copyOf(chunk, Math.max(chunk.length * 2, chunkLength + length + 1));
+                }
+                System.arraycopy(buffer, bufferPosition, chunk, chunkLength, length);
+                chunkLength += length;
+                bufferPosition = end;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (chunkLength > 0 && chunk[chunkLength - 1] != '\n') {
+            // Last line without line break
+            chunk[chunkLength++] = '\n';
+            lines++;
+        }
+        source.onReadLines(lines);
+        source.onReadBytes();
+        if (chunkLength == 0) {
+            return Collections.emptyList();
+        }
+        lastChunkSize = Math.max(lastChunkSize, chunkLength + chunkLength / 4);
+        return Collections.singletonList(ByteBuffer.wrap(chunk, 0, chunkLength));
+    }
+
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        int read = is.read(buffer, 0, buffer.length);
+        while (read == 0) {
+            read = is.read(buffer, 0, buffer.length);
+        }
+        if (read < 0) {
+            eof = true;
+            bufferPosition = 0;
+            bufferLimit = 0;
+            return false;
+        }
+        bufferPosition = 0;
+        bufferLimit = read;
+        return true;
+    }
+
+    private static int indexOf(byte[] bytes, int from, int to, byte b) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -17,7 +17,9 @@
 package org.opencb.opencga.storage.core.io.plain;
 
 import org.opencb.commons.io.DataReader;
+import org.opencb.opencga.core.common.IOUtils;
 import org.opencb.opencga.core.common.UriUtils;
+import org.opencb.opencga.storage.core.io.bgzf.ParallelBgzfInputStream;
 import org.opencb.opencga.storage.core.io.managers.IOConnector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -51,6 +53,9 @@ public class StringDataReader implements DataReader<String> {
     private BiConsumer<Long, Long> readLinesListener;
     private final InputStream is;
     private final boolean closeReader;
+    private int decompressionThreads = 1;
+    private ParallelBgzfInputStream bgzfInputStream;
+    private long openTime;
 
     public StringDataReader(Path path) {
         this.path = Objects.requireNonNull(path);
@@ -83,38 +88,55 @@ public class StringDataReader implements DataReader<String> {
     @Override
     public boolean open() {
         try {
-            if (is != null) {
-                sizeInputStream = new SizeInputStream(is, 0);
-                this.reader = new BufferedReader(new InputStreamReader(sizeInputStream));
-            } else {
-                String fileName;
-                if (uri != null) {
-                    fileName = UriUtils.fileName(uri);
-                    lastAvailable = ioConnector.size(uri);
-                    sizeInputStream = new SizeInputStream(ioConnector.newInputStreamRaw(uri), lastAvailable);
-                } else {
-                    fileName = path.toFile().getName();
-                    lastAvailable = getFileSize();
-                    sizeInputStream = new SizeInputStream(new FileInputStream(path.toFile()), lastAvailable);
-                }
-                if (fileName.endsWith(".gz")) {
-                    logger.debug("Gzip input compress");
-                    this.reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(sizeInputStream)));
-                } else if (fileName.endsWith(".snappy") || fileName.endsWith(".snz")) {
-                    logger.debug("Snappy input compress");
-                    this.reader = new BufferedReader(new InputStreamReader(new SnappyInputStream(sizeInputStream)));
-                } else {
-                    logger.debug("Plain input compress");
-//                this.reader = Files.newBufferedReader(path, Charset.defaultCharset());
-                    this.reader = new BufferedReader(new InputStreamReader(sizeInputStream));
-                }
-            }
+            this.reader = new BufferedReader(new InputStreamReader(openInputStream()));
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
         return true;
     }
 
+    /**
+     * Open the input, and wrap it with the decompressor, if needed.
+     * Bytes read from the returned stream are accounted by the readBytesListener.
+     *
+     * @return Decompressed input stream
+     * @throws IOException on error opening the input
+     */
+    protected InputStream openInputStream() throws IOException {
+        openTime = System.currentTimeMillis();
+        if (is != null) {
+            sizeInputStream = new SizeInputStream(is, 0);
+            return sizeInputStream;
+        }
+        String fileName;
+        if (uri != null) {
+            fileName = UriUtils.fileName(uri);
+            lastAvailable = ioConnector.size(uri);
+            sizeInputStream = new SizeInputStream(ioConnector.newInputStreamRaw(uri), lastAvailable);
+        } else {
+            fileName = path.toFile().getName();
+            lastAvailable = getFileSize();
+            sizeInputStream = new SizeInputStream(new FileInputStream(path.toFile()), lastAvailable);
+        }
+        if (fileName.endsWith(".gz")) {
+            BufferedInputStream bufferedInputStream = new BufferedInputStream(sizeInputStream);
+            if (decompressionThreads > 1 && ParallelBgzfInputStream.isBgzf(bufferedInputStream)) {
+                logger.debug("BGZF input compress. Decompress using {} threads", decompressionThreads);
+                bgzfInputStream = new ParallelBgzfInputStream(bufferedInputStream, decompressionThreads);
+                return bgzfInputStream;
+            } else {
+                logger.debug("Gzip input compress");
+                return new GZIPInputStream(bufferedInputStream);
+            }
+        } else if (fileName.endsWith(".snappy") || fileName.endsWith(".snz")) {
+            logger.debug("Snappy input compress");
+            return new SnappyInputStream(sizeInputStream);
+        } else {
+            logger.debug("Plain input compress");
+            return sizeInputStream;
+        }
+    }
+
     @Override
     public boolean close() {
         try {
@@ -124,9 +146,27 @@ public class StringDataReader implements DataReader<String> {
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
+        logDecompressionStats();
         return true;
     }
 
+    protected boolean isCloseReader() {
+        return closeReader;
+    }
+
+    protected void logDecompressionStats() {
+        if (bgzfInputStream != null) {
+            logger.info("Read {} BGZF blocks. Compressed {}, uncompressed {}. Decompression time {}s ({} threads)."
+                            + " Reader blocked waiting for decompression {}s",
+                    bgzfInputStream.getBlocks(),
+                    IOUtils.humanReadableByteCount(bgzfInputStream.getCompressedBytes(), false),
+                    IOUtils.humanReadableByteCount(bgzfInputStream.getUncompressedBytes(), false),
+                    bgzfInputStream.getDecompressNanos() / 1000000000.0,
+                    decompressionThreads,
+                    bgzfInputStream.getWaitNanos() / 1000000000.0);
+        }
+    }
+
     @Override
     public List<String> read() {
         try {
@@ -171,7 +211,14 @@ public class StringDataReader implements DataReader<String> {
         }
     }
 
-    private void onReadBytes() throws IOException {
+    protected void onReadLines(long lines) {
+        readLines += lines;
+        if (readLinesListener != null) {
+            readLinesListener.accept(readLines, lines);
+        }
+    }
+
+    protected void onReadBytes() {
         long newAvailable = sizeInputStream.availableLong();
         if (readBytesListener != null) {
             readBytesListener.accept(sizeInputStream.size() - newAvailable, lastAvailable - newAvailable);
@@ -186,6 +233,35 @@ public class StringDataReader implements DataReader<String> {
         return this;
     }
 
+    /**
+     * Number of threads to be used to decompress the input file.
+     * Only used if the input is a BGZF file. Plain gzip files are always decompressed in the reader thread.
+     *
+     * @param decompressionThreads Number of threads
+     * @return this
+     */
+    public StringDataReader setDecompressionThreads(int decompressionThreads) {
+        this.decompressionThreads = decompressionThreads;
+        return this;
+    }
+
+    /**
+     * Average read throughput since the reader was opened, in bytes per second.
+     * Counts raw bytes read from the input, i.e., compressed bytes for compressed inputs.
+     *
+     * @return bytes per second
+     */
+    public double getReadThroughput() {
+        if (sizeInputStream == null) {
+            return 0;
+        }
+        long elapsed = System.currentTimeMillis() - openTime;
+        if (elapsed <= 0) {
+            return 0;
+        }
+        return sizeInputStream.bytesRead() * 1000.0 / elapsed;
+    }
+
     public StringDataReader setReadLinesListener(BiConsumer<Long, Long> readLinesListener) {
         this.readLinesListener = readLinesListener;
         return this;
@@ -228,6 +304,10 @@ public class StringDataReader implements DataReader<String> {
             return size;
         }
 
+        public long bytesRead() {
+            return bytesRead;
+        }
+
         @Override
         public int read() throws IOException {
             int b = in.read();
@@ -1,35 +1,61 @@
 package org.opencb.opencga.storage.core.metadata;
 
-import java.util.concurrent.ConcurrentHashMap;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.BiFunction;
+import java.util.function.IntToLongFunction;
 import java.util.function.Predicate;
 
 /**
+ * Bounded cache of metadata values, indexed by study and resource id.
+ *
+ * Entries are stored in a fixed size table, indexed by a long key packing the study and the resource id (or its hash).
+ * Colliding entries replace each other, so the cache never grows beyond its capacity and a cache hit does not allocate.
+ *
+ * Each entry records the metadata version of its study at the time it was computed. Entries from an older version are ignored.
+ * The version is provided by the {@link VariantStorageMetadataManager}, and it changes every time the metadata of the study
+ * is modified, by any process.
+ *
  * Created by jacobo on 27/02/19.
  */
 public class MetadataCache<ID, R> {
 
-    private final ConcurrentHashMap<String, R> cache;
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final AtomicReferenceArray<Entry<ID, R>> table;
+    private final int mask;
     private final BiFunction<Integer, ID, R> function;
+    private final IntToLongFunction version;
 
     public MetadataCache(BiFunction<Integer, ID, R> function) {
         this(function, null);
     }
 
     public MetadataCache(BiFunction<Integer, ID, R> function, Predicate<R> reuseValue) {
-        this.cache = new ConcurrentHashMap<>();
+        this(function, reuseValue, DEFAULT_CAPACITY, studyId -> 0);
+    }
+
+    /**
+     * Create a new MetadataCache.
+     *
+     * @param function   Function to compute the missing values
+     * @param reuseValue Try to reuse equal values from other entries, if this predicate is true. Allows to avoid duplicated values.
+     * @param capacity   Maximum number of entries. Rounded up to the next power of two
+     * @param version    Current metadata version of a study. Must be cheap to call
+     */
+    public MetadataCache(BiFunction<Integer, ID, R> function, Predicate<R> reuseValue, int capacity, IntToLongFunction version) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.table = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.version = version;
         if (reuseValue != null) {
-            // Try to reuse the value from another already existing in the cache.
-            // Allows to avoid duplicated values and lets the GC to claim the unused values.
+            // Weak interner. Multiple entries will point to the same value, and the GC can claim the unused values.
+            Interner<R> interner = Interners.newWeakInterner();
             this.function = function.andThen(value -> {
-                // Once we have the value, try to find an equal value in the cache
                 if (value != null && reuseValue.test(value)) {
-                    for (R cachedValue : cache.values()) {
-                        if (cachedValue.equals(value)) {
-                            // Use the cached value. The GC will claim the 'value'. Multiple entries will point to the same value.
-                            return cachedValue;
-                        }
-                    }
+                    return interner.intern(value);
                 }
                 return value;
             });
@@ -46,17 +72,7 @@ public class MetadataCache<ID, R> {
      * @return        Value
      */
     public R get(int studyId, ID id) {
-        String key = getKey(studyId, id);
-
-        // Avoid unnecessary synchronize blocks.
-        // ConcurrentHashMap::get does not have any synchronization block
-        R r = cache.get(key);
-        if (r != null) {
-            return r;
-        } else {
-            // Use this method to avoid executing the function twice
-            return cache.computeIfAbsent(key, k -> this.function.apply(studyId, id));
-        }
+        return get(studyId, id, null);
     }
 
     /**
@@ -68,35 +84,66 @@ public class MetadataCache<ID, R> {
      * @return Value
      */
     public R get(int studyId, ID id, R invalidValue) {
-        String key = getKey(studyId, id);
-
-        // Avoid unnecessary synchronize blocks.
-        // ConcurrentHashMap::get does not have any synchronization block
-        R r = cache.get(key);
-        if (r == null || r.equals(invalidValue)) {
-            // Use this method to avoid executing the function twice
-            return cache.compute(key, (k, v) -> {
-                if (v == null || v.equals(invalidValue)) {
-                    return this.function.apply(studyId, id);
-                } else {
-                    return v;
-                }
-            });
-        } else {
-            return r;
+        // Read the version before computing the value, so values computed during a modification are discarded later.
+        long currentVersion = version.applyAsLong(studyId);
+        long key = getKey(studyId, id);
+        int slot = slot(key);
+
+        Entry<ID, R> entry = table.get(slot);
+        if (entry != null && entry.matches(key, id, currentVersion) && (invalidValue == null || !entry.value.equals(invalidValue))) {
+            return entry.value;
+        }
+        R value = function.apply(studyId, id);
+        if (value != null) {
+            table.set(slot, new Entry<>(key, id, value, currentVersion));
         }
+        return value;
     }
 
     public void put(int studyId, ID id, R value) {
-        cache.put(getKey(studyId, id), value);
+        long key = getKey(studyId, id);
+        table.set(slot(key), new Entry<>(key, id, value, version.applyAsLong(studyId)));
     }
 
     public void clear() {
-        cache.clear();
+        for (int i = 0; i < table.length(); i++) {
+            table.set(i, null);
+        }
+    }
+
+    public int capacity() {
+        return table.length();
+    }
+
+    private static long getKey(int studyId, Object id) {
+        // Integer::hashCode is the value itself, so integer ids never collide
+        return (((long) studyId) << 32) | (id.hashCode() & 0xFFFFFFFFL);
     }
 
-    private String getKey(int studyId, ID id) {
-        return studyId + "_" + id;
+    private int slot(long key) {
+        // Mix the bits (murmur3 finalizer) so consecutive ids from different studies do not collide
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+
+    private static final class Entry<ID, R> {
+        private final long key;
+        private final ID id;
+        private final R value;
+        private final long version;
+
+        private Entry(long key, ID id, R value, long version) {
+            this.key = key;
+            this.id = id;
+            this.value = value;
+            this.version = version;
+        }
+
+        private boolean matches(long key, ID id, long version) {
+            return this.key == key && this.version == version && (this.id == id || this.id.equals(id));
+        }
     }
 
 }
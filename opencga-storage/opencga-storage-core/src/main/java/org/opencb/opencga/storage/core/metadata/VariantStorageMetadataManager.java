@@ -46,11 +46,13 @@ import java.net.URI;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiFunction;
 import java.util.function.BiPredicate;
 import java.util.function.Function;
+import java.util.function.IntToLongFunction;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -63,6 +65,8 @@ import static org.opencb.opencga.storage.core.variant.query.VariantQueryUtils.re
  */
 public class VariantStorageMetadataManager implements AutoCloseable {
     public static final String SECONDARY_INDEX_PREFIX = "__SECONDARY_INDEX_COHORT_";
+    public static final String DATA_VERSION = "dataVersion";
+    public static final String METADATA_VERSION = "metadataVersion";
 
     protected static Logger logger = LoggerFactory.getLogger(VariantStorageMetadataManager.class);
 
@@ -91,6 +95,17 @@ public class VariantStorageMetadataManager implements AutoCloseable {
     private final int lockDuration;
     private final int lockTimeout;
 
+    // Version of the metadata of each study and resource type, shared by all processes.
+    // Cached values computed with an older version are discarded.
+    private final int versionCheckInterval;
+    private final Map<MetadataResource, Map<Integer, MetadataVersion>> metadataVersions = new EnumMap<>(MetadataResource.class);
+
+    private enum MetadataResource {
+        FILE,
+        SAMPLE,
+        COHORT
+    }
+
     public VariantStorageMetadataManager(VariantStorageMetadataDBAdaptorFactory dbAdaptorFactory) {
         this.projectDBAdaptor = dbAdaptorFactory.buildProjectMetadataDBAdaptor();
         this.studyDBAdaptor = dbAdaptorFactory.buildStudyMetadataDBAdaptor();
@@ -102,28 +117,39 @@ public class VariantStorageMetadataManager implements AutoCloseable {
                 .getInt(VariantStorageOptions.METADATA_LOCK_DURATION.key(), VariantStorageOptions.METADATA_LOCK_DURATION.defaultValue());
         lockTimeout = dbAdaptorFactory.getConfiguration()
                 .getInt(VariantStorageOptions.METADATA_LOCK_TIMEOUT.key(), VariantStorageOptions.METADATA_LOCK_TIMEOUT.defaultValue());
-        sampleIdCache = new MetadataCache<>(sampleDBAdaptor::getSampleId);
+        int cacheCapacity = dbAdaptorFactory.getConfiguration()
+                .getInt(VariantStorageOptions.METADATA_CACHE_CAPACITY.key(), VariantStorageOptions.METADATA_CACHE_CAPACITY.defaultValue());
+        versionCheckInterval = dbAdaptorFactory.getConfiguration()
+                .getInt(VariantStorageOptions.METADATA_CACHE_VERSION_CHECK_INTERVAL.key(),
+                        VariantStorageOptions.METADATA_CACHE_VERSION_CHECK_INTERVAL.defaultValue());
+        for (MetadataResource resource : MetadataResource.values()) {
+            metadataVersions.put(resource, new ConcurrentHashMap<>());
+        }
+        IntToLongFunction fileVersion = studyId -> getMetadataVersion(MetadataResource.FILE, studyId);
+        IntToLongFunction sampleVersion = studyId -> getMetadataVersion(MetadataResource.SAMPLE, studyId);
+        IntToLongFunction cohortVersion = studyId -> getMetadataVersion(MetadataResource.COHORT, studyId);
+        sampleIdCache = new MetadataCache<>(sampleDBAdaptor::getSampleId, null, cacheCapacity, sampleVersion);
         sampleNameCache = new MetadataCache<>((studyId, sampleId) -> {
             SampleMetadata sampleMetadata = sampleDBAdaptor.getSampleMetadata(studyId, sampleId, null);
             if (sampleMetadata == null) {
                 throw VariantQueryException.sampleNotFound(sampleId, getStudyName(studyId));
             }
             return sampleMetadata.getName();
-        });
+        }, null, cacheCapacity, sampleVersion);
         sampleIdIndexedCache = new MetadataCache<>((studyId, sampleId) -> {
             SampleMetadata sampleMetadata = sampleDBAdaptor.getSampleMetadata(studyId, sampleId, null);
             if (sampleMetadata == null) {
                 throw VariantQueryException.sampleNotFound(sampleId, getStudyName(studyId));
             }
             return sampleMetadata.isIndexed();
-        });
+        }, null, cacheCapacity, sampleVersion);
         sampleIdsFromFileIdCache = new MetadataCache<>((studyId, fileId) -> {
             FileMetadata fileMetadata = fileDBAdaptor.getFileMetadata(studyId, fileId, null);
             if (fileMetadata == null) {
                 throw VariantQueryException.fileNotFound(fileId, getStudyName(studyId));
             }
             return fileMetadata.getSamples();
-        }, samples -> samples.size() > 100);
+        }, samples -> samples.size() > 100, cacheCapacity, fileVersion);
         splitDataCache = new MetadataCache<>((studyId, sampleId) -> {
             SampleMetadata sampleMetadata = sampleDBAdaptor.getSampleMetadata(studyId, sampleId, null);
             if (sampleMetadata == null) {
@@ -135,39 +161,39 @@ public class VariantStorageMetadataManager implements AutoCloseable {
             } else {
                 return splitData.ordinal();
             }
-        });
+        }, null, cacheCapacity, sampleVersion);
 
-        fileIdCache = new MetadataCache<>(fileDBAdaptor::getFileId);
+        fileIdCache = new MetadataCache<>(fileDBAdaptor::getFileId, null, cacheCapacity, fileVersion);
         fileNameCache = new MetadataCache<>((studyId, fileId) -> {
             FileMetadata fileMetadata = fileDBAdaptor.getFileMetadata(studyId, fileId, null);
             if (fileMetadata == null) {
                 throw VariantQueryException.fileNotFound(fileId, getStudyName(studyId));
             }
             return fileMetadata.getName();
-        });
+        }, null, cacheCapacity, fileVersion);
         fileIdIndexedCache = new MetadataCache<>((studyId, fileId) -> {
             FileMetadata fileMetadata = fileDBAdaptor.getFileMetadata(studyId, fileId, null);
             if (fileMetadata == null) {
                 throw VariantQueryException.fileNotFound(fileId, getStudyName(studyId));
             }
             return fileMetadata.isIndexed();
-        });
+        }, null, cacheCapacity, fileVersion);
         fileIdsFromSampleIdCache = new MetadataCache<>((studyId, sampleId) -> {
             SampleMetadata sampleMetadata = getSampleMetadata(studyId, sampleId);
             if (sampleMetadata == null) {
                 throw VariantQueryException.sampleNotFound(sampleId, getStudyName(studyId));
             }
             return sampleMetadata.getFiles();
-        }, files -> files.size() > 20);
+        }, files -> files.size() > 20, cacheCapacity, sampleVersion);
 
-        cohortIdCache = new MetadataCache<>(cohortDBAdaptor::getCohortId);
+        cohortIdCache = new MetadataCache<>(cohortDBAdaptor::getCohortId, null, cacheCapacity, cohortVersion);
         cohortNameCache = new MetadataCache<>((studyId, cohortId) -> {
             CohortMetadata cohortMetadata = cohortDBAdaptor.getCohortMetadata(studyId, cohortId, null);
             if (cohortMetadata == null) {
                 throw VariantQueryException.cohortNotFound(cohortId, studyId, getAvailableCohorts(studyId));
             }
             return cohortMetadata.getName();
-        });
+        }, null, cacheCapacity, cohortVersion);
     }
 
     public Lock lockGlobal(long lockDuration, long timeout, String lockName)
@@ -465,6 +491,7 @@ public class VariantStorageMetadataManager implements AutoCloseable {
 
             return studyMetadata;
         });
+        increaseDataVersion(studyId);
 
         return getVariantScoreMetadata(studyId, scoreId);
     }
@@ -474,6 +501,7 @@ public class VariantStorageMetadataManager implements AutoCloseable {
             studyMetadata.getVariantScores().removeIf(s -> s.getId() == scoreMetadata.getId());
             return studyMetadata;
         });
+        increaseDataVersion(scoreMetadata.getStudyId());
     }
 
     public <E extends Exception> ProjectMetadata updateProjectMetadata(UpdateFunction<ProjectMetadata, E> function)
@@ -588,19 +616,32 @@ public class VariantStorageMetadataManager implements AutoCloseable {
     }
 
     public void unsecureUpdateFileMetadata(int studyId, FileMetadata file) {
+        unsecureUpdateFileMetadata(studyId, file, true);
+    }
+
+    private void unsecureUpdateFileMetadata(int studyId, FileMetadata file, boolean increaseMetadataVersion) {
         file.setStudyId(studyId);
         fileDBAdaptor.updateFileMetadata(studyId, file, null);
+        if (increaseMetadataVersion) {
+            increaseMetadataVersion(MetadataResource.FILE, studyId);
+        }
     }
 
     public <E extends Exception> FileMetadata updateFileMetadata(int studyId, int fileId, UpdateFunction<FileMetadata, E> update)
             throws E, StorageEngineException {
+        return updateFileMetadata(studyId, fileId, update, true);
+    }
+
+    private <E extends Exception> FileMetadata updateFileMetadata(int studyId, int fileId, UpdateFunction<FileMetadata, E> update,
+                                                                  boolean increaseMetadataVersion)
+            throws E, StorageEngineException {
         getFileName(studyId, fileId); // Check file exists
         Lock lock = fileDBAdaptor.lock(studyId, fileId, lockDuration, lockTimeout);
         try {
             FileMetadata fileMetadata = getFileMetadata(studyId, fileId);
             fileMetadata = update.update(fileMetadata);
             lock.checkLocked();
-            unsecureUpdateFileMetadata(studyId, fileMetadata);
+            unsecureUpdateFileMetadata(studyId, fileMetadata, increaseMetadataVersion);
             return fileMetadata;
         } finally {
             lock.unlock();
@@ -696,6 +737,44 @@ public class VariantStorageMetadataManager implements AutoCloseable {
         return fileDBAdaptor.getIndexedFiles(studyId);
     }
 
+    /**
+     * Get the chromosomes with variants from the indexed files of a study, as counted by the file stats.
+     *
+     * @param studyId Study
+     * @return Chromosomes with variants, or null if any of the indexed files has no stats.
+     * @throws StorageEngineException if there is an error reading the VariantFileMetadata
+     */
+    public LinkedHashSet<String> getIndexedChromosomes(int studyId) throws StorageEngineException {
+        LinkedHashSet<Integer> indexedFiles = getIndexedFiles(studyId);
+        LinkedHashSet<String> chromosomes = new LinkedHashSet<>();
+        if (indexedFiles.isEmpty()) {
+            return chromosomes;
+        }
+        Query query = new Query()
+                .append(FileMetadataDBAdaptor.VariantFileMetadataQueryParam.STUDY_ID.key(), studyId)
+                .append(FileMetadataDBAdaptor.VariantFileMetadataQueryParam.FILE_ID.key(), new ArrayList<>(indexedFiles));
+        int numFiles = 0;
+        Iterator<VariantFileMetadata> iterator = variantFileMetadataIterator(query, new QueryOptions());
+        while (iterator.hasNext()) {
+            VariantFileMetadata fileMetadata = iterator.next();
+            if (fileMetadata.getStats() == null || fileMetadata.getStats().getChromosomeCount() == null
+                    || (fileMetadata.getStats().getChromosomeCount().isEmpty() && fileMetadata.getStats().getVariantCount() > 0)) {
+                return null;
+            }
+            fileMetadata.getStats().getChromosomeCount().forEach((chromosome, count) -> {
+                if (count != null && count > 0) {
+                    chromosomes.add(chromosome);
+                }
+            });
+            numFiles++;
+        }
+        if (numFiles < indexedFiles.size()) {
+            // Missing VariantFileMetadata
+            return null;
+        }
+        return chromosomes;
+    }
+
     public void addIndexedFiles(int studyId, List<Integer> fileIds) throws StorageEngineException {
         // First update the samples
         Set<Integer> samples = new HashSet<>();
@@ -705,19 +784,22 @@ public class VariantStorageMetadataManager implements AutoCloseable {
         }
         for (Integer sample : samples) {
             if (!isSampleIndexed(studyId, sample)) {
-                updateSampleMetadata(studyId, sample, sampleMetadata -> sampleMetadata.setIndexStatus(TaskMetadata.Status.READY));
+                updateSampleMetadata(studyId, sample, sampleMetadata -> sampleMetadata.setIndexStatus(TaskMetadata.Status.READY),
+                        false);
             }
         }
 
         // Finally, update the files and update the list of indexed files
         for (Integer fileId : fileIds) {
-            String name = updateFileMetadata(studyId, fileId, fileMetadata -> fileMetadata.setIndexStatus(TaskMetadata.Status.READY))
-                    .getName();
+            String name = updateFileMetadata(studyId, fileId, fileMetadata -> fileMetadata.setIndexStatus(TaskMetadata.Status.READY),
+                    false).getName();
             logger.info("Register file " + name + " as INDEXED");
         }
         fileDBAdaptor.addIndexedFiles(studyId, fileIds);
-        fileIdsFromSampleIdCache.clear();
-        fileIdIndexedCache.clear();
+        // Increase the metadata version once for the whole batch
+        increaseMetadataVersion(MetadataResource.SAMPLE, studyId);
+        increaseMetadataVersion(MetadataResource.FILE, studyId);
+        increaseDataVersion(studyId);
     }
 
     public void removeIndexedFiles(int studyId, Collection<Integer> fileIds) throws StorageEngineException {
@@ -726,7 +808,7 @@ public class VariantStorageMetadataManager implements AutoCloseable {
             updateFileMetadata(studyId, fileId, fileMetadata -> {
                 samples.addAll(fileMetadata.getSamples());
                 return fileMetadata.setIndexStatus(TaskMetadata.Status.NONE);
-            });
+            }, false);
 //            deleteVariantFileMetadata(studyId, fileId);
         }
         for (Integer sample : samples) {
@@ -743,9 +825,13 @@ public class VariantStorageMetadataManager implements AutoCloseable {
                     sampleMetadata.setIndexStatus(TaskMetadata.Status.NONE);
                 }
                 return sampleMetadata;
-            });
+            }, false);
         }
         fileDBAdaptor.removeIndexedFiles(studyId, fileIds);
+        // Increase the metadata version once for the whole batch
+        increaseMetadataVersion(MetadataResource.SAMPLE, studyId);
+        increaseMetadataVersion(MetadataResource.FILE, studyId);
+        increaseDataVersion(studyId);
     }
 
     public Iterator<FileMetadata> fileMetadataIterator(int studyId) {
@@ -757,19 +843,33 @@ public class VariantStorageMetadataManager implements AutoCloseable {
     }
 
     public void unsecureUpdateSampleMetadata(int studyId, SampleMetadata sample) {
+        unsecureUpdateSampleMetadata(studyId, sample, true);
+    }
+
+    private void unsecureUpdateSampleMetadata(int studyId, SampleMetadata sample, boolean increaseMetadataVersion) {
         sample.setStudyId(studyId);
         sampleDBAdaptor.updateSampleMetadata(studyId, sample, null);
+        if (increaseMetadataVersion) {
+            increaseMetadataVersion(MetadataResource.SAMPLE, studyId);
+        }
     }
 
     public <E extends Exception> SampleMetadata updateSampleMetadata(int studyId, int sampleId, UpdateFunction<SampleMetadata, E> update)
             throws E, StorageEngineException {
+        return updateSampleMetadata(studyId, sampleId, update, true);
+    }
+
+    private <E extends Exception> SampleMetadata updateSampleMetadata(int studyId, int sampleId,
+                                                                      UpdateFunction<SampleMetadata, E> update,
+                                                                      boolean increaseMetadataVersion)
+            throws E, StorageEngineException {
         getSampleName(studyId, sampleId); // Check sample exists
         Lock lock = sampleDBAdaptor.lock(studyId, sampleId, lockDuration, lockTimeout);
         try {
             SampleMetadata sample = getSampleMetadata(studyId, sampleId);
             sample = update.update(sample);
             lock.checkLocked();
-            unsecureUpdateSampleMetadata(studyId, sample);
+            unsecureUpdateSampleMetadata(studyId, sample, increaseMetadataVersion);
             return sample;
         } finally {
             lock.unlock();
@@ -934,21 +1034,28 @@ public class VariantStorageMetadataManager implements AutoCloseable {
     public void unsecureUpdateCohortMetadata(int studyId, CohortMetadata cohort) {
         cohort.setStudyId(studyId);
         cohortDBAdaptor.updateCohortMetadata(studyId, cohort, null);
+        increaseMetadataVersion(MetadataResource.COHORT, studyId);
     }
 
     public <E extends Exception> CohortMetadata updateCohortMetadata(int studyId, int cohortId, UpdateFunction<CohortMetadata, E> update)
             throws E, StorageEngineException {
         getCohortName(studyId, cohortId); // Check cohort exists
         Lock lock = cohortDBAdaptor.lock(studyId, cohortId, lockDuration, lockTimeout);
+        CohortMetadata cohortMetadata;
+        TaskMetadata.Status previousStatsStatus;
         try {
-            CohortMetadata cohortMetadata = getCohortMetadata(studyId, cohortId);
+            cohortMetadata = getCohortMetadata(studyId, cohortId);
+            previousStatsStatus = cohortMetadata.getStatsStatus();
             cohortMetadata = update.update(cohortMetadata);
             lock.checkLocked();
             unsecureUpdateCohortMetadata(studyId, cohortMetadata);
-            return cohortMetadata;
         } finally {
             lock.unlock();
         }
+        if (previousStatsStatus != cohortMetadata.getStatsStatus()) {
+            increaseDataVersion(studyId);
+        }
+        return cohortMetadata;
     }
 
     public void removeCohort(int studyId, Object cohort) {
@@ -957,6 +1064,7 @@ public class VariantStorageMetadataManager implements AutoCloseable {
             throw VariantQueryException.cohortNotFound(cohort.toString(), studyId, this);
         }
         cohortDBAdaptor.removeCohort(studyId, cohortId);
+        increaseMetadataVersion(MetadataResource.COHORT, studyId);
     }
 
     public Integer getCohortId(int studyId, String cohortName) {
@@ -1177,15 +1285,21 @@ public class VariantStorageMetadataManager implements AutoCloseable {
             throws E, StorageEngineException {
         getTask(studyId, taskId); // Check task exists
         Lock lock = taskDBAdaptor.lock(studyId, taskId, lockDuration, lockTimeout);
+        TaskMetadata task;
+        TaskMetadata.Status previousStatus;
         try {
-            TaskMetadata task = getTask(studyId, taskId);
+            task = getTask(studyId, taskId);
+            previousStatus = task.currentStatus();
             task = update.update(task);
             lock.checkLocked();
             unsecureUpdateTask(studyId, task);
-            return task;
         } finally {
             lock.unlock();
         }
+        if (previousStatus != TaskMetadata.Status.READY && task.currentStatus() == TaskMetadata.Status.READY) {
+            increaseDataVersion(studyId);
+        }
+        return task;
     }
 
     private Pair<Integer, Integer> getResourcePair(Object obj, boolean skipNegated, StudyMetadata defaultStudy,
@@ -1608,6 +1722,133 @@ public class VariantStorageMetadataManager implements AutoCloseable {
         return cohortIds;
     }
 
+    /**
+     * Get the version of the data of a study.
+     * The version changes every time the variants of the study are modified, e.g. loading or removing files,
+     * or calculating stats. Changes in the annotation modify the version of all studies.
+     *
+     * @param studyId Study id
+     * @return Data version
+     * @throws StorageEngineException on error reading the version
+     */
+    public long getDataVersion(int studyId) throws StorageEngineException {
+        return getDataVersion(Collections.singletonList(studyId));
+    }
+
+    /**
+     * Get the combined data version of multiple studies. All the versions are read at once.
+     *
+     * @param studyIds Study ids
+     * @return Data version
+     * @throws StorageEngineException on error reading the version
+     */
+    public long getDataVersion(Collection<Integer> studyIds) throws StorageEngineException {
+        List<Integer> counterStudyIds = new ArrayList<>(studyIds.size() + 1);
+        counterStudyIds.add(null);
+        counterStudyIds.addAll(studyIds);
+        List<Integer> counters = projectDBAdaptor.getCounters(counterStudyIds, DATA_VERSION);
+        long projectVersion = ((long) counters.get(0)) << 32;
+        long version = 0;
+        for (int i = 1; i < counters.size(); i++) {
+            version = version * 31 + (projectVersion | counters.get(i));
+        }
+        return version;
+    }
+
+    /**
+     * Increase the data version of a study, or of the whole project.
+     *
+     * @param studyId Study id. Null to increase the version of all the studies, e.g. after modifying the annotation.
+     * @throws StorageEngineException on error increasing the version
+     */
+    public void increaseDataVersion(Integer studyId) throws StorageEngineException {
+        projectDBAdaptor.generateId(studyId, DATA_VERSION);
+    }
+
+    /**
+     * Get the version of the metadata of one type of resource from one study, used to validate the cached values.
+     * The version is read from the database at most once every {@link VariantStorageOptions#METADATA_CACHE_VERSION_CHECK_INTERVAL}
+     * milliseconds, so modifications from other processes are visible after that time.
+     *
+     * @param resource Type of resource
+     * @param studyId  Study id
+     * @return Metadata version
+     */
+    private long getMetadataVersion(MetadataResource resource, int studyId) {
+        MetadataVersion metadataVersion = metadataVersions.get(resource).computeIfAbsent(studyId, k -> new MetadataVersion());
+        long now = System.currentTimeMillis();
+        if (versionCheckInterval >= 0 && now - metadataVersion.timestamp >= versionCheckInterval) {
+            try {
+                metadataVersion.set(projectDBAdaptor.getCounter(studyId, getMetadataVersionCounter(resource, studyId)), now);
+            } catch (StorageEngineException e) {
+                logger.warn("Unable to read the metadata version: " + e.getMessage());
+                metadataVersion.timestamp = now;
+            }
+        }
+        return metadataVersion.version;
+    }
+
+    /**
+     * Increase the metadata version after any modification of the cached metadata, making old values invalid in all processes.
+     * Only the values of the same type of resource from the same study are invalidated.
+     *
+     * @param resource Type of resource modified
+     * @param studyId  Study id
+     */
+    private void increaseMetadataVersion(MetadataResource resource, int studyId) {
+        MetadataVersion metadataVersion = metadataVersions.get(resource).computeIfAbsent(studyId, k -> new MetadataVersion());
+        try {
+            metadataVersion.set(projectDBAdaptor.generateId(studyId, getMetadataVersionCounter(resource, studyId)),
+                    System.currentTimeMillis());
+        } catch (StorageEngineException e) {
+            logger.warn("Unable to increase the metadata version: " + e.getMessage());
+            // At least, invalidate local values
+            clearCaches(resource);
+        }
+    }
+
+    private static String getMetadataVersionCounter(MetadataResource resource, int studyId) {
+        // Some adaptors share the counters across studies. Include the study in the counter name.
+        return METADATA_VERSION + "_" + resource.name().toLowerCase() + "_" + studyId;
+    }
+
+    private void clearCaches(MetadataResource resource) {
+        switch (resource) {
+            case FILE:
+                sampleIdsFromFileIdCache.clear();
+                fileIdCache.clear();
+                fileNameCache.clear();
+                fileIdIndexedCache.clear();
+                break;
+            case SAMPLE:
+                sampleIdCache.clear();
+                sampleNameCache.clear();
+                sampleIdIndexedCache.clear();
+                splitDataCache.clear();
+                fileIdsFromSampleIdCache.clear();
+                break;
+            case COHORT:
+                cohortIdCache.clear();
+                cohortNameCache.clear();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown resource " + resource);
+        }
+    }
+
+    private static final class MetadataVersion {
+        private volatile long version;
+        private volatile long timestamp;
+
+        private synchronized void set(long version, long timestamp) {
+            // The version never decreases. Protect from concurrent reads returning an older version.
+            if (version > this.version) {
+                this.version = version;
+            }
+            this.timestamp = timestamp;
+        }
+    }
+
     protected int newFileId(int studyId) throws StorageEngineException {
         return projectDBAdaptor.generateId(studyId, "file");
     }
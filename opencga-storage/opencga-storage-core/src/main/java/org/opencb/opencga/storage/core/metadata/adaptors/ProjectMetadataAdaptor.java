@@ -7,6 +7,8 @@ import org.opencb.opencga.storage.core.metadata.models.Lock;
 import org.opencb.opencga.storage.core.metadata.models.ProjectMetadata;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeoutException;
 
 /**
@@ -41,5 +43,31 @@ public interface ProjectMetadataAdaptor extends AutoCloseable {
 
     int generateId(Integer studyId, String idType) throws StorageEngineException;
 
+    /**
+     * Read the current value of a counter, without modifying it.
+     *
+     * @param studyId Study of the counter. Null for project counters
+     * @param idType  Counter type
+     * @return        Current value of the counter, or 0 if it does not exist
+     * @throws StorageEngineException on error reading the counter
+     */
+    int getCounter(Integer studyId, String idType) throws StorageEngineException;
+
+    /**
+     * Read the current value of the same counter from multiple studies, without modifying them.
+     *
+     * @param studyIds Studies of the counters. Null for project counters
+     * @param idType   Counter type
+     * @return         Current value of the counter of each study, in the same order, or 0 if it does not exist
+     * @throws StorageEngineException on error reading the counters
+     */
+    default List<Integer> getCounters(List<Integer> studyIds, String idType) throws StorageEngineException {
+        List<Integer> counters = new ArrayList<>(studyIds.size());
+        for (Integer studyId : studyIds) {
+            counters.add(getCounter(studyId, idType));
+        }
+        return counters;
+    }
+
     boolean exists();
 }
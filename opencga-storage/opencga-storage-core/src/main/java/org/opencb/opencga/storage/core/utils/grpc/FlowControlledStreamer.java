@@ -0,0 +1,127 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.utils.grpc;
+
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import org.opencb.opencga.storage.core.utils.iterators.CloseableIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Streams the content of an iterator into a server {@link StreamObserver}, following the flow control of the client.
+ *
+ * Elements are only read from the iterator while the observer is ready to accept more messages, so a slow client
+ * does not force the server to buffer the whole result in memory. The iterator is closed when the stream is
+ * completed, fails, or is cancelled by the client.
+ *
+ * Shared by the gRPC services of opencga-storage-server and opencga-server, which provide the gRPC dependencies.
+ */
+public final class FlowControlledStreamer<T, R> {
+
+    private final CloseableIterator<T> iterator;
+    private final Function<T, R> converter;
+    private final ServerCallStreamObserver<R> observer;
+
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile boolean cancelled;
+    private long count;
+
+    private final Logger logger = LoggerFactory.getLogger(FlowControlledStreamer.class);
+
+    private FlowControlledStreamer(CloseableIterator<T> iterator, Function<T, R> converter, ServerCallStreamObserver<R> observer) {
+        this.iterator = iterator;
+        this.converter = converter;
+        this.observer = observer;
+    }
+
+    /**
+     * Start streaming the iterator. Must be called from the gRPC method handler.
+     * The method returns immediately. Elements are sent every time the client is ready to receive more messages.
+     *
+     * @param iterator         Iterator to stream. Will be closed at the end
+     * @param converter        Converter from the iterator elements to the response messages
+     * @param responseObserver Response observer
+     * @param <T>              Iterator type
+     * @param <R>              Response type
+     */
+    public static <T, R> void stream(CloseableIterator<T> iterator, Function<T, R> converter, StreamObserver<R> responseObserver) {
+        new FlowControlledStreamer<>(iterator, converter, (ServerCallStreamObserver<R>) responseObserver).start();
+    }
+
+    private void start() {
+        observer.setOnCancelHandler(() -> {
+            cancelled = true;
+            logger.info("Stream cancelled by the client after {} elements", count);
+            // Do not close the iterator while is being used. Otherwise, will be closed at the end of the drain.
+            if (draining.compareAndSet(false, true)) {
+                close();
+            }
+        });
+        observer.setOnReadyHandler(this::drain);
+        drain();
+    }
+
+    private void drain() {
+        do {
+            if (!draining.compareAndSet(false, true)) {
+                // Already draining. The running drain will check the observer again before exiting.
+                return;
+            }
+            try {
+                if (closed.get()) {
+                    return;
+                }
+                while (!cancelled && observer.isReady() && iterator.hasNext()) {
+                    observer.onNext(converter.apply(iterator.next()));
+                    count++;
+                }
+                if (!cancelled && !iterator.hasNext()) {
+                    close();
+                    observer.onCompleted();
+                    logger.debug("Stream completed with {} elements", count);
+                }
+            } catch (RuntimeException e) {
+                logger.error("Error streaming results after " + count + " elements", e);
+                close();
+                if (!cancelled) {
+                    observer.onError(e);
+                }
+            } finally {
+                if (cancelled) {
+                    close();
+                }
+                draining.set(false);
+            }
+            // The observer could become ready again after the last check, while the onReady event was discarded.
+        } while (!closed.get() && !cancelled && observer.isReady());
+    }
+
+    private void close() {
+        if (closed.compareAndSet(false, true)) {
+            try {
+                iterator.close();
+            } catch (Exception e) {
+                logger.warn("Error closing iterator", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package org.opencb.opencga.storage.core.utils.iterators;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Iterator that reads batches of elements from a source iterator in a background thread, ahead of the consumer.
+ *
+ * At most one task per iterator is running at any time, so the source iterator is never accessed concurrently.
+ * Tasks never block waiting for the consumer. A task stops when the iterator has {@code maxBatches} batches ready,
+ * or when the shared {@link MemoryBudget} is exhausted, and it is submitted again once the consumer takes a batch.
+ * This allows sharing a small thread pool between many iterators without risk of deadlocks.
+ *
+ * If the executor is null, or rejects the task, batches are read from the caller thread.
+ */
+public class PrefetchIterator<T> extends CloseableIterator<T> {
+
+    private final Iterator<Batch<T>> source;
+    private final Executor executor;
+    private final int maxBatches;
+    private final MemoryBudget memoryBudget;
+
+    private final Object lock = new Object();
+    // Guarded by lock
+    private final Deque<Batch<T>> ready = new ArrayDeque<>();
+    private boolean scheduled = false;
+    private boolean exhausted = false;
+    private boolean closed = false;
+    private RuntimeException error = null;
+
+    private Iterator<T> current = Collections.emptyIterator();
+
+    public PrefetchIterator(Iterator<Batch<T>> source, Executor executor, int maxBatches, MemoryBudget memoryBudget) {
+        this.source = source;
+        this.executor = executor;
+        this.maxBatches = Math.max(1, maxBatches);
+        this.memoryBudget = memoryBudget == null ? MemoryBudget.unlimited() : memoryBudget;
+    }
+
+    /**
+     * Start reading from the source in background, without waiting for the first call to {@link #hasNext()}.
+     *
+     * @return this
+     */
+    public PrefetchIterator<T> start() {
+        synchronized (lock) {
+            schedule();
+        }
+        return this;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            Batch<T> batch = takeBatch();
+            if (batch == null) {
+                return false;
+            }
+            current = batch.getElements().iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    @Override
+    public void close() throws Exception {
+        synchronized (lock) {
+            closed = true;
+            for (Batch<T> batch : ready) {
+                memoryBudget.release(batch.getSize());
+            }
+            ready.clear();
+            current = Collections.emptyIterator();
+            // Wait for the running task, so the source can be safely closed.
+            while (scheduled) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        super.close();
+    }
+
+    private Batch<T> takeBatch() {
+        synchronized (lock) {
+            while (true) {
+                if (error != null) {
+                    throw error;
+                }
+                Batch<T> batch = ready.poll();
+                if (batch != null) {
+                    memoryBudget.release(batch.getSize());
+                    schedule();
+                    return batch;
+                }
+                if (exhausted || closed) {
+                    return null;
+                }
+                if (!scheduled) {
+                    schedule();
+                    if (!scheduled) {
+                        // No executor, or task rejected. Read from the caller thread
+                        if (source.hasNext()) {
+                            return source.next();
+                        } else {
+                            exhausted = true;
+                            return null;
+                        }
+                    }
+                }
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the next batch", e);
+                }
+            }
+        }
+    }
+
+    // Must be called holding the lock
+    private void schedule() {
+        if (executor == null || scheduled || exhausted || closed || error != null || ready.size() >= maxBatches) {
+            return;
+        }
+        scheduled = true;
+        try {
+            executor.execute(this::prefetch);
+        } catch (RejectedExecutionException e) {
+            scheduled = false;
+        }
+    }
+
+    private void prefetch() {
+        try {
+            while (true) {
+                synchronized (lock) {
+                    // Always allow one batch, to ensure progress even if the memory budget is exhausted
+                    if (closed || ready.size() >= maxBatches || !ready.isEmpty() && !memoryBudget.hasRoom()) {
+                        return;
+                    }
+                }
+                // Only one task per iterator, so the source can be read outside the lock
+                Batch<T> batch = source.hasNext() ? source.next() : null;
+                synchronized (lock) {
+                    if (batch == null) {
+                        exhausted = true;
+                        return;
+                    }
+                    if (closed) {
+                        return;
+                    }
+                    memoryBudget.acquire(batch.getSize());
+                    ready.add(batch);
+                    lock.notifyAll();
+                }
+            }
+        } catch (RuntimeException e) {
+            synchronized (lock) {
+                error = e;
+            }
+        } finally {
+            synchronized (lock) {
+                scheduled = false;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Group of elements read at once from the source, with an estimated size in bytes.
+     *
+     * @param <T> Elements type
+     */
+    public static class Batch<T> {
+        private final Collection<T> elements;
+        private final long size;
+
+        public Batch(Collection<T> elements, long size) {
+            this.elements = elements;
+            this.size = size;
+        }
+
+        public Collection<T> getElements() {
+            return elements;
+        }
+
+        public long getSize() {
+            return size;
+        }
+    }
+
+    /**
+     * Maximum size of the batches read ahead, shared between multiple iterators.
+     */
+    public static class MemoryBudget {
+        private final long maxSize;
+        private final AtomicLong size = new AtomicLong(0);
+
+        public MemoryBudget(long maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public static MemoryBudget unlimited() {
+            return new MemoryBudget(Long.MAX_VALUE);
+        }
+
+        public boolean hasRoom() {
+            return size.get() < maxSize;
+        }
+
+        public long getSize() {
+            return size.get();
+        }
+
+        public long getMaxSize() {
+            return maxSize;
+        }
+
+        private void acquire(long delta) {
+            size.addAndGet(delta);
+        }
+
+        private void release(long delta) {
+            size.addAndGet(-delta);
+        }
+    }
+}
@@ -32,6 +32,7 @@ import org.opencb.opencga.core.common.TimeUtils;
 import org.opencb.opencga.core.response.VariantQueryResult;
 import org.opencb.opencga.storage.core.StorageEngine;
 import org.opencb.opencga.storage.core.StoragePipelineResult;
+import org.opencb.opencga.storage.core.cache.CacheManager;
 import org.opencb.opencga.storage.core.config.StorageConfiguration;
 import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
 import org.opencb.opencga.storage.core.exceptions.StoragePipelineException;
@@ -77,6 +78,8 @@ import java.util.*;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 
 import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.*;
@@ -90,11 +93,13 @@ import static org.opencb.opencga.storage.core.variant.search.VariantSearchUtils.
 public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdaptor> implements VariantIterable {
 
     private final AtomicReference<VariantSearchManager> variantSearchManager = new AtomicReference<>();
+    private final AtomicReference<CacheManager> cacheManager = new AtomicReference<>();
     private final List<VariantQueryExecutor> lazyVariantQueryExecutorsList = new ArrayList<>();
     private final List<VariantAggregationExecutor> lazyVariantAggregationExecutorsList = new ArrayList<>();
     private CellBaseUtils cellBaseUtils;
 
     public static final String REMOVE_OPERATION_NAME = TaskMetadata.Type.REMOVE.name().toLowerCase();
+    public static final String VARIANT_CACHE_TYPE = "var";
 
     private Logger logger = LoggerFactory.getLogger(VariantStorageEngine.class);
     private ObjectMap options;
@@ -624,7 +629,7 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
         try (VariantDBIterator iterator = getVariantsToIndex(overwrite, query, queryOptions, dbAdaptor)) {
             ProgressLogger progressLogger = new ProgressLogger("Variants loaded in Solr:");
             VariantSearchLoadResult load = variantSearchManager.load(dbName, iterator, progressLogger,
-                    newVariantSearchLoadListener(overwrite));
+                    newVariantSearchLoadListener(overwrite), getMergedOptions(inputQueryOptions));
 
             if (isValidParam(query, VariantQueryParam.REGION)) {
                 logger.info("Partial secondary index. Do not update {} timestamp", SEARCH_INDEX_LAST_TIMESTAMP.key());
@@ -963,6 +968,17 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
         return variantSearchManager.get();
     }
 
+    public CacheManager getCacheManager() {
+        if (cacheManager.get() == null) {
+            synchronized (cacheManager) {
+                if (cacheManager.get() == null) {
+                    cacheManager.set(new CacheManager(configuration));
+                }
+            }
+        }
+        return cacheManager.get();
+    }
+
     public VariantQueryResult<Variant> getPhased(String variant, String studyName, String sampleName, QueryOptions options, int windowsSize)
             throws StorageEngineException {
         VariantQueryExecutor.setDefaultTimeout(options, getOptions());
@@ -994,7 +1010,86 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
         addDefaultLimit(options, getOptions());
         addDefaultSampleLimit(query, getOptions());
         query = preProcessQuery(query, options);
-        return getVariantQueryExecutor(query, options).get(query, options);
+        if (options.getBoolean(EXPLAIN, false)) {
+            return getAndExplain(query, options);
+        }
+        Query finalQuery = query;
+        QueryOptions finalOptions = options;
+        return cached("get", query, options, () -> getVariantQueryExecutor(finalQuery, finalOptions).get(finalQuery, finalOptions),
+                VariantQueryResult::getNumResults);
+    }
+
+    /**
+     * Get the result from the {@link CacheManager}, or compute and cache it.
+     *
+     * @param type       Type of operation
+     * @param query      PreProcessed query
+     * @param options    Query options
+     * @param supplier   Computes the result if missing in the cache
+     * @param numResults Number of results of the value, to decide if it should be cached
+     * @param <T>        Result type
+     * @return           Result
+     */
+    private <T> T cached(String type, Query query, QueryOptions options, Supplier<T> supplier, ToLongFunction<T> numResults) {
+        CacheManager cacheManager = getCacheManager();
+        if (!cacheManager.isActive() || !cacheManager.isTypeAllowed(VARIANT_CACHE_TYPE)
+                || !options.getBoolean(CacheManager.CACHE, true)) {
+            return supplier.get();
+        }
+        String key;
+        try {
+            ParsedVariantQuery parsedQuery = getVariantQueryParser().parseQuery(query, options, true);
+            key = cacheManager.createKey(VARIANT_CACHE_TYPE + ":" + type, parsedQuery, getDataVersion(parsedQuery));
+        } catch (StorageEngineException e) {
+            throw VariantQueryException.internalException(e).setQuery(query);
+        }
+        T result = cacheManager.get(key);
+        if (result == null) {
+            StopWatch stopWatch = StopWatch.createStarted();
+            result = supplier.get();
+            cacheManager.set(key, result, stopWatch.getTime(TimeUnit.MILLISECONDS), numResults.applyAsLong(result));
+        }
+        return result;
+    }
+
+    /**
+     * Combined data version of all the studies involved in the query, either filtering or returned.
+     * If no study is involved, use all studies.
+     *
+     * @param parsedQuery Parsed query
+     * @return            Data version
+     * @throws StorageEngineException on error reading the version
+     */
+    private long getDataVersion(ParsedVariantQuery parsedQuery) throws StorageEngineException {
+        VariantStorageMetadataManager metadataManager = getMetadataManager();
+        Query query = parsedQuery.getQuery();
+        Set<Integer> studies = new TreeSet<>(parsedQuery.getProjection().getStudyIds());
+        if (isValidParam(query, VariantQueryParam.STUDY)) {
+            for (String study : splitValue(query, VariantQueryParam.STUDY).getValues()) {
+                Integer studyId = metadataManager.getStudyIdOrNull(removeNegation(study));
+                if (studyId != null) {
+                    studies.add(studyId);
+                }
+            }
+        }
+        if (studies.isEmpty()) {
+            studies.addAll(metadataManager.getStudyIds());
+        }
+        return metadataManager.getDataVersion(studies);
+    }
+
+    private VariantQueryResult<Variant> getAndExplain(Query query, QueryOptions options) {
+        List<VariantQueryPlan> plans = getVariantQueryPlans(query, options, true);
+        VariantQueryPlan selectedPlan = getSelectedPlan(plans);
+
+        StopWatch stopWatch = StopWatch.createStarted();
+        VariantQueryResult<Variant> result = selectedPlan.getExecutor().get(query, options);
+        selectedPlan.setTime(stopWatch.getTime(TimeUnit.MILLISECONDS))
+                .setNumResults(result.getNumResults())
+                .setNumMatches(result.getNumMatches());
+
+        result.setExplain(plans.stream().map(VariantQueryPlan::toObjectMap).collect(Collectors.toList()));
+        return result;
     }
 
     @Override
@@ -1046,17 +1141,86 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
      * @return VariantQueryExecutor to use
      */
     public VariantQueryExecutor getVariantQueryExecutor(Query query, QueryOptions options) {
+        return getSelectedPlan(getVariantQueryPlans(query, options, false)).getExecutor();
+    }
+
+    /**
+     * List the candidate plans to execute the given query, one for each {@link VariantQueryExecutor} able to run it,
+     * sorted by precedence. One of them is marked as selected.
+     *
+     * By default, the first valid executor is selected. If {@link VariantStorageOptions#QUERY_EXECUTOR_COST_BASED} is enabled,
+     * a later executor is selected only if its estimated cost is lower. Executors without estimated cost are never
+     * preferred over the default one. If the default executor can not estimate its cost, no other executor is evaluated.
+     *
+     * @param query     Query to execute
+     * @param options   Options for the query
+     * @param explain   Evaluate all the candidates and estimate their cost, even if not needed to select the executor.
+     * @return List of candidate plans
+     */
+    public List<VariantQueryPlan> getVariantQueryPlans(Query query, QueryOptions options, boolean explain) {
+        boolean costBased = getOptions().getBoolean(QUERY_EXECUTOR_COST_BASED.key(), QUERY_EXECUTOR_COST_BASED.defaultValue());
+        if (options != null) {
+            costBased = options.getBoolean(QUERY_EXECUTOR_COST_BASED.key(), costBased);
+        }
+        List<VariantQueryPlan> plans = new ArrayList<>();
+        VariantQueryPlan selectedPlan = null;
         try {
             for (VariantQueryExecutor executor : getVariantQueryExecutors()) {
-                if (executor.canUseThisExecutor(query, options)) {
-                    return executor;
+                if (!executor.canUseThisExecutor(query, options)) {
+                    continue;
+                }
+                VariantQueryPlan plan = new VariantQueryPlan(executor);
+                plans.add(plan);
+                if (selectedPlan == null) {
+                    selectedPlan = plan;
+                    if (!costBased && !explain) {
+                        break;
+                    }
+                    estimateCost(plan, query, options);
+                    if (!plan.hasEstimatedCost() && !explain) {
+                        // Can not compare with other executors
+                        break;
+                    }
+                } else {
+                    estimateCost(plan, query, options);
+                    if (costBased && selectedPlan.hasEstimatedCost() && plan.hasEstimatedCost()
+                            && plan.getEstimatedCost() < selectedPlan.getEstimatedCost()) {
+                        selectedPlan = plan;
+                    }
                 }
             }
         } catch (StorageEngineException e) {
             throw VariantQueryException.internalException(e);
         }
-        // This should never happen, as the DBAdaptorVariantQueryExecutor can always run the query
-        throw new VariantQueryException("No VariantQueryExecutor found to run the query!");
+        if (selectedPlan == null) {
+            // This should never happen, as the DBAdaptorVariantQueryExecutor can always run the query
+            throw new VariantQueryException("No VariantQueryExecutor found to run the query!");
+        }
+        selectedPlan.setSelected(true);
+        if (plans.size() > 1) {
+            logger.debug("Query plans: {}", plans);
+        }
+        return plans;
+    }
+
+    private void estimateCost(VariantQueryPlan plan, Query query, QueryOptions options) {
+        StopWatch stopWatch = StopWatch.createStarted();
+        try {
+            plan.setEstimatedCost(plan.getExecutor().estimateCost(query, options));
+        } catch (StorageEngineException | RuntimeException e) {
+            logger.warn("Unable to estimate cost of " + plan.getExecutor().getClass().getSimpleName(), e);
+            plan.setEstimatedCost(VariantQueryExecutor.UNKNOWN_COST);
+        }
+        plan.setEstimationTime(stopWatch.getTime(TimeUnit.MILLISECONDS));
+    }
+
+    private static VariantQueryPlan getSelectedPlan(List<VariantQueryPlan> plans) {
+        for (VariantQueryPlan plan : plans) {
+            if (plan.isSelected()) {
+                return plan;
+            }
+        }
+        throw new IllegalStateException("No selected plan");
     }
 
     public Query preProcessQuery(Query originalQuery, QueryOptions options) {
@@ -1126,7 +1290,11 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
         options.put(QueryOptions.INCLUDE, VariantField.ID.fieldName());
         addDefaultLimit(options, getOptions());
         query = preProcessQuery(query, options);
-        return getVariantAggregationExecutor(query, options).aggregation(query, options);
+        Query finalQuery = query;
+        QueryOptions finalOptions = options;
+        return cached("facet", query, options, () -> getVariantAggregationExecutor(finalQuery, finalOptions)
+                        .aggregation(finalQuery, finalOptions),
+                DataResult::getNumResults);
     }
 
     protected final List<VariantAggregationExecutor> getVariantAggregationExecutors() {
@@ -1182,6 +1350,9 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
             }
         }
         lazyVariantQueryExecutorsList.clear();
+        if (cacheManager.get() != null) {
+            cacheManager.getAndSet(null).close();
+        }
     }
 }
 
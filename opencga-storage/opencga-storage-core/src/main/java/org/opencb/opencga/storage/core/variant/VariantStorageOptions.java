@@ -20,6 +20,7 @@ public enum VariantStorageOptions implements ConfigurationOption {
 
     TRANSFORM_BATCH_SIZE("transform.batchSize", 200),
     TRANSFORM_THREADS("transform.numThreads", 4),
+    TRANSFORM_DECOMPRESSION_THREADS("transform.decompression.numThreads", 2), // Only for BGZF input files
     TRANSFORM_FORMAT("transform.format", "avro"),
     TRANSFORM_FAIL_ON_MALFORMED_VARIANT("transform.failOnMalformed", true),
     TRANSFORM_COMPRESSION("transform.compression", "gzip"),
@@ -79,6 +80,8 @@ public enum VariantStorageOptions implements ConfigurationOption {
 
     METADATA_LOCK_DURATION("metadata.lock.duration", 5000),
     METADATA_LOCK_TIMEOUT("metadata.lock.timeout", 60000),
+    METADATA_CACHE_CAPACITY("metadata.cache.capacity", 4096),                      // Max number of entries of each metadata cache
+    METADATA_CACHE_VERSION_CHECK_INTERVAL("metadata.cache.versionCheckInterval", 2000), // Millis between checks of the metadata version
 
     QUERY_DEFAULT_TIMEOUT("query.timeout.default", 10000), // Default timeout for DBAdaptor operations. Only used if none is provided.
     QUERY_MAX_TIMEOUT("query.timeout.max", 30000),         // Max allowed timeout for DBAdaptor operations
@@ -86,12 +89,25 @@ public enum VariantStorageOptions implements ConfigurationOption {
     QUERY_LIMIT_MAX("query.limit.max", 5000),
     QUERY_SAMPLE_LIMIT_DEFAULT("query.sample.limit.default", 100),
     QUERY_SAMPLE_LIMIT_MAX("query.sample.limit.max", 1000),
+    QUERY_EXECUTOR_COST_BASED("query.executor.costBased", false),              // Use the VariantQueryExecutor with the lowest estimated cost
+    QUERY_EXECUTOR_COST_RANDOM_ACCESS("query.executor.cost.randomAccess", 5),  // Cost of fetching one variant by id, relative to a scan
+    QUERY_EXECUTOR_COST_VARIANTS_PER_MB("query.executor.cost.variantsPerMb", 10000), // Expected density of variants
 
     // Search intersect options
     INTERSECT_ACTIVE("search.intersect.active", true),                       // Allow intersect queries with the SearchEngine (Solr)
     INTERSECT_ALWAYS("search.intersect.always", false),                      // Force intersect queries
     INTERSECT_PARAMS_THRESHOLD("search.intersect.params.threshold", 3),      // Minimum number of QueryParams in the query to intersect
 
+    // Search load options
+    SEARCH_LOAD_THREADS("search.load.numThreads", 4),                        // Number of parallel conversion and update streams to Solr
+    SEARCH_LOAD_COMMIT_WITHIN("search.load.commitWithin", 60000),            // Max time (ms) before a soft commit. Negative to disable
+    SEARCH_LOAD_CHECKPOINT_SIZE("search.load.checkpointSize", 1000000),      // Number of variants between hard commits and checkpoints
+
+    // Export options
+    EXPORT_NUM_THREADS("export.numThreads", 1),                  // Number of concurrent shards when exporting to VCF_GZ. 1 to disable
+    EXPORT_SHARD_SIZE("export.shardSize", 10000000),             // Size (bp) of each shard. 0 to shard by chromosome
+    EXPORT_SPLIT_BY_CHROMOSOME("export.splitByChromosome", false), // Write one output file per chromosome
+
     APPROXIMATE_COUNT_SAMPLING_SIZE("approximateCountSamplingSize", 1000),
     @Deprecated
     APPROXIMATE_COUNT("approximateCount", false),
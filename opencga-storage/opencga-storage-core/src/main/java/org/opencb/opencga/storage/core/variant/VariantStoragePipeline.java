@@ -49,6 +49,7 @@ import org.opencb.commons.io.avro.AvroFileWriter;
 import org.opencb.commons.run.ParallelTaskRunner;
 import org.opencb.commons.run.Task;
 import org.opencb.opencga.core.api.ParamConstants;
+import org.opencb.opencga.core.common.IOUtils;
 import org.opencb.opencga.core.common.TimeUtils;
 import org.opencb.opencga.core.common.UriUtils;
 import org.opencb.opencga.core.common.YesNoAuto;
@@ -57,6 +58,7 @@ import org.opencb.opencga.storage.core.StoragePipeline;
 import org.opencb.opencga.storage.core.config.StorageConfiguration;
 import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
 import org.opencb.opencga.storage.core.io.managers.IOConnectorProvider;
+import org.opencb.opencga.storage.core.io.plain.LineChunkDataReader;
 import org.opencb.opencga.storage.core.io.plain.StringDataReader;
 import org.opencb.opencga.storage.core.io.plain.StringDataWriter;
 import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
@@ -65,6 +67,7 @@ import org.opencb.opencga.storage.core.variant.adaptors.VariantDBAdaptor;
 import org.opencb.opencga.storage.core.variant.io.VariantReaderUtils;
 import org.opencb.opencga.storage.core.variant.query.VariantQueryUtils;
 import org.opencb.opencga.storage.core.variant.transform.MalformedVariantHandler;
+import org.opencb.opencga.storage.core.variant.transform.VariantBytesTransformTask;
 import org.opencb.opencga.storage.core.variant.transform.VariantTransformTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -89,6 +92,7 @@ import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.*;
 public abstract class VariantStoragePipeline implements StoragePipeline {
 
     private static final String HTSJDK_PARSER = "htsjdk";
+    private static final String BYTES_PARSER = "bytes";
     protected final StorageConfiguration configuration;
     protected final String storageEngineId;
     protected final ObjectMap options;
@@ -279,12 +283,15 @@ public abstract class VariantStoragePipeline implements StoragePipeline {
         } catch (IOException e) {
             throw StorageEngineException.ioException(e);
         }
+        stringReader.setDecompressionThreads(options.getInt(
+                VariantStorageOptions.TRANSFORM_DECOMPRESSION_THREADS.key(),
+                VariantStorageOptions.TRANSFORM_DECOMPRESSION_THREADS.defaultValue()));
         ProgressLogger progressLogger = new ProgressLogger("Transforming file:", fileSize, 200);
-        stringReader.setReadBytesListener((totalRead, delta) -> progressLogger.increment(delta, "Bytes"));
+        stringReader.setReadBytesListener((totalRead, delta) -> progressLogger.increment(delta,
+                () -> "Bytes. Read throughput " + IOUtils.humanReadableByteCount((long) stringReader.getReadThroughput(), false) + "/s"));
 
         VariantSetStatsCalculator statsCalculator = new VariantSetStatsCalculator(studyId, metadata);
 
-        logger.info("Using HTSJDK to read variants.");
         Pair<VCFHeader, VCFHeaderVersion> header = variantReaderUtils.readHtsHeader(input, stdin);
 
         boolean parallelParse = true;
@@ -298,12 +305,62 @@ public abstract class VariantStoragePipeline implements StoragePipeline {
             normalizer = initNormalizer(metadata);
         }
 
-        Supplier<Task<String, Variant>> task = () ->
-                new VariantTransformTask(header.getKey(), header.getValue(), studyId, metadata, statsCalculator, normalizer)
-                .setFailOnError(failOnError)
-                .addMalformedErrorHandler(malformedHandler)
-                .setIncludeSrc(false);
+        ParallelTaskRunner ptr;
+        if (HTSJDK_PARSER.equals(parser)) {
+            logger.info("Using HTSJDK to read variants.");
+            Supplier<Task<String, Variant>> task = () ->
+                    new VariantTransformTask(header.getKey(), header.getValue(), studyId, metadata, statsCalculator, normalizer)
+                    .setIncludeSrc(false)
+                    .setFailOnError(failOnError)
+                    .addMalformedErrorHandler(malformedHandler);
+            ptr = buildTransformFormatPtr(format, compression, stdout, outputVariantsFile, metadata, parallelParse,
+                    stringReader, task, config);
+        } else if (BYTES_PARSER.equals(parser)) {
+            logger.info("Using bytes parser to read variants.");
+            Supplier<Task<ByteBuffer, Variant>> task = () ->
+                    new VariantBytesTransformTask(header.getKey(), header.getValue(), studyId, metadata, statsCalculator, normalizer)
+                    .setFailOnError(failOnError)
+                    .addMalformedErrorHandler(malformedHandler);
+            ptr = buildTransformFormatPtr(format, compression, stdout, outputVariantsFile, metadata, parallelParse,
+                    new LineChunkDataReader(stringReader), task, config);
+        } else {
+            throw new IllegalArgumentException("Unknown parser " + parser);
+        }
+
+        stopWatch = StopWatch.createStarted();
+        try {
+            ptr.run();
+        } catch (ExecutionException e) {
+            throw new StorageEngineException("Error while executing TransformVariants in ParallelTaskRunner", e);
+        }
+        stopWatch.stop();
+
+        logger.info("Variants transformed in " + TimeUtils.durationToString(stopWatch));
+        getTransformStats().put("readThroughputBytesPerSecond", (long) stringReader.getReadThroughput());
+
+        try (OutputStream outputMetadataStream = ioConnectorProvider.newOutputStream(outputMetaFile)) {
+            ObjectMapper jsonObjectMapper = new ObjectMapper();
+            jsonObjectMapper.addMixIn(GenericRecord.class, GenericRecordAvroJsonMixin.class);
+            jsonObjectMapper.writeValue(outputMetadataStream, metadata.getImpl());
+        } catch (IOException e) {
+            throw StorageEngineException.ioException(e);
+        }
+
+
+        // Close the malformed variant handler
+        malformedHandler.close();
+        if (malformedHandler.getMalformedLines() > 0) {
+            getTransformStats().put("malformed lines", malformedHandler.getMalformedLines());
+        }
+
+        return outputVariantsFile;
+    }
 
+    private <I> ParallelTaskRunner buildTransformFormatPtr(String format, String compression, boolean stdout, URI outputVariantsFile,
+                                                           VariantFileMetadata metadata, boolean parallelParse,
+                                                           DataReader<I> reader, Supplier<Task<I, Variant>> task,
+                                                           ParallelTaskRunner.Config config)
+            throws StorageEngineException {
         ParallelTaskRunner ptr;
         if ("avro".equals(format)) {
             Supplier<Task<Variant, ByteBuffer>> encoder = () -> Task.forEach(Variant::getImpl)
@@ -322,7 +379,7 @@ public abstract class VariantStoragePipeline implements StoragePipeline {
                 throw StorageEngineException.ioException(e);
             }
 
-            ptr = buildTransformPtr(parallelParse, stringReader, task, encoder, dataWriter, config);
+            ptr = buildTransformPtr(parallelParse, reader, task, encoder, dataWriter, config);
         } else if ("json".equals(format)) {
             Supplier<Task<Variant, String>> encoder = () -> Task.forEach(Variant::toJson);
 
@@ -339,39 +396,14 @@ public abstract class VariantStoragePipeline implements StoragePipeline {
                 }
             }
 
-            ptr = buildTransformPtr(parallelParse, stringReader, task, encoder, dataWriter, config);
+            ptr = buildTransformPtr(parallelParse, reader, task, encoder, dataWriter, config);
         } else if ("proto".equals(format)) {
-            ptr = transformProto(metadata, outputVariantsFile, stringReader, task);
+            ptr = transformProto(metadata, outputVariantsFile, reader, task);
         } else {
             throw new IllegalArgumentException("Unknown format " + format);
         }
 
-        stopWatch = StopWatch.createStarted();
-        try {
-            ptr.run();
-        } catch (ExecutionException e) {
-            throw new StorageEngineException("Error while executing TransformVariants in ParallelTaskRunner", e);
-        }
-        stopWatch.stop();
-
-        logger.info("Variants transformed in " + TimeUtils.durationToString(stopWatch));
-
-        try (OutputStream outputMetadataStream = ioConnectorProvider.newOutputStream(outputMetaFile)) {
-            ObjectMapper jsonObjectMapper = new ObjectMapper();
-            jsonObjectMapper.addMixIn(GenericRecord.class, GenericRecordAvroJsonMixin.class);
-            jsonObjectMapper.writeValue(outputMetadataStream, metadata.getImpl());
-        } catch (IOException e) {
-            throw StorageEngineException.ioException(e);
-        }
-
-
-        // Close the malformed variant handler
-        malformedHandler.close();
-        if (malformedHandler.getMalformedLines() > 0) {
-            getTransformStats().put("malformed lines", malformedHandler.getMalformedLines());
-        }
-
-        return outputVariantsFile;
+        return ptr;
     }
 
     protected Task<Variant, Variant> initNormalizer(VariantFileMetadata metadata) throws StorageEngineException {
@@ -417,16 +449,16 @@ public abstract class VariantStoragePipeline implements StoragePipeline {
         return normalizer;
     }
 
-    protected <W> ParallelTaskRunner<?, W> buildTransformPtr(boolean parallelParse,
-                                                     DataReader<String> stringReader,
-                                                     Supplier<Task<String, Variant>> task,
+    protected <I, W> ParallelTaskRunner<?, W> buildTransformPtr(boolean parallelParse,
+                                                     DataReader<I> stringReader,
+                                                     Supplier<Task<I, Variant>> task,
                                                      Supplier<Task<Variant, W>> encoder,
                                                      DataWriter<W> dataWriter,
                                                      ParallelTaskRunner.Config config) {
 
         logger.info("Multi thread transform... [1 reading, {} transforming, 1 writing]", config.getNumTasks());
         if (parallelParse) {
-            return new ParallelTaskRunner<String, W>(
+            return new ParallelTaskRunner<I, W>(
                     stringReader,
                     () -> task.get().then(encoder.get()),
                     dataWriter,
@@ -452,9 +484,9 @@ public abstract class VariantStoragePipeline implements StoragePipeline {
         return factory;
     }
 
-    protected ParallelTaskRunner transformProto(
+    protected <I> ParallelTaskRunner transformProto(
             VariantFileMetadata metadata, URI outputVariantsFile,
-            DataReader<String> stringReader, Supplier<Task<String, Variant>> task)
+            DataReader<I> stringReader, Supplier<Task<I, Variant>> task)
             throws StorageEngineException {
         throw new NotImplementedException("Please request feature");
     }
@@ -471,6 +471,10 @@ public class DefaultVariantAnnotationManager extends VariantAnnotationManager {
                 return projectMetadata;
             });
         }
+        if (doLoad) {
+            // Annotation changed for all studies
+            dbAdaptor.getMetadataManager().increaseDataVersion(null);
+        }
 
         if (doLoad && filesToBeAnnotated != null) {
             VariantStorageMetadataManager metadataManager = dbAdaptor.getMetadataManager();
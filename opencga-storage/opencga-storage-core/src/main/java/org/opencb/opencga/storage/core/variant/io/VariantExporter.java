@@ -46,6 +46,7 @@ import java.io.*;
 import java.net.URI;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
@@ -99,9 +100,19 @@ public class VariantExporter {
             ioConnectorProvider.checkWritable(outputFile);
         }
 
-        try (OutputStream os = VariantWriterFactory.getOutputStream(outputFile, outputFormat, ioConnectorProvider)) {
-            boolean logProgress = !VariantWriterFactory.isStandardOutput(outputFile);
-            exportData(os, outputFormat, variantsFile, query.getInputQuery(), query.getInputOptions(), logProgress);
+        List<URI> outputFiles = null;
+        if (outputFormat == VariantOutputFormat.VCF_GZ && variantsFile == null && !VariantWriterFactory.isStandardOutput(outputFile)) {
+            VariantVcfParallelExporter parallelExporter = new VariantVcfParallelExporter(engine, ioConnectorProvider,
+                    engine.getMergedOptions(query.getInputOptions()));
+            if (parallelExporter.isSupported(query.getInputQuery(), query.getInputOptions())) {
+                outputFiles = parallelExporter.export(outputFile, query.getInputQuery(), query.getInputOptions());
+            }
+        }
+        if (outputFiles == null) {
+            try (OutputStream os = VariantWriterFactory.getOutputStream(outputFile, outputFormat, ioConnectorProvider)) {
+                boolean logProgress = !VariantWriterFactory.isStandardOutput(outputFile);
+                exportData(os, outputFormat, variantsFile, query.getInputQuery(), query.getInputOptions(), logProgress);
+            }
         }
         if (metadataFactory != null && !VariantWriterFactory.isStandardOutput(outputFile)) {
             VariantMetadata metadata = metadataFactory.makeVariantMetadata(query.getInputQuery(), query.getInputOptions());
@@ -0,0 +1,550 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.variant.io;
+
+import com.google.common.io.CountingOutputStream;
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+import htsjdk.samtools.util.BlockCompressedStreamConstants;
+import htsjdk.tribble.SimpleFeature;
+import htsjdk.tribble.index.Index;
+import htsjdk.tribble.index.tabix.TabixFormat;
+import htsjdk.tribble.index.tabix.TabixIndexCreator;
+import htsjdk.tribble.util.LittleEndianOutputStream;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.writer.Options;
+import htsjdk.variant.variantcontext.writer.VariantContextWriter;
+import htsjdk.variant.vcf.VCFContigHeaderLine;
+import htsjdk.variant.vcf.VCFEncoder;
+import htsjdk.variant.vcf.VCFHeader;
+import org.apache.commons.lang3.StringUtils;
+import org.opencb.biodata.formats.variant.vcf4.VcfUtils;
+import org.opencb.biodata.models.core.Region;
+import org.opencb.biodata.models.metadata.Sample;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.metadata.VariantMetadata;
+import org.opencb.biodata.models.variant.metadata.VariantStudyMetadata;
+import org.opencb.biodata.tools.variant.converters.avro.VariantAvroToVariantContextConverter;
+import org.opencb.biodata.tools.variant.converters.avro.VariantStudyMetadataToVCFHeaderConverter;
+import org.opencb.commons.ProgressLogger;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.commons.io.DataReader;
+import org.opencb.commons.io.DataWriter;
+import org.opencb.commons.run.ParallelTaskRunner;
+import org.opencb.commons.run.Task;
+import org.opencb.opencga.core.common.UriUtils;
+import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
+import org.opencb.opencga.storage.core.io.managers.IOConnectorProvider;
+import org.opencb.opencga.storage.core.metadata.VariantMetadataFactory;
+import org.opencb.opencga.storage.core.variant.VariantStorageEngine;
+import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
+import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
+import org.opencb.opencga.storage.core.variant.query.VariantQueryUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+
+import static org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam.*;
+import static org.opencb.opencga.storage.core.variant.query.VariantQueryUtils.isValidParam;
+
+/**
+ * Export variants into a bgzipped VCF file, splitting the query in multiple shards that are processed concurrently.
+ *
+ * Each shard is a genomic region. Shards are read, converted to VCF, and BGZF compressed by independent workers into
+ * temporary files. Then, the compressed blocks are concatenated in order into a single valid ".vcf.gz" file,
+ * building the tabix index at the same time. Optionally, writes one file per chromosome.
+ *
+ * Memory usage is bounded by the number of concurrent shards, as shards are buffered in disk.
+ */
+public class VariantVcfParallelExporter {
+
+    public static final String TABIX_INDEX_EXTENSION = ".tbi";
+    private static final int BATCH_SIZE = 100;
+    private static final int EOF_BLOCK_LENGTH = BlockCompressedStreamConstants.EMPTY_GZIP_BLOCK.length;
+
+    private final VariantStorageEngine engine;
+    private final IOConnectorProvider ioConnectorProvider;
+    private final int numThreads;
+    private final int shardSize;
+    private final boolean splitByChromosome;
+
+    private final Logger logger = LoggerFactory.getLogger(VariantVcfParallelExporter.class);
+
+    public VariantVcfParallelExporter(VariantStorageEngine engine, IOConnectorProvider ioConnectorProvider, ObjectMap options) {
+        this.engine = engine;
+        this.ioConnectorProvider = ioConnectorProvider;
+        numThreads = options.getInt(VariantStorageOptions.EXPORT_NUM_THREADS.key(),
+                VariantStorageOptions.EXPORT_NUM_THREADS.defaultValue());
+        shardSize = options.getInt(VariantStorageOptions.EXPORT_SHARD_SIZE.key(),
+                VariantStorageOptions.EXPORT_SHARD_SIZE.defaultValue());
+        splitByChromosome = options.getBoolean(VariantStorageOptions.EXPORT_SPLIT_BY_CHROMOSOME.key(),
+                VariantStorageOptions.EXPORT_SPLIT_BY_CHROMOSOME.defaultValue());
+    }
+
+    /**
+     * Check if the given query can be exported with this exporter.
+     * Queries with filters combined with the region as an "OR" (gene, id or xref), or paginated queries, can not be sharded.
+     *
+     * @param query        Query
+     * @param queryOptions QueryOptions
+     * @return             If the query can be split in shards
+     */
+    public boolean isSupported(Query query, QueryOptions queryOptions) {
+        if (numThreads <= 1 && !splitByChromosome) {
+            return false;
+        }
+        if (isValidParam(query, GENE) || isValidParam(query, ID) || isValidParam(query, ANNOT_XREF)) {
+            return false;
+        }
+        return queryOptions.getInt(QueryOptions.LIMIT, 0) <= 0 && queryOptions.getInt(QueryOptions.SKIP, 0) <= 0;
+    }
+
+    /**
+     * Export the query.
+     *
+     * @param outputFile   Output file. If split by chromosome, used as base name of the output files
+     * @param query        Query
+     * @param queryOptions QueryOptions
+     * @return             List of generated files, or null if the query could not be split in shards
+     * @throws IOException  If there is any IO error
+     * @throws StorageEngineException  If there is any error exporting variants
+     */
+    public List<URI> export(URI outputFile, Query query, QueryOptions queryOptions) throws IOException, StorageEngineException {
+        VariantMetadata variantMetadata = new VariantMetadataFactory(engine.getMetadataManager())
+                .makeVariantMetadata(query, queryOptions, true);
+        if (variantMetadata.getStudies().isEmpty()) {
+            throw new IllegalArgumentException("No study found named " + query.getAsStringList(INCLUDE_STUDY.key()));
+        }
+        VariantStudyMetadata studyMetadata = variantMetadata.getStudies().get(0);
+        List<String> annotations = queryOptions.getAsStringList("annotations");
+        List<String> samples = studyMetadata.getIndividuals().stream()
+                .flatMap(individual -> individual.getSamples().stream()).map(Sample::getId).collect(Collectors.toList());
+        VCFHeader vcfHeader = new VariantStudyMetadataToVCFHeaderConverter().convert(studyMetadata, annotations);
+
+        int studyId = engine.getMetadataManager().getStudyId(studyMetadata.getId());
+        List<Region> shards = getShards(query, vcfHeader, engine.getMetadataManager().getIndexedChromosomes(studyId));
+        if (shards == null) {
+            return null;
+        }
+        logger.info("Export variants in {} shards using {} threads", shards.size(), numThreads);
+
+        byte[] header = compressHeader(vcfHeader);
+        Path tmpDir = Files.createTempDirectory("opencga_export_");
+        ShardWriter writer = new ShardWriter(outputFile, header);
+        ProgressLogger progressLogger = new ProgressLogger("Exported shards:", shards.size());
+
+        Iterator<ShardRegion> shardsIterator = toShardRegions(shards).iterator();
+        DataReader<ShardRegion> reader = batchSize -> shardsIterator.hasNext()
+                ? Collections.singletonList(shardsIterator.next())
+                : Collections.emptyList();
+
+        ParallelTaskRunner.Config config = ParallelTaskRunner.Config.builder()
+                .setNumTasks(numThreads)
+                .setBatchSize(1)
+                .setCapacity(numThreads)
+                .setSorted(true)
+                .build();
+        // One task per thread. Converters are not thread safe
+        ParallelTaskRunner<ShardRegion, Shard> ptr = new ParallelTaskRunner<>(reader,
+                () -> new ShardTask(query, queryOptions, studyMetadata.getId(), samples, annotations, vcfHeader, tmpDir, progressLogger),
+                writer, config);
+        try {
+            ptr.run();
+        } catch (ExecutionException e) {
+            throw new StorageEngineException("Error exporting variants", e);
+        } finally {
+            deleteTmpDir(tmpDir);
+        }
+        return writer.getOutputFiles();
+    }
+
+    /**
+     * Split the query in shards. Uses the merged regions from the query, if any, or the contigs from the VCF header.
+     * Chromosomes with variants that are not in the VCF header are exported in one shard each, after the header contigs.
+     *
+     * @param query       Query
+     * @param vcfHeader   VCF Header
+     * @param chromosomes Chromosomes with variants in the study, or null if unknown
+     * @return            Sorted list of shards, or null if no shards could be defined
+     */
+    protected List<Region> getShards(Query query, VCFHeader vcfHeader, Set<String> chromosomes) {
+        Map<String, Integer> contigs = new LinkedHashMap<>();
+        for (VCFContigHeaderLine contigLine : vcfHeader.getContigLines()) {
+            String length = contigLine.getGenericFields().get("length");
+            contigs.put(contigLine.getID(), StringUtils.isNumeric(length) ? Integer.valueOf(length) : null);
+        }
+
+        List<Region> regions = new ArrayList<>();
+        if (isValidParam(query, REGION)) {
+            // Overlapping regions would export the same variants twice
+            regions.addAll(VariantQueryUtils.mergeRegions(Region.parseRegions(query.getString(REGION.key()), true)));
+            List<String> contigsOrder = new ArrayList<>(contigs.keySet());
+            // Sort by contig order in the header. Unknown contigs at the end.
+            regions.sort(Comparator.comparingInt((Region r) -> {
+                int idx = contigsOrder.indexOf(r.getChromosome());
+                return idx < 0 ? Integer.MAX_VALUE : idx;
+            }).thenComparing(Region::getChromosome).thenComparingInt(Region::getStart));
+        } else if (chromosomes == null) {
+            // Variants from contigs missing in the header would be lost
+            logger.warn("Unable to split the export in shards. Unknown chromosomes for the study");
+            return null;
+        } else {
+            for (Map.Entry<String, Integer> entry : contigs.entrySet()) {
+                if (chromosomes.contains(entry.getKey())) {
+                    int end = entry.getValue() == null ? Integer.MAX_VALUE : entry.getValue();
+                    regions.add(new Region(entry.getKey(), 1, end));
+                }
+            }
+            List<String> missingContigs = new ArrayList<>();
+            for (String chromosome : chromosomes) {
+                if (!contigs.containsKey(chromosome)) {
+                    missingContigs.add(chromosome);
+                    regions.add(new Region(chromosome, 1, Integer.MAX_VALUE));
+                }
+            }
+            if (!missingContigs.isEmpty()) {
+                logger.info("Chromosomes {} not found in the VCF header contigs. Exported at the end of the file", missingContigs);
+            }
+        }
+
+        List<Region> shards = new ArrayList<>();
+        for (Region region : regions) {
+            if (shardSize <= 0 || region.getEnd() == Integer.MAX_VALUE) {
+                shards.add(region);
+            } else {
+                for (int start = region.getStart(); start <= region.getEnd(); start += shardSize) {
+                    shards.add(new Region(region.getChromosome(), start, (int) Math.min(region.getEnd(), (long) start + shardSize - 1)));
+                }
+            }
+        }
+        return shards;
+    }
+
+    /**
+     * Variants overlapping multiple shards of the same chromosome are only exported by the first of them.
+     * Skip in each shard the variants starting before the end of the previous shard.
+     *
+     * @param shards Sorted list of shards
+     * @return       Shards with the minimum start of the variants to export
+     */
+    private static List<ShardRegion> toShardRegions(List<Region> shards) {
+        List<ShardRegion> shardRegions = new ArrayList<>(shards.size());
+        Region prev = null;
+        for (Region region : shards) {
+            int minStart = 0;
+            if (prev != null && prev.getChromosome().equals(region.getChromosome())) {
+                minStart = prev.getEnd() + 1;
+            }
+            shardRegions.add(new ShardRegion(region, minStart));
+            prev = region;
+        }
+        return shardRegions;
+    }
+
+    private static byte[] compressHeader(VCFHeader vcfHeader) throws IOException {
+        ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        VariantContextWriter headerWriter = VcfUtils.createVariantContextWriter(plain, null, Options.ALLOW_MISSING_FIELDS_IN_HEADER);
+        headerWriter.writeHeader(vcfHeader);
+        headerWriter.close();
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (BlockCompressedOutputStream bgzf = new BlockCompressedOutputStream(compressed, (File) null)) {
+            bgzf.write(plain.toByteArray());
+        }
+        // Remove the EOF block. Will be added at the end of the file
+        return Arrays.copyOf(compressed.toByteArray(), compressed.size() - EOF_BLOCK_LENGTH);
+    }
+
+    private void deleteTmpDir(Path tmpDir) {
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(tmpDir)) {
+            for (Path path : paths) {
+                Files.deleteIfExists(path);
+            }
+            Files.deleteIfExists(tmpDir);
+        } catch (IOException e) {
+            logger.warn("Unable to delete temporary directory " + tmpDir, e);
+        }
+    }
+
+    private static final class ShardRegion {
+        private final Region region;
+        private final int minStart;
+
+        private ShardRegion(Region region, int minStart) {
+            this.region = region;
+            this.minStart = minStart;
+        }
+    }
+
+    /**
+     * Exported shard. Data is stored in a BGZF compressed temporary file.
+     * The positions file contains the start, end and virtual offset of each variant, used to build the index.
+     */
+    private static final class Shard {
+        private final Region region;
+        private final Path data;
+        private final Path positions;
+        private String contig;
+        private long numVariants;
+
+        private Shard(Region region, Path data, Path positions) {
+            this.region = region;
+            this.data = data;
+            this.positions = positions;
+        }
+    }
+
+    private final class ShardTask implements Task<ShardRegion, Shard> {
+
+        private final Query query;
+        private final QueryOptions queryOptions;
+        private final VariantAvroToVariantContextConverter converter;
+        private final VCFEncoder encoder;
+        private final Path tmpDir;
+        private final ProgressLogger progressLogger;
+
+        private ShardTask(Query query, QueryOptions queryOptions, String study, List<String> samples, List<String> annotations,
+                          VCFHeader vcfHeader, Path tmpDir, ProgressLogger progressLogger) {
+            this.query = query;
+            this.queryOptions = queryOptions;
+            this.converter = new VariantAvroToVariantContextConverter(study, samples, annotations);
+            this.encoder = new VCFEncoder(vcfHeader, true, false);
+            this.tmpDir = tmpDir;
+            this.progressLogger = progressLogger;
+        }
+
+        @Override
+        public List<Shard> apply(List<ShardRegion> regions) throws Exception {
+            List<Shard> shards = new ArrayList<>(regions.size());
+            for (ShardRegion region : regions) {
+                shards.add(exportShard(region.region, region.minStart));
+            }
+            return shards;
+        }
+
+        private Shard exportShard(Region region, int minStart) throws Exception {
+            Path data = Files.createTempFile(tmpDir, "shard_", ".vcf.gz");
+            Path positions = Files.createTempFile(tmpDir, "shard_", ".pos");
+            Shard shard = new Shard(region, data, positions);
+
+            Query shardQuery = new Query(query);
+            shardQuery.put(REGION.key(), region.toString());
+            QueryOptions shardOptions = new QueryOptions(queryOptions);
+            shardOptions.put(QueryOptions.SORT, true);
+
+            try (VariantDBIterator iterator = engine.iterator(shardQuery, shardOptions);
+                 BlockCompressedOutputStream bgzf = new BlockCompressedOutputStream(Files.newOutputStream(data), (File) null);
+                 DataOutputStream positionsOs = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(positions)))) {
+                List<Variant> batch = new ArrayList<>(BATCH_SIZE);
+                while (iterator.hasNext()) {
+                    Variant variant = iterator.next();
+                    if (variant.getStart() < minStart) {
+                        // Overlapping variant, already exported by the previous shard
+                        continue;
+                    }
+                    batch.add(variant);
+                    if (batch.size() == BATCH_SIZE) {
+                        write(batch, shard, bgzf, positionsOs);
+                        batch.clear();
+                    }
+                }
+                write(batch, shard, bgzf, positionsOs);
+            }
+            progressLogger.increment(1, () -> "up to shard " + region + ", " + shard.numVariants + " variants");
+            return shard;
+        }
+
+        private void write(List<Variant> batch, Shard shard, BlockCompressedOutputStream bgzf, DataOutputStream positionsOs)
+                throws IOException {
+            if (batch.isEmpty()) {
+                return;
+            }
+            for (VariantContext context : converter.apply(batch)) {
+                if (shard.contig == null) {
+                    shard.contig = context.getContig();
+                }
+                long virtualOffset = bgzf.getFilePointer();
+                bgzf.write(encoder.encode(context).getBytes(StandardCharsets.UTF_8));
+                bgzf.write('\n');
+                positionsOs.writeInt(context.getStart());
+                positionsOs.writeInt(context.getEnd());
+                positionsOs.writeLong(virtualOffset);
+                shard.numVariants++;
+            }
+        }
+    }
+
+    /**
+     * Concatenates the compressed shards in order, and builds the tabix index.
+     */
+    private final class ShardWriter implements DataWriter<Shard> {
+
+        private final URI outputFile;
+        private final byte[] header;
+        private final List<URI> outputFiles = new ArrayList<>();
+
+        private URI currentFile;
+        private CountingOutputStream os;
+        private TabixIndexCreator indexCreator;
+        private String lastContig;
+        private int lastStart;
+
+        private ShardWriter(URI outputFile, byte[] header) {
+            this.outputFile = outputFile;
+            this.header = header;
+        }
+
+        @Override
+        public boolean write(List<Shard> shards) {
+            try {
+                for (Shard shard : shards) {
+                    write(shard);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return true;
+        }
+
+        private void write(Shard shard) throws IOException {
+            if (shard.numVariants == 0) {
+                if (!splitByChromosome && os == null) {
+                    open(outputFile);
+                }
+                deleteShard(shard);
+                return;
+            }
+            if (splitByChromosome) {
+                if (!shard.contig.equals(lastContig)) {
+                    closeCurrent();
+                    open(getChromosomeFile(shard.contig));
+                }
+            } else if (os == null) {
+                open(outputFile);
+            }
+
+            // Concatenate the compressed blocks, skipping the EOF block
+            long blockOffset = os.getCount();
+            long length = Files.size(shard.data) - EOF_BLOCK_LENGTH;
+            try (InputStream is = new BufferedInputStream(Files.newInputStream(shard.data))) {
+                copy(is, os, length);
+            }
+
+            try (DataInputStream positions = new DataInputStream(new BufferedInputStream(Files.newInputStream(shard.positions)))) {
+                for (long i = 0; i < shard.numVariants; i++) {
+                    int start = positions.readInt();
+                    int end = positions.readInt();
+                    long virtualOffset = positions.readLong();
+                    if (shard.contig.equals(lastContig) && start < lastStart) {
+                        // Indels are exported one position before its normalized start, which may unsort the output.
+                        // Index with the previous position. Tabix readers will start reading at an earlier offset.
+                        start = lastStart;
+                        end = Math.max(start, end);
+                    }
+                    lastContig = shard.contig;
+                    lastStart = start;
+                    long blockAddress = blockOffset + (virtualOffset >>> 16);
+                    indexCreator.addFeature(new SimpleFeature(shard.contig, start, end), (blockAddress << 16) | (virtualOffset & 0xFFFF));
+                }
+            }
+            deleteShard(shard);
+        }
+
+        private void open(URI file) throws IOException {
+            currentFile = file;
+            os = new CountingOutputStream(new BufferedOutputStream(ioConnectorProvider.newOutputStreamRaw(file)));
+            os.write(header);
+            indexCreator = new TabixIndexCreator(TabixFormat.VCF);
+            lastContig = null;
+            lastStart = 0;
+        }
+
+        private void closeCurrent() throws IOException {
+            if (os == null) {
+                return;
+            }
+            long end = os.getCount();
+            os.write(BlockCompressedStreamConstants.EMPTY_GZIP_BLOCK);
+            os.close();
+            os = null;
+
+            Index index = indexCreator.finalizeIndex(end << 16);
+            URI indexFile = UriUtils.replacePath(currentFile, currentFile.getPath() + TABIX_INDEX_EXTENSION);
+            try (LittleEndianOutputStream indexOs = new LittleEndianOutputStream(
+                    new BlockCompressedOutputStream(ioConnectorProvider.newOutputStreamRaw(indexFile), (File) null))) {
+                index.write(indexOs);
+            }
+            outputFiles.add(currentFile);
+            logger.info("Written file {} and index {}", currentFile, indexFile);
+        }
+
+        private URI getChromosomeFile(String contig) {
+            String path = outputFile.getPath();
+            String extension = "." + VariantWriterFactory.VariantOutputFormat.VCF_GZ.getExtension();
+            if (path.endsWith(extension)) {
+                path = path.substring(0, path.length() - extension.length());
+            }
+            return UriUtils.replacePath(outputFile, path + "." + contig + extension);
+        }
+
+        private void deleteShard(Shard shard) throws IOException {
+            Files.deleteIfExists(shard.data);
+            Files.deleteIfExists(shard.positions);
+        }
+
+        @Override
+        public boolean post() {
+            try {
+                if (os == null && !splitByChromosome) {
+                    // Empty result. Write only the header
+                    open(outputFile);
+                }
+                closeCurrent();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return true;
+        }
+
+        private List<URI> getOutputFiles() {
+            return outputFiles;
+        }
+    }
+
+    private static void copy(InputStream is, OutputStream os, long length) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long remaining = length;
+        while (remaining > 0) {
+            int read = is.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read < 0) {
+                throw new EOFException("Unexpected end of shard file");
+            }
+            os.write(buffer, 0, read);
+            remaining -= read;
+        }
+    }
+}
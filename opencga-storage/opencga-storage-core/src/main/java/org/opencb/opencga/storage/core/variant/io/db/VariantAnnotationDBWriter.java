@@ -66,6 +66,10 @@ public class VariantAnnotationDBWriter implements Task<VariantAnnotation, Object
         }
     }
 
+    protected long getTimestamp() {
+        return timestamp;
+    }
+
     public VariantAnnotationDBWriter setProgressLogger(ProgressLogger progressLogger) {
         this.progressLogger = progressLogger;
         return this;
@@ -133,6 +133,8 @@ public final class VariantQueryUtils {
 
     public static final String SKIP_MISSING_GENES = "skipMissingGenes";
     public static final String SKIP_GENE_REGIONS = "skipGeneRegions";
+    // QueryOption to return the candidate query plans within the result attributes
+    public static final String EXPLAIN = "explain";
 
     public static final String OP_LE = "<=";
     public static final String OP_GE = ">=";
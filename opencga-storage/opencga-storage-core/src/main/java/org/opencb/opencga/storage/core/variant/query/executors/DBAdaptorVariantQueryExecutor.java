@@ -1,5 +1,6 @@
 package org.opencb.opencga.storage.core.variant.query.executors;
 
+import org.opencb.biodata.models.core.Region;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.commons.datastore.core.*;
 import org.opencb.opencga.core.response.VariantQueryResult;
@@ -9,9 +10,14 @@ import org.opencb.opencga.storage.core.variant.query.VariantQueryUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
+import static org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam.*;
+import static org.opencb.opencga.storage.core.variant.query.VariantQueryUtils.*;
+
 /**
  * Simplest implementation of the VariantQueryExecutor.
  * Will run the query using directly the {@link VariantDBAdaptor}.
@@ -22,6 +28,8 @@ import java.util.List;
  */
 public class DBAdaptorVariantQueryExecutor extends VariantQueryExecutor {
 
+    // Approximate length of the human genome
+    public static final long GENOME_LENGTH = 3_100_000_000L;
     private final VariantDBAdaptor dbAdaptor;
     private Logger logger = LoggerFactory.getLogger(DBAdaptorVariantQueryExecutor.class);
     private static final List<QueryParam> UNSUPPORTED_PARAMS = Arrays.asList(
@@ -53,11 +61,51 @@ public class DBAdaptorVariantQueryExecutor extends VariantQueryExecutor {
         return dbAdaptor.count(query);
     }
 
+    /**
+     * Estimate the cost from the size of the regions to scan, and the number of variants to fetch by id.
+     * Other filters are not taken into account, as they are applied while scanning.
+     *
+     * @param query    Query to execute
+     * @param options  Options for the query
+     * @return         Estimated cost
+     */
+    @Override
+    public long estimateCost(Query query, QueryOptions options) {
+        boolean geneRegions = isValidParam(query, ANNOT_GENE_REGIONS) && !query.getString(ANNOT_GENE_REGIONS.key()).equals(SKIP_GENE_REGIONS);
+        if (isValidParam(query, ANNOT_XREF) || isValidParam(query, GENE) && !geneRegions) {
+            // Depends on secondary indexes
+            return UNKNOWN_COST;
+        }
+        List<String> ids = isValidParam(query, ID) ? query.getAsStringList(ID.key()) : Collections.emptyList();
+        for (String id : ids) {
+            if (!isVariantId(id)) {
+                return UNKNOWN_COST;
+            }
+        }
+        List<Region> regions = new ArrayList<>();
+        if (isValidParam(query, REGION)) {
+            regions.addAll(Region.parseRegions(query.getString(REGION.key()), true));
+        }
+        if (geneRegions) {
+            regions.addAll(Region.parseRegions(query.getString(ANNOT_GENE_REGIONS.key()), true));
+        }
+        if (regions.isEmpty() && ids.isEmpty()) {
+            // Full scan
+            return scanCost(GENOME_LENGTH);
+        }
+        long numBases = 0;
+        for (Region region : mergeRegions(regions)) {
+            int end = Math.min(region.getEnd(), AbstractTwoPhasedVariantQueryExecutor.CHR1_LENGTH);
+            numBases += Math.max(1, end - region.getStart() + 1);
+        }
+        return scanCost(numBases) + randomAccessCost(ids.size());
+    }
+
     @Override
     public boolean canUseThisExecutor(Query query, QueryOptions options) {
         for (QueryParam unsupportedParam : UNSUPPORTED_PARAMS) {
             if (VariantQueryUtils.isValidParam(query, unsupportedParam)) {
-                logger.warn("Unsupported variant query param {} in {}",
+                logger.debug("Unsupported variant query param {} in {}",
                         unsupportedParam.key(),
                         DBAdaptorVariantQueryExecutor.class.getSimpleName());
                 return false;
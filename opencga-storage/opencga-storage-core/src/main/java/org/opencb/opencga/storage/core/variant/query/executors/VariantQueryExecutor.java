@@ -14,8 +14,7 @@ import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBItera
 
 import java.util.Collections;
 
-import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.QUERY_DEFAULT_TIMEOUT;
-import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.QUERY_MAX_TIMEOUT;
+import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.*;
 
 /**
  * Created on 01/04/19.
@@ -24,6 +23,8 @@ import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.QUER
  */
 public abstract class VariantQueryExecutor implements VariantIterable {
 
+    public static final long UNKNOWN_COST = -1;
+
     protected final VariantStorageMetadataManager metadataManager;
     protected final String storageEngineId;
     private final ObjectMap options;
@@ -77,6 +78,33 @@ public abstract class VariantQueryExecutor implements VariantIterable {
      */
     public abstract boolean canUseThisExecutor(Query query, QueryOptions options) throws StorageEngineException;
 
+    /**
+     * Estimate the cost of running the given query with this executor. Only called if {@link #canUseThisExecutor} is true.
+     *
+     * The cost is measured as the number of variants read from the storage in a sequential scan.
+     * Fetching variants by id should be weighted with {@link #randomAccessCost}.
+     * Estimations should be fast, using only cheap statistics, like counters or region sizes.
+     *
+     * @param query    Query to execute
+     * @param options  Options for the query
+     * @return         Estimated cost, or {@link #UNKNOWN_COST} if unable to estimate it.
+     * @throws StorageEngineException if there is an error
+     */
+    public long estimateCost(Query query, QueryOptions options) throws StorageEngineException {
+        return UNKNOWN_COST;
+    }
+
+    protected long randomAccessCost(long numVariants) {
+        return numVariants * getOptions().getInt(QUERY_EXECUTOR_COST_RANDOM_ACCESS.key(),
+                QUERY_EXECUTOR_COST_RANDOM_ACCESS.defaultValue());
+    }
+
+    protected long scanCost(long numBases) {
+        int variantsPerMb = getOptions().getInt(QUERY_EXECUTOR_COST_VARIANTS_PER_MB.key(),
+                QUERY_EXECUTOR_COST_VARIANTS_PER_MB.defaultValue());
+        return numBases * variantsPerMb / 1000000;
+    }
+
     public DataResult<Long> count(Query query) {
         VariantQueryResult<Variant> result = get(query, new QueryOptions(QueryOptions.COUNT, true).append(QueryOptions.LIMIT, 0));
         return new DataResult<>(
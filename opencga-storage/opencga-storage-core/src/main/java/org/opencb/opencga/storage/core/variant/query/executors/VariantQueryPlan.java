@@ -0,0 +1,107 @@
+package org.opencb.opencga.storage.core.variant.query.executors;
+
+import org.opencb.commons.datastore.core.ObjectMap;
+
+/**
+ * Candidate plan to execute a variant query with one {@link VariantQueryExecutor}, and its estimated cost.
+ *
+ * The actual execution time and number of results are only filled for the selected plan, when explaining the query.
+ */
+public class VariantQueryPlan {
+
+    private final VariantQueryExecutor executor;
+    private long estimatedCost = VariantQueryExecutor.UNKNOWN_COST;
+    private long estimationTime = -1;
+    private boolean selected = false;
+    private long time = -1;
+    private long numResults = -1;
+    private long numMatches = -1;
+
+    public VariantQueryPlan(VariantQueryExecutor executor) {
+        this.executor = executor;
+    }
+
+    public VariantQueryExecutor getExecutor() {
+        return executor;
+    }
+
+    public boolean hasEstimatedCost() {
+        return estimatedCost >= 0;
+    }
+
+    public long getEstimatedCost() {
+        return estimatedCost;
+    }
+
+    public VariantQueryPlan setEstimatedCost(long estimatedCost) {
+        this.estimatedCost = estimatedCost;
+        return this;
+    }
+
+    public long getEstimationTime() {
+        return estimationTime;
+    }
+
+    public VariantQueryPlan setEstimationTime(long estimationTime) {
+        this.estimationTime = estimationTime;
+        return this;
+    }
+
+    public boolean isSelected() {
+        return selected;
+    }
+
+    public VariantQueryPlan setSelected(boolean selected) {
+        this.selected = selected;
+        return this;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public VariantQueryPlan setTime(long time) {
+        this.time = time;
+        return this;
+    }
+
+    public long getNumResults() {
+        return numResults;
+    }
+
+    public VariantQueryPlan setNumResults(long numResults) {
+        this.numResults = numResults;
+        return this;
+    }
+
+    public long getNumMatches() {
+        return numMatches;
+    }
+
+    public VariantQueryPlan setNumMatches(long numMatches) {
+        this.numMatches = numMatches;
+        return this;
+    }
+
+    public ObjectMap toObjectMap() {
+        ObjectMap map = new ObjectMap()
+                .append("executor", executor.getClass().getSimpleName())
+                .append("selected", selected)
+                .append("estimatedCost", hasEstimatedCost() ? estimatedCost : null)
+                .append("estimationTime", estimationTime);
+        if (selected && time >= 0) {
+            map.append("time", time)
+                    .append("numResults", numResults)
+                    .append("numMatches", numMatches);
+        }
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return executor.getClass().getSimpleName() + "{"
+                + "estimatedCost=" + (hasEstimatedCost() ? estimatedCost : "?")
+                + ", selected=" + selected
+                + '}';
+    }
+}
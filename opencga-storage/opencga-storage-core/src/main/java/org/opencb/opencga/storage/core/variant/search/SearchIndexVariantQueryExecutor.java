@@ -77,6 +77,31 @@ public class SearchIndexVariantQueryExecutor extends AbstractSearchIndexVariantQ
         return doQuerySearchManager(query, options) || doIntersectWithSearch(query, options);
     }
 
+    /**
+     * Estimate the cost from the number of documents matching the query in the search engine.
+     * If the search engine can not resolve the query by itself, these variants will be fetched by id from the storage.
+     *
+     * @param query    Query to execute
+     * @param options  Options for the query
+     * @return         Estimated cost
+     */
+    @Override
+    public long estimateCost(Query query, QueryOptions options) {
+        if (VariantStorageEngine.UseSearchIndex.from(options).equals(VariantStorageEngine.UseSearchIndex.YES) || intersectAlways) {
+            // Explicitly requested. Always use this executor
+            return 0;
+        }
+        try {
+            if (doQuerySearchManager(query, options)) {
+                return searchManager.count(dbName, query);
+            } else {
+                return randomAccessCost(searchManager.count(dbName, getSearchEngineQuery(query)));
+            }
+        } catch (IOException | VariantSearchException e) {
+            throw new VariantQueryException("Error querying Solr", e);
+        }
+    }
+
     @Override
     public DataResult<Long> count(Query query) {
         try {
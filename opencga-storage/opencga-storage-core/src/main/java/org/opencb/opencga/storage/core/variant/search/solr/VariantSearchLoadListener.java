@@ -16,6 +16,10 @@ import static org.opencb.opencga.storage.core.variant.adaptors.VariantField.Addi
 /**
  * Use this class to keep a track of the indexed variants status in the VariantSearchEngine.
  *
+ * {@link #preLoad} might be called concurrently from multiple threads.
+ * {@link #postLoad} is only called once the variants are committed in the search engine, followed by a {@link #checkpoint}.
+ * The variants given to {@link #postLoad} only contain the variant coordinates and the list of studies.
+ *
  * Created on 19/04/18.
  *
  * @author Jacobo Coll &lt;jacobo167@gmail.com&gt;
@@ -91,5 +95,11 @@ public abstract class VariantSearchLoadListener {
         };
     }
 
+    /**
+     * All the variants notified with {@link #postLoad} are committed in the search engine.
+     * Persist any buffered status, so an interrupted load can be resumed from this point.
+     */
+    public void checkpoint() {}
+
     public void close() {}
 }
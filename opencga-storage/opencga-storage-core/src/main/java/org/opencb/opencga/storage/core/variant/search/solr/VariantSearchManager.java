@@ -29,6 +29,7 @@ import org.apache.solr.common.SolrException;
 import org.apache.solr.common.util.SimpleOrderedMap;
 import org.opencb.biodata.formats.variant.io.VariantReader;
 import org.opencb.biodata.models.core.Gene;
+import org.opencb.biodata.models.variant.StudyEntry;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.models.variant.annotation.ConsequenceTypeMappings;
 import org.opencb.cellbase.client.rest.CellBaseClient;
@@ -36,12 +37,14 @@ import org.opencb.cellbase.core.result.CellBaseDataResponse;
 import org.opencb.commons.ProgressLogger;
 import org.opencb.commons.datastore.core.DataResult;
 import org.opencb.commons.datastore.core.FacetField;
+import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.commons.datastore.solr.FacetQueryParser;
 import org.opencb.commons.datastore.solr.SolrCollection;
 import org.opencb.commons.datastore.solr.SolrManager;
 import org.opencb.commons.run.ParallelTaskRunner;
+import org.opencb.commons.run.Task;
 import org.opencb.commons.utils.CollectionUtils;
 import org.opencb.commons.utils.ListUtils;
 import org.opencb.opencga.core.common.TimeUtils;
@@ -67,6 +70,8 @@ import java.util.*;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.*;
+
 
 /**
  * Created by imedina on 09/11/16.
@@ -231,12 +236,40 @@ public class VariantSearchManager {
      */
     public VariantSearchLoadResult load(String collection, VariantDBIterator variantDBIterator, ProgressLogger progressLogger,
                                         VariantSearchLoadListener loadListener) throws VariantSearchException {
+        return load(collection, variantDBIterator, progressLogger, loadListener, new ObjectMap());
+    }
+
+    /**
+     * Load a Solr core/collection from a variant DB iterator.
+     *
+     * Variants are converted and sent to Solr from multiple parallel tasks, using "commitWithin" to let Solr decide when to commit.
+     * Every {@link org.opencb.opencga.storage.core.variant.VariantStorageOptions#SEARCH_LOAD_CHECKPOINT_SIZE} variants,
+     * a hard commit is executed, and the {@link VariantSearchLoadListener} is notified about the variants loaded since the last
+     * checkpoint. Therefore, an interrupted load can be resumed from the last checkpoint.
+     *
+     * @param collection        Collection name
+     * @param variantDBIterator Iterator to retrieve the variants to load
+     * @param progressLogger    Progress logger
+     * @param loadListener      Load listener
+     * @param options           Load options
+     * @return VariantSearchLoadResult
+     * @throws VariantSearchException VariantSearchException
+     */
+    public VariantSearchLoadResult load(String collection, VariantDBIterator variantDBIterator, ProgressLogger progressLogger,
+                                        VariantSearchLoadListener loadListener, ObjectMap options) throws VariantSearchException {
         if (variantDBIterator == null) {
             throw new VariantSearchException("Missing variant DB iterator when loading Solr variant collection");
         }
+        int numTasks = Math.max(1, options.getInt(SEARCH_LOAD_THREADS.key(), SEARCH_LOAD_THREADS.defaultValue()));
+        int commitWithin = options.getInt(SEARCH_LOAD_COMMIT_WITHIN.key(), SEARCH_LOAD_COMMIT_WITHIN.defaultValue());
+        int checkpointSize = options.getInt(SEARCH_LOAD_CHECKPOINT_SIZE.key(), SEARCH_LOAD_CHECKPOINT_SIZE.defaultValue());
 
         AtomicInteger count = new AtomicInteger();
         AtomicInteger numLoadedVariants = new AtomicInteger();
+        // Batches loaded in Solr since the last checkpoint, with only the fields required by the load listener.
+        // Only accessed from the writer thread.
+        List<List<Variant>> pendingBatches = new ArrayList<>();
+        AtomicInteger numPendingVariants = new AtomicInteger();
 
         ParallelTaskRunner<Variant, Variant> ptr = new ParallelTaskRunner<>((n) -> {
             List<Variant> batch = new ArrayList<>(n);
@@ -245,28 +278,39 @@ public class VariantSearchManager {
             }
             count.addAndGet(batch.size());
             return batch;
-        }, batch -> {
-            progressLogger.increment(batch.size(), () -> "up to position " + batch.get(batch.size() - 1).toString());
-            return batch;
-        }, batch -> {
-            try {
-                loadListener.preLoad(batch);
+        }, () -> {
+            // The converter is not thread safe. Use one per task.
+            VariantSearchToVariantConverter converter = new VariantSearchToVariantConverter();
+            return (Task<Variant, Variant>) batch -> {
+                progressLogger.increment(batch.size(), () -> "up to position " + batch.get(batch.size() - 1).toString());
+                try {
+                    loadListener.preLoad(batch);
+                    add(collection, converter.convertListToStorageType(batch), commitWithin);
+                } catch (SolrServerException | IOException e) {
+                    throw new RuntimeException(e);
+                }
                 numLoadedVariants.addAndGet(batch.size());
-                insert(collection, batch);
-                loadListener.postLoad(batch);
-            } catch (SolrServerException | IOException e) {
-                throw new RuntimeException(e);
+                return toPostLoadVariants(batch);
+            };
+        }, batch -> {
+            pendingBatches.add(batch);
+            if (numPendingVariants.addAndGet(batch.size()) >= checkpointSize) {
+                checkpoint(collection, loadListener, pendingBatches);
+                numPendingVariants.set(0);
             }
             return true;
         }, ParallelTaskRunner.Config.builder()
                 .setBatchSize(insertBatchSize)
-                .setCapacity(2)
-                .setNumTasks(1)
+                .setCapacity(numTasks * 2)
+                .setNumTasks(numTasks)
+                .setSorted(false)
                 .build());
 
         StopWatch stopWatch = StopWatch.createStarted();
         try {
             ptr.run();
+            // Final hard commit
+            checkpoint(collection, loadListener, pendingBatches);
         } catch (ExecutionException e) {
             throw new VariantSearchException("Error loading secondary index", e);
         }
@@ -278,6 +322,50 @@ public class VariantSearchManager {
     }
 
 
+    /**
+     * Build a lightweight copy of the loaded variants, with only the fields required by {@link VariantSearchLoadListener#postLoad}:
+     * the variant coordinates and the list of studies. Samples data and annotation are not retained until the next checkpoint.
+     *
+     * @param batch Loaded variants
+     * @return      Lightweight copy of the variants
+     */
+    private static List<Variant> toPostLoadVariants(List<Variant> batch) {
+        List<Variant> variants = new ArrayList<>(batch.size());
+        for (Variant variant : batch) {
+            Variant copy = new Variant(variant.getChromosome(), variant.getStart(), variant.getEnd(),
+                    variant.getReference(), variant.getAlternate()).setSv(variant.getSv());
+            List<StudyEntry> studies = new ArrayList<>(variant.getStudies().size());
+            for (StudyEntry study : variant.getStudies()) {
+                studies.add(new StudyEntry(study.getStudyId()));
+            }
+            copy.setStudies(studies);
+            variants.add(copy);
+        }
+        return variants;
+    }
+
+    /**
+     * Hard commit all the variants sent to Solr, and notify the load listener.
+     *
+     * @param collection     Solr collection
+     * @param loadListener   Load listener
+     * @param pendingBatches Batches loaded since the last checkpoint. Cleared after the checkpoint.
+     */
+    private void checkpoint(String collection, VariantSearchLoadListener loadListener, List<List<Variant>> pendingBatches) {
+        StopWatch stopWatch = StopWatch.createStarted();
+        try {
+            solrManager.getSolrClient().commit(collection);
+            for (List<Variant> batch : pendingBatches) {
+                loadListener.postLoad(batch);
+            }
+            loadListener.checkpoint();
+        } catch (SolrServerException | IOException e) {
+            throw new RuntimeException(e);
+        }
+        logger.info("Checkpoint in {}", TimeUtils.durationToString(stopWatch));
+        pendingBatches.clear();
+    }
+
     /**
      * Delete variants a Solr core/collection from a variant DB iterator.
      *
@@ -577,7 +665,7 @@ public class VariantSearchManager {
                 count++;
                 if (count % insertBatchSize == 0) {
                     logger.debug("Loading variants from '{}', {} variants loaded", uri.toString(), count);
-                    insert(collection, variants);
+                    add(collection, variants);
                     variants.clear();
                 }
             }
@@ -585,9 +673,10 @@ public class VariantSearchManager {
             // Insert the remaining variants
             if (CollectionUtils.isNotEmpty(variants)) {
                 logger.debug("Loading remaining variants from '{}', {} variants loaded", uri.toString(), count);
-                insert(collection, variants);
+                add(collection, variants);
             }
         }
+        solrManager.getSolrClient().commit(collection);
     }
 
     private void loadAvro(String collection, URI uri, VariantReaderUtils variantReaderUtils)
@@ -601,10 +690,29 @@ public class VariantSearchManager {
         List<Variant> variants;
         do {
             variants = reader.read(bufferSize);
-            insert(collection, variants);
+            add(collection, variants);
         } while (CollectionUtils.isNotEmpty(variants));
 
         reader.close();
+        solrManager.getSolrClient().commit(collection);
+    }
+
+    private void add(String collection, List<Variant> variants) throws IOException, SolrServerException {
+        if (CollectionUtils.isNotEmpty(variants)) {
+            add(collection, variantSearchToVariantConverter.convertListToStorageType(variants), SEARCH_LOAD_COMMIT_WITHIN.defaultValue());
+        }
+    }
+
+    private void add(String collection, List<VariantSearchModel> variantSearchModels, int commitWithin)
+            throws IOException, SolrServerException {
+        if (!variantSearchModels.isEmpty()) {
+            // Negative commitWithin is ignored by Solr
+            UpdateResponse updateResponse = solrManager.getSolrClient().addBeans(collection, variantSearchModels, commitWithin);
+            if (updateResponse.getStatus() != 0) {
+                throw new SolrServerException("Error adding variants to Solr collection '" + collection + "'. Status: "
+                        + updateResponse.getStatus());
+            }
+        }
     }
 
     private void delete(String collection, List<String> variants) throws IOException, SolrServerException {
@@ -0,0 +1,425 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.variant.stats;
+
+import org.apache.commons.lang3.StringUtils;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.ConsequenceType;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+import org.opencb.oskar.analysis.stats.FisherExactTest;
+import org.opencb.oskar.analysis.stats.FisherTestResult;
+
+import java.util.*;
+
+/**
+ * Case-control association tests of the GWAS analysis, shared by the local and the MapReduce executors.
+ *
+ * Every variant produces one TSV line. The first columns are always the allele counts and the Fisher exact test, so the
+ * output can be indexed as a VariantScore. The allelic chi-square test and the additive logistic regression are appended
+ * as extra columns when enabled.
+ */
+public class GwasTestCalculator {
+
+    public static final List<String> COLUMNS = Collections.unmodifiableList(Arrays.asList(
+            "ID",
+            "VAR",
+            "CHROM",
+            "POS",
+            "REF",
+            "ALT",
+            "GENES",
+            "REF_CASE(a)",
+            "REF_CONTROL(b)",
+            "ALT_CASE(c)",
+            "ALT_CONTROL(d)",
+            "AN_CASE",
+            "AN_CONTROL",
+            "AF_CASE",
+            "AF_CONTROL",
+            "P_VALUE",
+            "ODD_RATIO"));
+    public static final List<String> CHI_SQUARE_COLUMNS = Collections.unmodifiableList(Arrays.asList(
+            "CHI_SQUARE",
+            "CHI_SQUARE_P_VALUE"));
+    public static final List<String> LOGISTIC_REGRESSION_COLUMNS = Collections.unmodifiableList(Arrays.asList(
+            "LOGISTIC_BETA",
+            "LOGISTIC_SE",
+            "LOGISTIC_P_VALUE"));
+
+    private static final int LOGISTIC_REGRESSION_MAX_ITERATIONS = 25;
+    private static final double LOGISTIC_REGRESSION_TOLERANCE = 1e-6;
+
+    private final boolean chiSquare;
+    private final boolean logisticRegression;
+    private final int numCases;
+    private final double[][] covariates;
+
+    /**
+     * Calculator for allele counts only. Logistic regression is disabled.
+     *
+     * @param chiSquare Compute the allelic chi-square test
+     */
+    public GwasTestCalculator(boolean chiSquare) {
+        this.chiSquare = chiSquare;
+        this.logisticRegression = false;
+        this.numCases = 0;
+        this.covariates = null;
+    }
+
+    /**
+     * Calculator with additive logistic regression over the genotype dosages.
+     *
+     * @param chiSquare  Compute the allelic chi-square test
+     * @param numCases   Number of cases. Dosages and covariates list the cases first, then the controls.
+     * @param covariates Covariates of each sample, indexed as [sample][covariate]. May be null.
+     */
+    public GwasTestCalculator(boolean chiSquare, int numCases, double[][] covariates) {
+        this.chiSquare = chiSquare;
+        this.logisticRegression = true;
+        this.numCases = numCases;
+        this.covariates = covariates;
+    }
+
+    public boolean isChiSquare() {
+        return chiSquare;
+    }
+
+    public boolean isLogisticRegression() {
+        return logisticRegression;
+    }
+
+    public List<String> getHeaderColumns() {
+        List<String> columns = new ArrayList<>(COLUMNS);
+        if (chiSquare) {
+            columns.addAll(CHI_SQUARE_COLUMNS);
+        }
+        if (logisticRegression) {
+            columns.addAll(LOGISTIC_REGRESSION_COLUMNS);
+        }
+        return columns;
+    }
+
+    /**
+     * Build the header of the output file.
+     *
+     * @param metadata Key-value pairs written as "##key=value" lines
+     * @return Header lines
+     */
+    public List<String> getHeader(Map<String, ?> metadata) {
+        List<String> header = new ArrayList<>(metadata.size() + 1);
+        for (Map.Entry<String, ?> entry : metadata.entrySet()) {
+            header.add("##" + entry.getKey() + "=" + entry.getValue());
+        }
+        header.add("#" + String.join("\t", getHeaderColumns()));
+        return header;
+    }
+
+    /**
+     * Test a variant from the genotype counts of cases and controls.
+     *
+     * @param variant        Variant
+     * @param annotation     Variant annotation. May be null.
+     * @param caseCounts     Genotype counts of the cases, as {@link PackedGenotypeMatrix#countGenotypes}
+     * @param controlCounts  Genotype counts of the controls, as {@link PackedGenotypeMatrix#countGenotypes}
+     * @param dosages        Alternate allele dosage of each sample, NaN if missing. Required for the logistic regression.
+     * @return TSV line, or null if there are no called alleles
+     */
+    public String test(Variant variant, VariantAnnotation annotation, int[] caseCounts, int[] controlCounts, double[] dosages) {
+        int a = 2 * caseCounts[PackedGenotypeMatrix.HOM_REF] + caseCounts[PackedGenotypeMatrix.HET];
+        int b = 2 * controlCounts[PackedGenotypeMatrix.HOM_REF] + controlCounts[PackedGenotypeMatrix.HET];
+        int c = caseCounts[PackedGenotypeMatrix.HET] + 2 * caseCounts[PackedGenotypeMatrix.HOM_ALT];
+        int d = controlCounts[PackedGenotypeMatrix.HET] + 2 * controlCounts[PackedGenotypeMatrix.HOM_ALT];
+        return test(variant, annotation, a, b, c, d, a + c, b + d, dosages);
+    }
+
+    /**
+     * Test a variant from the allele counts of cases and controls.
+     *
+     * @param variant       Variant
+     * @param annotation    Variant annotation. May be null.
+     * @param a             Reference alleles in cases
+     * @param b             Reference alleles in controls
+     * @param c             Alternate alleles in cases
+     * @param d             Alternate alleles in controls
+     * @param anCase        Total number of alleles in cases
+     * @param anControl     Total number of alleles in controls
+     * @param dosages       Alternate allele dosage of each sample, NaN if missing. Required for the logistic regression.
+     * @return TSV line, or null if there are no called alleles
+     */
+    public String test(Variant variant, VariantAnnotation annotation, int a, int b, int c, int d, int anCase, int anControl,
+                       double[] dosages) {
+        if (a + b + c + d == 0) {
+            return null;
+        }
+        FisherTestResult fisherTestResult = new FisherExactTest().fisherTest(a, b, c, d);
+
+        List<Object> values = new ArrayList<>(COLUMNS.size() + CHI_SQUARE_COLUMNS.size() + LOGISTIC_REGRESSION_COLUMNS.size());
+        values.add(getId(variant, annotation));
+        values.add(variant.toString());
+        values.add(variant.getChromosome());
+        values.add(variant.getStart());
+        values.add(variant.getReference().isEmpty() ? "-" : variant.getReference());
+        values.add(variant.getAlternate().isEmpty() ? "-" : variant.getAlternate());
+        values.add(String.join(",", getGenes(annotation)));
+        values.add(a);
+        values.add(b);
+        values.add(c);
+        values.add(d);
+        values.add(anCase);
+        values.add(anControl);
+        values.add(anCase == 0 ? Double.NaN : ((double) c) / anCase);
+        values.add(anControl == 0 ? Double.NaN : ((double) d) / anControl);
+        values.add(fisherTestResult.getpValue());
+        values.add(fisherTestResult.getOddRatio());
+        if (chiSquare) {
+            double chi2 = chiSquare(a, b, c, d);
+            values.add(chi2);
+            values.add(chiSquarePValue(chi2));
+        }
+        if (logisticRegression) {
+            double[] result = logisticRegression(dosages, numCases, covariates);
+            values.add(result[0]);
+            values.add(result[1]);
+            values.add(result[2]);
+        }
+        return tsv(values.toArray());
+    }
+
+    /**
+     * Pearson's chi-square statistic of the allelic 2x2 contingency table.
+     *
+     * @param a Reference alleles in cases
+     * @param b Reference alleles in controls
+     * @param c Alternate alleles in cases
+     * @param d Alternate alleles in controls
+     * @return Chi-square statistic, or NaN if any marginal is zero
+     */
+    public static double chiSquare(int a, int b, int c, int d) {
+        double n = (double) a + b + c + d;
+        double den = ((double) a + c) * ((double) b + d) * ((double) a + b) * ((double) c + d);
+        if (den == 0) {
+            return Double.NaN;
+        }
+        double diff = (double) a * d - (double) b * c;
+        return n * diff * diff / den;
+    }
+
+    /**
+     * P-value of a chi-square statistic with one degree of freedom.
+     *
+     * @param chi2 Chi-square statistic
+     * @return p-value
+     */
+    public static double chiSquarePValue(double chi2) {
+        if (Double.isNaN(chi2)) {
+            return Double.NaN;
+        }
+        return erfc(Math.sqrt(chi2 / 2));
+    }
+
+    /**
+     * Additive logistic regression of the case/control status over the alternate allele dosage, adjusted by the covariates.
+     * Fitted with Newton-Raphson (IRLS). Samples with missing dosage are discarded.
+     *
+     * @param dosages    Alternate allele dosage of each sample, NaN if missing
+     * @param numCases   Number of cases. The first samples are the cases, the rest are the controls.
+     * @param covariates Covariates of each sample, indexed as [sample][covariate]. May be null.
+     * @return {beta, standard error, Wald test p-value} of the dosage. NaN if the model could not be fitted.
+     */
+    public static double[] logisticRegression(double[] dosages, int numCases, double[][] covariates) {
+        int numCovariates = covariates == null || covariates.length == 0 ? 0 : covariates[0].length;
+        int p = 2 + numCovariates;
+        int n = 0;
+        for (double dosage : dosages) {
+            if (!Double.isNaN(dosage)) {
+                n++;
+            }
+        }
+        double[] failed = new double[]{Double.NaN, Double.NaN, Double.NaN};
+        if (n <= p) {
+            return failed;
+        }
+        double[][] x = new double[n][p];
+        double[] y = new double[n];
+        int row = 0;
+        for (int sample = 0; sample < dosages.length; sample++) {
+            if (Double.isNaN(dosages[sample])) {
+                continue;
+            }
+            x[row][0] = 1;
+            x[row][1] = dosages[sample];
+            for (int i = 0; i < numCovariates; i++) {
+                x[row][2 + i] = covariates[sample][i];
+            }
+            y[row] = sample < numCases ? 1 : 0;
+            row++;
+        }
+
+        double[] beta = new double[p];
+        double[][] inverse = null;
+        for (int iteration = 0; iteration < LOGISTIC_REGRESSION_MAX_ITERATIONS; iteration++) {
+            double[] gradient = new double[p];
+            double[][] hessian = new double[p][p];
+            for (int i = 0; i < n; i++) {
+                double eta = 0;
+                for (int j = 0; j < p; j++) {
+                    eta += x[i][j] * beta[j];
+                }
+                double mu = 1 / (1 + Math.exp(-eta));
+                double w = mu * (1 - mu);
+                double residual = y[i] - mu;
+                for (int j = 0; j < p; j++) {
+                    gradient[j] += x[i][j] * residual;
+                    double wx = w * x[i][j];
+                    for (int k = 0; k <= j; k++) {
+                        hessian[j][k] += wx * x[i][k];
+                    }
+                }
+            }
+            for (int j = 0; j < p; j++) {
+                for (int k = j + 1; k < p; k++) {
+                    hessian[j][k] = hessian[k][j];
+                }
+            }
+            inverse = invert(hessian);
+            if (inverse == null) {
+                return failed;
+            }
+            double maxDelta = 0;
+            for (int j = 0; j < p; j++) {
+                double delta = 0;
+                for (int k = 0; k < p; k++) {
+                    delta += inverse[j][k] * gradient[k];
+                }
+                beta[j] += delta;
+                maxDelta = Math.max(maxDelta, Math.abs(delta));
+            }
+            if (maxDelta < LOGISTIC_REGRESSION_TOLERANCE) {
+                break;
+            }
+        }
+        double se = Math.sqrt(inverse[1][1]);
+        if (Double.isNaN(beta[1]) || Double.isInfinite(beta[1]) || Double.isNaN(se) || se == 0) {
+            return failed;
+        }
+        double pValue = erfc(Math.abs(beta[1] / se) / Math.sqrt(2));
+        return new double[]{beta[1], se, pValue};
+    }
+
+    /**
+     * Complementary error function, with fractional error below 1.2e-7.
+     * See Numerical Recipes in C, 2nd edition, section 6.2.
+     *
+     * @param x value
+     * @return erfc(x)
+     */
+    public static double erfc(double x) {
+        double z = Math.abs(x);
+        double t = 1 / (1 + 0.5 * z);
+        double ans = t * Math.exp(-z * z - 1.26551223 + t * (1.00002368 + t * (0.37409196 + t * (0.09678418
+                + t * (-0.18628806 + t * (0.27886807 + t * (-1.13520398 + t * (1.48851587
+                + t * (-0.82215223 + t * 0.17087277)))))))));
+        return x >= 0 ? ans : 2 - ans;
+    }
+
+    public static String getId(Variant variant, VariantAnnotation annotation) {
+        String id = annotation == null ? null : annotation.getId();
+        if (StringUtils.isEmpty(id)) {
+            id = variant.toString();
+        }
+        return id;
+    }
+
+    public static Set<String> getGenes(VariantAnnotation annotation) {
+        Set<String> genes = new LinkedHashSet<>();
+        if (annotation != null && annotation.getConsequenceTypes() != null) {
+            for (ConsequenceType consequenceType : annotation.getConsequenceTypes()) {
+                if (StringUtils.isNotEmpty(consequenceType.getGeneName())) {
+                    genes.add(consequenceType.getGeneName());
+                }
+            }
+        }
+        if (genes.isEmpty()) {
+            return Collections.singleton(".");
+        }
+        return genes;
+    }
+
+    public static String tsv(Object... objects) {
+        StringJoiner joiner = new StringJoiner("\t");
+        for (Object object : objects) {
+            final String toString;
+            if (object instanceof Double) {
+                if (((Double) object).isNaN() || ((Double) object).isInfinite()) {
+                    toString = "NA";
+                } else {
+                    toString = object.toString();
+                }
+            } else {
+                toString = object.toString();
+            }
+            joiner.add(toString);
+        }
+        return joiner.toString();
+    }
+
+    /**
+     * Invert a symmetric positive definite matrix with Gauss-Jordan elimination and partial pivoting.
+     *
+     * @param matrix Matrix to invert. Not modified.
+     * @return Inverse matrix, or null if singular
+     */
+    private static double[][] invert(double[][] matrix) {
+        int p = matrix.length;
+        double[][] a = new double[p][2 * p];
+        for (int i = 0; i < p; i++) {
+            System.arraycopy(matrix[i], 0, a[i], 0, p);
+            a[i][p + i] = 1;
+        }
+        for (int col = 0; col < p; col++) {
+            int pivot = col;
+            for (int i = col + 1; i < p; i++) {
+                if (Math.abs(a[i][col]) > Math.abs(a[pivot][col])) {
+                    pivot = i;
+                }
+            }
+            if (Math.abs(a[pivot][col]) < 1e-12) {
+                return null;
+            }
+            double[] tmp = a[col];
+            a[col] = a[pivot];
+            a[pivot] = tmp;
+            double factor = a[col][col];
+            for (int j = 0; j < 2 * p; j++) {
+                a[col][j] /= factor;
+            }
+            for (int i = 0; i < p; i++) {
+                if (i != col && a[i][col] != 0) {
+                    double f = a[i][col];
+                    for (int j = 0; j < 2 * p; j++) {
+                        a[i][j] -= f * a[col][j];
+                    }
+                }
+            }
+        }
+        double[][] inverse = new double[p][p];
+        for (int i = 0; i < p; i++) {
+            System.arraycopy(a[i], p, inverse[i], 0, p);
+        }
+        return inverse;
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.variant.stats;
+
+import java.util.Arrays;
+
+/**
+ * Matrix of biallelic genotypes packed in 2 bits per genotype.
+ *
+ * Each row is stored as two bit planes of 64 genotypes per word: the low plane and the high plane.
+ * <ul>
+ *     <li>HOM_REF: low=0, high=0</li>
+ *     <li>HET:     low=1, high=0</li>
+ *     <li>HOM_ALT: low=0, high=1</li>
+ *     <li>MISSING: low=1, high=1</li>
+ * </ul>
+ * Padding bits of the last word are marked as MISSING, so the kernels can work with full words.
+ */
+public class PackedGenotypeMatrix {
+
+    public static final byte HOM_REF = 0;
+    public static final byte HET = 1;
+    public static final byte HOM_ALT = 2;
+    public static final byte MISSING = 3;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int numColumns;
+    private final int numWords;
+    private long[][] low;
+    private long[][] high;
+    private int numRows;
+
+    public PackedGenotypeMatrix(int numColumns) {
+        this(numColumns, INITIAL_CAPACITY);
+    }
+
+    public PackedGenotypeMatrix(int numColumns, int capacity) {
+        this.numColumns = numColumns;
+        this.numWords = numWords(numColumns);
+        this.low = new long[Math.max(1, capacity)][];
+        this.high = new long[Math.max(1, capacity)][];
+        this.numRows = 0;
+    }
+
+    /**
+     * Append a new row.
+     *
+     * @param genotypes Genotype codes of the row, one per column
+     * @return Index of the new row
+     */
+    public int addRow(byte[] genotypes) {
+        if (genotypes.length != numColumns) {
+            throw new IllegalArgumentException("Expected " + numColumns + " genotypes, found " + genotypes.length);
+        }
+        int row = addEmptyRow();
+        for (int column = 0; column < numColumns; column++) {
+            set(row, column, genotypes[column]);
+        }
+        return row;
+    }
+
+    /**
+     * Remove all the rows, keeping the allocated capacity.
+     */
+    public void clear() {
+        Arrays.fill(low, 0, numRows, null);
+        Arrays.fill(high, 0, numRows, null);
+        numRows = 0;
+    }
+
+    /**
+     * Discard the last row.
+     */
+    public void removeLastRow() {
+        if (numRows == 0) {
+            throw new IllegalStateException("Empty matrix");
+        }
+        numRows--;
+        low[numRows] = null;
+        high[numRows] = null;
+    }
+
+    public byte get(int row, int column) {
+        int word = column >>> 6;
+        int bit = column & 63;
+        return (byte) ((low[row][word] >>> bit & 1L) | (high[row][word] >>> bit & 1L) << 1);
+    }
+
+    /**
+     * Build the transposed matrix, e.g. from marker-major to sample-major.
+     *
+     * @return Transposed matrix
+     */
+    public PackedGenotypeMatrix transpose() {
+        PackedGenotypeMatrix transposed = new PackedGenotypeMatrix(numRows, numColumns);
+        for (int column = 0; column < numColumns; column++) {
+            transposed.addEmptyRow();
+        }
+        for (int row = 0; row < numRows; row++) {
+            int targetWord = row >>> 6;
+            int targetBit = row & 63;
+            long[] rowLow = low[row];
+            long[] rowHigh = high[row];
+            for (int column = 0; column < numColumns; column++) {
+                int word = column >>> 6;
+                int bit = column & 63;
+                transposed.low[column][targetWord] |= (rowLow[word] >>> bit & 1L) << targetBit;
+                transposed.high[column][targetWord] |= (rowHigh[word] >>> bit & 1L) << targetBit;
+            }
+        }
+        return transposed;
+    }
+
+    public int getNumRows() {
+        return numRows;
+    }
+
+    public int getNumColumns() {
+        return numColumns;
+    }
+
+    public int getNumWords() {
+        return numWords;
+    }
+
+    public long[] getLow(int row) {
+        return low[row];
+    }
+
+    public long[] getHigh(int row) {
+        return high[row];
+    }
+
+    /**
+     * Count the genotypes of a row.
+     *
+     * @param row    Row
+     * @param counts Array of 4 elements where the counts of HOM_REF, HET, HOM_ALT and MISSING are written
+     * @return the given counts array
+     */
+    public int[] countGenotypes(int row, int[] counts) {
+        int het = 0;
+        int homAlt = 0;
+        int missing = 0;
+        long[] rowLow = low[row];
+        long[] rowHigh = high[row];
+        for (int w = 0; w < numWords; w++) {
+            het += Long.bitCount(rowLow[w] & ~rowHigh[w]);
+            homAlt += Long.bitCount(rowHigh[w] & ~rowLow[w]);
+            missing += Long.bitCount(rowLow[w] & rowHigh[w]);
+        }
+        // Discard padding
+        missing -= numWords * 64 - numColumns;
+        counts[HOM_REF] = numColumns - het - homAlt - missing;
+        counts[HET] = het;
+        counts[HOM_ALT] = homAlt;
+        counts[MISSING] = missing;
+        return counts;
+    }
+
+    /**
+     * Encode a diploid genotype. Genotypes with other alleles than the reference and the main alternate are considered missing.
+     *
+     * @param gt Genotype, e.g. 0/1, 1|1
+     * @return Genotype code
+     */
+    public static byte encode(String gt) {
+        if (gt == null || gt.length() != 3 || (gt.charAt(1) != '/' && gt.charAt(1) != '|')) {
+            return MISSING;
+        }
+        int allele1 = gt.charAt(0) - '0';
+        int allele2 = gt.charAt(2) - '0';
+        if (allele1 < 0 || allele1 > 1 || allele2 < 0 || allele2 > 1) {
+            // Missing or non biallelic
+            return MISSING;
+        }
+        // HOM_REF, HET or HOM_ALT
+        return (byte) (allele1 + allele2);
+    }
+
+    private int addEmptyRow() {
+        if (numRows == low.length) {
+            low = Arrays.copyOf(low, low.length * 2);
+            high = Arrays.copyOf(high, high.length * 2);
+        }
+        long[] rowLow = new long[numWords];
+        long[] rowHigh = new long[numWords];
+        int padding = numWords * 64 - numColumns;
+        if (padding > 0) {
+            long paddingMask = -1L << (64 - padding);
+            rowLow[numWords - 1] = paddingMask;
+            rowHigh[numWords - 1] = paddingMask;
+        }
+        low[numRows] = rowLow;
+        high[numRows] = rowHigh;
+        return numRows++;
+    }
+
+    private void set(int row, int column, byte genotype) {
+        int word = column >>> 6;
+        long mask = 1L << (column & 63);
+        if ((genotype & 1) != 0) {
+            low[row][word] |= mask;
+        } else {
+            low[row][word] &= ~mask;
+        }
+        if ((genotype & 2) != 0) {
+            high[row][word] |= mask;
+        } else {
+            high[row][word] &= ~mask;
+        }
+    }
+
+    private static int numWords(int numColumns) {
+        return (numColumns + 63) >>> 6;
+    }
+}
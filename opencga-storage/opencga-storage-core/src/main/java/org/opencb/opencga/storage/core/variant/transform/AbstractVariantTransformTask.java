@@ -0,0 +1,127 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.variant.transform;
+
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.VariantFileMetadata;
+import org.opencb.biodata.models.variant.metadata.VariantStudyMetadata;
+import org.opencb.biodata.tools.variant.stats.VariantSetStatsCalculator;
+import org.opencb.commons.run.Task;
+import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Common steps of the transform tasks: normalization, stats calculation and malformed variants handling.
+ *
+ * @param <T> Input type. Raw VCF lines.
+ */
+public abstract class AbstractVariantTransformTask<T> implements Task<T, Variant> {
+
+    protected final VariantFileMetadata fileMetadata;
+    protected final VariantStudyMetadata metadata;
+    protected final Task<Variant, Variant> normalizer;
+    protected final VariantSetStatsCalculator variantStatsTask;
+    protected final AtomicLong normTime = new AtomicLong(0);
+    protected final List<BiConsumer<String, RuntimeException>> errorHandlers = new ArrayList<>();
+    protected boolean failOnError = true;
+    private final Logger logger = LoggerFactory.getLogger(AbstractVariantTransformTask.class);
+
+    protected AbstractVariantTransformTask(String studyId, VariantFileMetadata fileMetadata,
+                                           VariantSetStatsCalculator variantStatsTask, Task<Variant, Variant> normalizer) {
+        this.fileMetadata = fileMetadata;
+        this.metadata = fileMetadata.toVariantStudyMetadata(studyId);
+        this.variantStatsTask = variantStatsTask;
+        this.normalizer = normalizer;
+    }
+
+    @Override
+    public void pre() throws Exception {
+        synchronized (variantStatsTask) {
+            variantStatsTask.pre();
+        }
+        if (normalizer != null) {
+            normalizer.pre();
+        }
+    }
+
+    public List<Variant> normalize(List<Variant> variants) {
+        long curr;
+        curr = System.currentTimeMillis();
+        List<Variant> normalizedVariants = new ArrayList<>((int) (variants.size() * 1.1));
+        for (Variant variant : variants) {
+            try {
+                normalizedVariants.addAll(normalizer.apply(Collections.singletonList(variant)));
+            } catch (Exception e) {
+                logger.error("Error parsing variant " + variant);
+                if (e instanceof RuntimeException) {
+                    throw ((RuntimeException) e);
+                } else {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        this.normTime.addAndGet(System.currentTimeMillis() - curr);
+        return normalizedVariants;
+    }
+
+    protected void onError(RuntimeException e, String line) {
+        logger.error("Error '{}' parsing line: '{}'", e.getMessage(), line);
+        for (BiConsumer<String, RuntimeException> handler : errorHandlers) {
+            handler.accept(line, e);
+        }
+        if (failOnError) {
+            logger.info("To ignore parsing errors add '" + VariantStorageOptions.TRANSFORM_FAIL_ON_MALFORMED_VARIANT.key() + "=true'");
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Variant> drain() throws Exception {
+        List<Variant> drain = normalizer.drain();
+        variantStatsTask.apply(drain);
+        return drain;
+    }
+
+    @Override
+    public void post() throws Exception {
+        synchronized (variantStatsTask) {
+            variantStatsTask.post();
+        }
+        if (normalizer != null) {
+            normalizer.post();
+        }
+        logger.debug("Time normalization: " + this.normTime.get());
+    }
+
+    public AbstractVariantTransformTask<T> addMalformedErrorHandler(BiConsumer<String, RuntimeException> handler) {
+        errorHandlers.add(handler);
+        return this;
+    }
+
+    public AbstractVariantTransformTask<T> setFailOnError(boolean failOnError) {
+        this.failOnError = failOnError;
+        return this;
+    }
+
+}
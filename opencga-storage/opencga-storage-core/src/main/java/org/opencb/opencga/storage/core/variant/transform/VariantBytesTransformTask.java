@@ -0,0 +1,121 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.variant.transform;
+
+import htsjdk.variant.vcf.VCFCodec;
+import htsjdk.variant.vcf.VCFHeader;
+import htsjdk.variant.vcf.VCFHeaderVersion;
+import org.opencb.biodata.formats.variant.vcf4.FullVcfCodec;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.VariantFileMetadata;
+import org.opencb.biodata.tools.variant.converters.avro.VariantContextToVariantConverter;
+import org.opencb.biodata.tools.variant.stats.VariantSetStatsCalculator;
+import org.opencb.commons.run.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transform task reading chunks of VCF lines as produced by the
+ * {@link org.opencb.opencga.storage.core.io.plain.LineChunkDataReader}.
+ *
+ * Lines are parsed with the {@link VcfBytesParser}. Lines not supported by this parser are decoded with htsjdk.
+ */
+public class VariantBytesTransformTask extends AbstractVariantTransformTask<ByteBuffer> {
+
+    private final Logger logger = LoggerFactory.getLogger(VariantBytesTransformTask.class);
+    private final VcfBytesParser parser;
+    private final VCFCodec vcfCodec;
+    private final VariantContextToVariantConverter converter;
+    private final AtomicLong parseTime = new AtomicLong(0);
+    private final AtomicLong htsjdkLines = new AtomicLong(0);
+
+    public VariantBytesTransformTask(VCFHeader header, VCFHeaderVersion version,
+                                     String studyId, VariantFileMetadata fileMetadata,
+                                     VariantSetStatsCalculator variantStatsTask, Task<Variant, Variant> normalizer) {
+        super(studyId, fileMetadata, variantStatsTask, normalizer);
+        this.parser = new VcfBytesParser(studyId, fileMetadata.getId(), fileMetadata.getSampleIds());
+
+        this.vcfCodec = new FullVcfCodec();
+        this.vcfCodec.setVCFHeader(header, version);
+        this.converter = new VariantContextToVariantConverter(studyId, fileMetadata.getId(), fileMetadata.getSampleIds());
+    }
+
+    @Override
+    public List<Variant> apply(List<ByteBuffer> batch) {
+        List<Variant> variants = new ArrayList<>();
+        long curr = System.currentTimeMillis();
+        for (ByteBuffer chunk : batch) {
+            byte[] bytes = chunk.array();
+            int position = chunk.arrayOffset() + chunk.position();
+            int limit = chunk.arrayOffset() + chunk.limit();
+            while (position < limit) {
+                int lineEnd = position;
+                while (lineEnd < limit && bytes[lineEnd] != '\n') {
+                    lineEnd++;
+                }
+                parseLine(bytes, position, lineEnd, variants);
+                position = lineEnd + 1;
+            }
+        }
+        this.parseTime.addAndGet(System.currentTimeMillis() - curr);
+
+        List<Variant> normalizedVariants = normalize(variants);
+
+        variantStatsTask.apply(normalizedVariants);
+
+        return normalizedVariants;
+    }
+
+    private void parseLine(byte[] bytes, int start, int end, List<Variant> variants) {
+        if (isBlank(bytes, start, end) || bytes[start] == '#') {
+            return;
+        }
+        try {
+            Variant variant = parser.parse(bytes, start, end - start);
+            if (variant == null) {
+                htsjdkLines.incrementAndGet();
+                String line = new String(bytes, start, end - start, StandardCharsets.UTF_8);
+                variant = converter.convert(vcfCodec.decode(line));
+            }
+            variants.add(variant);
+        } catch (RuntimeException e) {
+            onError(e, new String(bytes, start, end - start, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static boolean isBlank(byte[] bytes, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!Character.isWhitespace(bytes[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void post() throws Exception {
+        super.post();
+        logger.debug("Time bytes2biodata: " + this.parseTime.get());
+        logger.debug("Lines parsed with htsjdk: " + this.htsjdkLines.get());
+    }
+}
@@ -30,12 +30,10 @@ import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.models.variant.VariantFileMetadata;
 import org.opencb.biodata.models.variant.avro.FileEntry;
 import org.opencb.biodata.models.variant.exceptions.NotAVariantException;
-import org.opencb.biodata.models.variant.metadata.VariantStudyMetadata;
 import org.opencb.biodata.tools.variant.converters.avro.VariantContextToVariantConverter;
 import org.opencb.biodata.tools.variant.stats.VariantSetStatsCalculator;
 import org.opencb.commons.run.Task;
 import org.opencb.opencga.core.models.common.GenericRecordAvroJsonMixin;
-import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,66 +44,42 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.function.BiConsumer;
 
 /**
  * Created on 25/02/16.
  *
  * @author Jacobo Coll &lt;jacobo167@gmail.com&gt;
  */
-public class VariantTransformTask implements Task<String, Variant> {
+public class VariantTransformTask extends AbstractVariantTransformTask<String> {
 
     protected final VariantFactory factory;
-    protected final VariantFileMetadata fileMetadata;
     protected boolean includeSrc = false;
 
     protected final Logger logger = LoggerFactory.getLogger(VariantTransformTask.class);
     protected final VCFCodec vcfCodec;
     protected final VariantContextToVariantConverter converter;
-    protected final Task<Variant, Variant> normalizer;
-    protected final VariantSetStatsCalculator variantStatsTask;
     protected final AtomicLong htsConvertTime = new AtomicLong(0);
     protected final AtomicLong biodataConvertTime = new AtomicLong(0);
-    protected final AtomicLong normTime = new AtomicLong(0);
-    protected final List<BiConsumer<String, RuntimeException>> errorHandlers = new ArrayList<>();
-    protected boolean failOnError = true;
-    private VariantStudyMetadata metadata;
 
     public VariantTransformTask(VariantFactory factory,
                                 String studyId, VariantFileMetadata fileMetadata,
                                 VariantSetStatsCalculator variantStatsTask, Task<Variant, Variant> normalizer) {
+        super(studyId, fileMetadata, variantStatsTask, normalizer);
         this.factory = factory;
-        this.fileMetadata = fileMetadata;
-        this.metadata = fileMetadata.toVariantStudyMetadata(studyId);
-        this.variantStatsTask = variantStatsTask;
 
         this.vcfCodec = null;
         this.converter = null;
-        this.normalizer = normalizer;
     }
 
     public VariantTransformTask(VCFHeader header, VCFHeaderVersion version,
                                 String studyId, VariantFileMetadata fileMetadata,
                                 VariantSetStatsCalculator variantStatsTask, Task<Variant, Variant> normalizer) {
-        this.variantStatsTask = variantStatsTask;
+        super(studyId, fileMetadata, variantStatsTask, normalizer);
         this.factory = null;
-        this.fileMetadata = fileMetadata;
-        this.metadata = fileMetadata.toVariantStudyMetadata(studyId);
 
         this.vcfCodec = new FullVcfCodec();
         this.vcfCodec.setVCFHeader(header, version);
         this.converter = new VariantContextToVariantConverter(studyId, fileMetadata.getId(), fileMetadata.getSampleIds());
-        this.normalizer = normalizer;
-    }
-
-    @Override
-    public void pre() throws Exception {
-        synchronized (variantStatsTask) {
-            variantStatsTask.pre();
-        }
-        if (normalizer != null) {
-            normalizer.pre();
-        }
     }
 
     @Override
@@ -177,55 +151,11 @@ public class VariantTransformTask implements Task<String, Variant> {
         return transformedVariants;
     }
 
-    public List<Variant> normalize(List<Variant> variants) {
-        long curr;
-        curr = System.currentTimeMillis();
-        List<Variant> normalizedVariants = new ArrayList<>((int) (variants.size() * 1.1));
-        for (Variant variant : variants) {
-            try {
-                normalizedVariants.addAll(normalizer.apply(Collections.singletonList(variant)));
-            } catch (Exception e) {
-                logger.error("Error parsing variant " + variant);
-                if (e instanceof RuntimeException) {
-                    throw ((RuntimeException) e);
-                } else {
-                    throw new IllegalStateException(e);
-                }
-            }
-        }
-        this.normTime.addAndGet(System.currentTimeMillis() - curr);
-        return normalizedVariants;
-    }
-
-    private void onError(RuntimeException e, String line) {
-        logger.error("Error '{}' parsing line: '{}'", e.getMessage(), line);
-        for (BiConsumer<String, RuntimeException> handler : errorHandlers) {
-            handler.accept(line, e);
-        }
-        if (failOnError) {
-            logger.info("To ignore parsing errors add '" + VariantStorageOptions.TRANSFORM_FAIL_ON_MALFORMED_VARIANT.key() + "=true'");
-            throw e;
-        }
-    }
-
-    @Override
-    public List<Variant> drain() throws Exception {
-        List<Variant> drain = normalizer.drain();
-        variantStatsTask.apply(drain);
-        return drain;
-    }
-
     @Override
     public void post() throws Exception {
-        synchronized (variantStatsTask) {
-            variantStatsTask.post();
-        }
-        if (normalizer != null) {
-            normalizer.post();
-        }
+        super.post();
         logger.debug("Time txt2hts: " + this.htsConvertTime.get());
         logger.debug("Time hts2biodata: " + this.biodataConvertTime.get());
-        logger.debug("Time normalization: " + this.normTime.get());
     }
 
     public static void writeVariantFileMetadata(VariantFileMetadata fileMetadata, OutputStream outputMetadataStream) {
@@ -248,14 +178,4 @@ public class VariantTransformTask implements Task<String, Variant> {
         return this;
     }
 
-    public VariantTransformTask addMalformedErrorHandler(BiConsumer<String, RuntimeException> handler) {
-        errorHandlers.add(handler);
-        return this;
-    }
-
-    public VariantTransformTask setFailOnError(boolean failOnError) {
-        this.failOnError = failOnError;
-        return this;
-    }
-
 }
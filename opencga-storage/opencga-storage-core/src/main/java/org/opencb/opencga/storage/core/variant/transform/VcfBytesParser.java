@@ -0,0 +1,356 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.variant.transform;
+
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.VariantBuilder;
+import org.opencb.biodata.models.variant.avro.SampleEntry;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Parses VCF data lines directly from a byte array, without decoding the whole line into a String,
+ * and without building the intermediate htsjdk VariantContext.
+ *
+ * Only the simple (and most common) records are parsed. Records that require special treatment (symbolic alleles,
+ * breakends, spanning deletions, missing alternates, END attributes...) are not supported, and {@link #parse} returns null.
+ * For those records, the caller should fall back to the htsjdk parser.
+ *
+ * This class is not thread safe. Column offsets and short values are reused between lines.
+ */
+public class VcfBytesParser {
+
+    private static final int FIXED_COLUMNS = 8;
+    private static final int MAX_SHORT_VALUES_CACHE = 10000;
+    private static final String MISSING = ".";
+
+    private final String studyId;
+    private final String fileId;
+    private final LinkedHashMap<String, Integer> samplesPosition;
+    private final int numSamples;
+    private final int expectedColumns;
+
+    // Offsets of each column in the line. Reused between lines
+    private final int[] columnStart;
+    private final int[] columnEnd;
+
+    // Values that usually repeat between lines
+    private byte[] lastChromosomeBytes = new byte[0];
+    private String lastChromosome;
+    private byte[] lastFormatBytes = new byte[0];
+    private String[] lastFormat;
+    private final Map<Integer, String> shortValues = new HashMap<>();
+
+    public VcfBytesParser(String studyId, String fileId, List<String> sampleIds) {
+        this.studyId = studyId;
+        this.fileId = fileId;
+        this.samplesPosition = new LinkedHashMap<>();
+        for (String sampleId : sampleIds) {
+            samplesPosition.put(sampleId, samplesPosition.size());
+        }
+        this.numSamples = sampleIds.size();
+        if (numSamples == 0) {
+            expectedColumns = FIXED_COLUMNS;
+        } else {
+            expectedColumns = FIXED_COLUMNS + 1 + numSamples;
+        }
+        columnStart = new int[expectedColumns];
+        columnEnd = new int[expectedColumns];
+    }
+
+    /**
+     * Parse a VCF data line.
+     *
+     * @param line   Buffer with the line
+     * @param offset Start of the line in the buffer
+     * @param length Length of the line, excluding the line break
+     * @return Parsed variant, or null if the line is not supported by this parser.
+     * @throws IllegalArgumentException if the line is malformed
+     */
+    public Variant parse(byte[] line, int offset, int length) {
+        int end = offset + length;
+        if (end > offset && line[end - 1] == '\r') {
+            end--;
+        }
+        tokenize(line, offset, end);
+
+        String reference = alleles(line, columnStart[3], columnEnd[3], null);
+        if (reference == null) {
+            return null;
+        }
+        List<String> alternates = new ArrayList<>(1);
+        if (alleles(line, columnStart[4], columnEnd[4], alternates) == null) {
+            return null;
+        }
+        if (hasEndAttribute(line, columnStart[7], columnEnd[7])) {
+            return null;
+        }
+
+        String chromosome = chromosome(line, columnStart[0], columnEnd[0]);
+        int start = parseInt(line, columnStart[1], columnEnd[1]);
+
+        VariantBuilder builder = Variant.newBuilder()
+                .setChromosome(chromosome)
+                .setStart(start)
+                .setEnd(start + reference.length() - 1)
+                .setReference(reference)
+                .setAlternates(alternates)
+                .setStudyId(studyId)
+                .setFileId(fileId)
+                .setQuality(string(line, columnStart[5], columnEnd[5]))
+                .setFilter(string(line, columnStart[6], columnEnd[6]));
+
+        addInfo(builder, line, columnStart[7], columnEnd[7]);
+
+        if (numSamples > 0) {
+            String[] format = format(line, columnStart[8], columnEnd[8]);
+            List<SampleEntry> samples = new ArrayList<>(numSamples);
+            for (int i = 0; i < numSamples; i++) {
+                int column = FIXED_COLUMNS + 1 + i;
+                samples.add(new SampleEntry(null, null, sampleData(line, columnStart[column], columnEnd[column], format.length)));
+            }
+            builder.setSampleDataKeys(format)
+                    .setSamplesPosition(samplesPosition)
+                    .setSamples(samples);
+        }
+
+        Variant variant = builder.build();
+        variant.setIds(ids(line, columnStart[2], columnEnd[2]));
+        return variant;
+    }
+
+    private void tokenize(byte[] line, int start, int end) {
+        int column = 0;
+        columnStart[0] = start;
+        for (int i = start; i < end; i++) {
+            if (line[i] == '\t') {
+                if (column + 1 == expectedColumns) {
+                    throw new IllegalArgumentException("Unexpected number of columns. Expected " + expectedColumns);
+                }
+                columnEnd[column] = i;
+                column++;
+                columnStart[column] = i + 1;
+            }
+        }
+        columnEnd[column] = end;
+        if (column + 1 != expectedColumns) {
+            throw new IllegalArgumentException("Unexpected number of columns. Expected " + expectedColumns
+                    + ", found " + (column + 1));
+        }
+    }
+
+    /**
+     * Read a list of comma separated alleles. Only plain alleles, with bases A, C, G, T or N, are accepted.
+     *
+     * @param line  Line
+     * @param start Start of the column
+     * @param end   End of the column
+     * @param list  List where to add the alleles. If null, only one allele is accepted
+     * @return The last allele read, or null if any of the alleles is not supported.
+     */
+    private String alleles(byte[] line, int start, int end, List<String> list) {
+        String allele = null;
+        int alleleStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || line[i] == ',') {
+                if (i == alleleStart || (list == null && i != end)) {
+                    return null;
+                }
+                allele = shortString(line, alleleStart, i);
+                if (list != null) {
+                    list.add(allele);
+                }
+                alleleStart = i + 1;
+            } else {
+                switch (line[i]) {
+                    case 'A':
+                    case 'C':
+                    case 'G':
+                    case 'T':
+                    case 'N':
+                        break;
+                    default:
+                        return null;
+                }
+            }
+        }
+        return allele;
+    }
+
+    private boolean hasEndAttribute(byte[] line, int start, int end) {
+        int keyStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || line[i] == ';') {
+                if (i - keyStart >= 3 && line[keyStart] == 'E' && line[keyStart + 1] == 'N' && line[keyStart + 2] == 'D'
+                        && (i - keyStart == 3 || line[keyStart + 3] == '=')) {
+                    return true;
+                }
+                keyStart = i + 1;
+            }
+        }
+        return false;
+    }
+
+    private void addInfo(VariantBuilder builder, byte[] line, int start, int end) {
+        if (isMissing(line, start, end)) {
+            return;
+        }
+        int keyStart = start;
+        int equals = -1;
+        for (int i = start; i <= end; i++) {
+            if (i == end || line[i] == ';') {
+                if (i > keyStart) {
+                    if (equals < 0) {
+                        // Flag attribute
+                        builder.addFileData(string(line, keyStart, i), "true");
+                    } else {
+                        builder.addFileData(string(line, keyStart, equals), string(line, equals + 1, i));
+                    }
+                }
+                keyStart = i + 1;
+                equals = -1;
+            } else if (line[i] == '=' && equals < 0) {
+                equals = i;
+            }
+        }
+    }
+
+    private List<String> ids(byte[] line, int start, int end) {
+        if (isMissing(line, start, end)) {
+            return Collections.emptyList();
+        }
+        List<String> ids = new ArrayList<>(1);
+        int idStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || line[i] == ';') {
+                if (i > idStart) {
+                    ids.add(string(line, idStart, i));
+                }
+                idStart = i + 1;
+            }
+        }
+        return ids;
+    }
+
+    private String[] format(byte[] line, int start, int end) {
+        if (!equals(lastFormatBytes, line, start, end)) {
+            lastFormatBytes = Arrays.copyOfRange(line, start, end);
+            List<String> keys = new ArrayList<>();
+            int keyStart = start;
+            for (int i = start; i <= end; i++) {
+                if (i == end || line[i] == ':') {
+                    keys.add(string(line, keyStart, i));
+                    keyStart = i + 1;
+                }
+            }
+            lastFormat = keys.toArray(new String[0]);
+        }
+        return lastFormat;
+    }
+
+    private List<String> sampleData(byte[] line, int start, int end, int numKeys) {
+        List<String> data = new ArrayList<>(numKeys);
+        int valueStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || line[i] == ':') {
+                if (data.size() == numKeys) {
+                    throw new IllegalArgumentException("Sample data with more fields than the FORMAT column");
+                }
+                data.add(shortString(line, valueStart, i));
+                valueStart = i + 1;
+            }
+        }
+        // Missing trailing fields
+        while (data.size() < numKeys) {
+            data.add(MISSING);
+        }
+        return data;
+    }
+
+    private String chromosome(byte[] line, int start, int end) {
+        if (!equals(lastChromosomeBytes, line, start, end)) {
+            lastChromosomeBytes = Arrays.copyOfRange(line, start, end);
+            lastChromosome = string(line, start, end);
+        }
+        return lastChromosome;
+    }
+
+    /**
+     * Decode short values (up to 3 bytes) using a cache. Most of the genotypes (0/0, 0|1, ./.), depths and qualities fit here,
+     * so the same String instances are shared by all the variants.
+     *
+     * @param line  Line
+     * @param start Start of the value
+     * @param end   End of the value
+     * @return Decoded String
+     */
+    private String shortString(byte[] line, int start, int end) {
+        int length = end - start;
+        if (length == 0 || length > 3) {
+            return string(line, start, end);
+        }
+        int key = length;
+        for (int i = start; i < end; i++) {
+            key = (key << 8) | (line[i] & 0xFF);
+        }
+        String value = shortValues.get(key);
+        if (value == null) {
+            value = string(line, start, end);
+            if (shortValues.size() < MAX_SHORT_VALUES_CACHE) {
+                shortValues.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    private static int parseInt(byte[] line, int start, int end) {
+        if (start == end) {
+            throw new IllegalArgumentException("Missing position");
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = line[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("Invalid position '" + string(line, start, end) + "'");
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static boolean isMissing(byte[] line, int start, int end) {
+        return start == end || (end - start == 1 && line[start] == '.');
+    }
+
+    private static boolean equals(byte[] bytes, byte[] line, int start, int end) {
+        if (bytes.length != end - start) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] != line[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String string(byte[] line, int start, int end) {
+        return new String(line, start, end - start, StandardCharsets.UTF_8);
+    }
+
+}
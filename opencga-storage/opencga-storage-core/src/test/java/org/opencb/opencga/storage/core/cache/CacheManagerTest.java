@@ -0,0 +1,209 @@
+package org.opencb.opencga.storage.core.cache;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.commons.datastore.core.DataResult;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.core.response.VariantQueryResult;
+import org.opencb.opencga.storage.core.config.CacheConfiguration;
+
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class CacheManagerTest {
+
+    private CacheConfiguration configuration;
+    private LocalCacheStore store;
+    private CacheManager cacheManager;
+
+    @Before
+    public void setUp() throws Exception {
+        configuration = new CacheConfiguration()
+                .setActive(true)
+                .setSlowThreshold(10)
+                .setMaxResultSize(100)
+                .setMaxResults(1000);
+        store = new LocalCacheStore();
+        cacheManager = new CacheManager(configuration, store);
+    }
+
+    @Test
+    public void testGetSet() {
+        DataResult<String> result = result(10);
+        assertNull(cacheManager.get("key"));
+        cacheManager.set("key", result, 100, result.getNumResults());
+        DataResult<String> cached = cacheManager.get("key");
+        assertNotSame(result, cached);
+        assertEquals(result.getResults(), cached.getResults());
+        assertEquals(result.getNumMatches(), cached.getNumMatches());
+
+        assertEquals(1L, cacheManager.getStats().getLong("localHits"));
+        assertEquals(1L, cacheManager.getStats().getLong("misses"));
+        assertEquals(1L, cacheManager.getStats().getLong("puts"));
+    }
+
+    @Test
+    public void testSkipFastOrLargeResults() {
+        cacheManager.set("fast", result(10), 1, 10);
+        cacheManager.set("large", result(500), 100, 500);
+        assertNull(cacheManager.get("fast"));
+        assertNull(cacheManager.get("large"));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void testPromoteFromStore() {
+        DataResult<String> result = result(10);
+        cacheManager.set("key", result, 100, result.getNumResults());
+
+        // New instance, sharing the same store
+        CacheManager other = new CacheManager(configuration, store);
+        assertEquals(result.getResults(), other.<DataResult<String>>get("key").getResults());
+        assertEquals(result.getResults(), other.<DataResult<String>>get("key").getResults());
+        assertEquals(1L, other.getStats().getLong("storeHits"));
+        assertEquals(1L, other.getStats().getLong("localHits"));
+    }
+
+    @Test
+    public void testCopyVariantQueryResult() {
+        List<Variant> variants = new ArrayList<>(Arrays.asList(new Variant("1:100:A:C"), new Variant("1:200:G:T")));
+        Map<String, List<String>> samples = Collections.singletonMap("s1", Arrays.asList("S1", "S2"));
+        VariantQueryResult<Variant> result = new VariantQueryResult<>(10, 2, 20, Collections.emptyList(), variants, samples, "storage");
+        cacheManager.set("key", result, 100, result.getNumResults());
+
+        // Modify the original result after caching it
+        variants.get(0).setNames(Collections.singletonList("rs1"));
+        result.setSource("other");
+        variants.remove(1);
+
+        VariantQueryResult<Variant> cached = cacheManager.get("key");
+        assertNotSame(result, cached);
+        assertEquals(2, cached.getNumResults());
+        assertEquals(20, cached.getNumMatches());
+        assertEquals(Arrays.asList("1:100:A:C", "1:200:G:T"), variantIds(cached));
+        assertNotEquals(Collections.singletonList("rs1"), cached.first().getNames());
+        assertEquals("storage", cached.getSource());
+        assertEquals(samples, cached.getSamples());
+        assertEquals(2, cached.getNumSamples().intValue());
+
+        // Modify the returned result
+        cached.first().setNames(Collections.singletonList("rs1"));
+        cached.getResults().remove(1);
+        cached.setSource("other");
+        cached.getSamples().get("s1").set(0, "S3");
+
+        VariantQueryResult<Variant> cached2 = cacheManager.get("key");
+        assertNotSame(cached, cached2);
+        assertEquals(Arrays.asList("1:100:A:C", "1:200:G:T"), variantIds(cached2));
+        assertNotEquals(Collections.singletonList("rs1"), cached2.first().getNames());
+        assertEquals("storage", cached2.getSource());
+        assertEquals(Arrays.asList("S1", "S2"), cached2.getSamples().get("s1"));
+    }
+
+    @Test
+    public void testStoreRetry() throws Exception {
+        FailingCacheStore store = new FailingCacheStore();
+        CacheManager cacheManager = new CacheManager(configuration, store);
+        cacheManager.setStoreRetryDelay(200, 1000);
+
+        store.fail = true;
+        cacheManager.set("key1", result(10), 100, 10);
+        assertEquals(1, store.calls);
+        assertEquals(1L, cacheManager.getStats().getLong("storeErrors"));
+        assertFalse(cacheManager.getStats().getBoolean("storeAlive"));
+
+        // Store not used until the retry delay
+        store.fail = false;
+        cacheManager.set("key2", result(10), 100, 10);
+        assertNull(cacheManager.get("missing"));
+        assertEquals(1, store.calls);
+        assertEquals(0, store.size());
+
+        Thread.sleep(300);
+        cacheManager.set("key3", result(10), 100, 10);
+        assertEquals(2, store.calls);
+        assertEquals(1, store.size());
+        assertTrue(cacheManager.getStats().getBoolean("storeAlive"));
+        assertEquals(1L, cacheManager.getStats().getLong("storeErrors"));
+
+        // Local cache still works while the store is failing
+        store.fail = true;
+        assertNull(cacheManager.get("missing"));
+        assertNotNull(cacheManager.get("key1"));
+        assertEquals(2L, cacheManager.getStats().getLong("storeErrors"));
+    }
+
+    @Test
+    public void testEviction() {
+        CacheManager cacheManager = new CacheManager(configuration, null);
+        for (int i = 0; i < 100; i++) {
+            cacheManager.set("key" + i, result(50), 100, 50);
+        }
+        assertTrue(cacheManager.getStats().getLong("evictions") > 0);
+        assertTrue(cacheManager.getStats().getLong("size") * 51 <= configuration.getMaxResults());
+    }
+
+    @Test
+    public void testInactive() {
+        configuration.setActive(false);
+        cacheManager.set("key", result(10), 100, 10);
+        assertNull(cacheManager.get("key"));
+    }
+
+    @Test
+    public void testCreateKey() {
+        Query query1 = new Query("region", "1:100-200").append("gene", Arrays.asList("BRCA2", "TP53")).append("study", "");
+        Query query2 = new Query("gene", "BRCA2,TP53").append("region", "1:100-200");
+        QueryOptions options1 = new QueryOptions(QueryOptions.LIMIT, 10);
+        QueryOptions options2 = new QueryOptions(QueryOptions.LIMIT, 10).append(CacheManager.CACHE, true);
+
+        String key = cacheManager.createKey("var", query1, options1, 1);
+        assertEquals(key, cacheManager.createKey("var", query2, options2, 1));
+        // Different data version
+        assertNotEquals(key, cacheManager.createKey("var", query1, options1, 2));
+        // Different options
+        assertNotEquals(key, cacheManager.createKey("var", query1, new QueryOptions(QueryOptions.LIMIT, 20), 1));
+        // Different type
+        assertNotEquals(key, cacheManager.createKey("aln", query1, options1, 1));
+    }
+
+    private static List<String> variantIds(DataResult<Variant> result) {
+        List<String> ids = new ArrayList<>();
+        for (Variant variant : result.getResults()) {
+            ids.add(variant.toString());
+        }
+        return ids;
+    }
+
+    private static DataResult<String> result(int numResults) {
+        return new DataResult<>(0, Collections.emptyList(), numResults, Collections.nCopies(numResults, "v"), numResults);
+    }
+
+    private static class FailingCacheStore extends LocalCacheStore {
+        private boolean fail;
+        private int calls;
+
+        @Override
+        public Object get(String key) {
+            check();
+            return super.get(key);
+        }
+
+        @Override
+        public void put(String key, Object value, long ttlMillis) {
+            check();
+            super.put(key, value, ttlMillis);
+        }
+
+        private void check() {
+            calls++;
+            if (fail) {
+                throw new IllegalStateException(new IOException("Mock connection error"));
+            }
+        }
+    }
+}
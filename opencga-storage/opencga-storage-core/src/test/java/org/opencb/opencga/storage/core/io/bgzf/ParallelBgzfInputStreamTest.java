@@ -0,0 +1,98 @@
+package org.opencb.opencga.storage.core.io.bgzf;
+
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.opencb.opencga.storage.core.io.plain.StringDataReader;
+
+import java.io.*;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+public class ParallelBgzfInputStreamTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private List<String> lines;
+    private File bgzfFile;
+    private File gzipFile;
+
+    @Before
+    public void setUp() throws Exception {
+        lines = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            lines.add("22\t" + (16050000 + i) + "\trs" + i + "\tA\tC\t100\tPASS\tAC=1\tGT\t0|1\t1|1\t0|0");
+        }
+        bgzfFile = temporaryFolder.newFile("file.vcf.gz");
+        try (Writer writer = new OutputStreamWriter(new BlockCompressedOutputStream(bgzfFile))) {
+            for (String line : lines) {
+                writer.write(line);
+                writer.write('\n');
+            }
+        }
+        gzipFile = temporaryFolder.newFile("file.gzip.vcf.gz");
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(gzipFile)))) {
+            for (String line : lines) {
+                writer.write(line);
+                writer.write('\n');
+            }
+        }
+    }
+
+    @Test
+    public void testIsBgzf() throws IOException {
+        try (InputStream is = new BufferedInputStream(new FileInputStream(bgzfFile))) {
+            assertTrue(ParallelBgzfInputStream.isBgzf(is));
+            // Position not modified
+            assertEquals(31, is.read());
+        }
+        try (InputStream is = new BufferedInputStream(new FileInputStream(gzipFile))) {
+            assertFalse(ParallelBgzfInputStream.isBgzf(is));
+        }
+    }
+
+    @Test
+    public void testRead() throws IOException {
+        byte[] expected;
+        try (InputStream is = new GZIPInputStream(new FileInputStream(bgzfFile))) {
+            expected = IOUtils.toByteArray(is);
+        }
+        for (int numThreads : new int[]{1, 2, 4}) {
+            try (ParallelBgzfInputStream is = new ParallelBgzfInputStream(new FileInputStream(bgzfFile), numThreads, 3)) {
+                assertArrayEquals(expected, IOUtils.toByteArray(is));
+                assertEquals(expected.length, is.getUncompressedBytes());
+                assertEquals(bgzfFile.length(), is.getCompressedBytes());
+            }
+        }
+    }
+
+    @Test
+    public void testStringDataReader() {
+        checkStringDataReader(bgzfFile.toPath());
+        checkStringDataReader(gzipFile.toPath());
+    }
+
+    private void checkStringDataReader(Path path) {
+        StringDataReader reader = new StringDataReader(path).setDecompressionThreads(4);
+        reader.open();
+        reader.pre();
+        List<String> readLines = new ArrayList<>(lines.size());
+        List<String> batch;
+        do {
+            batch = reader.read(1000);
+            readLines.addAll(batch);
+        } while (!batch.isEmpty());
+        reader.post();
+        reader.close();
+        assertEquals(lines, readLines);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.io.fasta;
+
+import htsjdk.samtools.reference.FastaSequenceIndex;
+import htsjdk.samtools.reference.FastaSequenceIndexEntry;
+import htsjdk.samtools.reference.ReferenceSequenceFile;
+import htsjdk.samtools.reference.ReferenceSequenceFileFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.opencb.opencga.storage.core.variant.VariantStorageBaseTest.getResourceUri;
+
+public class ReferenceSequenceProviderTest {
+
+    private Path fasta;
+    private ReferenceSequenceFile expected;
+    private Map<String, Long> lengths;
+
+    @Before
+    public void setUp() throws Exception {
+        fasta = Paths.get(getResourceUri("reference/homo_sapiens_grch38_small.fa.gz"));
+        getResourceUri("reference/homo_sapiens_grch38_small.fa.gz.fai");
+        getResourceUri("reference/homo_sapiens_grch38_small.fa.gz.gzi");
+        expected = ReferenceSequenceFileFactory.getReferenceSequenceFile(fasta);
+        lengths = new LinkedHashMap<>();
+        for (FastaSequenceIndexEntry entry : new FastaSequenceIndex(Paths.get(fasta + ".fai"))) {
+            lengths.put(entry.getContig(), entry.getSize());
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        expected.close();
+    }
+
+    @Test
+    public void testChromosomes() throws Exception {
+        try (ReferenceSequenceProvider provider = new ReferenceSequenceProvider(fasta)) {
+            assertEquals(new ArrayList<>(lengths.keySet()), provider.getChromosomes());
+            assertEquals(16569, provider.getLength("MT"));
+        }
+    }
+
+    @Test
+    public void testSorted() throws Exception {
+        try (ReferenceSequenceProvider provider = new ReferenceSequenceProvider(
+                ReferenceSequenceFileFactory.getReferenceSequenceFile(fasta), lengths, 1000, 100, 4)) {
+            for (String chromosome : Arrays.asList("1", "2", "MT")) {
+                for (int start = 1; start < 20000; start += 7) {
+                    check(provider, chromosome, start - 1, start + 1);
+                }
+            }
+            // Each region of the reference is read only once
+            assertTrue(provider.getWindowLoads() <= 3 * 21);
+            assertEquals(0, provider.getBlockLoads());
+        }
+    }
+
+    @Test
+    public void testUnsorted() throws Exception {
+        Random random = new Random(0);
+        List<String> chromosomes = Arrays.asList("1", "2", "MT");
+        try (ReferenceSequenceProvider provider = new ReferenceSequenceProvider(
+                ReferenceSequenceFileFactory.getReferenceSequenceFile(fasta), lengths, 1000, 100, 4)) {
+            for (int i = 0; i < 5000; i++) {
+                String chromosome = chromosomes.get(random.nextInt(chromosomes.size()));
+                int start = 1 + random.nextInt(16000);
+                check(provider, chromosome, start, start + random.nextInt(300));
+            }
+            assertTrue(provider.getBlockLoads() > 0);
+        }
+    }
+
+    @Test
+    public void testBounds() throws Exception {
+        try (ReferenceSequenceProvider provider = new ReferenceSequenceProvider(fasta)) {
+            assertEquals(sequence("MT", 1, 3), provider.getSequence("MT", -1, 3));
+            assertEquals(sequence("MT", 16560, 16569), provider.getSequence("MT", 16560, 16600));
+            assertEquals("", provider.getSequence("MT", 20000, 20002));
+            try {
+                provider.getSequence("chrUnknown", 1, 3);
+                fail();
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().contains("chrUnknown"));
+            }
+        }
+    }
+
+    private void check(ReferenceSequenceProvider provider, String chromosome, long start, long end) {
+        long length = lengths.get(chromosome);
+        if (start > length) {
+            assertEquals("", provider.getSequence(chromosome, start, end));
+        } else {
+            assertEquals(sequence(chromosome, Math.max(1, start), Math.min(length, end)), provider.getSequence(chromosome, start, end));
+        }
+    }
+
+    private String sequence(String chromosome, long start, long end) {
+        return new String(expected.getSubsequenceAt(chromosome, start, end).getBases());
+    }
+}
@@ -4,6 +4,8 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class MetadataCacheTest {
 
@@ -30,4 +32,53 @@ public class MetadataCacheTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testBounded() {
+        AtomicInteger calls = new AtomicInteger();
+        MetadataCache<Integer, String> cache = new MetadataCache<>((study, id) -> {
+            calls.incrementAndGet();
+            return study + "_" + id;
+        }, null, 100, () -> 0);
+        Assert.assertEquals(128, cache.capacity());
+
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals("1_" + i, cache.get(1, i));
+            Assert.assertEquals("2_" + i, cache.get(2, i));
+        }
+        Assert.assertEquals(2000, calls.get());
+
+        // Last value is still in the cache
+        Assert.assertEquals("2_999", cache.get(2, 999));
+        Assert.assertEquals(2000, calls.get());
+    }
+
+    @Test
+    public void testVersion() {
+        AtomicInteger calls = new AtomicInteger();
+        AtomicLong version = new AtomicLong();
+        MetadataCache<String, Integer> cache = new MetadataCache<>((study, id) -> calls.incrementAndGet(), null, 100,
+                studyId -> studyId == 1 ? version.get() : 0);
+
+        Assert.assertEquals(1, cache.get(1, "a").intValue());
+        Assert.assertEquals(1, cache.get(1, "a").intValue());
+        Assert.assertEquals(2, cache.get(2, "a").intValue());
+
+        // Only the values from the modified study are invalidated
+        version.incrementAndGet();
+        Assert.assertEquals(3, cache.get(1, "a").intValue());
+        Assert.assertEquals(3, cache.get(1, "a").intValue());
+        Assert.assertEquals(2, cache.get(2, "a").intValue());
+    }
+
+    @Test
+    public void testInvalidValue() {
+        AtomicInteger calls = new AtomicInteger();
+        MetadataCache<Integer, Boolean> cache = new MetadataCache<>((study, id) -> calls.incrementAndGet() > 1);
+
+        Assert.assertFalse(cache.get(1, 1, false));
+        Assert.assertTrue(cache.get(1, 1, false));
+        Assert.assertTrue(cache.get(1, 1, false));
+        Assert.assertEquals(2, calls.get());
+    }
+
+}
@@ -98,6 +98,56 @@ public abstract class VariantStorageMetadataManagerTest extends VariantStorageBa
 
     }
 
+    @Test
+    public void testCacheInvalidatedAfterBatchUpdate() throws StorageEngineException {
+        StudyMetadata study = metadataManager.createStudy("study");
+        StudyMetadata study2 = metadataManager.createStudy("study2");
+        int fileId = metadataManager.registerFile(study.getId(), "file.txt", Arrays.asList("s1", "s2"));
+        int fileId2 = metadataManager.registerFile(study2.getId(), "file.txt", Arrays.asList("s1", "s2"));
+        Integer sampleId = metadataManager.getSampleId(study.getId(), "s1");
+        Integer sampleId2 = metadataManager.getSampleId(study2.getId(), "s1");
+
+        // Populate the caches
+        Assert.assertFalse(metadataManager.isFileIndexed(study.getId(), fileId));
+        Assert.assertFalse(metadataManager.isSampleIndexed(study.getId(), sampleId));
+        Assert.assertFalse(metadataManager.isFileIndexed(study2.getId(), fileId2));
+        Assert.assertFalse(metadataManager.isSampleIndexed(study2.getId(), sampleId2));
+
+        metadataManager.addIndexedFiles(study.getId(), Collections.singletonList(fileId));
+        Assert.assertTrue(metadataManager.isFileIndexed(study.getId(), fileId));
+        Assert.assertTrue(metadataManager.isSampleIndexed(study.getId(), sampleId));
+        Assert.assertFalse(metadataManager.isFileIndexed(study2.getId(), fileId2));
+        Assert.assertFalse(metadataManager.isSampleIndexed(study2.getId(), sampleId2));
+
+        metadataManager.removeIndexedFiles(study.getId(), Collections.singletonList(fileId));
+        Assert.assertFalse(metadataManager.isFileIndexed(study.getId(), fileId));
+        Assert.assertFalse(metadataManager.isSampleIndexed(study.getId(), sampleId));
+
+        metadataManager.updateSampleMetadata(study2.getId(), sampleId2, s -> s.setIndexStatus(TaskMetadata.Status.READY));
+        Assert.assertTrue(metadataManager.isSampleIndexed(study2.getId(), sampleId2));
+    }
+
+    @Test
+    public void testDataVersion() throws StorageEngineException {
+        StudyMetadata study = metadataManager.createStudy("study");
+        StudyMetadata study2 = metadataManager.createStudy("study2");
+        long version = metadataManager.getDataVersion(study.getId());
+        long version2 = metadataManager.getDataVersion(study2.getId());
+        long combinedVersion = metadataManager.getDataVersion(Arrays.asList(study.getId(), study2.getId()));
+
+        // Only modifies the version of the study
+        metadataManager.increaseDataVersion(study.getId());
+        Assert.assertNotEquals(version, metadataManager.getDataVersion(study.getId()));
+        Assert.assertEquals(version2, metadataManager.getDataVersion(study2.getId()));
+        Assert.assertNotEquals(combinedVersion, metadataManager.getDataVersion(Arrays.asList(study.getId(), study2.getId())));
+
+        // Modifies the version of all studies
+        version = metadataManager.getDataVersion(study.getId());
+        metadataManager.increaseDataVersion(null);
+        Assert.assertNotEquals(version, metadataManager.getDataVersion(study.getId()));
+        Assert.assertNotEquals(version2, metadataManager.getDataVersion(study2.getId()));
+    }
+
     public List<String> getTasks(StudyMetadata study, List<TaskMetadata.Status> status) {
         return Arrays.stream(Iterators.toArray(metadataManager.taskIterator(study.getId(), status), TaskMetadata.class))
                 .map(TaskMetadata::getName)
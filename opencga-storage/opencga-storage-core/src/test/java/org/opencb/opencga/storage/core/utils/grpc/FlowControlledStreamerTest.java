@@ -0,0 +1,252 @@
+package org.opencb.opencga.storage.core.utils.grpc;
+
+import io.grpc.stub.ServerCallStreamObserver;
+import org.junit.Test;
+import org.opencb.opencga.storage.core.utils.iterators.CloseableIterator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.*;
+
+public class FlowControlledStreamerTest {
+
+    @Test
+    public void testFlowControl() {
+        TestIterator iterator = new TestIterator(10);
+        TestObserver observer = new TestObserver();
+
+        // Not ready. Nothing is read from the iterator
+        FlowControlledStreamer.stream(iterator, String::valueOf, observer);
+        assertEquals(0, iterator.position);
+        assertTrue(observer.values.isEmpty());
+
+        // Client ready to receive 4 messages
+        observer.ready(4);
+        assertEquals(list(0, 4), observer.values);
+        assertEquals(4, iterator.position);
+        assertFalse(observer.completed);
+
+        observer.ready(4);
+        assertEquals(list(0, 8), observer.values);
+        assertFalse(observer.completed);
+        assertFalse(iterator.closed);
+
+        observer.ready(4);
+        assertEquals(list(0, 10), observer.values);
+        assertTrue(observer.completed);
+        assertTrue(iterator.closed);
+        assertNull(observer.error);
+
+        // Late onReady events are ignored
+        observer.ready(4);
+        assertEquals(list(0, 10), observer.values);
+    }
+
+    @Test
+    public void testReadyOnStart() {
+        TestIterator iterator = new TestIterator(10);
+        TestObserver observer = new TestObserver();
+        observer.capacity = Integer.MAX_VALUE;
+
+        FlowControlledStreamer.stream(iterator, String::valueOf, observer);
+        assertEquals(list(0, 10), observer.values);
+        assertTrue(observer.completed);
+        assertTrue(iterator.closed);
+    }
+
+    @Test
+    public void testCancel() {
+        TestIterator iterator = new TestIterator(10);
+        TestObserver observer = new TestObserver();
+
+        FlowControlledStreamer.stream(iterator, String::valueOf, observer);
+        observer.ready(4);
+        observer.cancel();
+        assertTrue(iterator.closed);
+
+        // Nothing else is sent after cancelling
+        observer.ready(4);
+        assertEquals(list(0, 4), observer.values);
+        assertFalse(observer.completed);
+        assertNull(observer.error);
+    }
+
+    @Test
+    public void testCancelWhileDraining() {
+        TestIterator iterator = new TestIterator(10);
+        TestObserver observer = new TestObserver();
+        // Cancelled while sending the third message
+        observer.cancelAt = 3;
+
+        FlowControlledStreamer.stream(iterator, String::valueOf, observer);
+        observer.ready(Integer.MAX_VALUE);
+
+        // The iterator was not closed while being used
+        assertFalse(iterator.usedAfterClose);
+        assertTrue(iterator.closed);
+        assertEquals(list(0, 3), observer.values);
+        assertFalse(observer.completed);
+    }
+
+    @Test
+    public void testError() {
+        TestIterator iterator = new TestIterator(10);
+        iterator.failAt = 5;
+        TestObserver observer = new TestObserver();
+
+        FlowControlledStreamer.stream(iterator, String::valueOf, observer);
+        observer.ready(Integer.MAX_VALUE);
+
+        assertEquals(list(0, 5), observer.values);
+        assertNotNull(observer.error);
+        assertEquals("Error at 5", observer.error.getMessage());
+        assertFalse(observer.completed);
+        assertTrue(iterator.closed);
+    }
+
+    @Test
+    public void testConverterError() {
+        TestIterator iterator = new TestIterator(10);
+        TestObserver observer = new TestObserver();
+
+        FlowControlledStreamer.stream(iterator, i -> {
+            if (i == 2) {
+                throw new IllegalArgumentException("Unable to convert " + i);
+            }
+            return String.valueOf(i);
+        }, observer);
+        observer.ready(Integer.MAX_VALUE);
+
+        assertEquals(list(0, 2), observer.values);
+        assertTrue(observer.error instanceof IllegalArgumentException);
+        assertTrue(iterator.closed);
+    }
+
+    private static List<String> list(int from, int to) {
+        List<String> list = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            list.add(String.valueOf(i));
+        }
+        return list;
+    }
+
+    private static class TestIterator extends CloseableIterator<Integer> {
+        private final int size;
+        private int position;
+        private int failAt = -1;
+        private boolean closed;
+        private boolean usedAfterClose;
+
+        TestIterator(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public boolean hasNext() {
+            usedAfterClose |= closed;
+            return position < size;
+        }
+
+        @Override
+        public Integer next() {
+            usedAfterClose |= closed;
+            if (position == failAt) {
+                throw new IllegalStateException("Error at " + position);
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return position++;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    /**
+     * Observer that accepts a given number of messages before becoming not ready.
+     */
+    private static class TestObserver extends ServerCallStreamObserver<String> {
+        private final List<String> values = new ArrayList<>();
+        private Throwable error;
+        private boolean completed;
+        private boolean cancelled;
+        private int capacity;
+        private int cancelAt = -1;
+        private Runnable onReadyHandler;
+        private Runnable onCancelHandler;
+
+        void ready(int capacity) {
+            this.capacity = capacity;
+            onReadyHandler.run();
+        }
+
+        void cancel() {
+            cancelled = true;
+            onCancelHandler.run();
+        }
+
+        @Override
+        public boolean isReady() {
+            return !cancelled && capacity > 0;
+        }
+
+        @Override
+        public void onNext(String value) {
+            assertFalse("Message after end of stream", completed || error != null);
+            assertTrue("Message while not ready", isReady());
+            values.add(value);
+            capacity--;
+            if (values.size() == cancelAt) {
+                cancel();
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            assertFalse(completed);
+            error = t;
+        }
+
+        @Override
+        public void onCompleted() {
+            assertNull(error);
+            completed = true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void setOnCancelHandler(Runnable onCancelHandler) {
+            this.onCancelHandler = onCancelHandler;
+        }
+
+        @Override
+        public void setCompression(String compression) {
+        }
+
+        @Override
+        public void setOnReadyHandler(Runnable onReadyHandler) {
+            this.onReadyHandler = onReadyHandler;
+        }
+
+        @Override
+        public void disableAutoInboundFlowControl() {
+        }
+
+        @Override
+        public void request(int count) {
+        }
+
+        @Override
+        public void setMessageCompression(boolean enable) {
+        }
+    }
+}
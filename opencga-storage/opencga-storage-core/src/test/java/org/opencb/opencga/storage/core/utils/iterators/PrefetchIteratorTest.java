@@ -0,0 +1,121 @@
+package org.opencb.opencga.storage.core.utils.iterators;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class PrefetchIteratorTest {
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testIterate() throws Exception {
+        try (PrefetchIterator<Integer> iterator = new PrefetchIterator<>(batches(0, 100, 7), executor, 2, null).start()) {
+            assertEquals(range(0, 100), toList(iterator));
+        }
+    }
+
+    @Test
+    public void testWithoutExecutor() throws Exception {
+        try (PrefetchIterator<Integer> iterator = new PrefetchIterator<>(batches(0, 100, 7), null, 2, null).start()) {
+            assertEquals(range(0, 100), toList(iterator));
+        }
+    }
+
+    @Test
+    public void testManyIteratorsSmallPool() throws Exception {
+        // More iterators than threads, and a memory budget that only allows one batch per iterator.
+        PrefetchIterator.MemoryBudget budget = new PrefetchIterator.MemoryBudget(1);
+        List<PrefetchIterator<Integer>> iterators = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            iterators.add(new PrefetchIterator<>(batches(i * 1000, i * 1000 + 500, 10), executor, 5, budget).start());
+        }
+        // Read the iterators interleaved, as the multi key iterators do
+        List<List<Integer>> results = new ArrayList<>();
+        iterators.forEach(it -> results.add(new ArrayList<>()));
+        boolean hasNext = true;
+        while (hasNext) {
+            hasNext = false;
+            for (int i = 0; i < iterators.size(); i++) {
+                if (iterators.get(i).hasNext()) {
+                    results.get(i).add(iterators.get(i).next());
+                    hasNext = true;
+                }
+            }
+        }
+        for (int i = 0; i < iterators.size(); i++) {
+            assertEquals(range(i * 1000, i * 1000 + 500), results.get(i));
+            iterators.get(i).close();
+        }
+        assertEquals(0, budget.getSize());
+    }
+
+    @Test
+    public void testCloseBeforeEnd() throws Exception {
+        PrefetchIterator.MemoryBudget budget = PrefetchIterator.MemoryBudget.unlimited();
+        PrefetchIterator<Integer> iterator = new PrefetchIterator<>(batches(0, 1000, 10), executor, 5, budget).start();
+        assertEquals(0, iterator.next().intValue());
+        iterator.close();
+        assertFalse(iterator.hasNext());
+        assertEquals(0, budget.getSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testError() throws Exception {
+        Iterator<PrefetchIterator.Batch<Integer>> source = new Iterator<PrefetchIterator.Batch<Integer>>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public PrefetchIterator.Batch<Integer> next() {
+                throw new IllegalArgumentException("Error reading batch");
+            }
+        };
+        try (PrefetchIterator<Integer> iterator = new PrefetchIterator<>(source, executor, 5, null).start()) {
+            iterator.hasNext();
+        }
+    }
+
+    private static Iterator<PrefetchIterator.Batch<Integer>> batches(int start, int end, int batchSize) {
+        List<PrefetchIterator.Batch<Integer>> batches = new ArrayList<>();
+        for (int i = start; i < end; i += batchSize) {
+            List<Integer> elements = range(i, Math.min(end, i + batchSize));
+            batches.add(new PrefetchIterator.Batch<>(elements, elements.size()));
+        }
+        return batches.iterator();
+    }
+
+    private static List<Integer> range(int start, int end) {
+        return IntStream.range(start, end).boxed().collect(Collectors.toList());
+    }
+
+    private static List<Integer> toList(Iterator<Integer> iterator) {
+        List<Integer> list = new ArrayList<>();
+        iterator.forEachRemaining(list::add);
+        return list;
+    }
+}
@@ -16,6 +16,9 @@
 
 package org.opencb.opencga.storage.core.variant.io;
 
+import htsjdk.samtools.util.CloseableIterator;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.vcf.VCFFileReader;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
@@ -35,6 +38,7 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 import java.util.zip.GZIPInputStream;
 
 import static org.hamcrest.CoreMatchers.hasItem;
@@ -122,6 +126,49 @@ public abstract class VariantExporterTest extends VariantStorageBaseTest {
         assertEquals(expectedVariants.size(), numVariants);
     }
 
+    @Test
+    public void exportVcfGzParallelTest() throws Exception {
+        URI outputDir = newOutputUri();
+        URI expectedOutput = outputDir.resolve("variant.vcf.gz");
+        variantStorageEngine.exportData(expectedOutput, VariantOutputFormat.VCF_GZ, null, new Query(), new QueryOptions());
+
+        URI output = outputDir.resolve("variant.parallel.vcf.gz");
+        variantStorageEngine.exportData(output, VariantOutputFormat.VCF_GZ, null, new Query(), new QueryOptions()
+                .append(VariantStorageOptions.EXPORT_NUM_THREADS.key(), 4)
+                .append(VariantStorageOptions.EXPORT_SHARD_SIZE.key(), 1000000));
+
+        assertTrue(Paths.get(output.getPath() + VariantVcfParallelExporter.TABIX_INDEX_EXTENSION).toFile().exists());
+        List<String> expectedLines = readVariantLines(expectedOutput);
+        assertEquals(expectedLines, readVariantLines(output));
+
+        // Check the index
+        int numVariants = 0;
+        try (VCFFileReader reader = new VCFFileReader(Paths.get(output).toFile(), true)) {
+            for (String contig : expectedLines.stream().map(line -> line.split("\t")[0]).distinct().collect(Collectors.toList())) {
+                try (CloseableIterator<VariantContext> iterator = reader.query(contig, 1, Integer.MAX_VALUE)) {
+                    while (iterator.hasNext()) {
+                        iterator.next();
+                        numVariants++;
+                    }
+                }
+            }
+        }
+        assertEquals(expectedLines.size(), numVariants);
+    }
+
+    private static List<String> readVariantLines(URI output) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(output.getPath()))))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (!line.startsWith("#")) {
+                    lines.add(line);
+                }
+            }
+        }
+        return lines;
+    }
+
     @Test
     public void exportTpedTest() throws Exception {
         URI output = newOutputUri().resolve("variant" + VariantExporter.TPED_FILE_EXTENSION);
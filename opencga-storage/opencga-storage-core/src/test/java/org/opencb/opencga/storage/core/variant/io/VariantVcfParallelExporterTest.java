@@ -0,0 +1,84 @@
+package org.opencb.opencga.storage.core.variant.io;
+
+import htsjdk.variant.vcf.VCFContigHeaderLine;
+import htsjdk.variant.vcf.VCFHeader;
+import htsjdk.variant.vcf.VCFHeaderLine;
+import org.junit.Test;
+import org.opencb.biodata.models.core.Region;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class VariantVcfParallelExporterTest {
+
+    @Test
+    public void testShardsFromOverlappingRegions() {
+        VariantVcfParallelExporter exporter = newExporter(0);
+        Query query = new Query(VariantQueryParam.REGION.key(), "2:1-10,1:150-300,1:100-200,1:150-300,X:5-6");
+
+        List<Region> shards = exporter.getShards(query, vcfHeader("1", "2"), null);
+        assertEquals(Arrays.asList("1:100-300", "2:1-10", "X:5-6"), toString(shards));
+    }
+
+    @Test
+    public void testShardsSplitRegions() {
+        VariantVcfParallelExporter exporter = newExporter(1000);
+        Query query = new Query(VariantQueryParam.REGION.key(), "1:1-2500,1:2000-2600");
+
+        List<Region> shards = exporter.getShards(query, vcfHeader("1"), null);
+        assertEquals(Arrays.asList("1:1-1000", "1:1001-2000", "1:2001-2600"), toString(shards));
+    }
+
+    @Test
+    public void testShardsContigNotInHeader() {
+        VariantVcfParallelExporter exporter = newExporter(1000);
+        Set<String> chromosomes = new LinkedHashSet<>(Arrays.asList("chrUn_KI270302v1", "1"));
+
+        // Contig "2" has no variants. Contig "chrUn_KI270302v1" is not in the header
+        List<Region> shards = exporter.getShards(new Query(), vcfHeader("1", "2"), chromosomes);
+        assertEquals(Arrays.asList("1:1-1000", "1:1001-2000", "1:2001-2500", wholeChromosome("chrUn_KI270302v1")),
+                toString(shards));
+
+        // Without contigs in the header
+        shards = exporter.getShards(new Query(), vcfHeader(), chromosomes);
+        assertEquals(Arrays.asList(wholeChromosome("chrUn_KI270302v1"), wholeChromosome("1")), toString(shards));
+    }
+
+    @Test
+    public void testShardsUnknownChromosomes() {
+        VariantVcfParallelExporter exporter = newExporter(1000);
+        assertNull(exporter.getShards(new Query(), vcfHeader("1", "2"), null));
+    }
+
+    private static VariantVcfParallelExporter newExporter(int shardSize) {
+        return new VariantVcfParallelExporter(null, null, new ObjectMap()
+                .append(VariantStorageOptions.EXPORT_NUM_THREADS.key(), 4)
+                .append(VariantStorageOptions.EXPORT_SHARD_SIZE.key(), shardSize));
+    }
+
+    private static VCFHeader vcfHeader(String... contigs) {
+        Set<VCFHeaderLine> lines = new LinkedHashSet<>();
+        for (int i = 0; i < contigs.length; i++) {
+            Map<String, String> fields = new LinkedHashMap<>();
+            fields.put("ID", contigs[i]);
+            fields.put("length", "2500");
+            lines.add(new VCFContigHeaderLine(fields, i));
+        }
+        return new VCFHeader(lines);
+    }
+
+    private static String wholeChromosome(String chromosome) {
+        return new Region(chromosome, 1, Integer.MAX_VALUE).toString();
+    }
+
+    private static List<String> toString(List<Region> regions) {
+        return regions.stream().map(Region::toString).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,54 @@
+package org.opencb.opencga.storage.core.variant.query.executors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantDBAdaptor;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.QUERY_EXECUTOR_COST_RANDOM_ACCESS;
+import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.QUERY_EXECUTOR_COST_VARIANTS_PER_MB;
+import static org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam.*;
+
+public class DBAdaptorVariantQueryExecutorTest {
+
+    private DBAdaptorVariantQueryExecutor executor;
+
+    @Before
+    public void setUp() throws Exception {
+        VariantDBAdaptor dbAdaptor = Mockito.mock(VariantDBAdaptor.class);
+        executor = new DBAdaptorVariantQueryExecutor(dbAdaptor, "dummy", new ObjectMap()
+                .append(QUERY_EXECUTOR_COST_VARIANTS_PER_MB.key(), 1000)
+                .append(QUERY_EXECUTOR_COST_RANDOM_ACCESS.key(), 10));
+    }
+
+    @Test
+    public void testEstimateCostFullScan() {
+        assertEquals(DBAdaptorVariantQueryExecutor.GENOME_LENGTH / 1000, executor.estimateCost(new Query(), new QueryOptions()));
+    }
+
+    @Test
+    public void testEstimateCostRegions() {
+        assertEquals(1000, executor.estimateCost(new Query(REGION.key(), "1:1-1000000"), new QueryOptions()));
+        // Overlapping regions are merged
+        assertEquals(2000, executor.estimateCost(new Query(REGION.key(), "1:1-1000000,1:500001-1500000,2:1-500000"),
+                new QueryOptions()));
+        // Whole chromosome
+        assertEquals(AbstractTwoPhasedVariantQueryExecutor.CHR1_LENGTH / 1000,
+                executor.estimateCost(new Query(REGION.key(), "1"), new QueryOptions()), 1);
+    }
+
+    @Test
+    public void testEstimateCostIds() {
+        assertEquals(20, executor.estimateCost(new Query(ID.key(), Arrays.asList("1:100:A:C", "2:200:G:T")), new QueryOptions()));
+        assertEquals(VariantQueryExecutor.UNKNOWN_COST,
+                executor.estimateCost(new Query(ID.key(), Arrays.asList("1:100:A:C", "rs1234")), new QueryOptions()));
+        assertEquals(VariantQueryExecutor.UNKNOWN_COST,
+                executor.estimateCost(new Query(GENE.key(), "BRCA2"), new QueryOptions()));
+    }
+}
@@ -0,0 +1,230 @@
+package org.opencb.opencga.storage.core.variant.query.executors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.core.response.VariantQueryResult;
+import org.opencb.opencga.storage.core.config.StorageConfiguration;
+import org.opencb.opencga.storage.core.config.StorageEngineConfiguration;
+import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
+import org.opencb.opencga.storage.core.variant.dummy.DummyVariantStorageEngine;
+import org.opencb.opencga.storage.core.variant.dummy.DummyVariantStorageMetadataDBAdaptorFactory;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.QUERY_EXECUTOR_COST_BASED;
+import static org.opencb.opencga.storage.core.variant.query.VariantQueryUtils.EXPLAIN;
+
+public class VariantQueryPlanTest {
+
+    private final List<VariantQueryExecutor> executors = new ArrayList<>();
+    private DummyVariantStorageEngine engine;
+
+    @Before
+    public void setUp() throws Exception {
+        DummyVariantStorageMetadataDBAdaptorFactory.clear();
+        try (InputStream is = DummyVariantStorageEngine.class.getClassLoader().getResourceAsStream("storage-configuration.yml")) {
+            StorageConfiguration storageConfiguration = StorageConfiguration.load(is);
+            storageConfiguration.getVariant().setDefaultEngine(DummyVariantStorageEngine.STORAGE_ENGINE_ID);
+            storageConfiguration.getVariant().getEngines().add(new StorageEngineConfiguration()
+                    .setId(DummyVariantStorageEngine.STORAGE_ENGINE_ID)
+                    .setEngine(DummyVariantStorageEngine.class.getName())
+                    .setOptions(new ObjectMap())
+            );
+            engine = new DummyVariantStorageEngine() {
+                @Override
+                protected List<VariantQueryExecutor> initVariantQueryExecutors() {
+                    return executors;
+                }
+            };
+            engine.setConfiguration(storageConfiguration, DummyVariantStorageEngine.STORAGE_ENGINE_ID);
+        }
+    }
+
+    @Test
+    public void testCostBasedDisabledByDefault() {
+        TestExecutor first = addExecutor("first", 1000);
+        TestExecutor second = addExecutor("second", 10);
+
+        List<VariantQueryPlan> plans = engine.getVariantQueryPlans(new Query(), new QueryOptions(), false);
+        assertEquals(1, plans.size());
+        assertSame(first, getSelected(plans).getExecutor());
+        // Cost not estimated
+        assertEquals(0, first.estimations.get());
+        assertEquals(0, second.estimations.get());
+    }
+
+    @Test
+    public void testCostBasedSelectCheapest() {
+        addExecutor("first", 1000);
+        addExecutor("notValid", 1).setCanUse(false);
+        TestExecutor cheapest = addExecutor("cheapest", 10);
+        addExecutor("expensive", 100);
+
+        List<VariantQueryPlan> plans = engine.getVariantQueryPlans(new Query(), costBased(), false);
+        assertEquals(3, plans.size());
+        assertSame(cheapest, getSelected(plans).getExecutor());
+    }
+
+    @Test
+    public void testCostBasedUnknownCost() {
+        // Default executor can not estimate its cost. Other executors are not evaluated
+        TestExecutor first = addExecutor("first", VariantQueryExecutor.UNKNOWN_COST);
+        TestExecutor second = addExecutor("second", 10);
+
+        List<VariantQueryPlan> plans = engine.getVariantQueryPlans(new Query(), costBased(), false);
+        assertEquals(1, plans.size());
+        assertSame(first, getSelected(plans).getExecutor());
+        assertEquals(0, second.estimations.get());
+
+        // Executors without estimated cost are never preferred over the default one
+        executors.clear();
+        first = addExecutor("first", 1000);
+        addExecutor("second", VariantQueryExecutor.UNKNOWN_COST);
+        assertSame(first, getSelected(engine.getVariantQueryPlans(new Query(), costBased(), false)).getExecutor());
+    }
+
+    @Test
+    public void testCostEstimationError() {
+        TestExecutor first = addExecutor("first", 1000);
+        addExecutor("second", 10).setFail(true);
+
+        List<VariantQueryPlan> plans = engine.getVariantQueryPlans(new Query(), costBased(), false);
+        assertEquals(2, plans.size());
+        assertSame(first, getSelected(plans).getExecutor());
+        assertFalse(plans.get(1).hasEstimatedCost());
+    }
+
+    @Test
+    public void testExplainPlans() {
+        // Explain evaluates all the candidates, even if the cost based selection is disabled
+        TestExecutor first = addExecutor("first", 1000);
+        TestExecutor second = addExecutor("second", 10);
+
+        List<VariantQueryPlan> plans = engine.getVariantQueryPlans(new Query(), new QueryOptions(), true);
+        assertEquals(2, plans.size());
+        assertSame(first, getSelected(plans).getExecutor());
+        assertEquals(1000, plans.get(0).getEstimatedCost());
+        assertEquals(10, plans.get(1).getEstimatedCost());
+        assertEquals(1, second.estimations.get());
+    }
+
+    @Test
+    public void testExplain() {
+        addExecutor("first", 1000);
+        TestExecutor second = addExecutor("second", 10);
+
+        VariantQueryResult<Variant> result = engine.get(new Query(), costBased().append(EXPLAIN, true));
+        assertEquals(1, second.executions.get());
+
+        List<Map<String, Object>> explain = result.getExplain();
+        assertNotNull(explain);
+        assertEquals(2, explain.size());
+
+        ObjectMap firstPlan = new ObjectMap(explain.get(0));
+        assertEquals(TestExecutor.class.getSimpleName(), firstPlan.getString("executor"));
+        assertFalse(firstPlan.getBoolean("selected"));
+        assertEquals(1000, firstPlan.getLong("estimatedCost"));
+        assertFalse(firstPlan.containsKey("time"));
+
+        ObjectMap secondPlan = new ObjectMap(explain.get(1));
+        assertTrue(secondPlan.getBoolean("selected"));
+        assertEquals(10, secondPlan.getLong("estimatedCost"));
+        assertEquals(second.numResults, secondPlan.getInt("numResults"));
+        assertTrue(secondPlan.containsKey("time"));
+    }
+
+    @Test
+    public void testNotExplained() {
+        addExecutor("first", 1000);
+
+        VariantQueryResult<Variant> result = engine.get(new Query(), new QueryOptions());
+        assertNull(result.getExplain());
+    }
+
+    private TestExecutor addExecutor(String name, long cost) {
+        TestExecutor executor = new TestExecutor(name, cost);
+        executors.add(executor);
+        return executor;
+    }
+
+    private static QueryOptions costBased() {
+        return new QueryOptions(QUERY_EXECUTOR_COST_BASED.key(), true);
+    }
+
+    private static VariantQueryPlan getSelected(List<VariantQueryPlan> plans) {
+        VariantQueryPlan selected = null;
+        for (VariantQueryPlan plan : plans) {
+            if (plan.isSelected()) {
+                assertNull("Multiple selected plans", selected);
+                selected = plan;
+            }
+        }
+        assertNotNull(selected);
+        return selected;
+    }
+
+    private static class TestExecutor extends VariantQueryExecutor {
+
+        private final String name;
+        private final long cost;
+        private final int numResults = 2;
+        private final AtomicInteger estimations = new AtomicInteger();
+        private final AtomicInteger executions = new AtomicInteger();
+        private boolean canUse = true;
+        private boolean fail = false;
+
+        TestExecutor(String name, long cost) {
+            super(null, DummyVariantStorageEngine.STORAGE_ENGINE_ID, new ObjectMap());
+            this.name = name;
+            this.cost = cost;
+        }
+
+        TestExecutor setCanUse(boolean canUse) {
+            this.canUse = canUse;
+            return this;
+        }
+
+        TestExecutor setFail(boolean fail) {
+            this.fail = fail;
+            return this;
+        }
+
+        @Override
+        public boolean canUseThisExecutor(Query query, QueryOptions options) {
+            return canUse;
+        }
+
+        @Override
+        public long estimateCost(Query query, QueryOptions options) throws StorageEngineException {
+            estimations.incrementAndGet();
+            if (fail) {
+                throw new StorageEngineException("Error estimating cost of " + name);
+            }
+            return cost;
+        }
+
+        @Override
+        protected Object getOrIterator(Query query, QueryOptions options, boolean iterator) {
+            executions.incrementAndGet();
+            List<Variant> variants = Arrays.asList(new Variant("1:100:A:C"), new Variant("1:200:G:T"));
+            return new VariantQueryResult<>(0, variants.size(), variants.size(), Collections.emptyList(), variants,
+                    null, getStorageEngineId());
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
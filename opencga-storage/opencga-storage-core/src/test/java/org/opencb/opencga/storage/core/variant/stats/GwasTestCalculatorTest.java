@@ -0,0 +1,118 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.variant.stats;
+
+import org.junit.Test;
+import org.opencb.biodata.models.variant.Variant;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GwasTestCalculatorTest {
+
+    @Test
+    public void testErfc() {
+        assertEquals(1, GwasTestCalculator.erfc(0), 1e-7);
+        assertEquals(0.157299207, GwasTestCalculator.erfc(1), 1e-7);
+        assertEquals(0.004677735, GwasTestCalculator.erfc(2), 1e-7);
+        assertEquals(1.842700793, GwasTestCalculator.erfc(-1), 1e-7);
+    }
+
+    @Test
+    public void testChiSquare() {
+        double chi2 = GwasTestCalculator.chiSquare(10, 20, 30, 40);
+        assertEquals(0.79365, chi2, 1e-5);
+        assertEquals(0.37300, GwasTestCalculator.chiSquarePValue(chi2), 1e-5);
+        assertTrue(Double.isNaN(GwasTestCalculator.chiSquare(0, 0, 30, 40)));
+    }
+
+    @Test
+    public void testLogisticRegression() {
+        Random random = new Random(0);
+        int n = 4000;
+        double beta = 0.7;
+        double covariateBeta = -0.5;
+        double[] allDosages = new double[n];
+        double[] allCovariates = new double[n];
+        boolean[] isCase = new boolean[n];
+        int numCases = 0;
+        for (int i = 0; i < n; i++) {
+            allDosages[i] = (random.nextDouble() < 0.3 ? 1 : 0) + (random.nextDouble() < 0.3 ? 1 : 0);
+            allCovariates[i] = random.nextGaussian();
+            double eta = -0.5 + beta * allDosages[i] + covariateBeta * allCovariates[i];
+            isCase[i] = random.nextDouble() < 1 / (1 + Math.exp(-eta));
+            if (isCase[i]) {
+                numCases++;
+            }
+        }
+        // Cases first
+        double[] dosages = new double[n];
+        double[][] covariates = new double[n][1];
+        int caseIdx = 0;
+        int controlIdx = numCases;
+        for (int i = 0; i < n; i++) {
+            int idx = isCase[i] ? caseIdx++ : controlIdx++;
+            dosages[idx] = allDosages[i];
+            covariates[idx][0] = allCovariates[i];
+        }
+        // Some missing values
+        dosages[0] = Double.NaN;
+
+        double[] result = GwasTestCalculator.logisticRegression(dosages, numCases, covariates);
+        assertEquals(beta, result[0], 0.15);
+        assertTrue(result[1] > 0 && result[1] < 0.1);
+        assertTrue(result[2] < 1e-10);
+
+        // Without effect
+        for (int i = 0; i < n; i++) {
+            dosages[i] = random.nextInt(3);
+        }
+        result = GwasTestCalculator.logisticRegression(dosages, numCases, covariates);
+        assertEquals(0, result[0], 0.15);
+        assertTrue(result[2] > 1e-3);
+
+        // Not enough samples
+        result = GwasTestCalculator.logisticRegression(new double[]{0, 1}, 1, null);
+        assertTrue(Double.isNaN(result[0]));
+    }
+
+    @Test
+    public void testLine() {
+        Variant variant = new Variant("1:1000:A:-");
+        GwasTestCalculator calculator = new GwasTestCalculator(true, 2, null);
+        assertEquals(GwasTestCalculator.COLUMNS.size() + 5, calculator.getHeaderColumns().size());
+        assertEquals("#ID", calculator.getHeader(Collections.emptyMap()).get(0).split("\t")[0]);
+
+        // {HOM_REF, HET, HOM_ALT, MISSING}
+        String line = calculator.test(variant, null, new int[]{0, 1, 1, 0}, new int[]{2, 0, 0, 1},
+                new double[]{1, 2, 0, 0, Double.NaN});
+        String[] split = line.split("\t");
+        assertEquals(calculator.getHeaderColumns().size(), split.length);
+        assertEquals(variant.toString(), split[0]);
+        assertEquals("-", split[5]);
+        assertEquals(".", split[6]);
+        // a, b, c, d, AN_CASE, AN_CONTROL
+        assertEquals("1\t4\t3\t0\t4\t4", String.join("\t", Arrays.copyOfRange(split, 7, 13)));
+        assertEquals("0.75", split[13]);
+        assertEquals("0.0", split[14]);
+
+        assertNull(calculator.test(variant, null, new int[]{0, 0, 0, 2}, new int[]{0, 0, 0, 3}, null));
+    }
+}
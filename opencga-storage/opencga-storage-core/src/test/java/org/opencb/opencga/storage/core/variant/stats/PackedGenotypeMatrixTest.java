@@ -0,0 +1,81 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.variant.stats;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PackedGenotypeMatrixTest {
+
+    @Test
+    public void testEncode() {
+        assertEquals(PackedGenotypeMatrix.HOM_REF, PackedGenotypeMatrix.encode("0/0"));
+        assertEquals(PackedGenotypeMatrix.HET, PackedGenotypeMatrix.encode("0|1"));
+        assertEquals(PackedGenotypeMatrix.HET, PackedGenotypeMatrix.encode("1/0"));
+        assertEquals(PackedGenotypeMatrix.HOM_ALT, PackedGenotypeMatrix.encode("1/1"));
+        assertEquals(PackedGenotypeMatrix.MISSING, PackedGenotypeMatrix.encode("./."));
+        assertEquals(PackedGenotypeMatrix.MISSING, PackedGenotypeMatrix.encode("1/2"));
+        assertEquals(PackedGenotypeMatrix.MISSING, PackedGenotypeMatrix.encode("1"));
+        assertEquals(PackedGenotypeMatrix.MISSING, PackedGenotypeMatrix.encode(null));
+    }
+
+    @Test
+    public void testTranspose() {
+        Random random = new Random(1);
+        int numRows = 70;
+        int numColumns = 130;
+        byte[][] values = new byte[numRows][numColumns];
+        PackedGenotypeMatrix matrix = new PackedGenotypeMatrix(numColumns);
+        for (int row = 0; row < numRows; row++) {
+            for (int column = 0; column < numColumns; column++) {
+                values[row][column] = (byte) random.nextInt(4);
+            }
+            matrix.addRow(values[row]);
+        }
+        matrix.addRow(new byte[numColumns]);
+        matrix.removeLastRow();
+
+        PackedGenotypeMatrix transposed = matrix.transpose();
+        assertEquals(numColumns, transposed.getNumRows());
+        assertEquals(numRows, transposed.getNumColumns());
+        for (int row = 0; row < numRows; row++) {
+            for (int column = 0; column < numColumns; column++) {
+                assertEquals(values[row][column], matrix.get(row, column));
+                assertEquals(values[row][column], transposed.get(column, row));
+            }
+        }
+    }
+
+    @Test
+    public void testCountGenotypes() {
+        PackedGenotypeMatrix matrix = new PackedGenotypeMatrix(70);
+        byte[] genotypes = new byte[70];
+        for (int i = 0; i < genotypes.length; i++) {
+            genotypes[i] = (byte) (i % 4);
+        }
+        matrix.addRow(genotypes);
+        assertArrayEquals(new int[]{18, 18, 17, 17}, matrix.countGenotypes(0, new int[4]));
+
+        matrix.clear();
+        assertEquals(0, matrix.getNumRows());
+        matrix.addRow(new byte[70]);
+        assertArrayEquals(new int[]{70, 0, 0, 0}, matrix.countGenotypes(0, new int[4]));
+    }
+}
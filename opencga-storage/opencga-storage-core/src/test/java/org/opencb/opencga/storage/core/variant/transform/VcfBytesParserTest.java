@@ -0,0 +1,121 @@
+package org.opencb.opencga.storage.core.variant.transform;
+
+import htsjdk.tribble.readers.LineIterator;
+import htsjdk.variant.vcf.VCFHeader;
+import htsjdk.variant.vcf.VCFHeaderVersion;
+import org.junit.Before;
+import org.junit.Test;
+import org.opencb.biodata.formats.variant.vcf4.FullVcfCodec;
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.FileEntry;
+import org.opencb.biodata.tools.variant.converters.avro.VariantContextToVariantConverter;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class VcfBytesParserTest {
+
+    private static final List<String> SAMPLES = Arrays.asList("S1", "S2", "S3");
+
+    private VcfBytesParser parser;
+    private FullVcfCodec codec;
+    private VariantContextToVariantConverter converter;
+
+    @Before
+    public void setUp() throws Exception {
+        parser = new VcfBytesParser("1", "1", SAMPLES);
+
+        codec = new FullVcfCodec();
+        byte[] buf = ("##fileformat=VCFv4.2\n"
+                + "##INFO=<ID=AC,Number=A,Type=Integer,Description=\"Allele count\">\n"
+                + "##INFO=<ID=DB,Number=0,Type=Flag,Description=\"dbSNP\">\n"
+                + "##FORMAT=<ID=GT,Number=1,Type=String,Description=\"Genotype\">\n"
+                + "##FORMAT=<ID=DP,Number=1,Type=Integer,Description=\"Depth\">\n"
+                + "#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\tFORMAT\tS1\tS2\tS3\n").getBytes();
+        InputStream inputStream = new ByteArrayInputStream(buf);
+        LineIterator lineIterator = codec.makeSourceFromStream(inputStream);
+        VCFHeader header = (VCFHeader) codec.readActualHeader(lineIterator);
+        codec.setVCFHeader(header, VCFHeaderVersion.VCF4_2);
+        converter = new VariantContextToVariantConverter("1", "1", SAMPLES);
+    }
+
+    @Test
+    public void testParse() {
+        Variant variant = parse("1\t100\trs1;rs2\tA\tC\t50\tPASS\tAC=1;DB\tGT:DP\t0/1:10\t1|1:20\t./.");
+
+        assertEquals("1:100:A:C", variant.toString());
+        assertEquals(Arrays.asList("rs1", "rs2"), variant.getIds());
+        StudyEntry study = variant.getStudies().get(0);
+        assertEquals(Arrays.asList("GT", "DP"), study.getSampleDataKeys());
+        assertEquals(Arrays.asList("0/1", "10"), study.getSampleData(0));
+        assertEquals(Arrays.asList("1|1", "20"), study.getSampleData(1));
+        // Missing trailing fields
+        assertEquals(Arrays.asList("./.", "."), study.getSampleData(2));
+        assertEquals("1", study.getFiles().get(0).getData().get("AC"));
+        assertEquals("true", study.getFiles().get(0).getData().get("DB"));
+        assertEquals("PASS", study.getFiles().get(0).getData().get(StudyEntry.FILTER));
+    }
+
+    @Test
+    public void testParseMultiAllelic() {
+        Variant variant = parse("1\t100\t.\tA\tC,T\t.\t.\t.\tGT\t0/1\t1/2\t0/0");
+
+        assertEquals("1:100:A:C", variant.toString());
+        assertEquals(Collections.emptyList(), variant.getIds());
+        assertEquals(1, variant.getStudies().get(0).getSecondaryAlternates().size());
+        assertEquals("T", variant.getStudies().get(0).getSecondaryAlternates().get(0).getAlternate());
+    }
+
+    @Test
+    public void testNotSupported() {
+        assertNull(parse("1\t100\t.\tA\t<DEL>\t.\t.\tEND=200\tGT\t0/1\t0/1\t0/0"));
+        assertNull(parse("1\t100\t.\tA\t*\t.\t.\t.\tGT\t0/1\t0/1\t0/0"));
+        assertNull(parse("1\t100\t.\tA\t.\t.\t.\t.\tGT\t0/0\t0/0\t0/0"));
+        assertNull(parse("1\t100\t.\tA\tC\t.\t.\tEND=100\tGT\t0/1\t0/1\t0/0"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformed() {
+        parse("1\t100\t.\tA\tC\t.\t.\t.\tGT\t0/1\t0/1");
+    }
+
+    @Test
+    public void testSameAsHtsjdk() {
+        List<String> lines = Arrays.asList(
+                "1\t100\trs1\tA\tC\t50\tPASS\tAC=1;DB\tGT:DP\t0/1:10\t1|1:20\t0/0:5",
+                "1\t200\t.\tAC\tA\t.\tq10\t.\tGT:DP\t0/1:10\t./.:.\t0/0:5",
+                "2\t300\t.\tC\tCAT,G\t10\tPASS\tAC=1,1\tGT\t0/1\t1/2\t0/0",
+                "2\t400\trs2\tG\tT\t12.5\tq10;s50\tDB;AC=2\tGT:DP\t1/1:3\t0/1\t0/0:.");
+        for (String line : lines) {
+            Variant expected = converter.convert(codec.decode(line));
+            Variant actual = parse(line);
+            assertEquals(expected.toString(), actual.toString());
+            assertEquals(expected.getIds(), actual.getIds());
+            StudyEntry expectedStudy = expected.getStudies().get(0);
+            StudyEntry actualStudy = actual.getStudies().get(0);
+            assertEquals(expectedStudy.getSampleDataKeys(), actualStudy.getSampleDataKeys());
+            for (int i = 0; i < SAMPLES.size(); i++) {
+                assertEquals(expectedStudy.getSampleData(i), actualStudy.getSampleData(i));
+            }
+            assertEquals(expectedStudy.getSecondaryAlternates().size(), actualStudy.getSecondaryAlternates().size());
+            // QUAL, FILTER and INFO
+            assertEquals(expectedStudy.getFiles().size(), actualStudy.getFiles().size());
+            FileEntry expectedFile = expectedStudy.getFiles().get(0);
+            FileEntry actualFile = actualStudy.getFiles().get(0);
+            assertEquals(expectedFile.getFileId(), actualFile.getFileId());
+            assertEquals(line, expectedFile.getData(), actualFile.getData());
+        }
+    }
+
+    private Variant parse(String line) {
+        byte[] bytes = ("garbage" + line + "\n").getBytes(StandardCharsets.UTF_8);
+        return parser.parse(bytes, "garbage".length(), bytes.length - "garbage".length() - 1);
+    }
+}
@@ -1,6 +1,7 @@
 package org.opencb.opencga.storage.hadoop.utils;
 
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.*;
@@ -24,6 +25,8 @@ public abstract class AbstractHBaseDataWriter<T, M extends Mutation> implements
     protected final HBaseManager hBaseManager;
     protected final String tableName;
     private BufferedMutator mutator;
+    private Path bulkLoadStagingDir;
+    private HBaseBulkLoader bulkLoader;
     private final Logger logger = LoggerFactory.getLogger(AbstractHBaseDataWriter.class);
 
     public AbstractHBaseDataWriter(HBaseManager hBaseManager, String tableName) {
@@ -33,10 +36,26 @@ public abstract class AbstractHBaseDataWriter<T, M extends Mutation> implements
 
     protected abstract List<M> convert(List<T> batch);
 
+    /**
+     * Write the mutations into HFiles, and bulk load them on {@link #post}, instead of sending them to the RegionServers.
+     * Only {@link Put} and {@link Delete} mutations are supported.
+     *
+     * @param stagingDir Directory where to write the HFiles. See {@link HBaseBulkLoader#getStagingDir}
+     * @return this
+     */
+    public AbstractHBaseDataWriter<T, M> setBulkLoadStagingDir(Path stagingDir) {
+        this.bulkLoadStagingDir = stagingDir;
+        return this;
+    }
+
     @Override
     public boolean open() {
         try {
-            mutator = hBaseManager.getConnection().getBufferedMutator(TableName.valueOf(tableName));
+            if (bulkLoadStagingDir == null) {
+                mutator = hBaseManager.getConnection().getBufferedMutator(TableName.valueOf(tableName));
+            } else {
+                bulkLoader = new HBaseBulkLoader(hBaseManager, tableName, bulkLoadStagingDir).open();
+            }
         } catch (IOException e) {
             throw new UncheckedIOException("Failed to connect to Hbase", e);
         }
@@ -54,6 +73,10 @@ public abstract class AbstractHBaseDataWriter<T, M extends Mutation> implements
     }
 
     protected final synchronized void mutate(List<M> mutations) throws IOException {
+        if (bulkLoader != null) {
+            bulkLoader.write(mutations);
+            return;
+        }
         try {
             mutator.mutate(mutations);
         } catch (IllegalArgumentException e) {
@@ -108,7 +131,11 @@ public abstract class AbstractHBaseDataWriter<T, M extends Mutation> implements
 
     public final synchronized void flush() {
         try {
-            mutator.flush();
+            if (bulkLoader != null) {
+                bulkLoader.flush();
+            } else {
+                mutator.flush();
+            }
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
@@ -123,7 +150,11 @@ public abstract class AbstractHBaseDataWriter<T, M extends Mutation> implements
     @Override
     public boolean close() {
         try {
-            mutator.close();
+            if (bulkLoader != null) {
+                bulkLoader.close();
+            } else {
+                mutator.close();
+            }
             hBaseManager.close();
         } catch (IOException e) {
             throw new UncheckedIOException(e);
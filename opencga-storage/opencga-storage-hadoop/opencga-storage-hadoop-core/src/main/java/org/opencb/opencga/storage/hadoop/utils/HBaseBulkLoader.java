@@ -0,0 +1,341 @@
+package org.opencb.opencga.storage.hadoop.utils;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.*;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.io.hfile.CacheConfig;
+import org.apache.hadoop.hbase.io.hfile.HFile;
+import org.apache.hadoop.hbase.io.hfile.HFileContext;
+import org.apache.hadoop.hbase.io.hfile.HFileContextBuilder;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.opencb.opencga.core.common.TimeUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Writes mutations into sorted HFiles, and bulk loads them into an HBase table, skipping the write path of the RegionServers.
+ *
+ * Each batch of mutations is sorted and appended to the open run of HFiles ending before the first cell of the batch.
+ * If none, a new run is started. Runs are rolled at the region boundaries, so each HFile belongs to one single region.
+ * Closed HFiles are bulk loaded on {@link #flush}, or before exceeding the max number of HFiles per region and family
+ * accepted by a bulk load.
+ *
+ * Cells without timestamp take the time of their batch. Deletes of the latest version of a column are written
+ * as deletes of all the versions, as the latest version can not be resolved without reading the table.
+ *
+ * This class is not thread safe.
+ */
+public class HBaseBulkLoader implements Closeable {
+
+    public static final String MAX_FILES_PER_REGION_PER_FAMILY = "hbase.mapreduce.bulkload.max.hfiles.perRegionPerFamily";
+    public static final int MAX_FILES_PER_REGION_PER_FAMILY_DEFAULT = 32;
+    private static final int MAX_OPEN_RUNS = 8;
+
+    /**
+     * Sorts cells in the same order as in the HFiles, regardless of the HBase version.
+     */
+    public static final Comparator<Cell> CELL_COMPARATOR = (a, b) -> {
+        int c = compareColumns(a, b);
+        if (c != 0) {
+            return c;
+        }
+        // Newest first
+        c = Long.compare(b.getTimestamp(), a.getTimestamp());
+        if (c != 0) {
+            return c;
+        }
+        // Deletes before puts
+        return Integer.compare(0xFF & b.getTypeByte(), 0xFF & a.getTypeByte());
+    };
+
+    private final HBaseManager hBaseManager;
+    private final String tableName;
+    private final Path stagingDir;
+    private final Logger logger = LoggerFactory.getLogger(HBaseBulkLoader.class);
+
+    private Configuration conf;
+    private FileSystem fs;
+    private HFileContext fileContext;
+    private byte[] family;
+    private byte[][] regionStartKeys;
+    private Path writeDir;
+    private Path loadDir;
+    private Path loadFamilyDir;
+    private int maxClosedFiles;
+
+    // Sorted by last usage. Least recently used first
+    private final LinkedList<Run> runs = new LinkedList<>();
+    private int closedFiles;
+    private long lastTimestamp;
+    private long loadedFiles;
+    private long writtenCells;
+
+    public HBaseBulkLoader(HBaseManager hBaseManager, String tableName, Path stagingDir) {
+        this.hBaseManager = Objects.requireNonNull(hBaseManager);
+        this.tableName = tableName;
+        this.stagingDir = stagingDir;
+    }
+
+    /**
+     * Build a new unique staging directory for a bulk load.
+     *
+     * @param conf       Configuration
+     * @param stagingDir Base staging directory. If empty, use "hbase.fs.tmp.dir"
+     * @param tableName  Table to be loaded
+     * @return           Unique staging directory
+     */
+    public static Path getStagingDir(Configuration conf, String stagingDir, String tableName) {
+        if (StringUtils.isEmpty(stagingDir)) {
+            stagingDir = conf.get("hbase.fs.tmp.dir", conf.get("hadoop.tmp.dir"));
+        }
+        return new Path(stagingDir, "opencga_bulkload_" + tableName.replace(':', '_')
+                + "_" + TimeUtils.getTime() + "_" + RandomStringUtils.randomAlphanumeric(6));
+    }
+
+    public HBaseBulkLoader open() throws IOException {
+        conf = new Configuration(hBaseManager.getConf());
+        // Do not allocate any block cache for writing HFiles
+        conf.setFloat(HConstants.HFILE_BLOCK_CACHE_SIZE_KEY, 0.0f);
+        maxClosedFiles = Math.max(1, conf.getInt(MAX_FILES_PER_REGION_PER_FAMILY, MAX_FILES_PER_REGION_PER_FAMILY_DEFAULT) - MAX_OPEN_RUNS);
+
+        hBaseManager.act(tableName, (table, admin) -> {
+            Collection<HColumnDescriptor> families = table.getTableDescriptor().getFamilies();
+            if (families.size() != 1) {
+                throw new IllegalArgumentException("Bulk load only supported for tables with one column family. "
+                        + "Table " + tableName + " has " + families.size());
+            }
+            HColumnDescriptor familyDescriptor = families.iterator().next();
+            family = familyDescriptor.getName();
+            fileContext = new HFileContextBuilder()
+                    .withCompression(familyDescriptor.getCompressionType())
+                    .withBlockSize(familyDescriptor.getBlocksize())
+                    .withDataBlockEncoding(familyDescriptor.getDataBlockEncoding())
+                    .build();
+            try (RegionLocator regionLocator = hBaseManager.getConnection().getRegionLocator(table.getName())) {
+                regionStartKeys = regionLocator.getStartKeys();
+            }
+            return null;
+        });
+
+        fs = stagingDir.getFileSystem(conf);
+        writeDir = new Path(new Path(stagingDir, "write"), Bytes.toString(family));
+        loadDir = new Path(stagingDir, "load");
+        loadFamilyDir = new Path(loadDir, Bytes.toString(family));
+        fs.mkdirs(writeDir);
+        fs.mkdirs(loadFamilyDir);
+        logger.info("Write HFiles for table {} at {}", tableName, stagingDir);
+        return this;
+    }
+
+    public void write(List<? extends Mutation> mutations) throws IOException {
+        List<Cell> cells = new ArrayList<>();
+        for (Mutation mutation : mutations) {
+            if (!(mutation instanceof Put) && !(mutation instanceof Delete)) {
+                throw new IllegalArgumentException("Unsupported mutation " + mutation.getClass().getSimpleName() + " for bulk load");
+            }
+            for (List<Cell> familyCells : mutation.getFamilyCellMap().values()) {
+                for (Cell cell : familyCells) {
+                    if (!CellUtil.matchingFamily(cell, family)) {
+                        throw new IllegalArgumentException("Unknown column family '" + Bytes.toString(CellUtil.cloneFamily(cell)) + "'"
+                                + " for table " + tableName);
+                    }
+                    if (cell.getTypeByte() == KeyValue.Type.Delete.getCode()) {
+                        cell = new KeyValue(CellUtil.cloneRow(cell), family, CellUtil.cloneQualifier(cell),
+                                cell.getTimestamp(), KeyValue.Type.DeleteColumn);
+                    }
+                    cells.add(cell);
+                }
+            }
+        }
+        if (cells.isEmpty()) {
+            return;
+        }
+        // Stable sort. Among duplicated cells, the last one wins.
+        cells.sort(CELL_COMPARATOR);
+
+        long timestamp = Math.max(System.currentTimeMillis(), lastTimestamp + 1);
+        lastTimestamp = timestamp;
+
+        Run run = getRun(cells.get(0));
+        for (int i = 0; i < cells.size(); i++) {
+            Cell cell = cells.get(i);
+            if (i + 1 < cells.size() && CELL_COMPARATOR.compare(cell, cells.get(i + 1)) == 0) {
+                continue;
+            }
+            run.append(cell, timestamp);
+        }
+    }
+
+    /**
+     * Close all the open HFiles and bulk load them.
+     *
+     * @throws IOException on error writing or loading the HFiles
+     */
+    public void flush() throws IOException {
+        for (Run run : runs) {
+            run.closeFile();
+        }
+        runs.clear();
+        bulkLoad();
+        logger.info("Bulk loaded {} cells from {} HFiles into table {}", writtenCells, loadedFiles, tableName);
+    }
+
+    /**
+     * Close any open HFile and remove the staging directory. HFiles not loaded are discarded.
+     *
+     * @throws IOException on error closing the HFiles
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            for (Run run : runs) {
+                run.closeFile();
+            }
+            runs.clear();
+        } finally {
+            if (fs != null) {
+                fs.delete(stagingDir, true);
+            }
+        }
+    }
+
+    /**
+     * @return Number of HFiles bulk loaded so far
+     */
+    public long getLoadedFiles() {
+        return loadedFiles;
+    }
+
+    /**
+     * @return Number of cells written so far
+     */
+    public long getWrittenCells() {
+        return writtenCells;
+    }
+
+    /**
+     * Compare row, family and qualifier of two cells.
+     *
+     * @param a First cell
+     * @param b Second cell
+     * @return  the same as {@link Comparator#compare}
+     */
+    public static int compareColumns(Cell a, Cell b) {
+        int c = Bytes.compareTo(a.getRowArray(), a.getRowOffset(), a.getRowLength(),
+                b.getRowArray(), b.getRowOffset(), b.getRowLength());
+        if (c != 0) {
+            return c;
+        }
+        c = Bytes.compareTo(a.getFamilyArray(), a.getFamilyOffset(), a.getFamilyLength(),
+                b.getFamilyArray(), b.getFamilyOffset(), b.getFamilyLength());
+        if (c != 0) {
+            return c;
+        }
+        return Bytes.compareTo(a.getQualifierArray(), a.getQualifierOffset(), a.getQualifierLength(),
+                b.getQualifierArray(), b.getQualifierOffset(), b.getQualifierLength());
+    }
+
+    private Run getRun(Cell firstCell) throws IOException {
+        Run selected = null;
+        for (Run run : runs) {
+            // Each batch has a different timestamp, so the same column can not be appended twice into the same run
+            if (compareColumns(run.lastCell, firstCell) < 0
+                    && (selected == null || compareColumns(selected.lastCell, run.lastCell) < 0)) {
+                selected = run;
+            }
+        }
+        if (selected == null) {
+            if (runs.size() >= MAX_OPEN_RUNS) {
+                runs.removeFirst().closeFile();
+            }
+            selected = new Run();
+        } else {
+            runs.remove(selected);
+        }
+        runs.addLast(selected);
+        return selected;
+    }
+
+    private void bulkLoad() throws IOException {
+        if (closedFiles > 0) {
+            hBaseManager.bulkLoad(tableName, loadDir);
+            loadedFiles += closedFiles;
+            closedFiles = 0;
+            // LoadIncrementalHFiles moves the files. Make sure the directory still exists
+            fs.mkdirs(loadFamilyDir);
+        }
+    }
+
+    private int getRegion(Cell cell) {
+        int idx = 0;
+        for (int i = 1; i < regionStartKeys.length; i++) {
+            if (Bytes.compareTo(regionStartKeys[i], 0, regionStartKeys[i].length,
+                    cell.getRowArray(), cell.getRowOffset(), cell.getRowLength()) <= 0) {
+                idx = i;
+            } else {
+                break;
+            }
+        }
+        return idx;
+    }
+
+    private final class Run {
+        private HFile.Writer writer;
+        private Path file;
+        private Cell lastCell;
+        // Null for the last region
+        private byte[] regionEndKey;
+
+        private void append(Cell cell, long timestamp) throws IOException {
+            if (writer == null || regionEndKey != null && Bytes.compareTo(regionEndKey, 0, regionEndKey.length,
+                    cell.getRowArray(), cell.getRowOffset(), cell.getRowLength()) <= 0) {
+                closeFile();
+                openFile(cell);
+            }
+            if (cell.getTimestamp() == HConstants.LATEST_TIMESTAMP) {
+                writer.append(new KeyValue(CellUtil.cloneRow(cell), family, CellUtil.cloneQualifier(cell),
+                        timestamp, KeyValue.Type.codeToType(cell.getTypeByte()), CellUtil.cloneValue(cell)));
+            } else {
+                writer.append(cell);
+            }
+            writtenCells++;
+            lastCell = cell;
+        }
+
+        private void openFile(Cell cell) throws IOException {
+            if (closedFiles >= maxClosedFiles) {
+                bulkLoad();
+            }
+            int region = getRegion(cell);
+            regionEndKey = region + 1 < regionStartKeys.length ? regionStartKeys[region + 1] : null;
+            // HFile names must be hexadecimal
+            file = new Path(writeDir, UUID.randomUUID().toString().replace("-", ""));
+            writer = HFile.getWriterFactory(conf, new CacheConfig(conf))
+                    .withPath(fs, file)
+                    .withFileContext(fileContext)
+                    .create();
+        }
+
+        private void closeFile() throws IOException {
+            if (writer != null) {
+                writer.close();
+                writer = null;
+                if (!fs.rename(file, new Path(loadFamilyDir, file.getName()))) {
+                    throw new IOException("Unable to move HFile " + file + " to " + loadFamilyDir);
+                }
+                closedFiles++;
+            }
+        }
+    }
+}
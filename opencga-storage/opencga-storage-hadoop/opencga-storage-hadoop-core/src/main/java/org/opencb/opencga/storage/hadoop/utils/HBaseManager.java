@@ -18,9 +18,11 @@ package org.opencb.opencga.storage.hadoop.utils;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.*;
 import org.apache.hadoop.hbase.client.*;
 import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.mapreduce.LoadIncrementalHFiles;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.opencb.opencga.storage.hadoop.auth.HBaseCredentials;
 import org.slf4j.Logger;
@@ -300,6 +302,30 @@ public class HBaseManager implements AutoCloseable {
         }
     }
 
+    /**
+     * Bulk load all the HFiles from a directory into a table.
+     * The directory is expected to have one subdirectory per column family.
+     *
+     * @param tableName Table name
+     * @param hfilesDir Directory with the HFiles to load
+     * @throws IOException If any IO problem occurs
+     */
+    public void bulkLoad(String tableName, Path hfilesDir) throws IOException {
+        LOGGER.info("Bulk load HFiles from {} into table {}", hfilesDir, tableName);
+        LoadIncrementalHFiles loader;
+        try {
+            loader = new LoadIncrementalHFiles(conf);
+        } catch (Exception e) {
+            throw new IOException("Unable to bulk load into table " + tableName, e);
+        }
+        act(tableName, (table, admin) -> {
+            try (RegionLocator regionLocator = getConnection().getRegionLocator(table.getName())) {
+                loader.doBulkLoad(hfilesDir, admin, table, regionLocator);
+            }
+            return null;
+        });
+    }
+
     public List<TableName> listTables() throws IOException {
         try (Admin admin = getConnection().getAdmin()) {
             HTableDescriptor[] hTableDescriptors = admin.listTables();
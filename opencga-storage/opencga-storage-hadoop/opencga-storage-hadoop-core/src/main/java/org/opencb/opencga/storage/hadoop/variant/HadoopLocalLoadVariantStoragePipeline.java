@@ -45,6 +45,8 @@ import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
 import org.opencb.opencga.storage.core.variant.dedup.AbstractDuplicatedVariantsResolver;
 import org.opencb.opencga.storage.core.variant.dedup.DuplicatedVariantsResolverFactory;
 import org.opencb.opencga.storage.core.variant.io.VariantReaderUtils;
+import org.opencb.opencga.storage.hadoop.utils.AbstractHBaseDataWriter;
+import org.opencb.opencga.storage.hadoop.utils.HBaseBulkLoader;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.VariantHadoopDBAdaptor;
 import org.opencb.opencga.storage.hadoop.variant.archive.ArchiveTableHelper;
 import org.opencb.opencga.storage.hadoop.variant.archive.VariantHBaseArchiveDataWriter;
@@ -505,7 +507,7 @@ public class HadoopLocalLoadVariantStoragePipeline extends HadoopVariantStorageP
         if (YesNoAuto.parse(getOptions(), LOAD_ARCHIVE.key()) == YesNoAuto.NO) {
             return null;
         } else {
-            return new VariantHBaseArchiveDataWriter(helper, table, dbAdaptor.getHBaseManager());
+            return setBulkLoad(new VariantHBaseArchiveDataWriter(helper, table, dbAdaptor.getHBaseManager()), table);
         }
     }
 
@@ -517,13 +519,14 @@ public class HadoopLocalLoadVariantStoragePipeline extends HadoopVariantStorageP
         SampleIndexDBLoader sampleIndexDBLoader;
         SampleIndexDBAdaptor sampleIndexDbAdaptor = new SampleIndexDBAdaptor(
                 dbAdaptor.getHBaseManager(), dbAdaptor.getTableNameGenerator(), getMetadataManager());
+        String sampleIndexTable = dbAdaptor.getTableNameGenerator().getSampleIndexTableName(helper.getStudyId());
         sampleIndexDBLoader = new SampleIndexDBLoader(sampleIndexDbAdaptor, dbAdaptor.getHBaseManager(),
-                dbAdaptor.getTableNameGenerator().getSampleIndexTableName(helper.getStudyId()),
+                sampleIndexTable,
                 getMetadataManager(),
                 getStudyId(), getFileId(), sampleIds,
                 VariantStorageEngine.SplitData.from(getOptions()),
                 getOptions());
-        return sampleIndexDBLoader;
+        return setBulkLoad(sampleIndexDBLoader, sampleIndexTable);
     }
 
     private VariantHadoopDBWriter newVariantHadoopDBWriter() throws StorageEngineException {
@@ -533,12 +536,20 @@ public class HadoopLocalLoadVariantStoragePipeline extends HadoopVariantStorageP
         boolean excludeGenotypes = getOptions().getBoolean(
                 EXCLUDE_GENOTYPES.key(),
                 EXCLUDE_GENOTYPES.defaultValue());
-        return new VariantHadoopDBWriter(
+        return setBulkLoad(new VariantHadoopDBWriter(
                 dbAdaptor.getCredentials().getTable(),
                 getStudyId(),
                 getFileId(),
                 getMetadataManager(),
-                dbAdaptor.getHBaseManager(), includeReferenceVariantsData, excludeGenotypes);
+                dbAdaptor.getHBaseManager(), includeReferenceVariantsData, excludeGenotypes), dbAdaptor.getCredentials().getTable());
+    }
+
+    private <W extends AbstractHBaseDataWriter<?, ?>> W setBulkLoad(W writer, String table) {
+        if (getOptions().getBoolean(BULK_LOAD.key(), BULK_LOAD.defaultValue())) {
+            writer.setBulkLoadStagingDir(HBaseBulkLoader.getStagingDir(dbAdaptor.getHBaseManager().getConf(),
+                    getOptions().getString(BULK_LOAD_STAGING_DIR.key()), table));
+        }
+        return writer;
     }
 
     protected static class GroupedVariantsTask implements Task<ImmutablePair<Long, List<Variant>>, Object> {
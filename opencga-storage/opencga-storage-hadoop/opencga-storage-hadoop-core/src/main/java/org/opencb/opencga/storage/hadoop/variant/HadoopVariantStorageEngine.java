@@ -88,12 +88,15 @@ import org.opencb.opencga.storage.hadoop.variant.index.SampleIndexVariantQueryEx
 import org.opencb.opencga.storage.hadoop.variant.index.family.FamilyIndexDriver;
 import org.opencb.opencga.storage.hadoop.variant.index.sample.*;
 import org.opencb.opencga.storage.hadoop.variant.io.HadoopVariantExporter;
+import org.opencb.opencga.storage.hadoop.variant.postload.PostLoadDriver;
+import org.opencb.opencga.storage.hadoop.variant.postload.PostLoadManager;
 import org.opencb.opencga.storage.hadoop.variant.score.HadoopVariantScoreLoader;
 import org.opencb.opencga.storage.hadoop.variant.score.HadoopVariantScoreRemover;
 import org.opencb.opencga.storage.hadoop.variant.search.HadoopVariantSearchLoadListener;
 import org.opencb.opencga.storage.hadoop.variant.search.SecondaryIndexPendingVariantsManager;
 import org.opencb.opencga.storage.hadoop.variant.stats.HadoopDefaultVariantStatisticsManager;
 import org.opencb.opencga.storage.hadoop.variant.stats.HadoopMRVariantStatisticsManager;
+import org.opencb.opencga.storage.hadoop.variant.stats.VariantStatsConsumer;
 import org.opencb.opencga.storage.hadoop.variant.utils.HBaseVariantTableNameGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -411,6 +414,66 @@ public class HadoopVariantStorageEngine extends VariantStorageEngine implements
     }
 
 
+    /**
+     * Run the pending operations over the variants table after loading new files, reading the table only once.
+     * Consumers selected with {@link HadoopVariantStorageOptions#POST_LOAD_CONSUMERS}. If empty, run all of them.
+     *
+     * @param study   Study
+     * @param options Other options
+     * @throws StorageEngineException on error
+     */
+    public void postLoad(String study, ObjectMap options) throws StorageEngineException {
+        options = getMergedOptions(options);
+        List<String> consumers = getPostLoadConsumers(options);
+        if (consumers.isEmpty()) {
+            consumers = new ArrayList<>(PostLoadDriver.getConsumerNames());
+        }
+        postLoad(study, consumers, options);
+    }
+
+    private void postLoad(String study, List<String> consumers, ObjectMap options) throws StorageEngineException {
+        new PostLoadManager(getDBAdaptor(), getMRExecutor()).run(study, consumers, options);
+    }
+
+    private List<String> getPostLoadConsumers(ObjectMap options) {
+        String consumers = options.getString(POST_LOAD_CONSUMERS.key(), POST_LOAD_CONSUMERS.defaultValue());
+        if (StringUtils.isBlank(consumers)) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(Arrays.asList(consumers.split(",")));
+    }
+
+    @Override
+    protected void annotateLoadedFiles(URI outdirUri, List<URI> files, List<StoragePipelineResult> results, ObjectMap options)
+            throws StoragePipelineException {
+        if (files != null && !files.isEmpty()) {
+            List<String> consumers = getPostLoadConsumers(options);
+            if (!options.getBoolean(VariantStorageOptions.STATS_CALCULATE.key(), VariantStorageOptions.STATS_CALCULATE.defaultValue())) {
+                consumers.remove(VariantStatsConsumer.NAME);
+            }
+            if (!consumers.isEmpty()) {
+                // Run the post load pass before the annotation. The pending variants to annotate discovered here
+                // are not discovered again by the annotation manager.
+                try {
+                    postLoad(options.getString(VariantStorageOptions.STUDY.key()), consumers, options);
+                } catch (RuntimeException | StorageEngineException e) {
+                    throw new StoragePipelineException("Error executing post load.", e, results);
+                }
+            }
+        }
+        super.annotateLoadedFiles(outdirUri, files, results, options);
+    }
+
+    @Override
+    protected void calculateStatsForLoadedFiles(URI output, List<URI> files, List<StoragePipelineResult> results, ObjectMap options)
+            throws StoragePipelineException {
+        if (getPostLoadConsumers(options).contains(VariantStatsConsumer.NAME)) {
+            logger.info("Stats already calculated in the post load pass");
+            return;
+        }
+        super.calculateStatsForLoadedFiles(output, files, results, options);
+    }
+
     @Override
     public VariantStatisticsManager newVariantStatisticsManager() throws StorageEngineException {
         // By default, execute a MR to calculate statistics
@@ -1048,7 +1111,7 @@ public class HadoopVariantStorageEngine extends VariantStorageEngine implements
 
     public MRExecutor getMRExecutor() throws StorageEngineException {
         if (mrExecutor == null) {
-            mrExecutor = MRExecutorFactory.getMRExecutor(getOptions());
+            mrExecutor = MRExecutorFactory.getMRExecutor(getOptions(), getHadoopConfiguration());
         }
         return mrExecutor;
     }
@@ -11,6 +11,8 @@ public enum HadoopVariantStorageOptions implements ConfigurationOption {
     EXPECTED_FILES_NUMBER("expected_files_number", 5000),
     EXPECTED_SAMPLES_NUMBER("expected_samples_number"),
     DBADAPTOR_PHOENIX_FETCH_SIZE("storage.hadoop.phoenix.fetchSize", -1),
+    // Number of region scans to run concurrently on HBase native queries. Use 1 to run them sequentially.
+    DBADAPTOR_HBASE_PARALLEL_SCANS("storage.hadoop.hbase.parallelScans", 1),
 
     /////////////////////////
     // MapReduce configuration
@@ -55,6 +57,20 @@ public enum HadoopVariantStorageOptions implements ConfigurationOption {
     MR_EXECUTOR_SSH_KEY("storage.hadoop.mr.executor.ssh.key"),
     MR_EXECUTOR_SSH_PASSWORD("storage.hadoop.mr.executor.ssh.password"),
     MR_EXECUTOR_SSH_REMOTE_OPENCGA_HOME("storage.hadoop.mr.executor.ssh.remoteOpenCgaHome"),
+    /**
+     * Run MapReduce jobs in the current JVM, with a local job runner, if the size of the input tables is below this limit.
+     * Jobs are never run locally if {@link #MR_HADOOP_ENV} is defined. Disabled by default. e.g. 536870912 (512MB)
+     */
+    MR_EXECUTOR_LOCAL_MAX_INPUT_SIZE("storage.hadoop.mr.executor.local.maxInputSize", 0),
+    // Number of concurrent map and reduce tasks of the local job runner
+    MR_EXECUTOR_LOCAL_THREADS("storage.hadoop.mr.executor.local.numThreads", 4),
+    /**
+     * Write sorted HFiles and bulk load them instead of sending Put operations to the RegionServers.
+     * Used by the local load pipeline (archive, variants and sample index tables), the ArchiveDriver and the SampleIndexDriver.
+     */
+    BULK_LOAD("storage.hadoop.bulkLoad", false),
+    // Directory where the HFiles are written before being bulk loaded. Defaults to "hbase.fs.tmp.dir"
+    BULK_LOAD_STAGING_DIR("storage.hadoop.bulkLoad.stagingDir"),
 
     /////////////////////////
     // Variant table configuration
@@ -88,6 +104,18 @@ public enum HadoopVariantStorageOptions implements ConfigurationOption {
     SAMPLE_INDEX_TABLE_PRESPLIT_SIZE("storage.hadoop.sampleIndex.table.preSplit.samplesPerSplit", 15),
     SAMPLE_INDEX_BUILD_MAX_SAMPLES_PER_MR("storage.hadoop.sampleIndex.build.maxSamplesPerMR", 5000),
     SAMPLE_INDEX_ANNOTATION_MAX_SAMPLES_PER_MR("storage.hadoop.sampleIndex.annotation.maxSamplesPerMR", 5000),
+    // Number of threads shared by all queries to read the SampleIndex ahead of the consumer. Use 0 to disable.
+    SAMPLE_INDEX_QUERY_PREFETCH_THREADS("storage.hadoop.sampleIndex.query.prefetch.numThreads", 8),
+    // Max number of rows (batches of SampleIndexSchema.BATCH_SIZE bases) read ahead for each sample.
+    SAMPLE_INDEX_QUERY_PREFETCH_BATCHES("storage.hadoop.sampleIndex.query.prefetch.batches", 4),
+    // Max size of the rows read ahead by all the queries.
+    SAMPLE_INDEX_QUERY_PREFETCH_MAX_MEMORY("storage.hadoop.sampleIndex.query.prefetch.maxMemory", 256 * 1024 * 1024), // 256MB
+    // Filter the SampleIndex within the RegionServers. Requires the opencga-storage-hadoop-core jar in the RegionServers classpath.
+    // If missing, or from a different version, the filter is applied at the client side.
+    SAMPLE_INDEX_QUERY_SERVER_SIDE_FILTER("storage.hadoop.sampleIndex.query.serverSideFilter", true),
+    // Time (ms) to remember if the server side filter can be used for a table. Once expired, the RegionServers are probed again.
+    SAMPLE_INDEX_QUERY_SERVER_SIDE_FILTER_PROBE_TIMEOUT("storage.hadoop.sampleIndex.query.serverSideFilter.probeTimeout",
+            10 * 60 * 1000), // 10min
 
     /////////////////////////
     // Annotation index table  configuration
@@ -101,7 +129,10 @@ public enum HadoopVariantStorageOptions implements ConfigurationOption {
     INTERMEDIATE_HDFS_DIRECTORY("storage.hadoop.intermediate.hdfs.directory"),
     FILL_MISSING_WRITE_MAPPERS_LIMIT_FACTOR("storage.hadoop.fill_missing.write.mappers.limit.factor", 1.5F),
     FILL_MISSING_SIMPLIFIED_MULTIALLELIC_VARIANTS("storage.hadoop.fill_missing.simplifiedMultiAllelicVariants", true),
-    STATS_LOCAL("storage.hadoop.stats.local", false);
+    STATS_LOCAL("storage.hadoop.stats.local", false),
+    // Operations to run in the post load pass after indexing new files, sharing one single scan over the variants table.
+    // Any of: sampleIndexAnnotation, familyIndex, stats, annotationPending. If empty, run the separated jobs.
+    POST_LOAD_CONSUMERS("storage.hadoop.postLoad.consumers", "");
 
     private final String key;
     private final Object value;
@@ -120,8 +120,8 @@ public abstract class HadoopVariantStoragePipeline extends VariantStoragePipelin
     }
 
     @Override
-    protected ParallelTaskRunner transformProto(VariantFileMetadata fileMetadata, URI outputVariantsFile,
-                                                DataReader<String> stringReader, Supplier<Task<String, Variant>> task)
+    protected <I> ParallelTaskRunner transformProto(VariantFileMetadata fileMetadata, URI outputVariantsFile,
+                                                    DataReader<I> stringReader, Supplier<Task<I, Variant>> task)
             throws StorageEngineException {
 
         int sliceBufferSize = options.getInt(ARCHIVE_SLICE_BUFFER_SIZE.key(), ARCHIVE_SLICE_BUFFER_SIZE.defaultValue());
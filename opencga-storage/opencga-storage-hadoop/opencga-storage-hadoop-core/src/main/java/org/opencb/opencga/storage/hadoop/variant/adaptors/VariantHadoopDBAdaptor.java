@@ -52,6 +52,7 @@ import org.opencb.opencga.storage.hadoop.utils.HBaseManager;
 import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
 import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageEngine;
 import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions;
+import org.opencb.opencga.storage.hadoop.variant.adaptors.iterators.VariantHBaseParallelScanIterator;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.iterators.VariantHBaseResultSetIterator;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.iterators.VariantHBaseScanIterator;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.PhoenixHelper;
@@ -105,6 +106,7 @@ public class VariantHadoopDBAdaptor implements VariantDBAdaptor {
     private final VariantHBaseQueryParser hbaseQueryParser;
     private final HBaseFileMetadataDBAdaptor variantFileMetadataDBAdaptor;
     private final int phoenixFetchSize;
+    private final int hbaseParallelScans;
     private boolean clientSideSkip;
     private HBaseManager hBaseManager;
 
@@ -135,6 +137,9 @@ public class VariantHadoopDBAdaptor implements VariantDBAdaptor {
         phoenixFetchSize = options.getInt(
                 HadoopVariantStorageOptions.DBADAPTOR_PHOENIX_FETCH_SIZE.key(),
                 HadoopVariantStorageOptions.DBADAPTOR_PHOENIX_FETCH_SIZE.defaultValue());
+        hbaseParallelScans = options.getInt(
+                HadoopVariantStorageOptions.DBADAPTOR_HBASE_PARALLEL_SCANS.key(),
+                HadoopVariantStorageOptions.DBADAPTOR_HBASE_PARALLEL_SCANS.defaultValue());
 
         phoenixHelper = new PhoenixHelper(this.configuration);
 
@@ -398,6 +403,21 @@ public class VariantHadoopDBAdaptor implements VariantDBAdaptor {
         if (hbaseIterator) {
             logger.debug("Creating " + VariantHBaseScanIterator.class.getSimpleName() + " iterator");
             List<Scan> scans = hbaseQueryParser.parseQueryMultiRegion(variantQuery, options);
+            int parallelScans = options.getInt(HadoopVariantStorageOptions.DBADAPTOR_HBASE_PARALLEL_SCANS.key(), hbaseParallelScans);
+            if (parallelScans > 1 && scans.size() > 1) {
+                logger.debug("Creating " + VariantHBaseParallelScanIterator.class.getSimpleName() + " iterator");
+                VariantHBaseParallelScanIterator iterator = new VariantHBaseParallelScanIterator(scans,
+                        scan -> hBaseManager.getScanner(variantTable, scan), parallelScans,
+                        metadataManager, converterConfiguration, options);
+
+                // Client side skip!
+                int skip = options.getInt(QueryOptions.SKIP, -1);
+                if (skip > 0) {
+                    logger.info("Client side skip! skip = {}", skip);
+                    iterator.skip(skip);
+                }
+                return iterator;
+            }
             Iterator<ResultScanner> resScans = scans.stream().map(scan -> {
                 try {
                     return hBaseManager.getScanner(variantTable, scan);
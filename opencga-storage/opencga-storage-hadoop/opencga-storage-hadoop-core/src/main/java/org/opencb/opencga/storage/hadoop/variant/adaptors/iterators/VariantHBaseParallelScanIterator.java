@@ -0,0 +1,256 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.hadoop.variant.adaptors.iterators;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryException;
+import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
+import org.opencb.opencga.storage.hadoop.variant.converters.HBaseToVariantConverter;
+import org.opencb.opencga.storage.hadoop.variant.converters.HBaseVariantConverterConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Variant iterator running multiple HBase scans concurrently. Results are converted to variants in the same worker threads.
+ *
+ * If {@link QueryOptions#SORT} is set, scans are sorted by start row, and the variants from each scan are returned
+ * after all the variants from the previous scan, so the output is sorted as if it was read from one single scan.
+ * Otherwise, variants are returned in arrival order.
+ */
+public class VariantHBaseParallelScanIterator extends VariantDBIterator {
+
+    private static final int BATCH_SIZE = 50;
+    private static final int QUEUE_SIZE = 10;
+    private static final Chunk END_OF_SCAN = new Chunk(null, null);
+
+    private final Logger logger = LoggerFactory.getLogger(VariantHBaseParallelScanIterator.class);
+    private final List<Scan> scans;
+    private final ScannerFactory scannerFactory;
+    private final HBaseToVariantConverter<Result> converter;
+    private final boolean sorted;
+    private final int numThreads;
+    private final ExecutorService threadPool;
+    // One queue per scan if sorted. One single queue otherwise.
+    private final List<BlockingQueue<Chunk>> queues;
+    private final AtomicInteger nextScan = new AtomicInteger(0);
+    private final Set<ResultScanner> scanners = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final AtomicLong timeConverting = new AtomicLong();
+    private volatile boolean closed = false;
+
+    private int finishedScans = 0;
+    private Iterator<Variant> buffer = Collections.emptyIterator();
+    private long limit = Long.MAX_VALUE;
+    private int count = 0;
+
+    @FunctionalInterface
+    public interface ScannerFactory {
+        ResultScanner getScanner(Scan scan) throws IOException;
+    }
+
+    public VariantHBaseParallelScanIterator(List<Scan> scans, ScannerFactory scannerFactory, int numThreads,
+                                            VariantStorageMetadataManager metadataManager,
+                                            HBaseVariantConverterConfiguration configuration, QueryOptions options) {
+        this.scannerFactory = scannerFactory;
+        this.sorted = options.getBoolean(QueryOptions.SORT, false);
+        if (sorted) {
+            this.scans = new ArrayList<>(scans);
+            this.scans.sort((s1, s2) -> Bytes.compareTo(s1.getStartRow(), s2.getStartRow()));
+        } else {
+            this.scans = scans;
+        }
+        converter = HBaseToVariantConverter.fromResult(metadataManager).configure(configuration);
+        setLimit(options.getLong(QueryOptions.LIMIT, Long.MAX_VALUE));
+
+        if (sorted) {
+            queues = new ArrayList<>(this.scans.size());
+            for (int i = 0; i < this.scans.size(); i++) {
+                queues.add(new ArrayBlockingQueue<>(QUEUE_SIZE));
+            }
+        } else {
+            queues = Collections.singletonList(new ArrayBlockingQueue<>(QUEUE_SIZE * numThreads));
+        }
+
+        this.numThreads = Math.max(1, Math.min(numThreads, this.scans.size()));
+        threadPool = Executors.newFixedThreadPool(this.numThreads, new ThreadFactoryBuilder()
+                .setNameFormat("variant-hbase-scan-%d")
+                .setDaemon(true)
+                .build());
+        for (int i = 0; i < this.numThreads; i++) {
+            threadPool.submit(this::scanWorker);
+        }
+        logger.info("Running {} scans with {} threads. Sorted: {}", this.scans.size(), this.numThreads, sorted);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (count >= limit) {
+            // Limit reached
+            return false;
+        }
+        while (!buffer.hasNext()) {
+            if (finishedScans == scans.size()) {
+                return false;
+            }
+            Chunk chunk = fetch(this::takeChunk);
+            if (chunk.error != null) {
+                if (chunk.error instanceof RuntimeException) {
+                    throw (RuntimeException) chunk.error;
+                } else {
+                    throw VariantQueryException.internalException(chunk.error);
+                }
+            }
+            if (chunk == END_OF_SCAN) {
+                finishedScans++;
+            } else {
+                buffer = chunk.variants.iterator();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Variant next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("Limit reached");
+        }
+        count++;
+        return buffer.next();
+    }
+
+    private Chunk takeChunk() {
+        // If sorted, read the scans in order. The first non finished scan is at position "finishedScans"
+        BlockingQueue<Chunk> queue = sorted ? queues.get(finishedScans) : queues.get(0);
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw VariantQueryException.internalException(e);
+        }
+    }
+
+    private void scanWorker() {
+        int scanIdx;
+        while (!closed && (scanIdx = nextScan.getAndIncrement()) < scans.size()) {
+            BlockingQueue<Chunk> queue = sorted ? queues.get(scanIdx) : queues.get(0);
+            try {
+                try (ResultScanner scanner = scannerFactory.getScanner(scans.get(scanIdx))) {
+                    scanners.add(scanner);
+                    List<Result> results = new ArrayList<>(BATCH_SIZE);
+                    for (Result result = scanner.next(); result != null && !closed; result = scanner.next()) {
+                        results.add(result);
+                        if (results.size() == BATCH_SIZE) {
+                            queue.put(new Chunk(convert(results), null));
+                            results.clear();
+                        }
+                    }
+                    if (!results.isEmpty()) {
+                        queue.put(new Chunk(convert(results), null));
+                    }
+                    scanners.remove(scanner);
+                }
+                queue.put(END_OF_SCAN);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                try {
+                    queue.put(new Chunk(null, e));
+                } catch (InterruptedException interruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                return;
+            }
+        }
+    }
+
+    private List<Variant> convert(List<Result> results) {
+        long start = System.nanoTime();
+        List<Variant> variants = new ArrayList<>(results.size());
+        for (Result result : results) {
+            variants.add(converter.convert(result));
+        }
+        timeConverting.addAndGet(System.nanoTime() - start);
+        return variants;
+    }
+
+    @Override
+    public void close() throws Exception {
+        closed = true;
+        super.close();
+        double timeConverting = getTimeConverting() / 1000000.0;
+        logger.debug("Close variant iterator. Fetch = {}ms, Convert = {}ms (total)   ~{}ms/thread",
+                getTimeFetching() / 1000000.0,
+                timeConverting,
+                timeConverting / numThreads);
+        // Interrupt workers blocked in full queues
+        threadPool.shutdownNow();
+        if (!threadPool.awaitTermination(1, TimeUnit.MINUTES)) {
+            logger.warn("Timeout waiting for scan workers to finish");
+        }
+        for (ResultScanner scanner : scanners) {
+            scanner.close();
+        }
+    }
+
+    @Override
+    public long getTimeConverting() {
+        return super.timeConverting + timeConverting.get();
+    }
+
+    @Override
+    public int getCount() {
+        return count;
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+
+    protected void setLimit(long limit) {
+        this.limit = limit < 0 ? Long.MAX_VALUE : limit;
+    }
+
+    public void skip(int skip) {
+        while (skip > 0 && hasNext()) {
+            skip--;
+            buffer.next();
+        }
+    }
+
+    private static final class Chunk {
+        private final List<Variant> variants;
+        private final Exception error;
+
+        private Chunk(List<Variant> variants, Exception error) {
+            this.variants = variants;
+            this.error = error;
+        }
+    }
+}
@@ -11,8 +11,6 @@ import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Reducer;
 import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
 import org.opencb.biodata.models.variant.Variant;
-import org.opencb.biodata.models.variant.avro.ConsequenceType;
-import org.opencb.biodata.models.variant.avro.VariantAnnotation;
 import org.opencb.biodata.models.variant.stats.VariantStats;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
@@ -25,6 +23,7 @@ import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantField;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryException;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
+import org.opencb.opencga.storage.core.variant.stats.GwasTestCalculator;
 import org.opencb.opencga.storage.hadoop.variant.AbstractVariantsTableDriver;
 import org.opencb.opencga.storage.hadoop.variant.converters.VariantRow;
 import org.opencb.opencga.storage.hadoop.variant.metadata.HBaseVariantStorageMetadataDBAdaptorFactory;
@@ -32,8 +31,6 @@ import org.opencb.opencga.storage.hadoop.variant.mr.VariantMapReduceUtil;
 import org.opencb.opencga.storage.hadoop.variant.mr.VariantRowMapper;
 import org.opencb.opencga.storage.hadoop.variant.mr.VariantTableHelper;
 import org.opencb.opencga.storage.hadoop.variant.stats.HBaseVariantStatsCalculator;
-import org.opencb.oskar.analysis.stats.FisherExactTest;
-import org.opencb.oskar.analysis.stats.FisherTestResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -54,6 +51,8 @@ public class FisherTestDriver extends AbstractVariantsTableDriver {
 //    public static final String MOVE_TO_LOCAL = "move-to-local";
     public static final String CASE_COHORT = "caseCohort";
     public static final String CONTROL_COHORT = "controlCohort";
+    // Add the allelic chi-square test to the output
+    public static final String CHI_SQUARE = "chiSquare";
 //    public static final String DELETE_COHORTS = "deleteCohorts";
 
     private static final String CASE_COHORT_IDS = "caseCohortIds";
@@ -82,6 +81,7 @@ public class FisherTestDriver extends AbstractVariantsTableDriver {
         params.put("--" + CONTROL_COHORT, "<control-cohort>*");
 //        params.put("--" + MOVE_TO_LOCAL, "<local-output>");
 //        params.put("--" + DELETE_COHORTS, "<true|false>");
+        params.put("--" + CHI_SQUARE, "<true|false>");
         params.put("--" + VariantQueryParam.REGION.key(), "<region>");
         return params;
     }
@@ -238,6 +238,7 @@ public class FisherTestDriver extends AbstractVariantsTableDriver {
     public static class FisherTestMapper  extends VariantRowMapper<NullWritable, Text> {
         protected HBaseVariantStatsCalculator caseCohortCalculator;
         protected HBaseVariantStatsCalculator controlCohortCalculator;
+        protected GwasTestCalculator gwasTestCalculator;
 
         @Override
         protected void setup(Context context) throws IOException, InterruptedException {
@@ -255,6 +256,7 @@ public class FisherTestDriver extends AbstractVariantsTableDriver {
                     metadataManager, studyMetadata, caseCohortIds, false, "0/0");
             controlCohortCalculator = new HBaseVariantStatsCalculator(
                     metadataManager, studyMetadata, controlCohortIds, false, "0/0");
+            gwasTestCalculator = new GwasTestCalculator(configuration.getBoolean(CHI_SQUARE, false));
         }
 
         @Override
@@ -268,46 +270,13 @@ public class FisherTestDriver extends AbstractVariantsTableDriver {
             int c = caseStats.getAltAlleleCount(); // case #ALT
             int d = controlStats.getAltAlleleCount(); // control #ALT
 
-            if (a + b + c + d == 0) {
+            String line = gwasTestCalculator.test(variant, result.getVariantAnnotation(), a, b, c, d,
+                    caseStats.getAlleleCount(), controlStats.getAlleleCount(), null);
+            if (line == null) {
                 context.getCounter(COUNTER_GROUP_NAME, "Empty variant").increment(1);
             } else {
                 context.getCounter(COUNTER_GROUP_NAME, "Variant").increment(1);
-                FisherTestResult fisherTestResult = new FisherExactTest().fisherTest(a, b, c, d);
-
-                VariantAnnotation variantAnnotation = result.getVariantAnnotation();
-                String id = null;
-                Set<String> genes = Collections.emptySet();
-                if (variantAnnotation != null) {
-                    id = variantAnnotation.getId();
-                    genes = new HashSet<>();
-                    if (variantAnnotation.getConsequenceTypes() != null) {
-                        for (ConsequenceType consequenceType : variantAnnotation.getConsequenceTypes()) {
-                            if (StringUtils.isNotEmpty(consequenceType.getGeneName())) {
-                                genes.add(consequenceType.getGeneName());
-                            }
-                        }
-                    }
-                }
-                if (StringUtils.isEmpty(id)) {
-                    id = variant.toString();
-                }
-                if (genes.isEmpty()) {
-                    genes = Collections.singleton(".");
-                }
-
-                context.write(NullWritable.get(), tsv(
-                        id,
-                        variant.toString(),
-                        variant.getChromosome(), variant.getStart(), variant.getReference(), variant.getAlternate(),
-                        String.join(",", genes),
-                        a, b, c, d,
-                        caseStats.getAlleleCount(),
-                        controlStats.getAlleleCount(),
-                        caseStats.getAltAlleleFreq(),
-                        controlStats.getAltAlleleFreq(),
-                        fisherTestResult.getpValue(),
-                        fisherTestResult.getOddRatio()
-                ));
+                context.write(NullWritable.get(), new Text(line));
             }
         }
     }
@@ -335,62 +304,22 @@ public class FisherTestDriver extends AbstractVariantsTableDriver {
                 StudyMetadata studyMetadata = metadataManager.getStudyMetadata(helper.getStudyId());
                 ProjectMetadata projectMetadata = metadataManager.getProjectMetadata();
 
-
-                context.write(NullWritable.get(),
-                        tsv("##GWAS=Fisher_test"));
-                context.write(NullWritable.get(),
-                        tsv("##date=" + new Date().toString()));
-                context.write(NullWritable.get(),
-                        tsv("##study=" + studyMetadata.getName()));
-                context.write(NullWritable.get(),
-                        tsv("##species=" + projectMetadata.getSpecies()));
-                context.write(NullWritable.get(),
-                        tsv("##assembly=" + projectMetadata.getAssembly()));
-                context.write(NullWritable.get(),
-                        tsv("##case=" + caseCohortIds.stream()
-                                .map(id -> metadataManager.getSampleName(studyMetadata.getId(), id)).collect(Collectors.joining(","))));
-                context.write(NullWritable.get(),
-                        tsv("##control=" + controlCohortIds.stream()
-                                .map(id -> metadataManager.getSampleName(studyMetadata.getId(), id)).collect(Collectors.joining(","))));
-                context.write(NullWritable.get(),
-                        tsv("#ID",
-                                "VAR",
-                                "CHROM",
-                                "POS",
-                                "REF",
-                                "ALT",
-                                "GENES",
-                                "REF_CASE(a)",
-                                "REF_CONTROL(b)",
-                                "ALT_CASE(c)",
-                                "ALT_CONTROL(d)",
-                                "AN_CASE",
-                                "AN_CONTROL",
-                                "AF_CASE",
-                                "AF_CONTROL",
-                                "P_VALUE",
-                                "ODD_RATIO"
-                        ));
+                boolean chiSquare = context.getConfiguration().getBoolean(CHI_SQUARE, false);
+                Map<String, Object> metadata = new LinkedHashMap<>();
+                metadata.put("GWAS", chiSquare ? "Chi_square_test" : "Fisher_test");
+                metadata.put("date", new Date().toString());
+                metadata.put("study", studyMetadata.getName());
+                metadata.put("species", projectMetadata.getSpecies());
+                metadata.put("assembly", projectMetadata.getAssembly());
+                metadata.put("case", caseCohortIds.stream()
+                        .map(id -> metadataManager.getSampleName(studyMetadata.getId(), id)).collect(Collectors.joining(",")));
+                metadata.put("control", controlCohortIds.stream()
+                        .map(id -> metadataManager.getSampleName(studyMetadata.getId(), id)).collect(Collectors.joining(",")));
+                for (String line : new GwasTestCalculator(chiSquare).getHeader(metadata)) {
+                    context.write(NullWritable.get(), new Text(line));
                 }
-        }
-    }
-
-    private static Text tsv(Object... objects) {
-        StringJoiner joiner = new StringJoiner("\t");
-        for (Object object : objects) {
-            final String toString;
-            if (object instanceof Double) {
-                if (((Double) object).isNaN() || ((Double) object).isInfinite()) {
-                    toString = "NA";
-                } else {
-                    toString = object.toString();
-                }
-            } else {
-                toString = object.toString();
             }
-            joiner.add(toString);
         }
-        return new Text(joiner.toString());
     }
 
     @SuppressWarnings("unchecked")
@@ -25,8 +25,9 @@ public class GwasHBaseMapReduceAnalysisExecutor extends GwasAnalysisExecutor imp
         List<String> samples1 = getSampleList1();
         List<String> samples2 = getSampleList2();
 
-        if (getConfiguration().getMethod().equals(GwasConfiguration.Method.CHI_SQUARE_TEST)) {
-            addWarning("Unable to calculate chi-square test.");
+        if (getExecutorParams().getBoolean("logisticRegression")) {
+            // Per sample genotypes are not available from the cohort stats calculated in the mappers
+            addWarning("Unable to calculate logistic regression.");
         }
 
         HadoopVariantStorageEngine engine = getHadoopVariantStorageEngine();
@@ -41,6 +42,7 @@ public class GwasHBaseMapReduceAnalysisExecutor extends GwasAnalysisExecutor imp
             ObjectMap params = new ObjectMap()
                     .append(FisherTestDriver.CASE_COHORT, samples1)
                     .append(FisherTestDriver.CONTROL_COHORT, samples2)
+                    .append(FisherTestDriver.CHI_SQUARE, getConfiguration().getMethod() == GwasConfiguration.Method.CHI_SQUARE_TEST)
                     .append(FisherTestDriver.OUTPUT, getOutputFile().toAbsolutePath().toUri());
             engine.getMRExecutor().run(FisherTestDriver.class, FisherTestDriver.buildArgs(
                     dbAdaptor.getArchiveTableName(studyId),
@@ -0,0 +1,20 @@
+package org.opencb.opencga.storage.hadoop.variant.annotation.pending;
+
+import org.opencb.opencga.storage.hadoop.variant.pending.PendingVariantsConsumer;
+
+/**
+ * {@link PendingVariantsConsumer} for the variants pending to be annotated.
+ */
+public class AnnotationPendingVariantsConsumer extends PendingVariantsConsumer {
+
+    public static final String NAME = "annotationPending";
+
+    public AnnotationPendingVariantsConsumer() {
+        super(new AnnotationPendingVariantsDescriptor());
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+}
@@ -29,6 +29,7 @@ import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.mapreduce.TableMapReduceUtil;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
@@ -39,6 +40,7 @@ import org.opencb.biodata.models.variant.VariantFileMetadata;
 import org.opencb.biodata.models.variant.avro.VariantAvro;
 import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
+import org.opencb.opencga.storage.hadoop.utils.HBaseBulkLoader;
 import org.opencb.opencga.storage.hadoop.utils.HBaseManager;
 import org.opencb.opencga.storage.hadoop.variant.AbstractVariantsTableDriver;
 import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
@@ -46,9 +48,11 @@ import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageEngine;
 import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions;
 import org.opencb.opencga.storage.hadoop.variant.archive.mr.VariantToVcfSliceMapper;
 import org.opencb.opencga.storage.hadoop.variant.archive.mr.VcfSliceCombiner;
+import org.opencb.opencga.storage.hadoop.variant.archive.mr.VcfSliceHFileReducer;
 import org.opencb.opencga.storage.hadoop.variant.archive.mr.VcfSliceReducer;
 import org.opencb.opencga.storage.hadoop.variant.archive.mr.VcfSliceWritable;
 import org.opencb.opencga.storage.hadoop.variant.metadata.HBaseFileMetadataDBAdaptor;
+import org.opencb.opencga.storage.hadoop.variant.mr.VariantMapReduceUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -120,10 +124,20 @@ public class ArchiveDriver extends Configured implements Tool {
         job.setCombinerClass(VcfSliceCombiner.class);
 
 
-        TableMapReduceUtil.initTableReducerJob(tableName, VcfSliceReducer.class, job, null, null, null, null,
-                conf.getBoolean(HadoopVariantStorageOptions.MR_ADD_DEPENDENCY_JARS.key(),
-                        HadoopVariantStorageOptions.MR_ADD_DEPENDENCY_JARS.defaultValue()));
-        job.setMapOutputValueClass(VcfSliceWritable.class);
+        Path bulkLoadDir = null;
+        if (conf.getBoolean(HadoopVariantStorageOptions.BULK_LOAD.key(), HadoopVariantStorageOptions.BULK_LOAD.defaultValue())) {
+            bulkLoadDir = HBaseBulkLoader.getStagingDir(conf, conf.get(HadoopVariantStorageOptions.BULK_LOAD_STAGING_DIR.key()), tableName);
+            job.setMapOutputKeyClass(ImmutableBytesWritable.class);
+            job.setMapOutputValueClass(VcfSliceWritable.class);
+            VariantMapReduceUtil.setOutputHBaseTableBulkLoad(job, tableName, bulkLoadDir);
+            // Replace the default reducer, as the map output value is not a Put or a KeyValue
+            job.setReducerClass(VcfSliceHFileReducer.class);
+        } else {
+            TableMapReduceUtil.initTableReducerJob(tableName, VcfSliceReducer.class, job, null, null, null, null,
+                    conf.getBoolean(HadoopVariantStorageOptions.MR_ADD_DEPENDENCY_JARS.key(),
+                            HadoopVariantStorageOptions.MR_ADD_DEPENDENCY_JARS.defaultValue()));
+            job.setMapOutputValueClass(VcfSliceWritable.class);
+        }
 
         Thread hook = new Thread(() -> {
             try {
@@ -138,6 +152,18 @@ public class ArchiveDriver extends Configured implements Tool {
         boolean succeed = job.waitForCompletion(true);
         Runtime.getRuntime().removeShutdownHook(hook);
 
+        if (bulkLoadDir != null) {
+            try {
+                if (succeed) {
+                    try (HBaseManager hBaseManager = new HBaseManager(conf)) {
+                        hBaseManager.bulkLoad(tableName, bulkLoadDir);
+                    }
+                }
+            } finally {
+                bulkLoadDir.getFileSystem(conf).delete(bulkLoadDir, true);
+            }
+        }
+
         return succeed ? 0 : 1;
     }
 
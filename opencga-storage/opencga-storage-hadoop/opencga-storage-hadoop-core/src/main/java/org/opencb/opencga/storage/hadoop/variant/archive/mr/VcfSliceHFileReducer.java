@@ -0,0 +1,42 @@
+package org.opencb.opencga.storage.hadoop.variant.archive.mr;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.KeyValueUtil;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.opencb.opencga.storage.hadoop.utils.HBaseBulkLoader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Joins the slices of each archive row, as {@link VcfSliceReducer}, and writes the sorted cells to be stored in HFiles.
+ */
+public class VcfSliceHFileReducer extends Reducer<ImmutableBytesWritable, VcfSliceWritable, ImmutableBytesWritable, KeyValue> {
+
+    private final VcfSliceReducer sliceReducer = new VcfSliceReducer();
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        super.setup(context);
+        sliceReducer.setup(context.getConfiguration());
+    }
+
+    @Override
+    protected void reduce(ImmutableBytesWritable key, Iterable<VcfSliceWritable> values, Context context)
+            throws IOException, InterruptedException {
+        Put put = sliceReducer.join(values, context);
+
+        List<Cell> cells = new ArrayList<>();
+        for (List<Cell> familyCells : put.getFamilyCellMap().values()) {
+            cells.addAll(familyCells);
+        }
+        cells.sort(HBaseBulkLoader.CELL_COMPARATOR);
+        for (Cell cell : cells) {
+            context.write(key, KeyValueUtil.copyToNewKeyValue(cell));
+        }
+    }
+}
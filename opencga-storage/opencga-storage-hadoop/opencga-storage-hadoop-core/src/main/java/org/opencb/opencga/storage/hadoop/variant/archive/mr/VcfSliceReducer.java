@@ -16,9 +16,11 @@
 
 package org.opencb.opencga.storage.hadoop.variant.archive.mr;
 
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.mapreduce.TableReducer;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.models.variant.protobuf.VcfSliceProtos.VcfSlice;
 import org.opencb.biodata.tools.variant.converters.proto.VariantToVcfSliceConverter;
@@ -46,8 +48,11 @@ public class VcfSliceReducer extends TableReducer<ImmutableBytesWritable, VcfSli
     @Override
     protected void setup(Context context) throws IOException, InterruptedException {
         super.setup(context);
+        setup(context.getConfiguration());
+    }
 
-        helper = new ArchiveTableHelper(context.getConfiguration());
+    void setup(Configuration conf) throws IOException {
+        helper = new ArchiveTableHelper(conf);
         converterFromSlice = new VcfSliceToVariantListConverter(helper.getFileMetadata()
                 .toVariantStudyMetadata(String.valueOf(helper.getStudyId())));
         converterToSlice = new VariantToVcfSliceConverter();
@@ -56,7 +61,17 @@ public class VcfSliceReducer extends TableReducer<ImmutableBytesWritable, VcfSli
     @Override
     protected void reduce(ImmutableBytesWritable key, Iterable<VcfSliceWritable> values, Context context)
             throws IOException, InterruptedException {
+        context.write(key, join(values, context));
+    }
 
+    /**
+     * Join all the slices of the same archive row.
+     *
+     * @param values  Slices to join
+     * @param context Task context, to count the joined slices
+     * @return        Put with the joined slice
+     */
+    Put join(Iterable<VcfSliceWritable> values, TaskAttemptContext context) {
         List<VcfSlice> slices = new LinkedList<>();
 
         for (VcfSliceWritable vcfSlice : values) {
@@ -79,11 +94,7 @@ public class VcfSliceReducer extends TableReducer<ImmutableBytesWritable, VcfSli
         context.getCounter("OPENCGA.HBASE", "VCF_REDUCE_COUNT").increment(1);
         context.getCounter("OPENCGA.HBASE", "VCF_REDUCE_COUNT_" + slices.size()).increment(1);
 
-        Put put = helper.wrap(joinedSlice);
-
-        context.write(key, put);
-
-
+        return helper.wrap(joinedSlice);
     }
 
     @Override
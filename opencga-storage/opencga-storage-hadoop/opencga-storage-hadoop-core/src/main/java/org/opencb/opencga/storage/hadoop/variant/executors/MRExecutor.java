@@ -17,16 +17,31 @@
 package org.opencb.opencga.storage.hadoop.variant.executors;
 
 import org.apache.commons.lang3.time.StopWatch;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.ClusterStatus;
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.RegionLoad;
+import org.apache.hadoop.hbase.ServerLoad;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.mapreduce.MRConfig;
 import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
 import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.opencga.core.common.IOUtils;
 import org.opencb.opencga.core.common.TimeUtils;
 import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
+import org.opencb.opencga.storage.hadoop.utils.AbstractHBaseDriver;
+import org.opencb.opencga.storage.hadoop.utils.HBaseManager;
+import org.opencb.opencga.storage.hadoop.variant.archive.ArchiveDriver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import static org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions.*;
 
@@ -37,11 +52,28 @@ import static org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOpti
  */
 public abstract class MRExecutor {
 
+    // Max number of concurrent tasks of the LocalJobRunner
+    private static final String LOCAL_MAX_MAPS = "mapreduce.local.map.tasks.maximum";
+    private static final String LOCAL_MAX_REDUCES = "mapreduce.local.reduce.tasks.maximum";
+
     private ObjectMap options;
     private List<String> env;
+    private Configuration conf;
 
     public MRExecutor init(ObjectMap options) {
+        return init(options, null);
+    }
+
+    /**
+     * Initialize the MRExecutor.
+     *
+     * @param options   Storage options
+     * @param conf      Hadoop configuration. If present, small jobs are executed in the current JVM.
+     * @return this
+     */
+    public MRExecutor init(ObjectMap options, Configuration conf) {
         this.options = options;
+        this.conf = conf;
         env = options.getAsStringList(MR_HADOOP_ENV.key());
         return this;
     }
@@ -88,6 +120,9 @@ public abstract class MRExecutor {
 
     @Deprecated
     public <T extends Tool> int run(Class<T> execClass, String[] args, ObjectMap options) throws StorageEngineException {
+        if (isSmallJob(execClass, args, options)) {
+            return runLocal(execClass, args, options);
+        }
         String hadoopRoute = options.getString(MR_HADOOP_BIN.key(), MR_HADOOP_BIN.defaultValue());
         String jar = getJarWithDependencies(options);
         String executable = hadoopRoute + " jar " + jar + ' ' + execClass.getName();
@@ -108,6 +143,104 @@ public abstract class MRExecutor {
 
     public abstract int run(String executable, String[] args) throws StorageEngineException;
 
+    /**
+     * Estimate the size of the job from the size of the regions of the input tables.
+     * Only drivers reading from HBase are considered. The input tables are the main table of the driver and,
+     * if any, the archive table.
+     * Jobs with a custom hadoop environment ({@code storage.hadoop.env}) are always submitted to the cluster, as the
+     * environment can not be applied to the current JVM.
+     *
+     * @param execClass Driver class
+     * @param args      Driver arguments
+     * @param options   Storage options
+     * @param <T>       Driver type
+     * @return if the job can be executed in the current JVM
+     */
+    protected <T extends Tool> boolean isSmallJob(Class<T> execClass, String[] args, ObjectMap options) {
+        long maxInputSize = options.getLong(MR_EXECUTOR_LOCAL_MAX_INPUT_SIZE.key(),
+                ((Number) MR_EXECUTOR_LOCAL_MAX_INPUT_SIZE.defaultValue()).longValue());
+        if (conf == null || maxInputSize <= 0 || args.length == 0 || !AbstractHBaseDriver.class.isAssignableFrom(execClass)) {
+            return false;
+        }
+        Logger logger = LoggerFactory.getLogger(MRExecutor.class);
+        if (env != null && !env.isEmpty()) {
+            logger.info("Job {} requires a custom hadoop environment {}. Run in the cluster", execClass.getSimpleName(), env);
+            return false;
+        }
+        Set<String> tables = new LinkedHashSet<>();
+        tables.add(args[0]);
+        for (int i = 1; i < args.length - 1; i++) {
+            if (args[i].equals(ArchiveDriver.CONFIG_ARCHIVE_TABLE_NAME)) {
+                tables.add(args[i + 1]);
+            }
+        }
+        long inputSize = 0;
+        int regions = 0;
+        try (HBaseManager hBaseManager = new HBaseManager(conf)) {
+            for (String table : tables) {
+                if (!hBaseManager.tableExists(table)) {
+                    continue;
+                }
+                long[] tableSize = hBaseManager.act(table, (t, admin) -> {
+                    ClusterStatus clusterStatus = admin.getClusterStatus();
+                    long size = 0;
+                    int numRegions = 0;
+                    try (RegionLocator regionLocator = admin.getConnection().getRegionLocator(t.getName())) {
+                        for (HRegionLocation location : regionLocator.getAllRegionLocations()) {
+                            numRegions++;
+                            ServerLoad serverLoad = clusterStatus.getLoad(location.getServerName());
+                            RegionLoad regionLoad = serverLoad == null
+                                    ? null
+                                    : serverLoad.getRegionsLoad().get(location.getRegionInfo().getRegionName());
+                            // Include the memstore, as recently loaded data might not be flushed yet.
+                            // Sizes are reported in MB, rounded down. Count at least 1MB per region, so small regions are not
+                            // counted as empty. Also for regions without load information.
+                            long regionSizeMB = regionLoad == null
+                                    ? 0
+                                    : regionLoad.getStorefileSizeMB() + regionLoad.getMemStoreSizeMB();
+                            size += Math.max(1, regionSizeMB) * 1024L * 1024L;
+                        }
+                    }
+                    return new long[]{size, numRegions};
+                });
+                inputSize += tableSize[0];
+                regions += tableSize[1];
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Unable to estimate the size of the job " + execClass.getSimpleName() + " : " + e.getMessage());
+            logger.debug("Error estimating job size", e);
+            return false;
+        }
+        boolean smallJob = inputSize <= maxInputSize;
+        logger.info("Job {} reads {} from {} regions of tables {}. Run {}", execClass.getSimpleName(),
+                IOUtils.humanReadableByteCount(inputSize, false), regions, tables,
+                smallJob ? "in the current JVM" : "in the cluster");
+        return smallJob;
+    }
+
+    /**
+     * Execute the driver in the current JVM using a multithreaded local job runner.
+     *
+     * @param execClass Driver class
+     * @param args      Driver arguments
+     * @param options   Storage options
+     * @param <T>       Driver type
+     * @return Exit value
+     * @throws StorageEngineException if the driver could not be executed
+     */
+    protected <T extends Tool> int runLocal(Class<T> execClass, String[] args, ObjectMap options) throws StorageEngineException {
+        int numThreads = options.getInt(MR_EXECUTOR_LOCAL_THREADS.key(), MR_EXECUTOR_LOCAL_THREADS.defaultValue());
+        Configuration localConf = new Configuration(conf);
+        localConf.set(MRConfig.FRAMEWORK_NAME, MRConfig.LOCAL_FRAMEWORK_NAME);
+        localConf.setInt(LOCAL_MAX_MAPS, numThreads);
+        localConf.setInt(LOCAL_MAX_REDUCES, numThreads);
+        try {
+            return ToolRunner.run(localConf, execClass.newInstance(), args);
+        } catch (Exception e) {
+            throw new StorageEngineException("Error executing " + execClass.getSimpleName() + " in the current JVM", e);
+        }
+    }
+
     protected ObjectMap getOptions() {
         return options;
     }
@@ -1,5 +1,6 @@
 package org.opencb.opencga.storage.hadoop.variant.executors;
 
+import org.apache.hadoop.conf.Configuration;
 import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
 
@@ -13,6 +14,10 @@ import static org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOpti
 public class MRExecutorFactory {
 
     public static MRExecutor getMRExecutor(ObjectMap options) throws StorageEngineException {
+        return getMRExecutor(options, null);
+    }
+
+    public static MRExecutor getMRExecutor(ObjectMap options, Configuration conf) throws StorageEngineException {
         MRExecutor mrExecutor;
         Class<? extends MRExecutor> aClass;
         String executor = options.getString(MR_EXECUTOR.key(), MR_EXECUTOR.defaultValue());
@@ -38,7 +43,7 @@ public class MRExecutorFactory {
         }
 
         // configure MRExecutor
-        mrExecutor.init(options);
+        mrExecutor.init(options, conf);
 
         return mrExecutor;
     }
@@ -40,6 +40,12 @@ public class SampleIndexMendelianErrorQueryExecutor extends SampleIndexVariantQu
         }
     }
 
+    @Override
+    public long estimateCost(Query query, QueryOptions options) {
+        // Mendelian error queries can only be resolved by this executor. Do not compare with other executors.
+        return UNKNOWN_COST;
+    }
+
     @Override
     protected Object getOrIterator(Query query, QueryOptions options, boolean iterator, SampleIndexQuery sampleIndexQuery) {
 
@@ -67,6 +67,29 @@ public class SampleIndexVariantQueryExecutor extends AbstractTwoPhasedVariantQue
         return false;
     }
 
+    /**
+     * Estimate the cost from the genotype and annotation summary counters from the sample index.
+     * If the query is not fully covered by the sample index, these variants will be fetched by id from the variants table.
+     *
+     * @param query    Query to execute
+     * @param options  Options for the query
+     * @return         Estimated cost
+     */
+    @Override
+    public long estimateCost(Query inputQuery, QueryOptions options) {
+        Query query = new Query(inputQuery);
+        // This method modifies the query, removing the params covered by the sample index
+        SampleIndexQuery sampleIndexQuery = sampleIndexDBAdaptor.getSampleIndexQueryParser().parse(query);
+        long count = sampleIndexDBAdaptor.estimateCount(sampleIndexQuery);
+        if (count < 0) {
+            return UNKNOWN_COST;
+        } else if (isFullyCoveredQuery(query, options)) {
+            return count;
+        } else {
+            return randomAccessCost(count);
+        }
+    }
+
     @Override
     public DataResult<Long> count(Query query) {
         throw new UnsupportedOperationException("Count not implemented in " + getClass());
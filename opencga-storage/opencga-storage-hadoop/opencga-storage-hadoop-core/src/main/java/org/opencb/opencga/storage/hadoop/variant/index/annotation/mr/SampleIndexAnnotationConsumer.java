@@ -0,0 +1,214 @@
+package org.opencb.opencga.storage.hadoop.variant.index.annotation.mr;
+
+import htsjdk.variant.vcf.VCFConstants;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.metadata.models.SampleMetadata;
+import org.opencb.opencga.storage.core.variant.adaptors.GenotypeClass;
+import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
+import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.PhoenixHelper;
+import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.VariantPhoenixSchema;
+import org.opencb.opencga.storage.hadoop.variant.converters.HBaseToVariantConverter;
+import org.opencb.opencga.storage.hadoop.variant.index.annotation.AnnotationIndexConverter;
+import org.opencb.opencga.storage.hadoop.variant.index.annotation.AnnotationIndexEntry;
+import org.opencb.opencga.storage.hadoop.variant.index.annotation.AnnotationIndexPutBuilder;
+import org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexAnnotationLoader;
+import org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexSchema;
+import org.opencb.opencga.storage.hadoop.variant.mr.DecodedVariantRow;
+import org.opencb.opencga.storage.hadoop.variant.mr.VariantRowConsumer;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Builds the annotation columns of the SampleIndex from the variants table.
+ */
+public class SampleIndexAnnotationConsumer extends VariantRowConsumer {
+
+    public static final String NAME = "sampleIndexAnnotation";
+
+    private static final String HAS_GENOTYPE = "SampleIndexAnnotationConsumer.hasGenotype";
+    private static final String MULTI_FILE_SAMPLES = "SampleIndexAnnotationConsumer.multiFileSamples";
+    private static final String SAMPLE_IDS = "SampleIndexAnnotationConsumer.sampleIds";
+
+    private List<Integer> sampleIds;
+
+    private byte[] family;
+    private Map<String, AnnotationIndexPutBuilder>[] annotationIndices;
+    private boolean hasGenotype;
+    private boolean multiFileSamples;
+    private AnnotationIndexConverter converter;
+    private int firstSampleId;
+
+    public static void setHasGenotype(Job job, boolean hasGenotype) {
+        job.getConfiguration().setBoolean(HAS_GENOTYPE, hasGenotype);
+    }
+
+    public static void setMultiFileSamples(Job job, boolean multiFileSamples) {
+        job.getConfiguration().setBoolean(MULTI_FILE_SAMPLES, multiFileSamples);
+    }
+
+    public static void setSampleIds(Job job, Collection<Integer> sampleIds) {
+        job.getConfiguration().setStrings(SAMPLE_IDS, sampleIds.stream().map(Object::toString).toArray(String[]::new));
+    }
+
+    public static boolean hasGenotype(VariantStorageMetadataManager metadataManager, int studyId) {
+        List<String> fixedFormat = HBaseToVariantConverter.getFixedFormat(metadataManager.getStudyMetadata(studyId));
+        return fixedFormat.contains(VCFConstants.GENOTYPE_KEY);
+    }
+
+    /**
+     * Add the columns of the given samples to the scan.
+     *
+     * @param scan            Scan
+     * @param metadataManager Metadata manager
+     * @param studyId         Study
+     * @param sampleIds       Samples
+     * @return if any of the samples has more than one file
+     */
+    public static boolean addSampleColumns(Scan scan, VariantStorageMetadataManager metadataManager, int studyId,
+                                           Collection<Integer> sampleIds) {
+        boolean multiFileSamples = false;
+        for (Integer sampleId : sampleIds) {
+            SampleMetadata sampleMetadata = metadataManager.getSampleMetadata(studyId, sampleId);
+            List<PhoenixHelper.Column> sampleColumns = VariantPhoenixSchema.getSampleColumns(sampleMetadata);
+            if (sampleColumns.size() > 1) {
+                multiFileSamples = true;
+            }
+            for (PhoenixHelper.Column column : sampleColumns) {
+                scan.addColumn(GenomeHelper.COLUMN_FAMILY_BYTES, column.bytes());
+            }
+        }
+        return multiFileSamples;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String configure(Job job, Scan scan, DriverContext context) throws IOException {
+        String sampleIdsStr = context.getParam(SampleIndexAnnotationLoaderDriver.SAMPLE_IDS);
+        if (StringUtils.isEmpty(sampleIdsStr)) {
+            throw new IllegalArgumentException("Missing param " + SampleIndexAnnotationLoaderDriver.SAMPLE_IDS);
+        }
+        sampleIds = new ArrayList<>();
+        for (String sampleId : sampleIdsStr.split(",")) {
+            sampleIds.add(Integer.valueOf(sampleId));
+        }
+        VariantStorageMetadataManager metadataManager = context.getMetadataManager();
+        int studyId = context.getStudyId();
+
+        boolean multiFileSamples = addSampleColumns(scan, metadataManager, studyId, sampleIds);
+        scan.addColumn(GenomeHelper.COLUMN_FAMILY_BYTES, VariantPhoenixSchema.VariantColumn.FULL_ANNOTATION.bytes());
+
+        setHasGenotype(job, hasGenotype(metadataManager, studyId));
+        setMultiFileSamples(job, multiFileSamples);
+        setSampleIds(job, sampleIds);
+
+        String outputTable = context.getParam(SampleIndexAnnotationLoaderDriver.OUTPUT);
+        if (StringUtils.isEmpty(outputTable)) {
+            outputTable = context.getTableNameGenerator().getSampleIndexTableName(studyId);
+        }
+        return outputTable;
+    }
+
+    @Override
+    public void postExecution(DriverContext context, boolean succeed) throws IOException, StorageEngineException {
+        if (succeed) {
+            SampleIndexAnnotationLoader.postAnnotationLoad(context.getStudyId(), sampleIds, context.getMetadataManager());
+        }
+    }
+
+    @Override
+    public void setup(TaskAttemptContext context) throws IOException {
+        super.setup(context);
+        Configuration conf = context.getConfiguration();
+        family = GenomeHelper.COLUMN_FAMILY_BYTES;
+        hasGenotype = conf.getBoolean(HAS_GENOTYPE, true);
+        multiFileSamples = conf.getBoolean(MULTI_FILE_SAMPLES, false);
+        int[] sampleIds = conf.getInts(SAMPLE_IDS);
+        firstSampleId = Arrays.stream(sampleIds).min().orElse(0);
+        int lastSampleId = Arrays.stream(sampleIds).max().orElse(0);
+        // Samples within the range that were not selected remain null, and will be skipped
+        annotationIndices = new Map[lastSampleId - firstSampleId + 1];
+        for (int sampleId : sampleIds) {
+            annotationIndices[sampleId - firstSampleId] = new HashMap<>();
+        }
+        converter = new AnnotationIndexConverter();
+    }
+
+    @Override
+    public void map(DecodedVariantRow row, Output output) {
+        AnnotationIndexEntry indexEntry = null;
+        // TODO Get stats given index values
+
+        Set<String> samples = multiFileSamples ? new HashSet<>(row.getNumSampleColumns()) : null;
+
+        for (int i = 0; i < row.getNumSampleColumns(); i++) {
+            int sampleId = row.getSampleId(i);
+            int idx = sampleId - firstSampleId;
+            if (idx < 0 || idx >= annotationIndices.length || annotationIndices[idx] == null) {
+                // Exclude other samples
+                continue;
+            }
+            String gt;
+            boolean validGt;
+            if (hasGenotype) {
+                gt = row.getGenotype(i);
+                if (gt == null || gt.isEmpty()) {
+                    gt = GenotypeClass.NA_GT_VALUE;
+                    validGt = true;
+                } else {
+                    validGt = SampleIndexSchema.isAnnotatedGenotype(gt);
+                }
+            } else {
+                gt = GenotypeClass.NA_GT_VALUE;
+                validGt = true;
+            }
+            // Avoid duplicates on multiFileSamples
+            if (samples == null || samples.add(sampleId + "_" + gt)) {
+                if (validGt) {
+                    if (indexEntry == null) {
+                        indexEntry = converter.convert(row.getVariantAnnotation());
+                    }
+                    annotationIndices[idx].computeIfAbsent(gt, k -> new AnnotationIndexPutBuilder()).add(indexEntry);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void flush(String chromosome, int position, Output output) throws IOException, InterruptedException {
+        increment("write_indices");
+        for (int i = 0; i < annotationIndices.length; i++) {
+            Map<String, AnnotationIndexPutBuilder> gtMap = annotationIndices[i];
+            if (gtMap == null) {
+                continue;
+            }
+            int sampleId = i + firstSampleId;
+            Put put = new Put(SampleIndexSchema.toRowKey(sampleId, chromosome, position));
+            for (Map.Entry<String, AnnotationIndexPutBuilder> e : gtMap.entrySet()) {
+                String gt = e.getKey();
+                AnnotationIndexPutBuilder value = e.getValue();
+                if (!value.isEmpty()) {
+                    value.buildAndReset(put, gt, family);
+                }
+            }
+
+            if (!put.isEmpty()) {
+                increment("put");
+                output.write(put);
+            } else {
+                increment("put_empty");
+            }
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package org.opencb.opencga.storage.hadoop.variant.index.annotation.mr;
 
-import htsjdk.variant.vcf.VCFConstants;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.mapreduce.TableInputFormat;
@@ -9,15 +8,12 @@ import org.opencb.biodata.models.core.Region;
 import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
 import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
-import org.opencb.opencga.storage.core.metadata.models.SampleMetadata;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
 import org.opencb.opencga.storage.core.variant.query.VariantQueryUtils;
 import org.opencb.opencga.storage.hadoop.variant.AbstractVariantsTableDriver;
 import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.VariantHBaseQueryParser;
-import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.PhoenixHelper;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.VariantPhoenixSchema;
-import org.opencb.opencga.storage.hadoop.variant.converters.HBaseToVariantConverter;
 import org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexAnnotationLoader;
 import org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexSchema;
 import org.opencb.opencga.storage.hadoop.variant.mr.VariantAlignedInputFormat;
@@ -99,13 +95,12 @@ public class SampleIndexAnnotationLoaderDriver extends AbstractVariantsTableDriv
             LOGGER.info("Update sample index annotation to " + sampleIds.size() + " samples");
         }
 
-        List<String> fixedFormat = HBaseToVariantConverter.getFixedFormat(metadataManager.getStudyMetadata(getStudyId()));
-        hasGenotype = fixedFormat.contains(VCFConstants.GENOTYPE_KEY);
+        hasGenotype = SampleIndexAnnotationConsumer.hasGenotype(metadataManager, getStudyId());
 
         if (hasGenotype) {
-            LOGGER.info("Study with genotypes. Study fixed format: " + fixedFormat);
+            LOGGER.info("Study with genotypes.");
         } else {
-            LOGGER.info("Study without genotypes. Study fixed format: " + fixedFormat);
+            LOGGER.info("Study without genotypes.");
         }
 
         region = getParam(VariantQueryParam.REGION.key(), "");
@@ -122,22 +117,12 @@ public class SampleIndexAnnotationLoaderDriver extends AbstractVariantsTableDriv
 
         VariantMapReduceUtil.configureMapReduceScan(scan, getConf());
 
-        boolean multiFileSamples = false;
-        for (Integer sampleId : sampleIds) {
-            SampleMetadata sampleMetadata = getMetadataManager().getSampleMetadata(getStudyId(), sampleId);
-            List<PhoenixHelper.Column> sampleColumns = VariantPhoenixSchema.getSampleColumns(sampleMetadata);
-            if (sampleColumns.size() > 1) {
-                multiFileSamples = true;
-            }
-            for (PhoenixHelper.Column column : sampleColumns) {
-                scan.addColumn(GenomeHelper.COLUMN_FAMILY_BYTES, column.bytes());
-            }
-        }
+        boolean multiFileSamples = SampleIndexAnnotationConsumer.addSampleColumns(scan, getMetadataManager(), getStudyId(), sampleIds);
         scan.addColumn(GenomeHelper.COLUMN_FAMILY_BYTES, VariantPhoenixSchema.VariantColumn.FULL_ANNOTATION.bytes());
 
-        SampleIndexAnnotationLoaderMapper.setHasGenotype(job, hasGenotype);
-        SampleIndexAnnotationLoaderMapper.setMultiFileSamples(job, multiFileSamples);
-        SampleIndexAnnotationLoaderMapper.setSampleIdRange(job, sampleIds);
+        SampleIndexAnnotationConsumer.setHasGenotype(job, hasGenotype);
+        SampleIndexAnnotationConsumer.setMultiFileSamples(job, multiFileSamples);
+        SampleIndexAnnotationConsumer.setSampleIds(job, sampleIds);
 
         VariantMapReduceUtil.initTableMapperJob(job, variantTable,
                 scan, getMapperClass(), VariantAlignedInputFormat.class);
@@ -0,0 +1,315 @@
+package org.opencb.opencga.storage.hadoop.variant.index.family;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.opencb.biodata.models.variant.Genotype;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.tools.pedigree.MendelianError;
+import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.metadata.models.CohortMetadata;
+import org.opencb.opencga.storage.core.metadata.models.SampleMetadata;
+import org.opencb.opencga.storage.core.metadata.models.TaskMetadata;
+import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
+import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.PhoenixHelper;
+import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.VariantPhoenixSchema;
+import org.opencb.opencga.storage.hadoop.variant.mr.DecodedVariantRow;
+import org.opencb.opencga.storage.hadoop.variant.mr.VariantRowConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Builds the family index and the mendelian errors of the SampleIndex from the variants table.
+ */
+public class FamilyIndexConsumer extends VariantRowConsumer {
+
+    public static final String NAME = "familyIndex";
+    public static final int MISSING_SAMPLE = -1;
+
+    private static final String TRIOS_LIST = "FamilyIndexDriver.trios_list";
+    private static final Logger LOGGER = LoggerFactory.getLogger(FamilyIndexConsumer.class);
+
+    private List<Integer> sampleIds;
+
+    private final Map<Integer, Map<String, Integer>> genotypeCount = new HashMap<>();
+    private final Map<Integer, FamilyIndexPutBuilder> familyIndexBuilder = new HashMap<>();
+    private final Set<Integer> trioSamples = new HashSet<>();
+    private List<List<Integer>> trios;
+
+    /**
+     * Read the list of trios to compute, as a flat list of sample ids, father, mother and child.
+     * Missing parents are represented with {@link #MISSING_SAMPLE}.
+     *
+     * @param metadataManager    Metadata manager
+     * @param studyId            Study
+     * @param triosStr           Trios given as "father,mother,child;"
+     * @param triosCohort        Cohort with the list of children. Used when triosStr is empty
+     * @param triosCohortDelete  Remove the triosCohort once read
+     * @param overwrite          Include children with the mendelian errors already computed
+     * @return List of sample ids
+     */
+    public static List<Integer> readTrios(VariantStorageMetadataManager metadataManager, int studyId,
+                                          String triosStr, String triosCohort, boolean triosCohortDelete, boolean overwrite) {
+        List<Integer> sampleIds = new LinkedList<>();
+        if (StringUtils.isNotEmpty(triosStr)) {
+            String[] trios = triosStr.split(";");
+            List<Integer> trioList = new ArrayList<>(3);
+            for (String trio : trios) {
+                for (String sample : trio.split(",")) {
+                    Integer sampleId;
+                    if (sample.equals("-")) {
+                        sampleId = MISSING_SAMPLE;
+                    } else {
+                        sampleId = metadataManager.getSampleId(studyId, sample);
+                        if (sampleId == null) {
+                            throw new IllegalArgumentException("Sample '" + sample + "' not found.");
+                        }
+                    }
+                    trioList.add(sampleId);
+                }
+                if (trioList.size() != 3) {
+                    throw new IllegalArgumentException("Found trio with " + trioList.size() + " members, instead of 3: " + trioList);
+                }
+                SampleMetadata sampleMetadata = metadataManager.getSampleMetadata(studyId, trioList.get(2));
+                if (!overwrite && sampleMetadata.getMendelianErrorStatus().equals(TaskMetadata.Status.READY)) {
+                    LOGGER.info("Skip sample " + sampleMetadata.getName() + ". Already precomputed!");
+                } else {
+                    sampleIds.addAll(trioList);
+                    LOGGER.info("Trio: " + trio + " -> " + trioList);
+                }
+                trioList.clear();
+            }
+        } else if (StringUtils.isNotEmpty(triosCohort)) {
+            CohortMetadata cohortMetadata;
+            try {
+                cohortMetadata = metadataManager.getCohortMetadata(studyId, triosCohort);
+            } finally {
+                if (triosCohortDelete) {
+                    metadataManager.removeCohort(studyId, triosCohort);
+                }
+            }
+
+            for (Integer sample : cohortMetadata.getSamples()) {
+                SampleMetadata sampleMetadata = metadataManager.getSampleMetadata(studyId, sample);
+                if (sampleMetadata.getFather() == null) {
+                    sampleIds.add(MISSING_SAMPLE);
+                } else {
+                    sampleIds.add(sampleMetadata.getFather());
+                }
+                if (sampleMetadata.getMother() == null) {
+                    sampleIds.add(MISSING_SAMPLE);
+                } else {
+                    sampleIds.add(sampleMetadata.getMother());
+                }
+                sampleIds.add(sampleMetadata.getId());
+            }
+        } else {
+            throw new IllegalArgumentException("Missing list of trios!");
+        }
+
+        if (sampleIds.isEmpty()) {
+            throw new IllegalArgumentException("Missing list of trios!");
+        }
+
+        if (sampleIds.size() % 3 != 0) {
+            throw new IllegalArgumentException("Wrong number of samples in trios!");
+        }
+        return sampleIds;
+    }
+
+    public static void setTrios(Job job, VariantStorageMetadataManager metadataManager, int studyId, List<Integer> sampleIds,
+                                Scan scan) {
+        job.getConfiguration().set(TRIOS_LIST, sampleIds.stream().map(Objects::toString).collect(Collectors.joining(",")));
+
+        for (Integer sampleId : sampleIds) {
+            if (sampleId != MISSING_SAMPLE) {
+                SampleMetadata sampleMetadata = metadataManager.getSampleMetadata(studyId, sampleId);
+                for (PhoenixHelper.Column column : VariantPhoenixSchema.getSampleColumns(sampleMetadata)) {
+                    scan.addColumn(GenomeHelper.COLUMN_FAMILY_BYTES, column.bytes());
+                }
+            }
+        }
+    }
+
+    public static void postFamilyIndex(VariantStorageMetadataManager metadataManager, int studyId, List<Integer> sampleIds)
+            throws StorageEngineException {
+        for (int i = 0; i < sampleIds.size(); i += 3) {
+            Integer father = sampleIds.get(i);
+            Integer mother = sampleIds.get(i + 1);
+            Integer child = sampleIds.get(i + 2);
+            metadataManager.updateSampleMetadata(studyId, child, sampleMetadata -> {
+                sampleMetadata.setMendelianErrorStatus(TaskMetadata.Status.READY);
+                sampleMetadata.setFamilyIndexStatus(TaskMetadata.Status.READY);
+                if (father > 0) {
+                    sampleMetadata.setFather(father);
+                }
+                if (mother > 0) {
+                    sampleMetadata.setMother(mother);
+                }
+                return sampleMetadata;
+            });
+        }
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String configure(Job job, Scan scan, DriverContext context) throws IOException {
+        VariantStorageMetadataManager metadataManager = context.getMetadataManager();
+        sampleIds = readTrios(metadataManager, context.getStudyId(),
+                context.getParam(FamilyIndexDriver.TRIOS),
+                context.getParam(FamilyIndexDriver.TRIOS_COHORT),
+                Boolean.parseBoolean(context.getParam(FamilyIndexDriver.TRIOS_COHORT_DELETE)),
+                Boolean.parseBoolean(context.getParam(FamilyIndexDriver.OVERWRITE)));
+        LOGGER.info("Calculate Mendelian Errors for " + (sampleIds.size() / 3) + " trios");
+
+        setTrios(job, metadataManager, context.getStudyId(), sampleIds, scan);
+        String outputTable = context.getParam(FamilyIndexDriver.OUTPUT);
+        if (StringUtils.isEmpty(outputTable)) {
+            outputTable = context.getTableNameGenerator().getSampleIndexTableName(context.getStudyId());
+        }
+        return outputTable;
+    }
+
+    @Override
+    public void postExecution(DriverContext context, boolean succeed) throws IOException, StorageEngineException {
+        if (succeed) {
+            postFamilyIndex(context.getMetadataManager(), context.getStudyId(), sampleIds);
+        }
+    }
+
+    @Override
+    public void setup(TaskAttemptContext context) throws IOException {
+        super.setup(context);
+        int[] sampleIds = context.getConfiguration().getInts(TRIOS_LIST);
+        trios = new ArrayList<>(sampleIds.length / 3);
+
+        for (int i = 0; i < sampleIds.length; i += 3) {
+            trios.add(Arrays.asList(
+                    sampleIds[i],
+                    sampleIds[i + 1],
+                    sampleIds[i + 2]));
+        }
+
+        for (List<Integer> trio : trios) {
+            Integer child = trio.get(2);
+            familyIndexBuilder.put(child, new FamilyIndexPutBuilder(child));
+            genotypeCount.put(child, new HashMap<>());
+            trioSamples.addAll(trio);
+        }
+    }
+
+    @Override
+    public void map(DecodedVariantRow row, Output output) throws IOException {
+        Map<Integer, String> gtMap = new HashMap<>();
+        Map<Integer, Set<String>> discrepanciesGtMap = new HashMap<>();
+        for (int i = 0; i < row.getNumSampleColumns(); i++) {
+            int sampleId = row.getSampleId(i);
+            if (!trioSamples.contains(sampleId)) {
+                // Exclude other samples
+                continue;
+            }
+            String gt = row.getGenotype(i);
+            String oldGt = gtMap.put(sampleId, gt);
+            // If the sample already had a genotype, and it was different from the current, record as a discrepancy
+            if (oldGt != null && !oldGt.equals(gt)) {
+                Set<String> gts = discrepanciesGtMap.computeIfAbsent(sampleId, s -> new HashSet<>());
+                gts.add(oldGt);
+                gts.add(gt);
+            }
+        }
+        if (gtMap.isEmpty()) {
+            // Variant not present in any trio
+            return;
+        }
+        Variant variant = row.getVariant();
+
+        for (List<Integer> trio : trios) {
+            Integer father = trio.get(0);
+            Integer mother = trio.get(1);
+            Integer child = trio.get(2);
+            FamilyIndexPutBuilder builder = familyIndexBuilder.get(child);
+
+            Set<String> fatherDiscrepancies = discrepanciesGtMap.get(father);
+            Set<String> motherDiscrepancies = discrepanciesGtMap.get(mother);
+            Set<String> childDiscrepancies = discrepanciesGtMap.get(child);
+
+            if (fatherDiscrepancies == null && motherDiscrepancies == null && childDiscrepancies == null) {
+                String fatherGtStr = gtMap.get(father);
+                String motherGtStr = gtMap.get(mother);
+                String childGtStr = gtMap.get(child);
+                builder.addParents(childGtStr, fatherGtStr, motherGtStr);
+                int idx = genotypeCount.get(child).merge(childGtStr, 1, Integer::sum) - 1;
+
+                computeMendelianError(variant, father, mother, fatherGtStr, motherGtStr, childGtStr, builder, idx);
+            } else {
+                if (fatherDiscrepancies == null) {
+                    fatherDiscrepancies = Collections.singleton(gtMap.get(father));
+                }
+                if (motherDiscrepancies == null) {
+                    motherDiscrepancies = Collections.singleton(gtMap.get(mother));
+                }
+                if (childDiscrepancies == null) {
+                    childDiscrepancies = Collections.singleton(gtMap.get(child));
+                }
+
+                for (String childGtStr : childDiscrepancies) {
+                    int idx = genotypeCount.get(child).merge(childGtStr, 1, Integer::sum) - 1;
+                    builder.addParents(childGtStr, fatherDiscrepancies, motherDiscrepancies);
+
+                    for (String fatherGtStr : fatherDiscrepancies) {
+                        for (String motherGtStr : motherDiscrepancies) {
+                            computeMendelianError(variant, father, mother, fatherGtStr, motherGtStr, childGtStr, builder, idx);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void computeMendelianError(Variant variant,
+                                       Integer father, Integer mother,
+                                       String fatherGtStr, String motherGtStr, String childGtStr,
+                                       FamilyIndexPutBuilder builder, int idx) throws IOException {
+        if ((fatherGtStr != null || father == MISSING_SAMPLE)
+                && (motherGtStr != null || mother == MISSING_SAMPLE) && childGtStr != null) {
+            Genotype fatherGt;
+            Genotype motherGt;
+            Genotype childGt;
+            try {
+                fatherGt = fatherGtStr == null ? null : new Genotype(fatherGtStr);
+                motherGt = motherGtStr == null ? null : new Genotype(motherGtStr);
+                childGt = new Genotype(childGtStr);
+            } catch (IllegalArgumentException e) {
+                // Skip malformed GT
+                increment("wrong_gt");
+                return;
+            }
+            Integer me = MendelianError.compute(fatherGt, motherGt, childGt, variant.getChromosome());
+            increment("me_" + me);
+
+            builder.addMendelianError(variant, childGtStr, idx, me);
+        }
+    }
+
+    @Override
+    public void flush(String chromosome, int position, Output output) throws IOException, InterruptedException {
+        for (FamilyIndexPutBuilder builder : familyIndexBuilder.values()) {
+            Put put = builder.buildAndReset(chromosome, position);
+            if (put != null) {
+                output.write(put);
+            }
+        }
+        genotypeCount.values().forEach(Map::clear);
+    }
+}
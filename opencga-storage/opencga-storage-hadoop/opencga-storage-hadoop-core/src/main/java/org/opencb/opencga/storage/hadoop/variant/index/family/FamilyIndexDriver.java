@@ -8,31 +8,25 @@ import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.mapreduce.TableInputFormat;
 import org.apache.hadoop.mapreduce.Job;
 import org.opencb.biodata.models.core.Region;
-import org.opencb.biodata.models.variant.Genotype;
-import org.opencb.biodata.models.variant.Variant;
-import org.opencb.biodata.tools.pedigree.MendelianError;
 import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
 import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
-import org.opencb.opencga.storage.core.metadata.models.CohortMetadata;
-import org.opencb.opencga.storage.core.metadata.models.SampleMetadata;
-import org.opencb.opencga.storage.core.metadata.models.TaskMetadata;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
 import org.opencb.opencga.storage.hadoop.variant.AbstractVariantsTableDriver;
 import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.VariantHBaseQueryParser;
-import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.PhoenixHelper;
-import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.VariantPhoenixSchema;
-import org.opencb.opencga.storage.hadoop.variant.converters.VariantRow;
 import org.opencb.opencga.storage.hadoop.variant.index.annotation.mr.VariantTableSampleIndexOrderMapper;
 import org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexSchema;
+import org.opencb.opencga.storage.hadoop.variant.mr.DecodedVariantRow;
 import org.opencb.opencga.storage.hadoop.variant.mr.VariantAlignedInputFormat;
 import org.opencb.opencga.storage.hadoop.variant.mr.VariantMapReduceUtil;
+import org.opencb.opencga.storage.hadoop.variant.mr.VariantRowConsumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Created on 04/03/19.
@@ -49,8 +43,6 @@ public class FamilyIndexDriver extends AbstractVariantsTableDriver {
     public static final String OVERWRITE = "overwrite";
     public static final String OUTPUT = "output";
 
-    private static final String TRIOS_LIST = "FamilyIndexDriver.trios_list";
-    private static final int MISSING_SAMPLE = -1;
     private List<Integer> sampleIds;
     private boolean partial;
     private String region;
@@ -82,75 +74,11 @@ public class FamilyIndexDriver extends AbstractVariantsTableDriver {
             sampleIndexTableName = getParam(OUTPUT);
         }
 
-        boolean overwrite = Boolean.parseBoolean(getParam(OVERWRITE));
-        String triosCohort = getParam(TRIOS_COHORT);
-        String triosStr = getParam(TRIOS);
-
-        sampleIds = new LinkedList<>();
-        if (StringUtils.isNotEmpty(triosStr)) {
-            String[] trios = triosStr.split(";");
-            List<Integer> trioList = new ArrayList<>(3);
-            for (String trio : trios) {
-                for (String sample : trio.split(",")) {
-                    Integer sampleId;
-                    if (sample.equals("-")) {
-                        sampleId = MISSING_SAMPLE;
-                    } else {
-                        sampleId = metadataManager.getSampleId(getStudyId(), sample);
-                        if (sampleId == null) {
-                            throw new IllegalArgumentException("Sample '" + sample + "' not found.");
-                        }
-                    }
-                    trioList.add(sampleId);
-                }
-                if (trioList.size() != 3) {
-                    throw new IllegalArgumentException("Found trio with " + trioList.size() + " members, instead of 3: " + trioList);
-                }
-                SampleMetadata sampleMetadata = metadataManager.getSampleMetadata(getStudyId(), trioList.get(2));
-                if (!overwrite && sampleMetadata.getMendelianErrorStatus().equals(TaskMetadata.Status.READY)) {
-                    LOGGER.info("Skip sample " + sampleMetadata.getName() + ". Already precomputed!");
-                } else {
-                    sampleIds.addAll(trioList);
-                    LOGGER.info("Trio: " + trio + " -> " + trioList);
-                }
-                trioList.clear();
-            }
-        } else if (StringUtils.isNotEmpty(triosCohort)) {
-            CohortMetadata cohortMetadata;
-            try {
-                cohortMetadata = getMetadataManager().getCohortMetadata(getStudyId(), triosCohort);
-            } finally {
-                boolean triosCohortDelete = Boolean.parseBoolean(getParam(TRIOS_COHORT_DELETE));
-                if (triosCohortDelete) {
-                    getMetadataManager().removeCohort(getStudyId(), triosCohort);
-                }
-            }
-
-            for (Integer sample : cohortMetadata.getSamples()) {
-                SampleMetadata sampleMetadata = getMetadataManager().getSampleMetadata(getStudyId(), sample);
-                if (sampleMetadata.getFather() == null) {
-                    sampleIds.add(-1);
-                } else {
-                    sampleIds.add(sampleMetadata.getFather());
-                }
-                if (sampleMetadata.getMother() == null) {
-                    sampleIds.add(-1);
-                } else {
-                    sampleIds.add(sampleMetadata.getMother());
-                }
-                sampleIds.add(sampleMetadata.getId());
-            }
-        } else {
-            throw new IllegalArgumentException("Missing list of trios!");
-        }
-
-        if (sampleIds.isEmpty()) {
-            throw new IllegalArgumentException("Missing list of trios!");
-        }
-
-        if (sampleIds.size() % 3 != 0) {
-            throw new IllegalArgumentException("Wrong number of samples in trios!");
-        }
+        sampleIds = FamilyIndexConsumer.readTrios(metadataManager, getStudyId(),
+                getParam(TRIOS),
+                getParam(TRIOS_COHORT),
+                Boolean.parseBoolean(getParam(TRIOS_COHORT_DELETE)),
+                Boolean.parseBoolean(getParam(OVERWRITE)));
 
         region = getParam(VariantQueryParam.REGION.key(), "");
 
@@ -169,16 +97,7 @@ public class FamilyIndexDriver extends AbstractVariantsTableDriver {
         LOGGER.info("Calculate Mendelian Errors for " + (sampleIds.size() / 3) + " trios");
 
 
-        job.getConfiguration().set(TRIOS_LIST, sampleIds.stream().map(Objects::toString).collect(Collectors.joining(",")));
-
-        for (Integer sampleId : sampleIds) {
-            if (sampleId != MISSING_SAMPLE) {
-                SampleMetadata sampleMetadata = getMetadataManager().getSampleMetadata(getStudyId(), sampleId);
-                for (PhoenixHelper.Column column : VariantPhoenixSchema.getSampleColumns(sampleMetadata)) {
-                    scan.addColumn(GenomeHelper.COLUMN_FAMILY_BYTES, column.bytes());
-                }
-            }
-        }
+        FamilyIndexConsumer.setTrios(job, getMetadataManager(), getStudyId(), sampleIds, scan);
 //        scan.addColumn(getHelper().getColumnFamily(), VariantPhoenixHelper.VariantColumn.FULL_ANNOTATION.bytes());
 
 
@@ -199,23 +118,7 @@ public class FamilyIndexDriver extends AbstractVariantsTableDriver {
     protected void postExecution(boolean succeed) throws IOException, StorageEngineException {
         super.postExecution(succeed);
         if (succeed && !partial) {
-            VariantStorageMetadataManager metadataManager = getMetadataManager();
-            for (int i = 0; i < sampleIds.size(); i += 3) {
-                Integer father = sampleIds.get(i);
-                Integer mother = sampleIds.get(i + 1);
-                Integer child = sampleIds.get(i + 2);
-                metadataManager.updateSampleMetadata(getStudyId(), child, sampleMetadata -> {
-                    sampleMetadata.setMendelianErrorStatus(TaskMetadata.Status.READY);
-                    sampleMetadata.setFamilyIndexStatus(TaskMetadata.Status.READY);
-                    if (father > 0) {
-                        sampleMetadata.setFather(father);
-                    }
-                    if (mother > 0) {
-                        sampleMetadata.setMother(mother);
-                    }
-                    return sampleMetadata;
-                });
-            }
+            FamilyIndexConsumer.postFamilyIndex(getMetadataManager(), getStudyId(), sampleIds);
         }
     }
 
@@ -226,137 +129,24 @@ public class FamilyIndexDriver extends AbstractVariantsTableDriver {
 
     public static class FamilyIndexMapper extends VariantTableSampleIndexOrderMapper<ImmutableBytesWritable, Put> {
 
-        private Map<Integer, Map<String, Integer>> genotypeCount = new HashMap<>();
-        private Map<Integer, FamilyIndexPutBuilder> familyIndexBuilder = new HashMap<>();
-        private List<List<Integer>> trios;
-        private byte[] family;
+        private final FamilyIndexConsumer consumer = new FamilyIndexConsumer();
+        private VariantRowConsumer.Output output;
 
         @Override
         protected void setup(Context context) throws IOException, InterruptedException {
             new GenomeHelper(context.getConfiguration());
-            family = GenomeHelper.COLUMN_FAMILY_BYTES;
-
-            int[] sampleIds = context.getConfiguration().getInts(TRIOS_LIST);
-            trios = new ArrayList<>(sampleIds.length / 3);
-
-            for (int i = 0; i < sampleIds.length; i += 3) {
-                trios.add(Arrays.asList(
-                        sampleIds[i],
-                        sampleIds[i + 1],
-                        sampleIds[i + 2]));
-            }
-
-            for (List<Integer> trio : trios) {
-                Integer child = trio.get(2);
-                familyIndexBuilder.put(child, new FamilyIndexPutBuilder(child));
-                genotypeCount.put(child, new HashMap<>());
-            }
-
+            consumer.setup(context);
+            output = put -> context.write(new ImmutableBytesWritable(put.getRow()), (Put) put);
         }
 
         @Override
         protected void map(ImmutableBytesWritable key, Result value, Context context) throws IOException, InterruptedException {
-
-            Map<Integer, String> gtMap = new HashMap<>();
-            Map<Integer, Set<String>> discrepanciesGtMap = new HashMap<>();
-            Variant variant = new VariantRow(value).walker().onSample(sampleColumn -> {
-                String gt = sampleColumn.getGT();
-                String oldGt = gtMap.put(sampleColumn.getSampleId(), gt);
-                // If the sample already had a genotype, and it was different from the current, record as a discrepancy
-                if (oldGt != null && !oldGt.equals(gt)) {
-                    Set<String> gts = discrepanciesGtMap.computeIfAbsent(sampleColumn.getSampleId(), s -> new HashSet<>());
-                    gts.add(oldGt);
-                    gts.add(gt);
-                }
-            }).walk();
-
-            for (List<Integer> trio : trios) {
-                Integer father = trio.get(0);
-                Integer mother = trio.get(1);
-                Integer child = trio.get(2);
-                FamilyIndexPutBuilder builder = familyIndexBuilder.get(child);
-
-                Set<String> fatherDiscrepancies = discrepanciesGtMap.get(father);
-                Set<String> motherDiscrepancies = discrepanciesGtMap.get(mother);
-                Set<String> childDiscrepancies = discrepanciesGtMap.get(child);
-
-                if (fatherDiscrepancies == null && motherDiscrepancies == null && childDiscrepancies == null) {
-                    String fatherGtStr = gtMap.get(father);
-                    String motherGtStr = gtMap.get(mother);
-                    String childGtStr = gtMap.get(child);
-                    builder.addParents(childGtStr, fatherGtStr, motherGtStr);
-                    int idx = genotypeCount.get(child).merge(childGtStr, 1, Integer::sum) - 1;
-
-                    computeMendelianError(variant, father, mother, fatherGtStr, motherGtStr, childGtStr, context, builder, idx);
-                } else {
-                    if (fatherDiscrepancies == null) {
-                        fatherDiscrepancies = Collections.singleton(gtMap.get(father));
-                    }
-                    if (motherDiscrepancies == null) {
-                        motherDiscrepancies = Collections.singleton(gtMap.get(mother));
-                    }
-                    if (childDiscrepancies == null) {
-                        childDiscrepancies = Collections.singleton(gtMap.get(child));
-                    }
-
-//                    System.out.println("variant = " + variant);
-//                    System.out.println("trio = " + trio);
-//                    System.out.println("child = " + child);
-//                    System.out.println("father = " + father);
-//                    System.out.println("mother = " + mother);
-//                    System.out.println("childDiscrepancies = " + childDiscrepancies);
-//                    System.out.println("motherDiscrepancies = " + motherDiscrepancies);
-//                    System.out.println("fatherDiscrepancies = " + fatherDiscrepancies);
-                    for (String childGtStr : childDiscrepancies) {
-                        int idx = genotypeCount.get(child).merge(childGtStr, 1, Integer::sum) - 1;
-                        builder.addParents(childGtStr, fatherDiscrepancies, motherDiscrepancies);
-//                        System.out.println("childGtStr = " + childGtStr);
-
-                        for (String fatherGtStr : fatherDiscrepancies) {
-                            for (String motherGtStr : motherDiscrepancies) {
-                                computeMendelianError(variant, father, mother, fatherGtStr, motherGtStr, childGtStr, context, builder, idx);
-                            }
-                        }
-                    }
-                }
-            }
-        }
-
-        private void computeMendelianError(Variant variant,
-                                           Integer father, Integer mother,
-                                           String fatherGtStr, String motherGtStr, String childGtStr,
-                                           Context context,
-                                           FamilyIndexPutBuilder builder, int idx) throws IOException {
-            if ((fatherGtStr != null || father == MISSING_SAMPLE)
-                    && (motherGtStr != null || mother == MISSING_SAMPLE) && childGtStr != null) {
-                Genotype fatherGt;
-                Genotype motherGt;
-                Genotype childGt;
-                try {
-                    fatherGt = fatherGtStr == null ? null : new Genotype(fatherGtStr);
-                    motherGt = motherGtStr == null ? null : new Genotype(motherGtStr);
-                    childGt = new Genotype(childGtStr);
-                } catch (IllegalArgumentException e) {
-                    // Skip malformed GT
-                    context.getCounter(COUNTER_GROUP_NAME, "wrong_gt").increment(1);
-                    return;
-                }
-                Integer me = MendelianError.compute(fatherGt, motherGt, childGt, variant.getChromosome());
-                context.getCounter(COUNTER_GROUP_NAME, "me_" + me).increment(1);
-
-                builder.addMendelianError(variant, childGtStr, idx, me);
-            }
+            consumer.map(new DecodedVariantRow(value), output);
         }
 
         @Override
         public void flush(Context context, String chromosome, int position) throws IOException, InterruptedException {
-            for (FamilyIndexPutBuilder builder : familyIndexBuilder.values()) {
-                Put put = builder.buildAndReset(chromosome, position);
-                if (put != null) {
-                    context.write(new ImmutableBytesWritable(put.getRow()), put);
-                }
-            }
-            genotypeCount.values().forEach(Map::clear);
+            consumer.flush(chromosome, position, output);
         }
     }
 
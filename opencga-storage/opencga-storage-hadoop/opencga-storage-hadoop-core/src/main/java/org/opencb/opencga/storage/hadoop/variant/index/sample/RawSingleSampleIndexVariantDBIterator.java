@@ -9,9 +9,11 @@ import org.apache.hadoop.hbase.client.Table;
 import org.opencb.biodata.models.core.Region;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryException;
 import org.opencb.opencga.storage.core.utils.iterators.CloseableIterator;
+import org.opencb.opencga.storage.core.utils.iterators.PrefetchIterator;
 import org.opencb.opencga.storage.hadoop.variant.index.query.SingleSampleIndexQuery;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
@@ -31,7 +33,9 @@ public class RawSingleSampleIndexVariantDBIterator extends CloseableIterator<Sam
             regionGroups = query.getRegionGroups();
         }
 
-        Iterator<Iterator<SampleVariantIndexEntry>> iterators = regionGroups.stream()
+        // Scanners are opened from the prefetch thread
+        List<ResultScanner> scanners = Collections.synchronizedList(new ArrayList<>(regionGroups.size()));
+        Iterator<PrefetchIterator.Batch<SampleVariantIndexEntry>> batches = Iterators.concat(regionGroups.stream()
                 .map(regions -> {
                     // One scan per region group
                     Scan scan = dbAdaptor.parseIncludeAll(query, regions);
@@ -39,19 +43,27 @@ public class RawSingleSampleIndexVariantDBIterator extends CloseableIterator<Sam
                     RawSampleIndexEntryFilter filter = new RawSampleIndexEntryFilter(query, regions);
                     try {
                         ResultScanner scanner = table.getScanner(scan);
-                        addCloseable(scanner);
+                        scanners.add(scanner);
                         Iterator<Result> resultIterator = scanner.iterator();
-                        Iterator<Iterator<SampleVariantIndexEntry>> transform = Iterators.transform(resultIterator,
+                        return Iterators.transform(resultIterator,
                                 result -> {
                                     SampleIndexEntry sampleIndexEntry = converter.convert(result);
-                                    return filter.filter(sampleIndexEntry).iterator();
+                                    return new PrefetchIterator.Batch<>(filter.filter(sampleIndexEntry),
+                                            SampleIndexDBAdaptor.resultSize(result));
                                 });
-                        return Iterators.concat(transform);
                     } catch (IOException e) {
                         throw VariantQueryException.internalException(e);
                     }
-                }).iterator();
-        iterator = Iterators.concat(iterators);
+                }).iterator());
+        PrefetchIterator<SampleVariantIndexEntry> prefetchIterator = dbAdaptor.prefetch(batches);
+        // Stop the prefetch before closing the scanners
+        addCloseable(prefetchIterator);
+        addCloseable(() -> {
+            synchronized (scanners) {
+                scanners.forEach(ResultScanner::close);
+            }
+        });
+        iterator = prefetchIterator.start();
     }
 
     private RawSingleSampleIndexVariantDBIterator(Iterator<SampleVariantIndexEntry> iterator) {
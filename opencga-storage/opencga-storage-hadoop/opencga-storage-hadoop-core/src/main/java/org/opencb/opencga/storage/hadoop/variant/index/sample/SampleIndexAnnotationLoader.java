@@ -86,34 +86,7 @@ public class SampleIndexAnnotationLoader {
 
     public void updateSampleAnnotation(int studyId, List<Integer> samples, ObjectMap options, boolean overwrite)
             throws StorageEngineException {
-        List<Integer> finalSamplesList = new ArrayList<>(samples.size());
-        List<String> nonAnnotated = new LinkedList<>();
-        List<String> alreadyAnnotated = new LinkedList<>();
-        for (Integer sampleId : samples) {
-            SampleMetadata sampleMetadata = metadataManager.getSampleMetadata(studyId, sampleId);
-            if (sampleMetadata.isAnnotated()) {
-                if (SampleIndexDBAdaptor.getSampleIndexAnnotationStatus(sampleMetadata).equals(TaskMetadata.Status.READY) && !overwrite) {
-                    // SamplesIndex already annotated
-                    alreadyAnnotated.add(sampleMetadata.getName());
-                } else {
-                    finalSamplesList.add(sampleId);
-                }
-            } else {
-                // Discard non-annotated samples
-                nonAnnotated.add(sampleMetadata.getName());
-            }
-        }
-        if (!nonAnnotated.isEmpty()) {
-            if (nonAnnotated.size() < 20) {
-                logger.warn("Unable to update sample index from samples " + nonAnnotated + ". Samples not fully annotated.");
-            } else {
-                logger.warn("Unable to update sample index from " + nonAnnotated.size() + " samples. Samples not fully annotated.");
-            }
-        }
-        if (!alreadyAnnotated.isEmpty()) {
-            logger.info("Skip sample index annotation for " + alreadyAnnotated.size() + " samples."
-                    + " Add " + OVERWRITE + "=true to overwrite existing sample index annotation on all samples");
-        }
+        List<Integer> finalSamplesList = getSamplesToAnnotate(studyId, samples, overwrite);
 
         if (finalSamplesList.isEmpty()) {
             logger.info("Skip sample index annotation. Nothing to do!");
@@ -146,6 +119,47 @@ public class SampleIndexAnnotationLoader {
         }
     }
 
+    /**
+     * Select the samples from the list that are fully annotated, and do not have the sample index annotation ready yet.
+     *
+     * @param studyId   Study
+     * @param samples   Samples
+     * @param overwrite Include samples with the sample index annotation already ready
+     * @return List of samples to annotate
+     */
+    public List<Integer> getSamplesToAnnotate(int studyId, List<Integer> samples, boolean overwrite) {
+        List<Integer> finalSamplesList = new ArrayList<>(samples.size());
+        List<String> nonAnnotated = new LinkedList<>();
+        List<String> alreadyAnnotated = new LinkedList<>();
+        for (Integer sampleId : samples) {
+            SampleMetadata sampleMetadata = metadataManager.getSampleMetadata(studyId, sampleId);
+            if (sampleMetadata.isAnnotated()) {
+                if (SampleIndexDBAdaptor.getSampleIndexAnnotationStatus(sampleMetadata).equals(TaskMetadata.Status.READY) && !overwrite) {
+                    // SamplesIndex already annotated
+                    alreadyAnnotated.add(sampleMetadata.getName());
+                } else {
+                    finalSamplesList.add(sampleId);
+                }
+            } else {
+                // Discard non-annotated samples
+                nonAnnotated.add(sampleMetadata.getName());
+            }
+        }
+        if (!nonAnnotated.isEmpty()) {
+            if (nonAnnotated.size() < 20) {
+                logger.warn("Unable to update sample index from samples " + nonAnnotated + ". Samples not fully annotated.");
+            } else {
+                logger.warn("Unable to update sample index from " + nonAnnotated.size() + " samples. Samples not fully annotated.");
+            }
+        }
+        if (!alreadyAnnotated.isEmpty()) {
+            logger.info("Skip sample index annotation for " + alreadyAnnotated.size() + " samples."
+                    + " Add " + OVERWRITE + "=true to overwrite existing sample index annotation on all samples");
+        }
+
+        return finalSamplesList;
+    }
+
     private void updateSampleAnnotationBatchMapreduce(int studyId, List<Integer> samples, ObjectMap options)
             throws StorageEngineException {
         mrExecutor.run(SampleIndexAnnotationLoaderDriver.class, SampleIndexAnnotationLoaderDriver.buildArgs(
@@ -1,12 +1,15 @@
 package org.opencb.opencga.storage.hadoop.variant.index.sample;
 
 import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.client.Get;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
 import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.opencb.biodata.models.core.Region;
 import org.opencb.biodata.models.variant.Variant;
@@ -17,6 +20,7 @@ import org.opencb.opencga.storage.core.metadata.models.SampleMetadata;
 import org.opencb.opencga.storage.core.metadata.models.TaskMetadata;
 import org.opencb.opencga.storage.core.utils.iterators.CloseableIterator;
 import org.opencb.opencga.storage.core.utils.iterators.IntersectMultiKeyIterator;
+import org.opencb.opencga.storage.core.utils.iterators.PrefetchIterator;
 import org.opencb.opencga.storage.core.utils.iterators.UnionMultiKeyIterator;
 import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantIterable;
@@ -27,6 +31,7 @@ import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBItera
 import org.opencb.opencga.storage.core.variant.query.VariantQueryUtils.QueryOperation;
 import org.opencb.opencga.storage.hadoop.utils.HBaseManager;
 import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
+import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions;
 import org.opencb.opencga.storage.hadoop.variant.index.IndexUtils;
 import org.opencb.opencga.storage.hadoop.variant.index.query.SampleAnnotationIndexQuery.PopulationFrequencyQuery;
 import org.opencb.opencga.storage.hadoop.variant.index.query.SampleFileIndexQuery;
@@ -38,6 +43,13 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.VariantSqlQueryParser.DEFAULT_LOADED_GENOTYPES;
@@ -50,6 +62,8 @@ import static org.opencb.opencga.storage.hadoop.variant.index.IndexUtils.EMPTY_M
  */
 public class SampleIndexDBAdaptor implements VariantIterable {
 
+    // Max number of samples to read when estimating the count of a query
+    private static final int ESTIMATE_COUNT_MAX_SAMPLES = 5;
     private static final String SAMPLE_INDEX_STATUS = "sampleIndexGenotypes";
     private static final String SAMPLE_INDEX_ANNOTATION_STATUS = "sampleIndexAnnotation";
 
@@ -64,6 +78,14 @@ public class SampleIndexDBAdaptor implements VariantIterable {
     private SampleIndexQueryParser parser;
     private final SampleIndexConfiguration configuration;
     private final HBaseToSampleIndexConverter converter;
+    // Shared by all the queries. Null if prefetch is disabled
+    private final ThreadPoolExecutor prefetchExecutor;
+    private final PrefetchIterator.MemoryBudget prefetchMemoryBudget;
+    private final int prefetchBatches;
+    private final boolean serverSideFilter;
+    private final long serverSideFilterProbeTimeout;
+    // Server side filter availability per table
+    private final Map<String, ServerSideFilterProbe> serverSideFilterAvailable = new ConcurrentHashMap<>();
 
     public SampleIndexDBAdaptor(HBaseManager hBaseManager, HBaseVariantTableNameGenerator tableNameGenerator,
                                 VariantStorageMetadataManager metadataManager) {
@@ -75,6 +97,31 @@ public class SampleIndexDBAdaptor implements VariantIterable {
         configuration = SampleIndexConfiguration.defaultConfiguration();
         parser = new SampleIndexQueryParser(metadataManager, configuration);
         converter = new HBaseToSampleIndexConverter(configuration);
+
+        int prefetchThreads = hBaseManager.getConf().getInt(HadoopVariantStorageOptions.SAMPLE_INDEX_QUERY_PREFETCH_THREADS.key(),
+                HadoopVariantStorageOptions.SAMPLE_INDEX_QUERY_PREFETCH_THREADS.defaultValue());
+        prefetchBatches = hBaseManager.getConf().getInt(HadoopVariantStorageOptions.SAMPLE_INDEX_QUERY_PREFETCH_BATCHES.key(),
+                HadoopVariantStorageOptions.SAMPLE_INDEX_QUERY_PREFETCH_BATCHES.defaultValue());
+        prefetchMemoryBudget = new PrefetchIterator.MemoryBudget(hBaseManager.getConf().getLong(
+                HadoopVariantStorageOptions.SAMPLE_INDEX_QUERY_PREFETCH_MAX_MEMORY.key(),
+                ((Number) HadoopVariantStorageOptions.SAMPLE_INDEX_QUERY_PREFETCH_MAX_MEMORY.defaultValue()).longValue()));
+        serverSideFilter = hBaseManager.getConf().getBoolean(HadoopVariantStorageOptions.SAMPLE_INDEX_QUERY_SERVER_SIDE_FILTER.key(),
+                HadoopVariantStorageOptions.SAMPLE_INDEX_QUERY_SERVER_SIDE_FILTER.defaultValue());
+        serverSideFilterProbeTimeout = hBaseManager.getConf().getLong(
+                HadoopVariantStorageOptions.SAMPLE_INDEX_QUERY_SERVER_SIDE_FILTER_PROBE_TIMEOUT.key(),
+                ((Number) HadoopVariantStorageOptions.SAMPLE_INDEX_QUERY_SERVER_SIDE_FILTER_PROBE_TIMEOUT.defaultValue()).longValue());
+        if (prefetchThreads > 0) {
+            prefetchExecutor = new ThreadPoolExecutor(prefetchThreads, prefetchThreads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(),
+                    new ThreadFactoryBuilder()
+                            .setNameFormat("sample-index-prefetch-%d")
+                            .setDaemon(true)
+                            .build());
+            // Release idle threads
+            prefetchExecutor.allowCoreThreadTimeOut(true);
+        } else {
+            prefetchExecutor = null;
+        }
     }
 
     public static TaskMetadata.Status getSampleIndexAnnotationStatus(SampleMetadata sampleMetadata) {
@@ -216,6 +263,27 @@ public class SampleIndexDBAdaptor implements VariantIterable {
         }
     }
 
+    /**
+     * Read the batches from the given iterator ahead of the consumer, using the shared prefetch thread pool.
+     * Each batch is usually one row from the SampleIndex table, i.e. one sample over {@link SampleIndexSchema#BATCH_SIZE} bases.
+     *
+     * @param batches   Batches iterator. Will be read from a different thread.
+     * @param <T>       Elements type
+     * @return          PrefetchIterator. Needs to be started.
+     */
+    <T> PrefetchIterator<T> prefetch(Iterator<PrefetchIterator.Batch<T>> batches) {
+        // If the executor is null, the PrefetchIterator reads from the caller thread
+        return new PrefetchIterator<>(batches, prefetchExecutor, prefetchBatches, prefetchMemoryBudget);
+    }
+
+    static long resultSize(Result result) {
+        long size = 0;
+        for (Cell cell : result.rawCells()) {
+            size += cell.getRowLength() + cell.getQualifierLength() + cell.getValueLength();
+        }
+        return size;
+    }
+
     protected Map<String, List<Variant>> queryByGt(int study, int sample, String chromosome, int position)
             throws IOException {
         Result result = queryByGtInternal(study, sample, chromosome, position);
@@ -398,11 +466,19 @@ public class SampleIndexDBAdaptor implements VariantIterable {
                                     // Need to parse the variant to finish filtering. Create a normal scan query.
                                     scan = parse(query, subRegions);
                                 }
+                                SampleIndexEntryServerFilter serverFilter = buildServerSideFilter(table, query, subRegions, true);
+                                if (serverFilter != null) {
+                                    scan.setFilter(serverFilter);
+                                }
                                 ResultScanner scanner = table.getScanner(scan);
                                 Result result = scanner.next();
                                 while (result != null) {
-                                    SampleIndexEntry sampleIndexEntry = converter.convert(result);
-                                    count += filter.filterAndCount(sampleIndexEntry);
+                                    if (serverFilter != null) {
+                                        count += SampleIndexEntryServerFilter.getCount(result);
+                                    } else {
+                                        SampleIndexEntry sampleIndexEntry = converter.convert(result);
+                                        count += filter.filterAndCount(sampleIndexEntry);
+                                    }
                                     result = scanner.next();
                                 }
                             }
@@ -418,6 +494,86 @@ public class SampleIndexDBAdaptor implements VariantIterable {
         }
     }
 
+    /**
+     * Estimate the number of variants returned by the query. Only reads the genotype count columns, and the
+     * annotation summary count columns if the query filters by the annotation summary index.
+     *
+     * The estimation is an upper bound, as the rest of filters (file index, parents, other annotation indexes,
+     * partial batches, ...) are not taken into account. For intersections, returns the count of the smallest sample.
+     *
+     * @param query SampleIndexQuery
+     * @return      Estimated number of variants, or -1 if unable to estimate.
+     */
+    public long estimateCount(SampleIndexQuery query) {
+        List<String> samples = new ArrayList<>(query.getSamplesMap().keySet());
+        samples.removeAll(query.getNegatedSamples());
+        if (samples.isEmpty()) {
+            return -1;
+        }
+        boolean union = QueryOperation.OR.equals(query.getQueryOperation());
+        List<String> estimatedSamples = samples.subList(0, Math.min(samples.size(), ESTIMATE_COUNT_MAX_SAMPLES));
+        long count = union ? 0 : Long.MAX_VALUE;
+        for (String sample : estimatedSamples) {
+            long sampleCount = estimateCount(query.forSample(sample));
+            count = union ? count + sampleCount : Math.min(count, sampleCount);
+        }
+        if (union && samples.size() > estimatedSamples.size()) {
+            // Extrapolate from the estimated samples
+            count = count * samples.size() / estimatedSamples.size();
+        }
+        return count;
+    }
+
+    private long estimateCount(SingleSampleIndexQuery query) {
+        Collection<List<Region>> regionGroups;
+        if (CollectionUtils.isEmpty(query.getRegionGroups())) {
+            regionGroups = Collections.singletonList(Collections.emptyList());
+        } else {
+            regionGroups = query.getRegionGroups();
+        }
+        List<Integer> annotationIndexPositions = new ArrayList<>(8);
+        if (query.getAnnotationIndexMask() != EMPTY_MASK) {
+            int[] countsPerBit = IndexUtils.countPerBit(new byte[]{query.getAnnotationIndex()});
+            for (int i = 0; i < countsPerBit.length; i++) {
+                if (countsPerBit[i] == 1) {
+                    annotationIndexPositions.add(i);
+                }
+            }
+        }
+
+        String tableName = tableNameGenerator.getSampleIndexTableName(toStudyId(query.getStudy()));
+        try {
+            return hBaseManager.act(tableName, table -> {
+                long count = 0;
+                for (List<Region> regions : regionGroups) {
+                    Scan scan = parseCount(query, regions);
+                    if (!annotationIndexPositions.isEmpty()) {
+                        for (String gt : query.getGenotypes()) {
+                            scan.addColumn(family, SampleIndexSchema.toAnnotationIndexCountColumn(gt));
+                        }
+                    }
+                    try (ResultScanner scanner = table.getScanner(scan)) {
+                        for (Result result : scanner) {
+                            SampleIndexEntry entry = converter.convert(result);
+                            for (SampleIndexEntry.SampleIndexGtEntry gtEntry : entry.getGts().values()) {
+                                int gtCount = gtEntry.getCount();
+                                if (gtEntry.getAnnotationCounts() != null) {
+                                    for (Integer idx : annotationIndexPositions) {
+                                        gtCount = Math.min(gtCount, gtEntry.getAnnotationCounts()[idx]);
+                                    }
+                                }
+                                count += gtCount;
+                            }
+                        }
+                    }
+                }
+                return count;
+            });
+        } catch (IOException e) {
+            throw VariantQueryException.internalException(e);
+        }
+    }
+
     public SampleIndexQueryParser getSampleIndexQueryParser() {
         return parser;
     }
@@ -506,6 +662,110 @@ public class SampleIndexDBAdaptor implements VariantIterable {
         }
     }
 
+    /**
+     * Build a {@link SampleIndexEntryServerFilter} to filter the SampleIndex within the RegionServers.
+     * The first time for each table, checks that the filter can be executed in the RegionServers.
+     * The result of the check expires after {@link HadoopVariantStorageOptions#SAMPLE_INDEX_QUERY_SERVER_SIDE_FILTER_PROBE_TIMEOUT},
+     * so RegionServers restarted with (or without) the filter in the classpath are eventually detected.
+     *
+     * @param table   SampleIndex table
+     * @param query   Query for one sample
+     * @param regions Regions of the scan. May be null.
+     * @param count   Count the variants instead of returning them
+     * @return the filter, or null if the query has to be filtered at the client side
+     */
+    SampleIndexEntryServerFilter buildServerSideFilter(Table table, SingleSampleIndexQuery query, List<Region> regions, boolean count) {
+        if (!serverSideFilter) {
+            return null;
+        }
+        boolean noRegionFilter = regions == null || regions.isEmpty() || regions.size() == 1 && matchesWithBatch(regions.get(0));
+        if (noRegionFilter && query.emptyOrRegionFilter() && !query.isMultiFileSample() && !query.getMendelianError()) {
+            // Nothing to filter
+            return null;
+        }
+        SampleIndexEntryServerFilter filter = new SampleIndexEntryServerFilter(query, noRegionFilter ? null : regions, configuration,
+                count);
+        if (isServerSideFilterAvailable(table, filter)) {
+            return filter;
+        } else {
+            return null;
+        }
+    }
+
+    private boolean isServerSideFilterAvailable(Table table, SampleIndexEntryServerFilter filter) {
+        String tableName = table.getName().getNameAsString();
+        while (true) {
+            ServerSideFilterProbe probe = serverSideFilterAvailable.get(tableName);
+            if (probe != null && !probe.isExpired(serverSideFilterProbeTimeout)) {
+                // Wait for the probe in progress, if any
+                return probe.get();
+            }
+            ServerSideFilterProbe newProbe = new ServerSideFilterProbe(() -> probeServerSideFilter(table, filter));
+            boolean registered = probe == null
+                    ? serverSideFilterAvailable.putIfAbsent(tableName, newProbe) == null
+                    : serverSideFilterAvailable.replace(tableName, probe, newProbe);
+            if (registered) {
+                // Scan out of the map, so the concurrent queries do not block other tables
+                newProbe.task.run();
+                return newProbe.get();
+            }
+        }
+    }
+
+    /**
+     * Result of the last server side filter probe for the given table.
+     *
+     * @param tableName SampleIndex table name
+     * @return if the server side filter was available, or null if the table was never probed
+     */
+    Boolean isServerSideFilterAvailable(String tableName) {
+        ServerSideFilterProbe probe = serverSideFilterAvailable.get(tableName);
+        return probe == null || !probe.task.isDone() ? null : probe.get();
+    }
+
+    private static final class ServerSideFilterProbe {
+        private final FutureTask<Boolean> task;
+        private final long time;
+
+        private ServerSideFilterProbe(Callable<Boolean> probe) {
+            this.task = new FutureTask<>(probe);
+            this.time = System.currentTimeMillis();
+        }
+
+        private boolean isExpired(long timeout) {
+            return task.isDone() && System.currentTimeMillis() - time > timeout;
+        }
+
+        private boolean get() {
+            try {
+                return task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (ExecutionException e) {
+                return false;
+            }
+        }
+    }
+
+    private boolean probeServerSideFilter(Table table, SampleIndexEntryServerFilter filter) {
+        // Scan an empty range. The filter is still sent and deserialized by the RegionServer.
+        Scan scan = new Scan();
+        scan.setStartRow(SampleIndexSchema.toRowKey(Integer.MAX_VALUE));
+        scan.setCaching(1);
+        scan.setFilter(filter);
+        try (ResultScanner scanner = table.getScanner(scan)) {
+            scanner.next();
+            logger.info("Using server side filter for SampleIndex table " + table.getName().getNameAsString());
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Unable to use server side filter for SampleIndex table " + table.getName().getNameAsString()
+                    + ". Filter at the client side. " + e.getMessage());
+            logger.debug("Server side filter error", e);
+            return false;
+        }
+    }
+
     public Scan parse(SingleSampleIndexQuery query, List<Region> regions) {
         return parse(query, regions, false, false);
     }
@@ -33,6 +33,9 @@ public class SampleIndexDBLoader extends AbstractHBaseDataWriter<Variant, Mutati
     private final List<Integer> sampleIds;
     // Map from IndexChunk -> List (following sampleIds order) of Map<Genotype, SortedSet<VariantFileIndex>>
     private final Map<IndexChunk, Chunk> buffer = new LinkedHashMap<>();
+    // Chunks already written since the last flush. Written data is not visible until flushed, either from the buffered mutator
+    // or from the bulk loader, so it has to be flushed before merging the same chunk again.
+    private final Set<IndexChunk> writtenChunks = new HashSet<>();
     private final HashSet<String> genotypes = new HashSet<>();
     private final boolean rebuildIndex;
     private final boolean multiFileIndex;
@@ -99,6 +102,12 @@ public class SampleIndexDBLoader extends AbstractHBaseDataWriter<Variant, Mutati
         Chunk(IndexChunk indexChunk) {
             samples = new ArrayList<>(sampleIds.size());
             merging = false;
+            if (rebuildIndex && writtenChunks.remove(indexChunk)) {
+                // This chunk was already written in this load, and now it has to be merged with itself.
+                // Make the written data visible before reading it.
+                flush();
+                writtenChunks.clear();
+            }
             for (Integer sampleId : sampleIds) {
                 SampleIndexEntryPutBuilder builder;
                 if (rebuildIndex) {
@@ -179,8 +188,8 @@ public class SampleIndexDBLoader extends AbstractHBaseDataWriter<Variant, Mutati
 
     @Override
     public boolean open() {
-        super.open();
         SampleIndexSchema.createTableIfNeeded(tableName, hBaseManager, options);
+        super.open();
         return true;
     }
 
@@ -235,6 +244,9 @@ public class SampleIndexDBLoader extends AbstractHBaseDataWriter<Variant, Mutati
         while (buffer.size() > remain) {
             IndexChunk indexChunk = buffer.keySet().iterator().next();
             Chunk chunk = buffer.remove(indexChunk);
+            if (rebuildIndex) {
+                writtenChunks.add(indexChunk);
+            }
             for (SampleIndexEntryPutBuilder builder : chunk) {
                 Put put = builder.build();
                 if (!put.isEmpty()) {
@@ -3,6 +3,7 @@ package org.opencb.opencga.storage.hadoop.variant.index.sample;
 import com.google.common.collect.BiMap;
 import htsjdk.variant.vcf.VCFConstants;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.Scan;
@@ -28,8 +29,10 @@ import org.opencb.opencga.storage.core.variant.adaptors.GenotypeClass;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryException;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
 import org.opencb.opencga.storage.core.variant.query.VariantQueryUtils;
+import org.opencb.opencga.storage.hadoop.utils.HBaseBulkLoader;
 import org.opencb.opencga.storage.hadoop.variant.AbstractVariantsTableDriver;
 import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
+import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.VariantHBaseQueryParser;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.VariantPhoenixSchema;
 import org.opencb.opencga.storage.hadoop.variant.converters.HBaseToVariantConverter;
@@ -94,6 +97,7 @@ public class SampleIndexDriver extends AbstractVariantsTableDriver {
     private List<String> fixedAttributes;
     private boolean multiScan = false;
     private int maxColumns;
+    private Path bulkLoadDir;
 
     @Override
     protected String getJobOperationName() {
@@ -147,6 +151,11 @@ public class SampleIndexDriver extends AbstractVariantsTableDriver {
 
         region = getParam(VariantQueryParam.REGION.key());
 
+        if (getConf().getBoolean(HadoopVariantStorageOptions.BULK_LOAD.key(), HadoopVariantStorageOptions.BULK_LOAD.defaultValue())) {
+            bulkLoadDir = HBaseBulkLoader.getStagingDir(getConf(),
+                    getConf().get(HadoopVariantStorageOptions.BULK_LOAD_STAGING_DIR.key()), outputTable);
+        }
+
         // Max number of samples to be processed in each Scan.
         partialScanSize = Integer.valueOf(getParam(PARTIAL_SCAN_SIZE, "1000"));
         maxColumns = Integer.valueOf(getParam(MAX_COLUMNS_PER_SCAN, "4000"));
@@ -299,8 +308,16 @@ public class SampleIndexDriver extends AbstractVariantsTableDriver {
             throw new RuntimeException(e);
         }
 
-        VariantMapReduceUtil.setOutputHBaseTable(job, outputTable);
-        VariantMapReduceUtil.setNoneReduce(job);
+        if (bulkLoadDir == null) {
+            VariantMapReduceUtil.setOutputHBaseTable(job, outputTable);
+            VariantMapReduceUtil.setNoneReduce(job);
+        } else {
+            // The output table must exist before reading its regions. Reducers will sort the Puts of each region.
+            createOutputTable();
+            job.setMapOutputKeyClass(ImmutableBytesWritable.class);
+            job.setMapOutputValueClass(Put.class);
+            VariantMapReduceUtil.setOutputHBaseTableBulkLoad(job, outputTable, bulkLoadDir);
+        }
 
 //        job.setSpeculativeExecution(false);
         job.getConfiguration().setInt(MRJobConfig.TASK_TIMEOUT, 20 * 60 * 1000);
@@ -331,7 +348,24 @@ public class SampleIndexDriver extends AbstractVariantsTableDriver {
     @Override
     protected void preExecution() throws IOException, StorageEngineException {
         super.preExecution();
+        createOutputTable();
+    }
+
+    @Override
+    protected void postExecution(boolean succeed) throws IOException, StorageEngineException {
+        super.postExecution(succeed);
+        if (bulkLoadDir != null) {
+            try {
+                if (succeed) {
+                    getHBaseManager().bulkLoad(outputTable, bulkLoadDir);
+                }
+            } finally {
+                deleteTemporaryFile(bulkLoadDir);
+            }
+        }
+    }
 
+    private void createOutputTable() {
         ObjectMap options = new ObjectMap();
         options.putAll(getParams());
         SampleIndexSchema.createTableIfNeeded(outputTable, getHBaseManager(), options);
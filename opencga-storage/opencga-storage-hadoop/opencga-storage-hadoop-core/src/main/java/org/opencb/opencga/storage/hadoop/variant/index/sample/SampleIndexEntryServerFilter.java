@@ -0,0 +1,444 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.hadoop.variant.index.sample;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.exceptions.DeserializationException;
+import org.apache.hadoop.hbase.filter.FilterBase;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.opencb.biodata.models.core.Region;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.VariantType;
+import org.opencb.opencga.storage.core.variant.query.Values;
+import org.opencb.opencga.storage.core.variant.query.VariantQueryUtils.QueryOperation;
+import org.opencb.opencga.storage.hadoop.variant.index.query.RangeQuery;
+import org.opencb.opencga.storage.hadoop.variant.index.query.SampleAnnotationIndexQuery;
+import org.opencb.opencga.storage.hadoop.variant.index.query.SampleAnnotationIndexQuery.PopulationFrequencyQuery;
+import org.opencb.opencga.storage.hadoop.variant.index.query.SampleFileIndexQuery;
+import org.opencb.opencga.storage.hadoop.variant.index.query.SampleIndexQuery;
+import org.opencb.opencga.storage.hadoop.variant.index.query.SingleSampleIndexQuery;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * HBase filter that runs the {@link SampleIndexEntryFilter} within the RegionServers, so only the variants passing
+ * all the index filters are sent to the client.
+ *
+ * Each row from the SampleIndex table is replaced by one single cell, with either the filtered variants, sorted and
+ * without duplicates, or the number of filtered variants. Rows without any variant passing the filters are discarded.
+ *
+ * Requires the opencga-storage-hadoop-core jar (and dependencies) in the classpath of the RegionServers. The serialized
+ * filter contains the {@link SampleIndexSchema#VERSION}, so RegionServers with a different version of the schema
+ * refuse to run it. See {@link SampleIndexDBAdaptor} for the fallback to the client side filter.
+ */
+public class SampleIndexEntryServerFilter extends FilterBase {
+
+    static final byte[] FILTERED_VARIANTS_COLUMN = Bytes.toBytes(SampleIndexSchema.META_PREFIX + "SF_V");
+    static final byte[] FILTERED_COUNT_COLUMN = Bytes.toBytes(SampleIndexSchema.META_PREFIX + "SF_C");
+
+    // Dummy sample name. The filter does not need the real one.
+    private static final String SAMPLE = "S";
+
+    private final SingleSampleIndexQuery query;
+    private final List<Region> regions;
+    private final SampleIndexConfiguration configuration;
+    private final boolean count;
+
+    private SampleIndexEntryFilter filter;
+    private HBaseToSampleIndexConverter converter;
+    private SampleIndexVariantBiConverter variantConverter;
+    private boolean filterRow;
+
+    /**
+     * @param query         Query for one sample
+     * @param regions       Regions to filter. Null if the scanned rows match exactly with the query regions.
+     * @param configuration SampleIndex configuration
+     * @param count         Return only the number of variants of each row
+     */
+    public SampleIndexEntryServerFilter(SingleSampleIndexQuery query, List<Region> regions, SampleIndexConfiguration configuration,
+                                        boolean count) {
+        this.query = query;
+        this.regions = regions;
+        this.configuration = configuration;
+        this.count = count;
+    }
+
+    public boolean isCount() {
+        return count;
+    }
+
+    @Override
+    public void reset() {
+        filterRow = false;
+    }
+
+    @Override
+    public ReturnCode filterKeyValue(Cell cell) {
+        return ReturnCode.INCLUDE;
+    }
+
+    @Override
+    public boolean hasFilterRow() {
+        return true;
+    }
+
+    @Override
+    public void filterRowCells(List<Cell> cells) throws IOException {
+        if (cells.isEmpty()) {
+            return;
+        }
+        if (filter == null) {
+            filter = new SampleIndexEntryFilter(query, regions);
+            converter = new HBaseToSampleIndexConverter(configuration);
+            variantConverter = new SampleIndexVariantBiConverter();
+        }
+        Cell first = cells.get(0);
+        byte[] row = CellUtil.cloneRow(first);
+        byte[] family = CellUtil.cloneFamily(first);
+        long timestamp = first.getTimestamp();
+        SampleIndexEntry entry = converter.convert(Result.create(cells));
+        cells.clear();
+        if (count) {
+            int numVariants = filter.filterAndCount(entry);
+            if (numVariants == 0) {
+                filterRow = true;
+            } else {
+                cells.add(new KeyValue(row, family, FILTERED_COUNT_COLUMN, timestamp, Bytes.toBytes(numVariants)));
+            }
+        } else {
+            Collection<Variant> variants = filter.filter(entry);
+            if (variants.isEmpty()) {
+                filterRow = true;
+            } else {
+                cells.add(new KeyValue(row, family, FILTERED_VARIANTS_COLUMN, timestamp, variantConverter.toBytes(variants)));
+            }
+        }
+    }
+
+    @Override
+    public boolean filterRow() throws IOException {
+        return filterRow;
+    }
+
+    /**
+     * Check if the result was produced by this filter.
+     *
+     * @param result Result from the SampleIndex table
+     * @return If the result contains the output of this filter
+     */
+    public static boolean isFiltered(Result result) {
+        return getCell(result, FILTERED_VARIANTS_COLUMN) != null || getCell(result, FILTERED_COUNT_COLUMN) != null;
+    }
+
+    /**
+     * Read the filtered variants from a result produced by this filter.
+     *
+     * @param result Result from the SampleIndex table
+     * @return Filtered variants, sorted
+     */
+    public static List<Variant> getVariants(Result result) {
+        Cell cell = getCell(result, FILTERED_VARIANTS_COLUMN);
+        if (cell == null) {
+            return Collections.emptyList();
+        }
+        byte[] row = result.getRow();
+        return new SampleIndexVariantBiConverter().toVariants(
+                SampleIndexSchema.chromosomeFromRowKey(row), SampleIndexSchema.batchStartFromRowKey(row),
+                cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
+    }
+
+    /**
+     * Read the number of filtered variants from a result produced by this filter.
+     *
+     * @param result Result from the SampleIndex table
+     * @return Number of filtered variants
+     */
+    public static int getCount(Result result) {
+        Cell cell = getCell(result, FILTERED_COUNT_COLUMN);
+        if (cell == null) {
+            return 0;
+        }
+        return Bytes.toInt(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
+    }
+
+    private static Cell getCell(Result result, byte[] column) {
+        Cell[] cells = result.rawCells();
+        if (cells != null) {
+            for (Cell cell : cells) {
+                if (CellUtil.matchingQualifier(cell, column)) {
+                    return cell;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public byte[] toByteArray() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(SampleIndexSchema.VERSION);
+        out.writeBoolean(count);
+
+        // Configuration
+        out.writeInt(configuration.getPopulationRanges().size());
+        for (SampleIndexConfiguration.PopulationFrequencyRange range : configuration.getPopulationRanges()) {
+            out.writeUTF(range.getStudy());
+            out.writeUTF(range.getPopulation());
+        }
+
+        // Regions
+        writeNullableSize(out, regions);
+        if (regions != null) {
+            for (Region region : regions) {
+                out.writeUTF(region.getChromosome());
+                out.writeInt(region.getStart());
+                out.writeInt(region.getEnd());
+            }
+        }
+
+        // Sample query
+        out.writeInt(query.getGenotypes().size());
+        for (String gt : query.getGenotypes()) {
+            out.writeUTF(gt);
+        }
+        writeNullableSize(out, query.getVariantTypes());
+        if (query.getVariantTypes() != null) {
+            for (VariantType variantType : query.getVariantTypes()) {
+                out.writeUTF(variantType.name());
+            }
+        }
+        out.writeBoolean(query.isMultiFileSample());
+        out.writeBoolean(query.getMendelianError());
+        out.writeBoolean(query.isOnlyDeNovo());
+        writeParentFilter(out, query.hasFatherFilter() ? query.getFatherFilter() : null);
+        writeParentFilter(out, query.hasMotherFilter() ? query.getMotherFilter() : null);
+
+        // File index query
+        Values<SampleFileIndexQuery> fileIndexQueries = query.getSampleFileIndexQuery();
+        writeNullableString(out, fileIndexQueries.getOperation() == null ? null : fileIndexQueries.getOperation().name());
+        out.writeInt(fileIndexQueries.size());
+        for (SampleFileIndexQuery fileIndexQuery : fileIndexQueries) {
+            out.writeShort(fileIndexQuery.getFileIndexMask());
+            writeRangeQuery(out, fileIndexQuery.getQualQuery());
+            writeRangeQuery(out, fileIndexQuery.getDpQuery());
+            writeBooleans(out, fileIndexQuery.getValidFileIndex1());
+            writeBooleans(out, fileIndexQuery.getValidFileIndex2());
+        }
+
+        // Annotation index query
+        SampleAnnotationIndexQuery annotationIndexQuery = query.getAnnotationIndexQuery();
+        out.writeByte(annotationIndexQuery.getAnnotationIndexMask());
+        out.writeByte(annotationIndexQuery.getAnnotationIndex());
+        out.writeShort(annotationIndexQuery.getConsequenceTypeMask());
+        out.writeByte(annotationIndexQuery.getBiotypeMask());
+        out.writeByte(annotationIndexQuery.getClinicalMask());
+        out.writeUTF(annotationIndexQuery.getPopulationFrequencyQueryOperator().name());
+        out.writeBoolean(annotationIndexQuery.isPopulationFrequencyQueryPartial());
+        out.writeInt(annotationIndexQuery.getPopulationFrequencyQueries().size());
+        for (PopulationFrequencyQuery popFreqQuery : annotationIndexQuery.getPopulationFrequencyQueries()) {
+            out.writeInt(popFreqQuery.getPosition());
+            out.writeUTF(popFreqQuery.getStudy());
+            out.writeUTF(popFreqQuery.getPopulation());
+            writeRangeQuery(out, popFreqQuery);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Deserialize the filter. Required by HBase.
+     *
+     * @param bytes Serialized filter
+     * @return Deserialized filter
+     * @throws DeserializationException if the filter was serialized with a different version of the SampleIndex schema
+     */
+    public static SampleIndexEntryServerFilter parseFrom(byte[] bytes) throws DeserializationException {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+            int version = in.readInt();
+            if (version != SampleIndexSchema.VERSION) {
+                throw new DeserializationException("Unable to read " + SampleIndexEntryServerFilter.class.getSimpleName()
+                        + " from SampleIndex schema version " + version + ". Expected version " + SampleIndexSchema.VERSION);
+            }
+            boolean count = in.readBoolean();
+
+            // Configuration
+            SampleIndexConfiguration configuration = new SampleIndexConfiguration();
+            configuration.setPopulationRanges(new ArrayList<>());
+            int numRanges = in.readInt();
+            for (int i = 0; i < numRanges; i++) {
+                configuration.addPopulationRange(new SampleIndexConfiguration.PopulationFrequencyRange(in.readUTF(), in.readUTF()));
+            }
+
+            // Regions
+            List<Region> regions = null;
+            int numRegions = in.readInt();
+            if (numRegions >= 0) {
+                regions = new ArrayList<>(numRegions);
+                for (int i = 0; i < numRegions; i++) {
+                    regions.add(new Region(in.readUTF(), in.readInt(), in.readInt()));
+                }
+            }
+
+            // Sample query
+            int numGts = in.readInt();
+            List<String> gts = new ArrayList<>(numGts);
+            for (int i = 0; i < numGts; i++) {
+                gts.add(in.readUTF());
+            }
+            Set<VariantType> variantTypes = null;
+            int numVariantTypes = in.readInt();
+            if (numVariantTypes >= 0) {
+                variantTypes = new HashSet<>(numVariantTypes);
+                for (int i = 0; i < numVariantTypes; i++) {
+                    variantTypes.add(VariantType.valueOf(in.readUTF()));
+                }
+            }
+            boolean multiFileSample = in.readBoolean();
+            boolean mendelianError = in.readBoolean();
+            boolean onlyDeNovo = in.readBoolean();
+            boolean[] fatherFilter = readParentFilter(in);
+            boolean[] motherFilter = readParentFilter(in);
+
+            // File index query
+            String fileIndexOperation = readNullableString(in);
+            int numFileIndexQueries = in.readInt();
+            List<SampleFileIndexQuery> fileIndexQueries = new ArrayList<>(numFileIndexQueries);
+            for (int i = 0; i < numFileIndexQueries; i++) {
+                short fileIndexMask = in.readShort();
+                RangeQuery qualQuery = readRangeQuery(in);
+                RangeQuery dpQuery = readRangeQuery(in);
+                boolean[] validFileIndex1 = readBooleans(in);
+                boolean[] validFileIndex2 = readBooleans(in);
+                fileIndexQueries.add(new SampleFileIndexQuery(SAMPLE, fileIndexMask, qualQuery, dpQuery, validFileIndex1, validFileIndex2));
+            }
+
+            // Annotation index query
+            byte annotationIndexMask = in.readByte();
+            byte annotationIndex = in.readByte();
+            short consequenceTypeMask = in.readShort();
+            byte biotypeMask = in.readByte();
+            byte clinicalMask = in.readByte();
+            QueryOperation popFreqOperation = QueryOperation.valueOf(in.readUTF());
+            boolean popFreqPartial = in.readBoolean();
+            int numPopFreqQueries = in.readInt();
+            List<PopulationFrequencyQuery> popFreqQueries = new ArrayList<>(numPopFreqQueries);
+            for (int i = 0; i < numPopFreqQueries; i++) {
+                int position = in.readInt();
+                String study = in.readUTF();
+                String population = in.readUTF();
+                popFreqQueries.add(new PopulationFrequencyQuery(readRangeQuery(in), position, study, population));
+            }
+            SampleAnnotationIndexQuery annotationIndexQuery = new SampleAnnotationIndexQuery(
+                    new byte[]{annotationIndexMask, annotationIndex}, consequenceTypeMask, biotypeMask, clinicalMask,
+                    popFreqOperation, popFreqQueries, popFreqPartial);
+
+            SampleIndexQuery sampleIndexQuery = new SampleIndexQuery(
+                    null,
+                    variantTypes,
+                    null,
+                    Collections.singletonMap(SAMPLE, gts),
+                    multiFileSample ? Collections.singleton(SAMPLE) : Collections.emptySet(),
+                    Collections.emptySet(),
+                    fatherFilter == null ? Collections.emptyMap() : Collections.singletonMap(SAMPLE, fatherFilter),
+                    motherFilter == null ? Collections.emptyMap() : Collections.singletonMap(SAMPLE, motherFilter),
+                    Collections.singletonMap(SAMPLE, new Values<>(
+                            fileIndexOperation == null ? null : QueryOperation.valueOf(fileIndexOperation), fileIndexQueries)),
+                    annotationIndexQuery,
+                    mendelianError ? Collections.singleton(SAMPLE) : Collections.emptySet(),
+                    onlyDeNovo,
+                    QueryOperation.AND);
+
+            return new SampleIndexEntryServerFilter(sampleIndexQuery.forSample(SAMPLE, gts), regions, configuration, count);
+        } catch (IOException | RuntimeException e) {
+            throw new DeserializationException(e);
+        }
+    }
+
+    private static void writeNullableSize(DataOutput out, Collection<?> collection) throws IOException {
+        out.writeInt(collection == null ? -1 : collection.size());
+    }
+
+    private static void writeNullableString(DataOutput out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) {
+            out.writeUTF(s);
+        }
+    }
+
+    private static String readNullableString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeParentFilter(DataOutput out, boolean[] parentFilter) throws IOException {
+        out.writeBoolean(parentFilter != null);
+        if (parentFilter != null) {
+            writeBooleans(out, parentFilter);
+        }
+    }
+
+    private static boolean[] readParentFilter(DataInput in) throws IOException {
+        return in.readBoolean() ? readBooleans(in) : null;
+    }
+
+    private static void writeBooleans(DataOutput out, boolean[] values) throws IOException {
+        out.writeInt(values.length);
+        for (boolean value : values) {
+            out.writeBoolean(value);
+        }
+    }
+
+    private static boolean[] readBooleans(DataInput in) throws IOException {
+        boolean[] values = new boolean[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readBoolean();
+        }
+        return values;
+    }
+
+    private static void writeRangeQuery(DataOutput out, RangeQuery rangeQuery) throws IOException {
+        out.writeBoolean(rangeQuery != null);
+        if (rangeQuery != null) {
+            out.writeDouble(rangeQuery.getMinValueInclusive());
+            out.writeDouble(rangeQuery.getMaxValueExclusive());
+            out.writeByte(rangeQuery.getMinCodeInclusive());
+            out.writeByte(rangeQuery.getMaxCodeExclusive());
+            out.writeBoolean(rangeQuery.isExactQuery());
+        }
+    }
+
+    private static RangeQuery readRangeQuery(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        return new RangeQuery(in.readDouble(), in.readDouble(), in.readByte(), in.readByte(), in.readBoolean());
+    }
+
+    @Override
+    public String toString() {
+        return "SampleIndexEntryServerFilter{"
+                + "gts=" + query.getGenotypes()
+                + ", regions=" + regions
+                + ", count=" + count
+                + '}';
+    }
+}
@@ -30,6 +30,12 @@ import static org.apache.hadoop.hbase.util.Bytes.SIZEOF_INT;
  */
 public final class SampleIndexSchema {
 
+    /**
+     * Version of the encoding of the SampleIndex table.
+     * Must be increased with any incompatible change, as it is checked by the filters executed within the RegionServers.
+     */
+    public static final int VERSION = 1;
+
     public static final int BATCH_SIZE = 1_000_000;
     public static final Comparator<Variant> INTRA_CHROMOSOME_VARIANT_COMPARATOR =  (o1, o2) -> {
         VariantAvro v1 = o1.getImpl();
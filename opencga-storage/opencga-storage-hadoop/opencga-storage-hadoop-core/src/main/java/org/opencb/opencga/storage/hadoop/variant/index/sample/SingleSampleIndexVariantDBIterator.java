@@ -8,11 +8,13 @@ import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.client.Table;
 import org.opencb.biodata.models.core.Region;
 import org.opencb.biodata.models.variant.Variant;
+import org.opencb.opencga.storage.core.utils.iterators.PrefetchIterator;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryException;
 import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
 import org.opencb.opencga.storage.hadoop.variant.index.query.SingleSampleIndexQuery;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
@@ -37,27 +39,46 @@ public class SingleSampleIndexVariantDBIterator extends VariantDBIterator {
             regionGroups = query.getRegionGroups();
         }
 
-        Iterator<Iterator<Variant>> iterators = regionGroups.stream()
+        // Scanners are opened from the prefetch thread
+        List<ResultScanner> scanners = Collections.synchronizedList(new ArrayList<>(regionGroups.size()));
+        Iterator<PrefetchIterator.Batch<Variant>> batches = Iterators.concat(regionGroups.stream()
                 .map(regions -> {
                     // One scan per region group
                     Scan scan = dbAdaptor.parse(query, regions);
                     HBaseToSampleIndexConverter converter = new HBaseToSampleIndexConverter(dbAdaptor.getConfiguration());
                     SampleIndexEntryFilter filter = dbAdaptor.buildSampleIndexEntryFilter(query, regions);
+                    SampleIndexEntryServerFilter serverFilter = dbAdaptor.buildServerSideFilter(table, query, regions, false);
+                    if (serverFilter != null) {
+                        scan.setFilter(serverFilter);
+                    }
                     try {
                         ResultScanner scanner = table.getScanner(scan);
-                        addCloseable(scanner);
+                        scanners.add(scanner);
                         Iterator<Result> resultIterator = scanner.iterator();
-                        Iterator<Iterator<Variant>> transform = Iterators.transform(resultIterator,
+                        return Iterators.transform(resultIterator,
                                 result -> {
-                                    SampleIndexEntry sampleIndexEntry = converter.convert(result);
-                                    return filter.filter(sampleIndexEntry).iterator();
+                                    Collection<Variant> variants;
+                                    if (serverFilter != null) {
+                                        // Already filtered by the RegionServer
+                                        variants = SampleIndexEntryServerFilter.getVariants(result);
+                                    } else {
+                                        variants = filter.filter(converter.convert(result));
+                                    }
+                                    return new PrefetchIterator.Batch<>(variants, SampleIndexDBAdaptor.resultSize(result));
                                 });
-                        return Iterators.concat(transform);
                     } catch (IOException e) {
                         throw VariantQueryException.internalException(e);
                     }
-                }).iterator();
-        iterator = Iterators.concat(iterators);
+                }).iterator());
+        PrefetchIterator<Variant> prefetchIterator = dbAdaptor.prefetch(batches);
+        // Stop the prefetch before closing the scanners
+        addCloseable(prefetchIterator);
+        addCloseable(() -> {
+            synchronized (scanners) {
+                scanners.forEach(ResultScanner::close);
+            }
+        });
+        iterator = prefetchIterator.start();
     }
 
     @Override
@@ -20,9 +20,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.TimeoutException;
 
 import static org.opencb.opencga.storage.hadoop.variant.metadata.HBaseVariantMetadataUtils.*;
@@ -141,6 +139,37 @@ public class HBaseProjectMetadataDBAdaptor extends AbstractHBaseDBAdaptor implem
         }
     }
 
+    @Override
+    public int getCounter(Integer studyId, String idType) throws StorageEngineException {
+        return getCounters(Collections.singletonList(studyId), idType).get(0);
+    }
+
+    @Override
+    public List<Integer> getCounters(List<Integer> studyIds, String idType) throws StorageEngineException {
+        try {
+            ensureTableExists();
+            return hBaseManager.act(tableName, (table) -> {
+                Get get = new Get(getProjectRowKey());
+                for (Integer studyId : studyIds) {
+                    get.addColumn(family, getCounterColumn(studyId, idType));
+                }
+                Result result = table.get(get);
+                List<Integer> counters = new ArrayList<>(studyIds.size());
+                for (Integer studyId : studyIds) {
+                    byte[] value = result == null ? null : result.getValue(family, getCounterColumn(studyId, idType));
+                    if (value == null || value.length == 0) {
+                        counters.add(0);
+                    } else {
+                        counters.add((int) Bytes.toLong(value));
+                    }
+                }
+                return counters;
+            });
+        } catch (IOException e) {
+            throw new StorageEngineException("Error reading counter", e);
+        }
+    }
+
     @Override
     public boolean exists() {
         return tableExists();
@@ -0,0 +1,83 @@
+package org.opencb.opencga.storage.hadoop.variant.mr;
+
+import org.apache.hadoop.hbase.client.Result;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+import org.opencb.opencga.storage.hadoop.variant.converters.VariantRow;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Row from the variants table shared by multiple {@link VariantRowConsumer}.
+ *
+ * The variant, the annotation and the genotypes are decoded only once, the first time they are requested.
+ */
+public class DecodedVariantRow {
+
+    private final Result result;
+    private final VariantRow variantRow;
+    private int[] sampleIds;
+    private String[] genotypes;
+
+    public DecodedVariantRow(Result result) {
+        this.result = result;
+        this.variantRow = new VariantRow(result);
+    }
+
+    public Result getResult() {
+        return result;
+    }
+
+    public VariantRow getVariantRow() {
+        return variantRow;
+    }
+
+    public Variant getVariant() {
+        return variantRow.getVariant();
+    }
+
+    public VariantAnnotation getVariantAnnotation() {
+        return variantRow.getVariantAnnotation();
+    }
+
+    /**
+     * Number of sample columns in the row. Samples from multiple files may have more than one column.
+     *
+     * @return number of sample columns
+     */
+    public int getNumSampleColumns() {
+        decodeSamples();
+        return sampleIds.length;
+    }
+
+    public int getSampleId(int sampleColumn) {
+        decodeSamples();
+        return sampleIds[sampleColumn];
+    }
+
+    /**
+     * First field of the sample column. This is the genotype, if the study contains genotypes.
+     *
+     * @param sampleColumn Sample column index
+     * @return the genotype, or null if missing
+     */
+    public String getGenotype(int sampleColumn) {
+        decodeSamples();
+        return genotypes[sampleColumn];
+    }
+
+    private void decodeSamples() {
+        if (sampleIds == null) {
+            List<VariantRow.SampleColumn> columns = new ArrayList<>();
+            variantRow.walker().onSample(columns::add).walk();
+            sampleIds = new int[columns.size()];
+            genotypes = new String[columns.size()];
+            for (int i = 0; i < columns.size(); i++) {
+                VariantRow.SampleColumn column = columns.get(i);
+                sampleIds[i] = column.getSampleId();
+                genotypes[i] = column.getGT();
+            }
+        }
+    }
+}
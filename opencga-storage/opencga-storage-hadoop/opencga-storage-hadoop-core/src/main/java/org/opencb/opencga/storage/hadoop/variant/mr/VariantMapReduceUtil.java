@@ -3,11 +3,14 @@ package org.opencb.opencga.storage.hadoop.variant.mr;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.RegionLocator;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.filter.Filter;
 import org.apache.hadoop.hbase.filter.FilterList;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.mapreduce.HFileOutputFormat2;
 import org.apache.hadoop.hbase.mapreduce.MultiTableOutputFormat;
 import org.apache.hadoop.hbase.mapreduce.TableInputFormat;
 import org.apache.hadoop.hbase.mapreduce.TableMapReduceUtil;
@@ -16,6 +19,7 @@ import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.mapreduce.InputFormat;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import org.apache.phoenix.mapreduce.util.PhoenixMapReduceUtil;
 import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.commons.datastore.core.Query;
@@ -27,6 +31,7 @@ import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
 import org.opencb.opencga.storage.core.variant.query.VariantQueryParser;
 import org.opencb.opencga.storage.core.variant.query.VariantQueryUtils;
 import org.opencb.opencga.storage.hadoop.utils.AbstractHBaseDriver;
+import org.opencb.opencga.storage.hadoop.utils.HBaseManager;
 import org.opencb.opencga.storage.hadoop.variant.AbstractVariantsTableDriver;
 import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
 import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions;
@@ -392,6 +397,30 @@ public class VariantMapReduceUtil {
                 addDependencyJar);
     }
 
+    /**
+     * Write the output of the job into HFiles, partitioned and sorted by the regions of the output table.
+     * The HFiles have to be bulk loaded after the job. See {@link HBaseManager#bulkLoad}.
+     *
+     * The job must produce {@link org.apache.hadoop.hbase.Cell}, {@link org.apache.hadoop.hbase.client.Put}
+     * or {@link org.apache.hadoop.hbase.KeyValue} values, sorted within each row.
+     *
+     * @param job       Job
+     * @param outTable  Table where the HFiles will be loaded
+     * @param hfilesDir Output directory of the HFiles
+     * @throws IOException on error reading the table regions
+     */
+    public static void setOutputHBaseTableBulkLoad(Job job, String outTable, Path hfilesDir) throws IOException {
+        LOGGER.info("Use HFiles at {} as output, to bulk load into table {}", hfilesDir, outTable);
+        try (HBaseManager hBaseManager = new HBaseManager(job.getConfiguration())) {
+            hBaseManager.act(outTable, table -> {
+                try (RegionLocator regionLocator = hBaseManager.getConnection().getRegionLocator(table.getName())) {
+                    HFileOutputFormat2.configureIncrementalLoad(job, table, regionLocator);
+                }
+            });
+        }
+        FileOutputFormat.setOutputPath(job, hfilesDir);
+    }
+
     public static void setMultiTableOutput(Job job) throws IOException {
         job.setOutputFormatClass(MultiTableOutputFormat.class);
         LOGGER.info("Use multi-table as output");
@@ -0,0 +1,112 @@
+package org.opencb.opencga.storage.hadoop.variant.mr;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.hadoop.utils.HBaseManager;
+import org.opencb.opencga.storage.hadoop.variant.utils.HBaseVariantTableNameGenerator;
+
+import java.io.IOException;
+
+/**
+ * Consumer of rows from the variants table, producing mutations for one output table.
+ *
+ * Multiple consumers can share one single scan over the variants table. Rows are given in the order required
+ * by the SampleIndex, and {@link #flush} is called at the end of every SampleIndex batch.
+ *
+ * Each consumer is used twice: at the driver, to configure the job, and at the mapper, to process the rows.
+ */
+public abstract class VariantRowConsumer {
+
+    private TaskAttemptContext context;
+
+    @FunctionalInterface
+    public interface Output {
+        void write(Mutation mutation) throws IOException, InterruptedException;
+    }
+
+    public interface DriverContext {
+        Configuration getConf();
+
+        String getParam(String key);
+
+        int getStudyId();
+
+        VariantStorageMetadataManager getMetadataManager() throws IOException;
+
+        HBaseVariantTableNameGenerator getTableNameGenerator();
+
+        HBaseManager getHBaseManager();
+    }
+
+    /**
+     * @return Name of the consumer
+     */
+    public abstract String getName();
+
+    /**
+     * Driver side. Read and validate the parameters, add the required columns to the scan and store
+     * the configuration of this consumer in the job.
+     *
+     * @param job     Job to configure
+     * @param scan    Scan over the variants table, shared by all consumers
+     * @param context Driver context
+     * @return Output table
+     * @throws IOException on error
+     */
+    public abstract String configure(Job job, Scan scan, DriverContext context) throws IOException;
+
+    /**
+     * Driver side. Executed after the job.
+     *
+     * @param context Driver context
+     * @param succeed If the job succeed
+     * @throws IOException on error
+     * @throws StorageEngineException on error
+     */
+    public void postExecution(DriverContext context, boolean succeed) throws IOException, StorageEngineException {
+    }
+
+    /**
+     * Mapper side. Read the configuration.
+     *
+     * @param context Task context
+     * @throws IOException on error
+     */
+    public void setup(TaskAttemptContext context) throws IOException {
+        this.context = context;
+    }
+
+    public abstract void map(DecodedVariantRow row, Output output) throws IOException, InterruptedException;
+
+    /**
+     * Called after the last variant of each SampleIndex batch.
+     *
+     * @param chromosome Chromosome of the batch
+     * @param position   Position of the last variant of the batch
+     * @param output     Output
+     * @throws IOException on error
+     * @throws InterruptedException on error
+     */
+    public void flush(String chromosome, int position, Output output) throws IOException, InterruptedException {
+    }
+
+    public void cleanup(Output output) throws IOException, InterruptedException {
+    }
+
+    protected Configuration getConf() {
+        return context.getConfiguration();
+    }
+
+    protected void increment(String counter) {
+        increment(counter, 1);
+    }
+
+    protected void increment(String counter, long value) {
+        context.getCounter(VariantsTableMapReduceHelper.COUNTER_GROUP_NAME, counter).increment(value);
+    }
+}
@@ -0,0 +1,61 @@
+package org.opencb.opencga.storage.hadoop.variant.pending;
+
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.hadoop.variant.metadata.HBaseVariantStorageMetadataDBAdaptorFactory;
+import org.opencb.opencga.storage.hadoop.variant.mr.DecodedVariantRow;
+import org.opencb.opencga.storage.hadoop.variant.mr.VariantRowConsumer;
+import org.opencb.opencga.storage.hadoop.variant.mr.VariantTableHelper;
+
+import java.io.IOException;
+import java.util.function.Function;
+
+/**
+ * Discover pending variants, as the {@link DiscoverPendingVariantsDriver}.
+ *
+ * Existing pending variants are never overwritten.
+ */
+public abstract class PendingVariantsConsumer extends VariantRowConsumer {
+
+    private final PendingVariantsDescriptor descriptor;
+    private Function<Result, Mutation> pendingEvaluator;
+
+    protected PendingVariantsConsumer(PendingVariantsDescriptor descriptor) {
+        this.descriptor = descriptor;
+    }
+
+    @Override
+    public String configure(Job job, Scan scan, DriverContext context) throws IOException {
+        String tableName = descriptor.getTableName(context.getTableNameGenerator());
+        descriptor.createTableIfNeeded(tableName, context.getHBaseManager());
+        descriptor.configureScan(scan, context.getMetadataManager());
+        return tableName;
+    }
+
+    @Override
+    public void setup(TaskAttemptContext context) throws IOException {
+        super.setup(context);
+        pendingEvaluator = descriptor.getPendingEvaluatorMapper(
+                new VariantStorageMetadataManager(
+                        new HBaseVariantStorageMetadataDBAdaptorFactory(
+                                new VariantTableHelper(context.getConfiguration()))), false);
+    }
+
+    @Override
+    public void map(DecodedVariantRow row, Output output) throws IOException, InterruptedException {
+        Mutation mutation = pendingEvaluator.apply(row.getResult());
+        if (mutation == null || mutation instanceof Delete) {
+            increment("ready_variants");
+        } else {
+            increment("pending_variants");
+        }
+        if (mutation != null) {
+            output.write(mutation);
+        }
+    }
+}
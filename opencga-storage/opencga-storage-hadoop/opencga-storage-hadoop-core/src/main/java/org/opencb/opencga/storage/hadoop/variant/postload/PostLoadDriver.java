@@ -0,0 +1,201 @@
+package org.opencb.opencga.storage.hadoop.variant.postload;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.mapreduce.TableInputFormat;
+import org.apache.hadoop.mapreduce.Job;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.hadoop.utils.HBaseManager;
+import org.opencb.opencga.storage.hadoop.variant.AbstractVariantsTableDriver;
+import org.opencb.opencga.storage.hadoop.variant.annotation.pending.AnnotationPendingVariantsConsumer;
+import org.opencb.opencga.storage.hadoop.variant.index.annotation.mr.SampleIndexAnnotationConsumer;
+import org.opencb.opencga.storage.hadoop.variant.index.annotation.mr.SampleIndexAnnotationLoaderDriver;
+import org.opencb.opencga.storage.hadoop.variant.index.family.FamilyIndexConsumer;
+import org.opencb.opencga.storage.hadoop.variant.index.family.FamilyIndexDriver;
+import org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexSchema;
+import org.opencb.opencga.storage.hadoop.variant.mr.VariantAlignedInputFormat;
+import org.opencb.opencga.storage.hadoop.variant.mr.VariantMapReduceUtil;
+import org.opencb.opencga.storage.hadoop.variant.mr.VariantRowConsumer;
+import org.opencb.opencga.storage.hadoop.variant.stats.VariantStatsConsumer;
+import org.opencb.opencga.storage.hadoop.variant.stats.VariantStatsDriver;
+import org.opencb.opencga.storage.hadoop.variant.utils.HBaseVariantTableNameGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Executes multiple {@link VariantRowConsumer} in one single scan over the variants table.
+ *
+ * Each row is read and decoded only once, and given to all the consumers, that write into their own output tables.
+ */
+public class PostLoadDriver extends AbstractVariantsTableDriver {
+
+    public static final String CONSUMERS = "consumers";
+
+    private static final String CONSUMERS_LIST = "PostLoadDriver.consumers";
+    private static final String OUTPUT_TABLE_PREFIX = "PostLoadDriver.output.";
+    private static final Map<String, Class<? extends VariantRowConsumer>> CONSUMER_CLASSES;
+    private static final Logger LOGGER = LoggerFactory.getLogger(PostLoadDriver.class);
+
+    static {
+        // Sorted in the order they are executed
+        Map<String, Class<? extends VariantRowConsumer>> map = new LinkedHashMap<>();
+        map.put(SampleIndexAnnotationConsumer.NAME, SampleIndexAnnotationConsumer.class);
+        map.put(FamilyIndexConsumer.NAME, FamilyIndexConsumer.class);
+        map.put(VariantStatsConsumer.NAME, VariantStatsConsumer.class);
+        map.put(AnnotationPendingVariantsConsumer.NAME, AnnotationPendingVariantsConsumer.class);
+        CONSUMER_CLASSES = Collections.unmodifiableMap(map);
+    }
+
+    private List<VariantRowConsumer> consumers;
+    private final VariantRowConsumer.DriverContext driverContext = new VariantRowConsumer.DriverContext() {
+        @Override
+        public Configuration getConf() {
+            return PostLoadDriver.this.getConf();
+        }
+
+        @Override
+        public String getParam(String key) {
+            return PostLoadDriver.this.getParam(key);
+        }
+
+        @Override
+        public int getStudyId() {
+            return PostLoadDriver.this.getStudyId();
+        }
+
+        @Override
+        public VariantStorageMetadataManager getMetadataManager() throws IOException {
+            return PostLoadDriver.this.getMetadataManager();
+        }
+
+        @Override
+        public HBaseVariantTableNameGenerator getTableNameGenerator() {
+            return PostLoadDriver.this.getTableNameGenerator();
+        }
+
+        @Override
+        public HBaseManager getHBaseManager() {
+            return PostLoadDriver.this.getHBaseManager();
+        }
+    };
+
+    public static Set<String> getConsumerNames() {
+        return CONSUMER_CLASSES.keySet();
+    }
+
+    static List<VariantRowConsumer> createConsumers(Collection<String> names) {
+        List<VariantRowConsumer> consumers = new ArrayList<>(names.size());
+        // Keep always the same order, regardless of the input order
+        for (Map.Entry<String, Class<? extends VariantRowConsumer>> entry : CONSUMER_CLASSES.entrySet()) {
+            if (names.contains(entry.getKey())) {
+                try {
+                    consumers.add(entry.getValue().newInstance());
+                } catch (InstantiationException | IllegalAccessException e) {
+                    throw new IllegalStateException("Unable to create consumer " + entry.getKey(), e);
+                }
+            }
+        }
+        return consumers;
+    }
+
+    static List<VariantRowConsumer> createConsumers(Configuration conf) {
+        return createConsumers(conf.getStringCollection(CONSUMERS_LIST));
+    }
+
+    static String getOutputTable(Configuration conf, VariantRowConsumer consumer) {
+        return conf.get(OUTPUT_TABLE_PREFIX + consumer.getName());
+    }
+
+    @Override
+    protected Class<PostLoadMapper> getMapperClass() {
+        return PostLoadMapper.class;
+    }
+
+    @Override
+    protected Map<String, String> getParams() {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("--" + CONSUMERS, "<" + String.join("|", CONSUMER_CLASSES.keySet()) + ">*");
+        params.put("--" + SampleIndexAnnotationLoaderDriver.SAMPLE_IDS, "<sample-ids>");
+        params.put("--" + FamilyIndexDriver.TRIOS, "(father,mother,child;)*");
+        params.put("--" + VariantStatsDriver.COHORTS, "<cohorts>");
+        params.put("--" + SampleIndexAnnotationLoaderDriver.OUTPUT, "<sample-index-table>");
+        return params;
+    }
+
+    @Override
+    protected void parseAndValidateParameters() throws IOException {
+        super.parseAndValidateParameters();
+
+        String consumersStr = getParam(CONSUMERS);
+        if (StringUtils.isEmpty(consumersStr)) {
+            throw new IllegalArgumentException("Missing param " + CONSUMERS);
+        }
+        List<String> names = Arrays.asList(consumersStr.split(","));
+        for (String name : names) {
+            if (!CONSUMER_CLASSES.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown consumer '" + name + "'. Expected any of " + CONSUMER_CLASSES.keySet());
+            }
+        }
+        consumers = createConsumers(names);
+    }
+
+    @Override
+    protected Job setupJob(Job job, String archiveTable, String variantTable) throws IOException {
+        Scan scan = new Scan();
+        List<String> names = new ArrayList<>(consumers.size());
+        for (VariantRowConsumer consumer : consumers) {
+            String outputTable = consumer.configure(job, scan, driverContext);
+            LOGGER.info("Consumer '{}' writing into table {}", consumer.getName(), outputTable);
+            job.getConfiguration().set(OUTPUT_TABLE_PREFIX + consumer.getName(), outputTable);
+            names.add(consumer.getName());
+        }
+        job.getConfiguration().setStrings(CONSUMERS_LIST, names.toArray(new String[0]));
+
+        VariantMapReduceUtil.configureMapReduceScan(scan, getConf());
+        LOGGER.info("Scan variants table " + variantTable + " with scan " + scan.toString(50));
+
+        VariantMapReduceUtil.initTableMapperJob(job, variantTable,
+                scan, getMapperClass(), VariantAlignedInputFormat.class);
+        VariantAlignedInputFormat.setDelegatedInputFormat(job, TableInputFormat.class);
+        VariantAlignedInputFormat.setBatchSize(job, SampleIndexSchema.BATCH_SIZE);
+
+        VariantMapReduceUtil.setMultiTableOutput(job);
+        VariantMapReduceUtil.setNoneReduce(job);
+        return job;
+    }
+
+    @Override
+    protected void postExecution(boolean succeed) throws IOException, StorageEngineException {
+        super.postExecution(succeed);
+        for (VariantRowConsumer consumer : consumers) {
+            consumer.postExecution(driverContext, succeed);
+        }
+    }
+
+    @Override
+    protected String getJobOperationName() {
+        return "post_load";
+    }
+
+    public static String[] buildArgs(String archiveTable, String variantsTable, int studyId, Collection<String> consumers,
+                                     ObjectMap other) {
+        ObjectMap params = new ObjectMap(other);
+        params.put(CONSUMERS, String.join(",", consumers));
+        return AbstractVariantsTableDriver.buildArgs(archiveTable, variantsTable, studyId, null, params);
+    }
+
+    public static void main(String[] args) throws Exception {
+        try {
+            System.exit(new PostLoadDriver().privateMain(args, null));
+        } catch (Exception e) {
+            LOGGER.error("Error executing " + PostLoadDriver.class, e);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package org.opencb.opencga.storage.hadoop.variant.postload;
+
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.tools.variant.stats.AggregationUtils;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.metadata.models.CohortMetadata;
+import org.opencb.opencga.storage.core.metadata.models.SampleMetadata;
+import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
+import org.opencb.opencga.storage.core.metadata.models.TaskMetadata;
+import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageEngine;
+import org.opencb.opencga.storage.hadoop.variant.adaptors.VariantHadoopDBAdaptor;
+import org.opencb.opencga.storage.hadoop.variant.annotation.pending.AnnotationPendingVariantsConsumer;
+import org.opencb.opencga.storage.hadoop.variant.executors.MRExecutor;
+import org.opencb.opencga.storage.hadoop.variant.index.annotation.mr.SampleIndexAnnotationConsumer;
+import org.opencb.opencga.storage.hadoop.variant.index.annotation.mr.SampleIndexAnnotationLoaderDriver;
+import org.opencb.opencga.storage.hadoop.variant.index.family.FamilyIndexConsumer;
+import org.opencb.opencga.storage.hadoop.variant.index.family.FamilyIndexDriver;
+import org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexAnnotationLoader;
+import org.opencb.opencga.storage.hadoop.variant.stats.HadoopMRVariantStatisticsManager;
+import org.opencb.opencga.storage.hadoop.variant.stats.VariantStatsConsumer;
+import org.opencb.opencga.storage.hadoop.variant.stats.VariantStatsDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+import static org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions.SAMPLE_INDEX_ANNOTATION_MAX_SAMPLES_PER_MR;
+
+/**
+ * Finds the pending operations after loading new files, and runs all of them with one single {@link PostLoadDriver}.
+ *
+ *  - {@link SampleIndexAnnotationConsumer}: annotated samples without the SampleIndex annotation
+ *  - {@link FamilyIndexConsumer}: children with parents and without the family index
+ *  - {@link VariantStatsConsumer}: given cohorts, or the default cohort if its stats are not ready
+ *  - {@link AnnotationPendingVariantsConsumer}: new variants to annotate
+ */
+public class PostLoadManager {
+
+    private final VariantHadoopDBAdaptor dbAdaptor;
+    private final MRExecutor mrExecutor;
+    private final Logger logger = LoggerFactory.getLogger(PostLoadManager.class);
+
+    public PostLoadManager(VariantHadoopDBAdaptor dbAdaptor, MRExecutor mrExecutor) {
+        this.dbAdaptor = dbAdaptor;
+        this.mrExecutor = mrExecutor;
+    }
+
+    public void run(String study, Collection<String> consumers, ObjectMap options) throws StorageEngineException {
+        for (String consumer : consumers) {
+            if (!PostLoadDriver.getConsumerNames().contains(consumer)) {
+                throw new IllegalArgumentException("Unknown post load consumer '" + consumer + "'. "
+                        + "Expected any of " + PostLoadDriver.getConsumerNames());
+            }
+        }
+        VariantStorageMetadataManager metadataManager = dbAdaptor.getMetadataManager();
+        StudyMetadata studyMetadata = metadataManager.getStudyMetadata(study);
+        int studyId = studyMetadata.getId();
+
+        ObjectMap params = new ObjectMap(options);
+        Set<String> selected = new LinkedHashSet<>();
+
+        if (consumers.contains(SampleIndexAnnotationConsumer.NAME)) {
+            SampleIndexAnnotationLoader loader = new SampleIndexAnnotationLoader(dbAdaptor.getHBaseManager(),
+                    dbAdaptor.getTableNameGenerator(), metadataManager, mrExecutor);
+            List<Integer> samples = loader.getSamplesToAnnotate(studyId, metadataManager.getIndexedSamples(studyId), false);
+            int maxSamples = options.getInt(
+                    SAMPLE_INDEX_ANNOTATION_MAX_SAMPLES_PER_MR.key(),
+                    SAMPLE_INDEX_ANNOTATION_MAX_SAMPLES_PER_MR.defaultValue());
+            if (samples.size() > maxSamples) {
+                logger.info("Too many samples to annotate the sample index in the post load job. Run in separated jobs.");
+                loader.updateSampleAnnotation(studyId, samples, options, false);
+            } else if (!samples.isEmpty()) {
+                selected.add(SampleIndexAnnotationConsumer.NAME);
+                params.put(SampleIndexAnnotationLoaderDriver.SAMPLE_IDS, samples);
+            }
+        }
+
+        if (consumers.contains(FamilyIndexConsumer.NAME)) {
+            List<String> children = new ArrayList<>();
+            for (Integer sampleId : metadataManager.getIndexedSamples(studyId)) {
+                SampleMetadata sampleMetadata = metadataManager.getSampleMetadata(studyId, sampleId);
+                if ((sampleMetadata.getFather() != null || sampleMetadata.getMother() != null)
+                        && !sampleMetadata.getMendelianErrorStatus().equals(TaskMetadata.Status.READY)) {
+                    children.add(sampleMetadata.getName());
+                }
+            }
+            if (!children.isEmpty()) {
+                selected.add(FamilyIndexConsumer.NAME);
+                CohortMetadata triosCohort = metadataManager.registerTemporaryCohort(study, "pendingFamilyIndexSamples", children);
+                params.put(FamilyIndexDriver.TRIOS_COHORT, triosCohort.getName());
+                params.put(FamilyIndexDriver.TRIOS_COHORT_DELETE, true);
+            }
+        }
+
+        List<String> cohorts = Collections.emptyList();
+        HadoopMRVariantStatisticsManager statisticsManager = null;
+        if (consumers.contains(VariantStatsConsumer.NAME)) {
+            cohorts = getCohortsToCalculate(studyMetadata, options);
+            if (!cohorts.isEmpty()) {
+                selected.add(VariantStatsConsumer.NAME);
+                params.put(VariantStatsDriver.COHORTS, cohorts);
+                statisticsManager = new HadoopMRVariantStatisticsManager(dbAdaptor, mrExecutor, options);
+                // All variants are scanned, so stats are always overwritten
+                statisticsManager.preCalculateStats(metadataManager, studyMetadata, cohorts, true, false, options);
+            }
+        }
+
+        if (consumers.contains(AnnotationPendingVariantsConsumer.NAME)) {
+            selected.add(AnnotationPendingVariantsConsumer.NAME);
+        }
+
+        if (selected.isEmpty()) {
+            logger.info("Skip post load. Nothing to do!");
+            return;
+        }
+
+        long ts = System.currentTimeMillis();
+        boolean error = false;
+        try {
+            String[] args = PostLoadDriver.buildArgs(
+                    dbAdaptor.getTableNameGenerator().getArchiveTableName(studyId),
+                    dbAdaptor.getTableNameGenerator().getVariantTableName(),
+                    studyId, selected, params);
+            mrExecutor.run(PostLoadDriver.class, args, params, "Post load " + selected);
+        } catch (Exception e) {
+            error = true;
+            throw e;
+        } finally {
+            if (statisticsManager != null) {
+                statisticsManager.postCalculateStats(metadataManager, studyMetadata, cohorts, error);
+            }
+        }
+        if (statisticsManager != null) {
+            dbAdaptor.updateStatsColumns(studyMetadata);
+        }
+        if (selected.contains(AnnotationPendingVariantsConsumer.NAME)) {
+            // All the variants were scanned, so the annotation does not need to discover the pending variants again
+            metadataManager.updateProjectMetadata(pm -> {
+                pm.getAttributes().put(HadoopVariantStorageEngine.LAST_VARIANTS_TO_ANNOTATE_UPDATE_TS, ts);
+                return pm;
+            });
+        }
+    }
+
+    private List<String> getCohortsToCalculate(StudyMetadata studyMetadata, ObjectMap options) {
+        if (studyMetadata.getAggregation() != null && AggregationUtils.isAggregated(studyMetadata.getAggregation())) {
+            logger.info("Skip stats on aggregated study " + studyMetadata.getName());
+            return Collections.emptyList();
+        }
+        List<String> cohorts = options.getAsStringList(VariantStatsDriver.COHORTS);
+        if (!cohorts.isEmpty()) {
+            return cohorts;
+        }
+        VariantStorageMetadataManager metadataManager = dbAdaptor.getMetadataManager();
+        Integer cohortId = metadataManager.getCohortId(studyMetadata.getId(), StudyEntry.DEFAULT_COHORT);
+        if (cohortId == null) {
+            return Collections.emptyList();
+        }
+        CohortMetadata cohort = metadataManager.getCohortMetadata(studyMetadata.getId(), cohortId);
+        if (cohort.getSamples().isEmpty() || cohort.isStatsReady()) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(StudyEntry.DEFAULT_COHORT);
+    }
+}
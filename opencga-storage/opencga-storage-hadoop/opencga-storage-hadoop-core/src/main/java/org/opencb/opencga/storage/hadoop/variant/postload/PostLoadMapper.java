@@ -0,0 +1,62 @@
+package org.opencb.opencga.storage.hadoop.variant.postload;
+
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.opencb.opencga.storage.hadoop.variant.index.annotation.mr.VariantTableSampleIndexOrderMapper;
+import org.opencb.opencga.storage.hadoop.variant.mr.DecodedVariantRow;
+import org.opencb.opencga.storage.hadoop.variant.mr.VariantRowConsumer;
+import org.opencb.opencga.storage.hadoop.variant.mr.VariantsTableMapReduceHelper;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Decodes every row once, and gives it to all the configured {@link VariantRowConsumer}.
+ */
+public class PostLoadMapper extends VariantTableSampleIndexOrderMapper<ImmutableBytesWritable, Mutation> {
+
+    private List<VariantRowConsumer> consumers;
+    private VariantRowConsumer.Output[] outputs;
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        consumers = PostLoadDriver.createConsumers(context.getConfiguration());
+        outputs = new VariantRowConsumer.Output[consumers.size()];
+        for (int i = 0; i < consumers.size(); i++) {
+            VariantRowConsumer consumer = consumers.get(i);
+            consumer.setup(context);
+            String outputTable = PostLoadDriver.getOutputTable(context.getConfiguration(), consumer);
+            if (outputTable == null) {
+                throw new IllegalStateException("Missing output table for consumer " + consumer.getName());
+            }
+            ImmutableBytesWritable tableKey = new ImmutableBytesWritable(Bytes.toBytes(outputTable));
+            outputs[i] = mutation -> context.write(tableKey, mutation);
+        }
+    }
+
+    @Override
+    protected void map(ImmutableBytesWritable key, Result value, Context context) throws IOException, InterruptedException {
+        context.getCounter(VariantsTableMapReduceHelper.COUNTER_GROUP_NAME, "variants").increment(1);
+        DecodedVariantRow row = new DecodedVariantRow(value);
+        for (int i = 0; i < consumers.size(); i++) {
+            consumers.get(i).map(row, outputs[i]);
+        }
+    }
+
+    @Override
+    public void flush(Context context, String chromosome, int position) throws IOException, InterruptedException {
+        for (int i = 0; i < consumers.size(); i++) {
+            consumers.get(i).flush(chromosome, position, outputs[i]);
+        }
+    }
+
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        for (int i = 0; i < consumers.size(); i++) {
+            consumers.get(i).cleanup(outputs[i]);
+        }
+        super.cleanup(context);
+    }
+}
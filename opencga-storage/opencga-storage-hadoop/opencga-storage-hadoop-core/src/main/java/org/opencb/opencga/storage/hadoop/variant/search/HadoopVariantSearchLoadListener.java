@@ -84,6 +84,13 @@ public class HadoopVariantSearchLoadListener extends VariantSearchLoadListener {
         }
     }
 
+    @Override
+    public void checkpoint() {
+        // Mark the variants as indexed, so they are skipped if the load is resumed
+        writer.flush();
+        cleaner.flush();
+    }
+
     @Override
     public void close() {
         writer.post();
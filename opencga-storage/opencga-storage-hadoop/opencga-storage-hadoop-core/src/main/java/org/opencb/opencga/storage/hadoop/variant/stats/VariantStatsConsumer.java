@@ -0,0 +1,151 @@
+package org.opencb.opencga.storage.hadoop.variant.stats;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.metadata.Aggregation;
+import org.opencb.biodata.models.variant.stats.VariantStats;
+import org.opencb.biodata.tools.variant.stats.AggregationUtils;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.metadata.models.CohortMetadata;
+import org.opencb.opencga.storage.core.metadata.models.SampleMetadata;
+import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
+import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
+import org.opencb.opencga.storage.core.variant.stats.VariantStatsWrapper;
+import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
+import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.PhoenixHelper;
+import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.VariantPhoenixSchema;
+import org.opencb.opencga.storage.hadoop.variant.converters.HBaseToVariantConverter;
+import org.opencb.opencga.storage.hadoop.variant.converters.stats.VariantStatsToHBaseConverter;
+import org.opencb.opencga.storage.hadoop.variant.metadata.HBaseVariantStorageMetadataDBAdaptorFactory;
+import org.opencb.opencga.storage.hadoop.variant.mr.DecodedVariantRow;
+import org.opencb.opencga.storage.hadoop.variant.mr.VariantRowConsumer;
+import org.opencb.opencga.storage.hadoop.variant.mr.VariantTableHelper;
+import org.opencb.opencga.storage.hadoop.variant.search.HadoopVariantSearchIndexUtils;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Calculates the stats of a list of cohorts from the variants table, and writes them back into the variants table.
+ */
+public class VariantStatsConsumer extends VariantRowConsumer {
+
+    public static final String NAME = "stats";
+
+    private VariantStatsToHBaseConverter converter;
+    private Map<String, HBaseVariantStatsCalculator> calculators;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String configure(Job job, Scan scan, DriverContext context) throws IOException {
+        Configuration conf = context.getConf();
+        VariantStorageMetadataManager metadataManager = context.getMetadataManager();
+        int studyId = context.getStudyId();
+        StudyMetadata studyMetadata = metadataManager.getStudyMetadata(studyId);
+        if (!HBaseToVariantConverter.getFixedFormat(studyMetadata).contains("GT")) {
+            throw new IllegalArgumentException("Study '" + studyMetadata.getName() + "' does not have Genotypes");
+        }
+        Aggregation aggregation = VariantStatsMapper.getAggregation(conf);
+        if (AggregationUtils.isAggregated(aggregation)) {
+            throw new IllegalArgumentException("Unable to calculate stats from aggregated study '" + studyMetadata.getName() + "'");
+        }
+        boolean statsMultiAllelic = conf.getBoolean(VariantStorageOptions.STATS_MULTI_ALLELIC.key(),
+                VariantStorageOptions.STATS_MULTI_ALLELIC.defaultValue());
+        String statsDefaultGenotype = conf.get(VariantStorageOptions.STATS_DEFAULT_GENOTYPE.key(),
+                VariantStorageOptions.STATS_DEFAULT_GENOTYPE.defaultValue());
+        boolean excludeFiles = HBaseVariantStatsCalculator.excludeFiles(statsMultiAllelic, statsDefaultGenotype, aggregation);
+
+        String cohortsStr = context.getParam(VariantStatsDriver.COHORTS);
+        if (StringUtils.isEmpty(cohortsStr)) {
+            throw new IllegalArgumentException("Missing param " + VariantStatsDriver.COHORTS);
+        }
+        List<Integer> cohorts = new ArrayList<>();
+        Set<Integer> sampleIds = new HashSet<>();
+        for (String cohort : cohortsStr.split(",")) {
+            CohortMetadata cohortMetadata = metadataManager.getCohortMetadata(studyId, cohort);
+            cohorts.add(cohortMetadata.getId());
+            sampleIds.addAll(cohortMetadata.getSamples());
+        }
+
+        for (PhoenixHelper.Column column : VariantPhoenixSchema.getStudyColumns(studyId)) {
+            scan.addColumn(GenomeHelper.COLUMN_FAMILY_BYTES, column.bytes());
+        }
+        Set<Integer> fileIds = new HashSet<>();
+        for (Integer sampleId : sampleIds) {
+            SampleMetadata sampleMetadata = metadataManager.getSampleMetadata(studyId, sampleId);
+            for (PhoenixHelper.Column column : VariantPhoenixSchema.getSampleColumns(sampleMetadata)) {
+                scan.addColumn(GenomeHelper.COLUMN_FAMILY_BYTES, column.bytes());
+            }
+            fileIds.addAll(sampleMetadata.getFiles());
+        }
+        if (!excludeFiles) {
+            for (Integer fileId : fileIds) {
+                scan.addColumn(GenomeHelper.COLUMN_FAMILY_BYTES, VariantPhoenixSchema.getFileColumn(studyId, fileId).bytes());
+            }
+        }
+
+        VariantStatsMapper.setCohorts(job, cohorts);
+        return context.getTableNameGenerator().getVariantTableName();
+    }
+
+    @Override
+    public void setup(TaskAttemptContext context) throws IOException {
+        super.setup(context);
+        Configuration conf = context.getConfiguration();
+        VariantTableHelper helper = new VariantTableHelper(conf);
+        String unknownGenotype = conf.get(
+                VariantStorageOptions.STATS_DEFAULT_GENOTYPE.key(),
+                VariantStorageOptions.STATS_DEFAULT_GENOTYPE.defaultValue());
+        boolean statsMultiAllelic = conf.getBoolean(
+                VariantStorageOptions.STATS_MULTI_ALLELIC.key(),
+                VariantStorageOptions.STATS_MULTI_ALLELIC.defaultValue());
+        try (VariantStorageMetadataManager metadataManager = new VariantStorageMetadataManager(
+                new HBaseVariantStorageMetadataDBAdaptorFactory(helper))) {
+            StudyMetadata studyMetadata = metadataManager.getStudyMetadata(helper.getStudyId());
+
+            Collection<Integer> cohorts = VariantStatsMapper.getCohorts(conf);
+            Map<String, Integer> cohortIds = new HashMap<>(cohorts.size());
+            calculators = new HashMap<>(cohorts.size());
+            for (Integer cohortId : cohorts) {
+                context.progress();
+                CohortMetadata cohort = metadataManager.getCohortMetadata(studyMetadata.getId(), cohortId);
+                cohortIds.put(cohort.getName(), cohortId);
+                calculators.put(cohort.getName(), new HBaseVariantStatsCalculator(
+                        metadataManager, studyMetadata, cohort.getSamples(), statsMultiAllelic, unknownGenotype));
+            }
+            converter = new VariantStatsToHBaseConverter(studyMetadata, cohortIds);
+        }
+    }
+
+    @Override
+    public void map(DecodedVariantRow row, Output output) throws IOException, InterruptedException {
+        Variant variant = row.getVariant();
+        VariantStatsWrapper wrapper = new VariantStatsWrapper(variant, new ArrayList<>(calculators.size()));
+
+        calculators.forEach((cohort, calculator) -> {
+            VariantStats stats = calculator.apply(row.getVariantRow());
+            if (stats != null) {
+                stats.setCohortId(cohort);
+                wrapper.getCohortStats().add(stats);
+            }
+        });
+
+        Put put = converter.convert(wrapper);
+        if (put == null) {
+            increment("stats.put.null");
+        } else {
+            HadoopVariantSearchIndexUtils.addNotSyncStatus(put, GenomeHelper.COLUMN_FAMILY_BYTES);
+            increment("stats.put");
+            output.write(put);
+        }
+    }
+}
@@ -6,27 +6,16 @@ import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.mapreduce.TableMapper;
-import org.opencb.biodata.models.variant.Variant;
-import org.opencb.biodata.models.variant.stats.VariantStats;
 import org.opencb.opencga.core.common.TimeUtils;
-import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
-import org.opencb.opencga.storage.core.metadata.models.CohortMetadata;
-import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
-import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
-import org.opencb.opencga.storage.core.variant.stats.VariantStatsWrapper;
-import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.VariantPhoenixSchema;
-import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.VariantPhoenixKeyFactory;
-import org.opencb.opencga.storage.hadoop.variant.converters.stats.VariantStatsToHBaseConverter;
-import org.opencb.opencga.storage.hadoop.variant.metadata.HBaseVariantStorageMetadataDBAdaptorFactory;
+import org.opencb.opencga.storage.hadoop.variant.mr.DecodedVariantRow;
+import org.opencb.opencga.storage.hadoop.variant.mr.VariantRowConsumer;
 import org.opencb.opencga.storage.hadoop.variant.mr.VariantTableHelper;
 import org.opencb.opencga.storage.hadoop.variant.mr.VariantsTableMapReduceHelper;
-import org.opencb.opencga.storage.hadoop.variant.search.HadoopVariantSearchIndexUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.*;
 
 /**
  * Created on 14/03/18.
@@ -35,56 +24,16 @@ import java.util.*;
  */
 public class VariantStatsFromResultMapper extends TableMapper<ImmutableBytesWritable, Put> {
 
-    private String study;
-    private Map<String, List<Integer>> samples;
-    private VariantTableHelper helper;
-    private StudyMetadata studyMetadata;
-    private VariantStatsToHBaseConverter converter;
-    private Map<String, HBaseVariantStatsCalculator> calculators;
+    private final VariantStatsConsumer consumer = new VariantStatsConsumer();
+    private VariantRowConsumer.Output output;
     private final Logger logger = LoggerFactory.getLogger(VariantStatsFromResultMapper.class);
-    private Map<String, Integer> cohortIds;
 
     @Override
     protected void setup(Context context) throws IOException, InterruptedException {
-        helper = new VariantTableHelper(context.getConfiguration());
-        Collection<Integer> cohorts;
-        String unknownGenotype = context.getConfiguration().get(
-                VariantStorageOptions.STATS_DEFAULT_GENOTYPE.key(),
-                VariantStorageOptions.STATS_DEFAULT_GENOTYPE.defaultValue());
-        boolean statsMultiAllelic = context.getConfiguration().getBoolean(
-                VariantStorageOptions.STATS_MULTI_ALLELIC.key(),
-                VariantStorageOptions.STATS_MULTI_ALLELIC.defaultValue());
-        try (VariantStorageMetadataManager metadataManager = new VariantStorageMetadataManager(
-                new HBaseVariantStorageMetadataDBAdaptorFactory(helper))) {
-            studyMetadata = metadataManager.getStudyMetadata(helper.getStudyId());
-            study = studyMetadata.getName();
-
-
-    //        boolean overwrite = context.getConfiguration().getBoolean(VariantStorageEngine.Options.STATS_OVERWRITE.key(), false);
-    //        calculator = new VariantStatisticsCalculator(overwrite);
-    //        Properties tagmap = getAggregationMappingProperties(context.getConfiguration());
-    //        calculator.setAggregationType(studyConfiguration.getAggregation(), tagmap);
-            cohorts = VariantStatsMapper.getCohorts(context.getConfiguration());
-            cohortIds = new HashMap<>(cohorts.size());
-            samples = new HashMap<>(cohorts.size());
-            cohorts.forEach(cohortId -> {
-                context.progress();
-                CohortMetadata cohort = metadataManager.getCohortMetadata(studyMetadata.getId(), cohortId);
-                cohortIds.put(cohort.getName(), cohortId);
-                List<Integer> samplesInCohort = cohort.getSamples();
-                samples.put(cohort.getName(), samplesInCohort);
-            });
-            converter = new VariantStatsToHBaseConverter(studyMetadata, cohortIds);
-
-            calculators = new HashMap<>(cohorts.size());
-            for (Map.Entry<String, List<Integer>> entry : samples.entrySet()) {
-                context.progress();
-                String cohort = entry.getKey();
-                List<Integer> value = entry.getValue();
-                calculators.put(cohort, new HBaseVariantStatsCalculator(
-                        metadataManager, studyMetadata, value, statsMultiAllelic, unknownGenotype));
-            }
-        }
+        consumer.setup(context);
+        ImmutableBytesWritable variantsTable = new ImmutableBytesWritable(new VariantTableHelper(context.getConfiguration())
+                .getVariantsTable());
+        output = put -> context.write(variantsTable, (Put) put);
     }
 
 
@@ -165,28 +114,6 @@ public class VariantStatsFromResultMapper extends TableMapper<ImmutableBytesWrit
 //    }
 
     protected void map(ImmutableBytesWritable key, Result value, Context context) throws IOException, InterruptedException {
-        Variant variant = VariantPhoenixKeyFactory.extractVariantFromVariantRowKey(value.getRow());
-        VariantStatsWrapper wrapper = new VariantStatsWrapper(variant, new ArrayList<>(calculators.size()));
-
-        calculators.forEach((cohort, calculator) -> {
-            VariantStats stats = calculator.apply(value);
-            if (stats != null) {
-                stats.setCohortId(cohort);
-                wrapper.getCohortStats().add(stats);
-            }
-        });
-
-        write(context, wrapper);
-    }
-
-    private void write(Context context, VariantStatsWrapper wrapper) throws IOException, InterruptedException {
-        Put put = converter.convert(wrapper);
-        if (put == null) {
-            context.getCounter(VariantsTableMapReduceHelper.COUNTER_GROUP_NAME, "stats.put.null").increment(1);
-        } else {
-            HadoopVariantSearchIndexUtils.addNotSyncStatus(put, GenomeHelper.COLUMN_FAMILY_BYTES);
-            context.getCounter(VariantsTableMapReduceHelper.COUNTER_GROUP_NAME, "stats.put").increment(1);
-            context.write(new ImmutableBytesWritable(helper.getVariantsTable()), put);
-        }
+        consumer.map(new DecodedVariantRow(value), output);
     }
 }
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.hadoop.utils;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.client.*;
+import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.ExternalResource;
+import org.opencb.opencga.storage.core.variant.VariantStorageBaseTest;
+import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageTest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class HBaseBulkLoaderTest extends VariantStorageBaseTest implements HadoopVariantStorageTest {
+
+    @ClassRule
+    public static ExternalResource externalResource = new HadoopExternalResource();
+
+    private static final byte[] FAMILY = Bytes.toBytes("0");
+    private static final byte[] COLUMN_A = Bytes.toBytes("A");
+    private static final byte[] COLUMN_B = Bytes.toBytes("B");
+
+    private HBaseManager hBaseManager;
+    private String tableName;
+
+    @Before
+    public void setUp() throws Exception {
+        clearDB(DB_NAME);
+        hBaseManager = new HBaseManager(configuration.get());
+        tableName = DB_NAME + "_bulk_load";
+        // Three regions: [,b) [b,d) [d,)
+        hBaseManager.createTableIfNeeded(tableName, FAMILY, Arrays.asList(Bytes.toBytes("b"), Bytes.toBytes("d")),
+                Compression.Algorithm.NONE);
+    }
+
+    @Test
+    public void testRegionRolling() throws Exception {
+        List<Put> puts = new ArrayList<>();
+        for (String row : Arrays.asList("e", "a", "c", "b", "d", "a2")) {
+            puts.add(put(row, COLUMN_A, row));
+        }
+        // Unsorted input
+        Collections.shuffle(puts);
+
+        try (HBaseBulkLoader bulkLoader = newBulkLoader()) {
+            bulkLoader.write(puts);
+            bulkLoader.flush();
+            // One HFile per region
+            assertEquals(3, bulkLoader.getLoadedFiles());
+            assertEquals(puts.size(), bulkLoader.getWrittenCells());
+        }
+
+        for (String row : Arrays.asList("e", "a", "c", "b", "d", "a2")) {
+            assertEquals(row, getValue(row, COLUMN_A));
+        }
+    }
+
+    @Test
+    public void testDuplicatedCells() throws Exception {
+        try (HBaseBulkLoader bulkLoader = newBulkLoader()) {
+            // Within the same batch, the last one wins
+            bulkLoader.write(Arrays.asList(
+                    put("a", COLUMN_A, "first"),
+                    put("c", COLUMN_A, "first"),
+                    put("a", COLUMN_A, "second"),
+                    put("a", COLUMN_B, "b")));
+            assertEquals(3, bulkLoader.getWrittenCells());
+
+            // Later batches override previous batches, even if loaded together
+            bulkLoader.write(Collections.singletonList(put("c", COLUMN_A, "second")));
+            bulkLoader.flush();
+        }
+
+        assertEquals("second", getValue("a", COLUMN_A));
+        assertEquals("b", getValue("a", COLUMN_B));
+        assertEquals("second", getValue("c", COLUMN_A));
+    }
+
+    @Test
+    public void testLaterBulkLoadOverridesPreviousOne() throws Exception {
+        try (HBaseBulkLoader bulkLoader = newBulkLoader()) {
+            bulkLoader.write(Collections.singletonList(put("c", COLUMN_A, "first")));
+            bulkLoader.flush();
+            assertEquals("first", getValue("c", COLUMN_A));
+
+            bulkLoader.write(Collections.singletonList(put("c", COLUMN_A, "second")));
+            bulkLoader.flush();
+            assertEquals(2, bulkLoader.getLoadedFiles());
+        }
+
+        assertEquals("second", getValue("c", COLUMN_A));
+    }
+
+    @Test
+    public void testDelete() throws Exception {
+        try (HBaseBulkLoader bulkLoader = newBulkLoader()) {
+            bulkLoader.write(Arrays.asList(
+                    put("a", COLUMN_A, "v1"),
+                    put("a", COLUMN_B, "b"),
+                    put("d", COLUMN_A, "v1")));
+            bulkLoader.write(Arrays.asList(
+                    put("a", COLUMN_A, "v2"),
+                    put("d", COLUMN_A, "v2")));
+            bulkLoader.flush();
+
+            // Delete of the latest version. Translated into a DeleteColumn, so older versions are not revealed.
+            bulkLoader.write(Arrays.asList(
+                    new Delete(Bytes.toBytes("a")).addColumn(FAMILY, COLUMN_A),
+                    new Delete(Bytes.toBytes("d")).addColumn(FAMILY, COLUMN_A)));
+            bulkLoader.flush();
+        }
+
+        assertNull(getValue("a", COLUMN_A));
+        assertNull(getValue("d", COLUMN_A));
+        // Other columns are not affected
+        assertEquals("b", getValue("a", COLUMN_B));
+    }
+
+    @Test
+    public void testUnknownFamily() throws Exception {
+        try (HBaseBulkLoader bulkLoader = newBulkLoader()) {
+            thrown.expect(IllegalArgumentException.class);
+            bulkLoader.write(Collections.singletonList(new Put(Bytes.toBytes("a"))
+                    .addColumn(Bytes.toBytes("1"), COLUMN_A, Bytes.toBytes("a"))));
+        }
+    }
+
+    @Test
+    public void testStagingDirRemoved() throws Exception {
+        Path stagingDir = HBaseBulkLoader.getStagingDir(hBaseManager.getConf(), null, tableName);
+        try (HBaseBulkLoader bulkLoader = new HBaseBulkLoader(hBaseManager, tableName, stagingDir).open()) {
+            assertTrue(stagingDir.getFileSystem(hBaseManager.getConf()).exists(stagingDir));
+            bulkLoader.write(Collections.singletonList(put("a", COLUMN_A, "a")));
+        }
+        assertFalse(stagingDir.getFileSystem(hBaseManager.getConf()).exists(stagingDir));
+        // Not flushed. Not loaded.
+        assertNull(getValue("a", COLUMN_A));
+    }
+
+    private HBaseBulkLoader newBulkLoader() throws Exception {
+        Path stagingDir = HBaseBulkLoader.getStagingDir(hBaseManager.getConf(), null, tableName);
+        return new HBaseBulkLoader(hBaseManager, tableName, stagingDir).open();
+    }
+
+    private static Put put(String row, byte[] column, String value) {
+        return new Put(Bytes.toBytes(row)).addColumn(FAMILY, column, Bytes.toBytes(value));
+    }
+
+    private String getValue(String row, byte[] column) throws Exception {
+        return hBaseManager.act(tableName, table -> {
+            Result result = table.get(new Get(Bytes.toBytes(row)).addColumn(FAMILY, column));
+            byte[] value = result.getValue(FAMILY, column);
+            return value == null ? null : Bytes.toString(value);
+        });
+    }
+}
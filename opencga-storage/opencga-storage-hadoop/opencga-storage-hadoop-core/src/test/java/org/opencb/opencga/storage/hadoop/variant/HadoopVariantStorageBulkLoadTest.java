@@ -0,0 +1,171 @@
+package org.opencb.opencga.storage.hadoop.variant;
+
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.*;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.storage.core.StoragePipelineResult;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.variant.VariantStorageBaseTest;
+import org.opencb.opencga.storage.core.variant.VariantStorageEngine;
+import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
+import org.opencb.opencga.storage.core.variant.io.VariantReaderUtils;
+import org.opencb.opencga.storage.hadoop.variant.adaptors.VariantHadoopDBAdaptor;
+import org.opencb.opencga.storage.hadoop.variant.archive.ArchiveDriver;
+import org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexDBAdaptor;
+import org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexEntry;
+
+import java.net.URI;
+import java.util.Iterator;
+import java.util.NavigableMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compare the tables loaded with {@link HadoopVariantStorageOptions#BULK_LOAD} against the tables loaded with Put operations.
+ */
+public class HadoopVariantStorageBulkLoadTest extends VariantStorageBaseTest implements HadoopVariantStorageTest {
+
+    @ClassRule
+    public static HadoopExternalResource externalResource = new HadoopExternalResource();
+
+    private HadoopVariantStorageEngine engine;
+
+    @Before
+    public void setUp() throws Exception {
+        clearDB(DB_NAME);
+        engine = getVariantStorageEngine();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        VariantHbaseTestUtils.printVariants(engine.getDBAdaptor(), newOutputUri(getTestName().getMethodName()));
+    }
+
+    @Test
+    public void testLoadMultiFileSameSamples() throws Exception {
+        // Load a second file into the same samples. The sample index entries written by the first file are merged
+        for (String study : new String[]{"put", "bulk"}) {
+            ObjectMap params = new ObjectMap()
+                    .append(VariantStorageOptions.STUDY.key(), study)
+                    .append(VariantStorageOptions.ANNOTATE.key(), false)
+                    .append(VariantStorageOptions.STATS_CALCULATE.key(), false)
+                    .append(VariantStorageOptions.LOAD_SPLIT_DATA.key(), VariantStorageEngine.SplitData.MULTI)
+                    .append(HadoopVariantStorageOptions.BULK_LOAD.key(), study.equals("bulk"));
+            runETL(engine, getResourceUri("by_chr/chr22_1-2.variant-test-file.vcf.gz"), outputUri, params, true, true, true);
+            runETL(engine, getResourceUri("by_chr/chr22_1-2-DUP.variant-test-file.vcf.gz"), outputUri, params, true, true, true);
+        }
+
+        VariantHadoopDBAdaptor dbAdaptor = engine.getDBAdaptor();
+        VariantStorageMetadataManager mm = engine.getMetadataManager();
+        int putStudyId = mm.getStudyId("put");
+        int bulkStudyId = mm.getStudyId("bulk");
+
+        checkTable(dbAdaptor.getArchiveTableName(putStudyId), dbAdaptor.getArchiveTableName(bulkStudyId));
+        checkSampleIndex(putStudyId, bulkStudyId);
+        checkVariants(putStudyId, bulkStudyId);
+    }
+
+    @Test
+    public void testArchiveDriverBulkLoad() throws Exception {
+        StoragePipelineResult result = runETL(engine, smallInputUri, outputUri, new ObjectMap()
+                .append(VariantStorageOptions.STUDY.key(), STUDY_NAME)
+                .append(VariantStorageOptions.TRANSFORM_FORMAT.key(), "avro"), true, true, false);
+        URI avro = result.getTransformResult();
+        URI meta = URI.create(VariantReaderUtils.getMetaFromTransformedFile(avro.toString()));
+
+        VariantHadoopDBAdaptor dbAdaptor = engine.getDBAdaptor();
+        String putTable = dbAdaptor.getArchiveTableName(1);
+        String bulkTable = dbAdaptor.getArchiveTableName(2);
+        for (String table : new String[]{putTable, bulkTable}) {
+            ObjectMap options = new ObjectMap()
+                    .append(AbstractVariantsTableDriver.CONFIG_VARIANT_TABLE_NAME, dbAdaptor.getVariantTable())
+                    .append(HadoopVariantStorageOptions.BULK_LOAD.key(), table.equals(bulkTable));
+            String args = ArchiveDriver.buildCommandLineArgs(avro, meta, dbAdaptor.getCredentials().toString(), table, 1, 1, options);
+            new TestMRExecutor().run(ArchiveDriver.class, args.split(" "), options);
+        }
+
+        checkTable(putTable, bulkTable);
+    }
+
+    private void checkTable(String expectedTable, String actualTable) throws Exception {
+        Connection c = engine.getDBAdaptor().getHBaseManager().getConnection();
+        try (Table expTable = c.getTable(TableName.valueOf(expectedTable));
+             Table actTable = c.getTable(TableName.valueOf(actualTable));
+             ResultScanner expScanner = expTable.getScanner(new Scan());
+             ResultScanner actScanner = actTable.getScanner(new Scan())) {
+            int rows = 0;
+            while (true) {
+                Result exp = expScanner.next();
+                Result act = actScanner.next();
+                if (exp == null) {
+                    assertNull(act);
+                    break;
+                }
+                assertNotNull(act);
+                String row = Bytes.toStringBinary(exp.getRow());
+                assertEquals(row, Bytes.toStringBinary(act.getRow()));
+
+                // Ignore timestamps
+                NavigableMap<byte[], byte[]> expFamily = exp.getFamilyMap(GenomeHelper.COLUMN_FAMILY_BYTES);
+                NavigableMap<byte[], byte[]> actFamily = act.getFamilyMap(GenomeHelper.COLUMN_FAMILY_BYTES);
+                assertEquals(row, expFamily.size(), actFamily.size());
+                for (byte[] column : expFamily.keySet()) {
+                    assertArrayEquals(row + " " + Bytes.toStringBinary(column), expFamily.get(column), actFamily.get(column));
+                }
+                rows++;
+            }
+            assertTrue(rows > 0);
+        }
+    }
+
+    private void checkSampleIndex(int expectedStudyId, int actualStudyId) throws Exception {
+        VariantHadoopDBAdaptor dbAdaptor = engine.getDBAdaptor();
+        SampleIndexDBAdaptor sampleIndexDBAdaptor = new SampleIndexDBAdaptor(
+                dbAdaptor.getHBaseManager(),
+                dbAdaptor.getTableNameGenerator(),
+                dbAdaptor.getMetadataManager());
+        VariantStorageMetadataManager mm = engine.getMetadataManager();
+        for (Integer expSampleId : mm.getIndexedSamples(expectedStudyId)) {
+            String sampleName = mm.getSampleName(expectedStudyId, expSampleId);
+            Integer actSampleId = mm.getSampleId(actualStudyId, sampleName);
+            Iterator<SampleIndexEntry> itExp = sampleIndexDBAdaptor.rawIterator(expectedStudyId, expSampleId);
+            Iterator<SampleIndexEntry> itAct = sampleIndexDBAdaptor.rawIterator(actualStudyId, actSampleId);
+            assertTrue(sampleName, itExp.hasNext());
+            while (itExp.hasNext()) {
+                assertTrue(sampleName, itAct.hasNext());
+                SampleIndexEntry exp = itExp.next();
+                SampleIndexEntry act = itAct.next();
+                for (String gt : exp.getGts().keySet()) {
+                    assertEquals(sampleName + " " + gt, exp.getGtEntry(gt), act.getGtEntry(gt));
+                }
+                exp.setSampleId(actSampleId);
+                assertEquals(sampleName, exp, act);
+            }
+            assertFalse(sampleName, itAct.hasNext());
+        }
+    }
+
+    private void checkVariants(int expectedStudyId, int actualStudyId) throws Exception {
+        VariantHadoopDBAdaptor dbAdaptor = engine.getDBAdaptor();
+        Iterator<Variant> itExp = dbAdaptor.iterator(new Query(VariantQueryParam.STUDY.key(), expectedStudyId), new QueryOptions());
+        Iterator<Variant> itAct = dbAdaptor.iterator(new Query(VariantQueryParam.STUDY.key(), actualStudyId), new QueryOptions());
+        while (itExp.hasNext()) {
+            assertTrue(itAct.hasNext());
+            Variant exp = itExp.next();
+            exp.getStudies().get(0).setStudyId("");
+            Variant act = itAct.next();
+            act.getStudies().get(0).setStudyId("");
+            assertEquals(exp.toJson(), act.toJson());
+        }
+        assertFalse(itAct.hasNext());
+    }
+}
@@ -0,0 +1,174 @@
+package org.opencb.opencga.storage.hadoop.variant;
+
+import org.apache.hadoop.util.Tool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.metadata.models.ProjectMetadata;
+import org.opencb.opencga.storage.core.metadata.models.SampleMetadata;
+import org.opencb.opencga.storage.core.metadata.models.TaskMetadata;
+import org.opencb.opencga.storage.core.variant.VariantStorageBaseTest;
+import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
+import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
+import org.opencb.opencga.storage.core.variant.annotation.DefaultVariantAnnotationManager;
+import org.opencb.opencga.storage.core.variant.annotation.DummyTestAnnotator;
+import org.opencb.opencga.storage.hadoop.variant.adaptors.VariantHadoopDBAdaptor;
+import org.opencb.opencga.storage.hadoop.variant.annotation.pending.AnnotationPendingVariantsConsumer;
+import org.opencb.opencga.storage.hadoop.variant.annotation.pending.AnnotationPendingVariantsManager;
+import org.opencb.opencga.storage.hadoop.variant.index.annotation.mr.SampleIndexAnnotationConsumer;
+import org.opencb.opencga.storage.hadoop.variant.index.annotation.mr.SampleIndexAnnotationLoaderDriver;
+import org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexDBAdaptor;
+import org.opencb.opencga.storage.hadoop.variant.pending.DiscoverPendingVariantsDriver;
+import org.opencb.opencga.storage.hadoop.variant.postload.PostLoadDriver;
+import org.opencb.opencga.storage.hadoop.variant.stats.VariantStatsConsumer;
+import org.opencb.opencga.storage.hadoop.variant.stats.VariantStatsDriver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.*;
+
+/**
+ * Index files with the fused post load pass enabled with {@link HadoopVariantStorageOptions#POST_LOAD_CONSUMERS}.
+ */
+public class HadoopVariantStoragePostLoadTest extends VariantStorageBaseTest implements HadoopVariantStorageTest {
+
+    @ClassRule
+    public static HadoopExternalResource externalResource = new HadoopExternalResource();
+
+    private final List<Class<?>> executedDrivers = Collections.synchronizedList(new ArrayList<>());
+    private HadoopVariantStorageEngine engine;
+
+    @Before
+    public void setUp() throws Exception {
+        engine = (HadoopVariantStorageEngine) variantStorageEngine;
+        engine.mrExecutor = new TestMRExecutor(configuration.get()) {
+            @Override
+            public <T extends Tool> int run(Class<T> clazz, String[] args, ObjectMap options) throws StorageEngineException {
+                executedDrivers.add(clazz);
+                return super.run(clazz, args, options);
+            }
+        };
+        engine.getOptions().put(VariantStorageOptions.ANNOTATOR.key(), "other");
+        engine.getOptions().put(VariantStorageOptions.ANNOTATOR_CLASS.key(), DummyTestAnnotator.class.getName());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        VariantHbaseTestUtils.printVariants(engine.getDBAdaptor(), newOutputUri(getTestName().getMethodName()));
+    }
+
+    @Test
+    public void testIndexWithStatsAndAnnotationPending() throws Exception {
+        runETL(engine, smallInputUri, STUDY_NAME, new ObjectMap()
+                .append(HadoopVariantStorageOptions.POST_LOAD_CONSUMERS.key(),
+                        VariantStatsConsumer.NAME + "," + AnnotationPendingVariantsConsumer.NAME)
+                .append(VariantStorageOptions.STATS_CALCULATE.key(), true)
+                .append(VariantStorageOptions.ANNOTATE.key(), false));
+
+        // One single scan for both stats and pending variants
+        assertThat(executedDrivers, hasItem(PostLoadDriver.class));
+        assertThat(executedDrivers, not(hasItem(VariantStatsDriver.class)));
+        assertThat(executedDrivers, not(hasItem(DiscoverPendingVariantsDriver.class)));
+
+        VariantHadoopDBAdaptor dbAdaptor = engine.getDBAdaptor();
+        VariantStorageMetadataManager mm = engine.getMetadataManager();
+        int studyId = mm.getStudyId(STUDY_NAME);
+        assertTrue(mm.getCohortMetadata(studyId, StudyEntry.DEFAULT_COHORT).isStatsReady());
+
+        long numVariants = 0;
+        for (Variant variant : dbAdaptor) {
+            assertNotNull(variant.toString(), variant.getStudies().get(0).getStats(StudyEntry.DEFAULT_COHORT));
+            numVariants++;
+        }
+        assertTrue(numVariants > 0);
+
+        long pendingVariants = 0;
+        try (VariantDBIterator iterator = new AnnotationPendingVariantsManager(dbAdaptor).iterator(new Query())) {
+            while (iterator.hasNext()) {
+                iterator.next();
+                pendingVariants++;
+            }
+        }
+        assertEquals(numVariants, pendingVariants);
+
+        ProjectMetadata projectMetadata = mm.getProjectMetadata();
+        assertTrue(projectMetadata.getAttributes().getLong(HadoopVariantStorageEngine.LAST_VARIANTS_TO_ANNOTATE_UPDATE_TS)
+                > projectMetadata.getAttributes().getLong(HadoopVariantStorageEngine.LAST_LOADED_FILE_TS));
+
+        // The annotation reads the pending variants discovered in the post load pass
+        executedDrivers.clear();
+        engine.annotate(new Query(), new QueryOptions(DefaultVariantAnnotationManager.OUT_DIR, outputUri));
+        assertThat(executedDrivers, not(hasItem(DiscoverPendingVariantsDriver.class)));
+        for (Variant variant : dbAdaptor) {
+            assertNotNull(variant.toString(), variant.getAnnotation());
+        }
+    }
+
+    @Test
+    public void testIndexWithoutPostLoad() throws Exception {
+        runETL(engine, smallInputUri, STUDY_NAME, new ObjectMap()
+                .append(VariantStorageOptions.STATS_CALCULATE.key(), true)
+                .append(VariantStorageOptions.ANNOTATE.key(), false));
+
+        assertThat(executedDrivers, not(hasItem(PostLoadDriver.class)));
+        VariantStorageMetadataManager mm = engine.getMetadataManager();
+        assertTrue(mm.getCohortMetadata(mm.getStudyId(STUDY_NAME), StudyEntry.DEFAULT_COHORT).isStatsReady());
+    }
+
+    @Test
+    public void testPostLoadSampleIndexAnnotation() throws Exception {
+        loadAndAnnotateWithoutSampleIndex();
+
+        engine.postLoad(STUDY_NAME, new ObjectMap(HadoopVariantStorageOptions.POST_LOAD_CONSUMERS.key(),
+                SampleIndexAnnotationConsumer.NAME));
+
+        assertThat(executedDrivers, hasItem(PostLoadDriver.class));
+        assertThat(executedDrivers, not(hasItem(SampleIndexAnnotationLoaderDriver.class)));
+        checkSampleIndexAnnotationStatus(TaskMetadata.Status.READY);
+    }
+
+    @Test
+    public void testPostLoadSampleIndexAnnotationTooManySamples() throws Exception {
+        loadAndAnnotateWithoutSampleIndex();
+
+        // Too many samples for one single MapReduce. Fallback to separated jobs.
+        engine.postLoad(STUDY_NAME, new ObjectMap(HadoopVariantStorageOptions.POST_LOAD_CONSUMERS.key(),
+                SampleIndexAnnotationConsumer.NAME)
+                .append(HadoopVariantStorageOptions.SAMPLE_INDEX_ANNOTATION_MAX_SAMPLES_PER_MR.key(), 1));
+
+        assertThat(executedDrivers, not(hasItem(PostLoadDriver.class)));
+        assertThat(executedDrivers, hasItem(SampleIndexAnnotationLoaderDriver.class));
+        checkSampleIndexAnnotationStatus(TaskMetadata.Status.READY);
+    }
+
+    private void loadAndAnnotateWithoutSampleIndex() throws Exception {
+        runETL(engine, smallInputUri, STUDY_NAME, new ObjectMap()
+                .append(VariantStorageOptions.ANNOTATE.key(), false));
+        engine.annotate(new Query(), new QueryOptions(DefaultVariantAnnotationManager.OUT_DIR, outputUri)
+                .append(VariantStorageOptions.ANNOTATION_SAMPLE_INDEX.key(), "NO"));
+        checkSampleIndexAnnotationStatus(TaskMetadata.Status.NONE);
+        executedDrivers.clear();
+    }
+
+    private void checkSampleIndexAnnotationStatus(TaskMetadata.Status expected) {
+        VariantStorageMetadataManager mm = engine.getMetadataManager();
+        int studyId = mm.getStudyId(STUDY_NAME);
+        for (Integer sampleId : mm.getIndexedSamples(studyId)) {
+            SampleMetadata sampleMetadata = mm.getSampleMetadata(studyId, sampleId);
+            assertEquals(TaskMetadata.Status.READY, sampleMetadata.getAnnotationStatus());
+            assertEquals(sampleMetadata.getName(), expected, SampleIndexDBAdaptor.getSampleIndexAnnotationStatus(sampleMetadata));
+        }
+    }
+}
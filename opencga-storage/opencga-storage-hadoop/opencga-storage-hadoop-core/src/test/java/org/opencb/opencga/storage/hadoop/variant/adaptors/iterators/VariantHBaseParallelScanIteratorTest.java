@@ -0,0 +1,190 @@
+package org.opencb.opencga.storage.hadoop.variant.adaptors.iterators;
+
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.storage.core.variant.VariantStorageBaseTest;
+import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryException;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
+import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
+import org.opencb.opencga.storage.core.variant.query.ParsedVariantQuery;
+import org.opencb.opencga.storage.core.variant.query.VariantQueryParser;
+import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageEngine;
+import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions;
+import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageTest;
+import org.opencb.opencga.storage.hadoop.variant.adaptors.VariantHBaseQueryParser;
+import org.opencb.opencga.storage.hadoop.variant.adaptors.VariantHadoopDBAdaptor;
+import org.opencb.opencga.storage.hadoop.variant.converters.HBaseVariantConverterConfiguration;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.*;
+
+public class VariantHBaseParallelScanIteratorTest extends VariantStorageBaseTest implements HadoopVariantStorageTest {
+
+    @ClassRule
+    public static HadoopExternalResource externalResource = new HadoopExternalResource();
+
+    private static final String REGIONS = "X,22,21,20,19,18,17,16,15,14,13,12,11,10,9,8,7,6,5,4,3,2,1";
+    private static boolean loaded = false;
+
+    private VariantHadoopDBAdaptor dbAdaptor;
+
+    @Before
+    public void setUp() throws Exception {
+        HadoopVariantStorageEngine engine = getVariantStorageEngine();
+        if (!loaded) {
+            clearDB(DB_NAME);
+            runETL(engine, smallInputUri, STUDY_NAME, new ObjectMap()
+                    .append(VariantStorageOptions.ANNOTATE.key(), false)
+                    .append(VariantStorageOptions.STATS_CALCULATE.key(), false));
+            loaded = true;
+        }
+        dbAdaptor = engine.getDBAdaptor();
+    }
+
+    @Test
+    public void testSameOrderAsSequentialIterator() throws Exception {
+        Query query = new Query(VariantQueryParam.REGION.key(), REGIONS);
+        List<String> expected = readAll(query, new QueryOptions(QueryOptions.SORT, true), 1);
+        assertFalse(expected.isEmpty());
+
+        for (int threads : new int[]{2, 4, 30}) {
+            assertEquals(expected, readAll(query, new QueryOptions(QueryOptions.SORT, true), threads));
+
+            // Without sort, the same variants in arrival order
+            List<String> unsorted = readAll(query, new QueryOptions(), threads);
+            Collections.sort(unsorted);
+            List<String> expectedUnsorted = new ArrayList<>(expected);
+            Collections.sort(expectedUnsorted);
+            assertEquals(expectedUnsorted, unsorted);
+        }
+
+        // Limit and skip
+        QueryOptions options = new QueryOptions(QueryOptions.SORT, true)
+                .append(QueryOptions.LIMIT, 300)
+                .append(QueryOptions.SKIP, 100);
+        assertEquals(expected.subList(100, 400), readAll(query, options, 4));
+    }
+
+    @Test
+    public void testWorkerException() throws Exception {
+        AtomicInteger scannerCount = new AtomicInteger();
+        IOException exception = new IOException("Mock exception");
+        List<Scan> scans = getScans();
+        VariantHBaseParallelScanIterator iterator = newIterator(scans, scan -> {
+            if (scannerCount.incrementAndGet() == 3) {
+                throw exception;
+            }
+            return dbAdaptor.getHBaseManager().getScanner(dbAdaptor.getVariantTable(), scan);
+        }, 2, new QueryOptions(QueryOptions.SORT, true));
+
+        try {
+            while (iterator.hasNext()) {
+                iterator.next();
+            }
+            fail("Expected exception");
+        } catch (VariantQueryException e) {
+            assertSame(exception, e.getCause());
+        } finally {
+            iterator.close();
+        }
+        // Variants from the scans before the failed one were returned
+        assertTrue(iterator.getCount() > 0);
+    }
+
+    @Test(timeout = 60000)
+    public void testCloseWithBlockedWorkers() throws Exception {
+        List<Scan> scans = getScans();
+        // Take any valid result, to be returned endlessly
+        Result result;
+        try (ResultScanner scanner = dbAdaptor.getHBaseManager().getScanner(dbAdaptor.getVariantTable(), new Scan())) {
+            result = scanner.next();
+        }
+        assertNotNull(result);
+
+        AtomicInteger results = new AtomicInteger();
+        List<ResultScanner> scanners = Collections.synchronizedList(new ArrayList<>());
+        VariantHBaseParallelScanIterator iterator = newIterator(scans, scan -> {
+            ResultScanner scanner = Mockito.mock(ResultScanner.class);
+            Mockito.when(scanner.next()).then(invocation -> {
+                results.incrementAndGet();
+                return result;
+            });
+            scanners.add(scanner);
+            return scanner;
+        }, 2, new QueryOptions(QueryOptions.SORT, true));
+
+        assertTrue(iterator.hasNext());
+        iterator.next();
+        // Wait until both workers filled their queues
+        int previous = -1;
+        while (previous != results.get()) {
+            previous = results.get();
+            Thread.sleep(500);
+        }
+        assertTrue(results.get() > 1000);
+
+        long start = System.currentTimeMillis();
+        iterator.close();
+        assertTrue(System.currentTimeMillis() - start < 10000);
+
+        // Only the scans taken by the workers were opened. All of them closed.
+        assertEquals(2, scanners.size());
+        for (ResultScanner scanner : scanners) {
+            Mockito.verify(scanner, Mockito.atLeastOnce()).close();
+        }
+    }
+
+    private List<String> readAll(Query query, QueryOptions options, int threads) throws Exception {
+        options = new QueryOptions(options)
+                .append(VariantHadoopDBAdaptor.NATIVE, true)
+                .append(HadoopVariantStorageOptions.DBADAPTOR_HBASE_PARALLEL_SCANS.key(), threads);
+        List<String> variants = new ArrayList<>();
+        try (VariantDBIterator iterator = dbAdaptor.iterator(new Query(query), options)) {
+            if (threads > 1) {
+                assertThat(iterator, instanceOf(VariantHBaseParallelScanIterator.class));
+            } else {
+                assertThat(iterator, instanceOf(VariantHBaseScanIterator.class));
+            }
+            while (iterator.hasNext()) {
+                variants.add(iterator.next().toJson());
+            }
+        }
+        return variants;
+    }
+
+    private List<Scan> getScans() {
+        ParsedVariantQuery variantQuery = parseQuery();
+        List<Scan> scans = new VariantHBaseQueryParser(dbAdaptor.getGenomeHelper(), dbAdaptor.getMetadataManager())
+                .parseQueryMultiRegion(variantQuery, new QueryOptions());
+        assertTrue(scans.size() > 2);
+        return scans;
+    }
+
+    private VariantHBaseParallelScanIterator newIterator(List<Scan> scans, VariantHBaseParallelScanIterator.ScannerFactory factory,
+                                                         int threads, QueryOptions options) {
+        HBaseVariantConverterConfiguration configuration = HBaseVariantConverterConfiguration.builder()
+                .setProjection(parseQuery().getProjection())
+                .build();
+        return new VariantHBaseParallelScanIterator(scans, factory, threads, dbAdaptor.getMetadataManager(), configuration, options);
+    }
+
+    private ParsedVariantQuery parseQuery() {
+        return new VariantQueryParser(null, dbAdaptor.getMetadataManager())
+                .parseQuery(new Query(VariantQueryParam.REGION.key(), REGIONS), new QueryOptions(), true);
+    }
+}
@@ -0,0 +1,93 @@
+package org.opencb.opencga.storage.hadoop.variant.executors;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.opencga.storage.hadoop.utils.DeleteHBaseColumnDriver;
+import org.opencb.opencga.storage.hadoop.utils.HBaseManager;
+import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions;
+import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageTest.HadoopExternalResource;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class MRExecutorTest {
+
+    @Rule
+    public HadoopExternalResource hadoop = new HadoopExternalResource();
+
+    private final byte[] family = Bytes.toBytes("0");
+    private final String tableName = "test_mr_executor";
+    private Configuration conf;
+    private HBaseManager hBaseManager;
+
+    @Before
+    public void setUp() throws Exception {
+        conf = hadoop.getConf();
+        hBaseManager = new HBaseManager(conf);
+        hBaseManager.createTableIfNeeded(tableName, family, Compression.Algorithm.NONE);
+        hBaseManager.act(tableName, table -> {
+            for (int i = 0; i < 100; i++) {
+                table.put(new Put(Bytes.toBytes(String.format("r_%03d", i)))
+                        .addColumn(family, Bytes.toBytes("a"), Bytes.toBytes(i))
+                        .addColumn(family, Bytes.toBytes("b"), Bytes.toBytes(i)));
+            }
+        });
+    }
+
+    @Test
+    public void testSmallJob() throws Exception {
+        ObjectMap options = localOptions();
+        String[] args = DeleteHBaseColumnDriver.buildArgs(tableName, Collections.singletonList("0:a"), new ObjectMap());
+
+        MRExecutor mrExecutor = new SystemMRExecutor().init(options, conf);
+        assertTrue(mrExecutor.isSmallJob(DeleteHBaseColumnDriver.class, args, options));
+
+        // Without configuration, or disabled, the job is always submitted to the cluster
+        assertFalse(new SystemMRExecutor().init(options).isSmallJob(DeleteHBaseColumnDriver.class, args, options));
+        ObjectMap disabled = new ObjectMap(HadoopVariantStorageOptions.MR_EXECUTOR_LOCAL_MAX_INPUT_SIZE.key(), 0);
+        assertFalse(new SystemMRExecutor().init(disabled, conf).isSmallJob(DeleteHBaseColumnDriver.class, args, disabled));
+        // Disabled by default
+        assertFalse(new SystemMRExecutor().init(new ObjectMap(), conf).isSmallJob(DeleteHBaseColumnDriver.class, args, new ObjectMap()));
+
+        // The table is smaller than 1MB, but each region counts at least 1MB
+        ObjectMap tiny = new ObjectMap(HadoopVariantStorageOptions.MR_EXECUTOR_LOCAL_MAX_INPUT_SIZE.key(), 1024);
+        assertFalse(new SystemMRExecutor().init(tiny, conf).isSmallJob(DeleteHBaseColumnDriver.class, args, tiny));
+
+        // The hadoop environment can not be applied to the current JVM
+        ObjectMap withEnv = localOptions().append(HadoopVariantStorageOptions.MR_HADOOP_ENV.key(), "HADOOP_USER_NAME=opencga");
+        assertFalse(new SystemMRExecutor().init(withEnv, conf).isSmallJob(DeleteHBaseColumnDriver.class, args, withEnv));
+    }
+
+    @Test
+    public void testRunLocal() throws Exception {
+        ObjectMap options = localOptions();
+        String[] args = DeleteHBaseColumnDriver.buildArgs(tableName, Collections.singletonList("0:a"), new ObjectMap());
+
+        // No jar with dependencies configured. Would fail if submitted to the cluster.
+        new SystemMRExecutor().init(options, conf).run(DeleteHBaseColumnDriver.class, args, "Delete column");
+
+        int rows = 0;
+        try (ResultScanner scanner = hBaseManager.getScanner(tableName, new Scan())) {
+            for (Result result : scanner) {
+                assertFalse(result.containsColumn(family, Bytes.toBytes("a")));
+                assertTrue(result.containsColumn(family, Bytes.toBytes("b")));
+                rows++;
+            }
+        }
+        assertEquals(100, rows);
+    }
+
+    private static ObjectMap localOptions() {
+        return new ObjectMap(HadoopVariantStorageOptions.MR_EXECUTOR_LOCAL_MAX_INPUT_SIZE.key(), 512 * 1024 * 1024);
+    }
+}
@@ -3,6 +3,7 @@ package org.opencb.opencga.storage.hadoop.variant.index.sample;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.common.collect.Lists;
 import org.apache.commons.lang3.time.StopWatch;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Connection;
 import org.apache.hadoop.hbase.client.Result;
@@ -34,15 +35,20 @@ import org.opencb.opencga.storage.core.variant.annotation.DefaultVariantAnnotati
 import org.opencb.opencga.storage.core.variant.query.VariantQueryUtils;
 import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
 import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageEngine;
+import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions;
 import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageTest;
 import org.opencb.opencga.storage.hadoop.variant.VariantHbaseTestUtils;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.VariantHBaseQueryParser;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.VariantHadoopDBAdaptor;
 import org.opencb.opencga.storage.hadoop.variant.index.IndexUtils;
 import org.opencb.opencga.storage.hadoop.variant.index.SampleIndexVariantAggregationExecutor;
+import org.opencb.opencga.storage.hadoop.variant.index.annotation.mr.SampleIndexAnnotationConsumer;
 import org.opencb.opencga.storage.hadoop.variant.index.annotation.mr.SampleIndexAnnotationLoaderDriver;
+import org.opencb.opencga.storage.hadoop.variant.index.family.FamilyIndexConsumer;
 import org.opencb.opencga.storage.hadoop.variant.index.family.FamilyIndexDriver;
 import org.opencb.opencga.storage.hadoop.variant.index.query.SampleIndexQuery;
+import org.opencb.opencga.storage.hadoop.variant.postload.PostLoadDriver;
+import org.opencb.opencga.storage.hadoop.utils.HBaseManager;
 
 import java.nio.file.Paths;
 import java.util.*;
@@ -177,15 +183,24 @@ public class SampleIndexTest extends VariantStorageBaseTest implements HadoopVar
 
     @Test
     public void regenerateSampleIndex() throws Exception {
+        regenerateSampleIndex("_copy", new ObjectMap());
+    }
+
+    @Test
+    public void regenerateSampleIndexBulkLoad() throws Exception {
+        regenerateSampleIndex("_copy_bulk_load", new ObjectMap(HadoopVariantStorageOptions.BULK_LOAD.key(), true));
+    }
+
+    private void regenerateSampleIndex(String copySuffix, ObjectMap extraOptions) throws Exception {
         for (String study : studies) {
             int studyId = dbAdaptor.getMetadataManager().getStudyId(study);
             String orig = dbAdaptor.getTableNameGenerator().getSampleIndexTableName(studyId);
-            String copy = orig + "_copy";
+            String copy = orig + copySuffix;
 
             dbAdaptor.getHBaseManager().createTableIfNeeded(copy, Bytes.toBytes(GenomeHelper.COLUMN_FAMILY),
                     Compression.Algorithm.NONE);
 
-            ObjectMap options = new ObjectMap()
+            ObjectMap options = new ObjectMap(extraOptions)
                     .append(SampleIndexDriver.OUTPUT, copy)
                     .append(SampleIndexDriver.SAMPLES, "all");
             new TestMRExecutor().run(SampleIndexDriver.class, SampleIndexDriver.buildArgs(
@@ -210,29 +225,71 @@ public class SampleIndexTest extends VariantStorageBaseTest implements HadoopVar
                         Collections.emptySet(), options), options);
             }
 
-            Connection c = dbAdaptor.getHBaseManager().getConnection();
+            checkSampleIndexTable(orig, copy);
+        }
+    }
+
+    @Test
+    public void regenerateSampleIndexPostLoad() throws Exception {
+        for (String study : studies) {
+            int studyId = dbAdaptor.getMetadataManager().getStudyId(study);
+            String orig = dbAdaptor.getTableNameGenerator().getSampleIndexTableName(studyId);
+            String copy = orig + "_copy_post_load";
 
-            VariantHbaseTestUtils.printSampleIndexTable(dbAdaptor, Paths.get(newOutputUri()), copy);
+            dbAdaptor.getHBaseManager().createTableIfNeeded(copy, Bytes.toBytes(GenomeHelper.COLUMN_FAMILY),
+                    Compression.Algorithm.NONE);
 
-            ResultScanner origScanner = c.getTable(TableName.valueOf(orig)).getScanner(new Scan());
-            ResultScanner copyScanner = c.getTable(TableName.valueOf(copy)).getScanner(new Scan());
-            while (true) {
-                Result origValue = origScanner.next();
-                Result copyValue = copyScanner.next();
-                if (origValue == null) {
-                    assertNull(copyValue);
-                    break;
-                }
-                NavigableMap<byte[], byte[]> origFamily = origValue.getFamilyMap(GenomeHelper.COLUMN_FAMILY_BYTES);
-                NavigableMap<byte[], byte[]> copyFamily = copyValue.getFamilyMap(GenomeHelper.COLUMN_FAMILY_BYTES);
+            ObjectMap options = new ObjectMap()
+                    .append(SampleIndexDriver.OUTPUT, copy)
+                    .append(SampleIndexDriver.SAMPLES, "all");
+            new TestMRExecutor().run(SampleIndexDriver.class, SampleIndexDriver.buildArgs(
+                    dbAdaptor.getArchiveTableName(studyId),
+                    dbAdaptor.getVariantTable(),
+                    studyId,
+                    Collections.emptySet(), options), options);
 
-                String row = SampleIndexSchema.rowKeyToString(origValue.getRow());
-                assertEquals(row, origFamily.keySet().stream().map(Bytes::toString).collect(toList()), copyFamily.keySet().stream().map(Bytes::toString).collect(toList()));
-                assertEquals(row, origFamily.size(), copyFamily.size());
+            // Build annotation and family index in one single scan
+            List<String> consumers = new ArrayList<>();
+            consumers.add(SampleIndexAnnotationConsumer.NAME);
+            options.put(SampleIndexAnnotationLoaderDriver.SAMPLE_IDS, dbAdaptor.getMetadataManager().getIndexedSamples(studyId));
+            if (sampleNames.get(study).containsAll(trios.get(0))) {
+                consumers.add(FamilyIndexConsumer.NAME);
+                options.put(FamilyIndexDriver.TRIOS, trios.stream().map(trio -> String.join(",", trio)).collect(Collectors.joining(";")));
+                options.put(FamilyIndexDriver.OVERWRITE, true);
+            }
+            new TestMRExecutor().run(PostLoadDriver.class, PostLoadDriver.buildArgs(
+                    dbAdaptor.getArchiveTableName(studyId),
+                    dbAdaptor.getVariantTable(),
+                    studyId,
+                    consumers, options), options);
 
-                for (byte[] key : origFamily.keySet()) {
-                    assertArrayEquals(row + " " + Bytes.toString(key), origFamily.get(key), copyFamily.get(key));
-                }
+            checkSampleIndexTable(orig, copy);
+        }
+    }
+
+    private void checkSampleIndexTable(String orig, String copy) throws Exception {
+        Connection c = dbAdaptor.getHBaseManager().getConnection();
+
+        VariantHbaseTestUtils.printSampleIndexTable(dbAdaptor, Paths.get(newOutputUri()), copy);
+
+        ResultScanner origScanner = c.getTable(TableName.valueOf(orig)).getScanner(new Scan());
+        ResultScanner copyScanner = c.getTable(TableName.valueOf(copy)).getScanner(new Scan());
+        while (true) {
+            Result origValue = origScanner.next();
+            Result copyValue = copyScanner.next();
+            if (origValue == null) {
+                assertNull(copyValue);
+                break;
+            }
+            NavigableMap<byte[], byte[]> origFamily = origValue.getFamilyMap(GenomeHelper.COLUMN_FAMILY_BYTES);
+            NavigableMap<byte[], byte[]> copyFamily = copyValue.getFamilyMap(GenomeHelper.COLUMN_FAMILY_BYTES);
+
+            String row = SampleIndexSchema.rowKeyToString(origValue.getRow());
+            assertEquals(row, origFamily.keySet().stream().map(Bytes::toString).collect(toList()), copyFamily.keySet().stream().map(Bytes::toString).collect(toList()));
+            assertEquals(row, origFamily.size(), copyFamily.size());
+
+            for (byte[] key : origFamily.keySet()) {
+                assertArrayEquals(row + " " + Bytes.toString(key), origFamily.get(key), copyFamily.get(key));
             }
         }
 
@@ -548,6 +605,66 @@ public class SampleIndexTest extends VariantStorageBaseTest implements HadoopVar
         }
     }
 
+    @Test
+    public void testServerSideFilter() throws Exception {
+        List<Query> queries = Arrays.asList(
+                new Query(),
+                new Query(REGION.key(), "chr1").append(ANNOT_BIOTYPE.key(), "protein_coding"),
+                new Query(ANNOT_CONSEQUENCE_TYPE.key(), "missense_variant,stop_gained"),
+                new Query(ANNOT_POPULATION_ALTERNATE_FREQUENCY.key(), "1kG_phase3:ALL<0.001"),
+                new Query(TYPE.key(), "INDEL"),
+                new Query(FILTER.key(), "PASS").append(QUAL.key(), ">=30"),
+                new Query(REGION.key(), Arrays.asList(
+                        new Region("6", 31_200_000, 31_800_000),
+                        new Region("8", 144_671_680, 144_690_000),
+                        new Region("8", 144_700_000, 144_995_738)))
+        );
+
+        SampleIndexDBAdaptor clientSideDBAdaptor = buildSampleIndexDBAdaptor(false);
+        SampleIndexDBAdaptor serverSideDBAdaptor = buildSampleIndexDBAdaptor(true);
+        for (String study : studies) {
+            for (String sampleName : sampleNames.get(study)) {
+                for (Query baseQuery : queries) {
+                    Query query = new Query(baseQuery)
+                            .append(VariantQueryParam.STUDY.key(), study)
+                            .append(GENOTYPE.key(), sampleName + ":1|0,0|1,1|1,0/1,1/1");
+                    System.out.println("query = " + query.toJson());
+                    SampleIndexQuery sampleIndexQuery = clientSideDBAdaptor.getSampleIndexQueryParser().parse(new Query(query));
+
+                    // Serialization round trip
+                    SampleIndexEntryServerFilter filter = new SampleIndexEntryServerFilter(sampleIndexQuery.forSample(sampleName),
+                            null, serverSideDBAdaptor.getConfiguration(), false);
+                    byte[] bytes = filter.toByteArray();
+                    assertArrayEquals(bytes, SampleIndexEntryServerFilter.parseFrom(bytes).toByteArray());
+
+                    long expectedCount = clientSideDBAdaptor.count(sampleIndexQuery);
+                    long actualCount = serverSideDBAdaptor.count(serverSideDBAdaptor.getSampleIndexQueryParser().parse(new Query(query)));
+                    assertEquals(expectedCount, actualCount);
+
+                    List<String> expected = clientSideDBAdaptor.iterator(sampleIndexQuery).toDataResult().getResults()
+                            .stream().map(Variant::toString).collect(Collectors.toList());
+                    List<String> actual = serverSideDBAdaptor.iterator(serverSideDBAdaptor.getSampleIndexQueryParser().parse(query))
+                            .toDataResult().getResults()
+                            .stream().map(Variant::toString).collect(Collectors.toList());
+                    assertEquals(expected, actual);
+                    assertEquals(expectedCount, actual.size());
+                }
+            }
+            // Make sure the filter was executed at the server side, and not silently replaced by the client side filter
+            int studyId = dbAdaptor.getMetadataManager().getStudyId(study);
+            String tableName = dbAdaptor.getTableNameGenerator().getSampleIndexTableName(studyId);
+            assertEquals(Boolean.TRUE, serverSideDBAdaptor.isServerSideFilterAvailable(tableName));
+            assertNull(clientSideDBAdaptor.isServerSideFilterAvailable(tableName));
+        }
+    }
+
+    private SampleIndexDBAdaptor buildSampleIndexDBAdaptor(boolean serverSideFilter) {
+        Configuration conf = new Configuration(dbAdaptor.getHBaseManager().getConf());
+        conf.setBoolean(HadoopVariantStorageOptions.SAMPLE_INDEX_QUERY_SERVER_SIDE_FILTER.key(), serverSideFilter);
+        return new SampleIndexDBAdaptor(new HBaseManager(conf, dbAdaptor.getHBaseManager().getConnection()),
+                dbAdaptor.getTableNameGenerator(), dbAdaptor.getMetadataManager());
+    }
+
     @Test
     public void testAggregation() throws Exception {
         SampleIndexVariantAggregationExecutor executor = new SampleIndexVariantAggregationExecutor(metadataManager, ((HadoopVariantStorageEngine) variantStorageEngine).getSampleIndexDBAdaptor());
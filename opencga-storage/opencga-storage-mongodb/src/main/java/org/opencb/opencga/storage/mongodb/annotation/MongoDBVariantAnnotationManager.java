@@ -12,6 +12,8 @@ import org.opencb.opencga.storage.core.variant.io.db.VariantAnnotationDBWriter;
 import org.opencb.opencga.storage.mongodb.variant.adaptors.VariantMongoDBAdaptor;
 import org.opencb.opencga.storage.mongodb.variant.io.db.VariantMongoDBAnnotationDBWriter;
 
+import java.io.IOException;
+import java.net.URI;
 import java.util.Arrays;
 
 import static com.mongodb.client.model.Aggregates.*;
@@ -27,6 +29,7 @@ import static org.opencb.opencga.storage.mongodb.variant.converters.DocumentToVa
  */
 public class MongoDBVariantAnnotationManager extends DefaultVariantAnnotationManager {
     private final VariantMongoDBAdaptor mongoDbAdaptor;
+    private VariantMongoDBAnnotationDBWriter.PartitionStats loadStats = new VariantMongoDBAnnotationDBWriter.PartitionStats();
 
     public MongoDBVariantAnnotationManager(VariantAnnotator annotator, VariantMongoDBAdaptor mongoDbAdaptor,
                                            IOConnectorProvider ioConnectorProvider) {
@@ -36,7 +39,14 @@ public class MongoDBVariantAnnotationManager extends DefaultVariantAnnotationMan
 
     @Override
     protected VariantAnnotationDBWriter newVariantAnnotationDBWriter(VariantDBAdaptor dbAdaptor, QueryOptions options) {
-        return new VariantMongoDBAnnotationDBWriter(options, mongoDbAdaptor);
+        return new VariantMongoDBAnnotationDBWriter(options, mongoDbAdaptor, loadStats);
+    }
+
+    @Override
+    public void loadVariantAnnotation(URI uri, ObjectMap params) throws IOException, StorageEngineException {
+        loadStats = new VariantMongoDBAnnotationDBWriter.PartitionStats();
+        super.loadVariantAnnotation(uri, params);
+        loadStats.log(logger);
     }
 
     @Override
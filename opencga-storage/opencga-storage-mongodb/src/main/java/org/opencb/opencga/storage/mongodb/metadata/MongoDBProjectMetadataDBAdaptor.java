@@ -12,12 +12,14 @@ import org.opencb.commons.datastore.mongodb.GenericDocumentComplexConverter;
 import org.opencb.commons.datastore.mongodb.MongoDBCollection;
 import org.opencb.commons.datastore.mongodb.MongoDataStore;
 import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
 import org.opencb.opencga.storage.core.metadata.adaptors.ProjectMetadataAdaptor;
 import org.opencb.opencga.storage.core.metadata.models.Lock;
 import org.opencb.opencga.storage.core.metadata.models.ProjectMetadata;
 import org.opencb.opencga.storage.mongodb.utils.MongoLockManager;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeoutException;
 
@@ -81,8 +83,47 @@ public class MongoDBProjectMetadataDBAdaptor implements ProjectMetadataAdaptor {
 
     @Override
     public int generateId(Integer studyId, String idType) throws StorageEngineException {
-        // Ignore study configuration. Same ID counter for all studies in the same database
-        return generateId(idType, true);
+        return generateId(getCounterName(studyId, idType), true);
+    }
+
+    @Override
+    public int getCounter(Integer studyId, String idType) {
+        return getCounters(Collections.singletonList(studyId), idType).get(0);
+    }
+
+    @Override
+    public List<Integer> getCounters(List<Integer> studyIds, String idType) {
+        List<String> counterNames = new ArrayList<>(studyIds.size());
+        Document projection = new Document();
+        for (Integer studyId : studyIds) {
+            String counterName = getCounterName(studyId, idType);
+            counterNames.add(counterName);
+            projection.append(COUNTERS_FIELD + '.' + counterName, true);
+        }
+        Document document = collection.find(QUERY, projection, new QueryOptions()).first();
+        Document counters = document == null ? null : document.get(COUNTERS_FIELD, Document.class);
+        List<Integer> values = new ArrayList<>(counterNames.size());
+        for (String counterName : counterNames) {
+            Integer value = counters == null ? null : counters.getInteger(counterName);
+            values.add(value == null ? 0 : value);
+        }
+        return values;
+    }
+
+    /**
+     * Counters used to generate IDs are shared by all the studies in the same database.
+     * The data version is the only counter kept per study.
+     *
+     * @param studyId Study of the counter. Null for project counters
+     * @param idType  Counter type
+     * @return        Name of the counter
+     */
+    private static String getCounterName(Integer studyId, String idType) {
+        if (studyId == null || !idType.equals(VariantStorageMetadataManager.DATA_VERSION)) {
+            return idType;
+        } else {
+            return idType + '_' + studyId;
+        }
     }
 
     @Override
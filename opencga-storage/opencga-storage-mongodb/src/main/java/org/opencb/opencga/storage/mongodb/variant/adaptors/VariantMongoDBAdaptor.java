@@ -18,8 +18,11 @@ package org.opencb.opencga.storage.mongodb.variant.adaptors;
 
 import com.mongodb.BasicDBList;
 import com.mongodb.MongoClient;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.WriteModel;
 import htsjdk.variant.vcf.VCFConstants;
 import org.apache.commons.lang3.time.StopWatch;
 import org.bson.Document;
@@ -1016,37 +1019,52 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
 
     @Override
     public DataResult updateAnnotations(List<VariantAnnotation> variantAnnotations, long timestamp, QueryOptions queryOptions) {
-        List<Bson> queries = new LinkedList<>();
-        List<Bson> updates = new LinkedList<>();
+        List<Bson> queries = new ArrayList<>(variantAnnotations.size());
+        List<Bson> updates = new ArrayList<>(variantAnnotations.size());
 
-        StopWatch watch = StopWatch.createStarted();
-        DocumentToVariantConverter variantConverter = getDocumentToVariantConverter(new Query(), queryOptions);
+        int currentAnnotationId = getMetadataManager().getProjectMetadata().getAnnotation().getCurrent().getId();
+        DocumentToVariantAnnotationConverter converter = new DocumentToVariantAnnotationConverter(currentAnnotationId);
+        VariantStringIdConverter idConverter = new VariantStringIdConverter();
         for (VariantAnnotation variantAnnotation : variantAnnotations) {
-            String id;
-            if (variantAnnotation.getAdditionalAttributes() != null
-                    && variantAnnotation.getAdditionalAttributes().containsKey(GROUP_NAME.key())) {
-                String variantString = variantAnnotation.getAdditionalAttributes()
-                        .get(GROUP_NAME.key())
-                        .getAttribute()
-                        .get(VARIANT_ID.key());
-                id = variantConverter.buildStorageId(new Variant(variantString));
-            } else {
-                id = variantConverter.buildStorageId(variantAnnotation.getChromosome(), variantAnnotation.getStart(),
-                        variantAnnotation.getReference(), variantAnnotation.getAlternate());
-            }
-            Document find = new Document("_id", id);
-            int currentAnnotationId = getMetadataManager().getProjectMetadata().getAnnotation().getCurrent().getId();
-            DocumentToVariantAnnotationConverter converter = new DocumentToVariantAnnotationConverter(currentAnnotationId);
-            Document convertedVariantAnnotation = converter.convertToStorageType(variantAnnotation);
-            Bson update = combine(
-                    set(DocumentToVariantConverter.ANNOTATION_FIELD + ".0", convertedVariantAnnotation),
-                    getSetIndexNotSynchronized(timestamp));
-            queries.add(find);
-            updates.add(update);
+            queries.add(new Document("_id", buildAnnotationStorageId(idConverter, variantAnnotation)));
+            updates.add(buildAnnotationUpdate(converter, variantAnnotation, timestamp));
         }
         return variantsCollection.update(queries, updates, null);
     }
 
+    /**
+     * Update the annotation of the given variants with one single unordered bulk write.
+     * Updates from an unordered bulk write are executed in parallel by the servers, and errors do not stop the remaining updates.
+     *
+     * @param updates Updates to execute, from {@link #buildAnnotationUpdate}
+     * @return BulkWriteResult
+     */
+    public BulkWriteResult updateAnnotationsUnordered(List<? extends WriteModel<Document>> updates) {
+        return db.getDb().getCollection(collectionName).bulkWrite(updates, new BulkWriteOptions().ordered(false));
+    }
+
+    public static String buildAnnotationStorageId(VariantStringIdConverter idConverter, VariantAnnotation variantAnnotation) {
+        if (variantAnnotation.getAdditionalAttributes() != null
+                && variantAnnotation.getAdditionalAttributes().containsKey(GROUP_NAME.key())) {
+            String variantString = variantAnnotation.getAdditionalAttributes()
+                    .get(GROUP_NAME.key())
+                    .getAttribute()
+                    .get(VARIANT_ID.key());
+            return idConverter.buildId(new Variant(variantString));
+        } else {
+            return idConverter.buildId(variantAnnotation.getChromosome(), variantAnnotation.getStart(),
+                    variantAnnotation.getReference(), variantAnnotation.getAlternate());
+        }
+    }
+
+    public static Bson buildAnnotationUpdate(DocumentToVariantAnnotationConverter converter, VariantAnnotation variantAnnotation,
+                                             long timestamp) {
+        Document convertedVariantAnnotation = converter.convertToStorageType(variantAnnotation);
+        return combine(
+                set(DocumentToVariantConverter.ANNOTATION_FIELD + ".0", convertedVariantAnnotation),
+                getSetIndexNotSynchronized(timestamp));
+    }
+
     @Override
     public DataResult updateCustomAnnotations(Query query, String name, AdditionalAttribute attribute, long timeStamp,
                                                QueryOptions options) {
@@ -16,29 +16,99 @@
 
 package org.opencb.opencga.storage.mongodb.variant.io.db;
 
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.UpdateOneModel;
+import org.bson.Document;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.opencga.storage.core.variant.io.db.VariantAnnotationDBWriter;
 import org.opencb.opencga.storage.mongodb.variant.adaptors.VariantMongoDBAdaptor;
+import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToVariantAnnotationConverter;
+import org.opencb.opencga.storage.mongodb.variant.converters.VariantStringIdConverter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Basic functionality of VariantAnnotationDBWriter. Creates MongoDB indexes at the post step (if needed).
+ *
+ * Each instance is used by one single thread, so the converters and the current annotation id are resolved only once.
+ * Annotations are written with one unordered bulk write per partition (chromosome and chunk of {@link #PARTITION_SIZE})
+ * of each batch. As every update is idempotent and sets the index not synchronized marker, an interrupted load can be
+ * resumed by loading the same file again.
+ *
  * Created on 05/01/17.
  *
  * @author Jacobo Coll &lt;jacobo167@gmail.com&gt;
  */
 public class VariantMongoDBAnnotationDBWriter extends VariantAnnotationDBWriter {
+    public static final int PARTITION_SIZE = 100 * VariantMongoDBAdaptor.CHUNK_SIZE_BIG;
     private static final String INDEXES_CREATED = "indexes.created";
+    private final Logger logger = LoggerFactory.getLogger(VariantMongoDBAnnotationDBWriter.class);
     private final VariantMongoDBAdaptor dbAdaptor;
+    private final VariantStringIdConverter idConverter = new VariantStringIdConverter();
+    private final PartitionStats stats;
+    private DocumentToVariantAnnotationConverter converter;
 
     public VariantMongoDBAnnotationDBWriter(QueryOptions options, VariantMongoDBAdaptor dbAdaptor) {
+        this(options, dbAdaptor, new PartitionStats());
+    }
+
+    public VariantMongoDBAnnotationDBWriter(QueryOptions options, VariantMongoDBAdaptor dbAdaptor, PartitionStats stats) {
         super(dbAdaptor, options, null);
         this.dbAdaptor = dbAdaptor;
+        this.stats = stats;
     }
 
     @Override
     public void pre() throws Exception {
         super.pre();
         options.put(INDEXES_CREATED, false);
+        int currentAnnotationId = dbAdaptor.getMetadataManager().getProjectMetadata().getAnnotation().getCurrent().getId();
+        converter = new DocumentToVariantAnnotationConverter(currentAnnotationId);
+    }
+
+    @Override
+    public List<Object> apply(List<VariantAnnotation> list) {
+        // Sorted input. Partitions are usually consecutive.
+        // Count the size of each partition first, so each list is allocated with its exact size.
+        Map<String, Partition> partitions = new LinkedHashMap<>();
+        Partition[] partitionByAnnotation = new Partition[list.size()];
+        for (int i = 0; i < list.size(); i++) {
+            VariantAnnotation variantAnnotation = list.get(i);
+            int chunk = variantAnnotation.getStart() / PARTITION_SIZE;
+            Partition partition = partitions.computeIfAbsent(variantAnnotation.getChromosome() + '_' + chunk,
+                    k -> new Partition(variantAnnotation.getChromosome()));
+            partition.size++;
+            partitionByAnnotation[i] = partition;
+        }
+        for (int i = 0; i < list.size(); i++) {
+            VariantAnnotation variantAnnotation = list.get(i);
+            String id = VariantMongoDBAdaptor.buildAnnotationStorageId(idConverter, variantAnnotation);
+            partitionByAnnotation[i].add(new UpdateOneModel<>(new Document("_id", id),
+                    VariantMongoDBAdaptor.buildAnnotationUpdate(converter, variantAnnotation, getTimestamp())));
+        }
+
+        List<Object> results = new ArrayList<>(partitions.size());
+        for (Partition partition : partitions.values()) {
+            long start = System.nanoTime();
+            BulkWriteResult result = dbAdaptor.updateAnnotationsUnordered(partition.updates);
+            long elapsed = System.nanoTime() - start;
+            int missing = 0;
+            if (result.wasAcknowledged() && result.getMatchedCount() != partition.size) {
+                missing = partition.size - result.getMatchedCount();
+                logger.warn("Only {} out of {} annotations from chromosome {} matched an existing variant",
+                        result.getMatchedCount(), partition.size, partition.chromosome);
+            }
+            stats.add(partition.chromosome, partition.size, missing, elapsed);
+            results.add(result);
+        }
+        logUpdate(list);
+        return results;
     }
 
     @Override
@@ -49,4 +119,64 @@ public class VariantMongoDBAnnotationDBWriter extends VariantAnnotationDBWriter
             options.put(INDEXES_CREATED, true);
         }
     }
+
+    private static final class Partition {
+        private final String chromosome;
+        private int size;
+        private List<UpdateOneModel<Document>> updates;
+
+        private Partition(String chromosome) {
+            this.chromosome = chromosome;
+        }
+
+        private void add(UpdateOneModel<Document> update) {
+            if (updates == null) {
+                updates = new ArrayList<>(size);
+            }
+            updates.add(update);
+        }
+    }
+
+    /**
+     * Number of annotations written, annotations not matching any variant, and time spent writing them, for each chromosome.
+     * Can be shared by all the writers of the same load.
+     */
+    public static class PartitionStats {
+        private final Map<String, LongAdder> count = new ConcurrentHashMap<>();
+        private final Map<String, LongAdder> missing = new ConcurrentHashMap<>();
+        private final Map<String, LongAdder> nanos = new ConcurrentHashMap<>();
+
+        public void add(String chromosome, int numAnnotations, int numMissing, long elapsedNanos) {
+            count.computeIfAbsent(chromosome, k -> new LongAdder()).add(numAnnotations);
+            missing.computeIfAbsent(chromosome, k -> new LongAdder()).add(numMissing);
+            nanos.computeIfAbsent(chromosome, k -> new LongAdder()).add(elapsedNanos);
+        }
+
+        public long getCount(String chromosome) {
+            LongAdder adder = count.get(chromosome);
+            return adder == null ? 0 : adder.sum();
+        }
+
+        public long getMissing(String chromosome) {
+            LongAdder adder = missing.get(chromosome);
+            return adder == null ? 0 : adder.sum();
+        }
+
+        public Set<String> getChromosomes() {
+            return Collections.unmodifiableSet(count.keySet());
+        }
+
+        public void log(Logger logger) {
+            for (String chromosome : new TreeSet<>(count.keySet())) {
+                long numAnnotations = getCount(chromosome);
+                long numMissing = getMissing(chromosome);
+                long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(nanos.get(chromosome).sum()));
+                if (numMissing > 0) {
+                    logger.warn("Chromosome {} : {} annotations did not match any variant", chromosome, numMissing);
+                }
+                logger.info("Chromosome {} : {} annotations written in {}ms ({} annotations/s per thread)",
+                        chromosome, numAnnotations, millis, numAnnotations * 1000 / millis);
+            }
+        }
+    }
 }
@@ -1,7 +1,26 @@
 package org.opencb.opencga.storage.mongodb.variant.annotation;
 
+import org.junit.Test;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantField;
+import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
+import org.opencb.opencga.storage.core.variant.annotation.DummyTestAnnotator;
+import org.opencb.opencga.storage.core.variant.annotation.VariantAnnotationManager;
 import org.opencb.opencga.storage.core.variant.annotation.VariantAnnotationManagerTest;
+import org.opencb.opencga.storage.core.variant.annotation.annotators.VariantAnnotatorFactory;
+import org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageEngine;
 import org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageTest;
+import org.opencb.opencga.storage.mongodb.variant.io.db.VariantMongoDBAnnotationDBWriter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
 
 /**
  * Created on 24/04/18.
@@ -9,4 +28,57 @@ import org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageTest;
  * @author Jacobo Coll &lt;jacobo167@gmail.com&gt;
  */
 public class MongoDBVariantAnnotationManagerTest extends VariantAnnotationManagerTest implements MongoDBVariantStorageTest {
+
+    @Test
+    public void testLoadAndReloadAnnotations() throws Exception {
+        MongoDBVariantStorageEngine variantStorageEngine = getVariantStorageEngine();
+        runDefaultETL(smallInputUri, variantStorageEngine, newStudyMetadata(),
+                new ObjectMap(VariantStorageOptions.ANNOTATE.key(), false));
+        variantStorageEngine.getOptions()
+                .append(VariantStorageOptions.ANNOTATOR_CLASS.key(), DummyTestAnnotator.class.getName())
+                .append(VariantStorageOptions.ANNOTATOR.key(), VariantAnnotatorFactory.AnnotationEngine.OTHER);
+
+        // Load through the annotation manager
+        variantStorageEngine.annotate(new Query(), new ObjectMap(DummyTestAnnotator.ANNOT_KEY, "v1"));
+        checkAnnotationSnapshot(variantStorageEngine, VariantAnnotationManager.CURRENT, VariantAnnotationManager.CURRENT, "v1", null);
+
+        List<Variant> variants = new ArrayList<>();
+        try (VariantDBIterator iterator = variantStorageEngine.getDBAdaptor().iterator(new Query(),
+                new QueryOptions(QueryOptions.EXCLUDE, VariantField.STUDIES))) {
+            iterator.forEachRemaining(variants::add);
+        }
+        // Variant not in the database
+        variants.add(new Variant("1:1:A:C"));
+        List<VariantAnnotation> annotations = new DummyTestAnnotator(variantStorageEngine.getConfiguration(),
+                variantStorageEngine.getMetadataManager().getProjectMetadata(),
+                new ObjectMap(DummyTestAnnotator.ANNOT_KEY, "v2")).annotate(variants);
+
+        // Reload with the writer. Load the same annotations twice, as updates are idempotent.
+        VariantMongoDBAnnotationDBWriter.PartitionStats stats = new VariantMongoDBAnnotationDBWriter.PartitionStats();
+        for (int i = 0; i < 2; i++) {
+            VariantMongoDBAnnotationDBWriter writer = new VariantMongoDBAnnotationDBWriter(new QueryOptions(),
+                    variantStorageEngine.getDBAdaptor(), stats);
+            writer.pre();
+            for (int from = 0; from < annotations.size(); from += 100) {
+                writer.apply(annotations.subList(from, Math.min(from + 100, annotations.size())));
+            }
+            writer.post();
+            checkAnnotationSnapshot(variantStorageEngine, VariantAnnotationManager.CURRENT, VariantAnnotationManager.CURRENT, "v2", null);
+        }
+
+        long count = 0;
+        long missing = 0;
+        for (String chromosome : stats.getChromosomes()) {
+            count += stats.getCount(chromosome);
+            missing += stats.getMissing(chromosome);
+        }
+        assertEquals(annotations.size() * 2, count);
+        assertEquals(2, missing);
+        assertEquals(2, stats.getMissing("1"));
+
+        // Reload through the annotation manager, overwriting all the annotations
+        variantStorageEngine.annotate(new Query(), new ObjectMap(DummyTestAnnotator.ANNOT_KEY, "v3")
+                .append(VariantStorageOptions.ANNOTATION_OVERWEITE.key(), true));
+        checkAnnotationSnapshot(variantStorageEngine, VariantAnnotationManager.CURRENT, VariantAnnotationManager.CURRENT, "v3", null);
+    }
 }
@@ -18,18 +18,25 @@ package org.opencb.opencga.storage.server.grpc;
 
 import io.grpc.stub.StreamObserver;
 import org.apache.commons.lang3.StringUtils;
+import org.opencb.biodata.tools.variant.converters.proto.VariantAvroToVariantProtoConverter;
 import org.opencb.commons.datastore.core.DataResult;
+import org.opencb.commons.datastore.core.FacetField;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.opencga.storage.core.config.StorageConfiguration;
 import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
+import org.opencb.opencga.storage.core.utils.grpc.FlowControlledStreamer;
+import org.opencb.opencga.storage.core.variant.VariantStorageEngine;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantDBAdaptor;
+import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.Iterator;
+import java.util.Collections;
 
+import static org.opencb.biodata.models.variant.protobuf.VariantProto.Variant;
 import static org.opencb.opencga.storage.server.grpc.GenericServiceModel.*;
-import static org.opencb.opencga.storage.server.grpc.VariantProto.Variant;
 
 
 /**
@@ -37,8 +44,15 @@ import static org.opencb.opencga.storage.server.grpc.VariantProto.Variant;
  */
 public class VariantGrpcService extends VariantServiceGrpc.VariantServiceImplBase {
 
+    /**
+     * Field to aggregate in the distinct and groupBy methods. Accepts the same syntax as {@link QueryOptions#FACET}.
+     */
+    public static final String FIELD = "field";
+
     private GenericGrpcService genericGrpcService;
 
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
     public VariantGrpcService(StorageConfiguration storageConfiguration) {
 //        super(storageConfiguration);
         genericGrpcService = new GenericGrpcService(storageConfiguration);
@@ -71,7 +85,20 @@ public class VariantGrpcService extends VariantServiceGrpc.VariantServiceImplBas
 
     @Override
     public void distinct(Request request, StreamObserver<StringArrayResponse> responseObserver) {
+        try {
+            Query query = genericGrpcService.createQuery(request);
+            QueryOptions queryOptions = genericGrpcService.createQueryOptions(request);
 
+            StringArrayResponse.Builder builder = StringArrayResponse.newBuilder();
+            for (FacetField.Bucket bucket : facet(request, query, queryOptions).getBuckets()) {
+                builder.addValues(bucket.getValue());
+            }
+            responseObserver.onNext(builder.build());
+            responseObserver.onCompleted();
+        } catch (StorageEngineException | RuntimeException e) {
+            logger.error("Error on distinct", e);
+            responseObserver.onError(e);
+        }
     }
 
     @Override
@@ -82,48 +109,75 @@ public class VariantGrpcService extends VariantServiceGrpc.VariantServiceImplBas
             QueryOptions queryOptions = genericGrpcService.createQueryOptions(request);
 
 //            checkAuthorizedHosts(query, request.getIp());
-            VariantDBAdaptor variantDBAdaptor = getVariantDBAdaptor(request);
-//            Iterator iterator = geneDBAdaptor.nativeIterator(query, queryOptions);
-            Iterator iterator = variantDBAdaptor.iterator(query, queryOptions);
-            while (iterator.hasNext()) {
-                org.opencb.biodata.models.variant.Variant next = (org.opencb.biodata.models.variant.Variant) iterator.next();
-                Variant convert = convert(next);
-                responseObserver.onNext(convert);
-            }
-            responseObserver.onCompleted();
-            variantDBAdaptor.close();
-        } catch (StorageEngineException | IOException e) {
-            // FIXME!
-            e.printStackTrace();
+            VariantDBIterator iterator = getVariantStorageEngine(request).iterator(query, queryOptions);
+            // Not thread safe. One converter per request
+            VariantAvroToVariantProtoConverter converter = new VariantAvroToVariantProtoConverter();
+            FlowControlledStreamer.stream(iterator, converter::convert, responseObserver);
+        } catch (StorageEngineException | RuntimeException e) {
+            logger.error("Error on get variants", e);
+            responseObserver.onError(e);
         }
     }
 
     @Override
     public void getJson(Request request, StreamObserver<StringResponse> responseObserver) {
+        try {
+            Query query = genericGrpcService.createQuery(request);
+            QueryOptions queryOptions = genericGrpcService.createQueryOptions(request);
 
+            VariantDBIterator iterator = getVariantStorageEngine(request).iterator(query, queryOptions);
+            FlowControlledStreamer.stream(iterator, variant -> StringResponse.newBuilder().setValue(variant.toJson()).build(),
+                    responseObserver);
+        } catch (StorageEngineException | RuntimeException e) {
+            logger.error("Error on get variants", e);
+            responseObserver.onError(e);
+        }
     }
 
     @Override
     public void groupBy(Request request, StreamObserver<GroupResponse> responseObserver) {
+        try {
+            Query query = genericGrpcService.createQuery(request);
+            QueryOptions queryOptions = genericGrpcService.createQueryOptions(request);
 
+            GroupResponse.Builder builder = GroupResponse.newBuilder();
+            for (FacetField.Bucket bucket : facet(request, query, queryOptions).getBuckets()) {
+                builder.putValues(bucket.getValue(), String.valueOf(bucket.getCount()));
+            }
+            responseObserver.onNext(builder.build());
+            responseObserver.onCompleted();
+        } catch (StorageEngineException | RuntimeException e) {
+            logger.error("Error on groupBy", e);
+            responseObserver.onError(e);
+        }
     }
 
-    private Variant convert(org.opencb.biodata.models.variant.Variant var) {
-        Variant build = Variant.newBuilder()
-                .setChromosome(var.getChromosome())
-                .setStart(var.getStart())
-                .setEnd(var.getEnd())
-                .setLength(var.getLength())
-                .setReference(var.getReference())
-                .setAlternate(var.getAlternate())
-                .addAllIds(var.getIds())
-                .build();
-
-        return build;
+    /**
+     * Aggregate the variants by the field given in the option {@link #FIELD}, using the aggregation executors of the engine.
+     *
+     * @param request      Request
+     * @param query        Query
+     * @param queryOptions QueryOptions. Must contain the option {@link #FIELD}
+     * @return             FacetField of the given field
+     * @throws StorageEngineException if the storage engine can not be created
+     */
+    private FacetField facet(Request request, Query query, QueryOptions queryOptions) throws StorageEngineException {
+        String field = queryOptions.getString(FIELD);
+        if (StringUtils.isEmpty(field)) {
+            throw new IllegalArgumentException("Missing option '" + FIELD + "'");
+        }
+        QueryOptions facetOptions = new QueryOptions(queryOptions);
+        facetOptions.remove(FIELD);
+        facetOptions.put(QueryOptions.FACET, field);
+        DataResult<FacetField> result = getVariantStorageEngine(request).facet(query, facetOptions);
+        if (result.getResults().isEmpty()) {
+            return new FacetField(field, 0, Collections.emptyList());
+        } else {
+            return result.first();
+        }
     }
 
-    private VariantDBAdaptor getVariantDBAdaptor(Request request)
-            throws StorageEngineException {
+    protected VariantStorageEngine getVariantStorageEngine(Request request) throws StorageEngineException {
         // Setting storageEngine and database parameters. If the storageEngine is not provided then the server default is used
         String storageEngine = genericGrpcService.getDefaultStorageEngine();
         if (StringUtils.isNotEmpty(request.getStorageEngine())) {
@@ -136,9 +190,13 @@ public class VariantGrpcService extends VariantServiceGrpc.VariantServiceImplBas
             database = request.getDatabase();
         }
 
+        return GenericGrpcService.storageEngineFactory.getVariantStorageEngine(storageEngine, database);
+    }
+
+    private VariantDBAdaptor getVariantDBAdaptor(Request request)
+            throws StorageEngineException {
         // Creating the VariantDBAdaptor to the parsed storageEngine and database
-        VariantDBAdaptor variantDBAdaptor = GenericGrpcService.storageEngineFactory
-                .getVariantStorageEngine(storageEngine, database).getDBAdaptor();
+        VariantDBAdaptor variantDBAdaptor = getVariantStorageEngine(request).getDBAdaptor();
 //        logger.debug("Connection to {}:{} in {}ms", storageEngine, database, System.currentTimeMillis() - start);
 
         return variantDBAdaptor;
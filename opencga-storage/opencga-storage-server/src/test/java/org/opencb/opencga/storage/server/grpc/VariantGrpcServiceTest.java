@@ -0,0 +1,154 @@
+package org.opencb.opencga.storage.server.grpc;
+
+import io.grpc.stub.StreamObserver;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.opencb.commons.datastore.core.DataResult;
+import org.opencb.commons.datastore.core.FacetField;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.storage.core.config.StorageConfiguration;
+import org.opencb.opencga.storage.core.variant.VariantStorageEngine;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.opencb.opencga.storage.server.grpc.GenericServiceModel.*;
+
+public class VariantGrpcServiceTest {
+
+    private VariantStorageEngine engine;
+    private VariantGrpcService service;
+
+    @Before
+    public void setUp() throws Exception {
+        StorageConfiguration storageConfiguration;
+        try (InputStream is = StorageConfiguration.class.getClassLoader().getResourceAsStream("storage-configuration.yml")) {
+            storageConfiguration = StorageConfiguration.load(is);
+        }
+        engine = Mockito.mock(VariantStorageEngine.class);
+        service = new VariantGrpcService(storageConfiguration) {
+            @Override
+            protected VariantStorageEngine getVariantStorageEngine(Request request) {
+                return engine;
+            }
+        };
+        FacetField facetField = new FacetField("type", 15, Arrays.asList(
+                new FacetField.Bucket("SNV", 10, null),
+                new FacetField.Bucket("INDEL", 5, null)));
+        Mockito.doReturn(new DataResult<>(0, Collections.emptyList(), 1, Collections.singletonList(facetField), 1))
+                .when(engine).facet(any(), any());
+    }
+
+    @Test
+    public void testDistinct() {
+        TestObserver<StringArrayResponse> observer = new TestObserver<>();
+        service.distinct(request("type"), observer);
+
+        assertNull(observer.error);
+        assertTrue(observer.completed);
+        assertEquals(1, observer.values.size());
+        assertEquals(Arrays.asList("SNV", "INDEL"), observer.values.get(0).getValuesList());
+        checkFacetQuery("type");
+    }
+
+    @Test
+    public void testGroupBy() {
+        TestObserver<GroupResponse> observer = new TestObserver<>();
+        service.groupBy(request("type"), observer);
+
+        assertNull(observer.error);
+        assertTrue(observer.completed);
+        assertEquals(1, observer.values.size());
+        Map<String, String> expected = new HashMap<>();
+        expected.put("SNV", "10");
+        expected.put("INDEL", "5");
+        assertEquals(expected, observer.values.get(0).getValuesMap());
+        checkFacetQuery("type");
+    }
+
+    @Test
+    public void testGroupByEmptyResult() {
+        Mockito.doReturn(new DataResult<>(0, Collections.emptyList(), 0, Collections.emptyList(), 0))
+                .when(engine).facet(any(), any());
+        TestObserver<GroupResponse> observer = new TestObserver<>();
+        service.groupBy(request("type"), observer);
+
+        assertNull(observer.error);
+        assertTrue(observer.completed);
+        assertEquals(0, observer.values.get(0).getValuesCount());
+    }
+
+    @Test
+    public void testDistinctMissingField() {
+        TestObserver<StringArrayResponse> observer = new TestObserver<>();
+        service.distinct(request(null), observer);
+
+        assertTrue(observer.error instanceof IllegalArgumentException);
+        assertFalse(observer.completed);
+        assertTrue(observer.values.isEmpty());
+        Mockito.verify(engine, Mockito.never()).facet(any(), any());
+    }
+
+    @Test
+    public void testGroupByError() {
+        RuntimeException exception = new RuntimeException("Mock exception");
+        Mockito.doThrow(exception).when(engine).facet(any(), any());
+        TestObserver<GroupResponse> observer = new TestObserver<>();
+        service.groupBy(request("type"), observer);
+
+        assertSame(exception, observer.error);
+        assertFalse(observer.completed);
+    }
+
+    private static Request request(String field) {
+        Request.Builder builder = Request.newBuilder()
+                .putQuery(VariantQueryParam.REGION.key(), "1")
+                .putOptions(QueryOptions.LIMIT, "10");
+        if (field != null) {
+            builder.putOptions(VariantGrpcService.FIELD, field);
+        }
+        return builder.build();
+    }
+
+    private void checkFacetQuery(String field) {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<QueryOptions> options = ArgumentCaptor.forClass(QueryOptions.class);
+        Mockito.verify(engine).facet(query.capture(), options.capture());
+        assertEquals("1", query.getValue().getString(VariantQueryParam.REGION.key()));
+        assertEquals(field, options.getValue().getString(QueryOptions.FACET));
+        assertEquals("10", options.getValue().getString(QueryOptions.LIMIT));
+        assertFalse(options.getValue().containsKey(VariantGrpcService.FIELD));
+    }
+
+    private static class TestObserver<T> implements StreamObserver<T> {
+        private final List<T> values = new ArrayList<>();
+        private Throwable error;
+        private boolean completed;
+
+        @Override
+        public void onNext(T value) {
+            values.add(value);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            error = t;
+        }
+
+        @Override
+        public void onCompleted() {
+            completed = true;
+        }
+    }
+}